@@ -0,0 +1,366 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.deps.auth;
+
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.CertificateException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process wide cache of {@link IotHubSSLContext} instances, keyed by the trusted certificates and, for x509
+ * authentication, by the client certificate and private key.
+ *
+ * <p>Building an SSLContext parses the trusted certificates and loads them into a new trust store every time. Clients
+ * that trust the same certificates and authenticate with the same key now share one context instead. Sharing the
+ * context also shares its client session cache, so a client reconnecting to a host that any client of the context
+ * already connected to can resume the TLS session with an abbreviated handshake.</p>
+ *
+ * <p>A context is built once per key, outside of any lock shared with the other keys, so only the callers asking for
+ * the same context wait for it to be built. The cache holds the contexts weakly: a context, and the key material
+ * loaded in it, is released once no client references it anymore.</p>
+ *
+ * <p>A trusted certificate given as a path is keyed by the path, the last modified time and the length of the file,
+ * so a replaced certificate file is loaded again the next time a context is requested.</p>
+ */
+public final class IotHubSSLContextCache
+{
+    private static final String DEFAULT_TRUST_KEY = "default";
+    private static final String CERTIFICATE_TRUST_KEY_PREFIX = "cert:";
+    private static final String PATH_TRUST_KEY_PREFIX = "path:";
+    private static final char KEY_SEPARATOR = '\n';
+
+    private static final ConcurrentMap<String, CachedContext> contexts = new ConcurrentHashMap<String, CachedContext>();
+
+    /**
+     * A context being built, then a weak reference to the built context. The build is dropped once it completed, as
+     * it keeps its result strongly.
+     */
+    private static final class CachedContext
+    {
+        private volatile FutureTask<IotHubSSLContext> build;
+        private volatile WeakReference<IotHubSSLContext> context;
+
+        private CachedContext(Callable<IotHubSSLContext> builder)
+        {
+            this.build = new FutureTask<IotHubSSLContext>(builder);
+        }
+
+        private void build()
+        {
+            FutureTask<IotHubSSLContext> build = this.build;
+            build.run();
+            try
+            {
+                this.context = new WeakReference<IotHubSSLContext>(build.get());
+            }
+            catch (InterruptedException | ExecutionException e)
+            {
+                // the build already ran on this thread, the callers see its failure through the build itself
+                return;
+            }
+
+            this.build = null;
+        }
+
+        /**
+         * @return the context, or null if it was released
+         */
+        private IotHubSSLContext get()
+                throws KeyStoreException, KeyManagementException, IOException, CertificateException, NoSuchAlgorithmException, UnrecoverableKeyException
+        {
+            FutureTask<IotHubSSLContext> build = this.build;
+            if (build == null)
+            {
+                return this.context.get();
+            }
+
+            try
+            {
+                return build.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the SSLContext to be built");
+            }
+            catch (ExecutionException e)
+            {
+                throw buildFailure(e.getCause());
+            }
+        }
+
+        private boolean isReleased()
+        {
+            WeakReference<IotHubSSLContext> context = this.context;
+            return this.build == null && context != null && context.get() == null;
+        }
+    }
+
+    private IotHubSSLContextCache()
+    {
+        // static access only
+    }
+
+    /**
+     * Get the shared SSLContext trusting the default IotHub certificates
+     *
+     * @return the shared context
+     * @throws KeyStoreException if the trust store cannot be created
+     * @throws KeyManagementException if the SSLContext cannot be initialized
+     * @throws IOException if the default certificates cannot be read
+     * @throws CertificateException if the default certificates cannot be parsed
+     * @throws NoSuchAlgorithmException if the SSLContext cannot be created
+     */
+    public static IotHubSSLContext getSSLContext()
+            throws KeyStoreException, KeyManagementException, IOException, CertificateException, NoSuchAlgorithmException
+    {
+        return getWithoutKeyMaterial(DEFAULT_TRUST_KEY, new Callable<IotHubSSLContext>()
+        {
+            @Override
+            public IotHubSSLContext call() throws Exception
+            {
+                return new IotHubSSLContext();
+            }
+        });
+    }
+
+    /**
+     * Get the shared SSLContext trusting the provided certificates
+     *
+     * @param trustedCert the certificates to trust, or the path to them
+     * @param isPath if trustedCert is a path to the certificates, or the certificates themselves
+     * @return the shared context
+     * @throws KeyStoreException if the trust store cannot be created
+     * @throws KeyManagementException if the SSLContext cannot be initialized
+     * @throws IOException if the certificates cannot be read
+     * @throws CertificateException if the certificates cannot be parsed
+     * @throws NoSuchAlgorithmException if the SSLContext cannot be created
+     * @throws IllegalArgumentException if trustedCert is null or empty
+     */
+    public static IotHubSSLContext getSSLContext(final String trustedCert, final boolean isPath)
+            throws KeyStoreException, KeyManagementException, IOException, CertificateException, NoSuchAlgorithmException
+    {
+        return getWithoutKeyMaterial(trustKey(trustedCert, isPath), new Callable<IotHubSSLContext>()
+        {
+            @Override
+            public IotHubSSLContext call() throws Exception
+            {
+                return new IotHubSSLContext(trustedCert, isPath);
+            }
+        });
+    }
+
+    /**
+     * Get the shared SSLContext authenticating with the provided x509 certificate and private key
+     *
+     * @param publicKeyCertificateString the PEM formatted public key certificate
+     * @param privateKeyString the PEM formatted private key
+     * @param trustedCert the certificates to trust, or the path to them. If null, the default IotHub certificates are trusted
+     * @param isPath if trustedCert is a path to the certificates, or the certificates themselves
+     * @return the shared context
+     * @throws KeyStoreException if the key store or the trust store cannot be created
+     * @throws KeyManagementException if the SSLContext cannot be initialized
+     * @throws IOException if the certificates cannot be read
+     * @throws CertificateException if the certificates or the private key cannot be parsed
+     * @throws NoSuchAlgorithmException if the SSLContext cannot be created
+     * @throws UnrecoverableKeyException if the private key cannot be loaded from the key store
+     * @throws IllegalArgumentException if the public key certificate or the private key is null
+     */
+    public static IotHubSSLContext getSSLContext(final String publicKeyCertificateString, final String privateKeyString, final String trustedCert, final boolean isPath)
+            throws KeyStoreException, KeyManagementException, IOException, CertificateException, NoSuchAlgorithmException, UnrecoverableKeyException
+    {
+        if (publicKeyCertificateString == null || privateKeyString == null)
+        {
+            throw new IllegalArgumentException("publicKeyCertificateString and privateKeyString cannot be null");
+        }
+
+        String trustKey = trustedCert == null ? DEFAULT_TRUST_KEY : trustKey(trustedCert, isPath);
+
+        // the key material is hashed so that the cache does not keep a second copy of the private key around
+        String key = trustKey + KEY_SEPARATOR + sha256Hex(publicKeyCertificateString + KEY_SEPARATOR + privateKeyString);
+        return get(key, new Callable<IotHubSSLContext>()
+        {
+            @Override
+            public IotHubSSLContext call() throws Exception
+            {
+                return trustedCert == null
+                        ? new IotHubSSLContext(publicKeyCertificateString, privateKeyString)
+                        : new IotHubSSLContext(publicKeyCertificateString, privateKeyString, trustedCert, isPath);
+            }
+        });
+    }
+
+    /**
+     * Remove all cached contexts. Contexts already handed out stay usable.
+     */
+    public static void clear()
+    {
+        contexts.clear();
+    }
+
+    /**
+     * @return the number of cached contexts that have not been released
+     */
+    public static int size()
+    {
+        int size = 0;
+        for (CachedContext cachedContext : contexts.values())
+        {
+            if (!cachedContext.isReleased())
+            {
+                size++;
+            }
+        }
+
+        return size;
+    }
+
+    private static IotHubSSLContext getWithoutKeyMaterial(String key, Callable<IotHubSSLContext> builder)
+            throws KeyStoreException, KeyManagementException, IOException, CertificateException, NoSuchAlgorithmException
+    {
+        try
+        {
+            return get(key, builder);
+        }
+        catch (UnrecoverableKeyException e)
+        {
+            // only thrown when loading a private key
+            throw new KeyStoreException(e);
+        }
+    }
+
+    private static IotHubSSLContext get(String key, Callable<IotHubSSLContext> builder)
+            throws KeyStoreException, KeyManagementException, IOException, CertificateException, NoSuchAlgorithmException, UnrecoverableKeyException
+    {
+        while (true)
+        {
+            CachedContext cachedContext = contexts.get(key);
+            if (cachedContext == null)
+            {
+                removeReleasedContexts();
+                CachedContext newContext = new CachedContext(builder);
+                cachedContext = contexts.putIfAbsent(key, newContext);
+                if (cachedContext == null)
+                {
+                    cachedContext = newContext;
+                    cachedContext.build();
+                }
+            }
+
+            IotHubSSLContext context;
+            try
+            {
+                context = cachedContext.get();
+            }
+            catch (Exception e)
+            {
+                // a failed build is not cached, the next caller builds the context again
+                contexts.remove(key, cachedContext);
+                throw e;
+            }
+
+            if (context != null)
+            {
+                return context;
+            }
+
+            contexts.remove(key, cachedContext);
+        }
+    }
+
+    private static void removeReleasedContexts()
+    {
+        Iterator<CachedContext> iterator = contexts.values().iterator();
+        while (iterator.hasNext())
+        {
+            if (iterator.next().isReleased())
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Throws the exception that failed a build as it was thrown by the build
+     * @return the failure wrapped in an IOException, if the build failed with an exception it does not declare
+     */
+    private static IOException buildFailure(Throwable cause)
+            throws KeyStoreException, KeyManagementException, CertificateException, NoSuchAlgorithmException, UnrecoverableKeyException
+    {
+        if (cause instanceof IOException)
+        {
+            return (IOException) cause;
+        }
+        else if (cause instanceof KeyStoreException)
+        {
+            throw (KeyStoreException) cause;
+        }
+        else if (cause instanceof KeyManagementException)
+        {
+            throw (KeyManagementException) cause;
+        }
+        else if (cause instanceof CertificateException)
+        {
+            throw (CertificateException) cause;
+        }
+        else if (cause instanceof NoSuchAlgorithmException)
+        {
+            throw (NoSuchAlgorithmException) cause;
+        }
+        else if (cause instanceof UnrecoverableKeyException)
+        {
+            throw (UnrecoverableKeyException) cause;
+        }
+        else if (cause instanceof RuntimeException)
+        {
+            throw (RuntimeException) cause;
+        }
+        else if (cause instanceof Error)
+        {
+            throw (Error) cause;
+        }
+
+        return new IOException(cause);
+    }
+
+    private static String trustKey(String trustedCert, boolean isPath) throws NoSuchAlgorithmException
+    {
+        if (trustedCert == null || trustedCert.isEmpty())
+        {
+            throw new IllegalArgumentException("trustedCert cannot be null or empty");
+        }
+
+        if (isPath)
+        {
+            File certFile = new File(trustedCert);
+            return PATH_TRUST_KEY_PREFIX + certFile.getAbsolutePath() + KEY_SEPARATOR + certFile.lastModified() + KEY_SEPARATOR + certFile.length();
+        }
+
+        return CERTIFICATE_TRUST_KEY_PREFIX + sha256Hex(trustedCert);
+    }
+
+    private static String sha256Hex(String value) throws NoSuchAlgorithmException
+    {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return new String(Hex.encodeHex(digest.digest(value.getBytes(StandardCharsets.UTF_8))));
+    }
+}
@@ -40,6 +40,22 @@ public class ParserUtility
     private static final int MAX_MILLISECONDS_LENGTH_IN_DATE = 3;
     private static final double MILLISECONDS_NUMERIC_BASE = 10;
     private static final String MILLISECONDS_REGEX = "[.,Z]";
+    private static final Pattern MILLISECONDS_PATTERN = Pattern.compile(MILLISECONDS_REGEX);
+
+    // the fixed layout of the dates sent by the IoT Hub, "yyyy-MM-dd'T'HH:mm:ss", is parsed and formatted without
+    // SimpleDateFormat. The other layouts, and the years before the Gregorian calendar, still use SimpleDateFormat.
+    private static final int DATE_TIME_LENGTH = 19;
+    private static final int OFFSET_LENGTH = 6;
+    private static final int MIN_FIXED_LAYOUT_YEAR = 1583;
+    private static final int MAX_FIXED_LAYOUT_YEAR = 9999;
+    private static final long INVALID_DATE_TIME = Long.MIN_VALUE;
+    private static final long MILLISECONDS_IN_SECOND = 1000L;
+    private static final long SECONDS_IN_DAY = 86400L;
+    private static final long MILLISECONDS_IN_DAY = SECONDS_IN_DAY * MILLISECONDS_IN_SECOND;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    // Gson is thread safe, so a single instance serves all the serializations
+    private static final Gson GSON_WITH_NULLS = new GsonBuilder().serializeNulls().create();
 
     /**
      * Helper to validate if the provided string is not null, empty, and all characters are UTF-8.
@@ -277,10 +293,6 @@ public class ParserUtility
     public static Date getDateTimeUtc(String dataTime) throws IllegalArgumentException
     {
         Date dateTimeUtc;
-        /* Codes_SRS_PARSER_UTILITY_21_020: [The getDateTimeUtc shall parse the provide string using `UTC` timezone.] */
-        /* Codes_SRS_PARSER_UTILITY_21_021: [The getDateTimeUtc shall parse the provide string using the data format `yyyy-MM-dd'T'HH:mm:ss`.] */
-        SimpleDateFormat dateFormat = new SimpleDateFormat(DATEFORMAT);
-        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
 
         /* Codes_SRS_PARSER_UTILITY_21_022: [If the provide string is null, empty or contains an invalid data format, the getDateTimeUtc shall throw IllegalArgumentException.] */
         if((dataTime == null) || dataTime.isEmpty())
@@ -288,10 +300,25 @@ public class ParserUtility
             throw new IllegalArgumentException("date is null, empty, or invalid");
         }
 
+        long seconds = parseFixedLayoutSeconds(dataTime);
+        if(seconds != INVALID_DATE_TIME)
+        {
+            int milliseconds = parseFixedLayoutMilliseconds(dataTime);
+            if(milliseconds >= 0)
+            {
+                return new Date(seconds * MILLISECONDS_IN_SECOND + milliseconds);
+            }
+        }
+
+        /* Codes_SRS_PARSER_UTILITY_21_020: [The getDateTimeUtc shall parse the provide string using `UTC` timezone.] */
+        /* Codes_SRS_PARSER_UTILITY_21_021: [The getDateTimeUtc shall parse the provide string using the data format `yyyy-MM-dd'T'HH:mm:ss`.] */
+        SimpleDateFormat dateFormat = new SimpleDateFormat(DATEFORMAT);
+        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
+
         try
         {
             /* Codes_SRS_PARSER_UTILITY_21_040: [If the provide string contains more than 3 digits for milliseconds, the getDateTimeUtc shall reduce the milliseconds to 3 digits.] */
-            String[] splitDateTime = dataTime.split(MILLISECONDS_REGEX);
+            String[] splitDateTime = MILLISECONDS_PATTERN.split(dataTime);
             int milliseconds;
             if(splitDateTime.length > EXPECTED_PARTS_IN_DATE)
             {
@@ -336,17 +363,27 @@ public class ParserUtility
     {
         Date dateTimeOffset;
 
-        /* Codes_SRS_PARSER_UTILITY_21_023: [The stringToDateTimeOffset shall parse the provide string using `UTC` timezone.] */
-        /* Codes_SRS_PARSER_UTILITY_21_024: [The stringToDateTimeOffset shall parse the provide string using the data format `2016-06-01T21:22:41+00:00`.] */
-        SimpleDateFormat dateFormat = new SimpleDateFormat(OFFSETFORMAT);
-        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
-
         /* Codes_SRS_PARSER_UTILITY_21_025: [If the provide string is null, empty or contains an invalid data format, the stringToDateTimeOffset shall throw IllegalArgumentException.] */
         if((dateTime == null) || dateTime.isEmpty())
         {
             throw new IllegalArgumentException("date is null or empty");
         }
 
+        long seconds = parseFixedLayoutSeconds(dateTime);
+        if(seconds != INVALID_DATE_TIME)
+        {
+            long offsetSeconds = parseFixedLayoutOffsetSeconds(dateTime);
+            if(offsetSeconds != INVALID_DATE_TIME)
+            {
+                return new Date((seconds - offsetSeconds) * MILLISECONDS_IN_SECOND);
+            }
+        }
+
+        /* Codes_SRS_PARSER_UTILITY_21_023: [The stringToDateTimeOffset shall parse the provide string using `UTC` timezone.] */
+        /* Codes_SRS_PARSER_UTILITY_21_024: [The stringToDateTimeOffset shall parse the provide string using the data format `2016-06-01T21:22:41+00:00`.] */
+        SimpleDateFormat dateFormat = new SimpleDateFormat(OFFSETFORMAT);
+        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
+
         try
         {
             dateTimeOffset = dateFormat.parse(dateTime);
@@ -377,10 +414,13 @@ public class ParserUtility
         }
 
         /* Codes_SRS_PARSER_UTILITY_21_054: [The dateTimeUtcToString shall serialize the provide Date using `UTC` timezone.] */
-        SimpleDateFormat dateFormat = new SimpleDateFormat(DATEFORMAT);
-        dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
         StringBuilder dateStr = new StringBuilder();
-        dateStr.append(dateFormat.format(date));
+        if(!appendFixedLayout(dateStr, date.getTime()))
+        {
+            SimpleDateFormat dateFormat = new SimpleDateFormat(DATEFORMAT);
+            dateFormat.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
+            dateStr.append(dateFormat.format(date));
+        }
         dateStr.append(".");
         int milliseconds = (int)(date.getTime() % 1000L);
         milliseconds = milliseconds < 0 ? milliseconds + 1000 : milliseconds;
@@ -407,9 +447,203 @@ public class ParserUtility
         }
 
         //Codes_SRS_PARSER_UTILITY_34_043: [The provided date shall be converted into this format: "yyyy-MM-dd'T'HH:mm:ss".]
+        // like SimpleDateFormat, the date is formatted in the default time zone
+        StringBuilder dateStr = new StringBuilder(DATE_TIME_LENGTH);
+        if(appendFixedLayout(dateStr, date.getTime() + TimeZone.getDefault().getOffset(date.getTime())))
+        {
+            return dateStr.toString();
+        }
         return new SimpleDateFormat(DATEFORMAT).format(date);
     }
 
+    /**
+     * Parse the "yyyy-MM-dd'T'HH:mm:ss" at the beginning of the provided string as a UTC date and time.
+     *
+     * @return the seconds since the epoch, or {@code INVALID_DATE_TIME} if the string does not start with a valid
+     *         date and time in this layout, between the years {@code MIN_FIXED_LAYOUT_YEAR} and {@code MAX_FIXED_LAYOUT_YEAR}.
+     */
+    private static long parseFixedLayoutSeconds(String dateTime)
+    {
+        if((dateTime.length() < DATE_TIME_LENGTH) ||
+                (dateTime.charAt(4) != '-') || (dateTime.charAt(7) != '-') || (dateTime.charAt(10) != 'T') ||
+                (dateTime.charAt(13) != ':') || (dateTime.charAt(16) != ':'))
+        {
+            return INVALID_DATE_TIME;
+        }
+
+        int year = parseDigits(dateTime, 0, 4);
+        int month = parseDigits(dateTime, 5, 7);
+        int day = parseDigits(dateTime, 8, 10);
+        int hour = parseDigits(dateTime, 11, 13);
+        int minute = parseDigits(dateTime, 14, 16);
+        int second = parseDigits(dateTime, 17, 19);
+        if((year < MIN_FIXED_LAYOUT_YEAR) || (year > MAX_FIXED_LAYOUT_YEAR) || (month < 1) || (month > 12) ||
+                (day < 1) || (day > daysInMonth(year, month)) ||
+                (hour < 0) || (hour > 23) || (minute < 0) || (minute > 59) || (second < 0) || (second > 59))
+        {
+            // SimpleDateFormat is lenient, and rolls the out of range fields over
+            return INVALID_DATE_TIME;
+        }
+
+        return daysFromEpoch(year, month, day) * SECONDS_IN_DAY + hour * 3600L + minute * 60L + second;
+    }
+
+    /**
+     * Parse the optional ".fffffff" and "Z" that follow the date and time in the provided string.
+     *
+     * @return the milliseconds, reduced to 3 digits, or -1 if the date and time is followed by anything else.
+     */
+    private static int parseFixedLayoutMilliseconds(String dateTime)
+    {
+        int index = DATE_TIME_LENGTH;
+        int milliseconds = NO_MILLISECONDS_IN_DATE;
+        if((index < dateTime.length()) && (dateTime.charAt(index) == '.'))
+        {
+            index++;
+            int start = index;
+            while((index < dateTime.length()) && isDigit(dateTime.charAt(index)))
+            {
+                if(index - start < MAX_MILLISECONDS_LENGTH_IN_DATE)
+                {
+                    milliseconds = milliseconds * 10 + (dateTime.charAt(index) - '0');
+                }
+                index++;
+            }
+            if(index == start)
+            {
+                return -1;
+            }
+            for(int digits = index - start; digits < MAX_MILLISECONDS_LENGTH_IN_DATE; digits++)
+            {
+                milliseconds *= 10;
+            }
+        }
+        if((index < dateTime.length()) && (dateTime.charAt(index) == 'Z'))
+        {
+            index++;
+        }
+
+        return (index == dateTime.length()) ? milliseconds : -1;
+    }
+
+    /**
+     * Parse the "Z" or "+hh:mm" offset that follows the date and time in the provided string.
+     *
+     * @return the offset in seconds, or {@code INVALID_DATE_TIME} if the date and time is followed by anything else.
+     */
+    private static long parseFixedLayoutOffsetSeconds(String dateTime)
+    {
+        if((dateTime.length() == DATE_TIME_LENGTH + 1) && (dateTime.charAt(DATE_TIME_LENGTH) == 'Z'))
+        {
+            return 0;
+        }
+
+        if(dateTime.length() != DATE_TIME_LENGTH + OFFSET_LENGTH)
+        {
+            return INVALID_DATE_TIME;
+        }
+
+        char sign = dateTime.charAt(DATE_TIME_LENGTH);
+        int hours = parseDigits(dateTime, DATE_TIME_LENGTH + 1, DATE_TIME_LENGTH + 3);
+        int minutes = parseDigits(dateTime, DATE_TIME_LENGTH + 4, DATE_TIME_LENGTH + 6);
+        if(((sign != '+') && (sign != '-')) || (dateTime.charAt(DATE_TIME_LENGTH + 3) != ':') ||
+                (hours < 0) || (hours > 23) || (minutes < 0) || (minutes > 59))
+        {
+            return INVALID_DATE_TIME;
+        }
+
+        long offsetSeconds = hours * 3600L + minutes * 60L;
+        return (sign == '+') ? offsetSeconds : -offsetSeconds;
+    }
+
+    /**
+     * Append the provided milliseconds since the epoch to the builder, in the "yyyy-MM-dd'T'HH:mm:ss" layout.
+     *
+     * @return {@code false}, without appending anything, if the year is not between {@code MIN_FIXED_LAYOUT_YEAR}
+     *         and {@code MAX_FIXED_LAYOUT_YEAR}.
+     */
+    private static boolean appendFixedLayout(StringBuilder builder, long milliseconds)
+    {
+        long days = milliseconds / MILLISECONDS_IN_DAY;
+        if((milliseconds % MILLISECONDS_IN_DAY) < 0)
+        {
+            days--;
+        }
+        int secondOfDay = (int)((milliseconds - days * MILLISECONDS_IN_DAY) / MILLISECONDS_IN_SECOND);
+
+        // civil date from the days since the epoch, in the proleptic Gregorian calendar
+        long shiftedDays = days + 719468;
+        long era = (shiftedDays >= 0 ? shiftedDays : shiftedDays - 146096) / 146097;
+        long dayOfEra = shiftedDays - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int)(dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int)(shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if((year < MIN_FIXED_LAYOUT_YEAR) || (year > MAX_FIXED_LAYOUT_YEAR))
+        {
+            return false;
+        }
+
+        builder.append(year).append('-');
+        appendTwoDigits(builder, month).append('-');
+        appendTwoDigits(builder, day).append('T');
+        appendTwoDigits(builder, secondOfDay / 3600).append(':');
+        appendTwoDigits(builder, (secondOfDay / 60) % 60).append(':');
+        appendTwoDigits(builder, secondOfDay % 60);
+        return true;
+    }
+
+    private static long daysFromEpoch(int year, int month, int day)
+    {
+        // days since the epoch of a civil date, in the proleptic Gregorian calendar
+        int shiftedYear = (month <= 2) ? year - 1 : year;
+        int era = shiftedYear / 400;
+        int yearOfEra = shiftedYear - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month)
+    {
+        if((month == 2) && (year % 4 == 0) && ((year % 100 != 0) || (year % 400 == 0)))
+        {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month - 1];
+    }
+
+    private static int parseDigits(String str, int start, int end)
+    {
+        int value = 0;
+        for(int index = start; index < end; index++)
+        {
+            char digit = str.charAt(index);
+            if(!isDigit(digit))
+            {
+                return -1;
+            }
+            value = value * 10 + (digit - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char character)
+    {
+        return (character >= '0') && (character <= '9');
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder builder, int value)
+    {
+        if(value < 10)
+        {
+            builder.append('0');
+        }
+        return builder.append(value);
+    }
+
     /**
      * Helper to convert a provided map in to a JsonElement, including sub-maps.
      *
@@ -421,8 +655,6 @@ public class ParserUtility
     {
         /* Codes_SRS_PARSER_UTILITY_21_035: [The mapToJsonElement shall serialize the provided map into a JsonElement.] */
         /* Codes_SRS_PARSER_UTILITY_21_036: [The mapToJsonElement shall include keys with null values in the JsonElement.] */
-        Gson gson = new GsonBuilder().serializeNulls().create();
-
         /* Codes_SRS_PARSER_UTILITY_21_038: [If the map is empty, the mapToJsonElement shall return a empty JsonElement.] */
         JsonObject json = new JsonObject();
 
@@ -445,7 +677,7 @@ public class ParserUtility
             }
             else
             {
-                json.add(entry.getKey(), gson.toJsonTree(entry.getValue()));
+                json.add(entry.getKey(), GSON_WITH_NULLS.toJsonTree(entry.getValue()));
             }
         }
 
@@ -7,6 +7,7 @@ package com.microsoft.azure.sdk.iot.deps.transport.http;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.ProtocolException;
@@ -15,6 +16,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * A wrapper for the Java SE class HttpsURLConnection. Used to avoid
@@ -39,6 +41,13 @@ public class HttpConnection
      */
     protected byte[] body;
 
+    /**
+     * The socket factory of each SSL context. SSLContext.getSocketFactory() returns a new factory every time it is
+     * called, and Java only hands a kept alive connection to a request using the same factory instance, so
+     * requests using the same SSL context need the same factory to reuse connections.
+     */
+    private static final Map<SSLContext, SSLSocketFactory> socketFactories = new WeakHashMap<>();
+
     /**
      * Constructor. Opens a connection to the given URL.
      *
@@ -316,7 +325,22 @@ public class HttpConnection
             throw new IllegalArgumentException("SSL context cannot be null");
         }
         //Codes_SRS_HTTPSCONNECTION_25_024: [**The function shall set the the SSL context with the given value.**]**
-        this.connection.setSSLSocketFactory(sslContext.getSocketFactory());
+        this.connection.setSSLSocketFactory(getSocketFactory(sslContext));
+    }
+
+    private static SSLSocketFactory getSocketFactory(SSLContext sslContext)
+    {
+        synchronized (socketFactories)
+        {
+            SSLSocketFactory socketFactory = socketFactories.get(sslContext);
+            if (socketFactory == null)
+            {
+                socketFactory = sslContext.getSocketFactory();
+                socketFactories.put(sslContext, socketFactory);
+            }
+
+            return socketFactory;
+        }
     }
 
     protected HttpConnection()
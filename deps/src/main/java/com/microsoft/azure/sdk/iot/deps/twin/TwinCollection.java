@@ -366,7 +366,7 @@ public class TwinCollection extends HashMap<String, Object>
      * @return The instance of the {@link TwinCollection}.
      * @throws IllegalArgumentException If the provided rowCollection contain an invalid parameter.
      */
-    protected static TwinCollection createFromRawCollection(Map<? extends String, Object> rawCollection)
+    public static TwinCollection createFromRawCollection(Map<? extends String, Object> rawCollection)
     {
         TwinCollection twinCollection = new TwinCollection();
         Map<? extends String, Object> metadata = null;
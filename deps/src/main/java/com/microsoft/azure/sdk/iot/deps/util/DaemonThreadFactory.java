@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.deps.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory for the background threads of the SDK clients.
+ *
+ * <p> The threads are daemon threads, as the clients, queries and streams that own them may be abandoned without
+ *     being closed, and must not keep the application alive. They are named with the given prefix followed by a
+ *     number, starting at 1, that is unique within the factory.
+ */
+public final class DaemonThreadFactory implements ThreadFactory
+{
+    private final String threadNamePrefix;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param threadNamePrefix the prefix of the names of the threads. It cannot be {@code null}.
+     * @throws IllegalArgumentException if the threadNamePrefix is {@code null}.
+     */
+    public DaemonThreadFactory(String threadNamePrefix) throws IllegalArgumentException
+    {
+        if (threadNamePrefix == null)
+        {
+            throw new IllegalArgumentException("threadNamePrefix cannot be null");
+        }
+
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+        Thread thread = new Thread(runnable, this.threadNamePrefix + this.threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
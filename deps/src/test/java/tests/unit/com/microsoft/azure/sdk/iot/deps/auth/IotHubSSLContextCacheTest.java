@@ -0,0 +1,271 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.auth;
+
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
+import mockit.Deencapsulation;
+import mockit.Delegate;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.CertificateException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for IotHubSSLContextCache
+ */
+public class IotHubSSLContextCacheTest
+{
+    private static final String PUBLIC_KEY_CERTIFICATE = "someCert";
+    private static final String PRIVATE_KEY = "someKey";
+    private static final String TRUSTED_CERT = "someTrustedCert";
+
+    @Mocked IotHubSSLContext mockedIotHubSSLContext;
+
+    @Before
+    @After
+    public void clearCache()
+    {
+        IotHubSSLContextCache.clear();
+    }
+
+    @Test
+    public void getSSLContextReusesDefaultContext() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException
+    {
+        //act
+        IotHubSSLContext first = IotHubSSLContextCache.getSSLContext();
+        IotHubSSLContext second = IotHubSSLContextCache.getSSLContext();
+
+        //assert
+        assertSame(first, second);
+        assertEquals(1, IotHubSSLContextCache.size());
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void getSSLContextKeysByTrustedCert() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException
+    {
+        //act
+        IotHubSSLContext first = IotHubSSLContextCache.getSSLContext(TRUSTED_CERT, false);
+        IotHubSSLContext second = IotHubSSLContextCache.getSSLContext(TRUSTED_CERT, false);
+        IotHubSSLContext other = IotHubSSLContextCache.getSSLContext("someOtherTrustedCert", false);
+
+        //assert
+        assertSame(first, second);
+        assertNotSame(first, other);
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, boolean.class}, TRUSTED_CERT, false);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void getSSLContextReloadsModifiedTrustedCertFile() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException
+    {
+        //arrange
+        File certFile = File.createTempFile("trustedCert", ".pem");
+        certFile.deleteOnExit();
+        final String certPath = certFile.getAbsolutePath();
+        IotHubSSLContext first = IotHubSSLContextCache.getSSLContext(certPath, true);
+
+        //act
+        certFile.setLastModified(certFile.lastModified() - 60 * 1000);
+        IotHubSSLContext second = IotHubSSLContextCache.getSSLContext(certPath, true);
+
+        //assert
+        assertNotSame(first, second);
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, boolean.class}, certPath, true);
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void getSSLContextKeysByClientKeyMaterial() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, UnrecoverableKeyException
+    {
+        //act
+        IotHubSSLContext first = IotHubSSLContextCache.getSSLContext(PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, null, false);
+        IotHubSSLContext second = IotHubSSLContextCache.getSSLContext(PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, null, false);
+        IotHubSSLContext otherKey = IotHubSSLContextCache.getSSLContext(PUBLIC_KEY_CERTIFICATE, "someOtherKey", null, false);
+        IotHubSSLContext otherTrust = IotHubSSLContextCache.getSSLContext(PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, TRUSTED_CERT, false);
+
+        //assert
+        assertSame(first, second);
+        assertNotSame(first, otherKey);
+        assertNotSame(first, otherTrust);
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class}, PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY);
+                times = 1;
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class, String.class, boolean.class}, PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, TRUSTED_CERT, false);
+                times = 1;
+            }
+        };
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void getSSLContextThrowsForEmptyTrustedCert() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException
+    {
+        //act
+        IotHubSSLContextCache.getSSLContext("", false);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void getSSLContextThrowsForNullPrivateKey() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, UnrecoverableKeyException
+    {
+        //act
+        IotHubSSLContextCache.getSSLContext(PUBLIC_KEY_CERTIFICATE, null, null, false);
+    }
+
+    @Test
+    public void getSSLContextDoesNotCacheAFailedBuild() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, boolean.class}, TRUSTED_CERT, false);
+                result = new Delegate()
+                {
+                    private int buildCount;
+
+                    void build(String trustedCert, boolean isPath) throws CertificateException
+                    {
+                        if (buildCount++ == 0)
+                        {
+                            throw new CertificateException("some invalid certificate");
+                        }
+                    }
+                };
+            }
+        };
+
+        try
+        {
+            IotHubSSLContextCache.getSSLContext(TRUSTED_CERT, false);
+            fail("expected the build to fail");
+        }
+        catch (CertificateException e)
+        {
+            // expected
+        }
+
+        //act
+        IotHubSSLContext context = IotHubSSLContextCache.getSSLContext(TRUSTED_CERT, false);
+
+        //assert
+        assertTrue(context != null);
+        assertEquals(1, IotHubSSLContextCache.size());
+    }
+
+    @Test
+    public void getSSLContextBuildsAgainOnceTheContextWasReleased() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, UnrecoverableKeyException
+    {
+        //arrange
+        IotHubSSLContextCache.getSSLContext(PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, null, false);
+        Map<String, Object> contexts = Deencapsulation.getField(IotHubSSLContextCache.class, "contexts");
+        Object cachedContext = contexts.values().iterator().next();
+        Deencapsulation.setField(cachedContext, "context", new WeakReference<IotHubSSLContext>(null));
+        assertEquals(0, IotHubSSLContextCache.size());
+
+        //act
+        IotHubSSLContextCache.getSSLContext(PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, null, false);
+
+        //assert
+        assertEquals(1, IotHubSSLContextCache.size());
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class}, PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY);
+                times = 2;
+            }
+        };
+    }
+
+    @Test (timeout = 10000)
+    public void getSSLContextDoesNotWaitForTheBuildOfAnotherKey() throws Exception
+    {
+        //arrange
+        final CountDownLatch buildStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBuild = new CountDownLatch(1);
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, boolean.class}, TRUSTED_CERT, false);
+                result = new Delegate()
+                {
+                    void build(String trustedCert, boolean isPath) throws InterruptedException
+                    {
+                        buildStarted.countDown();
+                        releaseBuild.await();
+                    }
+                };
+            }
+        };
+        Thread slowBuild = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    IotHubSSLContextCache.getSSLContext(TRUSTED_CERT, false);
+                }
+                catch (Exception e)
+                {
+                    // the test only checks that this build does not block the other key
+                }
+            }
+        });
+        slowBuild.start();
+        assertTrue(buildStarted.await(10, TimeUnit.SECONDS));
+
+        try
+        {
+            //act
+            IotHubSSLContext other = IotHubSSLContextCache.getSSLContext("someOtherTrustedCert", false);
+
+            //assert
+            assertTrue(other != null);
+        }
+        finally
+        {
+            releaseBuild.countDown();
+            slowBuild.join();
+        }
+    }
+}
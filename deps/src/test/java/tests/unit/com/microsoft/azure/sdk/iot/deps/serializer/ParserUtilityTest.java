@@ -10,10 +10,12 @@ import mockit.Deencapsulation;
 import org.junit.Test;
 import tests.unit.com.microsoft.azure.sdk.iot.deps.Helpers;
 
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
 
@@ -470,6 +472,49 @@ public class ParserUtilityTest
         assertEquals("2016-06-01T21:22:43.123Z", result);
     }
 
+    /* Tests_SRS_PARSER_UTILITY_21_020: [The getDateTimeUtc shall parse the provide string using `UTC` timezone.] */
+    /* Tests_SRS_PARSER_UTILITY_21_054: [The dateTimeUtcToString shall serialize the provide Date using `UTC` timezone.] */
+    @Test
+    public void dateTimeUtcMatchesSimpleDateFormat() throws ParseException
+    {
+        // arrange
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String[] dateTimes =
+        {
+            "0001-01-01T00:00:00", "1582-10-15T00:00:00", "1583-01-01T00:00:00", "1900-02-28T23:59:59",
+            "1969-12-31T23:59:59", "1970-01-01T00:00:00", "2000-02-29T12:00:00", "2016-06-01T21:22:43",
+            "2100-03-01T00:00:01", "9999-12-31T23:59:59", "2016-02-30T00:00:00", "2016-06-01T24:00:00"
+        };
+
+        for (String dateTime : dateTimes)
+        {
+            // act
+            Date date = ParserUtility.getDateTimeUtc(dateTime + ".1234567Z");
+            String result = ParserUtility.dateTimeUtcToString(date);
+
+            // assert
+            Date expectedDate = new Date(dateFormat.parse(dateTime).getTime() + 123);
+            assertEquals(dateTime, expectedDate, date);
+            assertEquals(dateTime, dateFormat.format(expectedDate) + ".123Z", result);
+        }
+    }
+
+    /* Tests_SRS_PARSER_UTILITY_21_024: [The stringToDateTimeOffset shall parse the provide string using the data format `2016-06-01T21:22:41+00:00`.] */
+    @Test
+    public void stringToDateTimeOffsetAppliesOffset()
+    {
+        // act
+        Date positiveOffsetDate = ParserUtility.stringToDateTimeOffset("2016-06-01T21:22:41+01:30");
+        Date negativeOffsetDate = ParserUtility.stringToDateTimeOffset("2016-06-01T21:22:41-08:00");
+        Date utcDate = ParserUtility.stringToDateTimeOffset("2016-06-01T21:22:41Z");
+
+        // assert
+        assertEquals(1464816161000L - 5400000L, positiveOffsetDate.getTime());
+        assertEquals(1464816161000L + 28800000L, negativeOffsetDate.getTime());
+        assertEquals(1464816161000L, utcDate.getTime());
+    }
+
 
     /* Tests_SRS_PARSER_UTILITY_21_030: [The validateId shall do nothing if the string is a valid ID.] */
     @Test
@@ -700,4 +745,22 @@ public class ParserUtilityTest
         //assert
         assertEquals(expectedString, actualString);
     }
+
+    //Tests_SRS_PARSER_UTILITY_34_043: [The provided date shall be converted into this format: "yyyy-MM-dd'T'HH:mm:ss".]
+    @Test
+    public void getSimpleDateStringFromDateMatchesSimpleDateFormatInDefaultTimeZone()
+    {
+        //arrange
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        long[] times = {-62135596800000L, -12219292800000L, -1L, 0L, 951825600000L, 1464816163123L, 1509492000000L, 253402300799000L};
+
+        for (long time : times)
+        {
+            //act
+            String actualString = ParserUtility.getDateStringFromDate(new Date(time));
+
+            //assert
+            assertEquals(dateFormat.format(new Date(time)), actualString);
+        }
+    }
 }
@@ -7,6 +7,7 @@ package tests.unit.com.microsoft.azure.sdk.iot.deps.transport.http;
 
 import com.microsoft.azure.sdk.iot.deps.transport.http.HttpConnection;
 import com.microsoft.azure.sdk.iot.deps.transport.http.HttpMethod;
+import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
 import mockit.Verifications;
@@ -15,6 +16,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -811,4 +814,40 @@ public class HttpConnectionTest
         // Act
         conn.getResponseHeaders();
     }
+
+    // Tests_SRS_HTTPSCONNECTION_25_024: [The function shall set the the SSL context with the given value.]
+    @Test
+    public void setSSLContextReusesSocketFactoryOfContext(@Mocked final SSLContext mockSslContext, @Mocked final SSLSocketFactory mockSocketFactory) throws IOException
+    {
+        // Arrange
+        final HttpMethod httpsMethod = HttpMethod.GET;
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockSslContext.getSocketFactory();
+                result = mockSocketFactory;
+            }
+        };
+        HttpConnection firstConn = new HttpConnection(mockUrl, httpsMethod);
+        HttpConnection secondConn = new HttpConnection(mockUrl, httpsMethod);
+
+        // Act
+        Deencapsulation.invoke(firstConn, "setSSLContext", mockSslContext);
+        Deencapsulation.invoke(secondConn, "setSSLContext", mockSslContext);
+
+        // Assert
+        new Verifications()
+        {
+            {
+                mockSslContext.getSocketFactory();
+                times = 1;
+                mockUrlConn.setSSLSocketFactory(mockSocketFactory);
+                times = 2;
+            }
+        };
+    }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.util;
+
+import com.microsoft.azure.sdk.iot.deps.util.DaemonThreadFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for DaemonThreadFactory
+ */
+public class DaemonThreadFactoryTest
+{
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNullPrefix()
+    {
+        // Act
+        new DaemonThreadFactory(null);
+    }
+
+    @Test
+    public void newThreadCreatesNumberedDaemonThreads()
+    {
+        // Arrange
+        DaemonThreadFactory threadFactory = new DaemonThreadFactory("azure-iot-sdk-Test-");
+        Runnable runnable = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+            }
+        };
+
+        // Act
+        Thread first = threadFactory.newThread(runnable);
+        Thread second = threadFactory.newThread(runnable);
+
+        // Assert
+        assertTrue(first.isDaemon());
+        assertTrue(second.isDaemon());
+        assertEquals("azure-iot-sdk-Test-1", first.getName());
+        assertEquals("azure-iot-sdk-Test-2", second.getName());
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package com.microsoft.azure.sdk.iot.device.metrics.micrometer;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubClientMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportQueueDepths;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * {@link IotHubClientMetrics} implementation that records the transport metrics into a Micrometer {@link MeterRegistry}.
+ *
+ * <p>The following meters are registered:</p>
+ * <ul>
+ *     <li>{@value #QUEUE_DEPTH} gauges tagged with the client id and the queue name</li>
+ *     <li>{@value #MESSAGE_LATENCY} timer tagged with the protocol and the final status code. Its count is the per status
+ *     code message counter</li>
+ *     <li>{@value #MESSAGE_RETRIES} counter tagged with the protocol</li>
+ *     <li>{@value #RECONNECTION_DURATION} timer tagged with the protocol and the outcome of the reconnection</li>
+ *     <li>{@value #BYTES_SENT} and {@value #BYTES_RECEIVED} counters tagged with the protocol</li>
+ *     <li>{@value #LINK_CREDIT} gauges tagged with the client id and the AMQP link type</li>
+ * </ul>
+ */
+public class MicrometerIotHubClientMetrics implements IotHubClientMetrics
+{
+    public static final String QUEUE_DEPTH = "iothub.client.queue.depth";
+    public static final String MESSAGE_LATENCY = "iothub.client.message.latency";
+    public static final String MESSAGE_RETRIES = "iothub.client.message.retries";
+    public static final String RECONNECTION_DURATION = "iothub.client.reconnection.duration";
+    public static final String BYTES_SENT = "iothub.client.bytes.sent";
+    public static final String BYTES_RECEIVED = "iothub.client.bytes.received";
+    public static final String LINK_CREDIT = "iothub.client.link.credit";
+
+    private static final String CLIENT_TAG = "client";
+    private static final String QUEUE_TAG = "queue";
+    private static final String PROTOCOL_TAG = "protocol";
+    private static final String STATUS_TAG = "status";
+    private static final String OUTCOME_TAG = "outcome";
+    private static final String LINK_TAG = "link";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, List<Meter>> queueGauges = new ConcurrentHashMap<>();
+
+    // Meters are built once per tag set, building them on every call goes through the registry lookup each time
+    private final ConcurrentMap<List<String>, Timer> messageLatencies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> messageRetries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, Timer> reconnectionDurations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> bytesSent = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> bytesReceived = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<String>, AtomicInteger> linkCredits = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     * @param registry the registry the meters are bound to
+     */
+    public MicrometerIotHubClientMetrics(MeterRegistry registry)
+    {
+        if (registry == null)
+        {
+            throw new IllegalArgumentException("registry cannot be null");
+        }
+
+        this.registry = registry;
+    }
+
+    @Override
+    public void onTransportOpened(String clientId, IotHubTransportQueueDepths queueDepths)
+    {
+        // A reopened transport has new queues, the old gauges must go or the registry hands them back
+        onTransportClosed(clientId, queueDepths);
+
+        List<Meter> gauges = new ArrayList<>();
+        gauges.add(queueGauge(clientId, "waiting", queueDepths, IotHubTransportQueueDepths::getWaitingCount));
+        gauges.add(queueGauge(clientId, "inProgress", queueDepths, IotHubTransportQueueDepths::getInProgressCount));
+        gauges.add(queueGauge(clientId, "callback", queueDepths, IotHubTransportQueueDepths::getCallbackCount));
+        gauges.add(queueGauge(clientId, "received", queueDepths, IotHubTransportQueueDepths::getReceivedCount));
+        queueGauges.put(clientId, gauges);
+    }
+
+    @Override
+    public void onTransportClosed(String clientId, IotHubTransportQueueDepths queueDepths)
+    {
+        List<Meter> gauges = queueGauges.remove(clientId);
+        if (gauges != null)
+        {
+            removeAll(gauges);
+        }
+    }
+
+    @Override
+    public void onMessageCompleted(IotHubClientProtocol protocol, IotHubStatusCode status, long enqueueToAckMillis)
+    {
+        cached(messageLatencies, Arrays.asList(String.valueOf(protocol), String.valueOf(status)), tags ->
+                Timer.builder(MESSAGE_LATENCY)
+                        .description("Time from queueing an outbound message to receiving its final status")
+                        .tag(PROTOCOL_TAG, tags.get(0))
+                        .tag(STATUS_TAG, tags.get(1))
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(enqueueToAckMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onMessageRetried(IotHubClientProtocol protocol)
+    {
+        cached(messageRetries, String.valueOf(protocol), tag ->
+                Counter.builder(MESSAGE_RETRIES)
+                        .description("Number of outbound messages scheduled to be sent again")
+                        .tag(PROTOCOL_TAG, tag)
+                        .register(registry))
+                .increment();
+    }
+
+    @Override
+    public void onReconnection(IotHubClientProtocol protocol, long durationMillis, boolean succeeded)
+    {
+        cached(reconnectionDurations, Arrays.asList(String.valueOf(protocol), succeeded ? "success" : "failure"), tags ->
+                Timer.builder(RECONNECTION_DURATION)
+                        .description("Time spent reconnecting after a connection loss")
+                        .tag(PROTOCOL_TAG, tags.get(0))
+                        .tag(OUTCOME_TAG, tags.get(1))
+                        .register(registry))
+                .record(durationMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onBytesSent(IotHubClientProtocol protocol, long bytes)
+    {
+        cached(bytesSent, String.valueOf(protocol), tag ->
+                Counter.builder(BYTES_SENT)
+                        .baseUnit("bytes")
+                        .tag(PROTOCOL_TAG, tag)
+                        .register(registry))
+                .increment(bytes);
+    }
+
+    @Override
+    public void onBytesReceived(IotHubClientProtocol protocol, long bytes)
+    {
+        cached(bytesReceived, String.valueOf(protocol), tag ->
+                Counter.builder(BYTES_RECEIVED)
+                        .baseUnit("bytes")
+                        .tag(PROTOCOL_TAG, tag)
+                        .register(registry))
+                .increment(bytes);
+    }
+
+    @Override
+    public void onLinkCredit(String clientId, String linkType, int credit)
+    {
+        cached(linkCredits, Arrays.asList(clientId, linkType), tags ->
+        {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder(LINK_CREDIT, value, AtomicInteger::get)
+                    .description("Credit left on the AMQP sender link")
+                    .tag(CLIENT_TAG, tags.get(0))
+                    .tag(LINK_TAG, tags.get(1))
+                    .register(registry);
+            return value;
+        }).set(credit);
+    }
+
+    /**
+     * Looks the meter up before falling back to computeIfAbsent, as the latter locks the bin even when the key is
+     * present and these are called for every message.
+     */
+    private static <K, V> V cached(ConcurrentMap<K, V> cache, K key, Function<K, V> factory)
+    {
+        V value = cache.get(key);
+        return value != null ? value : cache.computeIfAbsent(key, factory);
+    }
+
+    private Meter queueGauge(String clientId, String queue, IotHubTransportQueueDepths queueDepths, QueueDepth depth)
+    {
+        return Gauge.builder(QUEUE_DEPTH, queueDepths, depth::get)
+                .description("Number of messages in a transport queue")
+                .tag(CLIENT_TAG, clientId)
+                .tag(QUEUE_TAG, queue)
+                .register(registry);
+    }
+
+    private void removeAll(List<Meter> meters)
+    {
+        for (Meter meter : meters)
+        {
+            registry.remove(meter);
+        }
+    }
+
+    private interface QueueDepth
+    {
+        int get(IotHubTransportQueueDepths queueDepths);
+    }
+}
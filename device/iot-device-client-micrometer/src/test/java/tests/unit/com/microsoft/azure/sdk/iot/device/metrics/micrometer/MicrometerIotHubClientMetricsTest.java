@@ -0,0 +1,185 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.metrics.micrometer;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.metrics.micrometer.MicrometerIotHubClientMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportQueueDepths;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for MicrometerIotHubClientMetrics
+ */
+public class MicrometerIotHubClientMetricsTest
+{
+    private SimpleMeterRegistry registry;
+    private MicrometerIotHubClientMetrics metrics;
+
+    @Before
+    public void setUp()
+    {
+        registry = new SimpleMeterRegistry();
+        metrics = new MicrometerIotHubClientMetrics(registry);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullRegistry()
+    {
+        // act
+        new MicrometerIotHubClientMetrics(null);
+    }
+
+    @Test
+    public void queueDepthGaugesSampleLiveDepthsUntilClosed()
+    {
+        // arrange
+        FakeQueueDepths depths = new FakeQueueDepths();
+
+        // act
+        metrics.onTransportOpened("device/module", depths);
+        depths.waiting = 5;
+        depths.inProgress = 3;
+
+        // assert
+        assertEquals(5.0, registry.get(MicrometerIotHubClientMetrics.QUEUE_DEPTH).tags("client", "device/module", "queue", "waiting").gauge().value(), 0);
+        assertEquals(3.0, registry.get(MicrometerIotHubClientMetrics.QUEUE_DEPTH).tags("client", "device/module", "queue", "inProgress").gauge().value(), 0);
+
+        // act
+        metrics.onTransportClosed("device/module", depths);
+
+        // assert
+        assertNull(registry.find(MicrometerIotHubClientMetrics.QUEUE_DEPTH).tags("client", "device/module").gauge());
+    }
+
+    @Test
+    public void reopenedTransportIsSampledInsteadOfTheOldOne()
+    {
+        // arrange
+        FakeQueueDepths oldDepths = new FakeQueueDepths();
+        FakeQueueDepths newDepths = new FakeQueueDepths();
+        oldDepths.callback = 1;
+        newDepths.callback = 2;
+        metrics.onTransportOpened("device", oldDepths);
+
+        // act
+        metrics.onTransportOpened("device", newDepths);
+
+        // assert
+        assertEquals(2.0, registry.get(MicrometerIotHubClientMetrics.QUEUE_DEPTH).tags("client", "device", "queue", "callback").gauge().value(), 0);
+    }
+
+    @Test
+    public void messageCompletionsAreTimedPerStatus()
+    {
+        // act
+        metrics.onMessageCompleted(IotHubClientProtocol.MQTT, IotHubStatusCode.OK_EMPTY, 10);
+        metrics.onMessageCompleted(IotHubClientProtocol.MQTT, IotHubStatusCode.OK_EMPTY, 30);
+        metrics.onMessageCompleted(IotHubClientProtocol.MQTT, IotHubStatusCode.THROTTLED, 50);
+
+        // assert
+        Timer ok = registry.get(MicrometerIotHubClientMetrics.MESSAGE_LATENCY).tags("protocol", "MQTT", "status", "OK_EMPTY").timer();
+        Timer throttled = registry.get(MicrometerIotHubClientMetrics.MESSAGE_LATENCY).tags("protocol", "MQTT", "status", "THROTTLED").timer();
+        assertEquals(2, ok.count());
+        assertEquals(40.0, ok.totalTime(TimeUnit.MILLISECONDS), 0);
+        assertEquals(1, throttled.count());
+    }
+
+    @Test
+    public void retriesReconnectionsAndBytesAreRecorded()
+    {
+        // act
+        metrics.onMessageRetried(IotHubClientProtocol.AMQPS);
+        metrics.onMessageRetried(IotHubClientProtocol.AMQPS);
+        metrics.onReconnection(IotHubClientProtocol.AMQPS, 1500, true);
+        metrics.onBytesSent(IotHubClientProtocol.AMQPS, 100);
+        metrics.onBytesSent(IotHubClientProtocol.AMQPS, 28);
+        metrics.onBytesReceived(IotHubClientProtocol.AMQPS, 64);
+
+        // assert
+        assertEquals(2.0, registry.get(MicrometerIotHubClientMetrics.MESSAGE_RETRIES).tags("protocol", "AMQPS").counter().count(), 0);
+        assertEquals(1500.0, registry.get(MicrometerIotHubClientMetrics.RECONNECTION_DURATION).tags("outcome", "success").timer().totalTime(TimeUnit.MILLISECONDS), 0);
+        assertEquals(128.0, registry.get(MicrometerIotHubClientMetrics.BYTES_SENT).counter().count(), 0);
+        assertEquals(64.0, registry.get(MicrometerIotHubClientMetrics.BYTES_RECEIVED).counter().count(), 0);
+    }
+
+    @Test
+    public void linkCreditGaugeTracksLatestValue()
+    {
+        // act
+        metrics.onLinkCredit("device", "telemetry", 100);
+        metrics.onLinkCredit("device", "telemetry", 42);
+
+        // assert
+        assertEquals(42.0, registry.get(MicrometerIotHubClientMetrics.LINK_CREDIT).tags("client", "device", "link", "telemetry").gauge().value(), 0);
+    }
+
+    @Test
+    public void linkCreditGaugesAreKeptPerClient()
+    {
+        // act
+        metrics.onLinkCredit("device1", "telemetry", 100);
+        metrics.onLinkCredit("device2", "telemetry", 7);
+
+        // assert
+        assertEquals(100.0, registry.get(MicrometerIotHubClientMetrics.LINK_CREDIT).tags("client", "device1", "link", "telemetry").gauge().value(), 0);
+        assertEquals(7.0, registry.get(MicrometerIotHubClientMetrics.LINK_CREDIT).tags("client", "device2", "link", "telemetry").gauge().value(), 0);
+    }
+
+    @Test
+    public void metersAreRegisteredOncePerTagSet()
+    {
+        // act
+        metrics.onMessageCompleted(IotHubClientProtocol.MQTT, IotHubStatusCode.OK_EMPTY, 10);
+        metrics.onMessageCompleted(IotHubClientProtocol.MQTT, IotHubStatusCode.OK_EMPTY, 20);
+        metrics.onBytesSent(IotHubClientProtocol.MQTT, 1);
+        metrics.onBytesSent(IotHubClientProtocol.MQTT, 1);
+
+        // assert
+        assertEquals(1, registry.find(MicrometerIotHubClientMetrics.MESSAGE_LATENCY).timers().size());
+        assertEquals(1, registry.find(MicrometerIotHubClientMetrics.BYTES_SENT).counters().size());
+    }
+
+    private static class FakeQueueDepths implements IotHubTransportQueueDepths
+    {
+        private int waiting;
+        private int inProgress;
+        private int callback;
+        private int received;
+
+        @Override
+        public int getWaitingCount()
+        {
+            return waiting;
+        }
+
+        @Override
+        public int getInProgressCount()
+        {
+            return inProgress;
+        }
+
+        @Override
+        public int getCallbackCount()
+        {
+            return callback;
+        }
+
+        @Override
+        public int getReceivedCount()
+        {
+            return received;
+        }
+    }
+}
@@ -6,6 +6,10 @@ package com.microsoft.azure.sdk.iot.device;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.Pair;
 import com.microsoft.azure.sdk.iot.device.auth.*;
 import com.microsoft.azure.sdk.iot.device.transport.ExponentialBackoffWithJitter;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubClientMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.MessageLifecycleTracer;
+import com.microsoft.azure.sdk.iot.device.transport.ReconnectionAdmissionController;
+import com.microsoft.azure.sdk.iot.device.transport.NoOpIotHubClientMetrics;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderSymmetricKey;
@@ -17,6 +21,7 @@ import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Configuration settings for an IoT Hub client. Validates all user-defined
@@ -32,6 +37,9 @@ public final class DeviceClientConfig
 
     private static final long DEFAULT_OPERATION_TIMEOUT = 4 * 60 * 1000; //4 minutes
 
+    // the window the proton FlowController kept on each receiver link
+    private static final int DEFAULT_AMQP_RECEIVER_PREFETCH = 1024;
+
     private boolean useWebsocket;
     private ProxySettings proxySettings;
 
@@ -74,6 +82,25 @@ public final class DeviceClientConfig
     // Codes_SRS_DEVICECLIENTCONFIG_28_001: [The class shall have ExponentialBackOff as the default retryPolicy.]
     private RetryPolicy retryPolicy = new ExponentialBackoffWithJitter();
 
+    private IotHubClientMetrics metrics = new NoOpIotHubClientMetrics();
+
+    private MessageLifecycleTracer messageLifecycleTracer;
+
+    // 0 unless messages are delivered in the order they were sent
+    private int orderedDeliveryWindow = 0;
+
+    private ReconnectionAdmissionController reconnectionAdmissionController;
+
+    // null unless the MQTT session is persisted
+    private String mqttPersistentSessionDirectory;
+
+    private int amqpReceiverPrefetch = DEFAULT_AMQP_RECEIVER_PREFETCH;
+
+    // null unless device method invocations are dispatched off the receive thread
+    private ExecutorService deviceMethodExecutor;
+    // method name to its maximum concurrent invocations and its timeout in milliseconds
+    private final Map<String, Pair<Integer, Long>> deviceMethodLimits = new HashMap<>();
+
     /**
      * Constructor
      *
@@ -288,6 +315,206 @@ public final class DeviceClientConfig
         return this.retryPolicy;
     }
 
+    /**
+     * Setter for the metrics recorder
+     *
+     * @param metrics the metrics recorder notified of transport activity
+     * @throws IllegalArgumentException if metrics is null
+     */
+    public void setMetrics(IotHubClientMetrics metrics) throws IllegalArgumentException
+    {
+        if (metrics == null)
+        {
+            throw new IllegalArgumentException("Metrics cannot be null.");
+        }
+
+        this.metrics = metrics;
+    }
+
+    /**
+     * Getter for the metrics recorder
+     *
+     * @return the metrics recorder, a no-op recorder unless one was set
+     */
+    public IotHubClientMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
+    /**
+     * Setter for the message lifecycle tracer
+     *
+     * @param messageLifecycleTracer the tracer that records the hops of sampled messages, or null to record nothing
+     */
+    public void setMessageLifecycleTracer(MessageLifecycleTracer messageLifecycleTracer)
+    {
+        this.messageLifecycleTracer = messageLifecycleTracer;
+    }
+
+    /**
+     * Getter for the message lifecycle tracer
+     *
+     * @return the message lifecycle tracer, or null if none was set
+     */
+    public MessageLifecycleTracer getMessageLifecycleTracer()
+    {
+        return this.messageLifecycleTracer;
+    }
+
+    /**
+     * Setter for the ordered delivery window
+     *
+     * @param orderedDeliveryWindow the maximum number of messages sent but not acknowledged yet while messages are
+     *                              delivered in the order they were sent, or 0 to keep sending newer messages while
+     *                              a failed message waits to be retried
+     * @throws IllegalArgumentException if orderedDeliveryWindow is negative
+     */
+    public void setOrderedDeliveryWindow(int orderedDeliveryWindow) throws IllegalArgumentException
+    {
+        if (orderedDeliveryWindow < 0)
+        {
+            throw new IllegalArgumentException("Ordered delivery window cannot be negative.");
+        }
+
+        this.orderedDeliveryWindow = orderedDeliveryWindow;
+    }
+
+    /**
+     * Getter for the ordered delivery window
+     *
+     * @return the ordered delivery window, 0 unless messages are delivered in the order they were sent
+     */
+    public int getOrderedDeliveryWindow()
+    {
+        return this.orderedDeliveryWindow;
+    }
+
+    /**
+     * Setter for the reconnection admission controller
+     *
+     * @param reconnectionAdmissionController the controller admitting the reconnection attempts, or null to reconnect
+     *                                        as soon as the retry policy allows
+     */
+    public void setReconnectionAdmissionController(ReconnectionAdmissionController reconnectionAdmissionController)
+    {
+        this.reconnectionAdmissionController = reconnectionAdmissionController;
+    }
+
+    /**
+     * Getter for the reconnection admission controller
+     *
+     * @return the reconnection admission controller, or null if none was set
+     */
+    public ReconnectionAdmissionController getReconnectionAdmissionController()
+    {
+        return this.reconnectionAdmissionController;
+    }
+
+    /**
+     * Setter for the directory where the in flight messages of the persistent MQTT session are stored
+     *
+     * @param mqttPersistentSessionDirectory the directory, or null to not persist the MQTT session
+     * @throws IllegalArgumentException if mqttPersistentSessionDirectory is empty
+     */
+    public void setMqttPersistentSessionDirectory(String mqttPersistentSessionDirectory) throws IllegalArgumentException
+    {
+        if (mqttPersistentSessionDirectory != null && mqttPersistentSessionDirectory.isEmpty())
+        {
+            throw new IllegalArgumentException("MQTT persistent session directory cannot be empty.");
+        }
+
+        this.mqttPersistentSessionDirectory = mqttPersistentSessionDirectory;
+    }
+
+    /**
+     * Getter for the directory where the in flight messages of the persistent MQTT session are stored
+     *
+     * @return the directory, or null if the MQTT session is not persisted
+     */
+    public String getMqttPersistentSessionDirectory()
+    {
+        return this.mqttPersistentSessionDirectory;
+    }
+
+    /**
+     * Setter for the number of messages each AMQP receiver link accepts from the service before they are acknowledged
+     *
+     * @param amqpReceiverPrefetch the number of messages, at least 1
+     * @throws IllegalArgumentException if amqpReceiverPrefetch is less than 1
+     */
+    public void setAmqpReceiverPrefetch(int amqpReceiverPrefetch) throws IllegalArgumentException
+    {
+        if (amqpReceiverPrefetch < 1)
+        {
+            throw new IllegalArgumentException("AMQP receiver prefetch must be at least 1.");
+        }
+
+        this.amqpReceiverPrefetch = amqpReceiverPrefetch;
+    }
+
+    /**
+     * Getter for the number of messages each AMQP receiver link accepts from the service before they are acknowledged
+     *
+     * @return the number of messages
+     */
+    public int getAmqpReceiverPrefetch()
+    {
+        return this.amqpReceiverPrefetch;
+    }
+
+    /**
+     * Setter for the executor running the device method callbacks
+     *
+     * @param deviceMethodExecutor the executor, or null to run the callbacks on the thread receiving the invocations
+     */
+    public void setDeviceMethodExecutor(ExecutorService deviceMethodExecutor)
+    {
+        this.deviceMethodExecutor = deviceMethodExecutor;
+    }
+
+    /**
+     * Getter for the executor running the device method callbacks
+     *
+     * @return the executor, or null if the callbacks run on the thread receiving the invocations
+     */
+    public ExecutorService getDeviceMethodExecutor()
+    {
+        return this.deviceMethodExecutor;
+    }
+
+    /**
+     * Setter for the limits of the invocations of a device method run by the device method executor
+     *
+     * @param methodName the name of the method
+     * @param maxConcurrentInvocations the number of invocations of the method running at a time, or 0 for no limit
+     * @param timeoutMillis the time an invocation has to complete, or 0 for no timeout
+     * @throws IllegalArgumentException if the method name is null or empty, or a limit is negative
+     */
+    public void setDeviceMethodLimit(String methodName, int maxConcurrentInvocations, long timeoutMillis) throws IllegalArgumentException
+    {
+        if (methodName == null || methodName.isEmpty())
+        {
+            throw new IllegalArgumentException("Method name cannot be null or empty.");
+        }
+
+        if (maxConcurrentInvocations < 0 || timeoutMillis < 0)
+        {
+            throw new IllegalArgumentException("Device method limits cannot be negative.");
+        }
+
+        this.deviceMethodLimits.put(methodName, new Pair<>(maxConcurrentInvocations, timeoutMillis));
+    }
+
+    /**
+     * Getter for the limits of the invocations of the device methods
+     *
+     * @return the maximum concurrent invocations and the timeout in milliseconds of each limited method, by method name
+     */
+    public Map<String, Pair<Integer, Long>> getDeviceMethodLimits()
+    {
+        return this.deviceMethodLimits;
+    }
+
     /**
      * Getter for SasTokenAuthentication
      *
@@ -4,6 +4,7 @@
 package com.microsoft.azure.sdk.iot.device;
 
 import com.microsoft.azure.sdk.iot.device.exceptions.DeviceClientException;
+import com.microsoft.azure.sdk.iot.device.transport.AdaptiveTaskScheduler;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubReceiveTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
@@ -14,6 +15,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /*
@@ -86,8 +88,21 @@ public final class DeviceIO
     private IotHubClientProtocol protocol = null;
 
     private ScheduledExecutorService taskScheduler;
+    private ScheduledFuture<?> sendTaskFuture;
+    private ScheduledFuture<?> receiveTaskFuture;
     private IotHubClientState state;
 
+    // When set, the send and receive periods adapt between these bounds instead of being fixed
+    private boolean isAdaptive = false;
+    private long minAdaptivePeriodInMilliseconds;
+    private long maxAdaptiveSendPeriodInMilliseconds;
+    private long maxAdaptiveReceivePeriodInMilliseconds;
+    private AdaptiveTaskScheduler adaptiveSendTaskScheduler;
+    private AdaptiveTaskScheduler adaptiveReceiveTaskScheduler;
+
+    // When set, the tasks run on the threads of this runtime instead of on a scheduler owned by this object
+    private IotHubClientRuntime runtime;
+
     private List<DeviceClientConfig> deviceClientConfigs = new LinkedList<>();
 
     /**
@@ -151,6 +166,11 @@ public final class DeviceIO
             return;
         }
 
+        if (this.runtime != null && this.runtime.isClosed())
+        {
+            throw new IOException("Could not open the connection because the client runtime is closed");
+        }
+
         /* Codes_SRS_DEVICE_IO_21_012: [The open shall open the transport to communicate with an IoT Hub.] */
         /* Codes_SRS_DEVICE_IO_21_015: [If an error occurs in opening the transport, the open shall throw an IOException.] */
         try
@@ -190,16 +210,31 @@ public final class DeviceIO
         this.sendTask = new IotHubSendTask(this.transport);
         this.receiveTask = new IotHubReceiveTask(this.transport);
 
-        this.taskScheduler = Executors.newScheduledThreadPool(2);
-        // the scheduler waits until each execution is finished before
-        // scheduling the next one, so executions of a given task
-        // will never overlap.
-        /* Codes_SRS_DEVICE_IO_21_013: [The open shall schedule send tasks to run every SEND_PERIOD_MILLIS milliseconds.] */
-        this.taskScheduler.scheduleAtFixedRate(this.sendTask, 0,
-                sendPeriodInMilliseconds, TimeUnit.MILLISECONDS);
-        /* Codes_SRS_DEVICE_IO_21_014: [The open shall schedule receive tasks to run every receivePeriodInMilliseconds milliseconds.] */
-        this.taskScheduler.scheduleAtFixedRate(this.receiveTask, 0,
-                receivePeriodInMilliseconds, TimeUnit.MILLISECONDS);
+        if (this.runtime != null)
+        {
+            this.taskScheduler = this.runtime.getScheduler();
+        }
+        else
+        {
+            this.taskScheduler = Executors.newScheduledThreadPool(2);
+        }
+
+        if (this.isAdaptive)
+        {
+            this.startAdaptiveTasks();
+        }
+        else
+        {
+            // the scheduler waits until each execution is finished before
+            // scheduling the next one, so executions of a given task
+            // will never overlap.
+            /* Codes_SRS_DEVICE_IO_21_013: [The open shall schedule send tasks to run every SEND_PERIOD_MILLIS milliseconds.] */
+            this.sendTaskFuture = this.taskScheduler.scheduleAtFixedRate(this.sendTask, 0,
+                    sendPeriodInMilliseconds, TimeUnit.MILLISECONDS);
+            /* Codes_SRS_DEVICE_IO_21_014: [The open shall schedule receive tasks to run every receivePeriodInMilliseconds milliseconds.] */
+            this.receiveTaskFuture = this.taskScheduler.scheduleAtFixedRate(this.receiveTask, 0,
+                    receivePeriodInMilliseconds, TimeUnit.MILLISECONDS);
+        }
 
         /* Codes_SRS_DEVICE_IO_21_016: [The open shall set the `state` as `CONNECTED`.] */
         this.state = IotHubClientState.OPEN;
@@ -217,7 +252,22 @@ public final class DeviceIO
     {
         /* Codes_SRS_DEVICE_IO_21_017: [The close shall finish all ongoing tasks.] */
         /* Codes_SRS_DEVICE_IO_21_018: [The close shall cancel all recurring tasks.] */
-        if (taskScheduler != null)
+        if (this.adaptiveSendTaskScheduler != null)
+        {
+            this.adaptiveSendTaskScheduler.stop();
+            this.adaptiveReceiveTaskScheduler.stop();
+            this.transport.setAdaptiveTaskSchedulers(null, null);
+            this.adaptiveSendTaskScheduler = null;
+            this.adaptiveReceiveTaskScheduler = null;
+        }
+
+        if (this.runtime != null)
+        {
+            // the scheduler is shared with other clients, only this client's tasks are stopped
+            this.cancelTaskFutures();
+            this.taskScheduler = null;
+        }
+        else if (taskScheduler != null)
         {
             this.taskScheduler.shutdown();
         }
@@ -307,9 +357,13 @@ public final class DeviceIO
     /**
      * Setter for the receive period in milliseconds.
      *
+     * <p>If the client uses adaptive periods, the interval is the longest delay between idle runs of the receive task,
+     * which still runs after the minimum adaptive period while it has work.</p>
+     *
      * @param newIntervalInMilliseconds is the new interval in milliseconds.
      * @throws IOException if the task schedule exist but there is no receive task function to call.
-     * @throws IllegalArgumentException if the provided interval is invalid (zero or negative).
+     * @throws IllegalArgumentException if the provided interval is invalid (zero or negative), or smaller than the
+     * minimum adaptive period.
      */
     public void setReceivePeriodInMilliseconds(long newIntervalInMilliseconds) throws IOException
     {
@@ -319,6 +373,20 @@ public final class DeviceIO
             throw new IllegalArgumentException("receive interval can not be zero or negative");
         }
 
+        if (this.isAdaptive)
+        {
+            // the period bounds the delay between idle runs, the adaptive task still runs sooner while there is work
+            AdaptiveTaskScheduler.validateBounds(this.minAdaptivePeriodInMilliseconds, newIntervalInMilliseconds);
+            this.receivePeriodInMilliseconds = newIntervalInMilliseconds;
+            this.maxAdaptiveReceivePeriodInMilliseconds = newIntervalInMilliseconds;
+            if (this.adaptiveReceiveTaskScheduler != null)
+            {
+                this.adaptiveReceiveTaskScheduler.setMaxPeriodInMilliseconds(newIntervalInMilliseconds);
+            }
+
+            return;
+        }
+
         /* Codes_SRS_DEVICE_IO_21_027: [The setReceivePeriodInMilliseconds shall store the new receive period in milliseconds.] */
         this.receivePeriodInMilliseconds = newIntervalInMilliseconds;
 
@@ -331,7 +399,12 @@ public final class DeviceIO
                 throw new IOException("transport receive task not set");
             }
 
-            this.taskScheduler.scheduleAtFixedRate(this.receiveTask, 0,
+            if (this.receiveTaskFuture != null)
+            {
+                this.receiveTaskFuture.cancel(false);
+            }
+
+            this.receiveTaskFuture = this.taskScheduler.scheduleAtFixedRate(this.receiveTask, 0,
                     this.receivePeriodInMilliseconds, TimeUnit.MILLISECONDS);
         }
     }
@@ -350,9 +423,13 @@ public final class DeviceIO
     /**
      * Setter for the send period in milliseconds.
      *
+     * <p>If the client uses adaptive periods, the interval is the longest delay between idle runs of the send task,
+     * which still runs after the minimum adaptive period while it has work.</p>
+     *
      * @param newIntervalInMilliseconds is the new interval in milliseconds.
      * @throws IOException if the task schedule exist but there is no send task function to call.
-     * @throws IllegalArgumentException if the provided interval is invalid (zero or negative).
+     * @throws IllegalArgumentException if the provided interval is invalid (zero or negative), or smaller than the
+     * minimum adaptive period.
      */
     public void setSendPeriodInMilliseconds(long newIntervalInMilliseconds) throws IOException
     {
@@ -362,6 +439,20 @@ public final class DeviceIO
             throw new IllegalArgumentException("send interval can not be zero or negative");
         }
 
+        if (this.isAdaptive)
+        {
+            // the period bounds the delay between idle runs, the adaptive task still runs sooner while there is work
+            AdaptiveTaskScheduler.validateBounds(this.minAdaptivePeriodInMilliseconds, newIntervalInMilliseconds);
+            this.sendPeriodInMilliseconds = newIntervalInMilliseconds;
+            this.maxAdaptiveSendPeriodInMilliseconds = newIntervalInMilliseconds;
+            if (this.adaptiveSendTaskScheduler != null)
+            {
+                this.adaptiveSendTaskScheduler.setMaxPeriodInMilliseconds(newIntervalInMilliseconds);
+            }
+
+            return;
+        }
+
         /* Codes_SRS_DEVICE_IO_21_033: [The setSendPeriodInMilliseconds shall store the new send period in milliseconds.] */
         this.sendPeriodInMilliseconds = newIntervalInMilliseconds;
 
@@ -374,11 +465,101 @@ public final class DeviceIO
                 throw new IOException("transport send task not set");
             }
 
-            this.taskScheduler.scheduleAtFixedRate(this.sendTask, 0,
+            if (this.sendTaskFuture != null)
+            {
+                this.sendTaskFuture.cancel(false);
+            }
+
+            this.sendTaskFuture = this.taskScheduler.scheduleAtFixedRate(this.sendTask, 0,
                     this.sendPeriodInMilliseconds, TimeUnit.MILLISECONDS);
         }
     }
 
+    /**
+     * Makes the send and receive tasks run on adaptive periods instead of fixed ones. A task runs again after the
+     * minimum period while its queue has work left, doubles its period after each idle run up to the maximum, and is
+     * woken up immediately when a message is queued or received. Must be called before the client is opened. The
+     * send and receive periods set afterwards replace the maximum period of their task.
+     *
+     * @param minPeriodInMilliseconds the period while there is work. May be 0 to drain bursts without waiting
+     * @param maxPeriodInMilliseconds the longest period while idle
+     * @throws IllegalArgumentException if min is negative, max is not positive or max is smaller than min
+     * @throws IllegalStateException if the client is already open
+     */
+    void setAdaptivePeriods(long minPeriodInMilliseconds, long maxPeriodInMilliseconds)
+    {
+        AdaptiveTaskScheduler.validateBounds(minPeriodInMilliseconds, maxPeriodInMilliseconds);
+
+        if (this.state == IotHubClientState.OPEN)
+        {
+            throw new IllegalStateException("adaptive periods can only be set before the client is opened");
+        }
+
+        this.isAdaptive = true;
+        this.minAdaptivePeriodInMilliseconds = minPeriodInMilliseconds;
+        this.maxAdaptiveSendPeriodInMilliseconds = maxPeriodInMilliseconds;
+        this.maxAdaptiveReceivePeriodInMilliseconds = maxPeriodInMilliseconds;
+    }
+
+    /**
+     * Makes the send and receive tasks, the callbacks and the message retry timers of this client run on the threads
+     * of the provided runtime. Must be called before the client is opened.
+     *
+     * @param runtime the runtime to share, or null to let this client create its own threads
+     * @throws IllegalStateException if the client is already open
+     */
+    void setRuntime(IotHubClientRuntime runtime)
+    {
+        if (this.state == IotHubClientState.OPEN)
+        {
+            throw new IllegalStateException("the client runtime can only be set before the client is opened");
+        }
+
+        this.runtime = runtime;
+        this.transport.setSharedScheduler(runtime == null ? null : runtime.getScheduler());
+    }
+
+    private void cancelTaskFutures()
+    {
+        if (this.sendTaskFuture != null)
+        {
+            this.sendTaskFuture.cancel(false);
+            this.sendTaskFuture = null;
+        }
+
+        if (this.receiveTaskFuture != null)
+        {
+            this.receiveTaskFuture.cancel(false);
+            this.receiveTaskFuture = null;
+        }
+    }
+
+    private void startAdaptiveTasks()
+    {
+        final IotHubTransport transport = this.transport;
+        this.adaptiveSendTaskScheduler = new AdaptiveTaskScheduler(this.taskScheduler, this.sendTask, new AdaptiveTaskScheduler.Backlog()
+        {
+            @Override
+            public boolean hasBacklog()
+            {
+                return transport.hasSendBacklog();
+            }
+        }, this.minAdaptivePeriodInMilliseconds, this.maxAdaptiveSendPeriodInMilliseconds);
+
+        this.adaptiveReceiveTaskScheduler = new AdaptiveTaskScheduler(this.taskScheduler, this.receiveTask, new AdaptiveTaskScheduler.Backlog()
+        {
+            @Override
+            public boolean hasBacklog()
+            {
+                return transport.hasReceiveBacklog();
+            }
+        }, this.minAdaptivePeriodInMilliseconds, this.maxAdaptiveReceivePeriodInMilliseconds);
+
+        this.transport.setAdaptiveTaskSchedulers(this.adaptiveSendTaskScheduler, this.adaptiveReceiveTaskScheduler);
+        this.adaptiveSendTaskScheduler.start();
+        this.adaptiveReceiveTaskScheduler.start();
+    }
+
     /**
      * Getter for the transport protocol.
      *
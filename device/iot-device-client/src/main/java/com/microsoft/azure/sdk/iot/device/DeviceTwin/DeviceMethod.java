@@ -4,10 +4,21 @@
 package com.microsoft.azure.sdk.iot.device.DeviceTwin;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.MethodParser;
+import com.microsoft.azure.sdk.iot.deps.util.DaemonThreadFactory;
 import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 @Slf4j
 public final class DeviceMethod
 {
@@ -22,10 +33,18 @@ public final class DeviceMethod
     private DeviceIO deviceIO;
     private DeviceClientConfig config;
 
+    // status of the response to an invocation over its method's concurrency limit
+    private static final int TOO_MANY_INVOCATIONS_STATUS = 429;
+    // status of the response to an invocation that did not complete within its method's timeout
+    private static final int INVOCATION_TIMEOUT_STATUS = 504;
+
+    // null unless the invocations are dispatched off the receive thread
+    private ExecutorService invocationExecutor;
+    private final Map<String, Semaphore> invocationPermits = new ConcurrentHashMap<>();
+    private final Map<String, Long> invocationTimeoutsMillis = new ConcurrentHashMap<>();
+
     private final class deviceMethodResponseCallback implements MessageCallback
     {
-        DeviceClientConfig nestedConfig = config;
-
         /*
         **Codes_SRS_DEVICEMETHOD_25_007: [**On receiving a message from IOTHub with for method invoke, the callback DeviceMethodResponseMessageCallback is triggered.**]**
          */
@@ -59,6 +78,13 @@ public final class DeviceMethod
                             {
                                 isSubscribed = true;
                             }
+
+                            if (invocationExecutor != null)
+                            {
+                                result = dispatchInvocation(methodMessage);
+                                break;
+                            }
+
                             try
                             {
                                 /*
@@ -75,25 +101,8 @@ public final class DeviceMethod
                                 {
                                     /*
                                     **Codes_SRS_DEVICEMETHOD_25_011: [**If the user callback is successful and user has successfully provided the response message and status, then this method shall build a device method message of type DEVICE_OPERATION_METHOD_SEND_RESPONSE, serilize the user data by invoking MethodParser from serializer and save the user data as payload in the message before sending it to IotHub via sendeventAsync before marking the result as complete**]**
-                                    **Codes_SRS_DEVICEMETHOD_25_015: [**User can provide null response message upon invoking the device method callback which will be serialized as is, before sending it to IotHub.**]**
-                                     */
-                                    MethodParser methodParserObject = new MethodParser(responseData.getResponseMessage());
-                                    IotHubTransportMessage responseMessage = new IotHubTransportMessage(methodParserObject.toJson().getBytes(), MessageType.DEVICE_METHODS);
-                                    /*
-                                    **Codes_SRS_DEVICEMETHOD_25_012: [**The device method message sent to IotHub shall have same the request id as the invoking message.**]**
-                                     */
-                                    responseMessage.setRequestId(methodMessage.getRequestId());
-
-                                    // Codes_SRS_DEVICEMETHOD_34_016: [The device method message sent to IotHub shall have the sending device's id set as the connection device id.]
-                                    responseMessage.setConnectionDeviceId(this.nestedConfig.getDeviceId());
-
-                                    /*
-                                    **Codes_SRS_DEVICEMETHOD_25_013: [**The device method message sent to IotHub shall have the status provided by the user as the message status.**]**
                                      */
-                                    responseMessage.setStatus(String.valueOf(responseData.getStatus()));
-                                    responseMessage.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_METHOD_SEND_RESPONSE);
-
-                                    deviceIO.sendEventAsync(responseMessage, new deviceMethodRequestMessageCallback(), null, nestedConfig.getDeviceId());
+                                    sendResponse(methodMessage, responseData);
                                     result = IotHubMessageResult.COMPLETE;
                                 }
                                 else
@@ -132,6 +141,85 @@ public final class DeviceMethod
         }
     }
 
+    /**
+     * An invocation of a device method run by the invocation executor. The response is sent by whichever of the method
+     * callback and the timeout completes the invocation first.
+     */
+    private final class DeviceMethodInvocation implements Runnable
+    {
+        private final IotHubTransportMessage methodMessage;
+        private final DeviceMethodCallback methodCallback;
+        private final Object methodCallbackContext;
+        private final Semaphore permit;
+        private final AtomicBoolean isCompleted = new AtomicBoolean(false);
+
+        private DeviceMethodInvocation(IotHubTransportMessage methodMessage, DeviceMethodCallback methodCallback, Object methodCallbackContext, Semaphore permit)
+        {
+            this.methodMessage = methodMessage;
+            this.methodCallback = methodCallback;
+            this.methodCallbackContext = methodCallbackContext;
+            this.permit = permit;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                log.trace("Executing method invocation callback for method name {} for message {}", methodMessage.getMethodName(), methodMessage);
+                DeviceMethodData responseData = this.methodCallback.call(this.methodMessage.getMethodName(), this.methodMessage.getBytes(), this.methodCallbackContext);
+                log.trace("Method invocation callback returned for method name {} for message {}", methodMessage.getMethodName(), methodMessage);
+
+                if (!this.isCompleted.compareAndSet(false, true))
+                {
+                    log.debug("Method invocation callback for method name {} returned after its timeout, dropping its response", this.methodMessage.getMethodName());
+                }
+                else if (responseData != null)
+                {
+                    sendResponse(this.methodMessage, responseData);
+                }
+                else
+                {
+                    log.info("User callback did not send any data for response");
+                    deviceMethodStatusCallback.execute(IotHubStatusCode.ERROR, deviceMethodStatusCallbackContext);
+                }
+            }
+            catch (Exception e)
+            {
+                log.info("User callback did not succeed");
+                if (this.isCompleted.compareAndSet(false, true))
+                {
+                    deviceMethodStatusCallback.execute(IotHubStatusCode.ERROR, deviceMethodStatusCallbackContext);
+                }
+            }
+            finally
+            {
+                if (this.permit != null)
+                {
+                    this.permit.release();
+                }
+            }
+        }
+
+        private void timeout(long timeoutMillis)
+        {
+            if (this.isCompleted.compareAndSet(false, true))
+            {
+                // the callback keeps running, and keeps its permit, but the service gets its response now
+                log.warn("Method invocation callback for method name {} did not return within {} milliseconds", this.methodMessage.getMethodName(), timeoutMillis);
+                sendResponse(this.methodMessage, new DeviceMethodData(INVOCATION_TIMEOUT_STATUS, "Method did not complete within " + timeoutMillis + " milliseconds"));
+            }
+        }
+    }
+
+    /**
+     * The single daemon thread that times out the invocations of all the clients.
+     */
+    private static final class InvocationTimeoutScheduler
+    {
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("azure-iot-sdk-DeviceMethodTimeout-"));
+    }
+
     private final class deviceMethodRequestMessageCallback implements IotHubEventCallback
     {
         @Override
@@ -185,6 +273,59 @@ public final class DeviceMethod
         this.config.setDeviceMethodsMessageCallback(new deviceMethodResponseCallback(), null);
     }
 
+    /**
+     * Sets the executor running the device method callback. By default the callback runs on the thread receiving the
+     * messages from IotHub, so no other method invocation, cloud to device message or twin update is handled until it
+     * returns. With an executor, the invocations are handed to the executor as they are received, run in parallel,
+     * and each response is sent as soon as its callback returns.
+     * @param invocationExecutor the executor running the callbacks, or null to run them on the receiving thread
+     */
+    public void setInvocationExecutor(ExecutorService invocationExecutor)
+    {
+        this.invocationExecutor = invocationExecutor;
+    }
+
+    /**
+     * Limits the invocations of a device method run by the invocation executor. Invocations received while
+     * {@code maxConcurrentInvocations} invocations of the method are running are answered right away with a 429
+     * status. Invocations whose callback does not return within {@code timeoutMillis} are answered with a 504 status,
+     * and the response of the callback is dropped when it returns. Only used with an invocation executor.
+     * @param methodName the name of the method. Cannot be {@code null} or empty.
+     * @param maxConcurrentInvocations the number of invocations of the method running at a time, or 0 for no limit
+     * @param timeoutMillis the time an invocation has to complete, or 0 for no timeout
+     * @throws IllegalArgumentException if the method name is null or empty, or a limit is negative
+     */
+    public void setInvocationLimit(String methodName, int maxConcurrentInvocations, long timeoutMillis) throws IllegalArgumentException
+    {
+        if (methodName == null || methodName.isEmpty())
+        {
+            throw new IllegalArgumentException("Method name cannot be null or empty");
+        }
+
+        if (maxConcurrentInvocations < 0 || timeoutMillis < 0)
+        {
+            throw new IllegalArgumentException("Limits cannot be negative");
+        }
+
+        if (maxConcurrentInvocations > 0)
+        {
+            this.invocationPermits.put(methodName, new Semaphore(maxConcurrentInvocations));
+        }
+        else
+        {
+            this.invocationPermits.remove(methodName);
+        }
+
+        if (timeoutMillis > 0)
+        {
+            this.invocationTimeoutsMillis.put(methodName, timeoutMillis);
+        }
+        else
+        {
+            this.invocationTimeoutsMillis.remove(methodName);
+        }
+    }
+
     /**
      * A method which subscribes to receive device method invocation for the user with the IotHub.
      * @param deviceMethodCallback Callback where upon receiving the request the
@@ -219,4 +360,73 @@ public final class DeviceMethod
         }
 
     }
+
+    private IotHubMessageResult dispatchInvocation(IotHubTransportMessage methodMessage)
+    {
+        String methodName = methodMessage.getMethodName();
+        Semaphore permit = methodName == null ? null : this.invocationPermits.get(methodName);
+        if (permit != null && !permit.tryAcquire())
+        {
+            log.warn("Too many invocations of method name {} are running, rejecting message {}", methodName, methodMessage);
+            sendResponse(methodMessage, new DeviceMethodData(TOO_MANY_INVOCATIONS_STATUS, "Too many invocations of the method are running"));
+            return IotHubMessageResult.COMPLETE;
+        }
+
+        final DeviceMethodInvocation invocation = new DeviceMethodInvocation(methodMessage, this.deviceMethodCallback, this.deviceMethodCallbackContext, permit);
+        try
+        {
+            this.invocationExecutor.execute(invocation);
+        }
+        catch (RejectedExecutionException e)
+        {
+            log.warn("Device method invocation executor rejected message {}", methodMessage, e);
+            if (permit != null)
+            {
+                permit.release();
+            }
+
+            this.deviceMethodStatusCallback.execute(IotHubStatusCode.ERROR, this.deviceMethodStatusCallbackContext);
+            return IotHubMessageResult.REJECT;
+        }
+
+        final Long timeoutMillis = methodName == null ? null : this.invocationTimeoutsMillis.get(methodName);
+        if (timeoutMillis != null)
+        {
+            InvocationTimeoutScheduler.SCHEDULER.schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    invocation.timeout(timeoutMillis);
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        // the response is sent once the invocation completes, the request itself is handled
+        return IotHubMessageResult.COMPLETE;
+    }
+
+    private void sendResponse(IotHubTransportMessage methodMessage, DeviceMethodData responseData)
+    {
+        /*
+        **Codes_SRS_DEVICEMETHOD_25_015: [**User can provide null response message upon invoking the device method callback which will be serialized as is, before sending it to IotHub.**]**
+         */
+        MethodParser methodParserObject = new MethodParser(responseData.getResponseMessage());
+        IotHubTransportMessage responseMessage = new IotHubTransportMessage(methodParserObject.toJson().getBytes(), MessageType.DEVICE_METHODS);
+        /*
+        **Codes_SRS_DEVICEMETHOD_25_012: [**The device method message sent to IotHub shall have same the request id as the invoking message.**]**
+         */
+        responseMessage.setRequestId(methodMessage.getRequestId());
+
+        // Codes_SRS_DEVICEMETHOD_34_016: [The device method message sent to IotHub shall have the sending device's id set as the connection device id.]
+        responseMessage.setConnectionDeviceId(this.config.getDeviceId());
+
+        /*
+        **Codes_SRS_DEVICEMETHOD_25_013: [**The device method message sent to IotHub shall have the status provided by the user as the message status.**]**
+         */
+        responseMessage.setStatus(String.valueOf(responseData.getStatus()));
+        responseMessage.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_METHOD_SEND_RESPONSE);
+
+        this.deviceIO.sendEventAsync(responseMessage, new deviceMethodRequestMessageCallback(), null, this.config.getDeviceId());
+    }
 }
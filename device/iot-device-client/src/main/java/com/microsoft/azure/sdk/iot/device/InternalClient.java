@@ -8,16 +8,21 @@ package com.microsoft.azure.sdk.iot.device;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.*;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubClientMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.MessageLifecycleTracer;
+import com.microsoft.azure.sdk.iot.device.transport.ReconnectionAdmissionController;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.net.ssl.SSLContext;
+import java.io.Closeable;
 import java.io.IOError;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import static com.microsoft.azure.sdk.iot.device.IotHubClientProtocol.*;
 
@@ -142,12 +147,29 @@ public class InternalClient
 
         //Codes_SRS_INTERNALCLIENT_21_042: [The closeNow shall closeNow the deviceIO connection.]
         this.deviceIO.close();
+        this.closeAuthenticationProvider();
     }
 
     public void closeNow() throws IOException
     {
         //Codes_SRS_INTERNALCLIENT_21_008: [The closeNow shall closeNow the deviceIO connection.]
         this.deviceIO.close();
+        this.closeAuthenticationProvider();
+    }
+
+    private void closeAuthenticationProvider() throws IOException
+    {
+        if (this.config == null)
+        {
+            return;
+        }
+
+        // the HSM authentication provider keeps connections to the HSM alive, a reopened client connects again
+        IotHubAuthenticationProvider authenticationProvider = this.config.getAuthenticationProvider();
+        if (authenticationProvider instanceof Closeable)
+        {
+            ((Closeable) authenticationProvider).close();
+        }
     }
 
     /**
@@ -315,6 +337,153 @@ public class InternalClient
         this.config.setRetryPolicy(retryPolicy);
     }
 
+    /**
+     * Makes the send and receive loops run on adaptive periods instead of the fixed send interval and minimum polling
+     * interval. While there is work a loop runs every {@code minPeriodInMilliseconds}. Each idle run doubles its period
+     * up to {@code maxPeriodInMilliseconds}. Queueing or receiving a message wakes it up right away. This lets idle
+     * clients stop waking up every few milliseconds without capping the throughput of busy ones. Must be called
+     * before the client is opened. A send interval or minimum polling interval set afterwards replaces the maximum
+     * period of its loop.
+     *
+     * @param minPeriodInMilliseconds the period while there is work. May be 0 to drain bursts without waiting
+     * @param maxPeriodInMilliseconds the longest period while idle
+     * @throws IllegalArgumentException if min is negative, max is not positive or max is smaller than min
+     * @throws IllegalStateException if the client is open, or if it is used through a TransportClient
+     */
+    public void setAdaptiveSendReceivePeriods(long minPeriodInMilliseconds, long maxPeriodInMilliseconds)
+    {
+        if (this.deviceIO == null)
+        {
+            throw new IllegalStateException("Adaptive periods of a multiplexed client must be set through TransportClient.setAdaptiveSendReceivePeriods");
+        }
+
+        this.deviceIO.setAdaptivePeriods(minPeriodInMilliseconds, maxPeriodInMilliseconds);
+    }
+
+    /**
+     * Makes this client run its send and receive tasks, callbacks and message retry timers on the threads of the
+     * provided runtime instead of on threads of its own. Give the same runtime to many clients to keep the number
+     * of threads in the JVM independent of the number of clients. Must be called before the client is opened.
+     *
+     * @param runtime the runtime to share, or null to let this client create its own threads
+     * @throws IllegalStateException if the client is open, or if it is used through a TransportClient
+     */
+    public void setRuntime(IotHubClientRuntime runtime)
+    {
+        if (this.deviceIO == null)
+        {
+            throw new IllegalStateException("The runtime of a multiplexed client must be set through TransportClient.setRuntime");
+        }
+
+        this.deviceIO.setRuntime(runtime);
+    }
+
+    /**
+     * Sets the metrics recorder notified of queue depths, message latencies, retries, reconnections and bytes
+     * on the wire by the underlying transport. Must be set before the client is opened.
+     * @param metrics the metrics recorder to use
+     * @throws IllegalArgumentException if metrics is null
+     */
+    public void setMetrics(IotHubClientMetrics metrics)
+    {
+        this.config.setMetrics(metrics);
+    }
+
+    /**
+     * Sets the tracer that records the enqueue, dequeue, wire write, acknowledgement and callback times of a sample
+     * of the messages sent by this client. Keep a reference to the tracer to dump or export what it recorded.
+     * Must be set before the client is opened.
+     * @param messageLifecycleTracer the tracer to use, or null to trace nothing
+     */
+    public void setMessageLifecycleTracer(MessageLifecycleTracer messageLifecycleTracer)
+    {
+        this.config.setMessageLifecycleTracer(messageLifecycleTracer);
+    }
+
+    /**
+     * Makes the client deliver messages in the order they were sent. Messages that were in flight when the connection
+     * dropped, and messages whose send failed, are always sent again ahead of the messages sent after them. Up to
+     * {@code orderedDeliveryWindow} messages are sent without waiting for their acknowledgement, and newer messages are
+     * held back while a failed message waits to be retried, so a failure can only reorder the messages that were
+     * already in flight with it. Must be set before the client is opened.
+     * @param orderedDeliveryWindow the maximum number of messages sent but not acknowledged yet, or 0 to keep the
+     *                              default unordered delivery
+     * @throws IllegalArgumentException if orderedDeliveryWindow is negative
+     */
+    public void setOrderedDeliveryWindow(int orderedDeliveryWindow)
+    {
+        this.config.setOrderedDeliveryWindow(orderedDeliveryWindow);
+    }
+
+    /**
+     * Sets the controller that admits the reconnection attempts of this client once the retry policy delay has
+     * elapsed. Give the same controller, such as a {@link com.microsoft.azure.sdk.iot.device.transport.TokenBucketReconnectionAdmissionController},
+     * to all the clients of the application so that they do not all reconnect at once after a network or service
+     * outage disconnected them together.
+     * @param reconnectionAdmissionController the controller to use, or null to reconnect as soon as the retry policy allows
+     */
+    public void setReconnectionAdmissionController(ReconnectionAdmissionController reconnectionAdmissionController)
+    {
+        this.config.setReconnectionAdmissionController(reconnectionAdmissionController);
+    }
+
+    /**
+     * Persists the MQTT session of this client. The IoT Hub already keeps the subscriptions and the undelivered
+     * cloud to device messages of the device across connections. With a persistent session, the messages in flight
+     * on the connection are also kept, in files under the given directory, so that they are delivered after the client
+     * reconnects or restarts, and topics subscribed to in a session that the hub still holds are not subscribed to
+     * again, so a reconnection only takes a CONNECT and its CONNACK. Telemetry messages in flight may be delivered twice.
+     * Only used with the MQTT and MQTT_WS protocols. Must be set before the client is opened.
+     * @param mqttPersistentSessionDirectory the directory to store the session in, or null to keep it in memory
+     * @throws IllegalArgumentException if mqttPersistentSessionDirectory is empty
+     */
+    public void setMqttPersistentSessionDirectory(String mqttPersistentSessionDirectory)
+    {
+        this.config.setMqttPersistentSessionDirectory(mqttPersistentSessionDirectory);
+    }
+
+    /**
+     * Sets how many cloud to device messages, twin responses and method requests each AMQP receiver link of this
+     * client accepts before the earlier ones are acknowledged. The service is given more credit as the received
+     * messages are acknowledged, so a slow message callback holds the service back instead of letting the messages
+     * pile up in the client. Only used with the AMQPS and AMQPS_WS protocols. Must be set before the client is opened.
+     * @param amqpReceiverPrefetch the number of messages received but not acknowledged yet, at least 1. Defaults to 1024.
+     * @throws IllegalArgumentException if amqpReceiverPrefetch is less than 1
+     */
+    public void setAmqpReceiverPrefetch(int amqpReceiverPrefetch)
+    {
+        this.config.setAmqpReceiverPrefetch(amqpReceiverPrefetch);
+    }
+
+    /**
+     * Sets the executor running the method callback of this client. By default the callback runs on the thread
+     * receiving the messages from the IoT Hub, so a slow method holds back every other method invocation, cloud to
+     * device message and twin update. With an executor, each invocation is handed to the executor as it is received,
+     * methods run in parallel and each response is sent as soon as its callback returns. The callback must then be
+     * thread safe. Must be set before subscribing to methods.
+     * @param deviceMethodExecutor the executor running the method callbacks, or null to run them on the receiving thread
+     */
+    public void setDeviceMethodExecutor(ExecutorService deviceMethodExecutor)
+    {
+        this.config.setDeviceMethodExecutor(deviceMethodExecutor);
+    }
+
+    /**
+     * Limits the invocations of a method run by the method executor. An invocation received while
+     * {@code maxConcurrentInvocations} invocations of the method are running is answered right away with a 429 status.
+     * An invocation whose callback does not return within {@code timeoutMillis} is answered with a 504 status, and
+     * the response of the callback is dropped when it returns. Only used with a method executor, see
+     * {@link #setDeviceMethodExecutor(ExecutorService)}. Must be set before subscribing to methods.
+     * @param methodName the name of the method. Cannot be {@code null} or empty.
+     * @param maxConcurrentInvocations the number of invocations of the method running at a time, or 0 for no limit
+     * @param timeoutMillis the time an invocation has to complete, or 0 for no timeout
+     * @throws IllegalArgumentException if the method name is null or empty, or a limit is negative
+     */
+    public void setDeviceMethodLimit(String methodName, int maxConcurrentInvocations, long timeoutMillis)
+    {
+        this.config.setDeviceMethodLimit(methodName, maxConcurrentInvocations, timeoutMillis);
+    }
+
     /**
      * Set the length of time, in milliseconds, that any given operation will expire in. These operations include
      * reconnecting upon a connection drop and sending a message.
@@ -623,6 +792,11 @@ public class InternalClient
         if (this.method == null)
         {
             this.method = new DeviceMethod(this.deviceIO, this.config, methodStatusCallback, methodStatusCallbackContext);
+            this.method.setInvocationExecutor(this.config.getDeviceMethodExecutor());
+            for (Map.Entry<String, Pair<Integer, Long>> deviceMethodLimit : this.config.getDeviceMethodLimits().entrySet())
+            {
+                this.method.setInvocationLimit(deviceMethodLimit.getKey(), deviceMethodLimit.getValue().getKey(), deviceMethodLimit.getValue().getValue());
+            }
         }
 
         this.method.subscribeToDeviceMethod(methodCallback, methodCallbackContext);
@@ -0,0 +1,108 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of threads shared by every client it is given to. By default each client owns the threads that run its
+ * send and receive loops, its callbacks and its message retry timers. Clients given the same runtime run all of this
+ * work on the threads of the runtime instead, so the number of these threads no longer grows with the number of
+ * clients in the JVM.
+ *
+ * <p>Work is ordered by due time across all clients. A client that has a lot to do can only delay other clients
+ * by one run of its task, because each run sends at most a bounded number of messages. Its next run is then queued
+ * behind the work of the other clients that is already due.</p>
+ *
+ * <p>Connection level threads are not shared. These are the MQTT client threads and the AMQP reactor thread. To
+ * share one AMQP connection between many devices use a {@link TransportClient}.</p>
+ *
+ * <p>The runtime must outlive the clients that use it. Close it once all of them are closed.</p>
+ */
+@Slf4j
+public final class IotHubClientRuntime implements Closeable
+{
+    private static final String THREAD_NAME_PREFIX = "azure-iot-sdk-IotHubClientRuntime-";
+    private static final AtomicInteger RUNTIME_COUNT = new AtomicInteger();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final int threadCount;
+
+    /**
+     * Constructor for a runtime with one thread per available processor
+     */
+    public IotHubClientRuntime()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor
+     * @param threadCount the number of threads shared by the clients using this runtime
+     * @throws IllegalArgumentException if threadCount is smaller than 1
+     */
+    public IotHubClientRuntime(int threadCount) throws IllegalArgumentException
+    {
+        if (threadCount < 1)
+        {
+            throw new IllegalArgumentException("threadCount must be at least 1");
+        }
+
+        final String threadNamePrefix = THREAD_NAME_PREFIX + RUNTIME_COUNT.incrementAndGet() + "-";
+        this.threadCount = threadCount;
+        this.scheduler = new ScheduledThreadPoolExecutor(threadCount, new ThreadFactory()
+        {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                return new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+            }
+        });
+
+        // Clients cancel their periodic tasks when they close, do not keep these in the queue until they are due
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @return the number of threads shared by the clients using this runtime
+     */
+    public int getThreadCount()
+    {
+        return this.threadCount;
+    }
+
+    /**
+     * @return true if this runtime was closed
+     */
+    public boolean isClosed()
+    {
+        return this.scheduler.isShutdown();
+    }
+
+    /**
+     * Stops the threads of this runtime. Work already scheduled by clients that are still open is dropped.
+     */
+    @Override
+    public void close()
+    {
+        log.debug("Closing the client runtime");
+        this.scheduler.shutdownNow();
+    }
+
+    /**
+     * @return the scheduler shared by the clients using this runtime. Clients must not shut it down
+     */
+    ScheduledExecutorService getScheduler()
+    {
+        return this.scheduler;
+    }
+}
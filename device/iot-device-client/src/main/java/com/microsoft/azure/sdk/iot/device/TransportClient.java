@@ -1,5 +1,9 @@
 package com.microsoft.azure.sdk.iot.device;
 
+import com.microsoft.azure.sdk.iot.device.transport.AdaptiveTaskScheduler;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubClientMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.MessageLifecycleTracer;
+import com.microsoft.azure.sdk.iot.device.transport.ReconnectionAdmissionController;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
 import lombok.extern.slf4j.Slf4j;
 
@@ -32,6 +36,11 @@ public class TransportClient
     private DeviceIO deviceIO;
     private TransportClientState transportClientState;
 
+    private boolean isAdaptive = false;
+    private long minAdaptivePeriodInMilliseconds;
+    private long maxAdaptivePeriodInMilliseconds;
+    private IotHubClientRuntime runtime;
+
     private ArrayList<DeviceClient> deviceClientList;
 
     /**
@@ -93,6 +102,16 @@ public class TransportClient
             this.deviceIO = new DeviceIO(deviceClientList.get(0).getConfig(), SEND_PERIOD_MILLIS, RECEIVE_PERIOD_MILLIS_AMQPS);
             deviceClientList.get(0).setDeviceIO(this.deviceIO);
 
+            if (this.runtime != null)
+            {
+                this.deviceIO.setRuntime(this.runtime);
+            }
+
+            if (this.isAdaptive)
+            {
+                this.deviceIO.setAdaptivePeriods(this.minAdaptivePeriodInMilliseconds, this.maxAdaptivePeriodInMilliseconds);
+            }
+
             // Codes_SRS_TRANSPORTCLIENT_12_012: [The function shall set the created DeviceIO to all registered device client.]
             for (int i = 1; i < this.deviceClientList.size(); i++)
             {
@@ -164,6 +183,50 @@ public class TransportClient
         log.debug("Send interval updated successfully in the transport client");
     }
 
+    /**
+     * Makes the send and receive loops of the multiplexed connection run on adaptive periods instead of fixed ones.
+     * See {@link InternalClient#setAdaptiveSendReceivePeriods(long, long)}.
+     *
+     * @param minPeriodInMilliseconds the period while there is work. May be 0 to drain bursts without waiting
+     * @param maxPeriodInMilliseconds the longest period while idle
+     * @throws IllegalArgumentException if min is negative, max is not positive or max is smaller than min
+     * @throws IllegalStateException if the transport client is already open
+     */
+    public void setAdaptiveSendReceivePeriods(long minPeriodInMilliseconds, long maxPeriodInMilliseconds)
+    {
+        AdaptiveTaskScheduler.validateBounds(minPeriodInMilliseconds, maxPeriodInMilliseconds);
+
+        if (this.transportClientState == TransportClientState.OPENED)
+        {
+            throw new IllegalStateException("TransportClient.setAdaptiveSendReceivePeriods only works when the transport client is closed");
+        }
+
+        this.isAdaptive = true;
+        this.minAdaptivePeriodInMilliseconds = minPeriodInMilliseconds;
+        this.maxAdaptivePeriodInMilliseconds = maxPeriodInMilliseconds;
+
+        log.debug("Adaptive send and receive periods updated successfully in the transport client");
+    }
+
+    /**
+     * Makes the multiplexed connection run its send and receive tasks, callbacks and message retry timers on the
+     * threads of the provided runtime. See {@link IotHubClientRuntime}.
+     *
+     * @param runtime the runtime to share, or null to let the connection create its own threads
+     * @throws IllegalStateException if the transport client is already open
+     */
+    public void setRuntime(IotHubClientRuntime runtime)
+    {
+        if (this.transportClientState == TransportClientState.OPENED)
+        {
+            throw new IllegalStateException("TransportClient.setRuntime only works when the transport client is closed");
+        }
+
+        this.runtime = runtime;
+
+        log.debug("Client runtime updated successfully in the transport client");
+    }
+
     /**
      * Sets the given retry policy on the underlying transport
      * Sets the given retry policy on the underlying transport
@@ -189,6 +252,120 @@ public class TransportClient
         log.debug("Retry policy updated successfully in the transport client");
     }
 
+    /**
+     * Sets the given metrics recorder on all registered device clients. The multiplexed transport reports through the
+     * recorder of the first registered device client.
+     *
+     * @param metrics the metrics recorder to use
+     * @throws UnsupportedOperationException if no device client has been registered yet.
+     */
+    public void setMetrics(IotHubClientMetrics metrics)
+    {
+        if (deviceClientList.size() == 0)
+        {
+            throw new UnsupportedOperationException("TransportClient.setMetrics only works when there is at least one registered device client.");
+        }
+
+        for (int i = 0; i < this.deviceClientList.size(); i++)
+        {
+            deviceClientList.get(i).getConfig().setMetrics(metrics);
+        }
+
+        log.debug("Metrics recorder updated successfully in the transport client");
+    }
+
+    /**
+     * Sets the given message lifecycle tracer on all registered device clients. The multiplexed transport records
+     * into the tracer of the first registered device client.
+     *
+     * @param messageLifecycleTracer the tracer to use, or null to trace nothing
+     * @throws UnsupportedOperationException if no device client has been registered yet.
+     */
+    public void setMessageLifecycleTracer(MessageLifecycleTracer messageLifecycleTracer)
+    {
+        if (deviceClientList.size() == 0)
+        {
+            throw new UnsupportedOperationException("TransportClient.setMessageLifecycleTracer only works when there is at least one registered device client.");
+        }
+
+        for (int i = 0; i < this.deviceClientList.size(); i++)
+        {
+            deviceClientList.get(i).getConfig().setMessageLifecycleTracer(messageLifecycleTracer);
+        }
+
+        log.debug("Message lifecycle tracer updated successfully in the transport client");
+    }
+
+    /**
+     * Sets the given ordered delivery window on all registered device clients. The multiplexed transport keeps the
+     * messages of all its device clients in the order they were sent, using the window of the first registered
+     * device client.
+     *
+     * @param orderedDeliveryWindow the maximum number of messages sent but not acknowledged yet, or 0 to keep the
+     *                              default unordered delivery
+     * @throws UnsupportedOperationException if no device client has been registered yet.
+     * @throws IllegalArgumentException if orderedDeliveryWindow is negative
+     */
+    public void setOrderedDeliveryWindow(int orderedDeliveryWindow)
+    {
+        if (deviceClientList.size() == 0)
+        {
+            throw new UnsupportedOperationException("TransportClient.setOrderedDeliveryWindow only works when there is at least one registered device client.");
+        }
+
+        for (int i = 0; i < this.deviceClientList.size(); i++)
+        {
+            deviceClientList.get(i).getConfig().setOrderedDeliveryWindow(orderedDeliveryWindow);
+        }
+
+        log.debug("Ordered delivery window updated successfully in the transport client");
+    }
+
+    /**
+     * Sets the given AMQP receiver prefetch on all registered device clients. Each device client has its own
+     * receiver links on the multiplexed connection.
+     *
+     * @param amqpReceiverPrefetch the number of messages received but not acknowledged yet, at least 1
+     * @throws UnsupportedOperationException if no device client has been registered yet.
+     * @throws IllegalArgumentException if amqpReceiverPrefetch is less than 1
+     */
+    public void setAmqpReceiverPrefetch(int amqpReceiverPrefetch)
+    {
+        if (deviceClientList.size() == 0)
+        {
+            throw new UnsupportedOperationException("TransportClient.setAmqpReceiverPrefetch only works when there is at least one registered device client.");
+        }
+
+        for (int i = 0; i < this.deviceClientList.size(); i++)
+        {
+            deviceClientList.get(i).getConfig().setAmqpReceiverPrefetch(amqpReceiverPrefetch);
+        }
+
+        log.debug("AMQP receiver prefetch updated successfully in the transport client");
+    }
+
+    /**
+     * Sets the given reconnection admission controller on all registered device clients. The multiplexed transport
+     * reconnects through the controller of the first registered device client.
+     *
+     * @param reconnectionAdmissionController the controller to use, or null to reconnect as soon as the retry policy allows
+     * @throws UnsupportedOperationException if no device client has been registered yet.
+     */
+    public void setReconnectionAdmissionController(ReconnectionAdmissionController reconnectionAdmissionController)
+    {
+        if (deviceClientList.size() == 0)
+        {
+            throw new UnsupportedOperationException("TransportClient.setReconnectionAdmissionController only works when there is at least one registered device client.");
+        }
+
+        for (int i = 0; i < this.deviceClientList.size(); i++)
+        {
+            deviceClientList.get(i).getConfig().setReconnectionAdmissionController(reconnectionAdmissionController);
+        }
+
+        log.debug("Reconnection admission controller updated successfully in the transport client");
+    }
+
     /**
      * Registers the given device into the transport client.
      *
@@ -34,8 +34,15 @@ public class HttpsHsmTrustBundleProvider implements TrustBundleProvider
         // Codes_SRS_TRUSTBUNDLEPROVIDER_34_001: [This function shall create an HttpsHsmClient using the provided provider uri.]
         HttpsHsmClient httpsHsmClient = new HttpsHsmClient(providerUri);
 
-        // Codes_SRS_TRUSTBUNDLEPROVIDER_34_002: [This function shall invoke getTrustBundle on the HttpsHsmClient and return the resulting certificates.]
-        TrustBundleResponse response = httpsHsmClient.getTrustBundle(apiVersion);
-        return response.getCertificates();
+        try
+        {
+            // Codes_SRS_TRUSTBUNDLEPROVIDER_34_002: [This function shall invoke getTrustBundle on the HttpsHsmClient and return the resulting certificates.]
+            TrustBundleResponse response = httpsHsmClient.getTrustBundle(apiVersion);
+            return response.getCertificates();
+        }
+        finally
+        {
+            httpsHsmClient.close();
+        }
     }
 }
@@ -23,6 +23,7 @@ import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Provide means to  asynchronous upload file in the Azure Storage using the IoTHub.
@@ -67,7 +68,8 @@ public final class FileUploadTask implements Runnable
     private String correlationId;
     private URI blobURI;
 
-    private static final ObjectLock FILE_UPLOAD_LOCK = new ObjectLock();
+    // serializes the requests of all the file upload tasks to the IoT Hub
+    private static final ReentrantLock FILE_UPLOAD_LOCK = new ReentrantLock();
 
     private static final String THREAD_NAME = "azure-iot-sdk-FileUploadTask";
 
@@ -216,7 +218,8 @@ public final class FileUploadTask implements Runnable
         message.setIotHubMethod(IotHubMethod.POST);
 
         ResponseMessage responseMessage;
-        synchronized (FILE_UPLOAD_LOCK)
+        FILE_UPLOAD_LOCK.lock();
+        try
         {
             /* Codes_SRS_FILEUPLOADTASK_21_010: [The run shall open the connection with the iothub, using the httpsTransportManager.] */
             httpsTransportManager.open();
@@ -225,6 +228,10 @@ public final class FileUploadTask implements Runnable
             /* Codes_SRS_FILEUPLOADTASK_21_012: [The run shall close the connection with the iothub, using the httpsTransportManager.] */
             httpsTransportManager.close();
         }
+        finally
+        {
+            FILE_UPLOAD_LOCK.unlock();
+        }
 
         IotHubStatusCode resultStatus = responseMessage.getStatus();
 
@@ -253,7 +260,8 @@ public final class FileUploadTask implements Runnable
             message.setIotHubMethod(IotHubMethod.POST);
 
             ResponseMessage responseMessage;
-            synchronized (FILE_UPLOAD_LOCK)
+            FILE_UPLOAD_LOCK.lock();
+            try
             {
             /* Codes_SRS_FILEUPLOADTASK_21_026: [The run shall open the connection with the iothub, using the httpsTransportManager.] */
                 httpsTransportManager.open();
@@ -262,6 +270,10 @@ public final class FileUploadTask implements Runnable
             /* Codes_SRS_FILEUPLOADTASK_21_028: [The run shall close the connection with the iothub, using the httpsTransportManager.] */
                 httpsTransportManager.close();
             }
+            finally
+            {
+                FILE_UPLOAD_LOCK.unlock();
+            }
 
             responseStatus = responseMessage.getStatus();
         }
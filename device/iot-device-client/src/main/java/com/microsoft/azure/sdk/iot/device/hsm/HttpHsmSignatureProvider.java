@@ -13,16 +13,20 @@ import com.microsoft.azure.sdk.iot.device.hsm.parser.SignResponse;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.crypto.Mac;
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides a means to sign data for authentication purposes
  */
 @Slf4j
-public class HttpHsmSignatureProvider implements SignatureProvider
+public class HttpHsmSignatureProvider implements SignatureProvider, Closeable
 {
     private static final String ENCODING_CHARSET = "UTF-8";
     private static final String MAC = "HmacSHA256";
@@ -32,6 +36,31 @@ public class HttpHsmSignatureProvider implements SignatureProvider
     private String apiVersion;
     private HttpsHsmClient httpClient;
 
+    // Signing is deterministic, so identical requests made close together, such as a token renewal retried after a
+    // failed connection attempt, are answered from this cache instead of another round trip to the HSM
+    private static final int SIGNATURE_CACHE_CAPACITY = 64;
+    private static final long SIGNATURE_CACHE_TIME_TO_LIVE_NANOSECONDS = TimeUnit.SECONDS.toNanos(30);
+    private final Map<String, CachedSignature> signatureCache = new LinkedHashMap<String, CachedSignature>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedSignature> eldest)
+        {
+            return size() > SIGNATURE_CACHE_CAPACITY;
+        }
+    };
+
+    private static final class CachedSignature
+    {
+        private final String signature;
+        private final long expiryNanoTime;
+
+        private CachedSignature(String signature, long expiryNanoTime)
+        {
+            this.signature = signature;
+            this.expiryNanoTime = expiryNanoTime;
+        }
+    }
+
     /**
      * Constructor for an HttpHsmSignatureProvider but using the non-default api version
      * @param providerUri the uri for the signing provider
@@ -80,6 +109,14 @@ public class HttpHsmSignatureProvider implements SignatureProvider
             throw new IllegalArgumentException("Data cannot be null or empty");
         }
 
+        String cacheKey = keyName + '\n' + generationId + '\n' + data;
+        String cachedSignature = this.getCachedSignature(cacheKey);
+        if (cachedSignature != null)
+        {
+            log.trace("Using cached signature from the HSM");
+            return cachedSignature;
+        }
+
         // Codes_SRS_HTTPHSMSIGNATUREPROVIDER_34_006: [This function shall create a signRequest for the hsm http client to sign, and shall return the utf-8 encoded result of that signing.]
         SignRequest signRequest = new SignRequest();
         signRequest.setAlgo(defaultSignRequestAlgo);
@@ -88,6 +125,41 @@ public class HttpHsmSignatureProvider implements SignatureProvider
 
         SignResponse response = this.httpClient.sign(this.apiVersion, keyName, signRequest, generationId);
 
-        return URLEncoder.encode(response.getDigest(), ENCODING_CHARSET);
+        String signature = URLEncoder.encode(response.getDigest(), ENCODING_CHARSET);
+        synchronized (this.signatureCache)
+        {
+            this.signatureCache.put(cacheKey, new CachedSignature(signature, System.nanoTime() + SIGNATURE_CACHE_TIME_TO_LIVE_NANOSECONDS));
+        }
+
+        return signature;
+    }
+
+    private String getCachedSignature(String cacheKey)
+    {
+        synchronized (this.signatureCache)
+        {
+            CachedSignature cachedSignature = this.signatureCache.get(cacheKey);
+            if (cachedSignature == null)
+            {
+                return null;
+            }
+
+            if (System.nanoTime() - cachedSignature.expiryNanoTime >= 0)
+            {
+                this.signatureCache.remove(cacheKey);
+                return null;
+            }
+
+            return cachedSignature.signature;
+        }
+    }
+
+    /**
+     * Close the connections kept alive to the HSM
+     */
+    @Override
+    public void close()
+    {
+        this.httpClient.close();
     }
 }
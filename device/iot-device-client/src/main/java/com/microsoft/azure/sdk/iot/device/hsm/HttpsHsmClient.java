@@ -13,23 +13,19 @@ import com.microsoft.azure.sdk.iot.device.hsm.parser.TrustBundleResponse;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsMethod;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsRequest;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
-import jnr.unixsocket.UnixSocketAddress;
-import jnr.unixsocket.UnixSocketChannel;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.StringReader;
 import java.net.*;
-import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 
 @Slf4j
-public class HttpsHsmClient
+public class HttpsHsmClient implements Closeable
 {
     private String baseUrl;
     private String scheme;
+    private UnixSocketHttpClient unixSocketHttpClient;
 
     private static final String HTTPS_SCHEME = "https";
     private static final String HTTP_SCHEME = "http";
@@ -220,7 +216,8 @@ public class HttpsHsmClient
     }
 
     /**
-     * Send an HTTP request over a unix domain socket
+     * Send an HTTP request over a unix domain socket. Connections to the socket are kept alive and reused by later
+     * requests made through this client.
      * @param httpsRequest the request to send
      * @return the response from the HSM unit
      * @throws IOException If the unix socket cannot be reached
@@ -229,75 +226,45 @@ public class HttpsHsmClient
     {
         log.debug("Sending data over unix socket...");
 
-        UnixSocketChannel channel = null;
-        HttpsResponse response = null;
-        try
+        byte[] requestBytes = HttpsRequestResponseSerializer.serializeRequest(httpsRequest, httpRequestPath, httpRequestQueryString, unixSocketAddress, true);
+        if (httpsRequest.getBody() != null)
         {
-            //write to socket
-            byte[] requestBytes = HttpsRequestResponseSerializer.serializeRequest(httpsRequest, httpRequestPath, httpRequestQueryString, unixSocketAddress);
-            UnixSocketAddress address = new UnixSocketAddress(unixSocketAddress);
-            channel = UnixSocketChannel.open(address);
-
-            if (httpsRequest.getBody() != null)
-            {
-                //append http request body to the request bytes
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream( );
-                outputStream.write(requestBytes);
-                outputStream.write(httpsRequest.getBody());
+            //append http request body to the request bytes
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            outputStream.write(requestBytes);
+            outputStream.write(httpsRequest.getBody());
+            requestBytes = outputStream.toByteArray();
+        }
 
-                channel.write(ByteBuffer.wrap(outputStream.toByteArray()));
-            }
-            else
-            {
-                channel.write(ByteBuffer.wrap(requestBytes));
-            }
+        return this.getUnixSocketHttpClient(unixSocketAddress).send(requestBytes);
+    }
 
-            //read response
-            String responseString = readResponseFromChannel(channel);
-            response = HttpsRequestResponseSerializer.deserializeResponse(new BufferedReader(new StringReader(responseString)));
-        }
-        finally
+    /**
+     * Close the connections kept alive to the unix socket of the HSM. A later request opens a new connection.
+     */
+    @Override
+    public void close()
+    {
+        UnixSocketHttpClient unixSocketHttpClient;
+        synchronized (this)
         {
-            if (channel != null)
-            {
-                log.trace("Closing unix socket channel...");
-                channel.close();
-            }
+            unixSocketHttpClient = this.unixSocketHttpClient;
+            this.unixSocketHttpClient = null;
         }
 
-        return response;
+        if (unixSocketHttpClient != null)
+        {
+            unixSocketHttpClient.close();
+        }
     }
 
-    private String readResponseFromChannel(UnixSocketChannel channel) throws IOException
+    private synchronized UnixSocketHttpClient getUnixSocketHttpClient(String unixSocketAddress)
     {
-        log.debug("Reading response from unix socket channel...");
-
-        ByteBuffer buf = ByteBuffer.allocateDirect(10);
-        String response = "";
-        int numRead = 0;
-        while (numRead >= 0)
+        if (this.unixSocketHttpClient == null)
         {
-            // read() places read bytes at the buffer's position so the
-            // position should always be properly set before calling read()
-            // This method sets the position to 0
-            buf.rewind();
-
-            // Read bytes from the channel
-            numRead = channel.read(buf);
-
-            // The read() method also moves the position so in order to
-            // read the new bytes, the buffer's position must be
-            // set back to 0
-            buf.rewind();
-
-            // Read bytes from ByteBuffer; see also
-            // e159 Getting Bytes from a ByteBuffer
-            for (int i=0; i<numRead; i++)
-            {
-                response = response + new String(new byte[] {buf.get()}, StandardCharsets.US_ASCII);
-            }
+            this.unixSocketHttpClient = new UnixSocketHttpClient(unixSocketAddress);
         }
 
-        return response;
+        return this.unixSocketHttpClient;
     }
 }
@@ -9,7 +9,10 @@ import com.microsoft.azure.sdk.iot.device.transport.https.HttpsRequest;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
@@ -25,6 +28,14 @@ public class HttpsRequestResponseSerializer
     private static final String VERSION = "1.1";
 
     private static final long MAXIMUM_HEADER_COUNT = 500;
+    private static final int MAXIMUM_LINE_LENGTH = 8 * 1024;
+    private static final int MAXIMUM_BODY_LENGTH = 16 * 1024 * 1024;
+
+    private static final String CONNECTION_HEADER = "connection";
+    private static final String CONTENT_LENGTH_HEADER = "content-length";
+    private static final String TRANSFER_ENCODING_HEADER = "transfer-encoding";
+    private static final String CLOSE = "close";
+    private static final String CHUNKED = "chunked";
 
     /**
      * Serialize the provided request
@@ -37,6 +48,22 @@ public class HttpsRequestResponseSerializer
      * @throws IllegalArgumentException if the provided httpsRequest is null or has a null request url
      */
     public static byte[] serializeRequest(HttpsRequest httpsRequest, String path, String queryString, String host) throws IllegalArgumentException
+    {
+        return serializeRequest(httpsRequest, path, queryString, host, false);
+    }
+
+    /**
+     * Serialize the provided request
+     *
+     * @param httpsRequest the request to be serialized
+     * @param path the path for the request to invoke on (e.g. /trust-bundle)
+     * @param queryString the full querystring associated with the http request. Should not include the '?' character at the beginning
+     * @param host the host that the request is being made to
+     * @param keepAlive true to ask the server to keep the connection open after its response
+     * @return the serialized request
+     * @throws IllegalArgumentException if the provided httpsRequest is null or has a null request url
+     */
+    public static byte[] serializeRequest(HttpsRequest httpsRequest, String path, String queryString, String host, boolean keepAlive) throws IllegalArgumentException
     {
         if (httpsRequest == null)
         {
@@ -62,7 +89,7 @@ public class HttpsRequestResponseSerializer
         // <header>: <value1>; <value2>
         // .]
 
-        httpsRequest.setHeaderField("Connection", "close");
+        httpsRequest.setHeaderField("Connection", keepAlive ? "keep-alive" : CLOSE);
 
         String updatedPath = preProcessRequestPath(path);
 
@@ -168,6 +195,245 @@ public class HttpsRequestResponseSerializer
         return new HttpsResponse(statusCode, body, headerFields, errorReason);
     }
 
+    /**
+     * Deserialize an HTTP response from a stream. Unlike {@link #deserializeResponse(BufferedReader)} this reads
+     * exactly one response: the body is delimited by its Content-Length or chunked transfer encoding, so the stream
+     * can be left open for the next response on the same connection. A body without either is read until the end of
+     * the stream.
+     * @param inputStream the stream to read from. Is not closed by this method
+     * @return the deserialized response
+     * @throws IOException if the stream cannot be read from, or if it does not hold a valid response
+     */
+    public static HttpsResponse readResponse(InputStream inputStream) throws IOException
+    {
+        if (inputStream == null)
+        {
+            throw new IllegalArgumentException("input stream cannot be null");
+        }
+
+        String statusLine = readLine(inputStream);
+        if (statusLine == null || statusLine.isEmpty())
+        {
+            throw new IOException("Response is empty.");
+        }
+
+        // the reason phrase may contain spaces or be empty
+        String[] statusLineParts = statusLine.split(SP, 3);
+        if (statusLineParts.length < 2 || statusLineParts[0].split(ProtocolVersionSeparator).length != 2)
+        {
+            throw new IOException("Status line is not valid.");
+        }
+
+        int statusCode;
+        try
+        {
+            statusCode = Integer.parseInt(statusLineParts[1]);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("StatusCode is not valid " + statusLineParts[1] + ".");
+        }
+
+        Map<String, List<String>> headerFields = new HashMap<>();
+        String contentLength = null;
+        boolean isChunked = false;
+        int headerCount = 0;
+        String header = readLine(inputStream);
+        while (header != null && !header.isEmpty())
+        {
+            if (++headerCount > MAXIMUM_HEADER_COUNT)
+            {
+                throw new IOException("HSM provided too many http headers");
+            }
+
+            int headerSeparatorPosition = header.indexOf(HeaderSeparator);
+            if (headerSeparatorPosition <= 0)
+            {
+                throw new IOException("Header is invalid " + header + ".");
+            }
+
+            String headerName = header.substring(0, headerSeparatorPosition);
+            String headerValue = header.substring(headerSeparatorPosition + 1);
+            if (headerName.equalsIgnoreCase(CONTENT_LENGTH_HEADER))
+            {
+                contentLength = headerValue.trim();
+            }
+            else if (headerName.equalsIgnoreCase(TRANSFER_ENCODING_HEADER))
+            {
+                isChunked = headerValue.trim().toLowerCase(Locale.US).endsWith(CHUNKED);
+            }
+
+            List<String> headerValues = new ArrayList<>();
+            headerValues.add(headerValue);
+            headerFields.put(headerName, headerValues);
+            header = readLine(inputStream);
+        }
+
+        if (header == null)
+        {
+            throw new EOFException("Response ended before the end of its headers.");
+        }
+
+        byte[] body;
+        if (isChunked)
+        {
+            body = readChunkedBody(inputStream);
+        }
+        else if (contentLength != null)
+        {
+            body = readFully(inputStream, parseLength(contentLength, 10));
+        }
+        else
+        {
+            body = readToEnd(inputStream);
+        }
+
+        byte[] errorReason = statusLineParts.length > 2 ? statusLineParts[2].getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        return new HttpsResponse(statusCode, body, headerFields, errorReason);
+    }
+
+    /**
+     * @param response a response read by {@link #readResponse(InputStream)}
+     * @return true if the connection the response was read from can carry another request
+     */
+    public static boolean isConnectionReusable(HttpsResponse response)
+    {
+        Map<String, String> headerFields = response.getHeaderFields();
+        String connection = headerFields.get(CONNECTION_HEADER);
+        if (connection != null && connection.trim().equalsIgnoreCase(CLOSE))
+        {
+            return false;
+        }
+
+        // without either header the body was delimited by the server closing the connection
+        return headerFields.containsKey(CONTENT_LENGTH_HEADER) || headerFields.containsKey(TRANSFER_ENCODING_HEADER);
+    }
+
+    private static String readLine(InputStream inputStream) throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        int next = inputStream.read();
+        if (next < 0)
+        {
+            return null;
+        }
+
+        while (next >= 0 && next != '\n')
+        {
+            if (line.length() >= MAXIMUM_LINE_LENGTH)
+            {
+                throw new IOException("HSM provided a line longer than " + MAXIMUM_LINE_LENGTH + " characters");
+            }
+
+            line.append((char) next);
+            next = inputStream.read();
+        }
+
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r')
+        {
+            line.setLength(length - 1);
+        }
+
+        return line.toString();
+    }
+
+    private static byte[] readChunkedBody(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (true)
+        {
+            String chunkHeader = readLine(inputStream);
+            if (chunkHeader == null)
+            {
+                throw new EOFException("Response ended before its last chunk.");
+            }
+
+            // chunk extensions follow a ';'
+            int extensionPosition = chunkHeader.indexOf(';');
+            String chunkSize = extensionPosition >= 0 ? chunkHeader.substring(0, extensionPosition) : chunkHeader;
+            int length = parseLength(chunkSize.trim(), 16);
+            if (length == 0)
+            {
+                // skip the trailers up to the empty line that ends the message
+                String trailer = readLine(inputStream);
+                while (trailer != null && !trailer.isEmpty())
+                {
+                    trailer = readLine(inputStream);
+                }
+
+                return body.toByteArray();
+            }
+
+            if (body.size() + length > MAXIMUM_BODY_LENGTH)
+            {
+                throw new IOException("HSM provided a body larger than " + MAXIMUM_BODY_LENGTH + " bytes");
+            }
+
+            body.write(readFully(inputStream, length));
+
+            // each chunk ends with CRLF
+            readLine(inputStream);
+        }
+    }
+
+    private static int parseLength(String length, int radix) throws IOException
+    {
+        int parsed;
+        try
+        {
+            parsed = Integer.parseInt(length, radix);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("Body length is not valid " + length + ".");
+        }
+
+        if (parsed < 0 || parsed > MAXIMUM_BODY_LENGTH)
+        {
+            throw new IOException("Body length is not valid " + length + ".");
+        }
+
+        return parsed;
+    }
+
+    private static byte[] readFully(InputStream inputStream, int length) throws IOException
+    {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length)
+        {
+            int read = inputStream.read(bytes, offset, length - offset);
+            if (read < 0)
+            {
+                throw new EOFException("Response ended before the end of its body.");
+            }
+
+            offset += read;
+        }
+
+        return bytes;
+    }
+
+    private static byte[] readToEnd(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read = inputStream.read(buffer);
+        while (read >= 0)
+        {
+            if (body.size() + read > MAXIMUM_BODY_LENGTH)
+            {
+                throw new IOException("HSM provided a body larger than " + MAXIMUM_BODY_LENGTH + " bytes");
+            }
+
+            body.write(buffer, 0, read);
+            read = inputStream.read(buffer);
+        }
+
+        return body.toByteArray();
+    }
+
     private static String preProcessRequestPath(String path)
     {
         String dnsSafePath = path.replace("[", "").replace("]", "");
@@ -218,14 +484,14 @@ public class HttpsRequestResponseSerializer
 
     private static byte[] readBody(BufferedReader bufferedReader) throws IOException
     {
-        String bodyString = "";
+        StringBuilder bodyString = new StringBuilder();
         String next = bufferedReader.readLine();
         while (next != null && !next.isEmpty())
         {
-            bodyString = bodyString + next;
+            bodyString.append(next);
             next = bufferedReader.readLine();
         }
 
-        return bodyString.getBytes();
+        return bodyString.toString().getBytes();
     }
 }
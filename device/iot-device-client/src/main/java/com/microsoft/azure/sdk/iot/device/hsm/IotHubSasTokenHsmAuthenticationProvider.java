@@ -10,6 +10,7 @@ import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenWithRefreshAuthenti
 import com.microsoft.azure.sdk.iot.device.auth.SignatureProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
@@ -17,7 +18,7 @@ import java.net.URISyntaxException;
 /**
  * Authentication method that uses HSM to get a SAS token.
  */
-public class IotHubSasTokenHsmAuthenticationProvider extends IotHubSasTokenWithRefreshAuthenticationProvider
+public class IotHubSasTokenHsmAuthenticationProvider extends IotHubSasTokenWithRefreshAuthenticationProvider implements Closeable
 {
     SignatureProvider signatureProvider;
     String generationId;
@@ -98,4 +99,17 @@ public class IotHubSasTokenHsmAuthenticationProvider extends IotHubSasTokenWithR
         this.signatureProvider = signatureProvider;
         this.generationId = generationId;
     }
+
+    /**
+     * Close the signature provider if it holds connections to the HSM
+     * @throws IOException if the signature provider could not be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (this.signatureProvider instanceof Closeable)
+        {
+            ((Closeable) this.signatureProvider).close();
+        }
+    }
 }
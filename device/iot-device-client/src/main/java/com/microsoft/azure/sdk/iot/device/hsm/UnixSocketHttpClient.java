@@ -0,0 +1,213 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.device.hsm;
+
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Sends HTTP/1.1 requests over a unix domain socket and keeps the connections alive between requests. Idle
+ * connections are kept in a small pool and closed once they have been idle for too long. A request that fails on a
+ * pooled connection, most likely because the server closed it, is sent once more on a new connection.
+ */
+@Slf4j
+public class UnixSocketHttpClient implements Closeable
+{
+    private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 4;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLISECONDS = 30 * 1000;
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    private final String unixSocketAddress;
+    private final int maxIdleConnections;
+    private final long idleTimeoutMilliseconds;
+
+    // most recently used connection first
+    private final Deque<IdleChannel> idleChannels = new ArrayDeque<>();
+    private boolean isClosed = false;
+
+    private static final class IdleChannel
+    {
+        private final UnixSocketChannel channel;
+        private final long idleSinceMilliseconds;
+
+        private IdleChannel(UnixSocketChannel channel, long idleSinceMilliseconds)
+        {
+            this.channel = channel;
+            this.idleSinceMilliseconds = idleSinceMilliseconds;
+        }
+    }
+
+    /**
+     * Constructor for a client keeping up to 4 idle connections for up to 30 seconds
+     * @param unixSocketAddress the path of the unix domain socket
+     * @throws IllegalArgumentException if the address is null or empty
+     */
+    public UnixSocketHttpClient(String unixSocketAddress) throws IllegalArgumentException
+    {
+        this(unixSocketAddress, DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_IDLE_TIMEOUT_MILLISECONDS);
+    }
+
+    /**
+     * Constructor
+     * @param unixSocketAddress the path of the unix domain socket
+     * @param maxIdleConnections the number of idle connections to keep. 0 closes every connection after its request
+     * @param idleTimeoutMilliseconds how long an idle connection is kept before it is closed
+     * @throws IllegalArgumentException if the address is null or empty, or if a limit is negative
+     */
+    public UnixSocketHttpClient(String unixSocketAddress, int maxIdleConnections, long idleTimeoutMilliseconds) throws IllegalArgumentException
+    {
+        if (unixSocketAddress == null || unixSocketAddress.isEmpty())
+        {
+            throw new IllegalArgumentException("unixSocketAddress cannot be null or empty");
+        }
+
+        if (maxIdleConnections < 0 || idleTimeoutMilliseconds < 0)
+        {
+            throw new IllegalArgumentException("maxIdleConnections and idleTimeoutMilliseconds cannot be negative");
+        }
+
+        this.unixSocketAddress = unixSocketAddress;
+        this.maxIdleConnections = maxIdleConnections;
+        this.idleTimeoutMilliseconds = idleTimeoutMilliseconds;
+    }
+
+    /**
+     * Send a serialized request and read its response
+     * @param request the request line, headers and body of the request
+     * @return the response to the request
+     * @throws IOException if the socket cannot be reached or if the response is not valid
+     */
+    public HttpsResponse send(byte[] request) throws IOException
+    {
+        UnixSocketChannel channel = this.takeIdleChannel();
+        if (channel != null)
+        {
+            try
+            {
+                return this.exchange(channel, request);
+            }
+            catch (IOException e)
+            {
+                log.debug("Request failed on a pooled unix socket connection, retrying on a new connection", e);
+            }
+        }
+
+        log.trace("Opening unix socket channel...");
+        return this.exchange(UnixSocketChannel.open(new UnixSocketAddress(this.unixSocketAddress)), request);
+    }
+
+    /**
+     * @return the number of connections currently kept open for reuse
+     */
+    public synchronized int getIdleConnectionCount()
+    {
+        return this.idleChannels.size();
+    }
+
+    /**
+     * Close all idle connections. Connections in use are closed when their request completes.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this)
+        {
+            this.isClosed = true;
+        }
+
+        this.evictIdleChannels(0);
+    }
+
+    private HttpsResponse exchange(UnixSocketChannel channel, byte[] request) throws IOException
+    {
+        boolean isReusable = false;
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(request);
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+
+            // one buffered stream per response, the server does not send anything past the response to a request
+            HttpsResponse response = HttpsRequestResponseSerializer.readResponse(
+                    new BufferedInputStream(Channels.newInputStream(channel), READ_BUFFER_SIZE));
+            isReusable = HttpsRequestResponseSerializer.isConnectionReusable(response);
+            return response;
+        }
+        finally
+        {
+            if (!isReusable || !this.releaseChannel(channel))
+            {
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    private UnixSocketChannel takeIdleChannel()
+    {
+        this.evictIdleChannels(this.idleTimeoutMilliseconds);
+
+        synchronized (this)
+        {
+            IdleChannel idleChannel = this.idleChannels.pollFirst();
+            return idleChannel == null ? null : idleChannel.channel;
+        }
+    }
+
+    private synchronized boolean releaseChannel(UnixSocketChannel channel)
+    {
+        if (this.isClosed || this.idleChannels.size() >= this.maxIdleConnections)
+        {
+            return false;
+        }
+
+        this.idleChannels.addFirst(new IdleChannel(channel, System.currentTimeMillis()));
+        return true;
+    }
+
+    private void evictIdleChannels(long maxIdleMilliseconds)
+    {
+        Deque<IdleChannel> expiredChannels = new ArrayDeque<>();
+        long now = System.currentTimeMillis();
+        synchronized (this)
+        {
+            // the least recently used connections are at the end
+            while (!this.idleChannels.isEmpty() && now - this.idleChannels.peekLast().idleSinceMilliseconds >= maxIdleMilliseconds)
+            {
+                expiredChannels.add(this.idleChannels.pollLast());
+            }
+        }
+
+        for (IdleChannel expiredChannel : expiredChannels)
+        {
+            closeQuietly(expiredChannel.channel);
+        }
+    }
+
+    private static void closeQuietly(UnixSocketChannel channel)
+    {
+        try
+        {
+            log.trace("Closing unix socket channel...");
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            log.debug("Failed to close unix socket channel", e);
+        }
+    }
+}
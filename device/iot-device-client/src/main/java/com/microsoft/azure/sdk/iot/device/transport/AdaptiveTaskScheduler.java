@@ -0,0 +1,273 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a task repeatedly with a delay that adapts to the amount of work available. While the task leaves work behind
+ * it runs again after the minimum period, every idle run doubles the period up to the maximum, and {@link #wakeUp()}
+ * brings an idle task back to the minimum period right away. Runs of the task never overlap: a wake up that arrives
+ * while the task runs is kept, and the run in progress schedules the next one immediately when it ends.
+ */
+@Slf4j
+public final class AdaptiveTaskScheduler
+{
+    /**
+     * Tells the scheduler whether its task left work behind
+     */
+    public interface Backlog
+    {
+        /**
+         * @return true if there is still work for the task
+         */
+        boolean hasBacklog();
+    }
+
+    private final ScheduledExecutorService executor;
+    private final Runnable task;
+    private final Backlog backlog;
+    private final long minPeriodInMilliseconds;
+    private volatile long maxPeriodInMilliseconds;
+
+    private volatile long currentPeriodInMilliseconds;
+    private volatile boolean isWokenUp;
+
+    // Guarded by this. Cancelling a scheduled run does not stop it if its thread already picked it up, so every
+    // scheduled run carries the generation it was scheduled in, and only the run of the latest generation runs the task
+    private ScheduledFuture<?> nextRun;
+    private long generation;
+    private boolean isRunning;
+    private boolean isWakeUpPending;
+    private boolean isStopped = true;
+
+    /**
+     * Constructor
+     * @param executor the executor the task is scheduled on
+     * @param task the task to run
+     * @param backlog tells if the task left work behind after a run
+     * @param minPeriodInMilliseconds the delay between runs while there is work. May be 0
+     * @param maxPeriodInMilliseconds the longest delay between idle runs
+     * @throws IllegalArgumentException if any argument is null or if the bounds are invalid
+     */
+    public AdaptiveTaskScheduler(ScheduledExecutorService executor, Runnable task, Backlog backlog, long minPeriodInMilliseconds, long maxPeriodInMilliseconds) throws IllegalArgumentException
+    {
+        if (executor == null || task == null || backlog == null)
+        {
+            throw new IllegalArgumentException("executor, task and backlog cannot be null");
+        }
+
+        validateBounds(minPeriodInMilliseconds, maxPeriodInMilliseconds);
+
+        this.executor = executor;
+        this.task = task;
+        this.backlog = backlog;
+        this.minPeriodInMilliseconds = minPeriodInMilliseconds;
+        this.maxPeriodInMilliseconds = maxPeriodInMilliseconds;
+        this.currentPeriodInMilliseconds = minPeriodInMilliseconds;
+    }
+
+    /**
+     * Checks adaptive period bounds
+     * @param minPeriodInMilliseconds the delay between runs while there is work
+     * @param maxPeriodInMilliseconds the longest delay between idle runs
+     * @throws IllegalArgumentException if min is negative, max is not positive or max is smaller than min
+     */
+    public static void validateBounds(long minPeriodInMilliseconds, long maxPeriodInMilliseconds) throws IllegalArgumentException
+    {
+        if (minPeriodInMilliseconds < 0)
+        {
+            throw new IllegalArgumentException("minimum period can not be negative");
+        }
+
+        if (maxPeriodInMilliseconds <= 0 || maxPeriodInMilliseconds < minPeriodInMilliseconds)
+        {
+            throw new IllegalArgumentException("maximum period must be positive and not smaller than the minimum period");
+        }
+    }
+
+    /**
+     * Schedule the first run of the task immediately. If a run of a previous start is still in progress, the next
+     * run is scheduled when it ends.
+     */
+    public synchronized void start()
+    {
+        this.isStopped = false;
+        this.currentPeriodInMilliseconds = this.minPeriodInMilliseconds;
+        if (this.isRunning)
+        {
+            this.isWakeUpPending = true;
+        }
+        else
+        {
+            this.schedule(0);
+        }
+    }
+
+    /**
+     * Cancel the next run of the task. A run in progress completes but does not schedule another one.
+     */
+    public synchronized void stop()
+    {
+        this.isStopped = true;
+        this.generation++;
+        if (this.nextRun != null)
+        {
+            this.nextRun.cancel(false);
+            this.nextRun = null;
+        }
+    }
+
+    /**
+     * Signal that work is available. If the task is waiting for longer than the minimum period it runs immediately,
+     * or right after the run in progress.
+     */
+    public void wakeUp()
+    {
+        this.isWokenUp = true;
+        if (this.currentPeriodInMilliseconds <= this.minPeriodInMilliseconds)
+        {
+            return;
+        }
+
+        synchronized (this)
+        {
+            if (this.isStopped)
+            {
+                return;
+            }
+
+            if (this.isRunning)
+            {
+                // the run in progress schedules the next one without delay when it ends
+                this.isWakeUpPending = true;
+            }
+            else
+            {
+                if (this.nextRun != null)
+                {
+                    this.nextRun.cancel(false);
+                }
+
+                this.currentPeriodInMilliseconds = this.minPeriodInMilliseconds;
+                this.schedule(0);
+            }
+        }
+    }
+
+    /**
+     * Setter for the longest delay between idle runs. A longer delay already scheduled is kept until that run.
+     * @param maxPeriodInMilliseconds the longest delay between idle runs
+     * @throws IllegalArgumentException if max is not positive or smaller than the minimum period
+     */
+    public synchronized void setMaxPeriodInMilliseconds(long maxPeriodInMilliseconds) throws IllegalArgumentException
+    {
+        validateBounds(this.minPeriodInMilliseconds, maxPeriodInMilliseconds);
+        this.maxPeriodInMilliseconds = maxPeriodInMilliseconds;
+    }
+
+    /**
+     * @return the longest delay between idle runs
+     */
+    public long getMaxPeriodInMilliseconds()
+    {
+        return this.maxPeriodInMilliseconds;
+    }
+
+    /**
+     * @return the delay before the next run of the task
+     */
+    public long getCurrentPeriodInMilliseconds()
+    {
+        return this.currentPeriodInMilliseconds;
+    }
+
+    private void run(long runGeneration)
+    {
+        synchronized (this)
+        {
+            // a run cancelled too late, or superseded by a wake up, leaves the task to the latest scheduled run
+            if (this.isStopped || this.isRunning || runGeneration != this.generation)
+            {
+                return;
+            }
+
+            this.isRunning = true;
+        }
+
+        try
+        {
+            this.task.run();
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                this.isRunning = false;
+                if (!this.isStopped)
+                {
+                    this.schedule(this.nextPeriod());
+                }
+            }
+        }
+    }
+
+    private long nextPeriod()
+    {
+        if (this.isWakeUpPending)
+        {
+            this.isWakeUpPending = false;
+            this.isWokenUp = false;
+            this.currentPeriodInMilliseconds = this.minPeriodInMilliseconds;
+            return 0;
+        }
+
+        if (this.backlog.hasBacklog())
+        {
+            this.currentPeriodInMilliseconds = this.minPeriodInMilliseconds;
+        }
+        else
+        {
+            long doubled = this.currentPeriodInMilliseconds == 0 ? 1 : this.currentPeriodInMilliseconds * 2;
+            this.currentPeriodInMilliseconds = Math.max(this.minPeriodInMilliseconds, Math.min(this.maxPeriodInMilliseconds, doubled));
+        }
+
+        // The longer period is published before the flag is read, so a concurrent wakeUp either sets the flag in
+        // time to be seen here, or sees the longer period and replaces the run scheduled below
+        if (this.isWokenUp)
+        {
+            this.isWokenUp = false;
+            this.currentPeriodInMilliseconds = this.minPeriodInMilliseconds;
+        }
+
+        return this.currentPeriodInMilliseconds;
+    }
+
+    private void schedule(long delayInMilliseconds)
+    {
+        final long runGeneration = ++this.generation;
+        try
+        {
+            this.nextRun = this.executor.schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    AdaptiveTaskScheduler.this.run(runGeneration);
+                }
+            }, delayInMilliseconds, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // the executor was shut down while the client was closing
+            log.trace("Adaptive task was not rescheduled because its executor was shut down");
+            this.isStopped = true;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+
+import java.security.SecureRandom;
+
+/**
+ * Represents a retry policy that draws each wait time uniformly between a base wait time and a ceiling that triples
+ * with every retry, up to a maximum. Unlike {@link ExponentialBackoffWithJitter}, whose wait times stay within 20% of
+ * the exponential curve, the wait times of clients that started retrying together spread over the whole range, so
+ * their retries do not arrive at the service together. There is no immediate first retry.
+ *
+ * <p>Retries of operations throttled by the service wait at least the throttled minimum wait time.</p>
+ */
+public class DecorrelatedJitterBackoff implements RetryPolicy
+{
+    private static final double CEILING_GROWTH_FACTOR = 3.0;
+
+    private int retryCount = Integer.MAX_VALUE;
+    private long baseBackoff = 100;
+    private long maxBackoff = 60 * 1000; //60 seconds
+    private long throttledMinBackoff = 5 * 1000; //5 seconds
+
+    private SecureRandom random = new SecureRandom();
+
+    /**
+     * Constructor with default backoff values
+     */
+    public DecorrelatedJitterBackoff()
+    {
+
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param retryCount the max number of retries allowed in the policies.
+     * @param baseBackoff the min interval between each retry, and the ceiling of the first one.
+     * @param maxBackoff the max interval between each retry.
+     * @param throttledMinBackoff the min interval before retrying an operation throttled by the service.
+     * @throws IllegalArgumentException if retryCount is not positive, or the intervals are negative or out of order
+     */
+    public DecorrelatedJitterBackoff(int retryCount, long baseBackoff, long maxBackoff, long throttledMinBackoff)
+    {
+        if (retryCount <= 0)
+        {
+            throw new IllegalArgumentException("retryCount cannot be less than or equal to 0.");
+        }
+
+        if (baseBackoff < 0 || maxBackoff < baseBackoff)
+        {
+            throw new IllegalArgumentException("baseBackoff cannot be negative or greater than maxBackoff.");
+        }
+
+        if (throttledMinBackoff < 0 || throttledMinBackoff > maxBackoff)
+        {
+            throw new IllegalArgumentException("throttledMinBackoff cannot be negative or greater than maxBackoff.");
+        }
+
+        this.retryCount = retryCount;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+        this.throttledMinBackoff = throttledMinBackoff;
+    }
+
+    /**
+     * Determines whether the operation should be retried and the interval until the next retry.
+     *
+     * @param currentRetryCount the number of retries for the given operation
+     * @param lastException the latest exception explaining why the retry is happening
+     * @return the retry decision.
+     */
+    public RetryDecision getRetryDecision(int currentRetryCount, TransportException lastException)
+    {
+        if (currentRetryCount >= this.retryCount)
+        {
+            return new RetryDecision(false, 0);
+        }
+
+        long minWaitTime = this.baseBackoff;
+        if (lastException != null && TransportUtils.isThrottling(lastException))
+        {
+            minWaitTime = Math.max(minWaitTime, this.throttledMinBackoff);
+        }
+
+        // F(x) = rand(Cmin, min(Cbase * 3^x, Cmax)), where x is the xth retry
+        double ceiling = this.baseBackoff * Math.pow(CEILING_GROWTH_FACTOR, Math.max(currentRetryCount, 0));
+        long maxWaitTime = (long) Math.min(ceiling, this.maxBackoff);
+        if (maxWaitTime <= minWaitTime)
+        {
+            return new RetryDecision(true, minWaitTime);
+        }
+
+        long waitTime = minWaitTime + (long) (this.random.nextDouble() * (maxWaitTime - minWaitTime + 1));
+        return new RetryDecision(true, waitTime);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+
+/**
+ * An interface for recording client side transport metrics. Implementations are called from the send, receive and
+ * reconnection threads of the transport, so they must be thread safe and must not block.
+ */
+public interface IotHubClientMetrics
+{
+    /**
+     * Called when a transport is opened. Implementations that expose gauges should sample the provided queue depths
+     * on demand rather than copying them, as the depths change on every send and receive tick.
+     *
+     * @param clientId the device id, or device id and module id, of the client that owns the transport
+     * @param queueDepths the live view of the transport queues
+     */
+    void onTransportOpened(String clientId, IotHubTransportQueueDepths queueDepths);
+
+    /**
+     * Called when a transport is closed. Implementations should release anything bound in {@link #onTransportOpened}.
+     *
+     * @param clientId the device id, or device id and module id, of the client that owns the transport
+     * @param queueDepths the live view of the transport queues
+     */
+    void onTransportClosed(String clientId, IotHubTransportQueueDepths queueDepths);
+
+    /**
+     * Called once per outbound message when its final status is known.
+     *
+     * @param protocol the protocol of the transport
+     * @param status the final status of the message
+     * @param enqueueToAckMillis the time from queueing the message to receiving its final status
+     */
+    void onMessageCompleted(IotHubClientProtocol protocol, IotHubStatusCode status, long enqueueToAckMillis);
+
+    /**
+     * Called every time a failed message is scheduled to be sent again.
+     *
+     * @param protocol the protocol of the transport
+     */
+    void onMessageRetried(IotHubClientProtocol protocol);
+
+    /**
+     * Called when a reconnection effort ends.
+     *
+     * @param protocol the protocol of the transport
+     * @param durationMillis the time from the disconnection to the end of the reconnection effort
+     * @param succeeded true if the connection was re-established, false if the client gave up
+     */
+    void onReconnection(IotHubClientProtocol protocol, long durationMillis, boolean succeeded);
+
+    /**
+     * Called when a message body has been handed to the connection.
+     *
+     * @param protocol the protocol of the transport
+     * @param bytes the size of the message body
+     */
+    void onBytesSent(IotHubClientProtocol protocol, long bytes);
+
+    /**
+     * Called when a message is received from the service.
+     *
+     * @param protocol the protocol of the transport
+     * @param bytes the size of the message body
+     */
+    void onBytesReceived(IotHubClientProtocol protocol, long bytes);
+
+    /**
+     * Called with the remaining credit of an AMQP sender link after each delivery.
+     *
+     * @param clientId the device id, or device id and module id, of the client that owns the link
+     * @param linkType the type of the link, for instance "telemetry", "methods" or "twin"
+     * @param credit the credit left on the link
+     */
+    void onLinkCredit(String clientId, String linkType, int credit);
+}
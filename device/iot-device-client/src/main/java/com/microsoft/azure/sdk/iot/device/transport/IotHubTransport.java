@@ -19,6 +19,8 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
@@ -33,8 +35,10 @@ public class IotHubTransport implements IotHubListener
     private volatile IotHubConnectionStatus connectionStatus;
     private IotHubTransportConnection iotHubTransportConnection;
 
-    /* Messages waiting to be sent to the IoT Hub. */
-    private final Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+    /* Messages waiting to be sent to the IoT Hub, in the order they were added. While messages are delivered in order
+     * the queue is ordered by sequence number instead, so re-queued messages are sent again ahead of the messages
+     * added after them. */
+    private volatile Queue<IotHubTransportPacket> waitingPacketsQueue = new LinkedBlockingQueue<>();
 
     /* Messages which are sent to the IoT Hub but did not receive ack yet. */
     private final Map<String, IotHubTransportPacket> inProgressPackets = new ConcurrentHashMap<>();
@@ -68,6 +72,38 @@ public class IotHubTransport implements IotHubListener
     private ScheduledExecutorService scheduledExecutorService;
     private static final int POOL_SIZE = 1;
 
+    // Set when this transport runs its timers on threads shared with other clients, which it must not shut down
+    private ScheduledExecutorService sharedScheduler;
+
+    private final IotHubTransportQueueDepths queueDepths = new QueueDepths();
+    // Captured from the config when the transport is opened
+    private IotHubClientMetrics metrics = new NoOpIotHubClientMetrics();
+    private IotHubClientProtocol metricsProtocol;
+    // Per message recording is skipped entirely for the default no-op recorder
+    private boolean isRecordingMessageMetrics = false;
+    private MessageLifecycleTracer messageLifecycleTracer;
+
+    // Only set when the send and receive tasks run on adaptive periods
+    private volatile AdaptiveTaskScheduler sendTaskScheduler;
+    private volatile AdaptiveTaskScheduler receiveTaskScheduler;
+
+    private static final Comparator<IotHubTransportPacket> SEQUENCE_NUMBER_ORDER = new Comparator<IotHubTransportPacket>()
+    {
+        @Override
+        public int compare(IotHubTransportPacket packet1, IotHubTransportPacket packet2)
+        {
+            return Long.compare(packet1.getSequenceNumber(), packet2.getSequenceNumber());
+        }
+    };
+
+    private final AtomicLong lastSequenceNumber = new AtomicLong();
+    // Captured from the config when the transport is opened, 0 unless messages are delivered in order
+    private volatile int orderedDeliveryWindow = 0;
+    // Failed packets waiting for their retry delay. Newer packets are held back until they are queued again.
+    private final AtomicInteger scheduledRetryCount = new AtomicInteger();
+    // Retries that have not run yet. A shared scheduler outlives this transport, so close cancels them itself
+    private final Set<MessageRetryRunnable> scheduledRetries = Collections.newSetFromMap(new ConcurrentHashMap<MessageRetryRunnable, Boolean>());
+
     /**
      * Constructor for an IotHubTransport object with default values
      * @param defaultConfig the config used for opening connections, retrieving retry policy, and checking protocol
@@ -111,6 +147,12 @@ public class IotHubTransport implements IotHubListener
             packet = inProgressPackets.remove(message.getMessageId());
         }
 
+        if (this.orderedDeliveryWindow > 0)
+        {
+            // the acknowledgement makes room in the ordered delivery window
+            this.wakeUp(this.sendTaskScheduler);
+        }
+
         if (packet != null)
         {
             if (e == null)
@@ -162,6 +204,8 @@ public class IotHubTransport implements IotHubListener
             // exception, this function shall add that message to the receivedMessagesQueue.]
             log.info("Message was received from IotHub ({})", message);
             this.receivedMessagesQueue.add(message);
+            this.recordBytesReceived(message);
+            this.wakeUp(this.receiveTaskScheduler);
         }
         else
         {
@@ -267,11 +311,18 @@ public class IotHubTransport implements IotHubListener
 
         this.deviceClientConfigs = new LinkedBlockingQueue<>(deviceClientConfigs);
         this.defaultConfig = this.deviceClientConfigs.peek();
-        this.taskScheduler = Executors.newScheduledThreadPool(1);
+        this.taskScheduler = this.sharedScheduler != null ? this.sharedScheduler : Executors.newScheduledThreadPool(1);
 
         //Codes_SRS_IOTHUBTRANSPORT_34_019: [This function shall open the invoke the method openConnection.]
         openConnection();
 
+        this.metrics = this.defaultConfig.getMetrics();
+        this.metricsProtocol = this.defaultConfig.getProtocol();
+        this.isRecordingMessageMetrics = !(this.metrics instanceof NoOpIotHubClientMetrics);
+        this.metrics.onTransportOpened(this.getClientId(), this.queueDepths);
+        this.messageLifecycleTracer = this.defaultConfig.getMessageLifecycleTracer();
+        this.setOrderedDeliveryWindow(this.defaultConfig.getOrderedDeliveryWindow());
+
         log.info("Client connection opened successfully");
     }
 
@@ -294,19 +345,24 @@ public class IotHubTransport implements IotHubListener
             throw new IllegalArgumentException("reason cannot be null");
         }
 
+        this.cancelScheduledRetries();
         this.cancelPendingPackets();
 
         //Codes_SRS_IOTHUBTRANSPORT_34_023: [This function shall invoke all callbacks.]
         this.invokeCallbacks();
 
-        if (this.taskScheduler != null)
+        if (this.taskScheduler != null && this.taskScheduler != this.sharedScheduler)
         {
             this.taskScheduler.shutdown();
         }
 
         if (this.scheduledExecutorService != null)
         {
-            this.scheduledExecutorService.shutdownNow();
+            if (this.scheduledExecutorService != this.sharedScheduler)
+            {
+                this.scheduledExecutorService.shutdownNow();
+            }
+
             this.scheduledExecutorService = null;
         }
 
@@ -320,6 +376,8 @@ public class IotHubTransport implements IotHubListener
         // supplied reason and cause.]
         this.updateStatus(IotHubConnectionStatus.DISCONNECTED, reason, cause);
 
+        this.metrics.onTransportClosed(this.getClientId(), this.queueDepths);
+
         log.info("Client connection closed successfully");
     }
 
@@ -344,10 +402,51 @@ public class IotHubTransport implements IotHubListener
         //Codes_SRS_IOTHUBTRANSPORT_34_042: [This function shall build a transport packet from the provided message,
         // callback, and context and then add that packet to the waiting queue.]
         IotHubTransportPacket packet = new IotHubTransportPacket(message, callback, callbackContext, null, System.currentTimeMillis());
+        packet.setSequenceNumber(this.lastSequenceNumber.incrementAndGet());
         this.waitingPacketsQueue.add(packet);
+        this.traceMessage(message, MessageLifecycleStage.ENQUEUED, null);
+        this.wakeUp(this.sendTaskScheduler);
         log.info("Message was queued to be sent later ({})", message);
     }
 
+    /**
+     * Lets the transport wake up the send and receive tasks when work arrives while they run on adaptive periods
+     * @param sendTaskScheduler the scheduler of the send task, or null if it runs on a fixed period
+     * @param receiveTaskScheduler the scheduler of the receive task, or null if it runs on a fixed period
+     */
+    public void setAdaptiveTaskSchedulers(AdaptiveTaskScheduler sendTaskScheduler, AdaptiveTaskScheduler receiveTaskScheduler)
+    {
+        this.sendTaskScheduler = sendTaskScheduler;
+        this.receiveTaskScheduler = receiveTaskScheduler;
+    }
+
+    /**
+     * Makes this transport schedule its timers on threads shared with other clients instead of creating its own.
+     * Must be called before the transport is opened.
+     * @param sharedScheduler the shared scheduler, or null to create a scheduler per transport
+     */
+    public void setSharedScheduler(ScheduledExecutorService sharedScheduler)
+    {
+        this.sharedScheduler = sharedScheduler;
+    }
+
+    /**
+     * @return true if there are callbacks waiting to be invoked, or messages waiting to be sent while connected
+     */
+    public boolean hasSendBacklog()
+    {
+        return !this.callbackPacketsQueue.isEmpty()
+                || (this.connectionStatus == IotHubConnectionStatus.CONNECTED && !this.waitingPacketsQueue.isEmpty());
+    }
+
+    /**
+     * @return true if there are received messages waiting to be handled
+     */
+    public boolean hasReceiveBacklog()
+    {
+        return !this.receivedMessagesQueue.isEmpty();
+    }
+
     /**
      * Sends all messages on the transport queue. If a previous send attempt had
      * failed, the function will attempt to resend the messages in the previous
@@ -368,11 +467,18 @@ public class IotHubTransport implements IotHubListener
 
         while (this.connectionStatus == IotHubConnectionStatus.CONNECTED && timeSlice-- > 0)
         {
+            if (this.orderedDeliveryWindow > 0 && !this.isOrderedDeliveryWindowOpen())
+            {
+                // the next packet waits for an acknowledgement, or for an older packet to be retried first
+                return;
+            }
+
             IotHubTransportPacket packet = waitingPacketsQueue.poll();
             if (packet != null)
             {
                 Message message = packet.getMessage();
                 log.trace("Dequeued a message from waiting queue to be sent ({})", message);
+                this.traceMessage(message, MessageLifecycleStage.DEQUEUED, null);
 
                 if (message != null && this.isMessageValid(packet))
                 {
@@ -384,6 +490,38 @@ public class IotHubTransport implements IotHubListener
         }
     }
 
+    /**
+     * @return true if fewer packets than the ordered delivery window are in flight and no failed packet waits to be retried
+     */
+    private boolean isOrderedDeliveryWindowOpen()
+    {
+        return this.scheduledRetryCount.get() == 0 && this.inProgressPackets.size() < this.orderedDeliveryWindow;
+    }
+
+    /**
+     * Switches between the default delivery, where the packets are sent without waiting for the retries of the
+     * packets before them and a retried packet is queued again behind the newer ones, and the ordered delivery, where
+     * newer packets are held back while a packet waits for its retry and the waiting queue gives the packets in the
+     * order they were first queued. Called while opening, when no packet is being queued or retried.
+     * @param orderedDeliveryWindow the maximum number of packets in flight while delivering in order, or 0 for the
+     *                              default delivery
+     */
+    private void setOrderedDeliveryWindow(int orderedDeliveryWindow)
+    {
+        boolean isOrdered = orderedDeliveryWindow > 0;
+        if (isOrdered != this.waitingPacketsQueue instanceof PriorityBlockingQueue)
+        {
+            Queue<IotHubTransportPacket> waitingPackets = isOrdered
+                    ? new PriorityBlockingQueue<>(11, SEQUENCE_NUMBER_ORDER)
+                    : new LinkedBlockingQueue<IotHubTransportPacket>();
+            waitingPackets.addAll(this.waitingPacketsQueue);
+            this.waitingPacketsQueue = waitingPackets;
+        }
+
+        this.orderedDeliveryWindow = orderedDeliveryWindow;
+        this.scheduledRetryCount.set(0);
+    }
+
     private void checkForExpiredMessages()
     {
         //Check waiting packets
@@ -446,6 +584,11 @@ public class IotHubTransport implements IotHubListener
             // execute their saved callback with their saved status and context]
             callback.execute(status, context);
 
+            if (this.messageLifecycleTracer != null)
+            {
+                this.traceMessage(packet.getMessage(), MessageLifecycleStage.CALLBACK_INVOKED, null);
+            }
+
             packet = this.callbackPacketsQueue.poll();
         }
     }
@@ -542,6 +685,29 @@ public class IotHubTransport implements IotHubListener
     /**
      * Moves all packets from waiting queue and in progress map into callbacks queue with status MESSAGE_CANCELLED_ONCLOSE
      */
+    private void cancelScheduledRetries()
+    {
+        for (MessageRetryRunnable retry : this.scheduledRetries)
+        {
+            // a retry that already started has removed itself and queued its packet with the waiting packets
+            if (this.scheduledRetries.remove(retry))
+            {
+                if (retry.future != null)
+                {
+                    retry.future.cancel(false);
+                }
+
+                if (this.orderedDeliveryWindow > 0)
+                {
+                    this.scheduledRetryCount.decrementAndGet();
+                }
+
+                retry.transportPacket.setStatus(IotHubStatusCode.MESSAGE_CANCELLED_ONCLOSE);
+                this.addToCallbackQueue(retry.transportPacket);
+            }
+        }
+    }
+
     private void cancelPendingPackets()
     {
         //Codes_SRS_IOTHUBTRANSPORT_34_021: [This function shall move all waiting messages to the callback queue with
@@ -586,7 +752,23 @@ public class IotHubTransport implements IotHubListener
             this.log.debug("Executing callback for received message ({})", receivedMessage);
             //Codes_SRS_IOTHUBTRANSPORT_34_053: [This function shall execute the callback associate with the provided
             // transport message with the provided message and its saved callback context.]
-            IotHubMessageResult result = messageCallback.execute(receivedMessage, messageCallbackContext);
+            IotHubMessageResult result;
+            try
+            {
+                result = messageCallback.execute(receivedMessage, messageCallbackContext);
+            }
+            catch (RuntimeException | Error e)
+            {
+                if (this.iotHubTransportConnection instanceof AmqpsIotHubConnection)
+                {
+                    //an amqp receiver link only gets the credit of a message back once the message is settled, so the
+                    // message is abandoned rather than left unsettled until the connection is closed
+                    this.log.warn("Callback for received cloud to device message threw, abandoning the message ({})", receivedMessage, e);
+                    this.iotHubTransportConnection.sendMessageResult(receivedMessage, IotHubMessageResult.ABANDON);
+                }
+
+                throw e;
+            }
 
             try
             {
@@ -620,6 +802,7 @@ public class IotHubTransport implements IotHubListener
             //Codes_SRS_IOTHUBTRANSPORT_34_056: [If the saved http transport connection can receive a message, add it to receivedMessagesQueue.]
             log.info("Message was received from IotHub ({})", transportMessage);
             this.receivedMessagesQueue.add(transportMessage);
+            this.recordBytesReceived(transportMessage);
         }
     }
 
@@ -673,7 +856,7 @@ public class IotHubTransport implements IotHubListener
      */
     private void openConnection() throws TransportException
     {
-        scheduledExecutorService = Executors.newScheduledThreadPool(POOL_SIZE);
+        scheduledExecutorService = this.sharedScheduler != null ? this.sharedScheduler : Executors.newScheduledThreadPool(POOL_SIZE);
 
         if (this.iotHubTransportConnection == null)
         {
@@ -723,6 +906,7 @@ public class IotHubTransport implements IotHubListener
         {
             //Codes_SRS_IOTHUBTRANSPORT_34_057: [This function shall move all packets from inProgressQueue to waiting queue.]
             this.log.trace("Due to disconnection event, clearing active queues, and re-queueing them to waiting queues to be re-processed later upon reconnection");
+            // while delivering in order, the waiting queue sorts them back ahead of the packets queued after them
             this.waitingPacketsQueue.addAll(inProgressPackets.values());
             inProgressPackets.clear();
         }
@@ -752,6 +936,8 @@ public class IotHubTransport implements IotHubListener
             this.reconnectionAttemptStartTimeMillis = System.currentTimeMillis();
         }
 
+        // the saved start time is reset once the connection is re-established, so keep a copy for the metrics
+        long reconnectionStartTimeMillis = this.reconnectionAttemptStartTimeMillis;
         boolean hasReconnectOperationTimedOut = this.hasOperationTimedOut(this.reconnectionAttemptStartTimeMillis);
         RetryDecision retryDecision = null;
 
@@ -778,11 +964,28 @@ public class IotHubTransport implements IotHubListener
             // they will constantly fail until connection is re-established
             IotHubTransport.sleepUninterruptibly(retryDecision.getDuration(), MILLISECONDS);
 
+            ReconnectionAdmissionController admissionController = this.defaultConfig.getReconnectionAdmissionController();
+            if (admissionController != null)
+            {
+                this.log.trace("Waiting for the admission of the reconnect attempt");
+                IotHubTransport.sleepUninterruptibly(admissionController.reserveAdmission(), MILLISECONDS);
+            }
+
             hasReconnectOperationTimedOut = this.hasOperationTimedOut(this.reconnectionAttemptStartTimeMillis);
 
             transportException = singleReconnectAttempt();
+
+            if (admissionController != null)
+            {
+                admissionController.onReconnectionAttemptCompleted(transportException);
+            }
         }
 
+        this.metrics.onReconnection(
+                this.metricsProtocol,
+                System.currentTimeMillis() - reconnectionStartTimeMillis,
+                this.connectionStatus == IotHubConnectionStatus.CONNECTED);
+
         // reconnection may have failed, so check last retry decision, check for timeout, and check if last exception
         // was terminal
         try
@@ -853,6 +1056,7 @@ public class IotHubTransport implements IotHubListener
     {
         final IotHubTransportPacket transportPacket;
         final Queue<IotHubTransportPacket> waitingPacketsQueue;
+        private volatile ScheduledFuture<?> future;
 
         public MessageRetryRunnable(Queue<IotHubTransportPacket> waitingPacketsQueue, IotHubTransportPacket transportPacket)
         {
@@ -863,7 +1067,20 @@ public class IotHubTransport implements IotHubListener
         @Override
         public void run()
         {
+            if (!scheduledRetries.remove(this))
+            {
+                // the transport was closed and already cancelled the packet
+                return;
+            }
+
+            // while delivering in order, the waiting queue puts the packet back ahead of the packets queued after it
             this.waitingPacketsQueue.add(this.transportPacket);
+            if (orderedDeliveryWindow > 0)
+            {
+                scheduledRetryCount.decrementAndGet();
+            }
+
+            wakeUp(sendTaskScheduler);
         }
     }
 
@@ -888,7 +1105,15 @@ public class IotHubTransport implements IotHubListener
                     //Codes_SRS_IOTHUBTRANSPORT_34_063: [If the provided transportException is retryable, the packet has not
                     // timed out, and the retry policy allows, this function shall schedule a task to add the provided
                     // packet to the waiting list after the amount of time determined by the retry policy.]
-                    this.taskScheduler.schedule(new MessageRetryRunnable(this.waitingPacketsQueue, packet), (long) retryDecision.getDuration(), MILLISECONDS);
+                    if (this.orderedDeliveryWindow > 0)
+                    {
+                        this.scheduledRetryCount.incrementAndGet();
+                    }
+
+                    MessageRetryRunnable retry = new MessageRetryRunnable(this.waitingPacketsQueue, packet);
+                    this.scheduledRetries.add(retry);
+                    retry.future = this.taskScheduler.schedule(retry, (long) retryDecision.getDuration(), MILLISECONDS);
+                    this.metrics.onMessageRetried(this.metricsProtocol);
                     return;
                 }
                 else
@@ -950,6 +1175,18 @@ public class IotHubTransport implements IotHubListener
             this.log.info("Sending message ({})", message);
             IotHubStatusCode statusCode = this.iotHubTransportConnection.sendMessage(message);
             this.log.trace("Sent message ({}) to protocol level, returned status code was {}", message, statusCode);
+            if (!this.isAmqp())
+            {
+                // the AMQP connection only queues the message for its reactor, it records the write itself
+                this.traceMessage(message, MessageLifecycleStage.WIRE_WRITTEN, null);
+            }
+
+            if (this.isRecordingMessageMetrics)
+            {
+                // getBytes copies the body, so it is only read when a recorder is listening
+                byte[] body = message.getBytes();
+                this.metrics.onBytesSent(this.metricsProtocol, body == null ? 0 : body.length);
+            }
 
             if (statusCode != IotHubStatusCode.OK_EMPTY && statusCode != IotHubStatusCode.OK)
             {
@@ -1059,6 +1296,9 @@ public class IotHubTransport implements IotHubListener
                 //Codes_SRS_IOTHUBTRANSPORT_28_007: [This function shall reset currentReconnectionAttempt and reconnectionAttemptStartTimeMillis if connection status is changed to CONNECTED.]
                 this.currentReconnectionAttempt = 0;
                 this.reconnectionAttemptStartTimeMillis = 0;
+
+                // messages queued while disconnected do not count as backlog, so the send task may be idling
+                this.wakeUp(this.sendTaskScheduler);
             }
         }
     }
@@ -1135,10 +1375,110 @@ public class IotHubTransport implements IotHubListener
      */
     private void addToCallbackQueue(IotHubTransportPacket packet)
     {
+        if (this.isRecordingMessageMetrics)
+        {
+            this.metrics.onMessageCompleted(
+                    this.metricsProtocol,
+                    packet.getStatus(),
+                    System.currentTimeMillis() - packet.getStartTimeMillis());
+        }
+
+        if (this.messageLifecycleTracer != null)
+        {
+            this.traceMessage(packet.getMessage(), MessageLifecycleStage.ACKNOWLEDGED, packet.getStatus());
+        }
+
         //Codes_SRS_IOTHUBTRANSPORT_28_002: [This function shall add the packet to the callback queue if it has a callback.]
         if (packet.getCallback() != null)
         {
             this.callbackPacketsQueue.add(packet);
+            this.wakeUp(this.sendTaskScheduler);
+        }
+    }
+
+    private void wakeUp(AdaptiveTaskScheduler taskScheduler)
+    {
+        if (taskScheduler != null)
+        {
+            taskScheduler.wakeUp();
+        }
+    }
+
+    /**
+     * Records a hop of a message if a tracer is set and the message is sampled
+     * @param message the message
+     * @param stage the hop of the message
+     * @param status the status of the message, if known
+     */
+    private void traceMessage(Message message, MessageLifecycleStage stage, IotHubStatusCode status)
+    {
+        if (this.messageLifecycleTracer != null && message != null)
+        {
+            this.messageLifecycleTracer.record(message.getMessageId(), stage, status);
+        }
+    }
+
+    private boolean isAmqp()
+    {
+        IotHubClientProtocol protocol = this.defaultConfig.getProtocol();
+        return protocol == IotHubClientProtocol.AMQPS || protocol == IotHubClientProtocol.AMQPS_WS;
+    }
+
+    /**
+     * Reports the body size of a received message to the metrics recorder
+     * @param message the received message
+     */
+    private void recordBytesReceived(Message message)
+    {
+        if (this.isRecordingMessageMetrics)
+        {
+            byte[] body = message.getBytes();
+            this.metrics.onBytesReceived(this.metricsProtocol, body == null ? 0 : body.length);
+        }
+    }
+
+    /**
+     * @return the identifier of the client that owns this transport, as reported to the metrics recorder
+     */
+    private String getClientId()
+    {
+        String moduleId = this.defaultConfig.getModuleId();
+        if (moduleId == null || moduleId.isEmpty())
+        {
+            return this.defaultConfig.getDeviceId();
+        }
+
+        return this.defaultConfig.getDeviceId() + "/" + moduleId;
+    }
+
+    /**
+     * Live view of the queues of this transport. ConcurrentLinkedQueue sizes are computed by traversal, so they are
+     * only computed when a metrics recorder asks for them.
+     */
+    private class QueueDepths implements IotHubTransportQueueDepths
+    {
+        @Override
+        public int getWaitingCount()
+        {
+            return waitingPacketsQueue.size();
+        }
+
+        @Override
+        public int getInProgressCount()
+        {
+            return inProgressPackets.size();
+        }
+
+        @Override
+        public int getCallbackCount()
+        {
+            return callbackPacketsQueue.size();
+        }
+
+        @Override
+        public int getReceivedCount()
+        {
+            return receivedMessagesQueue.size();
         }
     }
 
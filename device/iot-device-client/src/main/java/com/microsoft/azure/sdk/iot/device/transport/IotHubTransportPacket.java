@@ -20,6 +20,7 @@ public final class IotHubTransportPacket
     private IotHubStatusCode status;
     private final long startTimeMillis;
     private int currentRetryAttempt;
+    private long sequenceNumber;
 
     /**
      * Constructor.
@@ -139,4 +140,23 @@ public final class IotHubTransportPacket
         // Codes_SRS_IOTHUBTRANSPORTPACKET_34_009: [This function shall increment the saved retry attempt count by 1.]
         this.currentRetryAttempt++;
     }
+
+    /**
+     * Getter for the sequence number the transport gave this packet when it was queued. Packets queued later have
+     * greater sequence numbers.
+     * @return the sequence number of this packet, or 0 if the packet was not queued by a transport
+     */
+    public long getSequenceNumber()
+    {
+        return this.sequenceNumber;
+    }
+
+    /**
+     * Setter for the sequence number of this packet
+     * @param sequenceNumber the position of this packet among the packets queued by the transport
+     */
+    void setSequenceNumber(long sequenceNumber)
+    {
+        this.sequenceNumber = sequenceNumber;
+    }
 }
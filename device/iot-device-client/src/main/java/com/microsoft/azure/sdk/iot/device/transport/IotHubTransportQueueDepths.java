@@ -0,0 +1,34 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+/**
+ * Live view of the depth of the queues of a transport
+ */
+public interface IotHubTransportQueueDepths
+{
+    /**
+     * @return the number of messages waiting to be sent
+     */
+    int getWaitingCount();
+
+    /**
+     * @return the number of messages sent but not acknowledged yet
+     */
+    int getInProgressCount();
+
+    /**
+     * @return the number of messages whose callbacks are waiting to be invoked
+     */
+    int getCallbackCount();
+
+    /**
+     * @return the number of received messages waiting to be handled
+     */
+    int getReceivedCount();
+}
@@ -0,0 +1,75 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+
+/**
+ * A single timestamped hop of a sampled message, as recorded by a {@link MessageLifecycleTracer}
+ */
+public final class MessageLifecycleEvent
+{
+    private final long sequence;
+    private final String messageId;
+    private final MessageLifecycleStage stage;
+    private final long epochNanos;
+    private final IotHubStatusCode status;
+
+    MessageLifecycleEvent(long sequence, String messageId, MessageLifecycleStage stage, long epochNanos, IotHubStatusCode status)
+    {
+        this.sequence = sequence;
+        this.messageId = messageId;
+        this.stage = stage;
+        this.epochNanos = epochNanos;
+        this.status = status;
+    }
+
+    long getSequence()
+    {
+        return this.sequence;
+    }
+
+    /**
+     * @return the id of the traced message
+     */
+    public String getMessageId()
+    {
+        return this.messageId;
+    }
+
+    /**
+     * @return the hop that was recorded
+     */
+    public MessageLifecycleStage getStage()
+    {
+        return this.stage;
+    }
+
+    /**
+     * @return the time of the hop, in nanoseconds since the unix epoch. Differences between events of the same tracer
+     * have nanosecond precision, the absolute value is only as accurate as the system clock.
+     */
+    public long getEpochNanos()
+    {
+        return this.epochNanos;
+    }
+
+    /**
+     * @return the status of the message for {@link MessageLifecycleStage#ACKNOWLEDGED} events, null otherwise
+     */
+    public IotHubStatusCode getStatus()
+    {
+        return this.status;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.messageId + " " + this.stage + (this.status == null ? "" : " " + this.status) + " at " + this.epochNanos;
+    }
+}
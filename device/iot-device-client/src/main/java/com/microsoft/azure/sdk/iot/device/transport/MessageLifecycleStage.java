@@ -0,0 +1,29 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+/**
+ * The hops an outbound message goes through in the transport, in the order they normally happen
+ */
+public enum MessageLifecycleStage
+{
+    /** The message was added to the waiting queue */
+    ENQUEUED,
+
+    /** The message was taken from the waiting queue to be sent */
+    DEQUEUED,
+
+    /** The message was written to the protocol connection: published over MQTT, sent over HTTPS or sent by the AMQP reactor */
+    WIRE_WRITTEN,
+
+    /** The final status of the message is known */
+    ACKNOWLEDGED,
+
+    /** The user callback of the message returned */
+    CALLBACK_INVOKED
+}
@@ -0,0 +1,336 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records the hops of a sample of outbound messages into a fixed size ring buffer.
+ *
+ * <p>Whether a message is sampled is derived from the hash of its message id, so every hop of a message makes the
+ * same decision without any shared state. With sampling off a hop costs a single volatile read. Recording never
+ * blocks: writers claim a slot with an atomic increment and the oldest events are overwritten once the buffer
+ * is full.</p>
+ *
+ * <p>The recorded events can be read with {@link #getEvents()}, printed with {@link #dump()} or exported as
+ * OpenTelemetry spans in the OTLP JSON encoding with {@link #exportOtlpJson()}.</p>
+ */
+public final class MessageLifecycleTracer
+{
+    /** The number of events kept by default */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final String SCOPE_NAME = "com.microsoft.azure.sdk.iot.device";
+    private static final String SERVICE_NAME = "iot-device-client";
+    private static final String SPAN_NAME = "iothub.message.send";
+    private static final int SPAN_KIND_PRODUCER = 4;
+    private static final int STATUS_CODE_OK = 1;
+    private static final int STATUS_CODE_ERROR = 2;
+
+    private final AtomicReferenceArray<MessageLifecycleEvent> events;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    // nanoTime has no defined origin, so it is anchored to the wall clock once
+    private final long originEpochNanos = System.currentTimeMillis() * 1000000L;
+    private final long originNanoTime = System.nanoTime();
+
+    private volatile int sampleEvery;
+
+    /**
+     * Constructor for a tracer that keeps {@link #DEFAULT_CAPACITY} events
+     * @param sampleEvery trace one message out of this many. 0 turns sampling off, 1 traces every message
+     * @throws IllegalArgumentException if sampleEvery is negative
+     */
+    public MessageLifecycleTracer(int sampleEvery) throws IllegalArgumentException
+    {
+        this(DEFAULT_CAPACITY, sampleEvery);
+    }
+
+    /**
+     * Constructor
+     * @param capacity the number of events to keep. Rounded up to the next power of two
+     * @param sampleEvery trace one message out of this many. 0 turns sampling off, 1 traces every message
+     * @throws IllegalArgumentException if capacity is not positive or larger than 2^30, or if sampleEvery is negative
+     */
+    public MessageLifecycleTracer(int capacity, int sampleEvery) throws IllegalArgumentException
+    {
+        if (capacity < 1 || capacity > (1 << 30))
+        {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+        {
+            size <<= 1;
+        }
+
+        this.events = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.setSampleEvery(sampleEvery);
+    }
+
+    /**
+     * Change the sampling rate. Can be called at any time, messages already in flight may then be partially traced.
+     * @param sampleEvery trace one message out of this many. 0 turns sampling off, 1 traces every message
+     * @throws IllegalArgumentException if sampleEvery is negative
+     */
+    public void setSampleEvery(int sampleEvery) throws IllegalArgumentException
+    {
+        if (sampleEvery < 0)
+        {
+            throw new IllegalArgumentException("sampleEvery cannot be negative");
+        }
+
+        this.sampleEvery = sampleEvery;
+    }
+
+    /**
+     * @return one message out of this many is traced, 0 if sampling is off
+     */
+    public int getSampleEvery()
+    {
+        return this.sampleEvery;
+    }
+
+    /**
+     * @return the maximum number of events kept by this tracer
+     */
+    public int getCapacity()
+    {
+        return this.events.length();
+    }
+
+    /**
+     * @param messageId the id of the message
+     * @return true if the hops of this message are recorded
+     */
+    public boolean isSampled(String messageId)
+    {
+        int every = this.sampleEvery;
+        if (every == 0 || messageId == null)
+        {
+            return false;
+        }
+
+        return every == 1 || (messageId.hashCode() & Integer.MAX_VALUE) % every == 0;
+    }
+
+    /**
+     * Record a hop of a message if the message is sampled
+     * @param messageId the id of the message
+     * @param stage the hop of the message
+     */
+    public void record(String messageId, MessageLifecycleStage stage)
+    {
+        this.record(messageId, stage, null);
+    }
+
+    /**
+     * Record a hop of a message if the message is sampled
+     * @param messageId the id of the message
+     * @param stage the hop of the message
+     * @param status the status of the message, if known
+     */
+    public void record(String messageId, MessageLifecycleStage stage, IotHubStatusCode status)
+    {
+        if (!this.isSampled(messageId))
+        {
+            return;
+        }
+
+        long sequence = this.nextSequence.getAndIncrement();
+        long epochNanos = this.originEpochNanos + (System.nanoTime() - this.originNanoTime);
+        this.events.set((int) (sequence & this.mask), new MessageLifecycleEvent(sequence, messageId, stage, epochNanos, status));
+    }
+
+    /**
+     * @return the events still held in the buffer, oldest first. Events written while the copy is taken may or may
+     * not be included.
+     */
+    public List<MessageLifecycleEvent> getEvents()
+    {
+        long end = this.nextSequence.get();
+        long start = Math.max(0, end - this.events.length());
+
+        List<MessageLifecycleEvent> result = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++)
+        {
+            MessageLifecycleEvent event = this.events.get((int) (sequence & this.mask));
+
+            // the slot may not be written yet, or may already hold a newer event
+            if (event != null && event.getSequence() == sequence)
+            {
+                result.add(event);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return a human readable view of the buffered events, one line per message with the time of each hop
+     * relative to the first recorded hop of that message
+     */
+    public String dump()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, List<MessageLifecycleEvent>> entry : this.groupByMessage().entrySet())
+        {
+            List<MessageLifecycleEvent> messageEvents = entry.getValue();
+            long start = messageEvents.get(0).getEpochNanos();
+
+            builder.append(entry.getKey()).append(':');
+            for (MessageLifecycleEvent event : messageEvents)
+            {
+                builder.append(' ').append(event.getStage());
+                if (event.getStatus() != null)
+                {
+                    builder.append('(').append(event.getStatus()).append(')');
+                }
+                builder.append(String.format(Locale.US, " +%.3fms", (event.getEpochNanos() - start) / 1000000.0));
+            }
+            builder.append(System.lineSeparator());
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Export the buffered events as an OTLP JSON trace export request. Each traced message is a producer span that
+     * starts at its first recorded hop and ends at its last one, with one span event per hop. Trace and span ids are
+     * derived from the message id, so repeated exports of the same message produce the same span.
+     * @return the JSON body of an OTLP/HTTP trace export request
+     */
+    public String exportOtlpJson()
+    {
+        JsonArray spans = new JsonArray();
+        for (Map.Entry<String, List<MessageLifecycleEvent>> entry : this.groupByMessage().entrySet())
+        {
+            spans.add(toSpan(entry.getKey(), entry.getValue()));
+        }
+
+        JsonObject scope = new JsonObject();
+        scope.addProperty("name", SCOPE_NAME);
+
+        JsonObject scopeSpans = new JsonObject();
+        scopeSpans.add("scope", scope);
+        scopeSpans.add("spans", spans);
+
+        JsonArray scopeSpansArray = new JsonArray();
+        scopeSpansArray.add(scopeSpans);
+
+        JsonArray resourceAttributes = new JsonArray();
+        resourceAttributes.add(attribute("service.name", SERVICE_NAME));
+
+        JsonObject resource = new JsonObject();
+        resource.add("attributes", resourceAttributes);
+
+        JsonObject resourceSpans = new JsonObject();
+        resourceSpans.add("resource", resource);
+        resourceSpans.add("scopeSpans", scopeSpansArray);
+
+        JsonArray resourceSpansArray = new JsonArray();
+        resourceSpansArray.add(resourceSpans);
+
+        JsonObject request = new JsonObject();
+        request.add("resourceSpans", resourceSpansArray);
+        return request.toString();
+    }
+
+    private Map<String, List<MessageLifecycleEvent>> groupByMessage()
+    {
+        Map<String, List<MessageLifecycleEvent>> byMessage = new LinkedHashMap<>();
+        for (MessageLifecycleEvent event : this.getEvents())
+        {
+            List<MessageLifecycleEvent> messageEvents = byMessage.get(event.getMessageId());
+            if (messageEvents == null)
+            {
+                messageEvents = new ArrayList<>();
+                byMessage.put(event.getMessageId(), messageEvents);
+            }
+            messageEvents.add(event);
+        }
+
+        return byMessage;
+    }
+
+    private static JsonObject toSpan(String messageId, List<MessageLifecycleEvent> messageEvents)
+    {
+        String traceId = UUID.nameUUIDFromBytes(messageId.getBytes(StandardCharsets.UTF_8)).toString().replace("-", "");
+
+        JsonArray spanEvents = new JsonArray();
+        IotHubStatusCode status = null;
+        for (MessageLifecycleEvent event : messageEvents)
+        {
+            JsonObject spanEvent = new JsonObject();
+            spanEvent.addProperty("timeUnixNano", String.valueOf(event.getEpochNanos()));
+            spanEvent.addProperty("name", event.getStage().name().toLowerCase(Locale.US));
+            spanEvents.add(spanEvent);
+
+            if (event.getStatus() != null)
+            {
+                status = event.getStatus();
+            }
+        }
+
+        JsonArray attributes = new JsonArray();
+        attributes.add(attribute("messaging.system", "azure_iothub"));
+        attributes.add(attribute("messaging.message.id", messageId));
+
+        JsonObject span = new JsonObject();
+        span.addProperty("traceId", traceId);
+        span.addProperty("spanId", traceId.substring(16));
+        span.addProperty("name", SPAN_NAME);
+        span.addProperty("kind", SPAN_KIND_PRODUCER);
+        span.addProperty("startTimeUnixNano", String.valueOf(messageEvents.get(0).getEpochNanos()));
+        span.addProperty("endTimeUnixNano", String.valueOf(messageEvents.get(messageEvents.size() - 1).getEpochNanos()));
+        span.add("attributes", attributes);
+        span.add("events", spanEvents);
+
+        if (status != null)
+        {
+            attributes.add(attribute("iothub.status_code", status.name()));
+
+            JsonObject spanStatus = new JsonObject();
+            boolean isSuccess = status == IotHubStatusCode.OK || status == IotHubStatusCode.OK_EMPTY;
+            spanStatus.addProperty("code", isSuccess ? STATUS_CODE_OK : STATUS_CODE_ERROR);
+            if (!isSuccess)
+            {
+                spanStatus.addProperty("message", status.name());
+            }
+            span.add("status", spanStatus);
+        }
+
+        return span;
+    }
+
+    private static JsonObject attribute(String key, String value)
+    {
+        JsonObject anyValue = new JsonObject();
+        anyValue.addProperty("stringValue", value);
+
+        JsonObject attribute = new JsonObject();
+        attribute.addProperty("key", key);
+        attribute.add("value", anyValue);
+        return attribute;
+    }
+}
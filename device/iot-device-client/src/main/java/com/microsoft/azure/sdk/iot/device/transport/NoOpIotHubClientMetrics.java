@@ -0,0 +1,57 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+
+/**
+ * Metrics implementation that records nothing. This is the default for every client.
+ */
+public class NoOpIotHubClientMetrics implements IotHubClientMetrics
+{
+    @Override
+    public void onTransportOpened(String clientId, IotHubTransportQueueDepths queueDepths)
+    {
+    }
+
+    @Override
+    public void onTransportClosed(String clientId, IotHubTransportQueueDepths queueDepths)
+    {
+    }
+
+    @Override
+    public void onMessageCompleted(IotHubClientProtocol protocol, IotHubStatusCode status, long enqueueToAckMillis)
+    {
+    }
+
+    @Override
+    public void onMessageRetried(IotHubClientProtocol protocol)
+    {
+    }
+
+    @Override
+    public void onReconnection(IotHubClientProtocol protocol, long durationMillis, boolean succeeded)
+    {
+    }
+
+    @Override
+    public void onBytesSent(IotHubClientProtocol protocol, long bytes)
+    {
+    }
+
+    @Override
+    public void onBytesReceived(IotHubClientProtocol protocol, long bytes)
+    {
+    }
+
+    @Override
+    public void onLinkCredit(String clientId, String linkType, int credit)
+    {
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+
+/**
+ * An interface for controlling the rate at which clients reconnect. A single controller is meant to be shared by all
+ * the clients of an application, so that a disconnection affecting all of them at once does not turn into all of them
+ * reconnecting at once.
+ */
+public interface ReconnectionAdmissionController
+{
+    /**
+     * Reserves the admission of a reconnection attempt. Called after the retry policy delay has elapsed.
+     *
+     * @return the number of milliseconds to wait before making the reconnection attempt
+     */
+    long reserveAdmission();
+
+    /**
+     * Notifies the controller of the outcome of an admitted reconnection attempt.
+     *
+     * @param transportException the exception the reconnection attempt failed with, or null if it succeeded
+     */
+    void onReconnectionAttemptCompleted(TransportException transportException);
+}
@@ -0,0 +1,140 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits reconnection attempts from a token bucket whose refill rate adapts to the service. Each attempt takes a
+ * token, and attempts that find the bucket empty wait for their token, so no more than {@code burst} attempts start at
+ * once and the others are spread at the admission rate.
+ *
+ * <p>The admission rate is halved every time an attempt is throttled by the service, down to the minimum rate, and
+ * raised by a fixed step every time an attempt succeeds, up to the maximum rate.</p>
+ */
+public final class TokenBucketReconnectionAdmissionController implements ReconnectionAdmissionController
+{
+    private static final double THROTTLED_RATE_DECREASE_FACTOR = 0.5;
+
+    private final double maxAdmissionsPerSecond;
+    private final double minAdmissionsPerSecond;
+    private final double admissionsPerSecondIncrease;
+    private final double burst;
+
+    private double admissionsPerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Constructor. The minimum rate is a hundredth of the maximum rate, and each successful attempt raises the rate by
+     * a hundredth of the maximum rate.
+     *
+     * @param maxAdmissionsPerSecond the rate at which attempts are admitted while none is throttled. Must be positive.
+     * @param burst the number of attempts admitted at once. Must be positive.
+     * @throws IllegalArgumentException if any of the parameters is invalid
+     */
+    public TokenBucketReconnectionAdmissionController(double maxAdmissionsPerSecond, int burst) throws IllegalArgumentException
+    {
+        this(maxAdmissionsPerSecond, maxAdmissionsPerSecond / 100, maxAdmissionsPerSecond / 100, burst);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxAdmissionsPerSecond the rate at which attempts are admitted while none is throttled. Must be positive.
+     * @param minAdmissionsPerSecond the rate that throttled attempts cannot lower the admission rate under. Must be
+     *                               positive and not greater than the maximum rate.
+     * @param admissionsPerSecondIncrease the increase of the admission rate after a successful attempt. Cannot be negative.
+     * @param burst the number of attempts admitted at once. Must be positive.
+     * @throws IllegalArgumentException if any of the parameters is invalid
+     */
+    public TokenBucketReconnectionAdmissionController(
+            double maxAdmissionsPerSecond,
+            double minAdmissionsPerSecond,
+            double admissionsPerSecondIncrease,
+            int burst) throws IllegalArgumentException
+    {
+        if (!(maxAdmissionsPerSecond > 0))
+        {
+            throw new IllegalArgumentException("maxAdmissionsPerSecond must be positive.");
+        }
+
+        if (!(minAdmissionsPerSecond > 0) || minAdmissionsPerSecond > maxAdmissionsPerSecond)
+        {
+            throw new IllegalArgumentException("minAdmissionsPerSecond must be positive and not greater than maxAdmissionsPerSecond.");
+        }
+
+        if (!(admissionsPerSecondIncrease >= 0))
+        {
+            throw new IllegalArgumentException("admissionsPerSecondIncrease cannot be negative.");
+        }
+
+        if (burst <= 0)
+        {
+            throw new IllegalArgumentException("burst must be positive.");
+        }
+
+        this.maxAdmissionsPerSecond = maxAdmissionsPerSecond;
+        this.minAdmissionsPerSecond = minAdmissionsPerSecond;
+        this.admissionsPerSecondIncrease = admissionsPerSecondIncrease;
+        this.burst = burst;
+
+        this.admissionsPerSecond = maxAdmissionsPerSecond;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    @Override
+    public synchronized long reserveAdmission()
+    {
+        this.refill();
+
+        // the token may be borrowed from the future, the wait is the time until it is refilled
+        this.tokens--;
+        if (this.tokens >= 0)
+        {
+            return 0;
+        }
+
+        return (long) Math.ceil(-this.tokens / this.admissionsPerSecond * TimeUnit.SECONDS.toMillis(1));
+    }
+
+    @Override
+    public synchronized void onReconnectionAttemptCompleted(TransportException transportException)
+    {
+        // tokens refilled so far were earned at the previous rate
+        this.refill();
+
+        if (transportException == null)
+        {
+            this.admissionsPerSecond = Math.min(this.maxAdmissionsPerSecond, this.admissionsPerSecond + this.admissionsPerSecondIncrease);
+        }
+        else if (TransportUtils.isThrottling(transportException))
+        {
+            this.admissionsPerSecond = Math.max(this.minAdmissionsPerSecond, this.admissionsPerSecond * THROTTLED_RATE_DECREASE_FACTOR);
+        }
+    }
+
+    /**
+     * @return the current admission rate, in attempts per second
+     */
+    public synchronized double getAdmissionsPerSecond()
+    {
+        return this.admissionsPerSecond;
+    }
+
+    private void refill()
+    {
+        long nowNanos = System.nanoTime();
+        double elapsedSeconds = (double) (nowNanos - this.lastRefillNanos) / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = Math.min(this.burst, this.tokens + elapsedSeconds * this.admissionsPerSecond);
+        this.lastRefillNanos = nowNanos;
+    }
+}
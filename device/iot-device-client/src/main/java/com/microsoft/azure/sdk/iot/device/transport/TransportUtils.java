@@ -3,7 +3,10 @@
 
 package com.microsoft.azure.sdk.iot.device.transport;
 
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.exceptions.IotHubServiceException;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.AmqpConnectionThrottledException;
 
 public class TransportUtils
 {
@@ -31,4 +34,19 @@ public class TransportUtils
         transportException.setIotHubService(service);
         throw transportException;
     }
+
+    /**
+     * @param transportException the exception to check
+     * @return true if the exception means that the service is throttling the client
+     */
+    public static boolean isThrottling(TransportException transportException)
+    {
+        if (transportException instanceof AmqpConnectionThrottledException)
+        {
+            return true;
+        }
+
+        return transportException instanceof IotHubServiceException
+                && ((IotHubServiceException) transportException).getStatusCode() == IotHubStatusCode.THROTTLED;
+    }
 }
@@ -6,6 +6,7 @@ package com.microsoft.azure.sdk.iot.device.transport.amqps;
 import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.exceptions.ProtocolException;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubClientMetrics;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.qpid.proton.Proton;
@@ -52,6 +53,10 @@ public abstract class AmqpsDeviceOperations
     protected Sender senderLink;
     protected Receiver receiverLink;
 
+    private final IotHubClientMetrics metrics;
+    private final String clientId;
+    private final int receiverPrefetch;
+
     /**
      *
      * @param deviceClientConfig the config to pull the user agent string from
@@ -83,6 +88,9 @@ public abstract class AmqpsDeviceOperations
         this.amqpProperties = new HashMap<>();
         this.amqpProperties.put(Symbol.getSymbol(VERSION_IDENTIFIER_KEY), deviceClientConfig.getProductInfo().getUserAgentString());
 
+        this.metrics = deviceClientConfig.getMetrics();
+        this.receiverPrefetch = deviceClientConfig.getAmqpReceiverPrefetch();
+
         // Codes_SRS_AMQPSDEVICEOPERATIONS_12_002: [The constructor shall initialize sender and receiver tags with UUID string.]
         this.linkCorrelationId = UUID.randomUUID().toString();
 
@@ -97,6 +105,8 @@ public abstract class AmqpsDeviceOperations
         String deviceId = deviceClientConfig.getDeviceId();
         if (moduleId != null && !moduleId.isEmpty())
         {
+            this.clientId = deviceId + "/" + moduleId;
+
             this.senderLinkEndpointPath = senderLinkEndpointPathModules;
             this.receiverLinkEndpointPath = receiverLinkEndpointPathModules;
 
@@ -108,6 +118,8 @@ public abstract class AmqpsDeviceOperations
         }
         else
         {
+            this.clientId = deviceId;
+
             this.senderLinkEndpointPath = senderLinkEndpointPath;
             this.receiverLinkEndpointPath = receiverLinkEndpointpath;
 
@@ -173,7 +185,10 @@ public abstract class AmqpsDeviceOperations
 
             // Codes_SRS_AMQPSDEVICEOPERATIONS_12_010: [The function shall onConnectionInit both receiver and sender link.]
             this.receiverLink.open();
-            this.log.debug("Opening {} receiver link with link correlation id {}", getLinkInstanceType(), this.linkCorrelationId);
+
+            // the credit spent by each message is given back once the message is acknowledged, see AmqpsIotHubConnection
+            this.receiverLink.flow(this.receiverPrefetch);
+            this.log.debug("Opening {} receiver link with link correlation id {} and a prefetch of {}", getLinkInstanceType(), this.linkCorrelationId, this.receiverPrefetch);
         }
     }
 
@@ -304,6 +319,7 @@ public abstract class AmqpsDeviceOperations
             }
 
             this.log.trace("Message was sent over {} sender link with delivery tag {} and hash {}", getLinkInstanceType(), new String(deliveryTag), delivery.hashCode());
+            this.metrics.onLinkCredit(this.clientId, getLinkInstanceType(), this.senderLink.getCredit());
             return new AmqpsSendReturnValue(true, delivery.hashCode(), deliveryTag);
         }
         catch (Exception e)
@@ -317,6 +333,15 @@ public abstract class AmqpsDeviceOperations
         }
     }
 
+    /**
+     * Getter for the credit of the sender link
+     * @return true if the sender link is open and the service has given it credit to send at least one message
+     */
+    protected boolean hasSenderLinkCredit()
+    {
+        return this.senderLink != null && this.senderLink.getCredit() > 0;
+    }
+
     public abstract String getLinkInstanceType();
 
     /**
@@ -23,12 +23,13 @@ import org.apache.qpid.proton.amqp.transport.ErrorCondition;
 import org.apache.qpid.proton.engine.*;
 import org.apache.qpid.proton.engine.impl.TransportInternal;
 import org.apache.qpid.proton.message.Message;
-import org.apache.qpid.proton.reactor.FlowController;
 import org.apache.qpid.proton.reactor.Handshaker;
 import org.apache.qpid.proton.reactor.Reactor;
 import org.apache.qpid.proton.reactor.ReactorOptions;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Queue;
 import java.util.UUID;
@@ -69,6 +70,8 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
     private final Boolean useWebSockets;
     private final Map<Integer, com.microsoft.azure.sdk.iot.device.Message> inProgressMessages = new ConcurrentHashMap<>();
     private final Map<com.microsoft.azure.sdk.iot.device.Message, AmqpsMessage> sendAckMessages = new ConcurrentHashMap<>();
+    //acknowledgements are settled on the reactor thread, all those queued since the last timer task at once
+    private final Queue<PendingAcknowledgement> pendingAcknowledgements = new ConcurrentLinkedQueue<>();
     public String connectionId;
     public AmqpsSessionManager amqpsSessionManager;
     //Used to track if the full connection is authenticated. This means cbs auth messages have received 200 from service for each device's sas auth
@@ -90,6 +93,9 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
     private Reactor reactor;
     private TransportException savedException;
     private Queue<com.microsoft.azure.sdk.iot.device.Message> messagesToSend = new ConcurrentLinkedQueue<>();
+    // the messages held back until their link gets credit, per device and message type. Filled by the reactor thread,
+    // and cleared on close, as the transport sends the messages of a lost connection again once it reconnects
+    private final Map<String, Queue<com.microsoft.azure.sdk.iot.device.Message>> messagesWaitingForLinkCredit = new ConcurrentHashMap<>();
 
     /**
      * Constructor to set up connection parameters using the {@link DeviceClientConfig}.
@@ -133,10 +139,9 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_15_004: [The constructor shall initialize a new Handshaker
         // (Proton) object to handle communication handshake.]
-        // Codes_SRS_AMQPSIOTHUBCONNECTION_15_005: [The constructor shall initialize a new FlowController
-        // (Proton) object to handle communication flow.]
+        // The credit of the receiver links is managed by the links themselves, and given back to the service as the
+        // received messages are acknowledged, rather than by a proton FlowController.
         add(new Handshaker());
-        add(new FlowController());
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_15_006: [The constructor shall set its state to DISCONNECTED.]
         this.state = IotHubConnectionStatus.DISCONNECTED;
@@ -357,6 +362,12 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
 
         this.executorServicesCleanup();
 
+        //the deliveries of the closed connection can no longer be settled, the receiver links get their credit back
+        // when they are opened again
+        this.pendingAcknowledgements.clear();
+        this.sendAckMessages.clear();
+        this.messagesWaitingForLinkCredit.clear();
+
         this.log.trace("Amqp connection closed successfully");
         this.state = IotHubConnectionStatus.DISCONNECTED;
     }
@@ -726,15 +737,23 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
 
             if (amqpsMessage != null)
             {
+                boolean isAwaitingAcknowledgement = false;
+
                 // Codes_SRS_AMQPSIOTHUBCONNECTION_15_050: [All the listeners shall be notified that a message was received from the server.]
                 try
                 {
-                    this.handleCloudToDeviceMessage(amqpsMessage);
+                    isAwaitingAcknowledgement = this.handleCloudToDeviceMessage(amqpsMessage);
                 }
                 catch (TransportException e)
                 {
                     this.listener.onMessageReceived(null, e);
                 }
+
+                if (!isAwaitingAcknowledgement)
+                {
+                    //no acknowledgement will give the credit of this message back, so give it back now
+                    ((Receiver) link).flow(1);
+                }
             }
             else
             {
@@ -756,26 +775,109 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
         this.amqpsSessionManager.onLinkInit(link);
     }
 
+    /**
+     * Event handler for the link flow event. The service gives credit to the sender links with this event, so the
+     * messages waiting for credit are sent.
+     *
+     * @param event The Proton Event object.
+     */
+    @Override
+    public void onLinkFlow(Event event)
+    {
+        if (event.getLink() instanceof Sender && event.getLink().getCredit() > 0)
+        {
+            processOutgoingMessages();
+        }
+    }
+
     private void processOutgoingMessages()
     {
         int messagesAttemptedToBeProcessed = 0;
         int lastDeliveryTag = 0;
-        com.microsoft.azure.sdk.iot.device.Message message = messagesToSend.poll();
-        while (message != null && messagesAttemptedToBeProcessed < MAX_MESSAGES_TO_SEND_PER_CALLBACK && lastDeliveryTag >= 0)
+
+        //the messages held back first, in order, for the links that got credit since
+        Iterator<Queue<com.microsoft.azure.sdk.iot.device.Message>> waitingQueues = this.messagesWaitingForLinkCredit.values().iterator();
+        while (waitingQueues.hasNext() && messagesAttemptedToBeProcessed < MAX_MESSAGES_TO_SEND_PER_CALLBACK && lastDeliveryTag >= 0)
         {
-            if (!subscriptionChangeHandler(message))
+            Queue<com.microsoft.azure.sdk.iot.device.Message> waitingQueue = waitingQueues.next();
+            while (!waitingQueue.isEmpty() && messagesAttemptedToBeProcessed < MAX_MESSAGES_TO_SEND_PER_CALLBACK && lastDeliveryTag >= 0 && this.hasLinkCredit(waitingQueue.peek()))
             {
                 messagesAttemptedToBeProcessed++;
-                lastDeliveryTag = processMessage(message);
+                lastDeliveryTag = processMessage(waitingQueue.poll());
             }
 
-            message = messagesToSend.poll();
+            if (waitingQueue.isEmpty())
+            {
+                waitingQueues.remove();
+            }
         }
 
-        if (message != null)
+        com.microsoft.azure.sdk.iot.device.Message message = null;
+        while (messagesAttemptedToBeProcessed < MAX_MESSAGES_TO_SEND_PER_CALLBACK && lastDeliveryTag >= 0 && (message = messagesToSend.poll()) != null)
         {
-            //message was polled out of list, but loop exited from processing too many messages before it could process this message, so re-queue it for later
-            messagesToSend.add(message);
+            if (!subscriptionChangeHandler(message))
+            {
+                String linkKey = getLinkKey(message);
+                Queue<com.microsoft.azure.sdk.iot.device.Message> waitingQueue = this.messagesWaitingForLinkCredit.get(linkKey);
+                if (waitingQueue != null || !this.hasLinkCredit(message))
+                {
+                    //only this link waits for the service to give it more credit, the messages of the other links are still sent
+                    this.log.trace("No link credit to send amqp message, waiting for the service to give credit ({})", message);
+                    if (waitingQueue == null)
+                    {
+                        waitingQueue = new ConcurrentLinkedQueue<>();
+                        this.messagesWaitingForLinkCredit.put(linkKey, waitingQueue);
+                    }
+
+                    waitingQueue.add(message);
+                }
+                else
+                {
+                    messagesAttemptedToBeProcessed++;
+                    lastDeliveryTag = processMessage(message);
+                }
+            }
+        }
+    }
+
+    private boolean hasLinkCredit(com.microsoft.azure.sdk.iot.device.Message message)
+    {
+        return this.amqpsSessionManager.hasLinkCredit(getLinkMessageType(message), message.getConnectionDeviceId());
+    }
+
+    private static String getLinkKey(com.microsoft.azure.sdk.iot.device.Message message)
+    {
+        return message.getConnectionDeviceId() + "/" + getLinkMessageType(message);
+    }
+
+    private static MessageType getLinkMessageType(com.microsoft.azure.sdk.iot.device.Message message)
+    {
+        return message.getMessageType() == null ? MessageType.DEVICE_TELEMETRY : message.getMessageType();
+    }
+
+    private void processPendingAcknowledgements()
+    {
+        Map<Receiver, Integer> creditToReturn = new HashMap<>();
+        PendingAcknowledgement pendingAcknowledgement = this.pendingAcknowledgements.poll();
+        while (pendingAcknowledgement != null)
+        {
+            pendingAcknowledgement.amqpsMessage.acknowledge(pendingAcknowledgement.ackType);
+
+            Delivery delivery = pendingAcknowledgement.amqpsMessage.getDelivery();
+            if (delivery != null && delivery.getLink() instanceof Receiver)
+            {
+                Receiver receiver = (Receiver) delivery.getLink();
+                Integer credit = creditToReturn.get(receiver);
+                creditToReturn.put(receiver, credit == null ? 1 : credit + 1);
+            }
+
+            pendingAcknowledgement = this.pendingAcknowledgements.poll();
+        }
+
+        //one flow per link for all the messages acknowledged since the last timer task
+        for (Map.Entry<Receiver, Integer> credit : creditToReturn.entrySet())
+        {
+            credit.getKey().flow(credit.getValue());
         }
     }
 
@@ -836,6 +938,12 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
                 // Codes_SRS_AMQPSTRANSPORT_34_078: [If the sent message hash is valid, it shall be added to the in progress map and this function shall return OK.]
                 this.inProgressMessages.put(lastDeliveryTag, message);
                 this.log.trace("Adding amqp delivery tag {} to in progress messages ({})", lastDeliveryTag, message);
+
+                MessageLifecycleTracer messageLifecycleTracer = this.deviceClientConfig.getMessageLifecycleTracer();
+                if (messageLifecycleTracer != null)
+                {
+                    messageLifecycleTracer.record(message.getMessageId(), MessageLifecycleStage.WIRE_WRITTEN);
+                }
             }
             else
             {
@@ -983,6 +1091,7 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
     @Override
     public void onTimerTask(Event event)
     {
+        processPendingAcknowledgements();
         processOutgoingMessages();
 
         event.getReactor().schedule(SEND_MESSAGES_PERIOD_MILLIS, this);
@@ -992,8 +1101,9 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
      * Notifies all the listeners that a message was received from the server.
      *
      * @param amqpsMessage The message received from server.
+     * @return true if the message was handed to the listeners and waits for their acknowledgement.
      */
-    private void handleCloudToDeviceMessage(AmqpsMessage amqpsMessage) throws TransportException
+    private boolean handleCloudToDeviceMessage(AmqpsMessage amqpsMessage) throws TransportException
     {
         this.log.debug("Handling a received message with amqp message correlation id {}", amqpsMessage.getCorrelationId());
         AmqpsConvertFromProtonReturnValue amqpsHandleMessageReturnValue = this.convertFromProton(amqpsMessage, amqpsMessage.getDeviceClientConfig());
@@ -1005,12 +1115,12 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
                 handleCbsMessage(amqpsMessage);
 
                 //CBS messages require no acknowledgement from client side
-                return;
+                return false;
             }
 
             // Should never happen; message type was not telemetry, twin, methods, or CBS
             log.warn("No handler found for received message with amqp correlation id {}, ignoring it", amqpsMessage.getCorrelationId());
-            return;
+            return false;
         }
 
         // Codes_SRS_AMQPSTRANSPORT_12_008: [The function shall return if there is no message callback defined.]
@@ -1034,6 +1144,7 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
         //Codes_SRS_AMQPSIOTHUBCONNECTION_34_092: [If an amqp message can be received from the receiver link, and that amqp message contains no application properties, this function shall notify this object's listeners that that message was received with a null exception.]
         //Codes_SRS_AMQPSIOTHUBCONNECTION_34_093: [If an amqp message can be received from the receiver link, and that amqp message contains a status code, but that status code cannot be parsed to an integer, this function shall notify this object's listeners that that message was received with a null exception.]
         this.listener.onMessageReceived(transportMessage, null);
+        return true;
     }
 
     private void handleCbsMessage(AmqpsMessage amqpsMessage)
@@ -1131,11 +1242,12 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
     }
 
     /**
-     * Sends the Ack for the provided message with the result
+     * Queues the Ack for the provided message with the result. The queued acks are sent together by the reactor thread,
+     * which then gives their credit back to the receiver links.
      *
      * @param message the message to acknowledge
      * @param result  the result to attach to the ack (COMPLETE, ABANDON, or REJECT)
-     * @return true if the ack was sent successfully, and false otherwise
+     * @return true if the ack was queued successfully, and false otherwise
      */
     @Override
     public boolean sendMessageResult(com.microsoft.azure.sdk.iot.device.Message message, IotHubMessageResult result)
@@ -1158,17 +1270,17 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
                 case ABANDON:
                     // Codes_SRS_AMQPSTRANSPORT_34_068: [If the provided message is saved in the saved map of messages
                     // to acknowledge, and if the provided result is ABANDON, this function shall send the amqp ack with ABANDON.]
-                    amqpsMessage.acknowledge(AmqpsMessage.ACK_TYPE.ABANDON);
+                    this.pendingAcknowledgements.add(new PendingAcknowledgement(amqpsMessage, AmqpsMessage.ACK_TYPE.ABANDON));
                     break;
                 case REJECT:
                     // Codes_SRS_AMQPSTRANSPORT_34_069: [If the provided message is saved in the saved map of messages
                     // to acknowledge, and if the provided result is REJECT, this function shall send the amqp ack with REJECT.]
-                    amqpsMessage.acknowledge(AmqpsMessage.ACK_TYPE.REJECT);
+                    this.pendingAcknowledgements.add(new PendingAcknowledgement(amqpsMessage, AmqpsMessage.ACK_TYPE.REJECT));
                     break;
                 case COMPLETE:
                     // Codes_SRS_AMQPSTRANSPORT_34_070: [If the provided message is saved in the saved map of messages
                     // to acknowledge, and if the provided result is COMPLETE, this function shall send the amqp ack with COMPLETE.]
-                    amqpsMessage.acknowledge(AmqpsMessage.ACK_TYPE.COMPLETE);
+                    this.pendingAcknowledgements.add(new PendingAcknowledgement(amqpsMessage, AmqpsMessage.ACK_TYPE.COMPLETE));
                     break;
                 default:
                     log.warn("Invalid IoT Hub message result {}", result.name());
@@ -1359,4 +1471,19 @@ public final class AmqpsIotHubConnection extends ErrorLoggingBaseHandler impleme
             return null;
         }
     }
+
+    /**
+     * An acknowledgement waiting to be sent by the reactor thread.
+     */
+    private static final class PendingAcknowledgement
+    {
+        private final AmqpsMessage amqpsMessage;
+        private final AmqpsMessage.ACK_TYPE ackType;
+
+        private PendingAcknowledgement(AmqpsMessage amqpsMessage, AmqpsMessage.ACK_TYPE ackType)
+        {
+            this.amqpsMessage = amqpsMessage;
+            this.ackType = ackType;
+        }
+    }
 }
@@ -69,6 +69,15 @@ public class AmqpsMessage extends MessageImpl
         this._delivery = _delivery;
     }
 
+    /**
+     * Get this AmqpsMessage Delivery Object
+     * @return the Delivery, or null if none was set
+     */
+    public Delivery getDelivery()
+    {
+        return this._delivery;
+    }
+
     /**
      * Get the AmqpsMessageMessageType
      * @return The type of the message
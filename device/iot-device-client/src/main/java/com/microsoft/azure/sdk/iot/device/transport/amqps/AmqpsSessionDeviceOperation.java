@@ -233,6 +233,20 @@ public class AmqpsSessionDeviceOperation
         }
     }
 
+    /**
+     * Getter for the credit of the sender link of the given message type.
+     *
+     * @param messageType the message type to identify the sender.
+     * @return true if the sender link can send a message now.
+     */
+    boolean hasLinkCredit(MessageType messageType)
+    {
+        AmqpsDeviceOperations amqpsDeviceOperations = this.amqpsDeviceOperationsMap.get(messageType);
+        return this.amqpsAuthenticatorState == AmqpsDeviceAuthenticationState.AUTHENTICATED
+                && amqpsDeviceOperations != null
+                && amqpsDeviceOperations.hasSenderLinkCredit();
+    }
+
     /**
      * Delegate the send call to device operation objects.
      * Loop through the device operation list and find the sender 
@@ -308,6 +308,32 @@ public class AmqpsSessionManager
         return deliveryTag;
     }
 
+    /**
+     * Getter for the credit of the sender link that a message of the given type and device would be sent on.
+     *
+     * @param messageType the message type to find the sender.
+     * @param deviceId the deviceId of the message.
+     * @return true if the message can be sent now, or if no session handles the device so the message cannot be
+     *         sent whatever the credit.
+     */
+    boolean hasLinkCredit(MessageType messageType, String deviceId)
+    {
+        if (this.session == null)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < this.amqpsDeviceSessionList.size(); i++)
+        {
+            if (this.amqpsDeviceSessionList.get(i).getDeviceId().equals(deviceId))
+            {
+                return this.amqpsDeviceSessionList.get(i).hasLinkCredit(messageType);
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Delegate the onDelivery call to device operation objects.
      * Loop through the device operation list and find the receiver `
@@ -368,7 +394,9 @@ public class AmqpsSessionManager
 
     /**
      * Find the converter to convert from IoTHub message to Proton 
-     * message.
+     * message. Only the session of the device that sends the
+     * message converts it, as the twin keeps the correlation ids of
+     * its requests to match the responses on its own links.
      *
      * @param message the message to convert.
      *
@@ -379,9 +407,15 @@ public class AmqpsSessionManager
     {
         AmqpsConvertToProtonReturnValue amqpsConvertToProtonReturnValue = null;
 
+        String deviceId = message.getConnectionDeviceId();
         for (int i = 0; i < this.amqpsDeviceSessionList.size(); i++)
         {
-            // Codes_SRS_AMQPSESSIONMANAGER_12_040: [The function shall call all device session's convertToProton, and if any of them not null return with the value.]
+            if (deviceId != null && !deviceId.equals(this.amqpsDeviceSessionList.get(i).getDeviceId()))
+            {
+                continue;
+            }
+
+            // Codes_SRS_AMQPSESSIONMANAGER_12_040: [The function shall call the convertToProton of the device session of the message's connection device id, or of all device sessions if the message has none, and if any of them not null return with the value.]
             amqpsConvertToProtonReturnValue = this.amqpsDeviceSessionList.get(i).convertToProton(message);
             if (amqpsConvertToProtonReturnValue != null)
             {
@@ -21,6 +21,7 @@ import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 abstract public class Mqtt implements MqttCallback
@@ -31,9 +32,9 @@ abstract public class Mqtt implements MqttCallback
     private MqttConnection mqttConnection;
     private MqttMessageListener messageListener;
     ConcurrentLinkedQueue<Pair<String, byte[]>> allReceivedMessages;
-    private final Object stateLock;
-    protected final Object incomingLock;
-    private final Object publishLock;
+    private final ReentrantLock stateLock;
+    protected final ReentrantLock incomingLock;
+    private final ReentrantLock publishLock;
 
     private Map<Integer, Message> unacknowledgedSentMessages;
 
@@ -91,8 +92,8 @@ abstract public class Mqtt implements MqttCallback
         this.mqttConnection = mqttConnection;
         this.allReceivedMessages = mqttConnection.getAllReceivedMessages();
         this.stateLock = mqttConnection.getMqttLock();
-        this.incomingLock = new Object();
-        this.publishLock = new Object();
+        this.incomingLock = new ReentrantLock();
+        this.publishLock = new ReentrantLock();
         this.userSpecifiedSASTokenExpiredOnRetry = false;
         this.listener = listener;
         this.messageListener = messageListener;
@@ -107,28 +108,31 @@ abstract public class Mqtt implements MqttCallback
      */
     protected void connect() throws TransportException
     {
-        synchronized (this.stateLock)
+        this.stateLock.lock();
+        try
         {
-            try
+            //Codes_SRS_Mqtt_25_008: [If the MQTT connection is already open, the function shall do nothing.]
+            if (!this.mqttConnection.getMqttAsyncClient().isConnected())
             {
-                //Codes_SRS_Mqtt_25_008: [If the MQTT connection is already open, the function shall do nothing.]
-                if (!this.mqttConnection.getMqttAsyncClient().isConnected())
-                {
-                    this.log.debug("Sending MQTT CONNECT packet...");
-                    //Codes_SRS_Mqtt_25_005: [The function shall establish an MQTT connection with an IoT Hub using the provided host name, user name, device ID, and sas token.]
-                    IMqttToken connectToken = this.mqttConnection.getMqttAsyncClient().connect(Mqtt.this.mqttConnection.getConnectionOptions());
-                    connectToken.waitForCompletion(CONNECTION_TIMEOUT);
-                    this.log.debug("Sent MQTT CONNECT packet was acknowledged");
-                }
+                this.log.debug("Sending MQTT CONNECT packet...");
+                //Codes_SRS_Mqtt_25_005: [The function shall establish an MQTT connection with an IoT Hub using the provided host name, user name, device ID, and sas token.]
+                IMqttToken connectToken = this.mqttConnection.getMqttAsyncClient().connect(Mqtt.this.mqttConnection.getConnectionOptions());
+                connectToken.waitForCompletion(CONNECTION_TIMEOUT);
+                this.mqttConnection.onConnected(connectToken.getSessionPresent());
+                this.log.debug("Sent MQTT CONNECT packet was acknowledged, session present: {}", connectToken.getSessionPresent());
             }
-            catch (MqttException e)
-            {
-                this.log.warn("Exception encountered while sending MQTT CONNECT packet", e);
+        }
+        catch (MqttException e)
+        {
+            this.log.warn("Exception encountered while sending MQTT CONNECT packet", e);
 
-                this.disconnect();
-                //Codes_SRS_Mqtt_34_044: [If an MqttException is encountered while connecting, this function shall throw the associated ProtocolException.]
-                throw PahoExceptionTranslator.convertToMqttException(e, "Unable to establish MQTT connection");
-            }
+            this.disconnect();
+            //Codes_SRS_Mqtt_34_044: [If an MqttException is encountered while connecting, this function shall throw the associated ProtocolException.]
+            throw PahoExceptionTranslator.convertToMqttException(e, "Unable to establish MQTT connection");
+        }
+        finally
+        {
+            this.stateLock.unlock();
         }
     }
 
@@ -233,7 +237,8 @@ abstract public class Mqtt implements MqttCallback
 
             mqttMessage.setQos(MqttConnection.QOS);
 
-            synchronized (this.publishLock)
+            this.publishLock.lock();
+            try
             {
                 this.log.trace("Publishing message ({}) to MQTT topic {}", message, publishTopic);
                 //Codes_SRS_Mqtt_25_014: [The function shall publish message payload on the publishTopic specified to the IoT Hub given in the configuration.]
@@ -241,6 +246,10 @@ abstract public class Mqtt implements MqttCallback
                 unacknowledgedSentMessages.put(publishToken.getMessageId(), message);
                 this.log.trace("Message published to MQTT topic {}. Mqtt message id {} added to list of messages to wait for acknowledgement ({})", publishTopic, publishToken.getMessageId(), message);
             }
+            finally
+            {
+                this.publishLock.unlock();
+            }
         }
         catch (MqttException e)
         {
@@ -264,46 +273,55 @@ abstract public class Mqtt implements MqttCallback
      */
     protected void subscribe(String topic) throws TransportException
     {
-        synchronized (this.stateLock)
+        this.stateLock.lock();
+        try
         {
-            try
+            if (topic == null)
             {
-                if (topic == null)
-                {
-                    //Codes_SRS_Mqtt_25_016: [If the subscribeTopic is null or empty, the function shall throw an IllegalArgumentException.]
-                    throw new IllegalArgumentException("Topic cannot be null");
+                //Codes_SRS_Mqtt_25_016: [If the subscribeTopic is null or empty, the function shall throw an IllegalArgumentException.]
+                throw new IllegalArgumentException("Topic cannot be null");
 
-                }
-                else if (this.userSpecifiedSASTokenExpiredOnRetry)
-                {
-                    //Codes_SRS_Mqtt_99_049: [If the user supplied SAS token has expired, the function shall throw a TransportException.]
-                    throw new TransportException("Cannot subscribe when user supplied SAS token has expired");
-                }
-                else if (!this.mqttConnection.getMqttAsyncClient().isConnected())
-                {
+            }
+            else if (this.userSpecifiedSASTokenExpiredOnRetry)
+            {
+                //Codes_SRS_Mqtt_99_049: [If the user supplied SAS token has expired, the function shall throw a TransportException.]
+                throw new TransportException("Cannot subscribe when user supplied SAS token has expired");
+            }
+            else if (!this.mqttConnection.getMqttAsyncClient().isConnected())
+            {
 
-                    //Codes_SRS_Mqtt_25_015: [If the MQTT connection is closed, the function shall throw a TransportException with message.]
-                    TransportException transportException = new TransportException("Cannot subscribe when mqtt client is disconnected");
-                    transportException.setRetryable(true);
-                    throw transportException;
-                }
+                //Codes_SRS_Mqtt_25_015: [If the MQTT connection is closed, the function shall throw a TransportException with message.]
+                TransportException transportException = new TransportException("Cannot subscribe when mqtt client is disconnected");
+                transportException.setRetryable(true);
+                throw transportException;
+            }
 
-                this.log.debug("Sending MQTT SUBSCRIBE packet for topic {}", topic);
+            if (this.mqttConnection.isSubscribedInSession(topic))
+            {
+                this.log.debug("Topic {} is still subscribed to in the session kept by the service, skipping MQTT SUBSCRIBE packet", topic);
+                return;
+            }
 
-                //Codes_SRS_Mqtt_25_017: [The function shall subscribe to subscribeTopic specified to the IoT Hub given in the configuration.]
-                IMqttToken subToken = this.mqttConnection.getMqttAsyncClient().subscribe(topic, MqttConnection.QOS);
+            this.log.debug("Sending MQTT SUBSCRIBE packet for topic {}", topic);
 
-                subToken.waitForCompletion(MqttConnection.MAX_SUBSCRIBE_ACK_WAIT_TIME);
-                this.log.debug("Sent MQTT SUBSCRIBE packet for topic {} was acknowledged", topic);
+            //Codes_SRS_Mqtt_25_017: [The function shall subscribe to subscribeTopic specified to the IoT Hub given in the configuration.]
+            IMqttToken subToken = this.mqttConnection.getMqttAsyncClient().subscribe(topic, MqttConnection.QOS);
 
-            }
-            catch (MqttException e)
-            {
-                this.log.warn("Encountered exception while sending MQTT SUBSCRIBE packet for topic {}", topic, e);
+            subToken.waitForCompletion(MqttConnection.MAX_SUBSCRIBE_ACK_WAIT_TIME);
+            this.mqttConnection.onSubscribed(topic);
+            this.log.debug("Sent MQTT SUBSCRIBE packet for topic {} was acknowledged", topic);
 
-                //Codes_SRS_Mqtt_25_048: [If the Mqtt Client Async throws MqttException for any reason, the function shall throw a ProtocolException with the message.]
-                throw PahoExceptionTranslator.convertToMqttException(e, "Unable to subscribe to topic :" + topic);
-            }
+        }
+        catch (MqttException e)
+        {
+            this.log.warn("Encountered exception while sending MQTT SUBSCRIBE packet for topic {}", topic, e);
+
+            //Codes_SRS_Mqtt_25_048: [If the Mqtt Client Async throws MqttException for any reason, the function shall throw a ProtocolException with the message.]
+            throw PahoExceptionTranslator.convertToMqttException(e, "Unable to subscribe to topic :" + topic);
+        }
+        finally
+        {
+            this.stateLock.unlock();
         }
     }
 
@@ -315,7 +333,8 @@ abstract public class Mqtt implements MqttCallback
      */
     public IotHubTransportMessage receive() throws TransportException
     {
-        synchronized (this.incomingLock)
+        this.incomingLock.lock();
+        try
         {
             if (this.mqttConnection == null)
             {
@@ -354,6 +373,10 @@ abstract public class Mqtt implements MqttCallback
             // Codes_SRS_Mqtt_34_021: [If the call peekMessage returns null then this method shall do nothing and return null]
             return null;
         }
+        finally
+        {
+            this.incomingLock.unlock();
+        }
     }
 
     /**
@@ -432,7 +455,8 @@ abstract public class Mqtt implements MqttCallback
     {
         Message deliveredMessage = null;
         this.log.trace("Mqtt message with message id {} was acknowledge by service", iMqttDeliveryToken.getMessageId());
-        synchronized (this.publishLock)
+        this.publishLock.lock();
+        try
         {
             if (this.listener != null && unacknowledgedSentMessages.containsKey(iMqttDeliveryToken.getMessageId()))
             {
@@ -444,6 +468,10 @@ abstract public class Mqtt implements MqttCallback
                 this.log.warn("Mqtt message with message id {} that was acknowledge by service was not sent by this client, will be ignored", iMqttDeliveryToken.getMessageId());
             }
         }
+        finally
+        {
+            this.publishLock.unlock();
+        }
 
         if (deliveredMessage instanceof IotHubTransportMessage)
         {
@@ -12,18 +12,24 @@ import com.microsoft.azure.sdk.iot.device.transport.mqtt.exceptions.PahoExceptio
 import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.paho.client.mqttv3.*;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
 
 import javax.net.ssl.SSLContext;
 import java.net.Proxy;
 import java.net.UnknownHostException;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class MqttConnection
 {
     private MqttAsyncClient mqttAsyncClient = null;
     private MqttConnectOptions connectionOptions = null;
     private ConcurrentLinkedQueue<Pair<String, byte[]>> allReceivedMessages;
-    private Object mqttLock;
+    private ReentrantLock mqttLock;
+
+    // Only set while the session is persisted, the topics already subscribed to in the session kept by the service
+    private Set<String> sessionSubscriptions = null;
 
     //mqtt connection options
     private static final int KEEP_ALIVE_INTERVAL = 230;
@@ -46,6 +52,23 @@ public class MqttConnection
      * @throws TransportException when Mqtt async client cannot be instantiated
      */
     MqttConnection(String serverURI, String clientId, String userName, String password, SSLContext sslContext, ProxySettings proxySettings) throws TransportException, IllegalArgumentException, UnknownHostException
+    {
+        this(serverURI, clientId, userName, password, sslContext, proxySettings, null);
+    }
+
+    /**
+     * Constructor to create MqttAsync Client with Paho
+     * @param serverURI Uri to connect to
+     * @param clientId Client Id to connect to
+     * @param userName Username
+     * @param password password
+     * @param sslContext SSLContext for the connection
+     * @param persistenceDirectory the directory where Paho persists the in flight messages of the session, or null
+     *                             to keep them in memory
+     * @throws IllegalArgumentException is thrown if any of the parameters are null or empty
+     * @throws TransportException when Mqtt async client cannot be instantiated
+     */
+    MqttConnection(String serverURI, String clientId, String userName, String password, SSLContext sslContext, ProxySettings proxySettings, String persistenceDirectory) throws TransportException, IllegalArgumentException, UnknownHostException
     {
         if (serverURI == null || clientId == null || userName == null || sslContext == null)
         {
@@ -62,7 +85,8 @@ public class MqttConnection
         try
         {
             //Codes_SRS_MQTTCONNECTION_25_004: [The constructor shall create an MqttAsync client and update the connection options using the provided serverUri, clientId, userName, password and sslContext.]
-            this.mqttAsyncClient = new MqttAsyncClient(serverURI, clientId, new MemoryPersistence());
+            MqttClientPersistence persistence = (persistenceDirectory == null) ? new MemoryPersistence() : new MqttDefaultFilePersistence(persistenceDirectory);
+            this.mqttAsyncClient = new MqttAsyncClient(serverURI, clientId, persistence);
             this.mqttAsyncClient.setManualAcks(true);
             this.connectionOptions = new MqttConnectOptions();
             this.updateConnectionOptions(userName, password, sslContext, proxySettings);
@@ -77,7 +101,7 @@ public class MqttConnection
 
         //Codes_SRS_MQTTCONNECTION_25_003: [The constructor shall create lock, queue for this MqttConnection.]
         this.allReceivedMessages = new ConcurrentLinkedQueue<>();
-        this.mqttLock = new Object();
+        this.mqttLock = new ReentrantLock();
     }
 
     /**
@@ -193,9 +217,9 @@ public class MqttConnection
 
     /**
      * Getter for Mqtt Lock
-     * @return The object to be used for the lock
+     * @return The lock guarding the state of the connection
      */
-    Object getMqttLock()
+    ReentrantLock getMqttLock()
     {
         //Codes_SRS_MQTTCONNECTION_25_009: [Getter for the Mqtt Lock on this connection.]
         return this.mqttLock;
@@ -221,6 +245,49 @@ public class MqttConnection
         this.mqttAsyncClient = mqttAsyncClient;
     }
 
+    /**
+     * Keeps track of the topics subscribed to in the session, so they are not subscribed to again while the service
+     * keeps the session
+     * @param sessionSubscriptions the topics subscribed to in the session, shared by the connections of the session
+     */
+    void setSessionSubscriptions(Set<String> sessionSubscriptions)
+    {
+        this.sessionSubscriptions = sessionSubscriptions;
+    }
+
+    /**
+     * Forgets the topics subscribed to in the previous session if the service did not keep it
+     * @param isSessionPresent true if the CONNACK reported that the service kept the session
+     */
+    void onConnected(boolean isSessionPresent)
+    {
+        if (this.sessionSubscriptions != null && !isSessionPresent)
+        {
+            this.sessionSubscriptions.clear();
+        }
+    }
+
+    /**
+     * @param topic the topic to check
+     * @return true if the topic was already subscribed to in the session kept by the service
+     */
+    boolean isSubscribedInSession(String topic)
+    {
+        return this.sessionSubscriptions != null && this.sessionSubscriptions.contains(topic);
+    }
+
+    /**
+     * Records a topic subscribed to in the session
+     * @param topic the topic that was subscribed to
+     */
+    void onSubscribed(String topic)
+    {
+        if (this.sessionSubscriptions != null)
+        {
+            this.sessionSubscriptions.add(topic);
+        }
+    }
+
     /**
      * Sends the message ack for the given messageId
      *
@@ -144,7 +144,8 @@ public class MqttDeviceMethod extends Mqtt
     @Override
     public IotHubTransportMessage receive() throws TransportException
     {
-        synchronized (this.incomingLock)
+        this.incomingLock.lock();
+        try
         {
             IotHubTransportMessage message = null;
 
@@ -207,6 +208,10 @@ public class MqttDeviceMethod extends Mqtt
 
             return message;
         }
+        finally
+        {
+            this.incomingLock.unlock();
+        }
     }
 
     private void throwMethodsTransportException(String message) throws TransportException
@@ -275,7 +275,8 @@ public class MqttDeviceTwin extends Mqtt
     @Override
     public IotHubTransportMessage receive() throws TransportException
     {
-        synchronized (this.incomingLock)
+        this.incomingLock.lock();
+        try
         {
             IotHubTransportMessage message = null;
 
@@ -403,6 +404,10 @@ public class MqttDeviceTwin extends Mqtt
             // Codes_SRS_MQTTDEVICETWIN_34_034: [If the call peekMessage returns null or empty string then this method shall do nothing and return null]
             return message;
         }
+        finally
+        {
+            this.incomingLock.unlock();
+        }
     }
 
     private void throwDeviceTwinTransportException(String message) throws TransportException
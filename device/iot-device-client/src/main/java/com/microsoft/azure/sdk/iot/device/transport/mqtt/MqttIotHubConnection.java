@@ -11,11 +11,14 @@ import lombok.extern.slf4j.Slf4j;
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.net.URLEncoder;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.microsoft.azure.sdk.iot.device.MessageType.DEVICE_METHODS;
 import static com.microsoft.azure.sdk.iot.device.MessageType.DEVICE_TWIN;
@@ -23,8 +26,8 @@ import static com.microsoft.azure.sdk.iot.device.MessageType.DEVICE_TWIN;
 @Slf4j
 public class MqttIotHubConnection implements IotHubTransportConnection, MqttMessageListener
 {
-    /** The MQTT connection lock. */
-    private final Object MQTT_CONNECTION_LOCK = new Object();
+    /** The MQTT connection lock. It guards the opening and closing of the connection and the sending of messages. */
+    private final ReentrantLock connectionLock = new ReentrantLock();
 
     private final DeviceClientConfig config;
     private IotHubConnectionStatus state = IotHubConnectionStatus.DISCONNECTED;
@@ -56,6 +59,9 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
     private Map<IotHubTransportMessage, Integer> receivedMessagesToAcknowledge = new ConcurrentHashMap<>();
     private Map<Integer, Message> unacknowledgedSentMessages = new ConcurrentHashMap<>();
 
+    // Topics subscribed to in the persistent session, kept across the connections of the session
+    private final Set<String> sessionSubscriptions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     /**
      * Constructs an instance from the given {@link DeviceClientConfig}
      * object.
@@ -64,7 +70,8 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
      */
     public MqttIotHubConnection(DeviceClientConfig config) throws IllegalArgumentException
     {
-        synchronized (MQTT_CONNECTION_LOCK)
+        this.connectionLock.lock();
+        try
         {
             // Codes_SRS_MQTTIOTHUBCONNECTION_15_003: [The constructor shall throw a new IllegalArgumentException
             // if any of the parameters of the configuration is null or empty.]
@@ -91,6 +98,10 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
             this.deviceMethod = null;
             this.deviceTwin = null;
         }
+        finally
+        {
+            this.connectionLock.unlock();
+        }
     }
 
     /**
@@ -109,7 +120,8 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
             throw new UnsupportedOperationException("Mqtt does not support Multiplexing");
         }
 
-        synchronized (MQTT_CONNECTION_LOCK)
+        this.connectionLock.lock();
+        try
         {
             //Codes_SRS_MQTTIOTHUBCONNECTION_15_006: [If the MQTT connection is already open,
             // the function shall do nothing.]
@@ -158,24 +170,39 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
 
                 this.iotHubUserName = this.config.getIotHubHostname() + "/" + clientId + "/" + API_VERSION + "&" + clientUserAgentIdentifier;
 
+                // the hub keeps the session of the client id, so only the in flight messages need to be persisted
+                String persistenceDirectory = this.config.getMqttPersistentSessionDirectory();
+
                 String host = this.config.getGatewayHostname();
                 if (host == null || host.isEmpty())
                 {
                     host = this.config.getIotHubHostname();
                 }
+                String serverUri;
+                ProxySettings proxySettings;
                 if (this.config.isUseWebsocket())
                 {
                     //Codes_SRS_MQTTIOTHUBCONNECTION_25_018: [The function shall establish an MQTT WS connection with a server uri as wss://<hostName>/$iothub/websocket?iothub-no-client-cert=true if websocket was enabled.]
-                    final String wsServerUri = WS_SSL_PREFIX + host + WEBSOCKET_RAW_PATH + WEBSOCKET_QUERY ;
-                    mqttConnection = new MqttConnection(wsServerUri,
-                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext, this.config.getProxySettings());
+                    serverUri = WS_SSL_PREFIX + host + WEBSOCKET_RAW_PATH + WEBSOCKET_QUERY ;
+                    proxySettings = this.config.getProxySettings();
                 }
                 else
                 {
                     //Codes_SRS_MQTTIOTHUBCONNECTION_25_019: [The function shall establish an MQTT connection with a server uri as ssl://<hostName>:8883 if websocket was not enabled.]
-                    final String serverUri = SSL_PREFIX + host + SSL_PORT_SUFFIX;
+                    serverUri = SSL_PREFIX + host + SSL_PORT_SUFFIX;
+                    proxySettings = null;
+                }
+
+                if (persistenceDirectory == null)
+                {
                     mqttConnection = new MqttConnection(serverUri,
-                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext, null);
+                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext, proxySettings);
+                }
+                else
+                {
+                    mqttConnection = new MqttConnection(serverUri,
+                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext, proxySettings, persistenceDirectory);
+                    mqttConnection.setSessionSubscriptions(this.sessionSubscriptions);
                 }
 
                 //Codes_SRS_MQTTIOTHUBCONNECTION_34_030: [This function shall instantiate this object's MqttMessaging object with this object as the listener.]
@@ -213,6 +240,10 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
                 throw new TransportException(e);
             }
         }
+        finally
+        {
+            this.connectionLock.unlock();
+        }
     }
 
     /**
@@ -322,7 +353,8 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
     @Override
     public IotHubStatusCode sendMessage(Message message) throws TransportException
     {
-        synchronized (MQTT_CONNECTION_LOCK)
+        this.connectionLock.lock();
+        try
         {
             // Codes_SRS_MQTTIOTHUBCONNECTION_15_010: [If the message is null or empty,
             // the function shall return status code BAD_FORMAT.]
@@ -368,6 +400,10 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
 
             return result;
         }
+        finally
+        {
+            this.connectionLock.unlock();
+        }
     }
 
     /**
@@ -7,6 +7,9 @@ import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.Pair;
 import com.microsoft.azure.sdk.iot.device.auth.*;
 import com.microsoft.azure.sdk.iot.device.transport.ExponentialBackoffWithJitter;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubClientMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.NoOpIotHubClientMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.ReconnectionAdmissionController;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderSymmetricKey;
@@ -960,6 +963,151 @@ public class DeviceClientConfigTest
         assertEquals(mockRetryPolicy, actual);
     }
 
+    @Test
+    public void getMetricsDefaultsToNoOp()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        IotHubClientMetrics actual = config.getMetrics();
+
+        //assert
+        assertEquals(NoOpIotHubClientMetrics.class, actual.getClass());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setMetricsThrowsIfNull()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setMetrics(null);
+    }
+
+    @Test
+    public void setMetricsSetsMetrics(@Mocked final IotHubClientMetrics mockMetrics)
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setMetrics(mockMetrics);
+
+        //assert
+        assertEquals(mockMetrics, config.getMetrics());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setOrderedDeliveryWindowThrowsIfNegative()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setOrderedDeliveryWindow(-1);
+    }
+
+    @Test
+    public void setOrderedDeliveryWindowSetsWindow()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setOrderedDeliveryWindow(5);
+
+        //assert
+        assertEquals(5, config.getOrderedDeliveryWindow());
+    }
+
+    @Test
+    public void setReconnectionAdmissionControllerSetsController(@Mocked final ReconnectionAdmissionController mockAdmissionController)
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setReconnectionAdmissionController(mockAdmissionController);
+
+        //assert
+        assertEquals(mockAdmissionController, config.getReconnectionAdmissionController());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setMqttPersistentSessionDirectoryThrowsIfEmpty()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setMqttPersistentSessionDirectory("");
+    }
+
+    @Test
+    public void setMqttPersistentSessionDirectorySetsDirectory()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setMqttPersistentSessionDirectory("someDirectory");
+
+        //assert
+        assertEquals("someDirectory", config.getMqttPersistentSessionDirectory());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setAmqpReceiverPrefetchThrowsIfLessThanOne()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setAmqpReceiverPrefetch(0);
+    }
+
+    @Test
+    public void setAmqpReceiverPrefetchSetsPrefetch()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+        int defaultPrefetch = config.getAmqpReceiverPrefetch();
+
+        //act
+        config.setAmqpReceiverPrefetch(10);
+
+        //assert
+        assertEquals(1024, defaultPrefetch);
+        assertEquals(10, config.getAmqpReceiverPrefetch());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setDeviceMethodLimitThrowsIfTimeoutNegative()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setDeviceMethodLimit("someMethod", 1, -1);
+    }
+
+    @Test
+    public void setDeviceMethodLimitSavesLimit()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        config.setDeviceMethodLimit("someMethod", 2, 1000);
+
+        //assert
+        assertEquals(2, (int) config.getDeviceMethodLimits().get("someMethod").getKey());
+        assertEquals(1000, (long) config.getDeviceMethodLimits().get("someMethod").getValue());
+        assertNull(config.getDeviceMethodExecutor());
+    }
+
     //Tests_SRS_DEVICECLIENTCONFIG_34_030: [If the provided timeout is 0 or negative, this function shall throw an IllegalArgumentException.]
     @Test (expected = IllegalArgumentException.class)
     public void setOperationTimeoutThrowsForNegativeTimeout()
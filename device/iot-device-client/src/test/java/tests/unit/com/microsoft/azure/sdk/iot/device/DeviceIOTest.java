@@ -6,6 +6,7 @@ package tests.unit.com.microsoft.azure.sdk.iot.device;
 import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.exceptions.DeviceClientException;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.AdaptiveTaskScheduler;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubReceiveTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
@@ -22,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
@@ -815,6 +817,205 @@ public class DeviceIOTest
         assertEquals(interval, Deencapsulation.getField(deviceIO, "sendPeriodInMilliseconds"));
     }
 
+    @Test
+    public void setSendPeriodInMillisecondsTransportOpenedCancelsPreviousSchedule(@Mocked final ScheduledFuture mockFuture)
+            throws URISyntaxException, IOException, InterruptedException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        new NonStrictExpectations()
+        {
+            {
+                mockScheduler.scheduleAtFixedRate((Runnable) any, anyLong, anyLong, TimeUnit.MILLISECONDS);
+                result = mockFuture;
+            }
+        };
+        openDeviceIO(deviceIO, mockedTransport, mockExecutors, mockScheduler);
+
+        // act
+        Deencapsulation.invoke(deviceIO, "setSendPeriodInMilliseconds",  1234L);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockFuture.cancel(false);
+                times = 1;
+            }
+        };
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void setAdaptivePeriodsThrowsIfOpen()
+            throws URISyntaxException, IOException, InterruptedException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        openDeviceIO(deviceIO, mockedTransport, mockExecutors, mockScheduler);
+
+        // act
+        Deencapsulation.invoke(deviceIO, "setAdaptivePeriods", 10L, 1000L);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setAdaptivePeriodsThrowsForInvalidBounds()
+            throws URISyntaxException, IOException, InterruptedException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+
+        // act
+        Deencapsulation.invoke(deviceIO, "setAdaptivePeriods", 1000L, 10L);
+    }
+
+    @Test
+    public void openWithAdaptivePeriodsSchedulesAdaptiveTasks()
+            throws URISyntaxException, IOException, InterruptedException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        Deencapsulation.invoke(deviceIO, "setAdaptivePeriods", 0L, 1000L);
+
+        // act
+        openDeviceIO(deviceIO, mockedTransport, mockExecutors, mockScheduler);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockScheduler.scheduleAtFixedRate((Runnable) any, anyLong, anyLong, (TimeUnit) any);
+                times = 0;
+                mockScheduler.schedule((Runnable) any, 0, TimeUnit.MILLISECONDS);
+                times = 2;
+                mockedTransport.setAdaptiveTaskSchedulers((AdaptiveTaskScheduler) any, (AdaptiveTaskScheduler) any);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void setSendAndReceivePeriodsWithAdaptivePeriodsSetTheMaxPeriodOfEachTask()
+            throws URISyntaxException, IOException, InterruptedException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        Deencapsulation.invoke(deviceIO, "setAdaptivePeriods", 10L, 1000L);
+        Deencapsulation.invoke(deviceIO, "setReceivePeriodInMilliseconds", 500L);
+        openDeviceIO(deviceIO, mockedTransport, mockExecutors, mockScheduler);
+
+        // act
+        Deencapsulation.invoke(deviceIO, "setSendPeriodInMilliseconds", 50L);
+
+        // assert
+        AdaptiveTaskScheduler sendTaskScheduler = Deencapsulation.getField(deviceIO, "adaptiveSendTaskScheduler");
+        AdaptiveTaskScheduler receiveTaskScheduler = Deencapsulation.getField(deviceIO, "adaptiveReceiveTaskScheduler");
+        assertEquals(50L, sendTaskScheduler.getMaxPeriodInMilliseconds());
+        assertEquals(500L, receiveTaskScheduler.getMaxPeriodInMilliseconds());
+        new Verifications()
+        {
+            {
+                mockScheduler.scheduleAtFixedRate((Runnable) any, anyLong, anyLong, (TimeUnit) any);
+                times = 0;
+            }
+        };
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setSendPeriodWithAdaptivePeriodsThrowsIfSmallerThanMinPeriod()
+            throws URISyntaxException, IOException, InterruptedException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        Deencapsulation.invoke(deviceIO, "setAdaptivePeriods", 100L, 1000L);
+
+        // act
+        Deencapsulation.invoke(deviceIO, "setSendPeriodInMilliseconds", 50L);
+    }
+
+    @Test
+    public void openWithRuntimeSchedulesTasksOnSharedThreads()
+            throws URISyntaxException, IOException, InterruptedException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        IotHubClientRuntime runtime = new IotHubClientRuntime(1);
+        Deencapsulation.invoke(deviceIO, "setRuntime", runtime);
+
+        try
+        {
+            // act
+            Deencapsulation.invoke(deviceIO, "open");
+
+            // assert
+            assertEquals("OPEN", Deencapsulation.getField(deviceIO, "state").toString());
+            new Verifications()
+            {
+                {
+                    Executors.newScheduledThreadPool(anyInt);
+                    times = 0;
+                    mockedTransport.setSharedScheduler((ScheduledExecutorService) any);
+                    times = 1;
+                }
+            };
+        }
+        finally
+        {
+            runtime.close();
+        }
+    }
+
+    @Test
+    public void closeWithRuntimeLeavesRuntimeOpen()
+            throws URISyntaxException, IOException, InterruptedException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        IotHubClientRuntime runtime = new IotHubClientRuntime(1);
+        Deencapsulation.invoke(deviceIO, "setRuntime", runtime);
+        Deencapsulation.invoke(deviceIO, "open");
+
+        try
+        {
+            // act
+            Deencapsulation.invoke(deviceIO, "close");
+
+            // assert
+            assertEquals("CLOSED", Deencapsulation.getField(deviceIO, "state").toString());
+            assertFalse(runtime.isClosed());
+            assertNull(Deencapsulation.getField(deviceIO, "taskScheduler"));
+        }
+        finally
+        {
+            runtime.close();
+        }
+    }
+
+    @Test (expected = IOException.class)
+    public void openThrowsIfRuntimeIsClosed()
+            throws URISyntaxException, IOException, InterruptedException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        IotHubClientRuntime runtime = new IotHubClientRuntime(1);
+        Deencapsulation.invoke(deviceIO, "setRuntime", runtime);
+        runtime.close();
+
+        // act
+        Deencapsulation.invoke(deviceIO, "open");
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void setRuntimeThrowsIfOpen()
+            throws URISyntaxException, IOException, InterruptedException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        openDeviceIO(deviceIO, mockedTransport, mockExecutors, mockScheduler);
+
+        // act
+        Deencapsulation.invoke(deviceIO, "setRuntime", new IotHubClientRuntime(1));
+    }
+
     /* Tests_SRS_DEVICE_IO_21_035: [If the `sendTask` is null, the setSendPeriodInMilliseconds shall throw IOException.] */
     @Test (expected = IOException.class)
     public void setSendPeriodInMillisecondsNullSendTaskThrows()
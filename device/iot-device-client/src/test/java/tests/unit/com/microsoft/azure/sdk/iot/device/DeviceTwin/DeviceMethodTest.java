@@ -13,6 +13,10 @@ import mockit.NonStrictExpectations;
 import mockit.Verifications;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
 import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_METHOD_RECEIVE_REQUEST;
 import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_METHOD_SUBSCRIBE_REQUEST;
 import static com.microsoft.azure.sdk.iot.device.MessageType.DEVICE_METHODS;
@@ -420,4 +424,121 @@ public class DeviceMethodTest
 
     }
 
+    @Test
+    public void deviceMethodResponseCallbackDispatchesToInvocationExecutor(@Mocked final ExecutorService mockedExecutor) throws IllegalArgumentException
+    {
+        //arrange
+        DeviceMethod testMethod = new DeviceMethod(mockedDeviceIO, mockedConfig, mockedStatusCB, null);
+        testMethod.subscribeToDeviceMethod(mockedDeviceMethodCB, null);
+        testMethod.setInvocationExecutor(mockedExecutor);
+
+        IotHubTransportMessage testMessage = new IotHubTransportMessage("TestPayload".getBytes(), DEVICE_METHODS);
+        testMessage.setDeviceOperationType(DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
+        testMessage.setMethodName("testMethod");
+
+        MessageCallback testDeviceMethodResponseMessageCallback = Deencapsulation.newInnerInstance("deviceMethodResponseCallback", testMethod);
+
+        //act
+        IotHubMessageResult result = testDeviceMethodResponseMessageCallback.execute(testMessage, null);
+
+        //assert
+        assertEquals(IotHubMessageResult.COMPLETE, result);
+        new Verifications()
+        {
+            {
+                mockedExecutor.execute((Runnable) any);
+                times = 1;
+                mockedDeviceMethodCB.call(anyString, any, any);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void deviceMethodResponseCallbackRejectsInvocationsOverLimitWith429(@Mocked final ExecutorService mockedExecutor) throws IllegalArgumentException
+    {
+        //arrange
+        DeviceMethod testMethod = new DeviceMethod(mockedDeviceIO, mockedConfig, mockedStatusCB, null);
+        testMethod.subscribeToDeviceMethod(mockedDeviceMethodCB, null);
+        testMethod.setInvocationExecutor(mockedExecutor);
+        testMethod.setInvocationLimit("testMethod", 1, 0);
+
+        IotHubTransportMessage testMessage = new IotHubTransportMessage("TestPayload".getBytes(), DEVICE_METHODS);
+        testMessage.setDeviceOperationType(DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
+        testMessage.setMethodName("testMethod");
+
+        MessageCallback testDeviceMethodResponseMessageCallback = Deencapsulation.newInnerInstance("deviceMethodResponseCallback", testMethod);
+
+        //act
+        // the first invocation never runs, so it keeps the only permit of the method
+        testDeviceMethodResponseMessageCallback.execute(testMessage, null);
+        IotHubMessageResult result = testDeviceMethodResponseMessageCallback.execute(testMessage, null);
+
+        //assert
+        assertEquals(IotHubMessageResult.COMPLETE, result);
+        new Verifications()
+        {
+            {
+                mockedExecutor.execute((Runnable) any);
+                times = 1;
+                // the subscription request, then the response
+                List<IotHubTransportMessage> sentMessages = new ArrayList<>();
+                mockedDeviceIO.sendEventAsync(withCapture(sentMessages), (IotHubEventCallback) any, any, anyString);
+                assertEquals(2, sentMessages.size());
+                assertEquals("429", sentMessages.get(1).getStatus());
+            }
+        };
+    }
+
+    @Test
+    public void invocationTimeoutSends504(@Mocked final ExecutorService mockedExecutor) throws IllegalArgumentException, InterruptedException
+    {
+        //arrange
+        DeviceMethod testMethod = new DeviceMethod(mockedDeviceIO, mockedConfig, mockedStatusCB, null);
+        testMethod.subscribeToDeviceMethod(mockedDeviceMethodCB, null);
+        testMethod.setInvocationExecutor(mockedExecutor);
+        testMethod.setInvocationLimit("testMethod", 0, 10);
+
+        IotHubTransportMessage testMessage = new IotHubTransportMessage("TestPayload".getBytes(), DEVICE_METHODS);
+        testMessage.setDeviceOperationType(DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
+        testMessage.setMethodName("testMethod");
+
+        MessageCallback testDeviceMethodResponseMessageCallback = Deencapsulation.newInnerInstance("deviceMethodResponseCallback", testMethod);
+
+        //act
+        testDeviceMethodResponseMessageCallback.execute(testMessage, null);
+        Thread.sleep(500);
+
+        //assert
+        new Verifications()
+        {
+            {
+                // the subscription request, then the response
+                List<IotHubTransportMessage> sentMessages = new ArrayList<>();
+                mockedDeviceIO.sendEventAsync(withCapture(sentMessages), (IotHubEventCallback) any, any, anyString);
+                assertEquals(2, sentMessages.size());
+                assertEquals("504", sentMessages.get(1).getStatus());
+            }
+        };
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setInvocationLimitThrowsOnNegativeLimit() throws IllegalArgumentException
+    {
+        //arrange
+        DeviceMethod testMethod = new DeviceMethod(mockedDeviceIO, mockedConfig, mockedStatusCB, null);
+
+        //act
+        testMethod.setInvocationLimit("testMethod", -1, 0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setInvocationLimitThrowsOnEmptyMethodName() throws IllegalArgumentException
+    {
+        //arrange
+        DeviceMethod testMethod = new DeviceMethod(mockedDeviceIO, mockedConfig, mockedStatusCB, null);
+
+        //act
+        testMethod.setInvocationLimit("", 1, 0);
+    }
 }
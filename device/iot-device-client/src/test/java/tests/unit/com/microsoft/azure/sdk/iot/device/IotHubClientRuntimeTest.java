@@ -0,0 +1,49 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientRuntime;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for IotHubClientRuntime
+ */
+public class IotHubClientRuntimeTest
+{
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForZeroThreads()
+    {
+        //act
+        new IotHubClientRuntime(0);
+    }
+
+    @Test
+    public void defaultConstructorUsesOneThreadPerProcessor()
+    {
+        //act
+        IotHubClientRuntime runtime = new IotHubClientRuntime();
+
+        //assert
+        assertEquals(Runtime.getRuntime().availableProcessors(), runtime.getThreadCount());
+        runtime.close();
+    }
+
+    @Test
+    public void closeMarksRuntimeClosed()
+    {
+        //arrange
+        IotHubClientRuntime runtime = new IotHubClientRuntime(2);
+        assertFalse(runtime.isClosed());
+
+        //act
+        runtime.close();
+
+        //assert
+        assertTrue(runtime.isClosed());
+    }
+}
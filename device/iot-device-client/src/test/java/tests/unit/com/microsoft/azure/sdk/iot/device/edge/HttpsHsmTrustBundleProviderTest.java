@@ -12,6 +12,7 @@ import com.microsoft.azure.sdk.iot.device.hsm.HttpsHsmClient;
 import com.microsoft.azure.sdk.iot.device.edge.HttpsHsmTrustBundleProvider;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
+import mockit.Verifications;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -20,6 +21,7 @@ import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.fail;
 
 public class HttpsHsmTrustBundleProviderTest
 {
@@ -58,4 +60,38 @@ public class HttpsHsmTrustBundleProviderTest
         //assert
         assertEquals(expectedCertificatesString, actualCertificatesString);
     }
+
+    @Test
+    public void getTrustBundleCertsClosesTheHsmClient() throws TransportException, IOException, HsmException, URISyntaxException
+    {
+        //arrange
+        HttpsHsmTrustBundleProvider provider = new HttpsHsmTrustBundleProvider();
+        new NonStrictExpectations()
+        {
+            {
+                mockedHttpsHsmClient.getTrustBundle(expectedAPIVersion);
+                result = new HsmException("some hsm error");
+            }
+        };
+
+        //act
+        try
+        {
+            provider.getTrustBundleCerts(expectedUri, expectedAPIVersion);
+            fail("expected the hsm error to be thrown");
+        }
+        catch (HsmException e)
+        {
+            // expected
+        }
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedHttpsHsmClient.close();
+                times = 1;
+            }
+        };
+    }
 }
@@ -151,6 +151,45 @@ public class HttpHsmSignatureProviderTest
     }
 
 
+    @Test
+    public void signReusesSignatureOfIdenticalRequest(@Mocked URLEncoder mockedURLEncoder) throws NoSuchAlgorithmException, TransportException, IOException, URISyntaxException, HsmException
+    {
+        //arrange
+        final String keyName = "keyName";
+        final String expectedDigestEncoded = "some encoded digest";
+        new NonStrictExpectations()
+        {
+            {
+                new HttpsHsmClient(expectedProviderUri);
+                result = mockedHttpsHsmClient;
+
+                mockedHttpsHsmClient.sign(expectedApiVersion, keyName, (SignRequest) any, expectedGenId);
+                result = mockedSignResponse;
+
+                URLEncoder.encode(anyString, "UTF-8");
+                result = expectedDigestEncoded;
+            }
+        };
+
+        HttpHsmSignatureProvider signatureProvider = new HttpHsmSignatureProvider(expectedProviderUri, expectedApiVersion);
+
+        //act
+        String firstDigest = signatureProvider.sign(keyName, "some data", expectedGenId);
+        String secondDigest = signatureProvider.sign(keyName, "some data", expectedGenId);
+        signatureProvider.sign(keyName, "other data", expectedGenId);
+
+        //assert
+        assertEquals(expectedDigestEncoded, firstDigest);
+        assertEquals(expectedDigestEncoded, secondDigest);
+        new Verifications()
+        {
+            {
+                mockedHttpsHsmClient.sign(expectedApiVersion, keyName, (SignRequest) any, expectedGenId);
+                times = 2;
+            }
+        };
+    }
+
     // Codes_SRS_HTTPHSMSIGNATUREPROVIDER_34_007: [If the provided data is null or empty, this function shall throw an IllegalArgumentException.]
     @Test (expected = IllegalArgumentException.class)
     public void signThrowsForNullData() throws NoSuchAlgorithmException, TransportException, IOException, URISyntaxException, HsmException
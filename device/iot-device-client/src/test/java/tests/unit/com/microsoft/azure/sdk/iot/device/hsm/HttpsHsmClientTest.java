@@ -27,6 +27,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
 import static junit.framework.TestCase.assertTrue;
 import static junit.framework.TestCase.fail;
 
@@ -65,9 +66,6 @@ public class HttpsHsmClientTest
     @Mocked
     Channels mockedChannels;
 
-    @Mocked
-    OutputStream mockedOutputStream;
-
     @Mocked
     TrustBundleResponse mockedTrustBundleResponse;
 
@@ -189,7 +187,7 @@ public class HttpsHsmClientTest
                 new HttpsRequest((URL) any, HttpsMethod.POST, expectedJson.getBytes(), anyString);
                 result = mockedHttpsRequest;
 
-                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString);
+                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString, true);
                 result = expectedMetaData;
 
                 mockedHttpsRequest.getBody();
@@ -201,13 +199,18 @@ public class HttpsHsmClientTest
                 UnixSocketChannel.open(mockedUnixSocketAddress);
                 result = mockedUnixSocketChannel;
 
-                mockedUnixSocketChannel.read((ByteBuffer) any);
-                result = -1;
-
-                Channels.newOutputStream(mockedUnixSocketChannel);
-                result = mockedOutputStream;
-
-                HttpsRequestResponseSerializer.deserializeResponse((BufferedReader) any);
+                mockedUnixSocketChannel.write((ByteBuffer) any);
+                result = new Delegate()
+                {
+                    int write(ByteBuffer buffer)
+                    {
+                        int written = buffer.remaining();
+                        buffer.position(buffer.limit());
+                        return written;
+                    }
+                };
+
+                HttpsRequestResponseSerializer.readResponse((InputStream) any);
                 result = mockedHttpsResponse;
 
                 mockedHttpsResponse.getStatus();
@@ -225,10 +228,10 @@ public class HttpsHsmClientTest
         new Verifications()
         {
             {
-                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString);
+                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString, true);
                 times = 1;
 
-                HttpsRequestResponseSerializer.deserializeResponse((BufferedReader) any);
+                HttpsRequestResponseSerializer.readResponse((InputStream) any);
                 times = 1;
 
                 mockedUnixSocketChannel.write((ByteBuffer) any);
@@ -434,4 +437,25 @@ public class HttpsHsmClientTest
 
         assertTrue("expected hsm exception, but no exception encountered", correctExceptionEncountered);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void closeClosesTheUnixSocketConnections(@Mocked final URI mockedURI, @Mocked final UnixSocketHttpClient mockedUnixSocketHttpClient) throws URISyntaxException
+    {
+        //arrange
+        HttpsHsmClient client = new HttpsHsmClient(expectedBaseUrl);
+        Deencapsulation.setField(client, "unixSocketHttpClient", mockedUnixSocketHttpClient);
+
+        //act
+        client.close();
+
+        //assert
+        assertNull(Deencapsulation.getField(client, "unixSocketHttpClient"));
+        new Verifications()
+        {
+            {
+                mockedUnixSocketHttpClient.close();
+                times = 1;
+            }
+        };
+    }
+}
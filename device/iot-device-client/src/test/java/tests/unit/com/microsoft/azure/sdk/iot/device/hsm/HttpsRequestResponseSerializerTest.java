@@ -15,6 +15,7 @@ import mockit.*;
 import org.junit.Test;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
@@ -22,7 +23,9 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -341,4 +344,82 @@ public class HttpsRequestResponseSerializerTest
         //act
         HttpsRequestResponseSerializer.deserializeResponse(new BufferedReader(new StringReader(stringToDeserialize)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void deserializeStreamReadsOnlyContentLengthBytes() throws IOException
+    {
+        //arrange
+        final Map<String, List<String>> expectedHeaders = new HashMap<>();
+        expectedHeaders.put("Content-Length", Collections.singletonList(" 4"));
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(
+                "HTTP/1.1 200 OK\r\nContent-Length: 4\r\n\r\ntestHTTP/1.1".getBytes(StandardCharsets.US_ASCII));
+
+        //act
+        HttpsRequestResponseSerializer.readResponse(inputStream);
+
+        //assert
+        assertEquals(8, inputStream.available());
+        new Verifications()
+        {
+            {
+                new HttpsResponse(200, "test".getBytes(), expectedHeaders, "OK".getBytes());
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void deserializeStreamReadsChunkedBody() throws IOException
+    {
+        //arrange
+        final Map<String, List<String>> expectedHeaders = new HashMap<>();
+        expectedHeaders.put("Transfer-Encoding", Collections.singletonList(" chunked"));
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(
+                ("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                        "4\r\ntest\r\n3;name=value\r\nabc\r\n0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        //act
+        HttpsRequestResponseSerializer.readResponse(inputStream);
+
+        //assert
+        assertEquals(0, inputStream.available());
+        new Verifications()
+        {
+            {
+                new HttpsResponse(200, "testabc".getBytes(), expectedHeaders, "OK".getBytes());
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void deserializeStreamAcceptsReasonWithSpaces() throws IOException
+    {
+        //arrange
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(
+                "HTTP/1.1 404 Not Found\r\n\r\n{}".getBytes(StandardCharsets.US_ASCII));
+
+        //act
+        HttpsRequestResponseSerializer.readResponse(inputStream);
+
+        //assert
+        new Verifications()
+        {
+            {
+                new HttpsResponse(404, "{}".getBytes(), (Map<String, List<String>>) any, "Not Found".getBytes());
+                times = 1;
+            }
+        };
+    }
+
+    @Test (expected = IOException.class)
+    public void deserializeStreamThrowsForTruncatedBody() throws IOException
+    {
+        //arrange
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(
+                "HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\ntest".getBytes(StandardCharsets.US_ASCII));
+
+        //act
+        HttpsRequestResponseSerializer.readResponse(inputStream);
+    }
+}
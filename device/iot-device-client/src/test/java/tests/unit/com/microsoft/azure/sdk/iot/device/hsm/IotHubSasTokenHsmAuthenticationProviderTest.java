@@ -8,6 +8,7 @@ package tests.unit.com.microsoft.azure.sdk.iot.device.hsm;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasToken;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.hsm.HsmException;
+import com.microsoft.azure.sdk.iot.device.hsm.HttpHsmSignatureProvider;
 import com.microsoft.azure.sdk.iot.device.hsm.IotHubSasTokenHsmAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.auth.SignatureProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
@@ -184,4 +185,23 @@ public class IotHubSasTokenHsmAuthenticationProviderTest
         //act
         IotHubSasTokenHsmAuthenticationProvider.create(null, expectedDeviceId, expectedModuleId, expectedHostname, expectedGatewayHostname, "gen1", expectedTimeToLive, expectedBufferPercent);
     }
+
+    @Test
+    public void closeClosesTheHttpHsmSignatureProvider(@Mocked final HttpHsmSignatureProvider mockedHttpHsmSignatureProvider) throws IOException, TransportException
+    {
+        //arrange
+        IotHubSasTokenHsmAuthenticationProvider auth = IotHubSasTokenHsmAuthenticationProvider.create(mockedHttpHsmSignatureProvider, expectedDeviceId, expectedModuleId, expectedHostname, expectedGatewayHostname, "gen1", expectedTimeToLive, expectedBufferPercent);
+
+        //act
+        auth.close();
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedHttpHsmSignatureProvider.close();
+                times = 1;
+            }
+        };
+    }
 }
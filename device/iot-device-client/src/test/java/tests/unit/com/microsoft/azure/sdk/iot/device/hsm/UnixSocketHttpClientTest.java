@@ -0,0 +1,186 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.hsm;
+
+import com.microsoft.azure.sdk.iot.device.hsm.HttpsRequestResponseSerializer;
+import com.microsoft.azure.sdk.iot.device.hsm.UnixSocketHttpClient;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import mockit.Delegate;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class UnixSocketHttpClientTest
+{
+    @Mocked
+    UnixSocketAddress mockedUnixSocketAddress;
+
+    @Mocked
+    UnixSocketChannel mockedUnixSocketChannel;
+
+    @Mocked
+    Channels mockedChannels;
+
+    @Mocked
+    HttpsRequestResponseSerializer mockedHttpsRequestResponseSerializer;
+
+    @Mocked
+    HttpsResponse mockedHttpsResponse;
+
+    private static final String UNIX_SOCKET_ADDRESS = "/var/run/iotedge/workload.sock";
+    private static final byte[] REQUEST = "GET /trust-bundle HTTP/1.1\r\n\r\n".getBytes();
+
+    private void expectExchange(final boolean isReusable) throws IOException
+    {
+        new NonStrictExpectations()
+        {
+            {
+                UnixSocketChannel.open((UnixSocketAddress) any);
+                result = mockedUnixSocketChannel;
+
+                mockedUnixSocketChannel.write((ByteBuffer) any);
+                result = new Delegate()
+                {
+                    int write(ByteBuffer buffer)
+                    {
+                        int written = buffer.remaining();
+                        buffer.position(buffer.limit());
+                        return written;
+                    }
+                };
+
+                HttpsRequestResponseSerializer.readResponse((InputStream) any);
+                result = mockedHttpsResponse;
+
+                HttpsRequestResponseSerializer.isConnectionReusable(mockedHttpsResponse);
+                result = isReusable;
+            }
+        };
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForEmptyAddress()
+    {
+        //act
+        new UnixSocketHttpClient("");
+    }
+
+    @Test
+    public void sendReusesKeepAliveConnection() throws IOException
+    {
+        //arrange
+        expectExchange(true);
+        UnixSocketHttpClient client = new UnixSocketHttpClient(UNIX_SOCKET_ADDRESS);
+
+        //act
+        HttpsResponse firstResponse = client.send(REQUEST);
+        HttpsResponse secondResponse = client.send(REQUEST);
+
+        //assert
+        assertSame(mockedHttpsResponse, firstResponse);
+        assertSame(mockedHttpsResponse, secondResponse);
+        assertEquals(1, client.getIdleConnectionCount());
+        new Verifications()
+        {
+            {
+                UnixSocketChannel.open((UnixSocketAddress) any);
+                times = 1;
+                mockedUnixSocketChannel.close();
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void sendClosesConnectionThatCannotBeReused() throws IOException
+    {
+        //arrange
+        expectExchange(false);
+        UnixSocketHttpClient client = new UnixSocketHttpClient(UNIX_SOCKET_ADDRESS);
+
+        //act
+        client.send(REQUEST);
+        client.send(REQUEST);
+
+        //assert
+        assertEquals(0, client.getIdleConnectionCount());
+        new Verifications()
+        {
+            {
+                UnixSocketChannel.open((UnixSocketAddress) any);
+                times = 2;
+                mockedUnixSocketChannel.close();
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void sendRetriesOnNewConnectionIfPooledConnectionFails() throws IOException
+    {
+        //arrange
+        expectExchange(true);
+        new NonStrictExpectations()
+        {
+            {
+                HttpsRequestResponseSerializer.readResponse((InputStream) any);
+                result = mockedHttpsResponse;
+                result = new IOException("Response is empty.");
+                result = mockedHttpsResponse;
+            }
+        };
+        UnixSocketHttpClient client = new UnixSocketHttpClient(UNIX_SOCKET_ADDRESS);
+        client.send(REQUEST);
+
+        //act
+        HttpsResponse response = client.send(REQUEST);
+
+        //assert
+        assertSame(mockedHttpsResponse, response);
+        new Verifications()
+        {
+            {
+                UnixSocketChannel.open((UnixSocketAddress) any);
+                times = 2;
+                mockedUnixSocketChannel.close();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void closeClosesIdleConnections() throws IOException
+    {
+        //arrange
+        expectExchange(true);
+        UnixSocketHttpClient client = new UnixSocketHttpClient(UNIX_SOCKET_ADDRESS);
+        client.send(REQUEST);
+
+        //act
+        client.close();
+
+        //assert
+        assertEquals(0, client.getIdleConnectionCount());
+        new Verifications()
+        {
+            {
+                mockedUnixSocketChannel.close();
+                times = 1;
+            }
+        };
+    }
+}
@@ -0,0 +1,339 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.transport.AdaptiveTaskScheduler;
+import mockit.Delegate;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for AdaptiveTaskScheduler
+ */
+public class AdaptiveTaskSchedulerTest
+{
+    @Mocked
+    ScheduledExecutorService mockExecutor;
+
+    @Mocked
+    ScheduledFuture mockFuture;
+
+    private final List<Runnable> scheduledRuns = new ArrayList<>();
+    private final List<Long> scheduledDelays = new ArrayList<>();
+    private final FakeTask task = new FakeTask();
+
+    private static class FakeBacklog implements AdaptiveTaskScheduler.Backlog
+    {
+        boolean hasBacklog;
+
+        @Override
+        public boolean hasBacklog()
+        {
+            return hasBacklog;
+        }
+    }
+
+    private static class FakeTask implements Runnable
+    {
+        int runCount;
+        Runnable duringRun;
+
+        @Override
+        public void run()
+        {
+            runCount++;
+            if (duringRun != null)
+            {
+                duringRun.run();
+            }
+        }
+    }
+
+    @Before
+    public void setUp()
+    {
+        new NonStrictExpectations()
+        {
+            {
+                mockExecutor.schedule((Runnable) any, anyLong, TimeUnit.MILLISECONDS);
+                result = new Delegate()
+                {
+                    ScheduledFuture schedule(Runnable run, long delay, TimeUnit unit)
+                    {
+                        scheduledRuns.add(run);
+                        scheduledDelays.add(delay);
+                        return mockFuture;
+                    }
+                };
+                mockFuture.cancel(false);
+                result = true;
+            }
+        };
+    }
+
+    private void runLatest()
+    {
+        scheduledRuns.get(scheduledRuns.size() - 1).run();
+    }
+
+    private long latestDelay()
+    {
+        return scheduledDelays.get(scheduledDelays.size() - 1);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void validateBoundsThrowsForNegativeMin()
+    {
+        //act
+        AdaptiveTaskScheduler.validateBounds(-1, 100);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void validateBoundsThrowsForMaxSmallerThanMin()
+    {
+        //act
+        AdaptiveTaskScheduler.validateBounds(100, 10);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullTask()
+    {
+        //act
+        new AdaptiveTaskScheduler(mockExecutor, null, new FakeBacklog(), 10, 100);
+    }
+
+    @Test
+    public void startSchedulesFirstRunImmediately()
+    {
+        //arrange
+        AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, new FakeBacklog(), 10, 100);
+
+        //act
+        scheduler.start();
+
+        //assert
+        assertEquals(1, scheduledRuns.size());
+        assertEquals(0L, latestDelay());
+    }
+
+    @Test
+    public void idleRunsDoublePeriodUpToMax()
+    {
+        //arrange
+        AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, new FakeBacklog(), 10, 50);
+        scheduler.start();
+
+        //act
+        for (int i = 0; i < 4; i++)
+        {
+            runLatest();
+        }
+
+        //assert
+        assertEquals(4, task.runCount);
+        assertEquals(20L, (long) scheduledDelays.get(1));
+        assertEquals(40L, (long) scheduledDelays.get(2));
+        assertEquals(50L, (long) scheduledDelays.get(3));
+        assertEquals(50L, (long) scheduledDelays.get(4));
+    }
+
+    @Test
+    public void idleRunsBackOffFromZeroMin()
+    {
+        //arrange
+        AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, new FakeBacklog(), 0, 4);
+        scheduler.start();
+
+        //act
+        runLatest();
+        runLatest();
+
+        //assert
+        assertEquals(2L, scheduler.getCurrentPeriodInMilliseconds());
+    }
+
+    @Test
+    public void runWithBacklogResetsPeriodToMin()
+    {
+        //arrange
+        FakeBacklog backlog = new FakeBacklog();
+        AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, backlog, 10, 1000);
+        scheduler.start();
+        runLatest();
+        runLatest();
+        backlog.hasBacklog = true;
+
+        //act
+        runLatest();
+
+        //assert
+        assertEquals(10L, scheduler.getCurrentPeriodInMilliseconds());
+        assertEquals(10L, latestDelay());
+    }
+
+    @Test
+    public void wakeUpWhileIdleCancelsPendingRunAndRunsImmediately()
+    {
+        //arrange
+        AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, new FakeBacklog(), 10, 1000);
+        scheduler.start();
+        runLatest();
+
+        //act
+        scheduler.wakeUp();
+
+        //assert
+        assertEquals(10L, scheduler.getCurrentPeriodInMilliseconds());
+        assertEquals(3, scheduledRuns.size());
+        assertEquals(0L, latestDelay());
+        new Verifications()
+        {
+            {
+                mockFuture.cancel(false);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void wakeUpWhileRunningDefersTheNextRunToTheEndOfTheRun()
+    {
+        //arrange
+        final AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, new FakeBacklog(), 10, 1000);
+        scheduler.start();
+        runLatest();
+        task.duringRun = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                scheduler.wakeUp();
+            }
+        };
+
+        //act
+        runLatest();
+
+        //assert
+        assertEquals(3, scheduledRuns.size());
+        assertEquals(0L, latestDelay());
+        assertEquals(10L, scheduler.getCurrentPeriodInMilliseconds());
+        new Verifications()
+        {
+            {
+                mockFuture.cancel(anyBoolean);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void runThatWasReplacedDoesNotRunTheTask()
+    {
+        //arrange
+        AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, new FakeBacklog(), 10, 1000);
+        scheduler.start();
+        runLatest();
+        Runnable replacedRun = scheduledRuns.get(1);
+        scheduler.wakeUp();
+
+        //act
+        replacedRun.run();
+
+        //assert
+        assertEquals(1, task.runCount);
+        assertEquals(3, scheduledRuns.size());
+    }
+
+    @Test
+    public void wakeUpAtMinPeriodDoesNotReschedule()
+    {
+        //arrange
+        AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, new FakeBacklog(), 10, 1000);
+        scheduler.start();
+
+        //act
+        scheduler.wakeUp();
+
+        //assert
+        assertEquals(1, scheduledRuns.size());
+        new Verifications()
+        {
+            {
+                mockFuture.cancel(anyBoolean);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void wakeUpBeforeRescheduleKeepsMinPeriod()
+    {
+        //arrange
+        AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, new FakeBacklog(), 10, 1000);
+        scheduler.start();
+
+        //act
+        scheduler.wakeUp();
+        runLatest();
+
+        //assert
+        assertEquals(10L, scheduler.getCurrentPeriodInMilliseconds());
+    }
+
+    @Test
+    public void setMaxPeriodBoundsTheNextIdleRuns()
+    {
+        //arrange
+        AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, new FakeBacklog(), 10, 1000);
+        scheduler.start();
+        runLatest();
+
+        //act
+        scheduler.setMaxPeriodInMilliseconds(30);
+        runLatest();
+        runLatest();
+
+        //assert
+        assertEquals(30L, scheduler.getMaxPeriodInMilliseconds());
+        assertEquals(30L, latestDelay());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setMaxPeriodThrowsForMaxSmallerThanMin()
+    {
+        //arrange
+        AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, new FakeBacklog(), 10, 1000);
+
+        //act
+        scheduler.setMaxPeriodInMilliseconds(5);
+    }
+
+    @Test
+    public void stopPreventsReschedule()
+    {
+        //arrange
+        AdaptiveTaskScheduler scheduler = new AdaptiveTaskScheduler(mockExecutor, task, new FakeBacklog(), 10, 1000);
+        scheduler.start();
+
+        //act
+        scheduler.stop();
+        runLatest();
+
+        //assert
+        assertEquals(0, task.runCount);
+        assertEquals(1, scheduledRuns.size());
+    }
+}
@@ -0,0 +1,120 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.exceptions.ThrottledException;
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.DecorrelatedJitterBackoff;
+import com.microsoft.azure.sdk.iot.device.transport.RetryDecision;
+import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import org.junit.Test;
+
+import java.security.SecureRandom;
+
+import static org.junit.Assert.*;
+
+public class DecorrelatedJitterBackoffTest
+{
+    @Mocked
+    SecureRandom mockedRandom;
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsWithZeroRetryCount()
+    {
+        //act
+        new DecorrelatedJitterBackoff(0, 100, 1000, 500);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsWithBaseBackoffGreaterThanMaxBackoff()
+    {
+        //act
+        new DecorrelatedJitterBackoff(10, 2000, 1000, 500);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsWithThrottledMinBackoffGreaterThanMaxBackoff()
+    {
+        //act
+        new DecorrelatedJitterBackoff(10, 100, 1000, 2000);
+    }
+
+    @Test
+    public void getRetryDecisionReturnsFalseAfterRetryCount()
+    {
+        //arrange
+        final RetryPolicy policy = new DecorrelatedJitterBackoff(3, 100, 1000, 500);
+
+        //act
+        RetryDecision decision = policy.getRetryDecision(3, new TransportException());
+
+        //assert
+        assertFalse(decision.shouldRetry());
+    }
+
+    @Test
+    public void getRetryDecisionDrawsWaitTimeBetweenBaseAndTripledCeiling()
+    {
+        //arrange
+        final RetryPolicy policy = new DecorrelatedJitterBackoff(10, 100, 60 * 1000, 500);
+        new NonStrictExpectations()
+        {
+            {
+                mockedRandom.nextDouble();
+                returns(0.0, 0.999999);
+            }
+        };
+
+        //act
+        RetryDecision lowest = policy.getRetryDecision(2, new TransportException());
+        RetryDecision highest = policy.getRetryDecision(2, new TransportException());
+
+        //assert
+        assertTrue(lowest.shouldRetry());
+        assertEquals(100, lowest.getDuration());
+        assertEquals(900, highest.getDuration());
+    }
+
+    @Test
+    public void getRetryDecisionCapsWaitTimeAtMaxBackoff()
+    {
+        //arrange
+        final RetryPolicy policy = new DecorrelatedJitterBackoff(100, 100, 1000, 500);
+        new NonStrictExpectations()
+        {
+            {
+                mockedRandom.nextDouble();
+                result = 0.999999;
+            }
+        };
+
+        //act
+        RetryDecision decision = policy.getRetryDecision(50, new TransportException());
+
+        //assert
+        assertEquals(1000, decision.getDuration());
+    }
+
+    @Test
+    public void getRetryDecisionWaitsAtLeastThrottledMinBackoffWhenThrottled()
+    {
+        //arrange
+        final RetryPolicy policy = new DecorrelatedJitterBackoff(10, 100, 60 * 1000, 5000);
+        new NonStrictExpectations()
+        {
+            {
+                mockedRandom.nextDouble();
+                result = 0.0;
+            }
+        };
+
+        //act
+        RetryDecision decision = policy.getRetryDecision(1, new ThrottledException());
+
+        //assert
+        assertEquals(5000, decision.getDuration());
+    }
+}
@@ -21,6 +21,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.microsoft.azure.sdk.iot.device.IotHubConnectionStatusChangeReason.*;
 import static com.microsoft.azure.sdk.iot.device.transport.IotHubConnectionStatus.*;
@@ -616,6 +617,37 @@ public class IotHubTransportTest
         assertTrue(methodsCalled.toString().contains("invokeCallbacks"));
     }
 
+    @Test
+    public void closeCancelsScheduledRetriesAndTheirPackets(final @Mocked ScheduledFuture mockedFuture) throws DeviceClientException
+    {
+        //arrange
+        final Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "callbackPacketsQueue", callbackPacketsQueue);
+        Deencapsulation.setField(transport, "taskScheduler", mockedScheduledExecutorService);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedIotHubTransportConnection);
+        IotHubTransport.MessageRetryRunnable retry = transport.new MessageRetryRunnable(new ConcurrentLinkedQueue<IotHubTransportPacket>(), mockedPacket);
+        Deencapsulation.setField(retry, "transportPacket", mockedPacket);
+        Deencapsulation.setField(retry, "future", mockedFuture);
+        Set<IotHubTransport.MessageRetryRunnable> scheduledRetries = Deencapsulation.getField(transport, "scheduledRetries");
+        scheduledRetries.add(retry);
+
+        //act
+        transport.close(CLIENT_CLOSE, null);
+
+        //assert
+        assertTrue(scheduledRetries.isEmpty());
+        new Verifications()
+        {
+            {
+                mockedFuture.cancel(false);
+                times = 1;
+                mockedPacket.setStatus(IotHubStatusCode.MESSAGE_CANCELLED_ONCLOSE);
+                times = 1;
+            }
+        };
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_032: [If the provided exception is not a TransportException, this function shall return COMMUNICATION_ERROR.]
     @Test
     public void exceptionToStatusChangeReasonWithNonTransportException()
@@ -1484,6 +1516,51 @@ public class IotHubTransportTest
         assertEquals(1, receivedMessagesQueue.size());
     }
 
+    @Test
+    public void acknowledgeReceivedMessageAbandonsAmqpMessageIfCallbackThrows() throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        final Object context = new Object();
+        final IllegalStateException callbackException = new IllegalStateException();
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedAmqpsIotHubConnection);
+        new NonStrictExpectations()
+        {
+            {
+                mockedTransportMessage.getMessageCallback();
+                result = mockedMessageCallback;
+
+                mockedTransportMessage.getMessageCallbackContext();
+                result = context;
+
+                mockedMessageCallback.execute(mockedTransportMessage, context);
+                result = callbackException;
+            }
+        };
+
+        IllegalStateException thrownException = null;
+
+        //act
+        try
+        {
+            Deencapsulation.invoke(transport, "acknowledgeReceivedMessage", mockedTransportMessage);
+        }
+        catch (IllegalStateException e)
+        {
+            thrownException = e;
+        }
+
+        //assert
+        assertEquals(callbackException, thrownException);
+        new Verifications()
+        {
+            {
+                mockedAmqpsIotHubConnection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+                times = 1;
+            }
+        };
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_056: [If the saved http transport connection can receive a message, add it to receivedMessagesQueue.]
     @Test
     public void addReceivedMessagesOverHttpToReceivedQueueChecksForHttpMessages() throws TransportException
@@ -1890,6 +1967,66 @@ public class IotHubTransportTest
     }
 
 
+    @Test
+    public void reconnectReportsAttemptsToReconnectionAdmissionController(@Mocked final ReconnectionAdmissionController mockedAdmissionController)
+    {
+        //arrange
+        new MockUp<IotHubTransport>()
+        {
+            @Mock boolean hasOperationTimedOut(long time)
+            {
+                return false;
+            }
+
+            @Mock TransportException singleReconnectAttempt()
+            {
+                return mockedTransportException;
+            }
+
+            @Mock void close(IotHubConnectionStatusChangeReason reason, Throwable cause)
+            {
+            }
+        };
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", DISCONNECTED_RETRYING);
+        new NonStrictExpectations()
+        {
+            {
+                mockedTransportException.isRetryable();
+                result = true;
+
+                mockedConfig.getRetryPolicy();
+                result = mockedRetryPolicy;
+
+                mockedConfig.getReconnectionAdmissionController();
+                result = mockedAdmissionController;
+
+                mockedRetryPolicy.getRetryDecision(anyInt, (TransportException) any);
+                result = mockedRetryDecision;
+
+                mockedRetryDecision.shouldRetry();
+                returns(true, true, false);
+
+                mockedAdmissionController.reserveAdmission();
+                result = 0L;
+            }
+        };
+
+        //act
+        Deencapsulation.invoke(transport, "reconnect", mockedTransportException);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedAdmissionController.reserveAdmission();
+                times = 2;
+                mockedAdmissionController.onReconnectionAttemptCompleted(mockedTransportException);
+                times = 2;
+            }
+        };
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_069: [If the reconnection effort ends because the reconnection timed out,
     // this function shall invoke close with RETRY_EXPIRED and a DeviceOperationTimeoutException.]
     @Test
@@ -2400,6 +2537,37 @@ public class IotHubTransportTest
         assertTrue(callbackPacketsQueue.contains(mockedPacket));
     }
 
+    @Test
+    public void addToCallbackQueueRecordsCompletionWhenMetricsAreSet(@Mocked final IotHubClientMetrics mockMetrics)
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "metrics", mockMetrics);
+        Deencapsulation.setField(transport, "metricsProtocol", IotHubClientProtocol.AMQPS);
+        Deencapsulation.setField(transport, "isRecordingMessageMetrics", true);
+        new NonStrictExpectations()
+        {
+            {
+                mockedPacket.getStatus();
+                result = IotHubStatusCode.OK_EMPTY;
+                mockedPacket.getStartTimeMillis();
+                result = System.currentTimeMillis();
+            }
+        };
+
+        //act
+        Deencapsulation.invoke(transport, "addToCallbackQueue", mockedPacket);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockMetrics.onMessageCompleted(IotHubClientProtocol.AMQPS, IotHubStatusCode.OK_EMPTY, anyLong);
+                times = 1;
+            }
+        };
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_28_002: [This function shall add the packet to the callback queue if it has a callback.]
     @Test
     public void addToCallbackQueuePacketNoCallback(@Mocked final IotHubEventCallback mockCallback)
@@ -2601,6 +2769,75 @@ public class IotHubTransportTest
     }
 
 
+    @Test
+    public void sendPacketRecordsWireWrittenOnceTheConnectionSent(@Mocked final MessageLifecycleTracer mockedTracer) throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedHttpsIotHubConnection);
+        Deencapsulation.setField(transport, "messageLifecycleTracer", mockedTracer);
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+                mockedPacket.getMessage();
+                result = mockedTransportMessage;
+                mockedTransportMessage.getMessageId();
+                result = "messageId";
+                mockedHttpsIotHubConnection.sendMessage((Message) any);
+                result = IotHubStatusCode.OK_EMPTY;
+            }
+        };
+
+        //act
+        Deencapsulation.invoke(transport, "sendPacket", mockedPacket);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedTracer.record("messageId", MessageLifecycleStage.WIRE_WRITTEN, null);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendPacketLeavesWireWrittenToTheAmqpConnection(@Mocked final MessageLifecycleTracer mockedTracer) throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedAmqpsIotHubConnection);
+        Deencapsulation.setField(transport, "messageLifecycleTracer", mockedTracer);
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getProtocol();
+                result = IotHubClientProtocol.AMQPS;
+                mockedPacket.getMessage();
+                result = mockedTransportMessage;
+                mockedTransportMessage.getMessageId();
+                result = "messageId";
+                mockedAmqpsIotHubConnection.sendMessage((Message) any);
+                result = IotHubStatusCode.OK;
+            }
+        };
+
+        //act
+        Deencapsulation.invoke(transport, "sendPacket", mockedPacket);
+
+        //assert
+        new Verifications()
+        {
+            {
+                // the AMQP connection only queued the message
+                mockedTracer.record(anyString, MessageLifecycleStage.WIRE_WRITTEN, (IotHubStatusCode) any);
+                times = 0;
+            }
+        };
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_074: [If the response from sending is not OK or OK_EMPTY, this function
     // shall invoke handleMessageException with that message.]
     @Test
@@ -2875,4 +3112,214 @@ public class IotHubTransportTest
             }
         };
     }
+
+    @Test
+    public void orderedDeliveryQueuesWaitingPacketsInSequenceOrder(@Injectable final IotHubTransportPacket olderPacket, @Injectable final IotHubTransportPacket newerPacket)
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        new NonStrictExpectations()
+        {
+            {
+                olderPacket.getSequenceNumber();
+                result = 1;
+                newerPacket.getSequenceNumber();
+                result = 2;
+            }
+        };
+
+        //act
+        Deencapsulation.invoke(transport, "setOrderedDeliveryWindow", 10);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = Deencapsulation.getField(transport, "waitingPacketsQueue");
+        waitingPacketsQueue.add(newerPacket);
+        waitingPacketsQueue.add(olderPacket);
+
+        //assert
+        assertEquals(olderPacket, waitingPacketsQueue.poll());
+        assertEquals(newerPacket, waitingPacketsQueue.poll());
+    }
+
+    @Test
+    public void defaultDeliverySendsPacketsInTheOrderTheyWereQueued(@Injectable final IotHubTransportPacket olderPacket,
+                                                                    @Injectable final IotHubTransportPacket newerPacket,
+                                                                    @Injectable final Message olderMessage,
+                                                                    @Injectable final Message newerMessage) throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedIotHubTransportConnection);
+        Deencapsulation.invoke(transport, "setOrderedDeliveryWindow", 0);
+        new NonStrictExpectations()
+        {
+            {
+                olderPacket.getSequenceNumber();
+                result = 1;
+                olderPacket.getMessage();
+                result = olderMessage;
+                olderMessage.getMessageId();
+                result = "olderMessageId";
+                newerPacket.getSequenceNumber();
+                result = 2;
+                newerPacket.getMessage();
+                result = newerMessage;
+                newerMessage.getMessageId();
+                result = "newerMessageId";
+                mockedIotHubTransportConnection.sendMessage((Message) any);
+                result = IotHubStatusCode.OK_EMPTY;
+            }
+        };
+
+        // a packet queued again for its retry goes behind the packets queued before the retry
+        Queue<IotHubTransportPacket> waitingPacketsQueue = Deencapsulation.getField(transport, "waitingPacketsQueue");
+        waitingPacketsQueue.add(newerPacket);
+        waitingPacketsQueue.add(olderPacket);
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertTrue(waitingPacketsQueue.isEmpty());
+        new VerificationsInOrder()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessage(newerMessage);
+                mockedIotHubTransportConnection.sendMessage(olderMessage);
+            }
+        };
+    }
+
+    @Test
+    public void orderedDeliveryHoldsNewerPacketsUntilTheRetriedPacketIsQueuedAgain(@Injectable final IotHubTransportPacket olderPacket,
+                                                                                    @Injectable final IotHubTransportPacket newerPacket,
+                                                                                    @Injectable final Message olderMessage,
+                                                                                    @Injectable final Message newerMessage) throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedIotHubTransportConnection);
+        Deencapsulation.invoke(transport, "setOrderedDeliveryWindow", 10);
+        new NonStrictExpectations()
+        {
+            {
+                olderPacket.getSequenceNumber();
+                result = 1;
+                olderPacket.getMessage();
+                result = olderMessage;
+                olderMessage.getMessageId();
+                result = "olderMessageId";
+                newerPacket.getSequenceNumber();
+                result = 2;
+                newerPacket.getMessage();
+                result = newerMessage;
+                newerMessage.getMessageId();
+                result = "newerMessageId";
+                mockedIotHubTransportConnection.sendMessage((Message) any);
+                result = IotHubStatusCode.OK_EMPTY;
+            }
+        };
+
+        // the older packet failed and waits for its retry while the newer one is queued
+        AtomicInteger scheduledRetryCount = Deencapsulation.getField(transport, "scheduledRetryCount");
+        scheduledRetryCount.incrementAndGet();
+        Queue<IotHubTransportPacket> waitingPacketsQueue = Deencapsulation.getField(transport, "waitingPacketsQueue");
+        waitingPacketsQueue.add(newerPacket);
+        transport.sendMessages();
+
+        //act
+        waitingPacketsQueue.add(olderPacket);
+        scheduledRetryCount.decrementAndGet();
+        transport.sendMessages();
+
+        //assert
+        assertTrue(waitingPacketsQueue.isEmpty());
+        new VerificationsInOrder()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessage(olderMessage);
+                times = 1;
+                mockedIotHubTransportConnection.sendMessage(newerMessage);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendMessagesInOrderedDeliveryDoesNotSendBeyondWindow() throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Map<String, IotHubTransportPacket> inProgressMessages = new HashMap<>();
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "inProgressPackets", inProgressMessages);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "orderedDeliveryWindow", 1);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedIotHubTransportConnection);
+
+        inProgressMessages.put("someMessageId", mockedPacket);
+        waitingPacketsQueue.add(mockedPacket);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedMessage.isExpired();
+                result = false;
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertEquals(1, waitingPacketsQueue.size());
+        new Verifications()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessage((Message) any);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void sendMessagesInOrderedDeliveryHoldsBackPacketsWhileRetryIsScheduled() throws TransportException
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "orderedDeliveryWindow", 10);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedIotHubTransportConnection);
+        ((AtomicInteger) Deencapsulation.getField(transport, "scheduledRetryCount")).set(1);
+
+        waitingPacketsQueue.add(mockedPacket);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedMessage.isExpired();
+                result = false;
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertEquals(1, waitingPacketsQueue.size());
+        new Verifications()
+        {
+            {
+                mockedIotHubTransportConnection.sendMessage((Message) any);
+                times = 0;
+            }
+        };
+    }
 }
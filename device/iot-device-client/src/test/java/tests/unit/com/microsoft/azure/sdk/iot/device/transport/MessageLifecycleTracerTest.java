@@ -0,0 +1,162 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.transport.MessageLifecycleEvent;
+import com.microsoft.azure.sdk.iot.device.transport.MessageLifecycleStage;
+import com.microsoft.azure.sdk.iot.device.transport.MessageLifecycleTracer;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MessageLifecycleTracer
+ */
+public class MessageLifecycleTracerTest
+{
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForZeroCapacity()
+    {
+        //act
+        new MessageLifecycleTracer(0, 1);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNegativeSampleEvery()
+    {
+        //act
+        new MessageLifecycleTracer(16, -1);
+    }
+
+    @Test
+    public void constructorRoundsCapacityUpToPowerOfTwo()
+    {
+        //act
+        MessageLifecycleTracer tracer = new MessageLifecycleTracer(100, 1);
+
+        //assert
+        assertEquals(128, tracer.getCapacity());
+    }
+
+    @Test
+    public void recordDoesNothingWhenSamplingIsOff()
+    {
+        //arrange
+        MessageLifecycleTracer tracer = new MessageLifecycleTracer(16, 0);
+
+        //act
+        tracer.record("message", MessageLifecycleStage.ENQUEUED);
+
+        //assert
+        assertFalse(tracer.isSampled("message"));
+        assertTrue(tracer.getEvents().isEmpty());
+    }
+
+    @Test
+    public void samplingDecisionIsTheSameForEveryHopOfAMessage()
+    {
+        //arrange
+        MessageLifecycleTracer tracer = new MessageLifecycleTracer(1024, 3);
+
+        //act
+        for (int i = 0; i < 30; i++)
+        {
+            tracer.record("message" + i, MessageLifecycleStage.ENQUEUED);
+            tracer.record("message" + i, MessageLifecycleStage.DEQUEUED);
+        }
+
+        //assert
+        List<MessageLifecycleEvent> events = tracer.getEvents();
+        assertFalse(events.isEmpty());
+        assertTrue(events.size() < 60);
+        for (int i = 0; i < events.size(); i += 2)
+        {
+            assertEquals(events.get(i).getMessageId(), events.get(i + 1).getMessageId());
+            assertEquals(MessageLifecycleStage.ENQUEUED, events.get(i).getStage());
+            assertEquals(MessageLifecycleStage.DEQUEUED, events.get(i + 1).getStage());
+        }
+    }
+
+    @Test
+    public void getEventsKeepsNewestEventsInOrderWhenBufferWraps()
+    {
+        //arrange
+        MessageLifecycleTracer tracer = new MessageLifecycleTracer(4, 1);
+
+        //act
+        for (int i = 0; i < 10; i++)
+        {
+            tracer.record("message" + i, MessageLifecycleStage.ENQUEUED);
+        }
+
+        //assert
+        List<MessageLifecycleEvent> events = tracer.getEvents();
+        assertEquals(4, events.size());
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals("message" + (6 + i), events.get(i).getMessageId());
+        }
+        assertTrue(events.get(0).getEpochNanos() <= events.get(3).getEpochNanos());
+    }
+
+    @Test
+    public void dumpPrintsOneLinePerMessage()
+    {
+        //arrange
+        MessageLifecycleTracer tracer = new MessageLifecycleTracer(16, 1);
+        tracer.record("first", MessageLifecycleStage.ENQUEUED);
+        tracer.record("second", MessageLifecycleStage.ENQUEUED);
+        tracer.record("first", MessageLifecycleStage.ACKNOWLEDGED, IotHubStatusCode.OK_EMPTY);
+
+        //act
+        String dump = tracer.dump();
+
+        //assert
+        String[] lines = dump.split(System.lineSeparator());
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("first: ENQUEUED +0.000ms ACKNOWLEDGED(OK_EMPTY) +"));
+        assertTrue(lines[1].startsWith("second: ENQUEUED +0.000ms"));
+    }
+
+    @Test
+    public void exportOtlpJsonBuildsOneSpanPerMessage()
+    {
+        //arrange
+        MessageLifecycleTracer tracer = new MessageLifecycleTracer(16, 1);
+        tracer.record("first", MessageLifecycleStage.ENQUEUED);
+        tracer.record("first", MessageLifecycleStage.WIRE_WRITTEN);
+        tracer.record("first", MessageLifecycleStage.ACKNOWLEDGED, IotHubStatusCode.THROTTLED);
+        tracer.record("second", MessageLifecycleStage.ENQUEUED);
+
+        //act
+        String json = tracer.exportOtlpJson();
+
+        //assert
+        JsonObject request = new JsonParser().parse(json).getAsJsonObject();
+        JsonArray spans = request.getAsJsonArray("resourceSpans").get(0).getAsJsonObject()
+                .getAsJsonArray("scopeSpans").get(0).getAsJsonObject()
+                .getAsJsonArray("spans");
+        assertEquals(2, spans.size());
+
+        JsonObject first = spans.get(0).getAsJsonObject();
+        assertEquals(32, first.get("traceId").getAsString().length());
+        assertEquals(16, first.get("spanId").getAsString().length());
+        assertEquals(3, first.getAsJsonArray("events").size());
+        assertEquals("enqueued", first.getAsJsonArray("events").get(0).getAsJsonObject().get("name").getAsString());
+        assertEquals(2, first.getAsJsonObject("status").get("code").getAsInt());
+        assertTrue(Long.parseLong(first.get("startTimeUnixNano").getAsString()) <= Long.parseLong(first.get("endTimeUnixNano").getAsString()));
+
+        JsonObject second = spans.get(1).getAsJsonObject();
+        assertNotEquals(first.get("traceId").getAsString(), second.get("traceId").getAsString());
+        assertNull(second.get("status"));
+    }
+}
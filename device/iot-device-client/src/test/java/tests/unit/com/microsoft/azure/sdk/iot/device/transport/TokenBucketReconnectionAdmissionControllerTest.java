@@ -0,0 +1,100 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.exceptions.ThrottledException;
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.TokenBucketReconnectionAdmissionController;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketReconnectionAdmissionControllerTest
+{
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsWithNonPositiveRate()
+    {
+        //act
+        new TokenBucketReconnectionAdmissionController(0, 1);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsWithNonPositiveBurst()
+    {
+        //act
+        new TokenBucketReconnectionAdmissionController(10, 0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsWithMinRateGreaterThanMaxRate()
+    {
+        //act
+        new TokenBucketReconnectionAdmissionController(10, 20, 1, 1);
+    }
+
+    @Test
+    public void reserveAdmissionAdmitsBurstAtOnceAndSpacesTheOthers()
+    {
+        //arrange
+        TokenBucketReconnectionAdmissionController controller = new TokenBucketReconnectionAdmissionController(1, 2);
+
+        //act
+        long firstDelay = controller.reserveAdmission();
+        long secondDelay = controller.reserveAdmission();
+        long thirdDelay = controller.reserveAdmission();
+        long fourthDelay = controller.reserveAdmission();
+
+        //assert
+        assertEquals(0, firstDelay);
+        assertEquals(0, secondDelay);
+        assertTrue(thirdDelay > 900 && thirdDelay <= 1000);
+        assertTrue(fourthDelay > 1900 && fourthDelay <= 2000);
+    }
+
+    @Test
+    public void onReconnectionAttemptCompletedHalvesRateWhenThrottled()
+    {
+        //arrange
+        TokenBucketReconnectionAdmissionController controller = new TokenBucketReconnectionAdmissionController(100, 10, 5, 1);
+
+        //act
+        controller.onReconnectionAttemptCompleted(new ThrottledException());
+        controller.onReconnectionAttemptCompleted(new ThrottledException());
+        controller.onReconnectionAttemptCompleted(new ThrottledException());
+        controller.onReconnectionAttemptCompleted(new ThrottledException());
+
+        //assert
+        assertEquals(10, controller.getAdmissionsPerSecond(), 0);
+    }
+
+    @Test
+    public void onReconnectionAttemptCompletedRaisesRateOnSuccessUpToMaxRate()
+    {
+        //arrange
+        TokenBucketReconnectionAdmissionController controller = new TokenBucketReconnectionAdmissionController(100, 10, 30, 1);
+        controller.onReconnectionAttemptCompleted(new ThrottledException());
+
+        //act
+        controller.onReconnectionAttemptCompleted(null);
+        double raisedRate = controller.getAdmissionsPerSecond();
+        controller.onReconnectionAttemptCompleted(null);
+
+        //assert
+        assertEquals(80, raisedRate, 0);
+        assertEquals(100, controller.getAdmissionsPerSecond(), 0);
+    }
+
+    @Test
+    public void onReconnectionAttemptCompletedKeepsRateOnOtherFailures()
+    {
+        //arrange
+        TokenBucketReconnectionAdmissionController controller = new TokenBucketReconnectionAdmissionController(100, 10, 30, 1);
+
+        //act
+        controller.onReconnectionAttemptCompleted(new TransportException());
+
+        //assert
+        assertEquals(100, controller.getAdmissionsPerSecond(), 0);
+    }
+}
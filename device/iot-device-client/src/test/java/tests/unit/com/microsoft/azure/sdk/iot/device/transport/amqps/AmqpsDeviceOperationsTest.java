@@ -339,6 +339,58 @@ public class AmqpsDeviceOperationsTest
         };
     }
 
+    @Test
+    public void openLinksGivesReceiverLinkPrefetchCredit()
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceClientConfig.getAmqpReceiverPrefetch();
+                result = 50;
+            }
+        };
+        final AmqpsDeviceOperationsMock amqpsDeviceOperations = new AmqpsDeviceOperationsMock(mockDeviceClientConfig);
+
+        //act
+        Deencapsulation.invoke(amqpsDeviceOperations, "openLinks", mockSession);
+        final Receiver receiverLink = Deencapsulation.getField(amqpsDeviceOperations, "receiverLink");
+
+        //assert
+        new Verifications()
+        {
+            {
+                receiverLink.flow(50);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void hasSenderLinkCreditReturnsFalseWithoutCredit()
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockSender.getCredit();
+                returns(0, 1);
+            }
+        };
+        final AmqpsDeviceOperationsMock amqpsDeviceOperations = new AmqpsDeviceOperationsMock(mockDeviceClientConfig);
+        boolean hasCreditWithoutLink = Deencapsulation.invoke(amqpsDeviceOperations, "hasSenderLinkCredit");
+        Deencapsulation.setField(amqpsDeviceOperations, "senderLink", mockSender);
+
+        //act
+        boolean hasCreditWithoutCredit = Deencapsulation.invoke(amqpsDeviceOperations, "hasSenderLinkCredit");
+        boolean hasCreditWithCredit = Deencapsulation.invoke(amqpsDeviceOperations, "hasSenderLinkCredit");
+
+        //assert
+        assertFalse(hasCreditWithoutLink);
+        assertFalse(hasCreditWithoutCredit);
+        assertTrue(hasCreditWithCredit);
+    }
+
     /*
     **Tests_SRS_AMQPSDEVICEOPERATIONS_12_011: [**If the sender link is not null the function shall closeNow it and sets it to null.**]**
     **Tests_SRS_AMQPSDEVICEOPERATIONS_12_012: [**If the receiver link is not null the function shall closeNow it and sets it to null.**]**
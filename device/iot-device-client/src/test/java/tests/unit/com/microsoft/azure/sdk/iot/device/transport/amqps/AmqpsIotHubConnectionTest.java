@@ -19,6 +19,9 @@ import com.microsoft.azure.sdk.iot.device.net.IotHubUri;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubConnectionStatus;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubListener;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import com.microsoft.azure.sdk.iot.device.transport.MessageLifecycleEvent;
+import com.microsoft.azure.sdk.iot.device.transport.MessageLifecycleStage;
+import com.microsoft.azure.sdk.iot.device.transport.MessageLifecycleTracer;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.*;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.*;
 import mockit.*;
@@ -38,7 +41,9 @@ import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.*;
@@ -347,8 +352,6 @@ public class AmqpsIotHubConnectionTest {
     // endpoint private member variables using the send/receiveEndpointFormat constants and device id.]
     // Tests_SRS_AMQPSIOTHUBCONNECTION_15_004: [The constructor shall initialize a new Handshaker
     // (Proton) object to handle communication handshake.]
-    // Tests_SRS_AMQPSIOTHUBCONNECTION_15_005: [The constructor shall initialize a new FlowController
-    // (Proton) object to handle communication flow.]
     // Tests_SRS_AMQPSIOTHUBCONNECTION_15_006: [The constructor shall set its state to DISCONNECTED.]
     @Test
     public void constructorCopiesAllData() throws TransportException
@@ -376,7 +379,7 @@ public class AmqpsIotHubConnectionTest {
                 new Handshaker();
                 times = 1;
                 new FlowController();
-                times = 1;
+                times = 0;
             }
         };
 
@@ -2307,6 +2310,7 @@ public class AmqpsIotHubConnectionTest {
 
         //act
         boolean result = connection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.COMPLETE);
+        Deencapsulation.invoke(connection, "processPendingAcknowledgements");
 
         //assert
         assertTrue(result);
@@ -2338,6 +2342,7 @@ public class AmqpsIotHubConnectionTest {
 
         //act
         boolean result = connection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.REJECT);
+        Deencapsulation.invoke(connection, "processPendingAcknowledgements");
 
         //assert
         new Verifications()
@@ -2367,6 +2372,7 @@ public class AmqpsIotHubConnectionTest {
 
         //act
         boolean result = connection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+        Deencapsulation.invoke(connection, "processPendingAcknowledgements");
 
         //assert
         new Verifications()
@@ -2393,6 +2399,7 @@ public class AmqpsIotHubConnectionTest {
 
         //act
         boolean result = connection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+        Deencapsulation.invoke(connection, "processPendingAcknowledgements");
 
         //assert
         assertFalse(result);
@@ -2420,6 +2427,7 @@ public class AmqpsIotHubConnectionTest {
 
         //act
         boolean result = connection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.ABANDON);
+        Deencapsulation.invoke(connection, "processPendingAcknowledgements");
 
         //assert
         assertFalse(result);
@@ -3226,6 +3234,14 @@ public class AmqpsIotHubConnectionTest {
         Deencapsulation.setField(connection, "amqpsSessionManager", mockAmqpsSessionManager);
         Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
 
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionManager, "hasLinkCredit", new Class[] {MessageType.class, String.class}, (MessageType) any, anyString);
+                result = true;
+            }
+        };
+
         new Expectations()
         {
             {
@@ -3267,6 +3283,301 @@ public class AmqpsIotHubConnectionTest {
         connection.onTimerTask(mockEvent);
     }
 
+    @Test
+    public void onTimerTaskLeavesMessageQueuedWithoutLinkCredit() throws TransportException
+    {
+        //arrange
+        Queue<com.microsoft.azure.sdk.iot.device.Message> messagesToSend = new ConcurrentLinkedQueue<>();
+        messagesToSend.add(mockIoTMessage);
+        baseExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionManager, "hasLinkCredit", new Class[] {MessageType.class, String.class}, (MessageType) any, anyString);
+                result = false;
+            }
+        };
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "messagesToSend", messagesToSend);
+        Deencapsulation.setField(connection, "amqpsSessionManager", mockAmqpsSessionManager);
+        Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
+
+        //act
+        connection.onTimerTask(mockEvent);
+
+        //assert
+        assertTrue(messagesToSend.isEmpty());
+        Map<String, Queue<com.microsoft.azure.sdk.iot.device.Message>> messagesWaitingForLinkCredit = Deencapsulation.getField(connection, "messagesWaitingForLinkCredit");
+        assertEquals(1, messagesWaitingForLinkCredit.size());
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionManager, "convertToProton", mockIoTMessage);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void onTimerTaskSendsMessagesOfOtherLinksWhileOneLinkWaitsForCredit(@Injectable final com.microsoft.azure.sdk.iot.device.Message waitingMessage,
+                                                                              @Injectable final com.microsoft.azure.sdk.iot.device.Message sentMessage) throws TransportException
+    {
+        //arrange
+        Queue<com.microsoft.azure.sdk.iot.device.Message> messagesToSend = new ConcurrentLinkedQueue<>();
+        messagesToSend.add(waitingMessage);
+        messagesToSend.add(sentMessage);
+        baseExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                waitingMessage.getConnectionDeviceId();
+                result = "waitingDevice";
+                sentMessage.getConnectionDeviceId();
+                result = "sentDevice";
+                Deencapsulation.invoke(mockAmqpsSessionManager, "hasLinkCredit", new Class[] {MessageType.class, String.class}, (MessageType) any, "waitingDevice");
+                result = false;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "hasLinkCredit", new Class[] {MessageType.class, String.class}, (MessageType) any, "sentDevice");
+                result = true;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "convertToProton", sentMessage);
+                result = mockedAmqpsConvertToProtonReturnValue;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "sendMessage", new Class[] {Message.class, MessageType.class, String.class}, (Message) any, (MessageType) any, anyString);
+                result = 1;
+            }
+        };
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "messagesToSend", messagesToSend);
+        Deencapsulation.setField(connection, "amqpsSessionManager", mockAmqpsSessionManager);
+        Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
+
+        //act
+        connection.onTimerTask(mockEvent);
+
+        //assert
+        assertTrue(messagesToSend.isEmpty());
+        Map<Integer, com.microsoft.azure.sdk.iot.device.Message> inProgressMessages = Deencapsulation.getField(connection, "inProgressMessages");
+        assertEquals(1, inProgressMessages.size());
+        assertEquals(sentMessage, inProgressMessages.get(1));
+        Map<String, Queue<com.microsoft.azure.sdk.iot.device.Message>> messagesWaitingForLinkCredit = Deencapsulation.getField(connection, "messagesWaitingForLinkCredit");
+        assertEquals(1, messagesWaitingForLinkCredit.size());
+        assertEquals(waitingMessage, messagesWaitingForLinkCredit.values().iterator().next().peek());
+    }
+
+    @Test
+    public void onTimerTaskRecordsWireWrittenWhenTheMessageIsSent() throws TransportException
+    {
+        //arrange
+        final MessageLifecycleTracer tracer = new MessageLifecycleTracer(16, 1);
+        Queue<com.microsoft.azure.sdk.iot.device.Message> messagesToSend = new ConcurrentLinkedQueue<>();
+        messagesToSend.add(mockIoTMessage);
+        baseExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getMessageLifecycleTracer();
+                result = tracer;
+                mockIoTMessage.getMessageId();
+                result = "messageId";
+                Deencapsulation.invoke(mockAmqpsSessionManager, "hasLinkCredit", new Class[] {MessageType.class, String.class}, (MessageType) any, anyString);
+                result = true;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "convertToProton", mockIoTMessage);
+                result = mockedAmqpsConvertToProtonReturnValue;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "sendMessage", new Class[] {Message.class, MessageType.class, String.class}, (Message) any, (MessageType) any, anyString);
+                result = 1;
+            }
+        };
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "messagesToSend", messagesToSend);
+        Deencapsulation.setField(connection, "amqpsSessionManager", mockAmqpsSessionManager);
+        Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
+
+        //act
+        connection.onTimerTask(mockEvent);
+
+        //assert
+        List<MessageLifecycleEvent> events = tracer.getEvents();
+        assertEquals(1, events.size());
+        assertEquals("messageId", events.get(0).getMessageId());
+        assertEquals(MessageLifecycleStage.WIRE_WRITTEN, events.get(0).getStage());
+    }
+
+    @Test
+    public void closeDropsMessagesHeldBackForCreditAndAcknowledgementsOfTheClosedConnection() throws TransportException
+    {
+        //arrange
+        Queue<com.microsoft.azure.sdk.iot.device.Message> waitingQueue = new ConcurrentLinkedQueue<>();
+        waitingQueue.add(mockIoTMessage);
+        baseExpectations();
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
+        Deencapsulation.setField(connection, "connection", mockConnection);
+        Deencapsulation.setField(connection, "executorService", mockExecutorService);
+        setLatches(connection);
+        Map<String, Queue<com.microsoft.azure.sdk.iot.device.Message>> messagesWaitingForLinkCredit = Deencapsulation.getField(connection, "messagesWaitingForLinkCredit");
+        messagesWaitingForLinkCredit.put("deviceId/DEVICE_TELEMETRY", waitingQueue);
+        Map<com.microsoft.azure.sdk.iot.device.Message, AmqpsMessage> sendAckMessages = Deencapsulation.getField(connection, "sendAckMessages");
+        sendAckMessages.put(mockIoTMessage, mockAmqpsMessage);
+
+        //act
+        connection.close();
+
+        //assert
+        assertTrue(messagesWaitingForLinkCredit.isEmpty());
+        assertTrue(sendAckMessages.isEmpty());
+    }
+
+    @Test
+    public void onLinkFlowSendsMessagesHeldBackForCredit() throws TransportException
+    {
+        //arrange
+        Queue<com.microsoft.azure.sdk.iot.device.Message> waitingQueue = new ArrayDeque<>();
+        waitingQueue.add(mockIoTMessage);
+        baseExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockEvent.getLink();
+                result = mockSender;
+                mockSender.getCredit();
+                result = 10;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "hasLinkCredit", new Class[] {MessageType.class, String.class}, (MessageType) any, anyString);
+                result = true;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "convertToProton", mockIoTMessage);
+                result = mockedAmqpsConvertToProtonReturnValue;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "sendMessage", new Class[] {Message.class, MessageType.class, String.class}, (Message) any, (MessageType) any, anyString);
+                result = 1;
+            }
+        };
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        Map<String, Queue<com.microsoft.azure.sdk.iot.device.Message>> messagesWaitingForLinkCredit = Deencapsulation.getField(connection, "messagesWaitingForLinkCredit");
+        messagesWaitingForLinkCredit.put("deviceId/DEVICE_TELEMETRY", waitingQueue);
+        Deencapsulation.setField(connection, "amqpsSessionManager", mockAmqpsSessionManager);
+        Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
+
+        //act
+        connection.onLinkFlow(mockEvent);
+
+        //assert
+        assertTrue(messagesWaitingForLinkCredit.isEmpty());
+        Map<Integer, com.microsoft.azure.sdk.iot.device.Message> inProgressMessages = Deencapsulation.getField(connection, "inProgressMessages");
+        assertEquals(1, inProgressMessages.size());
+    }
+
+    @Test
+    public void onLinkFlowSendsMessagesWaitingForCredit() throws TransportException
+    {
+        //arrange
+        Queue<com.microsoft.azure.sdk.iot.device.Message> messagesToSend = new ConcurrentLinkedQueue<>();
+        messagesToSend.add(mockIoTMessage);
+        baseExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockEvent.getLink();
+                result = mockSender;
+                mockSender.getCredit();
+                result = 10;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "hasLinkCredit", new Class[] {MessageType.class, String.class}, (MessageType) any, anyString);
+                result = true;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "convertToProton", mockIoTMessage);
+                result = mockedAmqpsConvertToProtonReturnValue;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "sendMessage", new Class[] {Message.class, MessageType.class, String.class}, (Message) any, (MessageType) any, anyString);
+                result = 1;
+            }
+        };
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "messagesToSend", messagesToSend);
+        Deencapsulation.setField(connection, "amqpsSessionManager", mockAmqpsSessionManager);
+        Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
+
+        //act
+        connection.onLinkFlow(mockEvent);
+
+        //assert
+        assertTrue(messagesToSend.isEmpty());
+        Map<Integer, com.microsoft.azure.sdk.iot.device.Message> inProgressMessages = Deencapsulation.getField(connection, "inProgressMessages");
+        assertEquals(1, inProgressMessages.size());
+    }
+
+    @Test
+    public void processPendingAcknowledgementsGivesCreditBackOncePerLink() throws TransportException
+    {
+        //arrange
+        baseExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockAmqpsMessage.getDelivery();
+                result = mockDelivery;
+                mockDelivery.getLink();
+                result = mockReceiver;
+            }
+        };
+        AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
+        Map<com.microsoft.azure.sdk.iot.device.Message, AmqpsMessage> sendAckMessages = new ConcurrentHashMap<>();
+        sendAckMessages.put(mockedTransportMessage, mockAmqpsMessage);
+        sendAckMessages.put(mockIoTMessage, mockAmqpsMessage);
+        Deencapsulation.setField(connection, "sendAckMessages", sendAckMessages);
+        connection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.COMPLETE);
+        connection.sendMessageResult(mockIoTMessage, IotHubMessageResult.ABANDON);
+
+        //act
+        Deencapsulation.invoke(connection, "processPendingAcknowledgements");
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockAmqpsMessage.acknowledge(AmqpsMessage.ACK_TYPE.COMPLETE);
+                times = 1;
+                mockAmqpsMessage.acknowledge(AmqpsMessage.ACK_TYPE.ABANDON);
+                times = 1;
+                mockReceiver.flow(2);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void onDeliveryGivesCreditBackForMessageNotAwaitingAcknowledgement() throws TransportException
+    {
+        //arrange
+        final String receiverLinkName = "receiver";
+        baseExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockEvent.getLink();
+                result = mockReceiver;
+                mockReceiver.getName();
+                result = receiverLinkName;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "getMessageFromReceiverLink", receiverLinkName);
+                result = mockAmqpsMessage;
+                Deencapsulation.invoke(mockAmqpsSessionManager, "convertFromProton", new Class[] {AmqpsMessage.class, DeviceClientConfig.class}, mockAmqpsMessage, (DeviceClientConfig) any);
+                result = null;
+                mockAmqpsMessage.getAmqpsMessageType();
+                result = MessageType.CBS_AUTHENTICATION;
+                mockAmqpsMessage.getApplicationProperties();
+                result = null;
+            }
+        };
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "amqpsSessionManager", mockAmqpsSessionManager);
+        connection.setListener(mockedIotHubListener);
+
+        //act
+        connection.onDelivery(mockEvent);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockReceiver.flow(1);
+                times = 1;
+            }
+        };
+    }
+
     private void baseExpectations() throws TransportException
     {
         new NonStrictExpectations() {
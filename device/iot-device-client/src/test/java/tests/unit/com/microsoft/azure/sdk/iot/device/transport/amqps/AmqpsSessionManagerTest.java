@@ -624,6 +624,58 @@ public class AmqpsSessionManagerTest
         assertEquals((Integer)42, deliveryHash);
     }
 
+    @Test
+    public void hasLinkCreditReturnsCreditOfTheDeviceSession() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final AmqpsSessionManager amqpsSessionManager = new AmqpsSessionManager(mockDeviceClientConfig);
+        Deencapsulation.setField(amqpsSessionManager, "session", mockSession);
+
+        ArrayList<AmqpsSessionDeviceOperation> sessionList = new ArrayList<>();
+        sessionList.add(mockAmqpsSessionDeviceOperation);
+        sessionList.add(mockAmqpsSessionDeviceOperation1);
+        Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockAmqpsSessionDeviceOperation.getDeviceId();
+                result = "otherDeviceId";
+                mockAmqpsSessionDeviceOperation1.getDeviceId();
+                result = "someDeviceId";
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "hasLinkCredit", MessageType.DEVICE_TELEMETRY);
+                result = false;
+            }
+        };
+
+        // act
+        boolean hasLinkCredit = Deencapsulation.invoke(amqpsSessionManager, "hasLinkCredit", MessageType.DEVICE_TELEMETRY, "someDeviceId");
+
+        // assert
+        assertFalse(hasLinkCredit);
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "hasLinkCredit", MessageType.DEVICE_TELEMETRY);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void hasLinkCreditReturnsFalseWithoutSession() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final AmqpsSessionManager amqpsSessionManager = new AmqpsSessionManager(mockDeviceClientConfig);
+        Deencapsulation.setField(amqpsSessionManager, "session", null);
+
+        // act
+        boolean hasLinkCredit = Deencapsulation.invoke(amqpsSessionManager, "hasLinkCredit", MessageType.DEVICE_TELEMETRY, "someDeviceId");
+
+        // assert
+        assertFalse(hasLinkCredit);
+    }
+
     // Tests_SRS_AMQPSESSIONMANAGER_12_039: [The function shall return with the return value of authentication.operationLinksOpened.]
     @Test
     public void isAuthenticationOpenedTrue() throws IllegalArgumentException, InterruptedException, TransportException
@@ -673,7 +725,7 @@ public class AmqpsSessionManagerTest
         assertEquals(false, isOpened);
     }
 
-    // Tests_SRS_AMQPSESSIONMANAGER_12_040: [The function shall call all device session's convertToProton, and if any of them not null return with the value.]
+    // Tests_SRS_AMQPSESSIONMANAGER_12_040: [The function shall call the convertToProton of the device session of the message's connection device id, or of all device sessions if the message has none, and if any of them not null return with the value.]
     @Test
     public void convertToProtonSuccess() throws IllegalArgumentException, InterruptedException, TransportException
     {
@@ -710,7 +762,7 @@ public class AmqpsSessionManagerTest
         };
     }
 
-    // Tests_SRS_AMQPSESSIONMANAGER_12_040: [The function shall call all device session's convertToProton, and if any of them not null return with the value.]
+    // Tests_SRS_AMQPSESSIONMANAGER_12_040: [The function shall call the convertToProton of the device session of the message's connection device id, or of all device sessions if the message has none, and if any of them not null return with the value.]
     @Test
     public void convertToProtonNull() throws IllegalArgumentException, InterruptedException, TransportException
     {
@@ -741,6 +793,49 @@ public class AmqpsSessionManagerTest
         assertNull(amqpsConvertToProtonReturnValue);
     }
 
+    // Tests_SRS_AMQPSESSIONMANAGER_12_040: [The function shall call the convertToProton of the device session of the message's connection device id, or of all device sessions if the message has none, and if any of them not null return with the value.]
+    @Test
+    public void convertToProtonUsesSessionOfConnectionDevice() throws IllegalArgumentException, InterruptedException, TransportException
+    {
+        // arrange
+        final String deviceId = "deviceId1";
+        final AmqpsSessionManager amqpsSessionManager = new AmqpsSessionManager(mockDeviceClientConfig);
+        Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceAuthentication", mockAmqpsDeviceAuthenticationCBS);
+
+        ArrayList<AmqpsSessionDeviceOperation> sessionList = new ArrayList<>();
+        sessionList.add(mockAmqpsSessionDeviceOperation);
+        sessionList.add(mockAmqpsSessionDeviceOperation1);
+        Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+
+        new Expectations()
+        {
+            {
+                mockMessage.getConnectionDeviceId();
+                result = deviceId;
+                mockAmqpsSessionDeviceOperation.getDeviceId();
+                result = "deviceId0";
+                mockAmqpsSessionDeviceOperation1.getDeviceId();
+                result = deviceId;
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "convertToProton", mockMessage);
+                result = mockAmqpsConvertToProtonReturnValue;
+            }
+        };
+
+        // act
+        AmqpsConvertToProtonReturnValue amqpsConvertToProtonReturnValue = Deencapsulation.invoke(amqpsSessionManager, "convertToProton", mockMessage);
+
+        // assert
+        assertEquals(mockAmqpsConvertToProtonReturnValue, amqpsConvertToProtonReturnValue);
+
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "convertToProton", mockMessage);
+                times = 0;
+            }
+        };
+    }
+
     // Tests_SRS_AMQPSESSIONMANAGER_12_041: [The function shall call all device session's convertFromProton, and if any of them not null return with the value.]
     @Test
     public void convertFromProtonSuccess() throws IllegalArgumentException, InterruptedException, TransportException
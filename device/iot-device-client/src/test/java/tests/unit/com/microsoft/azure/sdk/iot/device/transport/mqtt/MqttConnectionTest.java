@@ -9,13 +9,17 @@ import mockit.*;
 import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.paho.client.mqttv3.*;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
 import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
 import java.net.Proxy;
+import java.util.HashSet;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.junit.Assert.*;
 
@@ -82,7 +86,7 @@ public class MqttConnectionTest
                 times = 1;
                 new ConcurrentLinkedQueue<>();
                 times = 1;
-                new Object();
+                new ReentrantLock();
                 times = 1;
             }
         };
@@ -544,4 +548,76 @@ public class MqttConnectionTest
             }
         };
     }
-}
\ No newline at end of file
+
+    @Test
+    public void constructorWithPersistenceDirectoryUsesFilePersistence(final @Mocked MqttDefaultFilePersistence mockFilePersistence) throws Exception
+    {
+        //arrange
+        final String persistenceDirectory = "someDirectory";
+
+        //act
+        Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, String.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockSSLContext, (ProxySettings) null, persistenceDirectory);
+
+        //assert
+        new Verifications()
+        {
+            {
+                new MqttDefaultFilePersistence(persistenceDirectory);
+                times = 1;
+                new MqttAsyncClient(SERVER_URI, CLIENT_ID, (MqttClientPersistence) any);
+                times = 1;
+                new MemoryPersistence();
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void onSubscribedRecordsTopicInSessionSubscriptions() throws Exception
+    {
+        //arrange
+        final MqttConnection mqttConnection = Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockSSLContext, null);
+        Set<String> sessionSubscriptions = new HashSet<>();
+        Deencapsulation.invoke(mqttConnection, "setSessionSubscriptions", sessionSubscriptions);
+
+        //act
+        Deencapsulation.invoke(mqttConnection, "onSubscribed", "someTopic");
+
+        //assert
+        assertTrue(sessionSubscriptions.contains("someTopic"));
+        assertTrue((boolean) Deencapsulation.invoke(mqttConnection, "isSubscribedInSession", "someTopic"));
+    }
+
+    @Test
+    public void isSubscribedInSessionReturnsFalseWithoutPersistentSession() throws Exception
+    {
+        //arrange
+        final MqttConnection mqttConnection = Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockSSLContext, null);
+
+        //act
+        Deencapsulation.invoke(mqttConnection, "onSubscribed", "someTopic");
+        boolean isSubscribed = Deencapsulation.invoke(mqttConnection, "isSubscribedInSession", "someTopic");
+
+        //assert
+        assertFalse(isSubscribed);
+    }
+
+    @Test
+    public void onConnectedForgetsSessionSubscriptionsIfSessionNotPresent() throws Exception
+    {
+        //arrange
+        final MqttConnection mqttConnection = Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockSSLContext, null);
+        Set<String> sessionSubscriptions = new HashSet<>();
+        sessionSubscriptions.add("someTopic");
+        Deencapsulation.invoke(mqttConnection, "setSessionSubscriptions", sessionSubscriptions);
+
+        //act
+        Deencapsulation.invoke(mqttConnection, "onConnected", true);
+        boolean isKeptWhenPresent = sessionSubscriptions.contains("someTopic");
+        Deencapsulation.invoke(mqttConnection, "onConnected", false);
+
+        //assert
+        assertTrue(isKeptWhenPresent);
+        assertTrue(sessionSubscriptions.isEmpty());
+    }
+}
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_METHOD_RECEIVE_REQUEST;
 import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_METHOD_SEND_RESPONSE;
@@ -54,7 +55,7 @@ public class MqttDeviceMethodTest
                 Deencapsulation.invoke(mockedMqttConnection, "getAllReceivedMessages");
                 result = testAllReceivedMessages;
                 Deencapsulation.invoke(mockedMqttConnection, "getMqttLock");
-                result = new Object();
+                result = new ReentrantLock();
             }
         };
     }
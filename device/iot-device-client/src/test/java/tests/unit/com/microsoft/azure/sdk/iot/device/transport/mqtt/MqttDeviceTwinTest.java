@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.*;
 import static org.junit.Assert.*;
@@ -49,7 +50,7 @@ public class MqttDeviceTwinTest
                 Deencapsulation.invoke(mockedMqttConnection, "getAllReceivedMessages");
                 result = new ConcurrentLinkedQueue<>();
                 Deencapsulation.invoke(mockedMqttConnection, "getMqttLock");
-                result = new Object();
+                result = new ReentrantLock();
             }
         };
     }
@@ -646,7 +647,7 @@ public class MqttDeviceTwinTest
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
-            Deencapsulation.setField(testTwin, "stateLock", new Object());
+            Deencapsulation.setField(testTwin, "stateLock", new ReentrantLock());
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -676,7 +677,7 @@ public class MqttDeviceTwinTest
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
-            Deencapsulation.setField(testTwin, "stateLock", new Object());
+            Deencapsulation.setField(testTwin, "stateLock", new ReentrantLock());
 
 
             Map<String, DeviceOperations> requestMap = new HashMap<>();
@@ -717,7 +718,7 @@ public class MqttDeviceTwinTest
             Map<String, DeviceOperations> requestMap = new HashMap<>();
             requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
             Deencapsulation.setField(testTwin, "requestMap", requestMap);
-            Deencapsulation.setField(testTwin, "stateLock", new Object());
+            Deencapsulation.setField(testTwin, "stateLock", new ReentrantLock());
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -828,7 +829,7 @@ public class MqttDeviceTwinTest
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
-            Deencapsulation.setField(testTwin, "stateLock", new Object());
+            Deencapsulation.setField(testTwin, "stateLock", new ReentrantLock());
 
             Map<String, DeviceOperations> requestMap = new HashMap<>();
             requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
@@ -883,7 +884,7 @@ public class MqttDeviceTwinTest
             Map<String, DeviceOperations> requestMap = new HashMap<>();
             requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST);
             Deencapsulation.setField(testTwin, "requestMap", requestMap);
-            Deencapsulation.setField(testTwin, "stateLock", new Object());
+            Deencapsulation.setField(testTwin, "stateLock", new ReentrantLock());
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -1003,7 +1004,7 @@ public class MqttDeviceTwinTest
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
-            Deencapsulation.setField(testTwin, "stateLock", new Object());
+            Deencapsulation.setField(testTwin, "stateLock", new ReentrantLock());
 
             //act
             receivedMessage = testTwin.receive();
@@ -1044,7 +1045,7 @@ public class MqttDeviceTwinTest
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
-            Deencapsulation.setField(testTwin, "stateLock", new Object());
+            Deencapsulation.setField(testTwin, "stateLock", new ReentrantLock());
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -1073,7 +1074,7 @@ public class MqttDeviceTwinTest
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
             Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
-            Deencapsulation.setField(testTwin, "stateLock", new Object());
+            Deencapsulation.setField(testTwin, "stateLock", new ReentrantLock());
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -1099,8 +1100,8 @@ public class MqttDeviceTwinTest
             MqttDeviceTwin testTwin = new MqttDeviceTwin(mockedMqttConnection, "", new HashMap<Integer, Message>());
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             Deencapsulation.setField(mockMqtt, "allReceivedMessages", testAllReceivedMessages);
-            Deencapsulation.setField(testTwin, "stateLock", new Object());
-            Deencapsulation.setField(testTwin, "incomingLock", new Object());
+            Deencapsulation.setField(testTwin, "stateLock", new ReentrantLock());
+            Deencapsulation.setField(testTwin, "incomingLock", new ReentrantLock());
 
             //act
             receivedMessage = testTwin.receive();
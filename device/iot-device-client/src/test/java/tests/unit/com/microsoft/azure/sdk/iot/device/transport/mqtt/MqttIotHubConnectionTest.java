@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.net.URLEncoder;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
@@ -308,6 +309,40 @@ public class MqttIotHubConnectionTest
         };
     }
 
+    @Test
+    public void openWithPersistentSessionPersistsSessionInDirectory() throws IOException, TransportException
+    {
+        final String persistenceDirectory = "someDirectory";
+        final String serverUri = SSL_PREFIX + iotHubHostName + SSL_PORT_SUFFIX;
+        baseExpectations();
+
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+                mockConfig.isUseWebsocket();
+                result = false;
+                mockConfig.getMqttPersistentSessionDirectory();
+                result = persistenceDirectory;
+            }
+        };
+
+        MqttIotHubConnection connection = new MqttIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "listener", mockedIotHubListener);
+        connection.open(mockedQueue, mockedScheduledExecutorService);
+
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, String.class}, serverUri, deviceId, any, any, any, null, persistenceDirectory);
+                times = 1;
+                Deencapsulation.invoke(mockedMqttConnection, "setSessionSubscriptions", new Class[] {Set.class}, (Set<String>) any);
+                times = 1;
+            }
+        };
+    }
+
     //Tests_SRS_MQTTIOTHUBCONNECTION_25_018: [The function shall establish an MQTT WS connection with a server uri as wss://<hostName>/$iothub/websocket?iothub-no-client-cert=true if websocket was enabled.]
     @Test
     public void openEstablishesWSConnectionUsingCorrectConfig(@Mocked final ProxySettings mockedProxySettings) throws IOException, TransportException
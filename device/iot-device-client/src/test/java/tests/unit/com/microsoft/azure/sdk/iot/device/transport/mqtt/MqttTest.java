@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.*;
 import static org.junit.Assert.*;
@@ -143,7 +144,7 @@ public class MqttTest
                 Deencapsulation.invoke(mockedMqttConnection, "getAllReceivedMessages");
                 result = new ConcurrentLinkedQueue<>();
                 Deencapsulation.invoke(mockedMqttConnection, "getMqttLock");
-                result = new Object();
+                result = new ReentrantLock();
             }
         };
     }
@@ -757,6 +758,64 @@ public class MqttTest
         };
     }
 
+    @Test
+    public void subscribeSkipsTopicSubscribedInSession() throws MqttException, TransportException
+    {
+        //arrange
+        baseConstructorExpectations();
+        baseConnectExpectation();
+        new NonStrictExpectations()
+        {
+            {
+                mockMqttAsyncClient.isConnected();
+                result = true;
+                Deencapsulation.invoke(mockedMqttConnection, "isSubscribedInSession", MOCK_PARSE_TOPIC);
+                result = true;
+            }
+        };
+        Mqtt mockMqtt = instantiateMqtt(true);
+
+        //act
+        Deencapsulation.invoke(mockMqtt, "subscribe", MOCK_PARSE_TOPIC);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockMqttAsyncClient.subscribe(MOCK_PARSE_TOPIC, anyInt);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void connectReportsSessionPresentToConnection() throws TransportException, MqttException
+    {
+        //arrange
+        baseConstructorExpectations();
+        baseConnectExpectation();
+        new NonStrictExpectations()
+        {
+            {
+                mockMqttToken.getSessionPresent();
+                result = true;
+            }
+        };
+        Mqtt mockMqtt = instantiateMqtt(true);
+
+        //act
+        Deencapsulation.invoke(mockMqtt, "connect");
+
+        //assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockedMqttConnection, "onConnected", true);
+                times = 1;
+            }
+        };
+    }
+
     /*
     **Tests_SRS_Mqtt_25_015: [If the MQTT connection is closed, the function shall throw a TransportException with message.]
      */
@@ -1545,7 +1604,7 @@ public class MqttTest
         //arrange
         final Mqtt mockMqtt = instantiateMqtt(true);
         Deencapsulation.setField(mockMqtt, "mqttConnection", mockedMqttConnection);
-        Deencapsulation.setField(mockMqtt, "stateLock", new Object());
+        Deencapsulation.setField(mockMqtt, "stateLock", new ReentrantLock());
 
         final MqttException mqttException = new MqttException(new Throwable());
         new NonStrictExpectations()
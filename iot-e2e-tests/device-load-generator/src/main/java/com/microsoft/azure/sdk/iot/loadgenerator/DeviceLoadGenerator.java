@@ -0,0 +1,536 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.device.DeviceClient;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceMethodData;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.Property;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.PropertyCallBack;
+import com.microsoft.azure.sdk.iot.device.IotHubClientRuntime;
+import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.TransportClient;
+import com.microsoft.azure.sdk.iot.emulator.IotHubEmulator;
+import com.microsoft.azure.sdk.iot.emulator.MethodResponse;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethod;
+import com.microsoft.azure.sdk.iot.service.devicetwin.MethodResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Simulates a fleet of devices with the device client, and reports what the clients saw of the load.
+ *
+ * <p> Each device sends telemetry messages and reported properties updates at a steady rate, and answers the direct
+ *     methods called on it at a steady rate too. The devices connect one by one over MQTT or AMQPS, or share AMQPS
+ *     connections through transport clients. All the clients share one {@link IotHubClientRuntime}, so the number
+ *     of threads of the fleet does not grow with its number of devices, except for the threads of the connections.
+ *
+ * <p> The devices connect to an {@link IotHubEmulator} started in the process, unless the profile has the connection
+ *     strings of devices registered in a hub. The emulator listens on the default ports of the protocols, which the
+ *     device client always connects to.
+ *
+ * <p> Run it with the arguments of {@link LoadProfile#parse(String[])}, for instance
+ *     {@code --devices=1000 --transport=amqps-multiplexed --message-rate=2 --twin-ratio=0.1 --method-rate=0.1}.
+ */
+@Slf4j
+public final class DeviceLoadGenerator
+{
+    private static final String METHOD_NAME = "loadGenerator";
+    private static final String REPORTED_PROPERTY_NAME = "loadSequence";
+    private static final int DRIVER_THREAD_COUNT = 2;
+    private static final int OPEN_THREAD_COUNT = 16;
+    private static final long SETUP_TIMEOUT_SECONDS = 60;
+    private static final long DRAIN_TIMEOUT_MILLIS = 10000;
+    private static final long DRAIN_POLL_MILLIS = 100;
+    private static final long METHOD_RESPONSE_TIMEOUT_SECONDS = 30;
+    private static final int METHOD_SUCCESS = 200;
+    private static final String SET_CERTIFICATE_AUTHORITY = "SetCertificateAuthority";
+
+    private final LoadProfile profile;
+    private final byte[] payload;
+    private final OperationStats connections = new OperationStats();
+    private final OperationStats telemetry = new OperationStats();
+    private final OperationStats twinUpdates = new OperationStats();
+    private final OperationStats methods = new OperationStats();
+    private final FleetMetrics metrics = new FleetMetrics();
+    private final ResourceSampler resources = new ResourceSampler();
+
+    /**
+     * Constructor.
+     *
+     * @param profile the load to generate. It cannot be {@code null}.
+     * @throws IllegalArgumentException if the profile is {@code null}, or its settings cannot be used together.
+     */
+    public DeviceLoadGenerator(LoadProfile profile) throws IllegalArgumentException
+    {
+        if (profile == null)
+        {
+            throw new IllegalArgumentException("profile cannot be null");
+        }
+
+        profile.validate();
+        this.profile = profile;
+        this.payload = new byte[profile.getMessageSize()];
+        new Random().nextBytes(this.payload);
+    }
+
+    /**
+     * Generate the load with the arguments of {@link LoadProfile#parse(String[])}, and print the report.
+     *
+     * @param args the arguments.
+     * @throws Exception if the fleet could not be connected.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        LoadReport report = new DeviceLoadGenerator(LoadProfile.parse(args)).run();
+        System.out.println(report);
+    }
+
+    /**
+     * Connect the devices, apply the load for the duration of the profile, wait for the outcome of the operations
+     * still in flight, and disconnect the devices.
+     *
+     * @return the report of the run.
+     * @throws IOException if the connection strings or the certificate cannot be read, or a connection cannot be
+     *                     opened.
+     * @throws GeneralSecurityException if the emulator cannot create its certificate.
+     * @throws URISyntaxException if a connection string is not valid.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    public LoadReport run() throws IOException, GeneralSecurityException, URISyntaxException, InterruptedException
+    {
+        IotHubEmulator emulator = null;
+        IotHubClientRuntime runtime = null;
+        ScheduledExecutorService driver = null;
+        List<SimulatedDevice> devices = new ArrayList<>();
+        List<TransportClient> transportClients = new ArrayList<>();
+        try
+        {
+            List<String> connectionStrings;
+            String trustedCertificate = null;
+            BiFunction<String, String, CompletableFuture<Integer>> methodInvoker;
+            if (this.profile.getConnectionStringsPath() == null)
+            {
+                emulator = new IotHubEmulator();
+                // the fleet does not use HTTPS, which would need a privileged port otherwise
+                emulator.setHttpsPort(0);
+                emulator.start();
+                connectionStrings = new ArrayList<>();
+                for (int i = 0; i < this.profile.getDeviceCount(); i++)
+                {
+                    connectionStrings.add(emulator.createDeviceConnectionString("load-device-" + i));
+                }
+                trustedCertificate = emulator.getTrustedCertificate();
+
+                IotHubEmulator hub = emulator;
+                methodInvoker = (deviceId, payloadJson) -> hub.invokeMethodAsync(deviceId, METHOD_NAME, payloadJson, TimeUnit.SECONDS.toMillis(METHOD_RESPONSE_TIMEOUT_SECONDS))
+                        .thenApply(MethodResponse::getStatus);
+            }
+            else
+            {
+                connectionStrings = readConnectionStrings(this.profile.getConnectionStringsPath(), this.profile.getDeviceCount());
+                if (this.profile.getTrustedCertificatePath() != null)
+                {
+                    trustedCertificate = new String(Files.readAllBytes(Paths.get(this.profile.getTrustedCertificatePath())), StandardCharsets.UTF_8);
+                }
+
+                DeviceMethod deviceMethod = this.profile.getServiceConnectionString() == null
+                        ? null
+                        : DeviceMethod.createFromConnectionString(this.profile.getServiceConnectionString());
+                methodInvoker = (deviceId, payloadJson) -> deviceMethod.invokeAsync(deviceId, METHOD_NAME, METHOD_RESPONSE_TIMEOUT_SECONDS, METHOD_RESPONSE_TIMEOUT_SECONDS, payloadJson)
+                        .thenApply(MethodResult::getStatus);
+            }
+
+            runtime = new IotHubClientRuntime(this.profile.getRuntimeThreadCount());
+            driver = Executors.newScheduledThreadPool(DRIVER_THREAD_COUNT);
+            driver.scheduleAtFixedRate(this.resources::sample, 0, 1, TimeUnit.SECONDS);
+
+            this.createClients(connectionStrings, trustedCertificate, runtime, devices, transportClients);
+            this.open(devices, transportClients);
+            this.startTwinsAndMethods(devices);
+
+            log.info("The {} devices are connected, applying the load for {} s", devices.size(), this.profile.getDurationSeconds());
+            long loadStart = System.nanoTime();
+            List<ScheduledFuture<?>> load = this.scheduleLoad(driver, devices, methodInvoker, emulator);
+            Thread.sleep(TimeUnit.SECONDS.toMillis(this.profile.getDurationSeconds()));
+            for (ScheduledFuture<?> task : load)
+            {
+                task.cancel(false);
+            }
+            long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart);
+
+            this.drain();
+            this.resources.sample();
+            return new LoadReport(this.profile, loadMillis, this.connections, this.telemetry, this.twinUpdates, this.methods, this.metrics, this.resources);
+        }
+        finally
+        {
+            close(devices, transportClients);
+            if (driver != null)
+            {
+                driver.shutdownNow();
+            }
+            if (runtime != null)
+            {
+                runtime.close();
+            }
+            if (emulator != null)
+            {
+                emulator.close();
+            }
+        }
+    }
+
+    private void createClients(List<String> connectionStrings, String trustedCertificate, IotHubClientRuntime runtime,
+                               List<SimulatedDevice> devices, List<TransportClient> transportClients) throws URISyntaxException
+    {
+        LoadProfile.Transport transport = this.profile.getTransport();
+        TransportClient transportClient = null;
+        for (int i = 0; i < connectionStrings.size(); i++)
+        {
+            DeviceClient client;
+            if (transport == LoadProfile.Transport.AMQPS_MULTIPLEXED)
+            {
+                if (i % this.profile.getDevicesPerConnection() == 0)
+                {
+                    transportClient = new TransportClient(transport.getProtocol());
+                    transportClient.setRuntime(runtime);
+                    transportClients.add(transportClient);
+                }
+                client = new DeviceClient(connectionStrings.get(i), transportClient);
+            }
+            else
+            {
+                client = new DeviceClient(connectionStrings.get(i), transport.getProtocol());
+                client.setRuntime(runtime);
+            }
+
+            client.setMetrics(this.metrics);
+            if (trustedCertificate != null)
+            {
+                client.setOption(SET_CERTIFICATE_AUTHORITY, trustedCertificate);
+            }
+            devices.add(new SimulatedDevice(client));
+        }
+    }
+
+    private void open(List<SimulatedDevice> devices, List<TransportClient> transportClients) throws IOException, InterruptedException
+    {
+        List<Callable<Void>> opens = new ArrayList<>();
+        if (transportClients.isEmpty())
+        {
+            for (SimulatedDevice device : devices)
+            {
+                opens.add(() -> this.timeOpen(device.client::open));
+            }
+        }
+        else
+        {
+            for (TransportClient transportClient : transportClients)
+            {
+                opens.add(() -> this.timeOpen(transportClient::open));
+            }
+        }
+
+        ExecutorService openExecutor = Executors.newFixedThreadPool(Math.min(OPEN_THREAD_COUNT, opens.size()));
+        try
+        {
+            for (Future<Void> open : openExecutor.invokeAll(opens))
+            {
+                open.get();
+            }
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("A connection of the fleet could not be opened", e.getCause());
+        }
+        finally
+        {
+            openExecutor.shutdownNow();
+        }
+    }
+
+    private Void timeOpen(OpenAction open) throws IOException
+    {
+        this.connections.started();
+        long start = System.nanoTime();
+        try
+        {
+            open.open();
+        }
+        catch (IOException | RuntimeException e)
+        {
+            this.connections.failed();
+            throw e;
+        }
+        this.connections.acknowledged(System.nanoTime() - start);
+        return null;
+    }
+
+    private void startTwinsAndMethods(List<SimulatedDevice> devices) throws IOException, InterruptedException
+    {
+        boolean useTwin = this.profile.getTwinRatio() > 0 && this.profile.getMessagesPerSecond() > 0;
+        boolean useMethods = this.profile.getMethodsPerSecond() > 0;
+        CountDownLatch twinsStarted = new CountDownLatch(useTwin ? devices.size() : 0);
+        CountDownLatch methodsSubscribed = new CountDownLatch(useMethods ? devices.size() : 0);
+        for (SimulatedDevice device : devices)
+        {
+            if (useTwin)
+            {
+                device.startTwin(twinsStarted);
+            }
+            if (useMethods)
+            {
+                device.client.subscribeToDeviceMethod(
+                        (methodName, methodData, context) -> new DeviceMethodData(METHOD_SUCCESS, "{}"), null,
+                        (status, context) -> methodsSubscribed.countDown(), null);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SETUP_TIMEOUT_SECONDS);
+        if (!twinsStarted.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                | !methodsSubscribed.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+        {
+            throw new IllegalStateException(twinsStarted.getCount() + " twin starts and " + methodsSubscribed.getCount() + " method subscriptions did not complete");
+        }
+    }
+
+    private List<ScheduledFuture<?>> scheduleLoad(ScheduledExecutorService driver, List<SimulatedDevice> devices,
+                                                  BiFunction<String, String, CompletableFuture<Integer>> methodInvoker,
+                                                  IotHubEmulator emulator)
+    {
+        List<ScheduledFuture<?>> load = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (SimulatedDevice device : devices)
+        {
+            // the first operations of the devices are spread over a period, not sent all at once
+            if (this.profile.getMessagesPerSecond() > 0)
+            {
+                long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / this.profile.getMessagesPerSecond());
+                load.add(driver.scheduleAtFixedRate(device::sendNext, random.nextLong(periodNanos), periodNanos, TimeUnit.NANOSECONDS));
+            }
+
+            if (this.profile.getMethodsPerSecond() > 0)
+            {
+                long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / this.profile.getMethodsPerSecond());
+                load.add(driver.scheduleAtFixedRate(() -> this.invokeMethod(methodInvoker, device.deviceId),
+                        random.nextLong(periodNanos), periodNanos, TimeUnit.NANOSECONDS));
+            }
+        }
+
+        if (this.profile.getDisconnectIntervalSeconds() > 0)
+        {
+            long interval = this.profile.getDisconnectIntervalSeconds();
+            load.add(driver.scheduleAtFixedRate(() -> emulator.getFaultInjector().disconnectAllDevices(), interval, interval, TimeUnit.SECONDS));
+        }
+
+        return load;
+    }
+
+    private void invokeMethod(BiFunction<String, String, CompletableFuture<Integer>> methodInvoker, String deviceId)
+    {
+        this.methods.started();
+        long start = System.nanoTime();
+        methodInvoker.apply(deviceId, "{}").whenComplete((status, throwable) ->
+        {
+            if (throwable == null && status != null && status == METHOD_SUCCESS)
+            {
+                this.methods.acknowledged(System.nanoTime() - start);
+            }
+            else
+            {
+                this.methods.failed();
+            }
+        });
+    }
+
+    private void drain() throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline
+                && (this.telemetry.getPendingCount() > 0 || this.twinUpdates.getPendingCount() > 0 || this.methods.getPendingCount() > 0))
+        {
+            Thread.sleep(DRAIN_POLL_MILLIS);
+        }
+    }
+
+    private static List<String> readConnectionStrings(String path, int deviceCount) throws IOException
+    {
+        List<String> connectionStrings = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .limit(deviceCount)
+                .collect(Collectors.toList());
+        if (connectionStrings.size() < deviceCount)
+        {
+            throw new IllegalArgumentException("The file " + path + " has " + connectionStrings.size() + " connection strings, " + deviceCount + " are needed");
+        }
+
+        return connectionStrings;
+    }
+
+    private static void close(List<SimulatedDevice> devices, List<TransportClient> transportClients)
+    {
+        try
+        {
+            if (transportClients.isEmpty())
+            {
+                for (SimulatedDevice device : devices)
+                {
+                    device.client.closeNow();
+                }
+            }
+            else
+            {
+                for (TransportClient transportClient : transportClients)
+                {
+                    transportClient.closeNow();
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("The fleet could not be closed", e);
+        }
+    }
+
+    private interface OpenAction
+    {
+        void open() throws IOException;
+    }
+
+    /**
+     * A device of the fleet, and the reported properties updates it waits for the acknowledgement of.
+     */
+    private final class SimulatedDevice
+    {
+        private final DeviceClient client;
+        private final String deviceId;
+        private final AtomicLong sequence = new AtomicLong();
+        // the twin acknowledges the updates in order, each with one call to its status callback
+        private final Queue<Long> pendingTwinUpdates = new ConcurrentLinkedQueue<>();
+        private volatile boolean isTwinStarted = false;
+
+        private SimulatedDevice(DeviceClient client)
+        {
+            this.client = client;
+            this.deviceId = client.getConfig().getDeviceId();
+        }
+
+        private void startTwin(CountDownLatch started) throws IOException
+        {
+            IotHubEventCallback statusCallback = (status, context) ->
+            {
+                if (!this.isTwinStarted)
+                {
+                    this.isTwinStarted = true;
+                    started.countDown();
+                    return;
+                }
+
+                Long start = this.pendingTwinUpdates.poll();
+                if (start == null)
+                {
+                    return;
+                }
+
+                if (status == IotHubStatusCode.OK || status == IotHubStatusCode.OK_EMPTY)
+                {
+                    DeviceLoadGenerator.this.twinUpdates.acknowledged(System.nanoTime() - start);
+                }
+                else
+                {
+                    DeviceLoadGenerator.this.twinUpdates.failed();
+                }
+            };
+            PropertyCallBack<String, Object> ignoreDesiredProperties = (propertyKey, propertyValue, context) -> { };
+            this.client.startDeviceTwin(statusCallback, null, ignoreDesiredProperties, null);
+        }
+
+        private void sendNext()
+        {
+            if (this.isTwinStarted && ThreadLocalRandom.current().nextDouble() < DeviceLoadGenerator.this.profile.getTwinRatio())
+            {
+                this.updateReportedProperties();
+            }
+            else
+            {
+                this.sendTelemetry();
+            }
+        }
+
+        private void sendTelemetry()
+        {
+            OperationStats stats = DeviceLoadGenerator.this.telemetry;
+            stats.started();
+            try
+            {
+                this.client.sendEventAsync(new Message(DeviceLoadGenerator.this.payload), (status, context) ->
+                {
+                    if (status == IotHubStatusCode.OK || status == IotHubStatusCode.OK_EMPTY)
+                    {
+                        stats.acknowledged(System.nanoTime() - (Long) context);
+                    }
+                    else
+                    {
+                        stats.failed();
+                    }
+                }, System.nanoTime());
+            }
+            catch (RuntimeException e)
+            {
+                log.debug("Device {} could not send a telemetry message", this.deviceId, e);
+                stats.failed();
+            }
+        }
+
+        private void updateReportedProperties()
+        {
+            OperationStats stats = DeviceLoadGenerator.this.twinUpdates;
+            stats.started();
+            Long start = System.nanoTime();
+            this.pendingTwinUpdates.add(start);
+            try
+            {
+                this.client.sendReportedProperties(new HashSet<>(Collections.singleton(new Property(REPORTED_PROPERTY_NAME, this.sequence.incrementAndGet()))));
+            }
+            catch (IOException | RuntimeException e)
+            {
+                log.debug("Device {} could not update its reported properties", this.deviceId, e);
+                if (this.pendingTwinUpdates.remove(start))
+                {
+                    stats.failed();
+                }
+            }
+        }
+    }
+}
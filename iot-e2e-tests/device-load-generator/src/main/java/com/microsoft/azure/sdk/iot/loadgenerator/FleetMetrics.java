@@ -0,0 +1,97 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubClientMetrics;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportQueueDepths;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The transport metrics of all the clients of the fleet. Only the reconnections, the retries and the bytes on the
+ * wire are kept: the latencies of the operations are measured by the load generator itself, from the call to the
+ * callback, as the application sees them.
+ */
+final class FleetMetrics implements IotHubClientMetrics
+{
+    private final OperationStats reconnections = new OperationStats();
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+
+    @Override
+    public void onTransportOpened(String clientId, IotHubTransportQueueDepths queueDepths)
+    {
+    }
+
+    @Override
+    public void onTransportClosed(String clientId, IotHubTransportQueueDepths queueDepths)
+    {
+    }
+
+    @Override
+    public void onMessageCompleted(IotHubClientProtocol protocol, IotHubStatusCode status, long enqueueToAckMillis)
+    {
+    }
+
+    @Override
+    public void onMessageRetried(IotHubClientProtocol protocol)
+    {
+        this.retryCount.increment();
+    }
+
+    @Override
+    public void onReconnection(IotHubClientProtocol protocol, long durationMillis, boolean succeeded)
+    {
+        this.reconnections.started();
+        if (succeeded)
+        {
+            this.reconnections.acknowledged(TimeUnit.MILLISECONDS.toNanos(durationMillis));
+        }
+        else
+        {
+            this.reconnections.failed();
+        }
+    }
+
+    @Override
+    public void onBytesSent(IotHubClientProtocol protocol, long bytes)
+    {
+        this.bytesSent.add(bytes);
+    }
+
+    @Override
+    public void onBytesReceived(IotHubClientProtocol protocol, long bytes)
+    {
+        this.bytesReceived.add(bytes);
+    }
+
+    @Override
+    public void onLinkCredit(String clientId, String linkType, int credit)
+    {
+    }
+
+    OperationStats getReconnections()
+    {
+        return this.reconnections;
+    }
+
+    long getRetryCount()
+    {
+        return this.retryCount.sum();
+    }
+
+    long getBytesSent()
+    {
+        return this.bytesSent.sum();
+    }
+
+    long getBytesReceived()
+    {
+        return this.bytesReceived.sum();
+    }
+}
@@ -0,0 +1,165 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread safe histogram of latencies, with a bounded memory footprint however many latencies it records.
+ *
+ * <p> The latencies are counted in microsecond buckets. The latencies below 64 microseconds have a bucket each, and
+ *     each power of two above is split in 32 buckets, so a percentile is within about 3% of the exact value. The
+ *     latencies longer than {@link #MAX_LATENCY_MICROS} are counted in the last bucket.
+ */
+public final class LatencyHistogram
+{
+    /**
+     * The longest latency told apart from the longer ones, a bit more than an hour.
+     */
+    public static final long MAX_LATENCY_MICROS = (1L << 32) - 1;
+
+    private static final int LINEAR_BUCKET_COUNT = 64;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKET_BITS = 6;
+    private static final int BUCKET_COUNT = LINEAR_BUCKET_COUNT + (32 - LINEAR_BUCKET_BITS) * SUB_BUCKET_COUNT;
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param latencyNanos the latency in nanoseconds. A negative latency is recorded as 0.
+     */
+    public void record(long latencyNanos)
+    {
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(latencyNanos), 0), MAX_LATENCY_MICROS);
+        this.counts.incrementAndGet(bucketOf(micros));
+        this.count.increment();
+        this.sumMicros.add(micros);
+        this.maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * Getter for the number of latencies recorded.
+     *
+     * @return the number of latencies.
+     */
+    public long getCount()
+    {
+        return this.count.sum();
+    }
+
+    /**
+     * Getter for a percentile of the latencies recorded.
+     *
+     * @param percentile the percentile, greater than 0 and up to 100.
+     * @return the latency in milliseconds under which {@code percentile} percent of the latencies are, or 0 if no
+     *         latency was recorded.
+     * @throws IllegalArgumentException if the percentile is not greater than 0 and up to 100.
+     */
+    public double getPercentileMillis(double percentile) throws IllegalArgumentException
+    {
+        if (!(percentile > 0 && percentile <= 100))
+        {
+            throw new IllegalArgumentException("percentile shall be greater than 0 and up to 100");
+        }
+
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            total += this.counts.get(i);
+        }
+
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        int bucket = 0;
+        for (; bucket < BUCKET_COUNT; bucket++)
+        {
+            seen += this.counts.get(bucket);
+            if (seen >= rank)
+            {
+                break;
+            }
+        }
+
+        // the highest latency of the bucket, that no recorded latency exceeds
+        return Math.min(highestOf(Math.min(bucket, BUCKET_COUNT - 1)), this.maxMicros.get()) / MICROS_PER_MILLI;
+    }
+
+    /**
+     * Getter for the longest latency recorded.
+     *
+     * @return the latency in milliseconds, or 0 if no latency was recorded.
+     */
+    public double getMaxMillis()
+    {
+        return this.maxMicros.get() / MICROS_PER_MILLI;
+    }
+
+    /**
+     * Getter for the mean of the latencies recorded.
+     *
+     * @return the mean in milliseconds, or 0 if no latency was recorded.
+     */
+    public double getMeanMillis()
+    {
+        long recorded = this.count.sum();
+        return recorded == 0 ? 0 : this.sumMicros.sum() / MICROS_PER_MILLI / recorded;
+    }
+
+    /**
+     * Render the count and the main percentiles of the latencies.
+     *
+     * @return the summary, in milliseconds.
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("count %d, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms",
+                this.getCount(),
+                this.getPercentileMillis(50),
+                this.getPercentileMillis(90),
+                this.getPercentileMillis(99),
+                this.getPercentileMillis(99.9),
+                this.getMaxMillis());
+    }
+
+    private static int bucketOf(long micros)
+    {
+        if (micros < LINEAR_BUCKET_COUNT)
+        {
+            return (int) micros;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+        return LINEAR_BUCKET_COUNT + (exponent - LINEAR_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long highestOf(int bucket)
+    {
+        if (bucket < LINEAR_BUCKET_COUNT)
+        {
+            return bucket;
+        }
+
+        int exponent = LINEAR_BUCKET_BITS + (bucket - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (bucket - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,519 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+
+import java.util.Locale;
+
+/**
+ * The load a {@link DeviceLoadGenerator} puts on an IoT hub: how many devices, over which transport, and how often
+ * each of them sends telemetry, updates its reported properties and is called with a direct method.
+ *
+ * <p> Without connection strings the devices connect to an {@link com.microsoft.azure.sdk.iot.emulator.IotHubEmulator}
+ *     started in the same process. The connection strings of devices registered in a hub make the fleet connect to
+ *     that hub instead.
+ */
+public final class LoadProfile
+{
+    /**
+     * The ways the devices of the fleet connect.
+     */
+    public enum Transport
+    {
+        /** A connection per device, over MQTT. */
+        MQTT(IotHubClientProtocol.MQTT),
+        /** A connection per device, over AMQPS. */
+        AMQPS(IotHubClientProtocol.AMQPS),
+        /** The devices share AMQPS connections through transport clients. */
+        AMQPS_MULTIPLEXED(IotHubClientProtocol.AMQPS);
+
+        private final IotHubClientProtocol protocol;
+
+        Transport(IotHubClientProtocol protocol)
+        {
+            this.protocol = protocol;
+        }
+
+        IotHubClientProtocol getProtocol()
+        {
+            return this.protocol;
+        }
+    }
+
+    private int deviceCount = 10;
+    private Transport transport = Transport.MQTT;
+    private int devicesPerConnection = 100;
+    private int messageSize = 256;
+    private double messagesPerSecond = 1;
+    private double twinRatio = 0;
+    private double methodsPerSecond = 0;
+    private long durationSeconds = 60;
+    private int runtimeThreadCount = Runtime.getRuntime().availableProcessors();
+    private long disconnectIntervalSeconds = 0;
+    private String connectionStringsPath = null;
+    private String serviceConnectionString = null;
+    private String trustedCertificatePath = null;
+
+    /**
+     * Parse the profile of the command line arguments. Each argument is {@code --name=value}, with one of the names
+     * below. The arguments not given keep their default.
+     * <ul>
+     *     <li>{@code devices}: the number of devices. 10 by default.</li>
+     *     <li>{@code transport}: {@code mqtt}, {@code amqps} or {@code amqps-multiplexed}. {@code mqtt} by
+     *         default.</li>
+     *     <li>{@code devices-per-connection}: the number of devices sharing a multiplexed connection. 100 by
+     *         default.</li>
+     *     <li>{@code message-size}: the size of the telemetry messages, in bytes. 256 by default.</li>
+     *     <li>{@code message-rate}: the telemetry messages and reported properties updates per second of each device.
+     *         1 by default.</li>
+     *     <li>{@code twin-ratio}: the share of these that are reported properties updates, from 0 to 1. 0 by
+     *         default.</li>
+     *     <li>{@code method-rate}: the direct methods called per second on each device. 0 by default.</li>
+     *     <li>{@code duration}: the duration of the load, in seconds. 60 by default.</li>
+     *     <li>{@code runtime-threads}: the number of threads of the runtime shared by the clients. The number of
+     *         processors by default.</li>
+     *     <li>{@code disconnect-interval}: the seconds between two disconnections of all the devices by the emulator,
+     *         or 0 to never disconnect them. 0 by default.</li>
+     *     <li>{@code connection-strings}: the path of a file with a device connection string per line, to connect to
+     *         a hub instead of to the emulator.</li>
+     *     <li>{@code service-connection-string}: the connection string of the hub, to call the direct methods.</li>
+     *     <li>{@code trusted-certificate}: the path of a PEM file with the certificate of the hub to trust.</li>
+     * </ul>
+     *
+     * @param args the command line arguments.
+     * @return the profile.
+     * @throws IllegalArgumentException if an argument is unknown or its value is not valid.
+     */
+    public static LoadProfile parse(String[] args) throws IllegalArgumentException
+    {
+        LoadProfile profile = new LoadProfile();
+        for (String arg : args)
+        {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0)
+            {
+                throw new IllegalArgumentException("Expected an argument --name=value, got " + arg);
+            }
+
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            try
+            {
+                switch (name)
+                {
+                    case "devices":
+                        profile.setDeviceCount(Integer.parseInt(value));
+                        break;
+                    case "transport":
+                        profile.setTransport(Transport.valueOf(value.replace('-', '_').toUpperCase(Locale.ROOT)));
+                        break;
+                    case "devices-per-connection":
+                        profile.setDevicesPerConnection(Integer.parseInt(value));
+                        break;
+                    case "message-size":
+                        profile.setMessageSize(Integer.parseInt(value));
+                        break;
+                    case "message-rate":
+                        profile.setMessagesPerSecond(Double.parseDouble(value));
+                        break;
+                    case "twin-ratio":
+                        profile.setTwinRatio(Double.parseDouble(value));
+                        break;
+                    case "method-rate":
+                        profile.setMethodsPerSecond(Double.parseDouble(value));
+                        break;
+                    case "duration":
+                        profile.setDurationSeconds(Long.parseLong(value));
+                        break;
+                    case "runtime-threads":
+                        profile.setRuntimeThreadCount(Integer.parseInt(value));
+                        break;
+                    case "disconnect-interval":
+                        profile.setDisconnectIntervalSeconds(Long.parseLong(value));
+                        break;
+                    case "connection-strings":
+                        profile.setConnectionStringsPath(value);
+                        break;
+                    case "service-connection-string":
+                        profile.setServiceConnectionString(value);
+                        break;
+                    case "trusted-certificate":
+                        profile.setTrustedCertificatePath(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument " + name);
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException("Invalid value of " + name + ": " + value, e);
+            }
+        }
+
+        return profile;
+    }
+
+    /**
+     * Setter for the number of devices of the fleet.
+     *
+     * @param deviceCount the number of devices. It shall be positive.
+     * @throws IllegalArgumentException if the number is not positive.
+     */
+    public void setDeviceCount(int deviceCount) throws IllegalArgumentException
+    {
+        if (deviceCount < 1)
+        {
+            throw new IllegalArgumentException("deviceCount shall be positive");
+        }
+
+        this.deviceCount = deviceCount;
+    }
+
+    /**
+     * Getter for the number of devices of the fleet.
+     *
+     * @return the number of devices.
+     */
+    public int getDeviceCount()
+    {
+        return this.deviceCount;
+    }
+
+    /**
+     * Setter for the way the devices connect.
+     *
+     * @param transport the transport. It cannot be {@code null}.
+     * @throws IllegalArgumentException if the transport is {@code null}.
+     */
+    public void setTransport(Transport transport) throws IllegalArgumentException
+    {
+        if (transport == null)
+        {
+            throw new IllegalArgumentException("transport cannot be null");
+        }
+
+        this.transport = transport;
+    }
+
+    /**
+     * Getter for the way the devices connect.
+     *
+     * @return the transport.
+     */
+    public Transport getTransport()
+    {
+        return this.transport;
+    }
+
+    /**
+     * Setter for the number of devices sharing a connection, when they are multiplexed.
+     *
+     * @param devicesPerConnection the number of devices. It shall be positive.
+     * @throws IllegalArgumentException if the number is not positive.
+     */
+    public void setDevicesPerConnection(int devicesPerConnection) throws IllegalArgumentException
+    {
+        if (devicesPerConnection < 1)
+        {
+            throw new IllegalArgumentException("devicesPerConnection shall be positive");
+        }
+
+        this.devicesPerConnection = devicesPerConnection;
+    }
+
+    /**
+     * Getter for the number of devices sharing a connection, when they are multiplexed.
+     *
+     * @return the number of devices.
+     */
+    public int getDevicesPerConnection()
+    {
+        return this.devicesPerConnection;
+    }
+
+    /**
+     * Setter for the size of the telemetry messages.
+     *
+     * @param messageSize the size in bytes. It cannot be negative.
+     * @throws IllegalArgumentException if the size is negative.
+     */
+    public void setMessageSize(int messageSize) throws IllegalArgumentException
+    {
+        if (messageSize < 0)
+        {
+            throw new IllegalArgumentException("messageSize cannot be negative");
+        }
+
+        this.messageSize = messageSize;
+    }
+
+    /**
+     * Getter for the size of the telemetry messages.
+     *
+     * @return the size in bytes.
+     */
+    public int getMessageSize()
+    {
+        return this.messageSize;
+    }
+
+    /**
+     * Setter for the number of telemetry messages and reported properties updates per second of each device.
+     *
+     * @param messagesPerSecond the number per second, or 0 for none. It cannot be negative.
+     * @throws IllegalArgumentException if the number is negative.
+     */
+    public void setMessagesPerSecond(double messagesPerSecond) throws IllegalArgumentException
+    {
+        if (!(messagesPerSecond >= 0))
+        {
+            throw new IllegalArgumentException("messagesPerSecond cannot be negative");
+        }
+
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    /**
+     * Getter for the number of telemetry messages and reported properties updates per second of each device.
+     *
+     * @return the number per second.
+     */
+    public double getMessagesPerSecond()
+    {
+        return this.messagesPerSecond;
+    }
+
+    /**
+     * Setter for the share of the messages of the devices that are reported properties updates.
+     *
+     * @param twinRatio the share, from 0 to 1.
+     * @throws IllegalArgumentException if the share is not between 0 and 1.
+     */
+    public void setTwinRatio(double twinRatio) throws IllegalArgumentException
+    {
+        if (!(twinRatio >= 0 && twinRatio <= 1))
+        {
+            throw new IllegalArgumentException("twinRatio shall be between 0 and 1");
+        }
+
+        this.twinRatio = twinRatio;
+    }
+
+    /**
+     * Getter for the share of the messages of the devices that are reported properties updates.
+     *
+     * @return the share, from 0 to 1.
+     */
+    public double getTwinRatio()
+    {
+        return this.twinRatio;
+    }
+
+    /**
+     * Setter for the number of direct methods called per second on each device.
+     *
+     * @param methodsPerSecond the number per second, or 0 for none. It cannot be negative.
+     * @throws IllegalArgumentException if the number is negative.
+     */
+    public void setMethodsPerSecond(double methodsPerSecond) throws IllegalArgumentException
+    {
+        if (!(methodsPerSecond >= 0))
+        {
+            throw new IllegalArgumentException("methodsPerSecond cannot be negative");
+        }
+
+        this.methodsPerSecond = methodsPerSecond;
+    }
+
+    /**
+     * Getter for the number of direct methods called per second on each device.
+     *
+     * @return the number per second.
+     */
+    public double getMethodsPerSecond()
+    {
+        return this.methodsPerSecond;
+    }
+
+    /**
+     * Setter for the duration of the load, from the time all the devices are connected.
+     *
+     * @param durationSeconds the duration in seconds. It shall be positive.
+     * @throws IllegalArgumentException if the duration is not positive.
+     */
+    public void setDurationSeconds(long durationSeconds) throws IllegalArgumentException
+    {
+        if (durationSeconds < 1)
+        {
+            throw new IllegalArgumentException("durationSeconds shall be positive");
+        }
+
+        this.durationSeconds = durationSeconds;
+    }
+
+    /**
+     * Getter for the duration of the load.
+     *
+     * @return the duration in seconds.
+     */
+    public long getDurationSeconds()
+    {
+        return this.durationSeconds;
+    }
+
+    /**
+     * Setter for the number of threads of the runtime shared by all the clients.
+     *
+     * @param runtimeThreadCount the number of threads. It shall be positive.
+     * @throws IllegalArgumentException if the number is not positive.
+     */
+    public void setRuntimeThreadCount(int runtimeThreadCount) throws IllegalArgumentException
+    {
+        if (runtimeThreadCount < 1)
+        {
+            throw new IllegalArgumentException("runtimeThreadCount shall be positive");
+        }
+
+        this.runtimeThreadCount = runtimeThreadCount;
+    }
+
+    /**
+     * Getter for the number of threads of the runtime shared by all the clients.
+     *
+     * @return the number of threads.
+     */
+    public int getRuntimeThreadCount()
+    {
+        return this.runtimeThreadCount;
+    }
+
+    /**
+     * Setter for the interval between two disconnections of all the devices by the emulator, to measure how long
+     * the clients take to reconnect. Only the emulator can disconnect the devices.
+     *
+     * @param disconnectIntervalSeconds the interval in seconds, or 0 to never disconnect the devices. It cannot be
+     *                                  negative.
+     * @throws IllegalArgumentException if the interval is negative.
+     */
+    public void setDisconnectIntervalSeconds(long disconnectIntervalSeconds) throws IllegalArgumentException
+    {
+        if (disconnectIntervalSeconds < 0)
+        {
+            throw new IllegalArgumentException("disconnectIntervalSeconds cannot be negative");
+        }
+
+        this.disconnectIntervalSeconds = disconnectIntervalSeconds;
+    }
+
+    /**
+     * Getter for the interval between two disconnections of all the devices by the emulator.
+     *
+     * @return the interval in seconds, or 0 if the devices are never disconnected.
+     */
+    public long getDisconnectIntervalSeconds()
+    {
+        return this.disconnectIntervalSeconds;
+    }
+
+    /**
+     * Setter for the path of the file of the device connection strings, one per line. The empty lines and the lines
+     * starting with {@code #} are skipped. The fleet is made of the first devices of the file.
+     *
+     * @param connectionStringsPath the path, or {@code null} to connect to an emulator started in the process.
+     */
+    public void setConnectionStringsPath(String connectionStringsPath)
+    {
+        this.connectionStringsPath = connectionStringsPath;
+    }
+
+    /**
+     * Getter for the path of the file of the device connection strings.
+     *
+     * @return the path, or {@code null} if the devices connect to an emulator started in the process.
+     */
+    public String getConnectionStringsPath()
+    {
+        return this.connectionStringsPath;
+    }
+
+    /**
+     * Setter for the connection string of the hub, used to call the direct methods of the devices. It is only
+     * needed to call direct methods on the devices of a hub.
+     *
+     * @param serviceConnectionString the connection string, or {@code null}.
+     */
+    public void setServiceConnectionString(String serviceConnectionString)
+    {
+        this.serviceConnectionString = serviceConnectionString;
+    }
+
+    /**
+     * Getter for the connection string of the hub, used to call the direct methods of the devices.
+     *
+     * @return the connection string, or {@code null}.
+     */
+    public String getServiceConnectionString()
+    {
+        return this.serviceConnectionString;
+    }
+
+    /**
+     * Setter for the path of a PEM file with the certificate of the hub to trust, for the hubs whose certificate is
+     * not trusted by default.
+     *
+     * @param trustedCertificatePath the path, or {@code null} to trust the default certificates.
+     */
+    public void setTrustedCertificatePath(String trustedCertificatePath)
+    {
+        this.trustedCertificatePath = trustedCertificatePath;
+    }
+
+    /**
+     * Getter for the path of a PEM file with the certificate of the hub to trust.
+     *
+     * @return the path, or {@code null} if the default certificates are trusted.
+     */
+    public String getTrustedCertificatePath()
+    {
+        return this.trustedCertificatePath;
+    }
+
+    /**
+     * Check that the settings can be used together.
+     *
+     * @throws IllegalArgumentException if direct methods are called on the devices of a hub without its connection
+     *                                  string, or if the devices of a hub are to be disconnected.
+     */
+    void validate() throws IllegalArgumentException
+    {
+        if (this.connectionStringsPath != null)
+        {
+            if (this.methodsPerSecond > 0 && this.serviceConnectionString == null)
+            {
+                throw new IllegalArgumentException("The service connection string is needed to call the direct methods of the devices of a hub");
+            }
+
+            if (this.disconnectIntervalSeconds > 0)
+            {
+                throw new IllegalArgumentException("Only the devices connected to the emulator can be disconnected");
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d devices over %s%s, %d byte messages at %s per second per device with %s%% twin updates, %s methods per second per device, for %d s against %s",
+                this.deviceCount,
+                this.transport,
+                this.transport == Transport.AMQPS_MULTIPLEXED ? " (" + this.devicesPerConnection + " devices per connection)" : "",
+                this.messageSize,
+                this.messagesPerSecond,
+                this.twinRatio * 100,
+                this.methodsPerSecond,
+                this.durationSeconds,
+                this.connectionStringsPath == null ? "the emulator" : "the hub of " + this.connectionStringsPath);
+    }
+}
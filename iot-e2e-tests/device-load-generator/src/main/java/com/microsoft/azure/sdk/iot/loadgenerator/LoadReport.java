@@ -0,0 +1,199 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+/**
+ * What the client side saw of a run of a {@link DeviceLoadGenerator}.
+ *
+ * <p> The latencies are measured from the call that starts an operation to the callback that reports its outcome:
+ *     the open of each connection, the send of each telemetry message, the update of the reported properties, the
+ *     call of each direct method and the reconnection of each client after its connection dropped. The throughput
+ *     is the number of telemetry messages acknowledged per second of load.
+ */
+public final class LoadReport
+{
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final LoadProfile profile;
+    private final long loadMillis;
+    private final OperationStats connections;
+    private final OperationStats telemetry;
+    private final OperationStats twinUpdates;
+    private final OperationStats methods;
+    private final OperationStats reconnections;
+    private final long retryCount;
+    private final long bytesSent;
+    private final long bytesReceived;
+    private final long maxHeapBytes;
+    private final long averageHeapBytes;
+    private final int maxThreadCount;
+    private final double averageThreadCount;
+
+    LoadReport(LoadProfile profile, long loadMillis, OperationStats connections, OperationStats telemetry,
+               OperationStats twinUpdates, OperationStats methods, FleetMetrics metrics, ResourceSampler resources)
+    {
+        this.profile = profile;
+        this.loadMillis = loadMillis;
+        this.connections = connections;
+        this.telemetry = telemetry;
+        this.twinUpdates = twinUpdates;
+        this.methods = methods;
+        this.reconnections = metrics.getReconnections();
+        this.retryCount = metrics.getRetryCount();
+        this.bytesSent = metrics.getBytesSent();
+        this.bytesReceived = metrics.getBytesReceived();
+        this.maxHeapBytes = resources.getMaxHeapBytes();
+        this.averageHeapBytes = resources.getAverageHeapBytes();
+        this.maxThreadCount = resources.getMaxThreadCount();
+        this.averageThreadCount = resources.getAverageThreadCount();
+    }
+
+    /**
+     * Getter for the profile of the run.
+     *
+     * @return the profile.
+     */
+    public LoadProfile getProfile()
+    {
+        return this.profile;
+    }
+
+    /**
+     * Getter for the time the load was applied, from the time all the devices were connected.
+     *
+     * @return the time in milliseconds.
+     */
+    public long getLoadMillis()
+    {
+        return this.loadMillis;
+    }
+
+    /**
+     * Getter for the opens of the connections, one per device or one per transport client when they are multiplexed.
+     *
+     * @return the connection opens.
+     */
+    public OperationStats getConnections()
+    {
+        return this.connections;
+    }
+
+    /**
+     * Getter for the telemetry messages.
+     *
+     * @return the telemetry messages.
+     */
+    public OperationStats getTelemetry()
+    {
+        return this.telemetry;
+    }
+
+    /**
+     * Getter for the reported properties updates.
+     *
+     * @return the reported properties updates.
+     */
+    public OperationStats getTwinUpdates()
+    {
+        return this.twinUpdates;
+    }
+
+    /**
+     * Getter for the direct method calls.
+     *
+     * @return the direct method calls.
+     */
+    public OperationStats getMethods()
+    {
+        return this.methods;
+    }
+
+    /**
+     * Getter for the reconnections of the clients. A reconnection is acknowledged once the client is connected again,
+     * and fails once the client gives up.
+     *
+     * @return the reconnections.
+     */
+    public OperationStats getReconnections()
+    {
+        return this.reconnections;
+    }
+
+    /**
+     * Getter for the number of telemetry messages acknowledged per second of load.
+     *
+     * @return the throughput.
+     */
+    public double getTelemetryThroughput()
+    {
+        return this.telemetry.getAcknowledgedCount() * 1000.0 / Math.max(this.loadMillis, 1);
+    }
+
+    /**
+     * Getter for the number of times the clients sent a message again after it failed.
+     *
+     * @return the number of retries.
+     */
+    public long getRetryCount()
+    {
+        return this.retryCount;
+    }
+
+    /**
+     * Getter for the highest heap used that was sampled during the run.
+     *
+     * @return the heap used in bytes.
+     */
+    public long getMaxHeapBytes()
+    {
+        return this.maxHeapBytes;
+    }
+
+    /**
+     * Getter for the average of the heap used that was sampled during the run.
+     *
+     * @return the heap used in bytes.
+     */
+    public long getAverageHeapBytes()
+    {
+        return this.averageHeapBytes;
+    }
+
+    /**
+     * Getter for the highest number of live threads that was sampled during the run.
+     *
+     * @return the number of threads.
+     */
+    public int getMaxThreadCount()
+    {
+        return this.maxThreadCount;
+    }
+
+    /**
+     * Getter for the average of the number of live threads that was sampled during the run.
+     *
+     * @return the number of threads.
+     */
+    public double getAverageThreadCount()
+    {
+        return this.averageThreadCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder report = new StringBuilder();
+        report.append("Profile: ").append(this.profile).append(System.lineSeparator());
+        report.append(String.format("Load: %.1f s, %.1f telemetry messages per second, %d retries, %d bytes sent, %d bytes received",
+                this.loadMillis / 1000.0, this.getTelemetryThroughput(), this.retryCount, this.bytesSent, this.bytesReceived)).append(System.lineSeparator());
+        report.append("Connections: ").append(this.connections).append(System.lineSeparator());
+        report.append("Telemetry: ").append(this.telemetry).append(System.lineSeparator());
+        report.append("Twin updates: ").append(this.twinUpdates).append(System.lineSeparator());
+        report.append("Methods: ").append(this.methods).append(System.lineSeparator());
+        report.append("Reconnections: ").append(this.reconnections).append(System.lineSeparator());
+        report.append(String.format("Heap: max %.1f MB, average %.1f MB; threads: max %d, average %.1f",
+                this.maxHeapBytes / BYTES_PER_MEGABYTE, this.averageHeapBytes / BYTES_PER_MEGABYTE, this.maxThreadCount, this.averageThreadCount));
+        return report.toString();
+    }
+}
@@ -0,0 +1,89 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counts and the latencies of one kind of operation of the fleet, such as the telemetry messages. Each operation
+ * started ends either acknowledged, with its latency, or failed.
+ */
+public final class OperationStats
+{
+    private final LongAdder startedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    void started()
+    {
+        this.startedCount.increment();
+    }
+
+    void acknowledged(long latencyNanos)
+    {
+        this.latency.record(latencyNanos);
+    }
+
+    void failed()
+    {
+        this.failedCount.increment();
+    }
+
+    /**
+     * Getter for the number of operations started.
+     *
+     * @return the number of operations.
+     */
+    public long getStartedCount()
+    {
+        return this.startedCount.sum();
+    }
+
+    /**
+     * Getter for the number of operations acknowledged.
+     *
+     * @return the number of operations.
+     */
+    public long getAcknowledgedCount()
+    {
+        return this.latency.getCount();
+    }
+
+    /**
+     * Getter for the number of operations that failed.
+     *
+     * @return the number of operations.
+     */
+    public long getFailedCount()
+    {
+        return this.failedCount.sum();
+    }
+
+    /**
+     * Getter for the number of operations neither acknowledged nor failed yet.
+     *
+     * @return the number of operations.
+     */
+    public long getPendingCount()
+    {
+        return this.getStartedCount() - this.getAcknowledgedCount() - this.getFailedCount();
+    }
+
+    /**
+     * Getter for the latencies from the start of the operations to their acknowledgement.
+     *
+     * @return the latencies of the acknowledged operations.
+     */
+    public LatencyHistogram getLatency()
+    {
+        return this.latency;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("started %d, acknowledged %d, failed %d; latency %s",
+                this.getStartedCount(), this.getAcknowledgedCount(), this.getFailedCount(), this.latency);
+    }
+}
@@ -0,0 +1,56 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.loadgenerator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Samples the heap used and the number of live threads of the JVM, which includes the emulator when it runs in the
+ * same process as the fleet.
+ */
+final class ResourceSampler
+{
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private long sampleCount = 0;
+    private long maxHeapBytes = 0;
+    private long totalHeapBytes = 0;
+    private int maxThreadCount = 0;
+    private long totalThreadCount = 0;
+
+    synchronized void sample()
+    {
+        long heapBytes = this.memory.getHeapMemoryUsage().getUsed();
+        int threadCount = this.threads.getThreadCount();
+
+        this.sampleCount++;
+        this.maxHeapBytes = Math.max(this.maxHeapBytes, heapBytes);
+        this.totalHeapBytes += heapBytes;
+        this.maxThreadCount = Math.max(this.maxThreadCount, threadCount);
+        this.totalThreadCount += threadCount;
+    }
+
+    synchronized long getMaxHeapBytes()
+    {
+        return this.maxHeapBytes;
+    }
+
+    synchronized long getAverageHeapBytes()
+    {
+        return this.sampleCount == 0 ? 0 : this.totalHeapBytes / this.sampleCount;
+    }
+
+    synchronized int getMaxThreadCount()
+    {
+        return this.maxThreadCount;
+    }
+
+    synchronized double getAverageThreadCount()
+    {
+        return this.sampleCount == 0 ? 0 : (double) this.totalThreadCount / this.sampleCount;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.integration.com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.loadgenerator.DeviceLoadGenerator;
+import com.microsoft.azure.sdk.iot.loadgenerator.LoadProfile;
+import com.microsoft.azure.sdk.iot.loadgenerator.LoadReport;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs a small fleet against the emulator, over each transport.
+ */
+@RunWith(Parameterized.class)
+public class DeviceLoadGeneratorTest
+{
+    private static final int DEVICE_COUNT = 4;
+
+    private final LoadProfile.Transport transport;
+
+    public DeviceLoadGeneratorTest(LoadProfile.Transport transport)
+    {
+        this.transport = transport;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection inputs()
+    {
+        return Arrays.asList(new Object[][] {
+                { LoadProfile.Transport.MQTT },
+                { LoadProfile.Transport.AMQPS },
+                { LoadProfile.Transport.AMQPS_MULTIPLEXED } });
+    }
+
+    @Test
+    public void fleetIsLoadedAndReported() throws Exception
+    {
+        //arrange
+        LoadProfile profile = LoadProfile.parse(new String[] {
+                "--devices=" + DEVICE_COUNT,
+                "--transport=" + this.transport.name().toLowerCase().replace('_', '-'),
+                "--devices-per-connection=2",
+                "--message-size=64",
+                "--message-rate=10",
+                "--twin-ratio=0.2",
+                "--method-rate=2",
+                "--duration=3",
+                "--runtime-threads=2" });
+
+        //act
+        LoadReport report = new DeviceLoadGenerator(profile).run();
+
+        //assert
+        long expectedConnections = this.transport == LoadProfile.Transport.AMQPS_MULTIPLEXED ? DEVICE_COUNT / 2 : DEVICE_COUNT;
+        assertEquals(expectedConnections, report.getConnections().getAcknowledgedCount());
+        assertTrue(report.getTelemetry().getAcknowledgedCount() > 0);
+        assertEquals(0, report.getTelemetry().getFailedCount());
+        assertEquals(0, report.getTelemetry().getPendingCount());
+        assertTrue(report.getTwinUpdates().getAcknowledgedCount() > 0);
+        assertTrue(report.getMethods().getAcknowledgedCount() > 0);
+        assertTrue(report.getTelemetryThroughput() > 0);
+        assertTrue(report.getMaxHeapBytes() > 0);
+        assertTrue(report.getMaxThreadCount() > 0);
+    }
+
+    @Test
+    public void reconnectionsAreReported() throws Exception
+    {
+        //arrange
+        LoadProfile profile = new LoadProfile();
+        profile.setDeviceCount(2);
+        profile.setTransport(this.transport);
+        profile.setDurationSeconds(4);
+        profile.setDisconnectIntervalSeconds(1);
+
+        //act
+        LoadReport report = new DeviceLoadGenerator(profile).run();
+
+        //assert
+        assertTrue(report.getReconnections().getAcknowledgedCount() > 0);
+        assertTrue(report.getReconnections().getLatency().getMaxMillis() > 0);
+    }
+}
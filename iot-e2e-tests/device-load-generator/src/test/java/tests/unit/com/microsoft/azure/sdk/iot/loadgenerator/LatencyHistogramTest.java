@@ -0,0 +1,94 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.loadgenerator;
+
+import com.microsoft.azure.sdk.iot.loadgenerator.LatencyHistogram;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for LatencyHistogram.
+ */
+public class LatencyHistogramTest
+{
+    private static final double RELATIVE_PRECISION = 0.035;
+
+    @Test
+    public void emptyHistogramReportsZero()
+    {
+        //arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        //act
+        double p99 = histogram.getPercentileMillis(99);
+
+        //assert
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, p99, 0);
+        assertEquals(0, histogram.getMeanMillis(), 0);
+    }
+
+    @Test
+    public void percentilesAreWithinPrecision()
+    {
+        //arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        //act
+        for (int millis = 1; millis <= 1000; millis++)
+        {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        //assert
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.getPercentileMillis(50), 500 * RELATIVE_PRECISION);
+        assertEquals(990, histogram.getPercentileMillis(99), 990 * RELATIVE_PRECISION);
+        assertEquals(1000, histogram.getPercentileMillis(100), 0);
+        assertEquals(1000, histogram.getMaxMillis(), 0);
+        assertEquals(500.5, histogram.getMeanMillis(), 0.001);
+    }
+
+    @Test
+    public void shortLatenciesAreExact()
+    {
+        //arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        //act
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(10));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(20));
+        histogram.record(-1);
+
+        //assert
+        assertEquals(0, histogram.getPercentileMillis(30), 0);
+        assertEquals(0.01, histogram.getPercentileMillis(50), 0);
+        assertEquals(0.02, histogram.getPercentileMillis(100), 0);
+    }
+
+    @Test
+    public void longLatenciesAreCapped()
+    {
+        //arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        //act
+        histogram.record(TimeUnit.DAYS.toNanos(1));
+
+        //assert
+        assertEquals(LatencyHistogram.MAX_LATENCY_MICROS / 1000.0, histogram.getPercentileMillis(50), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentileOutOfRangeThrows()
+    {
+        //act
+        new LatencyHistogram().getPercentileMillis(0);
+    }
+}
@@ -0,0 +1,968 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.amqp.messaging.Modified;
+import org.apache.qpid.proton.amqp.messaging.Properties;
+import org.apache.qpid.proton.amqp.messaging.Released;
+import org.apache.qpid.proton.amqp.messaging.Section;
+import org.apache.qpid.proton.amqp.messaging.Source;
+import org.apache.qpid.proton.amqp.messaging.Target;
+import org.apache.qpid.proton.amqp.transport.AmqpError;
+import org.apache.qpid.proton.amqp.transport.ConnectionError;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
+import org.apache.qpid.proton.amqp.transport.LinkError;
+import org.apache.qpid.proton.engine.Collector;
+import org.apache.qpid.proton.engine.Connection;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Link;
+import org.apache.qpid.proton.engine.Receiver;
+import org.apache.qpid.proton.engine.Sasl;
+import org.apache.qpid.proton.engine.SaslListener;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.engine.Session;
+import org.apache.qpid.proton.engine.Transport;
+import org.apache.qpid.proton.engine.TransportException;
+import org.apache.qpid.proton.message.Message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The AMQP connection of one device, or of the devices multiplexed by a transport client.
+ *
+ * <p> The devices authenticate with a put-token request on the {@code $cbs} node, which is always accepted, and then
+ *     open the links of their telemetry, cloud to device messages, twin and methods. The links are routed on their
+ *     address, so each device may use its own session or share one.
+ *
+ * <p> The proton engine is not thread safe: it is only used under the engine lock of the connection, by the thread of
+ *     the connection that reads the frames of the devices, and by the threads that send messages to the devices.
+ */
+@Slf4j
+final class AmqpConnection
+{
+    private static final String CONTAINER_ID = "iot-hub-emulator";
+    private static final String CBS_ADDRESS = "$cbs";
+    private static final Pattern DEVICE_ADDRESS = Pattern.compile(
+            "^/devices/([^/]+)(?:/modules/([^/]+))?/(messages/events|messages/devicebound|twin|methods/devicebound)$");
+    private static final int RECEIVER_CREDIT = 100;
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final int ENCODE_BUFFER_OVERHEAD = 1024;
+
+    private static final String CBS_STATUS_CODE = "status-code";
+    private static final String CBS_STATUS_DESCRIPTION = "status-description";
+    private static final Symbol TWIN_OPERATION = Symbol.valueOf("operation");
+    private static final Symbol TWIN_STATUS = Symbol.valueOf("status");
+    private static final Symbol TWIN_VERSION = Symbol.valueOf("version");
+    private static final String METHOD_NAME = "IoThub-methodname";
+    private static final String METHOD_STATUS = "IoThub-status";
+
+    private enum Route
+    {
+        CBS, TELEMETRY, CLOUD_TO_DEVICE, TWIN, METHODS
+    }
+
+    private static final class LinkState
+    {
+        private final Route route;
+        private final Device device;
+        private final Deque<Outgoing> pending = new ArrayDeque<>();
+
+        private LinkState(Route route, Device device)
+        {
+            this.route = route;
+            this.device = device;
+        }
+    }
+
+    private static final class Outgoing
+    {
+        private final Message message;
+        private final CloudToDeviceMessage cloudToDeviceMessage;
+
+        private Outgoing(Message message, CloudToDeviceMessage cloudToDeviceMessage)
+        {
+            this.message = message;
+            this.cloudToDeviceMessage = cloudToDeviceMessage;
+        }
+    }
+
+    private final Hub hub;
+    private final Socket socket;
+    private final ReentrantLock engineLock = new ReentrantLock();
+    private final Connection connection = Proton.connection();
+    private final Transport transport = Proton.transport();
+    private final Collector collector = Proton.collector();
+    private final ConcurrentMap<String, Device> devices = new ConcurrentHashMap<>();
+    private final Map<Session, Sender> cbsSenders = new HashMap<>();
+    private OutputStream outputStream;
+    private long lastDeliveryTag = 0;
+    private volatile boolean isClosed = false;
+
+    AmqpConnection(Hub hub, Socket socket)
+    {
+        this.hub = hub;
+        this.socket = socket;
+    }
+
+    /**
+     * Serve the connection until it ends.
+     *
+     * @throws IOException if the connection failed.
+     */
+    void run() throws IOException
+    {
+        InputStream inputStream = this.socket.getInputStream();
+        this.outputStream = this.socket.getOutputStream();
+
+        Sasl sasl = this.transport.sasl();
+        sasl.server();
+        sasl.setMechanisms("ANONYMOUS", "PLAIN");
+        // the devices authenticate with their put-token requests, that are not verified either
+        sasl.setListener(new SaslListener()
+        {
+            @Override
+            public void onSaslInit(Sasl sasl, Transport transport)
+            {
+                sasl.done(Sasl.SaslOutcome.PN_SASL_OK);
+            }
+
+            @Override
+            public void onSaslMechanisms(Sasl sasl, Transport transport)
+            {
+            }
+
+            @Override
+            public void onSaslChallenge(Sasl sasl, Transport transport)
+            {
+            }
+
+            @Override
+            public void onSaslResponse(Sasl sasl, Transport transport)
+            {
+            }
+
+            @Override
+            public void onSaslOutcome(Sasl sasl, Transport transport)
+            {
+            }
+        });
+        this.transport.bind(this.connection);
+        this.connection.collect(this.collector);
+
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try
+        {
+            int count;
+            while (!this.isClosed && ((count = inputStream.read(buffer)) >= 0))
+            {
+                this.engineLock.lock();
+                try
+                {
+                    if (!this.input(buffer, count))
+                    {
+                        break;
+                    }
+                }
+                finally
+                {
+                    this.engineLock.unlock();
+                }
+            }
+        }
+        finally
+        {
+            this.closed();
+        }
+    }
+
+    private boolean input(byte[] buffer, int count)
+    {
+        int offset = 0;
+        while (offset < count)
+        {
+            if (this.transport.capacity() <= 0)
+            {
+                return false;
+            }
+
+            ByteBuffer tail = this.transport.tail();
+            int length = Math.min(tail.remaining(), count - offset);
+            tail.put(buffer, offset, length);
+            offset += length;
+            try
+            {
+                this.transport.process();
+            }
+            catch (TransportException e)
+            {
+                log.debug("An AMQP connection sent invalid frames", e);
+                return false;
+            }
+
+            this.processEvents();
+        }
+
+        this.flush();
+        return !this.transport.isClosed();
+    }
+
+    private void processEvents()
+    {
+        Event event;
+        while ((event = this.collector.peek()) != null)
+        {
+            this.handle(event);
+            this.collector.pop();
+        }
+    }
+
+    private void handle(Event event)
+    {
+        switch (event.getType())
+        {
+            case CONNECTION_REMOTE_OPEN:
+                this.connection.setContainer(CONTAINER_ID);
+                this.connection.open();
+                break;
+
+            case CONNECTION_REMOTE_CLOSE:
+                this.connection.close();
+                break;
+
+            case SESSION_REMOTE_OPEN:
+                event.getSession().open();
+                break;
+
+            case SESSION_REMOTE_CLOSE:
+                this.cbsSenders.remove(event.getSession());
+                event.getSession().close();
+                break;
+
+            case LINK_REMOTE_OPEN:
+                this.openLink(event.getLink());
+                break;
+
+            case LINK_REMOTE_CLOSE:
+                this.closeLink(event.getLink());
+                break;
+
+            case LINK_FLOW:
+                if (event.getLink() instanceof Sender)
+                {
+                    this.sendPending((Sender) event.getLink());
+                }
+                break;
+
+            case DELIVERY:
+                if (event.getLink() instanceof Receiver)
+                {
+                    this.receive((Receiver) event.getLink(), event.getDelivery());
+                }
+                else
+                {
+                    this.acknowledged(event.getLink(), event.getDelivery());
+                }
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    // links
+
+    private void openLink(Link link)
+    {
+        link.setSource(link.getRemoteSource());
+        link.setTarget(link.getRemoteTarget());
+        link.setSenderSettleMode(link.getRemoteSenderSettleMode());
+        link.setReceiverSettleMode(link.getRemoteReceiverSettleMode());
+
+        // the address of a link is the source of a device receiver, and the target of a device sender
+        String address = (link instanceof Sender) ? getAddress(link.getRemoteSource()) : getAddress(link.getRemoteTarget());
+        LinkState state = this.route(link, address);
+        if (state == null)
+        {
+            log.debug("A device opened a link to the unsupported address {}", address);
+            link.setCondition(new ErrorCondition(AmqpError.NOT_FOUND, "The address " + address + " is not supported"));
+            link.open();
+            link.close();
+            return;
+        }
+
+        link.setContext(state);
+        link.open();
+        if (link instanceof Receiver)
+        {
+            ((Receiver) link).flow(RECEIVER_CREDIT);
+        }
+        else if (state.route == Route.CLOUD_TO_DEVICE)
+        {
+            state.device.cloudToDeviceSender = (Sender) link;
+            this.hub.deliverCloudToDeviceMessages(state.device.deviceId);
+        }
+        else if (state.route == Route.TWIN)
+        {
+            // the device client subscribes to its desired properties by opening its twin links
+            state.device.twinSender = (Sender) link;
+            state.device.isSubscribedToDesiredProperties = true;
+        }
+        else if (state.route == Route.METHODS)
+        {
+            state.device.methodsSender = (Sender) link;
+        }
+    }
+
+    private LinkState route(Link link, String address)
+    {
+        if (CBS_ADDRESS.equals(address))
+        {
+            if (link instanceof Sender)
+            {
+                this.cbsSenders.put(link.getSession(), (Sender) link);
+            }
+            return new LinkState(Route.CBS, null);
+        }
+
+        Matcher matcher = DEVICE_ADDRESS.matcher((address == null) ? "" : address);
+        if (!matcher.matches())
+        {
+            return null;
+        }
+
+        // a module is identified as it is over MQTT, with its device id and module id
+        String deviceId = (matcher.group(2) == null) ? matcher.group(1) : matcher.group(1) + "/" + matcher.group(2);
+        boolean isDeviceSender = link instanceof Receiver;
+        Route route;
+        switch (matcher.group(3))
+        {
+            case "messages/events":
+                route = isDeviceSender ? Route.TELEMETRY : null;
+                break;
+            case "messages/devicebound":
+                route = isDeviceSender ? null : Route.CLOUD_TO_DEVICE;
+                break;
+            case "twin":
+                route = Route.TWIN;
+                break;
+            default:
+                route = Route.METHODS;
+                break;
+        }
+        if (route == null)
+        {
+            return null;
+        }
+
+        Device device = this.devices.get(deviceId);
+        if (device == null)
+        {
+            device = new Device(deviceId);
+            this.devices.put(deviceId, device);
+            this.hub.connected(device);
+        }
+
+        return new LinkState(route, device);
+    }
+
+    private void closeLink(Link link)
+    {
+        LinkState state = (LinkState) link.getContext();
+        if ((state != null) && (state.device != null))
+        {
+            Device device = state.device;
+            if (link == device.cloudToDeviceSender)
+            {
+                device.cloudToDeviceSender = null;
+                device.abandonInFlightMessages();
+            }
+            else if (link == device.twinSender)
+            {
+                device.twinSender = null;
+                device.isSubscribedToDesiredProperties = false;
+            }
+            else if (link == device.methodsSender)
+            {
+                device.methodsSender = null;
+            }
+        }
+
+        link.close();
+    }
+
+    // deliveries
+
+    private void receive(Receiver receiver, Delivery delivery)
+    {
+        if (!delivery.isReadable() || delivery.isPartial())
+        {
+            return;
+        }
+
+        byte[] bytes = new byte[delivery.pending()];
+        int length = receiver.recv(bytes, 0, bytes.length);
+        receiver.advance();
+        receiver.flow(1);
+
+        Message message = Proton.message();
+        message.decode(bytes, 0, length);
+
+        LinkState state = (LinkState) receiver.getContext();
+        switch (state.route)
+        {
+            case CBS:
+                accept(delivery);
+                this.putToken(receiver.getSession(), message);
+                break;
+
+            case TELEMETRY:
+                this.receiveTelemetry(state.device, delivery, message);
+                break;
+
+            case TWIN:
+                accept(delivery);
+                this.receiveTwinRequest(state.device, message);
+                break;
+
+            case METHODS:
+                accept(delivery);
+                this.receiveMethodResponse(message);
+                break;
+
+            default:
+                accept(delivery);
+                break;
+        }
+    }
+
+    private void putToken(Session session, Message request)
+    {
+        Sender sender = this.cbsSenders.get(session);
+        if (sender == null)
+        {
+            log.debug("A device sent a put-token request without a $cbs receiver link");
+            return;
+        }
+
+        Map<String, Object> applicationProperties = new HashMap<>();
+        applicationProperties.put(CBS_STATUS_CODE, 200);
+        applicationProperties.put(CBS_STATUS_DESCRIPTION, "OK");
+
+        Message response = Proton.message();
+        Properties properties = new Properties();
+        properties.setCorrelationId(request.getMessageId());
+        response.setProperties(properties);
+        response.setApplicationProperties(new ApplicationProperties(applicationProperties));
+        this.send(sender, response, null);
+    }
+
+    private void receiveTelemetry(Device device, final Delivery delivery, Message message)
+    {
+        Map<String, String> properties = new HashMap<>();
+        if (message.getApplicationProperties() != null)
+        {
+            for (Map.Entry<String, Object> property : message.getApplicationProperties().getValue().entrySet())
+            {
+                properties.put(property.getKey(), String.valueOf(property.getValue()));
+            }
+        }
+
+        long delay = this.hub.receiveTelemetry(device.deviceId, getBody(message), properties);
+        if (delay >= 0)
+        {
+            this.hub.respond(delay, () -> this.withEngine(() -> accept(delivery)));
+        }
+    }
+
+    private void receiveTwinRequest(final Device device, Message request)
+    {
+        final Object correlationId = (request.getProperties() == null) ? null : request.getProperties().getCorrelationId();
+        Object operation = null;
+        if (request.getMessageAnnotations() != null)
+        {
+            operation = request.getMessageAnnotations().getValue().get(TWIN_OPERATION);
+        }
+
+        if ("GET".equals(operation))
+        {
+            final byte[] twin = this.hub.getTwinStore().getDeviceTwin(device.deviceId).getBytes(StandardCharsets.UTF_8);
+            this.hub.respond(this.hub.getFaultInjector().reserveOperation(),
+                    () -> this.withEngine(() -> this.sendTwinResponse(device, correlationId, 200, null, twin)));
+        }
+        else if ("PATCH".equals(operation))
+        {
+            int status;
+            Long version;
+            try
+            {
+                version = this.hub.getTwinStore().updateReportedProperties(device.deviceId, new String(getBody(request), StandardCharsets.UTF_8));
+                status = 204;
+            }
+            catch (IllegalArgumentException e)
+            {
+                version = null;
+                status = 400;
+            }
+
+            final int statusOfResponse = status;
+            final Long versionOfResponse = version;
+            this.hub.respond(this.hub.getFaultInjector().reserveOperation(),
+                    () -> this.withEngine(() -> this.sendTwinResponse(device, correlationId, statusOfResponse, versionOfResponse, null)));
+        }
+        else if ("PUT".equals(operation) || "DELETE".equals(operation))
+        {
+            // the explicit subscription to the desired properties, of the clients that send it
+            device.isSubscribedToDesiredProperties = "PUT".equals(operation);
+            this.sendTwinResponse(device, correlationId, 200, null, null);
+        }
+        else
+        {
+            log.debug("Device {} sent a twin request with the unsupported operation {}", device.deviceId, operation);
+            this.sendTwinResponse(device, correlationId, 400, null, null);
+        }
+    }
+
+    private void sendTwinResponse(Device device, Object correlationId, int status, Long version, byte[] body)
+    {
+        if (device.twinSender == null)
+        {
+            log.debug("Device {} has no twin receiver link for the response to its request", device.deviceId);
+            return;
+        }
+
+        Map<Symbol, Object> annotations = new HashMap<>();
+        annotations.put(TWIN_STATUS, status);
+        if (version != null)
+        {
+            annotations.put(TWIN_VERSION, version);
+        }
+
+        Message response = Proton.message();
+        Properties properties = new Properties();
+        properties.setCorrelationId(correlationId);
+        response.setProperties(properties);
+        response.setMessageAnnotations(new MessageAnnotations(annotations));
+        if (body != null)
+        {
+            response.setBody(new Data(new Binary(body)));
+        }
+        this.send(device.twinSender, response, null);
+    }
+
+    private void receiveMethodResponse(Message response)
+    {
+        Object requestId = (response.getProperties() == null) ? null : response.getProperties().getCorrelationId();
+        Object status = null;
+        if (response.getApplicationProperties() != null)
+        {
+            status = response.getApplicationProperties().getValue().get(METHOD_STATUS);
+        }
+        if ((requestId == null) || (status == null))
+        {
+            log.debug("A device sent a method response without request id or status");
+            return;
+        }
+
+        try
+        {
+            int statusCode = (status instanceof Number) ? ((Number) status).intValue() : Integer.parseInt(status.toString());
+            this.hub.receiveMethodResponse(requestId.toString(), statusCode, getBody(response));
+        }
+        catch (NumberFormatException e)
+        {
+            log.debug("A device responded to a method with the invalid status {}", status);
+        }
+    }
+
+    private void acknowledged(Link link, Delivery delivery)
+    {
+        DeliveryState remoteState = delivery.getRemoteState();
+        if ((remoteState == null) && !delivery.remotelySettled())
+        {
+            return;
+        }
+
+        CloudToDeviceMessage message = (CloudToDeviceMessage) delivery.getContext();
+        LinkState state = (LinkState) link.getContext();
+        if ((message != null) && (state != null) && state.device.inFlightMessages.remove(message))
+        {
+            if ((remoteState == null) || (remoteState instanceof Released) || (remoteState instanceof Modified))
+            {
+                this.hub.abandonCloudToDeviceMessage(message);
+            }
+            else
+            {
+                // a rejected message is dead lettered, so it is completed as well
+                this.hub.completeCloudToDeviceMessage(message);
+            }
+        }
+
+        delivery.settle();
+    }
+
+    private void send(Sender sender, Message message, CloudToDeviceMessage cloudToDeviceMessage)
+    {
+        LinkState state = (LinkState) sender.getContext();
+        if ((sender.getCredit() <= 0) || !state.pending.isEmpty())
+        {
+            state.pending.addLast(new Outgoing(message, cloudToDeviceMessage));
+            return;
+        }
+
+        this.deliver(sender, message, cloudToDeviceMessage);
+    }
+
+    private void sendPending(Sender sender)
+    {
+        LinkState state = (LinkState) sender.getContext();
+        if (state == null)
+        {
+            return;
+        }
+
+        while ((sender.getCredit() > 0) && !state.pending.isEmpty())
+        {
+            Outgoing outgoing = state.pending.removeFirst();
+            this.deliver(sender, outgoing.message, outgoing.cloudToDeviceMessage);
+        }
+    }
+
+    private void deliver(Sender sender, Message message, CloudToDeviceMessage cloudToDeviceMessage)
+    {
+        Delivery delivery = sender.delivery(Long.toString(++this.lastDeliveryTag).getBytes(StandardCharsets.UTF_8));
+        delivery.setContext(cloudToDeviceMessage);
+        byte[] encoded = encode(message);
+        sender.send(encoded, 0, encoded.length);
+        sender.advance();
+        if (cloudToDeviceMessage == null)
+        {
+            // only the cloud to device messages wait for the acknowledgement of the device
+            delivery.settle();
+        }
+    }
+
+    // engine
+
+    /**
+     * Run an update of the engine from another thread than the one of the connection, and write the frames it
+     * produced.
+     *
+     * @return {@code false} if the connection is closed, and the update did not run.
+     */
+    private boolean withEngine(Runnable update)
+    {
+        this.engineLock.lock();
+        try
+        {
+            if (this.isClosed)
+            {
+                return false;
+            }
+
+            update.run();
+            this.processEvents();
+            this.flush();
+            return true;
+        }
+        finally
+        {
+            this.engineLock.unlock();
+        }
+    }
+
+    private void flush()
+    {
+        try
+        {
+            int pending;
+            while ((pending = this.transport.pending()) > 0)
+            {
+                byte[] bytes = new byte[pending];
+                this.transport.head().get(bytes);
+                this.outputStream.write(bytes);
+                this.transport.pop(pending);
+            }
+            this.outputStream.flush();
+        }
+        catch (IOException e)
+        {
+            // the thread of the connection cleans up once its read fails
+            this.disconnect();
+        }
+    }
+
+    /**
+     * Detach the links and close the connection with a forced error, as the hub does, before dropping the socket. The
+     * reactor of the device client may not notice a bare TCP close until its next write.
+     */
+    private void forceClose()
+    {
+        this.withEngine(() ->
+        {
+            ErrorCondition condition = new ErrorCondition(LinkError.DETACH_FORCED, "The connection was dropped by the emulator");
+            for (Link link = this.connection.linkHead(null, null); link != null; link = link.next(null, null))
+            {
+                link.setCondition(condition);
+                link.close();
+            }
+            this.connection.setCondition(new ErrorCondition(ConnectionError.CONNECTION_FORCED, condition.getDescription()));
+            this.connection.close();
+        });
+        this.disconnect();
+    }
+
+    private void disconnect()
+    {
+        this.isClosed = true;
+        TlsServer.closeQuietly(this.socket);
+    }
+
+    private void closed()
+    {
+        this.engineLock.lock();
+        try
+        {
+            this.isClosed = true;
+            for (Device device : this.devices.values())
+            {
+                this.hub.disconnected(device);
+                device.abandonInFlightMessages();
+            }
+        }
+        finally
+        {
+            this.engineLock.unlock();
+        }
+    }
+
+    private static void accept(Delivery delivery)
+    {
+        delivery.disposition(Accepted.getInstance());
+        delivery.settle();
+    }
+
+    private static String getAddress(Object terminus)
+    {
+        if (terminus instanceof Source)
+        {
+            return ((Source) terminus).getAddress();
+        }
+        if (terminus instanceof Target)
+        {
+            return ((Target) terminus).getAddress();
+        }
+
+        return null;
+    }
+
+    private static byte[] getBody(Message message)
+    {
+        Section body = message.getBody();
+        Object value = null;
+        if (body instanceof Data)
+        {
+            value = ((Data) body).getValue();
+        }
+        else if (body instanceof AmqpValue)
+        {
+            value = ((AmqpValue) body).getValue();
+        }
+
+        if (value instanceof Binary)
+        {
+            Binary binary = (Binary) value;
+            return Arrays.copyOfRange(binary.getArray(), binary.getArrayOffset(), binary.getArrayOffset() + binary.getLength());
+        }
+
+        return (value == null) ? new byte[0] : value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(Message message)
+    {
+        int bodySize = (message.getBody() instanceof Data) ? ((Data) message.getBody()).getValue().getLength() : 0;
+        byte[] buffer = new byte[bodySize + ENCODE_BUFFER_OVERHEAD];
+        while (true)
+        {
+            try
+            {
+                int length = message.encode(buffer, 0, buffer.length);
+                return Arrays.copyOf(buffer, length);
+            }
+            catch (BufferOverflowException e)
+            {
+                buffer = new byte[buffer.length * 2];
+            }
+        }
+    }
+
+    /**
+     * A device of the connection.
+     */
+    private final class Device implements DeviceEndpoint
+    {
+        private final String deviceId;
+        private final Set<CloudToDeviceMessage> inFlightMessages = new LinkedHashSet<>();
+        private volatile Sender cloudToDeviceSender;
+        private volatile Sender twinSender;
+        private volatile Sender methodsSender;
+        private volatile boolean isSubscribedToDesiredProperties = false;
+
+        private Device(String deviceId)
+        {
+            this.deviceId = deviceId;
+        }
+
+        @Override
+        public String getDeviceId()
+        {
+            return this.deviceId;
+        }
+
+        @Override
+        public boolean isSubscribedToCloudToDeviceMessages()
+        {
+            return this.cloudToDeviceSender != null;
+        }
+
+        @Override
+        public boolean isSubscribedToDesiredProperties()
+        {
+            return this.isSubscribedToDesiredProperties;
+        }
+
+        @Override
+        public boolean isSubscribedToMethods()
+        {
+            return this.methodsSender != null;
+        }
+
+        @Override
+        public void sendCloudToDeviceMessage(final CloudToDeviceMessage message)
+        {
+            boolean isSent = AmqpConnection.this.withEngine(() ->
+            {
+                Sender sender = this.cloudToDeviceSender;
+                if (sender == null)
+                {
+                    AmqpConnection.this.hub.abandonCloudToDeviceMessage(message);
+                    return;
+                }
+
+                Message protonMessage = Proton.message();
+                Properties properties = new Properties();
+                properties.setMessageId(message.getMessageId());
+                properties.setTo(message.getTo());
+                protonMessage.setProperties(properties);
+                protonMessage.setApplicationProperties(new ApplicationProperties(new HashMap<String, Object>(message.getProperties())));
+                protonMessage.setBody(new Data(new Binary(message.getPayload())));
+
+                this.inFlightMessages.add(message);
+                AmqpConnection.this.send(sender, protonMessage, message);
+            });
+
+            if (!isSent)
+            {
+                AmqpConnection.this.hub.abandonCloudToDeviceMessage(message);
+            }
+        }
+
+        @Override
+        public void sendDesiredPropertiesPatch(final String patchJson, final long version)
+        {
+            AmqpConnection.this.withEngine(() ->
+            {
+                Sender sender = this.twinSender;
+                if (sender == null)
+                {
+                    return;
+                }
+
+                // a notification has no correlation id
+                Map<Symbol, Object> annotations = new HashMap<>();
+                annotations.put(TWIN_VERSION, version);
+                Message notification = Proton.message();
+                notification.setMessageAnnotations(new MessageAnnotations(annotations));
+                notification.setBody(new Data(new Binary(patchJson.getBytes(StandardCharsets.UTF_8))));
+                AmqpConnection.this.send(sender, notification, null);
+            });
+        }
+
+        @Override
+        public void sendMethodRequest(final String requestId, final String methodName, final byte[] payload)
+        {
+            AmqpConnection.this.withEngine(() ->
+            {
+                Sender sender = this.methodsSender;
+                if (sender == null)
+                {
+                    return;
+                }
+
+                Map<String, Object> applicationProperties = new HashMap<>();
+                applicationProperties.put(METHOD_NAME, methodName);
+                Message request = Proton.message();
+                Properties properties = new Properties();
+                properties.setCorrelationId(UUID.fromString(requestId));
+                request.setProperties(properties);
+                request.setApplicationProperties(new ApplicationProperties(applicationProperties));
+                request.setBody(new Data(new Binary(payload)));
+                AmqpConnection.this.send(sender, request, null);
+            });
+        }
+
+        /**
+         * Drop the connection. The devices multiplexed on the connection are all disconnected, as their client
+         * reconnects them together anyway.
+         */
+        @Override
+        public void disconnect()
+        {
+            AmqpConnection.this.forceClose();
+        }
+
+        private void abandonInFlightMessages()
+        {
+            List<CloudToDeviceMessage> undelivered = new ArrayList<>(this.inFlightMessages);
+            this.inFlightMessages.clear();
+
+            // put back at the head of the queue in their original order
+            for (int i = undelivered.size() - 1; i >= 0; i--)
+            {
+                AmqpConnection.this.hub.abandonCloudToDeviceMessage(undelivered.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * The AMQP endpoint of the emulator, for single device and multiplexed device connections.
+ */
+final class AmqpServer extends TlsServer
+{
+    AmqpServer(Hub hub, SSLContext sslContext, int port) throws IOException
+    {
+        super("amqp", hub, sslContext, port);
+    }
+
+    @Override
+    void serve(Socket socket) throws IOException
+    {
+        if (this.hub.getFaultInjector().isRejectingConnections())
+        {
+            // the socket is closed before the AMQP header is answered
+            return;
+        }
+
+        new AmqpConnection(this.hub, socket).run();
+    }
+}
@@ -0,0 +1,60 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A cloud to device message waiting in the queue of a device, or being delivered to it.
+ */
+final class CloudToDeviceMessage
+{
+    private final String deviceId;
+    private final String messageId;
+    private final String lockToken;
+    private final byte[] payload;
+    private final Map<String, String> properties;
+
+    CloudToDeviceMessage(String deviceId, byte[] payload, Map<String, String> properties)
+    {
+        this.deviceId = deviceId;
+        this.messageId = UUID.randomUUID().toString();
+        this.lockToken = UUID.randomUUID().toString();
+        this.payload = payload.clone();
+        this.properties = Collections.unmodifiableMap(new LinkedHashMap<>(properties));
+    }
+
+    String getDeviceId()
+    {
+        return this.deviceId;
+    }
+
+    String getMessageId()
+    {
+        return this.messageId;
+    }
+
+    String getLockToken()
+    {
+        return this.lockToken;
+    }
+
+    String getTo()
+    {
+        return "/devices/" + this.deviceId + "/messages/devicebound";
+    }
+
+    byte[] getPayload()
+    {
+        return this.payload;
+    }
+
+    Map<String, String> getProperties()
+    {
+        return this.properties;
+    }
+}
@@ -0,0 +1,71 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+/**
+ * The connection of a device to the emulator, over any protocol.
+ *
+ * <p> The emulator sends the messages to the device through its endpoint. The endpoint tells the emulator when the
+ *     device subscribes to a kind of message, and returns the cloud to device messages it could not deliver to the
+ *     emulator, with {@link Hub#abandonCloudToDeviceMessage(CloudToDeviceMessage)}.
+ */
+interface DeviceEndpoint
+{
+    /**
+     * Getter for the id of the device.
+     *
+     * @return the id of the device.
+     */
+    String getDeviceId();
+
+    /**
+     * Getter for the subscription of the device to the cloud to device messages.
+     *
+     * @return {@code true} if the device receives the cloud to device messages.
+     */
+    boolean isSubscribedToCloudToDeviceMessages();
+
+    /**
+     * Getter for the subscription of the device to the desired properties.
+     *
+     * @return {@code true} if the device receives the patches of its desired properties.
+     */
+    boolean isSubscribedToDesiredProperties();
+
+    /**
+     * Getter for the subscription of the device to the direct methods.
+     *
+     * @return {@code true} if the device receives the method requests.
+     */
+    boolean isSubscribedToMethods();
+
+    /**
+     * Send a cloud to device message. The message is abandoned if it cannot be delivered.
+     *
+     * @param message the message.
+     */
+    void sendCloudToDeviceMessage(CloudToDeviceMessage message);
+
+    /**
+     * Send a patch of the desired properties.
+     *
+     * @param patchJson the json patch, with its {@code $version}.
+     * @param version the version of the desired properties after the patch.
+     */
+    void sendDesiredPropertiesPatch(String patchJson, long version);
+
+    /**
+     * Send a method request.
+     *
+     * @param requestId the id of the request, a UUID.
+     * @param methodName the name of the method.
+     * @param payload the json payload of the request.
+     */
+    void sendMethodRequest(String requestId, String methodName, byte[] payload);
+
+    /**
+     * Drop the connection of the device.
+     */
+    void disconnect();
+}
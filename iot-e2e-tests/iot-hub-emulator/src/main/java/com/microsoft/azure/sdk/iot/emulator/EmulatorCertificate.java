@@ -0,0 +1,189 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The self-signed certificate the emulator presents on all of its endpoints.
+ *
+ * <p> A new key pair and certificate are generated for each emulator. The certificate is valid for the host name of
+ *     the emulator, {@code localhost} and the loopback addresses, so the clients can verify the host name as they do
+ *     for an IoT Hub, once they trust the certificate.
+ */
+final class EmulatorCertificate
+{
+    private static final String KEY_ALGORITHM = "RSA";
+    private static final int KEY_SIZE = 2048;
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    private static final String SSL_CONTEXT_PROTOCOL = "TLSv1.2";
+    private static final String KEY_ALIAS = "emulator";
+    private static final long VALIDITY_DAYS = 365;
+    private static final char[] KEY_STORE_PASSWORD = new char[0];
+
+    private final X509Certificate certificate;
+    private final SSLContext serverSslContext;
+    private final SSLContext clientSslContext;
+
+    /**
+     * Generate a certificate.
+     *
+     * @param hostName the host name the certificate is valid for, in addition to {@code localhost} and the loopback
+     *                 addresses.
+     * @throws GeneralSecurityException if the certificate could not be generated.
+     */
+    EmulatorCertificate(String hostName) throws GeneralSecurityException
+    {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(KEY_ALGORITHM);
+        keyPairGenerator.initialize(KEY_SIZE, new SecureRandom());
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+        long now = System.currentTimeMillis();
+        X500Name subject = new X500Name("CN=" + hostName + ", O=IoT Hub emulator");
+        try
+        {
+            X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                    subject,
+                    BigInteger.valueOf(now),
+                    new Date(now - TimeUnit.DAYS.toMillis(1)),
+                    new Date(now + TimeUnit.DAYS.toMillis(VALIDITY_DAYS)),
+                    subject,
+                    keyPair.getPublic());
+            builder.addExtension(Extension.subjectAlternativeName, false, subjectAlternativeNames(hostName));
+            // the certificate is its own issuer, so it is trusted as a certificate authority
+            builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+
+            this.certificate = new JcaX509CertificateConverter().getCertificate(
+                    builder.build(new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(keyPair.getPrivate())));
+        }
+        catch (IOException | OperatorCreationException e)
+        {
+            throw new GeneralSecurityException("The emulator certificate could not be generated", e);
+        }
+
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        try
+        {
+            keyStore.load(null, null);
+        }
+        catch (IOException e)
+        {
+            throw new GeneralSecurityException(e);
+        }
+        keyStore.setKeyEntry(KEY_ALIAS, keyPair.getPrivate(), KEY_STORE_PASSWORD, new X509Certificate[] { this.certificate });
+
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, KEY_STORE_PASSWORD);
+        this.serverSslContext = SSLContext.getInstance(SSL_CONTEXT_PROTOCOL);
+        this.serverSslContext.init(keyManagerFactory.getKeyManagers(), null, new SecureRandom());
+
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(keyStore);
+        this.clientSslContext = SSLContext.getInstance(SSL_CONTEXT_PROTOCOL);
+        this.clientSslContext.init(null, trustManagerFactory.getTrustManagers(), new SecureRandom());
+    }
+
+    /**
+     * Getter for the SSL context of the endpoints of the emulator.
+     *
+     * @return the SSL context that presents the certificate.
+     */
+    SSLContext getServerSslContext()
+    {
+        return this.serverSslContext;
+    }
+
+    /**
+     * Getter for an SSL context of clients that only trusts the certificate.
+     *
+     * @return the SSL context that trusts the certificate.
+     */
+    SSLContext getClientSslContext()
+    {
+        return this.clientSslContext;
+    }
+
+    /**
+     * Getter for the certificate in the PEM format.
+     *
+     * @return the PEM encoded certificate.
+     */
+    String toPem()
+    {
+        StringWriter pem = new StringWriter();
+        try (JcaPEMWriter writer = new JcaPEMWriter(pem))
+        {
+            writer.writeObject(this.certificate);
+        }
+        catch (IOException e)
+        {
+            // the writer writes in memory
+            throw new IllegalStateException(e);
+        }
+
+        return pem.toString();
+    }
+
+    private static GeneralNames subjectAlternativeNames(String hostName)
+    {
+        List<GeneralName> names = new ArrayList<>();
+        names.add(new GeneralName(GeneralName.dNSName, "localhost"));
+        names.add(new GeneralName(GeneralName.iPAddress, "127.0.0.1"));
+        names.add(new GeneralName(GeneralName.iPAddress, "::1"));
+        if (!"localhost".equals(hostName))
+        {
+            names.add(new GeneralName(isIpAddress(hostName) ? GeneralName.iPAddress : GeneralName.dNSName, hostName));
+        }
+
+        return new GeneralNames(names.toArray(new GeneralName[names.size()]));
+    }
+
+    private static boolean isIpAddress(String hostName)
+    {
+        if (!hostName.matches("[0-9.]+") && !hostName.contains(":"))
+        {
+            return false;
+        }
+
+        try
+        {
+            // a literal address is parsed without any lookup
+            InetAddress.getByName(hostName);
+            return true;
+        }
+        catch (UnknownHostException e)
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Injects faults in the operations of the devices connected to an {@link IotHubEmulator}.
+ *
+ * <p> The operations are the telemetry messages and the twin requests of the devices, over all the protocols.
+ *     <ul>
+ *         <li>The latency delays the response to each operation.</li>
+ *         <li>The throttle limit spreads the operations of all the devices so that at most that many are completed per
+ *             second, as an IoT Hub does once its quota is reached. The operations beyond the limit are delayed, not
+ *             rejected.</li>
+ *         <li>The drop rate is the probability that a telemetry message is discarded without being acknowledged, as
+ *             if it was lost on its way to the hub.</li>
+ *         <li>The connections can be rejected, and the devices disconnected, to exercise the reconnection of the
+ *             clients.</li>
+ *     </ul>
+ *
+ * <p> The faults can be changed at any time, including by a {@link FaultScript}, and apply to the next operations.
+ */
+public final class FaultInjector
+{
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Hub hub;
+    private volatile long latencyMillis = 0;
+    private volatile double dropRate = 0;
+    private volatile boolean rejectConnections = false;
+    private int throttleLimit = 0;
+    private long nextThrottleSlotNanos = 0;
+
+    FaultInjector(Hub hub)
+    {
+        this.hub = hub;
+    }
+
+    /**
+     * Setter for the latency of the responses to the operations of the devices.
+     *
+     * @param latencyMillis the latency in milliseconds. It cannot be negative.
+     * @throws IllegalArgumentException if the latency is negative.
+     */
+    public void setLatency(long latencyMillis) throws IllegalArgumentException
+    {
+        if (latencyMillis < 0)
+        {
+            throw new IllegalArgumentException("latencyMillis cannot be negative");
+        }
+
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Getter for the latency of the responses to the operations of the devices.
+     *
+     * @return the latency in milliseconds.
+     */
+    public long getLatency()
+    {
+        return this.latencyMillis;
+    }
+
+    /**
+     * Setter for the probability that a telemetry message is dropped.
+     *
+     * @param dropRate the probability, from 0 to 1.
+     * @throws IllegalArgumentException if the probability is not between 0 and 1.
+     */
+    public void setDropRate(double dropRate) throws IllegalArgumentException
+    {
+        if (!(dropRate >= 0 && dropRate <= 1))
+        {
+            throw new IllegalArgumentException("dropRate shall be between 0 and 1");
+        }
+
+        this.dropRate = dropRate;
+    }
+
+    /**
+     * Getter for the probability that a telemetry message is dropped.
+     *
+     * @return the probability, from 0 to 1.
+     */
+    public double getDropRate()
+    {
+        return this.dropRate;
+    }
+
+    /**
+     * Setter for the maximum number of operations of all the devices completed per second.
+     *
+     * @param operationsPerSecond the maximum number of operations per second, or 0 for no limit. It cannot be negative.
+     * @throws IllegalArgumentException if the limit is negative.
+     */
+    public synchronized void setThrottleLimit(int operationsPerSecond) throws IllegalArgumentException
+    {
+        if (operationsPerSecond < 0)
+        {
+            throw new IllegalArgumentException("operationsPerSecond cannot be negative");
+        }
+
+        this.throttleLimit = operationsPerSecond;
+        this.nextThrottleSlotNanos = System.nanoTime();
+    }
+
+    /**
+     * Getter for the maximum number of operations of all the devices completed per second.
+     *
+     * @return the maximum number of operations per second, or 0 for no limit.
+     */
+    public synchronized int getThrottleLimit()
+    {
+        return this.throttleLimit;
+    }
+
+    /**
+     * Setter for the rejection of the new connections. The connected devices stay connected.
+     *
+     * @param rejectConnections {@code true} to reject the new connections as if the hub was unavailable.
+     */
+    public void setRejectConnections(boolean rejectConnections)
+    {
+        this.rejectConnections = rejectConnections;
+    }
+
+    /**
+     * Getter for the rejection of the new connections.
+     *
+     * @return {@code true} if the new connections are rejected.
+     */
+    public boolean isRejectingConnections()
+    {
+        return this.rejectConnections;
+    }
+
+    /**
+     * Drop the connection of a device, as if the network failed. The other devices multiplexed on the same AMQP
+     * connection are disconnected as well.
+     *
+     * @param deviceId the id of the device.
+     * @return {@code true} if the device was connected.
+     */
+    public boolean disconnectDevice(String deviceId)
+    {
+        return this.hub.disconnect(deviceId);
+    }
+
+    /**
+     * Drop the connections of all the devices, as if the network failed.
+     *
+     * @return the number of devices that were connected.
+     */
+    public int disconnectAllDevices()
+    {
+        return this.hub.disconnectAll();
+    }
+
+    /**
+     * Remove all the faults. The devices that were disconnected are not reconnected by the emulator.
+     */
+    public void reset()
+    {
+        this.setLatency(0);
+        this.setDropRate(0);
+        this.setThrottleLimit(0);
+        this.setRejectConnections(false);
+    }
+
+    /**
+     * Decide whether a telemetry message is dropped.
+     *
+     * @return {@code true} if the message shall be discarded without being acknowledged.
+     */
+    boolean shouldDrop()
+    {
+        double dropRate = this.dropRate;
+        return (dropRate > 0) && (ThreadLocalRandom.current().nextDouble() < dropRate);
+    }
+
+    /**
+     * Reserve the completion of an operation.
+     *
+     * @return the delay in milliseconds before the response to the operation is sent, for the latency and the
+     *         throttling.
+     */
+    long reserveOperation()
+    {
+        return this.latencyMillis + this.reserveThrottleSlot();
+    }
+
+    private synchronized long reserveThrottleSlot()
+    {
+        if (this.throttleLimit == 0)
+        {
+            return 0;
+        }
+
+        // the operations are spread evenly, each one is completed in the first free slot
+        long now = System.nanoTime();
+        long slot = Math.max(now, this.nextThrottleSlotNanos);
+        this.nextThrottleSlotNanos = slot + (NANOS_PER_SECOND / this.throttleLimit);
+        return TimeUnit.NANOSECONDS.toMillis(slot - now);
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A timeline of changes of the faults of an {@link IotHubEmulator}, run with {@link IotHubEmulator#runFaultScript(FaultScript)}.
+ *
+ * <p> For example, to add latency after 10 seconds, drop all the connections after a minute, and heal after two:
+ * <pre>
+ * {@code
+ * FaultScript script = new FaultScript()
+ *         .at(10000, faults -> faults.setLatency(200))
+ *         .at(60000, FaultInjector::disconnectAllDevices)
+ *         .at(120000, FaultInjector::reset);
+ * }
+ * </pre>
+ */
+public final class FaultScript
+{
+    /**
+     * A change of the faults.
+     */
+    @FunctionalInterface
+    public interface Step
+    {
+        /**
+         * Apply the change.
+         *
+         * @param faultInjector the fault injector of the emulator.
+         */
+        void apply(FaultInjector faultInjector);
+    }
+
+    static final class TimedStep
+    {
+        final long offsetMillis;
+        final Step step;
+
+        private TimedStep(long offsetMillis, Step step)
+        {
+            this.offsetMillis = offsetMillis;
+            this.step = step;
+        }
+    }
+
+    private final List<TimedStep> steps = new ArrayList<>();
+
+    /**
+     * Add a step to the script.
+     *
+     * @param offsetMillis the time of the step, in milliseconds from the start of the script. It cannot be negative.
+     * @param step the change of the faults. It cannot be {@code null}.
+     * @return this script.
+     * @throws IllegalArgumentException if the offset is negative or the step is {@code null}.
+     */
+    public FaultScript at(long offsetMillis, Step step) throws IllegalArgumentException
+    {
+        if (offsetMillis < 0)
+        {
+            throw new IllegalArgumentException("offsetMillis cannot be negative");
+        }
+        if (step == null)
+        {
+            throw new IllegalArgumentException("step cannot be null");
+        }
+
+        this.steps.add(new TimedStep(offsetMillis, step));
+        return this;
+    }
+
+    List<TimedStep> getSteps()
+    {
+        return Collections.unmodifiableList(new ArrayList<>(this.steps));
+    }
+}
@@ -0,0 +1,363 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The HTTPS endpoint of the emulator, for the devices that send telemetry and poll for their cloud to device messages,
+ * and for the twin and method requests of the service.
+ */
+@Slf4j
+final class HttpsGateway implements Closeable
+{
+    private static final int BACKLOG = 1024;
+    private static final int STOP_DELAY_SECONDS = 0;
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final Pattern TELEMETRY_PATH = Pattern.compile("^/devices/([^/]+(?:/modules/[^/]+)?)/messages/events$");
+    private static final Pattern CLOUD_TO_DEVICE_PATH = Pattern.compile("^/devices/([^/]+)/messages/devicebound(?:/([^/]+)(/abandon)?)?$");
+    private static final Pattern TWIN_PATH = Pattern.compile("^/twins/([^/]+)$");
+    private static final Pattern METHOD_PATH = Pattern.compile("^/twins/([^/]+)/methods$");
+
+    private static final String BATCH_CONTENT_TYPE = "application/vnd.microsoft.iothub.json";
+    private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final String APPLICATION_PROPERTY_PREFIX = "iothub-app-";
+    private static final long DEFAULT_METHOD_TIMEOUT_SECONDS = 30;
+
+    private final Hub hub;
+    private final HttpsServer server;
+
+    HttpsGateway(Hub hub, SSLContext sslContext, int port) throws IOException
+    {
+        this.hub = hub;
+        this.server = HttpsServer.create(new InetSocketAddress(port), BACKLOG);
+        this.server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+        this.server.setExecutor(hub.getConnectionExecutor());
+        this.server.createContext("/", this::handle);
+    }
+
+    int getPort()
+    {
+        return this.server.getAddress().getPort();
+    }
+
+    void start()
+    {
+        this.server.start();
+    }
+
+    @Override
+    public void close()
+    {
+        this.server.stop(STOP_DELAY_SECONDS);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            Matcher matcher;
+            if ((matcher = TELEMETRY_PATH.matcher(path)).matches() && method.equals("POST"))
+            {
+                this.receiveTelemetry(exchange, matcher.group(1));
+            }
+            else if ((matcher = CLOUD_TO_DEVICE_PATH.matcher(path)).matches())
+            {
+                this.handleCloudToDeviceMessage(exchange, method, matcher.group(1), matcher.group(2), matcher.group(3) != null);
+            }
+            else if ((matcher = METHOD_PATH.matcher(path)).matches() && method.equals("POST"))
+            {
+                this.invokeMethod(exchange, matcher.group(1));
+            }
+            else if ((matcher = TWIN_PATH.matcher(path)).matches())
+            {
+                this.handleTwin(exchange, method, matcher.group(1));
+            }
+            else
+            {
+                respond(exchange, 404, null);
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            respond(exchange, 400, errorJson(e.getMessage()));
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    private void receiveTelemetry(HttpExchange exchange, String deviceId) throws IOException
+    {
+        byte[] body = readBody(exchange);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        long delay = 0;
+        boolean isDropped = false;
+        if ((contentType != null) && contentType.startsWith(BATCH_CONTENT_TYPE))
+        {
+            for (JsonElement element : parseArray(body))
+            {
+                JsonObject message = element.getAsJsonObject();
+                String messageBody = message.get("body").getAsString();
+                boolean isBase64Encoded = message.has("base64Encoded") && message.get("base64Encoded").getAsBoolean();
+                Map<String, String> properties = new HashMap<>();
+                if (message.has("properties"))
+                {
+                    for (Map.Entry<String, JsonElement> property : message.getAsJsonObject("properties").entrySet())
+                    {
+                        addApplicationProperty(properties, property.getKey(), property.getValue().getAsString());
+                    }
+                }
+
+                byte[] payload = isBase64Encoded ? Base64.getDecoder().decode(messageBody) : messageBody.getBytes(StandardCharsets.UTF_8);
+                long messageDelay = this.hub.receiveTelemetry(deviceId, payload, properties);
+                isDropped |= messageDelay < 0;
+                delay = Math.max(delay, messageDelay);
+            }
+        }
+        else
+        {
+            Map<String, String> properties = new HashMap<>();
+            for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet())
+            {
+                addApplicationProperty(properties, header.getKey(), header.getValue().get(0));
+            }
+            delay = this.hub.receiveTelemetry(deviceId, body, properties);
+            isDropped = delay < 0;
+        }
+
+        if (isDropped)
+        {
+            // a request cannot stay unanswered, so a dropped message is reported as a transient failure
+            respond(exchange, 503, errorJson("The message was dropped"));
+            return;
+        }
+
+        sleep(delay);
+        respond(exchange, 204, null);
+    }
+
+    private void handleCloudToDeviceMessage(HttpExchange exchange, String method, String deviceId, String lockToken, boolean isAbandon) throws IOException
+    {
+        if ((lockToken == null) && method.equals("GET"))
+        {
+            CloudToDeviceMessage message = this.hub.lockCloudToDeviceMessage(deviceId);
+            if (message == null)
+            {
+                respond(exchange, 204, null);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("ETag", "\"" + message.getLockToken() + "\"");
+            exchange.getResponseHeaders().set("iothub-messageid", message.getMessageId());
+            exchange.getResponseHeaders().set("iothub-to", message.getTo());
+            for (Map.Entry<String, String> property : message.getProperties().entrySet())
+            {
+                exchange.getResponseHeaders().set(APPLICATION_PROPERTY_PREFIX + property.getKey(), property.getValue());
+            }
+            respond(exchange, 200, message.getPayload());
+        }
+        else if ((lockToken != null) && !isAbandon && method.equals("DELETE"))
+        {
+            // a rejected message is dead lettered, so it is completed as well
+            respond(exchange, this.hub.completeLockedCloudToDeviceMessage(lockToken) ? 204 : 412, null);
+        }
+        else if ((lockToken != null) && isAbandon && method.equals("POST"))
+        {
+            respond(exchange, this.hub.abandonLockedCloudToDeviceMessage(lockToken) ? 204 : 412, null);
+        }
+        else
+        {
+            respond(exchange, 405, null);
+        }
+    }
+
+    private void handleTwin(HttpExchange exchange, String method, String deviceId) throws IOException
+    {
+        TwinStore twinStore = this.hub.getTwinStore();
+        switch (method)
+        {
+            case "GET":
+                String etag = "\"" + twinStore.getEtag(deviceId) + "\"";
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+                {
+                    respond(exchange, 304, null);
+                    return;
+                }
+                break;
+
+            case "PATCH":
+            case "PUT":
+                this.hub.updateTwin(deviceId, new String(readBody(exchange), StandardCharsets.UTF_8), method.equals("PUT"));
+                break;
+
+            default:
+                respond(exchange, 405, null);
+                return;
+        }
+
+        sleep(this.hub.getFaultInjector().reserveOperation());
+        exchange.getResponseHeaders().set("ETag", "\"" + twinStore.getEtag(deviceId) + "\"");
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        respond(exchange, 200, twinStore.getServiceTwin(deviceId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void invokeMethod(HttpExchange exchange, String deviceId) throws IOException
+    {
+        JsonObject request = parseObject(readBody(exchange));
+        if (!request.has("methodName"))
+        {
+            throw new IllegalArgumentException("The method name is missing");
+        }
+
+        String methodName = request.get("methodName").getAsString();
+        long timeoutSeconds = request.has("responseTimeoutInSeconds") ? request.get("responseTimeoutInSeconds").getAsLong() : DEFAULT_METHOD_TIMEOUT_SECONDS;
+        String payloadJson = request.has("payload") ? request.get("payload").toString() : "null";
+
+        MethodResponse response = this.hub.invokeMethod(deviceId, methodName, payloadJson, timeoutSeconds * 1000).join();
+        if (response.getStatus() == MethodResponse.STATUS_DEVICE_NOT_ONLINE)
+        {
+            respond(exchange, 404, errorJson("The device " + deviceId + " is not online"));
+            return;
+        }
+        if (response.getStatus() == MethodResponse.STATUS_TIMEOUT)
+        {
+            respond(exchange, 504, errorJson("The device " + deviceId + " did not respond in time"));
+            return;
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("status", response.getStatus());
+        json.add("payload", (response.getPayload() == null) ? null : new JsonParser().parse(response.getPayload()));
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        respond(exchange, 200, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void addApplicationProperty(Map<String, String> properties, String name, String value)
+    {
+        // the headers are case insensitive, and the system properties are not application properties
+        if (name.toLowerCase(Locale.ROOT).startsWith(APPLICATION_PROPERTY_PREFIX))
+        {
+            properties.put(name.substring(APPLICATION_PROPERTY_PREFIX.length()), value);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException
+    {
+        if ((body == null) || (body.length == 0))
+        {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody())
+        {
+            outputStream.write(body);
+        }
+    }
+
+    private static byte[] errorJson(String message)
+    {
+        JsonObject json = new JsonObject();
+        json.addProperty("Message", message);
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = exchange.getRequestBody())
+        {
+            int count;
+            while ((count = inputStream.read(buffer)) >= 0)
+            {
+                body.write(buffer, 0, count);
+            }
+        }
+
+        return body.toByteArray();
+    }
+
+    private static JsonObject parseObject(byte[] body) throws IllegalArgumentException
+    {
+        JsonElement element = parse(body);
+        if (!element.isJsonObject())
+        {
+            throw new IllegalArgumentException("Expected a json object");
+        }
+
+        return element.getAsJsonObject();
+    }
+
+    private static JsonArray parseArray(byte[] body) throws IllegalArgumentException
+    {
+        JsonElement element = parse(body);
+        if (!element.isJsonArray())
+        {
+            throw new IllegalArgumentException("Expected a json array");
+        }
+
+        return element.getAsJsonArray();
+    }
+
+    private static JsonElement parse(byte[] body) throws IllegalArgumentException
+    {
+        try
+        {
+            return new JsonParser().parse(new String(body, StandardCharsets.UTF_8));
+        }
+        catch (JsonParseException e)
+        {
+            throw new IllegalArgumentException("Invalid json", e);
+        }
+    }
+
+    private static void sleep(long delayMillis)
+    {
+        if (delayMillis <= 0)
+        {
+            return;
+        }
+
+        try
+        {
+            // the request runs on its own thread, so the latency and throttling simply delay its response
+            Thread.sleep(delayMillis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,488 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The state of the emulator shared by its protocol endpoints: the connected devices, their twins, their queues of
+ * cloud to device messages, the pending method invocations and the telemetry counters.
+ *
+ * <p> A device is identified by its id only. Any device can connect, with any credentials, and is created the first
+ *     time it is referenced. A device has at most one connection: a new connection of a device drops the previous one,
+ *     as with an IoT Hub.
+ */
+@Slf4j
+final class Hub
+{
+    static final int MAX_CLOUD_TO_DEVICE_QUEUE_DEPTH = 50;
+
+    private static final String SCHEDULER_THREAD_NAME = "iot-hub-emulator-scheduler";
+    private static final String CONNECTION_THREAD_NAME = "iot-hub-emulator-connection-";
+
+    private final String hostName;
+    private final FaultInjector faultInjector = new FaultInjector(this);
+    private final TwinStore twinStore = new TwinStore();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ExecutorService connectionExecutor;
+
+    private final ConcurrentMap<String, DeviceEndpoint> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Deque<CloudToDeviceMessage>> cloudToDeviceQueues = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CloudToDeviceMessage> lockedCloudToDeviceMessages = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<MethodResponse>> pendingMethods = new ConcurrentHashMap<>();
+
+    private final AtomicLong telemetryCount = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> deviceTelemetryCounts = new ConcurrentHashMap<>();
+    private final AtomicLong droppedTelemetryCount = new AtomicLong();
+    private final AtomicLong completedCloudToDeviceCount = new AtomicLong();
+    private volatile TelemetryListener telemetryListener = null;
+
+    Hub(String hostName)
+    {
+        this.hostName = hostName;
+
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable ->
+        {
+            Thread thread = new Thread(runnable, SCHEDULER_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.connectionExecutor = newConnectionExecutor();
+    }
+
+    String getHostName()
+    {
+        return this.hostName;
+    }
+
+    FaultInjector getFaultInjector()
+    {
+        return this.faultInjector;
+    }
+
+    TwinStore getTwinStore()
+    {
+        return this.twinStore;
+    }
+
+    ScheduledThreadPoolExecutor getScheduler()
+    {
+        return this.scheduler;
+    }
+
+    /**
+     * Getter for the executor that runs the connections, one task per connection. Its tasks block on the socket of
+     * their connection, so it uses virtual threads when the JVM has them.
+     *
+     * @return the executor of the connections.
+     */
+    ExecutorService getConnectionExecutor()
+    {
+        return this.connectionExecutor;
+    }
+
+    void close()
+    {
+        this.disconnectAll();
+        this.scheduler.shutdownNow();
+        this.connectionExecutor.shutdownNow();
+        for (CompletableFuture<MethodResponse> pendingMethod : this.pendingMethods.values())
+        {
+            pendingMethod.complete(new MethodResponse(MethodResponse.STATUS_TIMEOUT, null));
+        }
+    }
+
+    /**
+     * Run a response to a device after a delay.
+     *
+     * @param delayMillis the delay, from the {@link FaultInjector}.
+     * @param response the response.
+     */
+    void respond(long delayMillis, Runnable response)
+    {
+        if (delayMillis <= 0)
+        {
+            response.run();
+        }
+        else
+        {
+            this.scheduler.schedule(response, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // connections
+
+    void connected(DeviceEndpoint endpoint)
+    {
+        DeviceEndpoint previous = this.endpoints.put(endpoint.getDeviceId(), endpoint);
+        if ((previous != null) && (previous != endpoint))
+        {
+            log.debug("Device {} connected again, its previous connection is dropped", endpoint.getDeviceId());
+            previous.disconnect();
+        }
+    }
+
+    void disconnected(DeviceEndpoint endpoint)
+    {
+        this.endpoints.remove(endpoint.getDeviceId(), endpoint);
+    }
+
+    boolean isConnected(String deviceId)
+    {
+        return this.endpoints.containsKey(deviceId);
+    }
+
+    int getConnectedDeviceCount()
+    {
+        return this.endpoints.size();
+    }
+
+    boolean disconnect(String deviceId)
+    {
+        DeviceEndpoint endpoint = this.endpoints.remove(deviceId);
+        if (endpoint == null)
+        {
+            return false;
+        }
+
+        endpoint.disconnect();
+        return true;
+    }
+
+    int disconnectAll()
+    {
+        List<DeviceEndpoint> endpoints = new ArrayList<>(this.endpoints.values());
+        for (DeviceEndpoint endpoint : endpoints)
+        {
+            this.endpoints.remove(endpoint.getDeviceId(), endpoint);
+            endpoint.disconnect();
+        }
+
+        return endpoints.size();
+    }
+
+    // telemetry
+
+    void setTelemetryListener(TelemetryListener telemetryListener)
+    {
+        this.telemetryListener = telemetryListener;
+    }
+
+    /**
+     * Receive a telemetry message.
+     *
+     * @param deviceId the id of the device.
+     * @param payload the body of the message.
+     * @param properties the application properties of the message.
+     * @return the delay in milliseconds before acknowledging the message, or a negative value if the message is
+     *         dropped and shall not be acknowledged.
+     */
+    long receiveTelemetry(String deviceId, byte[] payload, Map<String, String> properties)
+    {
+        if (this.faultInjector.shouldDrop())
+        {
+            this.droppedTelemetryCount.incrementAndGet();
+            return -1;
+        }
+
+        this.telemetryCount.incrementAndGet();
+        AtomicLong deviceTelemetryCount = this.deviceTelemetryCounts.get(deviceId);
+        if (deviceTelemetryCount == null)
+        {
+            this.deviceTelemetryCounts.putIfAbsent(deviceId, new AtomicLong());
+            deviceTelemetryCount = this.deviceTelemetryCounts.get(deviceId);
+        }
+        deviceTelemetryCount.incrementAndGet();
+
+        TelemetryListener telemetryListener = this.telemetryListener;
+        if (telemetryListener != null)
+        {
+            try
+            {
+                telemetryListener.onTelemetry(deviceId, payload, properties);
+            }
+            catch (RuntimeException e)
+            {
+                log.warn("The telemetry listener threw an exception", e);
+            }
+        }
+
+        return this.faultInjector.reserveOperation();
+    }
+
+    long getTelemetryCount()
+    {
+        return this.telemetryCount.get();
+    }
+
+    long getTelemetryCount(String deviceId)
+    {
+        AtomicLong deviceTelemetryCount = this.deviceTelemetryCounts.get(deviceId);
+        return (deviceTelemetryCount == null) ? 0 : deviceTelemetryCount.get();
+    }
+
+    long getDroppedTelemetryCount()
+    {
+        return this.droppedTelemetryCount.get();
+    }
+
+    // cloud to device messages
+
+    /**
+     * Queue a cloud to device message, and deliver it if the device is subscribed.
+     *
+     * @return {@code false} if the queue of the device is full.
+     */
+    boolean sendCloudToDeviceMessage(String deviceId, byte[] payload, Map<String, String> properties)
+    {
+        Deque<CloudToDeviceMessage> queue = this.getCloudToDeviceQueue(deviceId);
+        synchronized (queue)
+        {
+            if (queue.size() >= MAX_CLOUD_TO_DEVICE_QUEUE_DEPTH)
+            {
+                return false;
+            }
+            queue.addLast(new CloudToDeviceMessage(deviceId, payload, properties));
+        }
+
+        this.deliverCloudToDeviceMessages(deviceId);
+        return true;
+    }
+
+    /**
+     * Send the queued cloud to device messages of a device, if it is subscribed to them.
+     */
+    void deliverCloudToDeviceMessages(String deviceId)
+    {
+        DeviceEndpoint endpoint = this.endpoints.get(deviceId);
+        if ((endpoint == null) || !endpoint.isSubscribedToCloudToDeviceMessages())
+        {
+            return;
+        }
+
+        Deque<CloudToDeviceMessage> queue = this.getCloudToDeviceQueue(deviceId);
+        CloudToDeviceMessage message;
+        while ((message = this.pollCloudToDeviceMessage(queue)) != null)
+        {
+            endpoint.sendCloudToDeviceMessage(message);
+        }
+    }
+
+    /**
+     * Take the next cloud to device message of a device that polls for them.
+     *
+     * @return the message, locked until it is completed or abandoned, or {@code null} if there is none.
+     */
+    CloudToDeviceMessage lockCloudToDeviceMessage(String deviceId)
+    {
+        CloudToDeviceMessage message = this.pollCloudToDeviceMessage(this.getCloudToDeviceQueue(deviceId));
+        if (message != null)
+        {
+            this.lockedCloudToDeviceMessages.put(message.getLockToken(), message);
+        }
+
+        return message;
+    }
+
+    /**
+     * Complete a message locked by {@link #lockCloudToDeviceMessage(String)}.
+     *
+     * @return {@code false} if the message is not locked.
+     */
+    boolean completeLockedCloudToDeviceMessage(String lockToken)
+    {
+        if (this.lockedCloudToDeviceMessages.remove(lockToken) == null)
+        {
+            return false;
+        }
+
+        this.completedCloudToDeviceCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Abandon a message locked by {@link #lockCloudToDeviceMessage(String)}.
+     *
+     * @return {@code false} if the message is not locked.
+     */
+    boolean abandonLockedCloudToDeviceMessage(String lockToken)
+    {
+        CloudToDeviceMessage message = this.lockedCloudToDeviceMessages.remove(lockToken);
+        if (message == null)
+        {
+            return false;
+        }
+
+        this.abandonCloudToDeviceMessage(message);
+        return true;
+    }
+
+    /**
+     * Record the completion of a message by a device.
+     */
+    void completeCloudToDeviceMessage(CloudToDeviceMessage message)
+    {
+        this.completedCloudToDeviceCount.incrementAndGet();
+    }
+
+    /**
+     * Put back a message that a device did not complete at the head of its queue, to deliver it again.
+     */
+    void abandonCloudToDeviceMessage(CloudToDeviceMessage message)
+    {
+        Deque<CloudToDeviceMessage> queue = this.getCloudToDeviceQueue(message.getDeviceId());
+        synchronized (queue)
+        {
+            queue.addFirst(message);
+        }
+    }
+
+    long getCompletedCloudToDeviceCount()
+    {
+        return this.completedCloudToDeviceCount.get();
+    }
+
+    private CloudToDeviceMessage pollCloudToDeviceMessage(Deque<CloudToDeviceMessage> queue)
+    {
+        synchronized (queue)
+        {
+            return queue.pollFirst();
+        }
+    }
+
+    private Deque<CloudToDeviceMessage> getCloudToDeviceQueue(String deviceId)
+    {
+        Deque<CloudToDeviceMessage> queue = this.cloudToDeviceQueues.get(deviceId);
+        if (queue == null)
+        {
+            this.cloudToDeviceQueues.putIfAbsent(deviceId, new ArrayDeque<CloudToDeviceMessage>());
+            queue = this.cloudToDeviceQueues.get(deviceId);
+        }
+
+        return queue;
+    }
+
+    // twins
+
+    /**
+     * Update the desired properties, and send the patch to the device if it is subscribed.
+     *
+     * @return the version of the desired properties after the patch.
+     */
+    long updateDesiredProperties(String deviceId, String patchJson)
+    {
+        JsonObject patch = this.twinStore.updateDesiredProperties(deviceId, patchJson);
+        this.sendDesiredPropertiesPatch(deviceId, patch);
+        return patch.get("$version").getAsLong();
+    }
+
+    /**
+     * Update the tags and desired properties as the service does, and send the patch of the desired properties to the
+     * device if it is subscribed.
+     */
+    void updateTwin(String deviceId, String twinJson, boolean replace)
+    {
+        JsonObject patch = this.twinStore.updateTwin(deviceId, twinJson, replace);
+        if (patch != null)
+        {
+            this.sendDesiredPropertiesPatch(deviceId, patch);
+        }
+    }
+
+    private void sendDesiredPropertiesPatch(String deviceId, JsonObject patch)
+    {
+        DeviceEndpoint endpoint = this.endpoints.get(deviceId);
+        if ((endpoint != null) && endpoint.isSubscribedToDesiredProperties())
+        {
+            endpoint.sendDesiredPropertiesPatch(patch.toString(), patch.get("$version").getAsLong());
+        }
+    }
+
+    // methods
+
+    /**
+     * Invoke a method of a device.
+     *
+     * @return the future that completes with the response of the device, or with the status of the failure to invoke
+     *         the method. It never completes exceptionally.
+     */
+    CompletableFuture<MethodResponse> invokeMethod(String deviceId, String methodName, String payloadJson, long timeoutMillis)
+    {
+        final CompletableFuture<MethodResponse> future = new CompletableFuture<>();
+        DeviceEndpoint endpoint = this.endpoints.get(deviceId);
+        if ((endpoint == null) || !endpoint.isSubscribedToMethods())
+        {
+            future.complete(new MethodResponse(MethodResponse.STATUS_DEVICE_NOT_ONLINE, null));
+            return future;
+        }
+
+        final String requestId = UUID.randomUUID().toString();
+        this.pendingMethods.put(requestId, future);
+        final ScheduledFuture<?> timeout = this.scheduler.schedule(() ->
+        {
+            if (this.pendingMethods.remove(requestId) != null)
+            {
+                future.complete(new MethodResponse(MethodResponse.STATUS_TIMEOUT, null));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((response, throwable) -> timeout.cancel(false));
+
+        endpoint.sendMethodRequest(requestId, methodName, payloadJson.getBytes(StandardCharsets.UTF_8));
+        return future;
+    }
+
+    /**
+     * Receive the response of a device to a method request.
+     */
+    void receiveMethodResponse(String requestId, int status, byte[] payload)
+    {
+        CompletableFuture<MethodResponse> future = this.pendingMethods.remove(requestId);
+        if (future != null)
+        {
+            String payloadJson = ((payload == null) || (payload.length == 0)) ? null : new String(payload, StandardCharsets.UTF_8);
+            future.complete(new MethodResponse(status, payloadJson));
+        }
+    }
+
+    private static ExecutorService newConnectionExecutor()
+    {
+        try
+        {
+            // Java 21 and later, the emulator itself targets Java 8
+            Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            final AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable ->
+            {
+                Thread thread = new Thread(runnable, CONNECTION_THREAD_NAME + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
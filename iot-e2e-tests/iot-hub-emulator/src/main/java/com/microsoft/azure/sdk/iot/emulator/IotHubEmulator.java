@@ -0,0 +1,555 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process stand-in for an IoT Hub, to load and soak test the device and service clients without a hub.
+ *
+ * <p> The emulator serves the devices over MQTT, AMQP and HTTPS, with their telemetry, cloud to device messages,
+ *     twin and direct methods, and the twin and method requests of the service over HTTPS. It does not persist
+ *     anything, does not validate the credentials, and accepts any device id.
+ *
+ * <p> It presents a self-signed certificate generated for it: the device clients trust it with the
+ *     {@code SetCertificateAuthority} option set to {@link #getTrustedCertificate()}. The device clients connect to
+ *     the standard ports of the protocols, so the emulator listens on them by default, and a single emulator can run
+ *     on a machine at once.
+ *
+ * <p> The faults of the hub, such as latency, throttling, dropped messages and disconnections, are set with
+ *     {@link #getFaultInjector()}, or scheduled with {@link #runFaultScript(FaultScript)}.
+ *
+ * <pre>
+ * {@code
+ * try (IotHubEmulator emulator = new IotHubEmulator())
+ * {
+ *     emulator.start();
+ *     DeviceClient client = new DeviceClient(emulator.createDeviceConnectionString("device1"), IotHubClientProtocol.MQTT);
+ *     client.setOption("SetCertificateAuthority", emulator.getTrustedCertificate());
+ *     client.open();
+ *     ...
+ * }
+ * }
+ * </pre>
+ */
+public final class IotHubEmulator implements Closeable
+{
+    /** The host name of the emulator by default. */
+    public static final String DEFAULT_HOST_NAME = "127.0.0.1";
+
+    /** The port the device clients connect to over MQTT. */
+    public static final int DEFAULT_MQTT_PORT = 8883;
+
+    /** The port the device clients connect to over AMQP. */
+    public static final int DEFAULT_AMQP_PORT = 5671;
+
+    /** The port the device and service clients connect to over HTTPS. */
+    public static final int DEFAULT_HTTPS_PORT = 443;
+
+    private static final String SHARED_ACCESS_KEY = Base64.getEncoder().encodeToString(
+            "iot-hub-emulator-shared-access-key".getBytes(StandardCharsets.UTF_8));
+
+    private final Hub hub;
+    private final EmulatorCertificate certificate;
+    private int mqttPort = DEFAULT_MQTT_PORT;
+    private int amqpPort = DEFAULT_AMQP_PORT;
+    private int httpsPort = DEFAULT_HTTPS_PORT;
+    private MqttServer mqttServer;
+    private AmqpServer amqpServer;
+    private HttpsGateway httpsGateway;
+    private boolean isClosed = false;
+
+    /**
+     * Create an emulator with the host name {@value #DEFAULT_HOST_NAME}.
+     *
+     * @throws GeneralSecurityException if the certificate of the emulator could not be generated.
+     */
+    public IotHubEmulator() throws GeneralSecurityException
+    {
+        this(DEFAULT_HOST_NAME);
+    }
+
+    /**
+     * Create an emulator.
+     *
+     * @param hostName the host name the clients connect to. The device clients require a name with a dot, such as an
+     *                 IP address. It cannot be {@code null} or empty.
+     * @throws IllegalArgumentException if the host name is {@code null} or empty.
+     * @throws GeneralSecurityException if the certificate of the emulator could not be generated.
+     */
+    public IotHubEmulator(String hostName) throws IllegalArgumentException, GeneralSecurityException
+    {
+        if ((hostName == null) || hostName.isEmpty())
+        {
+            throw new IllegalArgumentException("hostName cannot be null or empty");
+        }
+
+        this.certificate = new EmulatorCertificate(hostName);
+        this.hub = new Hub(hostName);
+    }
+
+    /**
+     * Setter for the MQTT port.
+     *
+     * @param port the port, or 0 for any free port. The device clients only connect to {@value #DEFAULT_MQTT_PORT}.
+     * @throws IllegalArgumentException if the port is not valid.
+     * @throws IllegalStateException if the emulator is started.
+     */
+    public synchronized void setMqttPort(int port) throws IllegalArgumentException, IllegalStateException
+    {
+        this.mqttPort = this.checkPort(port);
+    }
+
+    /**
+     * Setter for the AMQP port.
+     *
+     * @param port the port, or 0 for any free port. The device clients only connect to {@value #DEFAULT_AMQP_PORT}.
+     * @throws IllegalArgumentException if the port is not valid.
+     * @throws IllegalStateException if the emulator is started.
+     */
+    public synchronized void setAmqpPort(int port) throws IllegalArgumentException, IllegalStateException
+    {
+        this.amqpPort = this.checkPort(port);
+    }
+
+    /**
+     * Setter for the HTTPS port.
+     *
+     * @param port the port, or 0 for any free port. The device and service clients only connect to
+     *             {@value #DEFAULT_HTTPS_PORT}.
+     * @throws IllegalArgumentException if the port is not valid.
+     * @throws IllegalStateException if the emulator is started.
+     */
+    public synchronized void setHttpsPort(int port) throws IllegalArgumentException, IllegalStateException
+    {
+        this.httpsPort = this.checkPort(port);
+    }
+
+    /**
+     * Start listening on the ports of the protocols.
+     *
+     * @throws IOException if a port could not be opened.
+     * @throws IllegalStateException if the emulator is already started or is closed.
+     */
+    public synchronized void start() throws IOException, IllegalStateException
+    {
+        if (this.isClosed || (this.mqttServer != null))
+        {
+            throw new IllegalStateException("The emulator can only be started once");
+        }
+
+        SSLContext sslContext = this.certificate.getServerSslContext();
+        try
+        {
+            this.mqttServer = new MqttServer(this.hub, sslContext, this.mqttPort);
+            this.amqpServer = new AmqpServer(this.hub, sslContext, this.amqpPort);
+            this.httpsGateway = new HttpsGateway(this.hub, sslContext, this.httpsPort);
+        }
+        catch (IOException e)
+        {
+            this.close();
+            throw e;
+        }
+
+        this.mqttServer.start();
+        this.amqpServer.start();
+        this.httpsGateway.start();
+    }
+
+    /**
+     * Stop the emulator, and drop the connections of the devices. The pending method invocations complete with the
+     * status {@link MethodResponse#STATUS_TIMEOUT}.
+     */
+    @Override
+    public synchronized void close()
+    {
+        this.isClosed = true;
+        if (this.mqttServer != null)
+        {
+            this.mqttServer.close();
+        }
+        if (this.amqpServer != null)
+        {
+            this.amqpServer.close();
+        }
+        if (this.httpsGateway != null)
+        {
+            this.httpsGateway.close();
+        }
+        this.hub.close();
+    }
+
+    /**
+     * Getter for the host name.
+     *
+     * @return the host name the clients connect to.
+     */
+    public String getHostName()
+    {
+        return this.hub.getHostName();
+    }
+
+    /**
+     * Getter for the MQTT port.
+     *
+     * @return the port the emulator listens on for MQTT.
+     * @throws IllegalStateException if the emulator is not started.
+     */
+    public synchronized int getMqttPort() throws IllegalStateException
+    {
+        this.checkStarted();
+        return this.mqttServer.getPort();
+    }
+
+    /**
+     * Getter for the AMQP port.
+     *
+     * @return the port the emulator listens on for AMQP.
+     * @throws IllegalStateException if the emulator is not started.
+     */
+    public synchronized int getAmqpPort() throws IllegalStateException
+    {
+        this.checkStarted();
+        return this.amqpServer.getPort();
+    }
+
+    /**
+     * Getter for the HTTPS port.
+     *
+     * @return the port the emulator listens on for HTTPS.
+     * @throws IllegalStateException if the emulator is not started.
+     */
+    public synchronized int getHttpsPort() throws IllegalStateException
+    {
+        this.checkStarted();
+        return this.httpsGateway.getPort();
+    }
+
+    /**
+     * Getter for the certificate of the emulator, for the {@code SetCertificateAuthority} option of the device
+     * clients.
+     *
+     * @return the PEM encoded certificate.
+     */
+    public String getTrustedCertificate()
+    {
+        return this.certificate.toPem();
+    }
+
+    /**
+     * Getter for an SSL context that trusts the certificate of the emulator, for the clients that take an SSL
+     * context.
+     *
+     * @return the SSL context.
+     */
+    public SSLContext getSslContext()
+    {
+        return this.certificate.getClientSslContext();
+    }
+
+    /**
+     * Create the connection string of a device of the emulator. Its key is not validated by the emulator.
+     *
+     * @param deviceId the id of the device. It cannot be {@code null} or empty.
+     * @return the connection string.
+     * @throws IllegalArgumentException if the device id is {@code null} or empty.
+     */
+    public String createDeviceConnectionString(String deviceId) throws IllegalArgumentException
+    {
+        checkDeviceId(deviceId);
+        return "HostName=" + this.getHostName() + ";DeviceId=" + deviceId + ";SharedAccessKey=" + SHARED_ACCESS_KEY;
+    }
+
+    // faults
+
+    /**
+     * Getter for the fault injector.
+     *
+     * @return the fault injector of the emulator.
+     */
+    public FaultInjector getFaultInjector()
+    {
+        return this.hub.getFaultInjector();
+    }
+
+    /**
+     * Run a fault script. Its steps are applied at their offset from now, by the scheduler of the emulator.
+     *
+     * @param script the script. It cannot be {@code null}.
+     * @return the future that completes once all the steps are applied, or exceptionally if a step threw. Cancelling
+     *         it cancels the steps that are not applied yet.
+     * @throws IllegalArgumentException if the script is {@code null}.
+     */
+    public CompletableFuture<Void> runFaultScript(FaultScript script) throws IllegalArgumentException
+    {
+        if (script == null)
+        {
+            throw new IllegalArgumentException("script cannot be null");
+        }
+
+        final CompletableFuture<Void> completion = new CompletableFuture<>();
+        CompletableFuture<?>[] steps = script.getSteps().stream().map(timedStep ->
+        {
+            CompletableFuture<Void> step = new CompletableFuture<>();
+            this.hub.getScheduler().schedule(() ->
+            {
+                if (completion.isDone())
+                {
+                    return;
+                }
+
+                try
+                {
+                    timedStep.step.apply(this.hub.getFaultInjector());
+                    step.complete(null);
+                }
+                catch (RuntimeException e)
+                {
+                    step.completeExceptionally(e);
+                }
+            }, timedStep.offsetMillis, TimeUnit.MILLISECONDS);
+            return step;
+        }).toArray(CompletableFuture<?>[]::new);
+
+        CompletableFuture.allOf(steps).whenComplete((result, throwable) ->
+        {
+            if (throwable == null)
+            {
+                completion.complete(null);
+            }
+            else
+            {
+                completion.completeExceptionally(throwable);
+            }
+        });
+        return completion;
+    }
+
+    // telemetry
+
+    /**
+     * Setter for the listener of the telemetry messages.
+     *
+     * @param telemetryListener the listener, or {@code null} to remove it.
+     */
+    public void setTelemetryListener(TelemetryListener telemetryListener)
+    {
+        this.hub.setTelemetryListener(telemetryListener);
+    }
+
+    /**
+     * Getter for the number of telemetry messages received from all the devices.
+     *
+     * @return the number of messages received and not dropped.
+     */
+    public long getTelemetryCount()
+    {
+        return this.hub.getTelemetryCount();
+    }
+
+    /**
+     * Getter for the number of telemetry messages received from a device.
+     *
+     * @param deviceId the id of the device.
+     * @return the number of messages received from the device and not dropped.
+     */
+    public long getTelemetryCount(String deviceId)
+    {
+        return this.hub.getTelemetryCount(deviceId);
+    }
+
+    /**
+     * Getter for the number of telemetry messages dropped by the {@link FaultInjector}.
+     *
+     * @return the number of messages dropped.
+     */
+    public long getDroppedTelemetryCount()
+    {
+        return this.hub.getDroppedTelemetryCount();
+    }
+
+    // cloud to device messages
+
+    /**
+     * Send a cloud to device message. It is delivered as soon as the device receives its messages, or when it polls
+     * for them over HTTPS, and delivered again until the device completes it.
+     *
+     * @param deviceId the id of the device. It cannot be {@code null} or empty.
+     * @param payload the body of the message. It cannot be {@code null}.
+     * @param properties the application properties of the message, or {@code null} for none.
+     * @return {@code false} if the queue of the device is full, as with an IoT Hub.
+     * @throws IllegalArgumentException if the device id is {@code null} or empty, or the payload is {@code null}.
+     */
+    public boolean sendCloudToDeviceMessage(String deviceId, byte[] payload, Map<String, String> properties) throws IllegalArgumentException
+    {
+        checkDeviceId(deviceId);
+        if (payload == null)
+        {
+            throw new IllegalArgumentException("payload cannot be null");
+        }
+
+        return this.hub.sendCloudToDeviceMessage(deviceId, payload, (properties == null) ? Collections.<String, String>emptyMap() : properties);
+    }
+
+    /**
+     * Getter for the number of cloud to device messages completed by the devices.
+     *
+     * @return the number of messages completed or rejected by the devices.
+     */
+    public long getCompletedCloudToDeviceMessageCount()
+    {
+        return this.hub.getCompletedCloudToDeviceCount();
+    }
+
+    // twins
+
+    /**
+     * Update the desired properties of a device. The patch is sent to the device if it subscribed to them.
+     *
+     * @param deviceId the id of the device. It cannot be {@code null} or empty.
+     * @param patchJson the json merge patch of the desired properties.
+     * @return the version of the desired properties after the patch.
+     * @throws IllegalArgumentException if the device id is {@code null} or empty, or the patch is not a json object.
+     */
+    public long updateDesiredProperties(String deviceId, String patchJson) throws IllegalArgumentException
+    {
+        checkDeviceId(deviceId);
+        if (patchJson == null)
+        {
+            throw new IllegalArgumentException("patchJson cannot be null");
+        }
+
+        return this.hub.updateDesiredProperties(deviceId, patchJson);
+    }
+
+    /**
+     * Getter for the twin of a device, as the service sees it.
+     *
+     * @param deviceId the id of the device. It cannot be {@code null} or empty.
+     * @return the json of the twin, with its tags and its desired and reported properties.
+     * @throws IllegalArgumentException if the device id is {@code null} or empty.
+     */
+    public String getTwin(String deviceId) throws IllegalArgumentException
+    {
+        checkDeviceId(deviceId);
+        return this.hub.getTwinStore().getServiceTwin(deviceId);
+    }
+
+    // methods
+
+    /**
+     * Invoke a direct method of a device, and wait for its response.
+     *
+     * @param deviceId the id of the device. It cannot be {@code null} or empty.
+     * @param methodName the name of the method. It cannot be {@code null} or empty.
+     * @param payloadJson the json payload of the request, or {@code null} for none.
+     * @param timeoutMillis the time the device has to respond. It must be positive.
+     * @return the response of the device, or the status of the failure to invoke the method.
+     * @throws IllegalArgumentException if a parameter is not valid.
+     * @throws InterruptedException if the thread was interrupted while waiting for the response.
+     */
+    public MethodResponse invokeMethod(String deviceId, String methodName, String payloadJson, long timeoutMillis)
+            throws IllegalArgumentException, InterruptedException
+    {
+        try
+        {
+            return this.invokeMethodAsync(deviceId, methodName, payloadJson, timeoutMillis).get();
+        }
+        catch (ExecutionException e)
+        {
+            // the future never completes exceptionally
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Invoke a direct method of a device, without waiting for its response.
+     *
+     * @param deviceId the id of the device. It cannot be {@code null} or empty.
+     * @param methodName the name of the method. It cannot be {@code null} or empty.
+     * @param payloadJson the json payload of the request, or {@code null} for none.
+     * @param timeoutMillis the time the device has to respond. It must be positive.
+     * @return the future that completes with the response of the device, or with the status of the failure to
+     *         invoke the method. It never completes exceptionally.
+     * @throws IllegalArgumentException if a parameter is not valid.
+     */
+    public CompletableFuture<MethodResponse> invokeMethodAsync(String deviceId, String methodName, String payloadJson, long timeoutMillis)
+            throws IllegalArgumentException
+    {
+        checkDeviceId(deviceId);
+        if ((methodName == null) || methodName.isEmpty())
+        {
+            throw new IllegalArgumentException("methodName cannot be null or empty");
+        }
+        if (timeoutMillis <= 0)
+        {
+            throw new IllegalArgumentException("timeoutMillis must be positive");
+        }
+
+        return this.hub.invokeMethod(deviceId, methodName, (payloadJson == null) ? "null" : payloadJson, timeoutMillis);
+    }
+
+    // connections
+
+    /**
+     * Getter for the connection of a device.
+     *
+     * @param deviceId the id of the device.
+     * @return {@code true} if the device is connected.
+     */
+    public boolean isConnected(String deviceId)
+    {
+        return this.hub.isConnected(deviceId);
+    }
+
+    /**
+     * Getter for the number of connected devices.
+     *
+     * @return the number of devices connected over MQTT and AMQP.
+     */
+    public int getConnectedDeviceCount()
+    {
+        return this.hub.getConnectedDeviceCount();
+    }
+
+    private int checkPort(int port) throws IllegalArgumentException, IllegalStateException
+    {
+        if (this.isClosed || (this.mqttServer != null))
+        {
+            throw new IllegalStateException("The ports cannot be changed once the emulator is started");
+        }
+        if ((port < 0) || (port > 0xFFFF))
+        {
+            throw new IllegalArgumentException("The port must be between 0 and 65535");
+        }
+
+        return port;
+    }
+
+    private void checkStarted() throws IllegalStateException
+    {
+        if (this.mqttServer == null)
+        {
+            throw new IllegalStateException("The emulator is not started");
+        }
+    }
+
+    private static void checkDeviceId(String deviceId) throws IllegalArgumentException
+    {
+        if ((deviceId == null) || deviceId.isEmpty())
+        {
+            throw new IllegalArgumentException("deviceId cannot be null or empty");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+/**
+ * The result of a direct method invoked with {@link IotHubEmulator#invokeMethod(String, String, String, long)}.
+ *
+ * <p> As with an IoT Hub, the status is {@code 404} if the device is not connected or did not subscribe to the
+ *     methods, and {@code 504} if the device did not respond in time. Otherwise it is the status of the response of
+ *     the device.
+ */
+public final class MethodResponse
+{
+    /** The status of the invocation of a method of a device that is not connected or did not subscribe to methods. */
+    public static final int STATUS_DEVICE_NOT_ONLINE = 404;
+
+    /** The status of the invocation of a method the device did not respond to in time. */
+    public static final int STATUS_TIMEOUT = 504;
+
+    private final int status;
+    private final String payload;
+
+    MethodResponse(int status, String payload)
+    {
+        this.status = status;
+        this.payload = payload;
+    }
+
+    /**
+     * Getter for the status.
+     *
+     * @return the status of the response of the device, or of the failure to invoke the method.
+     */
+    public int getStatus()
+    {
+        return this.status;
+    }
+
+    /**
+     * Getter for the payload.
+     *
+     * @return the json payload of the response of the device, or {@code null} if it did not respond.
+     */
+    public String getPayload()
+    {
+        return this.payload;
+    }
+}
@@ -0,0 +1,276 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes the MQTT 3.1.1 control packets used between the devices and the emulator.
+ */
+final class MqttCodec
+{
+    static final int CONNECT = 1;
+    static final int CONNACK = 2;
+    static final int PUBLISH = 3;
+    static final int PUBACK = 4;
+    static final int SUBSCRIBE = 8;
+    static final int SUBACK = 9;
+    static final int UNSUBSCRIBE = 10;
+    static final int UNSUBACK = 11;
+    static final int PINGREQ = 12;
+    static final int PINGRESP = 13;
+    static final int DISCONNECT = 14;
+
+    static final int CONNACK_ACCEPTED = 0;
+    static final int CONNACK_UNACCEPTABLE_PROTOCOL_VERSION = 1;
+    static final int CONNACK_SERVER_UNAVAILABLE = 3;
+    static final int SUBACK_FAILURE = 0x80;
+
+    private static final int MAX_REMAINING_LENGTH_BYTES = 4;
+
+    /**
+     * A control packet read from a device.
+     */
+    static final class Packet
+    {
+        private final int type;
+        private final int flags;
+        private final byte[] body;
+        private int position = 0;
+
+        private Packet(int type, int flags, byte[] body)
+        {
+            this.type = type;
+            this.flags = flags;
+            this.body = body;
+        }
+
+        int getType()
+        {
+            return this.type;
+        }
+
+        int getFlags()
+        {
+            return this.flags;
+        }
+
+        int remaining()
+        {
+            return this.body.length - this.position;
+        }
+
+        int readByte() throws IOException
+        {
+            this.require(1);
+            return this.body[this.position++] & 0xFF;
+        }
+
+        int readShort() throws IOException
+        {
+            return (this.readByte() << 8) | this.readByte();
+        }
+
+        byte[] readBytes(int length) throws IOException
+        {
+            this.require(length);
+            byte[] bytes = new byte[length];
+            System.arraycopy(this.body, this.position, bytes, 0, length);
+            this.position += length;
+            return bytes;
+        }
+
+        byte[] readBinary() throws IOException
+        {
+            return this.readBytes(this.readShort());
+        }
+
+        String readString() throws IOException
+        {
+            return new String(this.readBinary(), StandardCharsets.UTF_8);
+        }
+
+        byte[] readRemaining() throws IOException
+        {
+            return this.readBytes(this.remaining());
+        }
+
+        private void require(int length) throws IOException
+        {
+            if (this.remaining() < length)
+            {
+                throw new IOException("Malformed MQTT packet of type " + this.type);
+            }
+        }
+    }
+
+    private MqttCodec()
+    {
+    }
+
+    /**
+     * Read the next control packet.
+     *
+     * @param inputStream the stream of the connection.
+     * @return the packet, or {@code null} if the stream ended between two packets.
+     * @throws IOException if the stream failed or ended within a packet, or the packet is malformed.
+     */
+    static Packet read(InputStream inputStream) throws IOException
+    {
+        int header = inputStream.read();
+        if (header < 0)
+        {
+            return null;
+        }
+
+        int remainingLength = 0;
+        int multiplier = 1;
+        for (int i = 0; ; i++)
+        {
+            if (i == MAX_REMAINING_LENGTH_BYTES)
+            {
+                throw new IOException("Malformed MQTT remaining length");
+            }
+
+            int encoded = readByte(inputStream);
+            remainingLength += (encoded & 0x7F) * multiplier;
+            multiplier *= 128;
+            if ((encoded & 0x80) == 0)
+            {
+                break;
+            }
+        }
+
+        byte[] body = new byte[remainingLength];
+        int offset = 0;
+        while (offset < remainingLength)
+        {
+            int count = inputStream.read(body, offset, remainingLength - offset);
+            if (count < 0)
+            {
+                throw new EOFException("The MQTT connection ended within a packet");
+            }
+            offset += count;
+        }
+
+        return new Packet(header >> 4, header & 0x0F, body);
+    }
+
+    static byte[] connack(boolean sessionPresent, int returnCode)
+    {
+        return new byte[] { (byte) (CONNACK << 4), 2, (byte) (sessionPresent ? 1 : 0), (byte) returnCode };
+    }
+
+    static byte[] publish(String topic, byte[] payload, int qos, int packetId)
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(topic.length() + payload.length + 4);
+        writeString(body, topic);
+        if (qos > 0)
+        {
+            writeShort(body, packetId);
+        }
+        body.write(payload, 0, payload.length);
+        return packet((PUBLISH << 4) | (qos << 1), body);
+    }
+
+    static byte[] puback(int packetId)
+    {
+        return new byte[] { (byte) (PUBACK << 4), 2, (byte) (packetId >> 8), (byte) packetId };
+    }
+
+    static byte[] suback(int packetId, int[] returnCodes)
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(2 + returnCodes.length);
+        writeShort(body, packetId);
+        for (int returnCode : returnCodes)
+        {
+            body.write(returnCode);
+        }
+        return packet(SUBACK << 4, body);
+    }
+
+    static byte[] unsuback(int packetId)
+    {
+        return new byte[] { (byte) (UNSUBACK << 4), 2, (byte) (packetId >> 8), (byte) packetId };
+    }
+
+    static byte[] pingresp()
+    {
+        return new byte[] { (byte) (PINGRESP << 4), 0 };
+    }
+
+    /**
+     * Match a topic with a subscription filter, with the {@code +} and {@code #} wildcards.
+     *
+     * @param filter the topic filter of the subscription.
+     * @param topic the topic of the message.
+     * @return {@code true} if the topic matches the filter.
+     */
+    static boolean matches(String filter, String topic)
+    {
+        String[] filterLevels = filter.split("/", -1);
+        String[] topicLevels = topic.split("/", -1);
+        for (int i = 0; i < filterLevels.length; i++)
+        {
+            if (filterLevels[i].equals("#"))
+            {
+                return true;
+            }
+            if (i >= topicLevels.length)
+            {
+                return false;
+            }
+            if (!filterLevels[i].equals("+") && !filterLevels[i].equals(topicLevels[i]))
+            {
+                return false;
+            }
+        }
+
+        return filterLevels.length == topicLevels.length;
+    }
+
+    private static byte[] packet(int header, ByteArrayOutputStream body)
+    {
+        ByteArrayOutputStream packet = new ByteArrayOutputStream(body.size() + 5);
+        packet.write(header);
+        int remainingLength = body.size();
+        do
+        {
+            int encoded = remainingLength % 128;
+            remainingLength /= 128;
+            packet.write((remainingLength > 0) ? (encoded | 0x80) : encoded);
+        }
+        while (remainingLength > 0);
+        packet.write(body.toByteArray(), 0, body.size());
+        return packet.toByteArray();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeShort(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value)
+    {
+        out.write(value >> 8);
+        out.write(value);
+    }
+
+    private static int readByte(InputStream inputStream) throws IOException
+    {
+        int value = inputStream.read();
+        if (value < 0)
+        {
+            throw new EOFException("The MQTT connection ended within a packet");
+        }
+
+        return value;
+    }
+}
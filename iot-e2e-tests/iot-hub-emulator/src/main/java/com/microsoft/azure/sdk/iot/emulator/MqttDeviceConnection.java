@@ -0,0 +1,508 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The MQTT connection of a device.
+ *
+ * <p> The packets of the device are read and handled by the thread of the connection. The packets to the device are
+ *     written by any thread, under the write lock of the connection.
+ */
+@Slf4j
+final class MqttDeviceConnection implements DeviceEndpoint
+{
+    private static final int MQTT_PROTOCOL_LEVEL = 4;
+    private static final int CONNECT_FLAG_USERNAME = 0x80;
+    private static final int CONNECT_FLAG_PASSWORD = 0x40;
+    private static final int CONNECT_FLAG_WILL = 0x04;
+    private static final int CONNECT_FLAG_CLEAN_SESSION = 0x02;
+    private static final int MAX_QOS = 1;
+    private static final int MAX_PACKET_ID = 0xFFFF;
+    private static final double KEEP_ALIVE_TOLERANCE = 1.5;
+
+    private static final String TELEMETRY_TOPIC_FORMAT = "devices/%s/messages/events/";
+    private static final String CLOUD_TO_DEVICE_TOPIC_FORMAT = "devices/%s/messages/devicebound/";
+    private static final String TWIN_GET_TOPIC_PREFIX = "$iothub/twin/GET/";
+    private static final String TWIN_PATCH_REPORTED_TOPIC_PREFIX = "$iothub/twin/PATCH/properties/reported/";
+    private static final String TWIN_RESPONSE_TOPIC_FORMAT = "$iothub/twin/res/%d/?$rid=%s";
+    private static final String TWIN_DESIRED_TOPIC_FORMAT = "$iothub/twin/PATCH/properties/desired/?$version=%d";
+    private static final String METHOD_REQUEST_TOPIC_FORMAT = "$iothub/methods/POST/%s/?$rid=%s";
+    private static final String METHOD_RESPONSE_TOPIC_PREFIX = "$iothub/methods/res/";
+    private static final String REQUEST_ID_PARAMETER = "$rid";
+    private static final String SYSTEM_PROPERTY_PREFIX = "$.";
+
+    private final Hub hub;
+    private final MqttServer server;
+    private final Socket socket;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, CloudToDeviceMessage> inFlightMessages = new LinkedHashMap<>();
+    private final AtomicInteger lastPacketId = new AtomicInteger();
+    private OutputStream outputStream;
+    private String deviceId;
+    private boolean isCleanSession;
+    private volatile boolean isClosed = false;
+
+    MqttDeviceConnection(Hub hub, MqttServer server, Socket socket)
+    {
+        this.hub = hub;
+        this.server = server;
+        this.socket = socket;
+    }
+
+    /**
+     * Serve the connection until it ends.
+     *
+     * @throws IOException if the connection failed.
+     */
+    void run() throws IOException
+    {
+        InputStream inputStream = new BufferedInputStream(this.socket.getInputStream());
+        this.outputStream = new BufferedOutputStream(this.socket.getOutputStream());
+
+        MqttCodec.Packet connect = MqttCodec.read(inputStream);
+        if ((connect == null) || (connect.getType() != MqttCodec.CONNECT) || !this.connect(connect))
+        {
+            return;
+        }
+
+        try
+        {
+            MqttCodec.Packet packet;
+            while (((packet = MqttCodec.read(inputStream)) != null) && this.handle(packet))
+            {
+                // the packets are handled until the device disconnects
+            }
+        }
+        finally
+        {
+            this.closed();
+        }
+    }
+
+    @Override
+    public String getDeviceId()
+    {
+        return this.deviceId;
+    }
+
+    @Override
+    public boolean isSubscribedToCloudToDeviceMessages()
+    {
+        return this.isSubscribed(String.format(CLOUD_TO_DEVICE_TOPIC_FORMAT, this.deviceId));
+    }
+
+    @Override
+    public boolean isSubscribedToDesiredProperties()
+    {
+        return this.isSubscribed(String.format(TWIN_DESIRED_TOPIC_FORMAT, 1));
+    }
+
+    @Override
+    public boolean isSubscribedToMethods()
+    {
+        return this.isSubscribed(String.format(METHOD_REQUEST_TOPIC_FORMAT, "method", "1"));
+    }
+
+    @Override
+    public void sendCloudToDeviceMessage(CloudToDeviceMessage message)
+    {
+        StringBuilder topic = new StringBuilder(String.format(CLOUD_TO_DEVICE_TOPIC_FORMAT, this.deviceId));
+        // the device only reads the properties that follow the first system property
+        topic.append(encode("$.mid")).append('=').append(encode(message.getMessageId()));
+        topic.append('&').append(encode("$.to")).append('=').append(encode(message.getTo()));
+        for (Map.Entry<String, String> property : message.getProperties().entrySet())
+        {
+            topic.append('&').append(encode(property.getKey())).append('=').append(encode(property.getValue()));
+        }
+
+        int packetId = this.nextPacketId();
+        synchronized (this.inFlightMessages)
+        {
+            if (this.isClosed)
+            {
+                this.hub.abandonCloudToDeviceMessage(message);
+                return;
+            }
+            this.inFlightMessages.put(packetId, message);
+        }
+
+        // the message is abandoned when the connection closes if the write failed
+        this.write(MqttCodec.publish(topic.toString(), message.getPayload(), MAX_QOS, packetId));
+    }
+
+    @Override
+    public void sendDesiredPropertiesPatch(String patchJson, long version)
+    {
+        this.write(MqttCodec.publish(String.format(TWIN_DESIRED_TOPIC_FORMAT, version), patchJson.getBytes(StandardCharsets.UTF_8), 0, 0));
+    }
+
+    @Override
+    public void sendMethodRequest(String requestId, String methodName, byte[] payload)
+    {
+        this.write(MqttCodec.publish(String.format(METHOD_REQUEST_TOPIC_FORMAT, methodName, requestId), payload, 0, 0));
+    }
+
+    @Override
+    public void disconnect()
+    {
+        this.isClosed = true;
+        TlsServer.closeQuietly(this.socket);
+    }
+
+    private boolean connect(MqttCodec.Packet connect) throws IOException
+    {
+        connect.readString();
+        int protocolLevel = connect.readByte();
+        int flags = connect.readByte();
+        int keepAliveSeconds = connect.readShort();
+        String clientId = connect.readString();
+        if ((flags & CONNECT_FLAG_WILL) != 0)
+        {
+            connect.readString();
+            connect.readBinary();
+        }
+        if ((flags & CONNECT_FLAG_USERNAME) != 0)
+        {
+            connect.readString();
+        }
+        if ((flags & CONNECT_FLAG_PASSWORD) != 0)
+        {
+            // the credentials are not verified
+            connect.readBinary();
+        }
+
+        if (protocolLevel != MQTT_PROTOCOL_LEVEL)
+        {
+            this.write(MqttCodec.connack(false, MqttCodec.CONNACK_UNACCEPTABLE_PROTOCOL_VERSION));
+            return false;
+        }
+        if (this.hub.getFaultInjector().isRejectingConnections())
+        {
+            this.write(MqttCodec.connack(false, MqttCodec.CONNACK_SERVER_UNAVAILABLE));
+            return false;
+        }
+
+        if (keepAliveSeconds > 0)
+        {
+            this.socket.setSoTimeout((int) (TimeUnit.SECONDS.toMillis(keepAliveSeconds) * KEEP_ALIVE_TOLERANCE));
+        }
+
+        // a module connects with its device id and module id as client id
+        this.deviceId = clientId;
+        this.isCleanSession = (flags & CONNECT_FLAG_CLEAN_SESSION) != 0;
+        boolean isSessionPresent = false;
+        if (this.isCleanSession)
+        {
+            this.server.removePersistentSession(clientId);
+        }
+        else
+        {
+            Set<String> persistedSubscriptions = this.server.getPersistentSession(clientId);
+            if (persistedSubscriptions != null)
+            {
+                this.subscriptions.addAll(persistedSubscriptions);
+                isSessionPresent = true;
+            }
+        }
+
+        this.hub.connected(this);
+        this.write(MqttCodec.connack(isSessionPresent, MqttCodec.CONNACK_ACCEPTED));
+        this.hub.deliverCloudToDeviceMessages(this.deviceId);
+        return true;
+    }
+
+    private boolean handle(MqttCodec.Packet packet) throws IOException
+    {
+        switch (packet.getType())
+        {
+            case MqttCodec.PUBLISH:
+                return this.handlePublish(packet);
+
+            case MqttCodec.PUBACK:
+                CloudToDeviceMessage message;
+                synchronized (this.inFlightMessages)
+                {
+                    message = this.inFlightMessages.remove(packet.readShort());
+                }
+                if (message != null)
+                {
+                    this.hub.completeCloudToDeviceMessage(message);
+                }
+                return true;
+
+            case MqttCodec.SUBSCRIBE:
+                this.handleSubscribe(packet);
+                return true;
+
+            case MqttCodec.UNSUBSCRIBE:
+                int packetId = packet.readShort();
+                while (packet.remaining() > 0)
+                {
+                    this.subscriptions.remove(packet.readString());
+                }
+                this.saveSession();
+                this.write(MqttCodec.unsuback(packetId));
+                return true;
+
+            case MqttCodec.PINGREQ:
+                this.write(MqttCodec.pingresp());
+                return true;
+
+            case MqttCodec.DISCONNECT:
+                return false;
+
+            default:
+                log.debug("Device {} sent an unexpected MQTT packet of type {}, it is disconnected", this.deviceId, packet.getType());
+                return false;
+        }
+    }
+
+    private boolean handlePublish(MqttCodec.Packet packet) throws IOException
+    {
+        int qos = (packet.getFlags() >> 1) & 0x03;
+        if (qos > MAX_QOS)
+        {
+            log.debug("Device {} published with QoS {}, it is disconnected", this.deviceId, qos);
+            return false;
+        }
+
+        String topic = packet.readString();
+        final int packetId = (qos > 0) ? packet.readShort() : 0;
+        byte[] payload = packet.readRemaining();
+        final byte[] puback = (qos > 0) ? MqttCodec.puback(packetId) : null;
+
+        String telemetryTopic = String.format(TELEMETRY_TOPIC_FORMAT, this.deviceId);
+        if (topic.startsWith(telemetryTopic))
+        {
+            long delay = this.hub.receiveTelemetry(this.deviceId, payload, parseProperties(topic.substring(telemetryTopic.length())));
+            if ((delay >= 0) && (puback != null))
+            {
+                this.hub.respond(delay, () -> this.write(puback));
+            }
+            return true;
+        }
+
+        // the requests are acknowledged right away, and answered after the latency and throttling
+        if (puback != null)
+        {
+            this.write(puback);
+        }
+
+        if (topic.startsWith(TWIN_GET_TOPIC_PREFIX))
+        {
+            final String requestId = parseParameters(topic).get(REQUEST_ID_PARAMETER);
+            final byte[] twin = this.hub.getTwinStore().getDeviceTwin(this.deviceId).getBytes(StandardCharsets.UTF_8);
+            this.hub.respond(this.hub.getFaultInjector().reserveOperation(),
+                    () -> this.write(MqttCodec.publish(String.format(TWIN_RESPONSE_TOPIC_FORMAT, 200, requestId), twin, 0, 0)));
+        }
+        else if (topic.startsWith(TWIN_PATCH_REPORTED_TOPIC_PREFIX))
+        {
+            String requestId = parseParameters(topic).get(REQUEST_ID_PARAMETER);
+            String responseTopic;
+            try
+            {
+                long version = this.hub.getTwinStore().updateReportedProperties(this.deviceId, new String(payload, StandardCharsets.UTF_8));
+                responseTopic = String.format(TWIN_RESPONSE_TOPIC_FORMAT, 204, requestId) + "&$version=" + version;
+            }
+            catch (IllegalArgumentException e)
+            {
+                responseTopic = String.format(TWIN_RESPONSE_TOPIC_FORMAT, 400, requestId);
+            }
+
+            final String topicOfResponse = responseTopic;
+            this.hub.respond(this.hub.getFaultInjector().reserveOperation(),
+                    () -> this.write(MqttCodec.publish(topicOfResponse, new byte[0], 0, 0)));
+        }
+        else if (topic.startsWith(METHOD_RESPONSE_TOPIC_PREFIX))
+        {
+            String status = topic.substring(METHOD_RESPONSE_TOPIC_PREFIX.length(), topic.indexOf('/', METHOD_RESPONSE_TOPIC_PREFIX.length()));
+            try
+            {
+                this.hub.receiveMethodResponse(parseParameters(topic).get(REQUEST_ID_PARAMETER), Integer.parseInt(status), payload);
+            }
+            catch (NumberFormatException e)
+            {
+                log.debug("Device {} responded to a method with the invalid status {}", this.deviceId, status);
+            }
+        }
+        else
+        {
+            log.debug("Device {} published to the unsupported topic {}", this.deviceId, topic);
+        }
+
+        return true;
+    }
+
+    private void handleSubscribe(MqttCodec.Packet packet) throws IOException
+    {
+        int packetId = packet.readShort();
+        List<Integer> returnCodes = new ArrayList<>();
+        while (packet.remaining() > 0)
+        {
+            String topicFilter = packet.readString();
+            int requestedQos = packet.readByte();
+            this.subscriptions.add(topicFilter);
+            returnCodes.add(Math.min(requestedQos, MAX_QOS));
+        }
+
+        int[] codes = new int[returnCodes.size()];
+        for (int i = 0; i < codes.length; i++)
+        {
+            codes[i] = returnCodes.get(i);
+        }
+
+        this.saveSession();
+        this.write(MqttCodec.suback(packetId, codes));
+        this.hub.deliverCloudToDeviceMessages(this.deviceId);
+    }
+
+    private void closed()
+    {
+        this.isClosed = true;
+        this.hub.disconnected(this);
+        this.saveSession();
+
+        List<CloudToDeviceMessage> undelivered;
+        synchronized (this.inFlightMessages)
+        {
+            undelivered = new ArrayList<>(this.inFlightMessages.values());
+            this.inFlightMessages.clear();
+        }
+
+        // put back at the head of the queue in their original order
+        for (int i = undelivered.size() - 1; i >= 0; i--)
+        {
+            this.hub.abandonCloudToDeviceMessage(undelivered.get(i));
+        }
+    }
+
+    private void saveSession()
+    {
+        if (!this.isCleanSession)
+        {
+            this.server.savePersistentSession(this.deviceId, this.subscriptions);
+        }
+    }
+
+    private boolean isSubscribed(String topic)
+    {
+        for (String topicFilter : this.subscriptions)
+        {
+            if (MqttCodec.matches(topicFilter, topic))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private int nextPacketId()
+    {
+        // the packet ids go from 1 to 65535
+        return this.lastPacketId.updateAndGet(id -> (id % MAX_PACKET_ID) + 1);
+    }
+
+    private void write(byte[] packet)
+    {
+        this.writeLock.lock();
+        try
+        {
+            this.outputStream.write(packet);
+            this.outputStream.flush();
+        }
+        catch (IOException e)
+        {
+            // the thread of the connection cleans up once its read fails
+            this.disconnect();
+        }
+        finally
+        {
+            this.writeLock.unlock();
+        }
+    }
+
+    private static Map<String, String> parseProperties(String encodedProperties)
+    {
+        Map<String, String> properties = new HashMap<>();
+        for (Map.Entry<String, String> property : parseQuery(encodedProperties).entrySet())
+        {
+            if (!property.getKey().startsWith(SYSTEM_PROPERTY_PREFIX))
+            {
+                properties.put(property.getKey(), property.getValue());
+            }
+        }
+
+        return properties;
+    }
+
+    private static Map<String, String> parseParameters(String topic)
+    {
+        int queryStart = topic.indexOf('?');
+        return (queryStart < 0) ? new HashMap<String, String>() : parseQuery(topic.substring(queryStart + 1));
+    }
+
+    private static Map<String, String> parseQuery(String query)
+    {
+        Map<String, String> parameters = new HashMap<>();
+        for (String parameter : query.split("&"))
+        {
+            int separator = parameter.indexOf('=');
+            if (separator > 0)
+            {
+                parameters.put(decode(parameter.substring(0, separator)), decode(parameter.substring(separator + 1)));
+            }
+        }
+
+        return parameters;
+    }
+
+    private static String encode(String value)
+    {
+        try
+        {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(String value)
+    {
+        try
+        {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        }
+        catch (UnsupportedEncodingException | IllegalArgumentException e)
+        {
+            return value;
+        }
+    }
+}
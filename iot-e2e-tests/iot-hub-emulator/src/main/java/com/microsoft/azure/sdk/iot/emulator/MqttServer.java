@@ -0,0 +1,56 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The MQTT endpoint of the emulator.
+ *
+ * <p> It keeps the subscriptions of the persistent sessions, of the clients that connect without a clean session, so
+ *     they are restored when the client reconnects.
+ */
+final class MqttServer extends TlsServer
+{
+    private final ConcurrentMap<String, Set<String>> persistentSessions = new ConcurrentHashMap<>();
+
+    MqttServer(Hub hub, SSLContext sslContext, int port) throws IOException
+    {
+        super("mqtt", hub, sslContext, port);
+    }
+
+    @Override
+    void serve(Socket socket) throws IOException
+    {
+        new MqttDeviceConnection(this.hub, this, socket).run();
+    }
+
+    /**
+     * Getter for the subscriptions of a persistent session.
+     *
+     * @param clientId the id of the client.
+     * @return the subscriptions, or {@code null} if the client has no persistent session.
+     */
+    Set<String> getPersistentSession(String clientId)
+    {
+        return this.persistentSessions.get(clientId);
+    }
+
+    void savePersistentSession(String clientId, Set<String> subscriptions)
+    {
+        this.persistentSessions.put(clientId, Collections.unmodifiableSet(new HashSet<>(subscriptions)));
+    }
+
+    void removePersistentSession(String clientId)
+    {
+        this.persistentSessions.remove(clientId);
+    }
+}
@@ -0,0 +1,25 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import java.util.Map;
+
+/**
+ * Listener of the telemetry messages received by an {@link IotHubEmulator}.
+ *
+ * <p> It is called by the thread of the connection of the device, before the message is acknowledged, so it shall
+ *     return quickly.
+ */
+@FunctionalInterface
+public interface TelemetryListener
+{
+    /**
+     * Called for each telemetry message that is received, and not dropped by the {@link FaultInjector}.
+     *
+     * @param deviceId the id of the device that sent the message.
+     * @param payload the body of the message.
+     * @param properties the application properties of the message.
+     */
+    void onTelemetry(String deviceId, byte[] payload, Map<String, String> properties);
+}
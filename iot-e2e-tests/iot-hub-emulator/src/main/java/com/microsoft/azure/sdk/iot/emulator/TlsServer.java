@@ -0,0 +1,145 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A TLS endpoint of the emulator, that serves each connection with a task of the connection executor of the hub.
+ */
+@Slf4j
+abstract class TlsServer implements Closeable
+{
+    private static final int BACKLOG = 1024;
+
+    final Hub hub;
+    private final String protocol;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private volatile boolean isClosed = false;
+
+    TlsServer(String protocol, Hub hub, SSLContext sslContext, int port) throws IOException
+    {
+        this.protocol = protocol;
+        this.hub = hub;
+        this.serverSocket = sslContext.getServerSocketFactory().createServerSocket(port, BACKLOG);
+    }
+
+    /**
+     * Getter for the port of the endpoint.
+     *
+     * @return the port the endpoint listens on.
+     */
+    int getPort()
+    {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Start accepting connections.
+     */
+    void start()
+    {
+        Thread acceptor = new Thread(this::acceptConnections, "iot-hub-emulator-" + this.protocol + "-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Serve a connection until it ends. The socket is closed after it returns.
+     *
+     * @param socket the socket of the connection.
+     * @throws IOException if the connection failed.
+     */
+    abstract void serve(Socket socket) throws IOException;
+
+    /**
+     * Stop accepting connections, and close the open ones.
+     */
+    @Override
+    public void close()
+    {
+        this.isClosed = true;
+        closeQuietly(this.serverSocket);
+        for (Socket socket : this.sockets)
+        {
+            closeQuietly(socket);
+        }
+    }
+
+    static void closeQuietly(Closeable closeable)
+    {
+        try
+        {
+            closeable.close();
+        }
+        catch (IOException e)
+        {
+            // nothing more can be done with it anyway
+        }
+    }
+
+    private void acceptConnections()
+    {
+        while (!this.isClosed)
+        {
+            final Socket socket;
+            try
+            {
+                socket = this.serverSocket.accept();
+            }
+            catch (IOException e)
+            {
+                if (!this.isClosed)
+                {
+                    log.warn("The {} endpoint failed to accept a connection", this.protocol, e);
+                }
+                continue;
+            }
+
+            this.sockets.add(socket);
+            try
+            {
+                this.hub.getConnectionExecutor().execute(() -> this.serveAndClose(socket));
+            }
+            catch (RejectedExecutionException e)
+            {
+                // the emulator is closing
+                this.sockets.remove(socket);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void serveAndClose(Socket socket)
+    {
+        try
+        {
+            socket.setTcpNoDelay(true);
+            this.serve(socket);
+        }
+        catch (IOException e)
+        {
+            log.debug("A {} connection failed", this.protocol, e);
+        }
+        catch (RuntimeException e)
+        {
+            log.warn("A {} connection failed unexpectedly", this.protocol, e);
+        }
+        finally
+        {
+            this.sockets.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.emulator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The twins of the devices of the emulator.
+ *
+ * <p> A twin is created with empty properties the first time a device is referenced. The patches are json merge
+ *     patches: a {@code null} value removes a property, and an object is merged into the existing one. The desired and
+ *     the reported properties have their own version, incremented by each patch, and the twin has an etag that
+ *     changes with any update of the twin.
+ */
+final class TwinStore
+{
+    private static final String VERSION_PROPERTY = "$version";
+
+    private final Map<String, Twin> twins = new HashMap<>();
+
+    private static final class Twin
+    {
+        private JsonObject tags = new JsonObject();
+        private JsonObject desired = new JsonObject();
+        private JsonObject reported = new JsonObject();
+        private long desiredVersion = 1;
+        private long reportedVersion = 1;
+        private long version = 1;
+
+        private String getEtag()
+        {
+            return "AAAAAAAAAA" + this.version;
+        }
+    }
+
+    /**
+     * Getter for the twin as seen by the device.
+     *
+     * @param deviceId the id of the device.
+     * @return the json of the desired and reported properties, with their versions.
+     */
+    synchronized String getDeviceTwin(String deviceId)
+    {
+        Twin twin = this.getOrCreate(deviceId);
+        JsonObject json = new JsonObject();
+        json.add("desired", withVersion(twin.desired, twin.desiredVersion));
+        json.add("reported", withVersion(twin.reported, twin.reportedVersion));
+        return json.toString();
+    }
+
+    /**
+     * Getter for the twin as seen by the service.
+     *
+     * @param deviceId the id of the device.
+     * @return the json of the twin.
+     */
+    synchronized String getServiceTwin(String deviceId)
+    {
+        Twin twin = this.getOrCreate(deviceId);
+        JsonObject properties = new JsonObject();
+        properties.add("desired", withVersion(twin.desired, twin.desiredVersion));
+        properties.add("reported", withVersion(twin.reported, twin.reportedVersion));
+
+        JsonObject json = new JsonObject();
+        json.addProperty("deviceId", deviceId);
+        json.addProperty("etag", twin.getEtag());
+        json.addProperty("version", twin.version);
+        json.add("tags", copy(twin.tags));
+        json.add("properties", properties);
+        return json.toString();
+    }
+
+    /**
+     * Getter for the etag of the twin.
+     *
+     * @param deviceId the id of the device.
+     * @return the etag.
+     */
+    synchronized String getEtag(String deviceId)
+    {
+        return this.getOrCreate(deviceId).getEtag();
+    }
+
+    /**
+     * Apply a patch of the reported properties.
+     *
+     * @param deviceId the id of the device.
+     * @param patchJson the json merge patch.
+     * @return the version of the reported properties after the patch.
+     * @throws IllegalArgumentException if the patch is not a json object.
+     */
+    synchronized long updateReportedProperties(String deviceId, String patchJson) throws IllegalArgumentException
+    {
+        JsonObject patch = parseObject(patchJson);
+        Twin twin = this.getOrCreate(deviceId);
+        merge(twin.reported, patch);
+        twin.version++;
+        return ++twin.reportedVersion;
+    }
+
+    /**
+     * Apply a patch of the desired properties.
+     *
+     * @param deviceId the id of the device.
+     * @param patchJson the json merge patch.
+     * @return the patch to send to the device, with the version of the desired properties after the patch.
+     * @throws IllegalArgumentException if the patch is not a json object.
+     */
+    synchronized JsonObject updateDesiredProperties(String deviceId, String patchJson) throws IllegalArgumentException
+    {
+        JsonObject patch = parseObject(patchJson);
+        Twin twin = this.getOrCreate(deviceId);
+        merge(twin.desired, patch);
+        twin.version++;
+        return withVersion(patch, ++twin.desiredVersion);
+    }
+
+    /**
+     * Update the tags and desired properties of the twin, as the service does.
+     *
+     * @param deviceId the id of the device.
+     * @param twinJson the json of the twin, with its {@code tags} and {@code properties.desired}. The other members
+     *                 are ignored.
+     * @param replace {@code true} to replace the tags and desired properties, {@code false} to merge them.
+     * @return the patch of the desired properties to send to the device, with the version of the desired properties
+     *         after the update, or {@code null} if the desired properties were not updated.
+     * @throws IllegalArgumentException if the twin is not a json object.
+     */
+    synchronized JsonObject updateTwin(String deviceId, String twinJson, boolean replace) throws IllegalArgumentException
+    {
+        JsonObject update = parseObject(twinJson);
+        Twin twin = this.getOrCreate(deviceId);
+
+        JsonObject tags = getObject(update, "tags");
+        if (tags != null)
+        {
+            if (replace)
+            {
+                twin.tags = new JsonObject();
+            }
+            merge(twin.tags, tags);
+        }
+
+        JsonObject desired = null;
+        JsonObject properties = getObject(update, "properties");
+        if (properties != null)
+        {
+            desired = getObject(properties, "desired");
+        }
+        if (desired != null)
+        {
+            desired.remove(VERSION_PROPERTY);
+            if (replace)
+            {
+                twin.desired = new JsonObject();
+            }
+            merge(twin.desired, desired);
+        }
+
+        twin.version++;
+        if (desired == null)
+        {
+            return null;
+        }
+
+        // a replaced twin is sent whole to the device
+        return withVersion(replace ? twin.desired : desired, ++twin.desiredVersion);
+    }
+
+    private Twin getOrCreate(String deviceId)
+    {
+        Twin twin = this.twins.get(deviceId);
+        if (twin == null)
+        {
+            twin = new Twin();
+            this.twins.put(deviceId, twin);
+        }
+
+        return twin;
+    }
+
+    private static JsonObject withVersion(JsonObject properties, long version)
+    {
+        JsonObject json = (JsonObject) copy(properties);
+        json.addProperty(VERSION_PROPERTY, version);
+        return json;
+    }
+
+    private static JsonElement copy(JsonElement element)
+    {
+        if (element.isJsonObject())
+        {
+            JsonObject copy = new JsonObject();
+            for (Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet())
+            {
+                copy.add(entry.getKey(), copy(entry.getValue()));
+            }
+            return copy;
+        }
+        if (element.isJsonArray())
+        {
+            JsonArray copy = new JsonArray();
+            for (JsonElement item : element.getAsJsonArray())
+            {
+                copy.add(copy(item));
+            }
+            return copy;
+        }
+
+        // the primitives and null are immutable
+        return element;
+    }
+
+    private static JsonObject getObject(JsonObject json, String member)
+    {
+        JsonElement element = json.get(member);
+        return ((element != null) && element.isJsonObject()) ? element.getAsJsonObject() : null;
+    }
+
+    private static void merge(JsonObject target, JsonObject patch)
+    {
+        for (Entry<String, JsonElement> entry : patch.entrySet())
+        {
+            String key = entry.getKey();
+            JsonElement value = entry.getValue();
+            if (value.isJsonNull())
+            {
+                target.remove(key);
+            }
+            else if (value.isJsonObject() && (target.get(key) != null) && target.get(key).isJsonObject())
+            {
+                merge(target.getAsJsonObject(key), value.getAsJsonObject());
+            }
+            else
+            {
+                target.add(key, copy(value));
+            }
+        }
+    }
+
+    private static JsonObject parseObject(String json) throws IllegalArgumentException
+    {
+        try
+        {
+            JsonElement element = new JsonParser().parse(json);
+            if (element.isJsonObject())
+            {
+                return element.getAsJsonObject();
+            }
+        }
+        catch (JsonParseException e)
+        {
+            throw new IllegalArgumentException("Invalid json: " + json, e);
+        }
+
+        throw new IllegalArgumentException("Expected a json object: " + json);
+    }
+}
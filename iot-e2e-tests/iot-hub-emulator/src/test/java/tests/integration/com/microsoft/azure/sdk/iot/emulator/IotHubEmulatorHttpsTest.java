@@ -0,0 +1,145 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.integration.com.microsoft.azure.sdk.iot.emulator;
+
+import com.microsoft.azure.sdk.iot.emulator.IotHubEmulator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Sends the HTTPS requests of the devices and the service to the emulator, on any free port.
+ */
+public class IotHubEmulatorHttpsTest
+{
+    private IotHubEmulator emulator;
+    private String deviceId;
+
+    @Before
+    public void startEmulator() throws Exception
+    {
+        this.emulator = new IotHubEmulator();
+        this.emulator.setMqttPort(0);
+        this.emulator.setAmqpPort(0);
+        this.emulator.setHttpsPort(0);
+        this.emulator.start();
+        this.deviceId = "emulator-test-" + UUID.randomUUID();
+    }
+
+    @After
+    public void closeEmulator()
+    {
+        this.emulator.close();
+    }
+
+    @Test
+    public void telemetryIsReceived() throws Exception
+    {
+        //arrange
+        HttpsURLConnection connection = this.open("POST", "/devices/" + this.deviceId + "/messages/events");
+        connection.setRequestProperty("iothub-app-kind", "test");
+
+        //act
+        int status = send(connection, "{\"temperature\":21}");
+
+        //assert
+        assertEquals(204, status);
+        assertEquals(1, this.emulator.getTelemetryCount(this.deviceId));
+    }
+
+    @Test
+    public void droppedTelemetryIsRejected() throws Exception
+    {
+        //arrange
+        this.emulator.getFaultInjector().setDropRate(1);
+
+        //act
+        int status = send(this.open("POST", "/devices/" + this.deviceId + "/messages/events"), "{}");
+
+        //assert
+        assertEquals(503, status);
+        assertEquals(0, this.emulator.getTelemetryCount(this.deviceId));
+        assertEquals(1, this.emulator.getDroppedTelemetryCount());
+    }
+
+    @Test
+    public void unchangedTwinIsNotReturnedAgain() throws Exception
+    {
+        //arrange
+        HttpsURLConnection first = this.open("GET", "/twins/" + this.deviceId);
+        assertEquals(200, first.getResponseCode());
+        String etag = first.getHeaderField("ETag");
+
+        //act
+        HttpsURLConnection second = this.open("GET", "/twins/" + this.deviceId);
+        second.setRequestProperty("If-None-Match", etag);
+
+        //assert
+        assertEquals(304, second.getResponseCode());
+    }
+
+    @Test
+    public void methodOfDisconnectedDeviceIsNotFound() throws Exception
+    {
+        //act
+        int status = send(this.open("POST", "/twins/" + this.deviceId + "/methods"), "{\"methodName\":\"reboot\",\"responseTimeoutInSeconds\":1}");
+
+        //assert
+        assertEquals(404, status);
+    }
+
+    @Test
+    public void cloudToDeviceMessageIsPolledAndCompleted() throws Exception
+    {
+        //arrange
+        assertEquals(204, this.open("GET", "/devices/" + this.deviceId + "/messages/devicebound").getResponseCode());
+        this.emulator.sendCloudToDeviceMessage(this.deviceId, "hello".getBytes(StandardCharsets.UTF_8), Collections.singletonMap("kind", "greeting"));
+
+        //act
+        HttpsURLConnection poll = this.open("GET", "/devices/" + this.deviceId + "/messages/devicebound");
+        assertEquals(200, poll.getResponseCode());
+        String lockToken = poll.getHeaderField("ETag").replace("\"", "");
+        int status = this.open("DELETE", "/devices/" + this.deviceId + "/messages/devicebound/" + lockToken).getResponseCode();
+
+        //assert
+        assertNotNull(poll.getHeaderField("iothub-messageid"));
+        assertEquals("greeting", poll.getHeaderField("iothub-app-kind"));
+        assertEquals(204, status);
+        assertEquals(1, this.emulator.getCompletedCloudToDeviceMessageCount());
+    }
+
+    private HttpsURLConnection open(String method, String path) throws IOException
+    {
+        URL url = new URL("https", this.emulator.getHostName(), this.emulator.getHttpsPort(), path + "?api-version=2019-03-30");
+        HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
+        connection.setSSLSocketFactory(this.emulator.getSslContext().getSocketFactory());
+        connection.setRequestMethod(method);
+        return connection;
+    }
+
+    private static int send(HttpsURLConnection connection, String body) throws IOException
+    {
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream outputStream = connection.getOutputStream())
+        {
+            outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return connection.getResponseCode();
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.integration.com.microsoft.azure.sdk.iot.emulator;
+
+import com.microsoft.azure.sdk.iot.device.DeviceClient;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceMethodData;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.Property;
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.PropertyCallBack;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
+import com.microsoft.azure.sdk.iot.device.IotHubMessageResult;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.emulator.IotHubEmulator;
+import com.microsoft.azure.sdk.iot.emulator.MethodResponse;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the device client against the emulator, over MQTT and AMQP.
+ */
+@RunWith(Parameterized.class)
+public class IotHubEmulatorTest
+{
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final int MESSAGE_COUNT = 10;
+
+    private static IotHubEmulator emulator;
+
+    private final IotHubClientProtocol protocol;
+    private DeviceClient client;
+
+    public IotHubEmulatorTest(IotHubClientProtocol protocol)
+    {
+        this.protocol = protocol;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection inputs()
+    {
+        return Arrays.asList(new Object[][] { { IotHubClientProtocol.MQTT }, { IotHubClientProtocol.AMQPS } });
+    }
+
+    @BeforeClass
+    public static void startEmulator() throws Exception
+    {
+        emulator = new IotHubEmulator();
+        emulator.setHttpsPort(0);
+        emulator.start();
+    }
+
+    @AfterClass
+    public static void closeEmulator()
+    {
+        emulator.close();
+    }
+
+    @After
+    public void closeClient() throws Exception
+    {
+        if (this.client != null)
+        {
+            this.client.closeNow();
+        }
+        emulator.getFaultInjector().reset();
+    }
+
+    @Test
+    public void telemetryIsReceivedAndAcknowledged() throws Exception
+    {
+        //arrange
+        final String deviceId = this.openClient();
+        final Map<String, String> receivedProperties = new ConcurrentHashMap<>();
+        emulator.setTelemetryListener((id, payload, properties) ->
+        {
+            if (id.equals(deviceId))
+            {
+                receivedProperties.putAll(properties);
+            }
+        });
+        final CountDownLatch acknowledged = new CountDownLatch(MESSAGE_COUNT);
+        IotHubEventCallback callback = (status, context) ->
+        {
+            if (status == IotHubStatusCode.OK || status == IotHubStatusCode.OK_EMPTY)
+            {
+                acknowledged.countDown();
+            }
+        };
+
+        //act
+        for (int i = 0; i < MESSAGE_COUNT; i++)
+        {
+            Message message = new Message("telemetry " + i);
+            message.setProperty("index", Integer.toString(i));
+            this.client.sendEventAsync(message, callback, null);
+        }
+
+        //assert
+        assertTrue(acknowledged.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(MESSAGE_COUNT, emulator.getTelemetryCount(deviceId));
+        assertNotNull(receivedProperties.get("index"));
+        emulator.setTelemetryListener(null);
+    }
+
+    @Test
+    public void twinPropertiesAreReportedAndDesired() throws Exception
+    {
+        //arrange
+        String deviceId = this.openClient();
+        final BlockingQueue<Object> desiredValues = new LinkedBlockingQueue<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        this.client.startDeviceTwin((status, context) -> started.countDown(), null,
+                (PropertyCallBack<String, Object>) (key, value, context) ->
+                {
+                    if ("color".equals(key))
+                    {
+                        desiredValues.add(value);
+                    }
+                }, null);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        this.client.subscribeToDesiredProperties(null);
+
+        //act
+        this.client.sendReportedProperties(new HashSet<>(Collections.singleton(new Property("temperature", 21))));
+
+        //assert
+        // the patches are only sent once the subscription of the device reached the emulator
+        Object desiredValue = null;
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while ((desiredValue == null) && (System.currentTimeMillis() < deadline))
+        {
+            emulator.updateDesiredProperties(deviceId, "{\"color\":\"blue\"}");
+            desiredValue = desiredValues.poll(500, TimeUnit.MILLISECONDS);
+        }
+        assertEquals("blue", desiredValue);
+        while (!emulator.getTwin(deviceId).contains("temperature") && (System.currentTimeMillis() < deadline))
+        {
+            Thread.sleep(100);
+        }
+        assertThat(emulator.getTwin(deviceId), containsString("\"temperature\":21"));
+    }
+
+    @Test
+    public void methodIsInvoked() throws Exception
+    {
+        //arrange
+        String deviceId = this.openClient();
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        this.client.subscribeToDeviceMethod(
+                (methodName, methodData, context) -> new DeviceMethodData(200, "{\"method\":\"" + methodName + "\"}"), null,
+                (status, context) -> subscribed.countDown(), null);
+        assertTrue(subscribed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        waitForMethodSubscription(deviceId);
+
+        //act
+        MethodResponse response = emulator.invokeMethod(deviceId, "reboot", "{\"delay\":1}", TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+        //assert
+        assertEquals(200, response.getStatus());
+        assertThat(response.getPayload(), containsString("reboot"));
+    }
+
+    @Test
+    public void methodOfDisconnectedDeviceIsNotOnline() throws Exception
+    {
+        //act
+        MethodResponse response = emulator.invokeMethod("emulator-test-" + UUID.randomUUID(), "reboot", null, 1000);
+
+        //assert
+        assertEquals(MethodResponse.STATUS_DEVICE_NOT_ONLINE, response.getStatus());
+    }
+
+    @Test
+    public void cloudToDeviceMessageIsReceivedAndCompleted() throws Exception
+    {
+        //arrange
+        final BlockingQueue<Message> messages = new LinkedBlockingQueue<>();
+        String deviceId = "emulator-test-" + UUID.randomUUID();
+        this.client = new DeviceClient(emulator.createDeviceConnectionString(deviceId), this.protocol);
+        this.client.setOption("SetCertificateAuthority", emulator.getTrustedCertificate());
+        this.client.setMessageCallback((message, context) ->
+        {
+            messages.add(message);
+            return IotHubMessageResult.COMPLETE;
+        }, null);
+        this.client.open();
+        long completedBefore = emulator.getCompletedCloudToDeviceMessageCount();
+
+        //act
+        assertTrue(emulator.sendCloudToDeviceMessage(deviceId, "hello".getBytes(StandardCharsets.UTF_8), Collections.singletonMap("kind", "greeting")));
+
+        //assert
+        Message message = messages.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(message);
+        assertEquals("hello", new String(message.getBytes(), StandardCharsets.UTF_8));
+        assertEquals("greeting", message.getProperty("kind"));
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while ((emulator.getCompletedCloudToDeviceMessageCount() == completedBefore) && (System.currentTimeMillis() < deadline))
+        {
+            Thread.sleep(100);
+        }
+        assertEquals(completedBefore + 1, emulator.getCompletedCloudToDeviceMessageCount());
+    }
+
+    @Test
+    public void clientReconnectsAfterDisconnection() throws Exception
+    {
+        //arrange
+        String deviceId = this.openClient();
+
+        //act
+        assertTrue(emulator.getFaultInjector().disconnectDevice(deviceId));
+
+        //assert
+        final CountDownLatch acknowledged = new CountDownLatch(1);
+        this.client.sendEventAsync(new Message("after reconnection"), (status, context) -> acknowledged.countDown(), null);
+        assertTrue(acknowledged.await(TIMEOUT_SECONDS * 2, TimeUnit.SECONDS));
+        assertTrue(emulator.isConnected(deviceId));
+        // a message in flight when the connection dropped is sent again, as its acknowledgement was lost
+        assertTrue(emulator.getTelemetryCount(deviceId) >= 1);
+    }
+
+    @Test
+    public void latencyDelaysAcknowledgement() throws Exception
+    {
+        //arrange
+        this.openClient();
+        final long latencyMillis = 500;
+        emulator.getFaultInjector().setLatency(latencyMillis);
+        final CountDownLatch acknowledged = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        //act
+        this.client.sendEventAsync(new Message("delayed"), (status, context) -> acknowledged.countDown(), null);
+
+        //assert
+        assertTrue(acknowledged.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= latencyMillis);
+    }
+
+    private String openClient() throws Exception
+    {
+        String deviceId = "emulator-test-" + UUID.randomUUID();
+        this.client = new DeviceClient(emulator.createDeviceConnectionString(deviceId), this.protocol);
+        this.client.setOption("SetCertificateAuthority", emulator.getTrustedCertificate());
+        this.client.open();
+        return deviceId;
+    }
+
+    private static void waitForMethodSubscription(String deviceId) throws Exception
+    {
+        // the subscription callback may run before the emulator registers the subscription
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (System.currentTimeMillis() < deadline)
+        {
+            if (emulator.invokeMethodAsync(deviceId, "ping", null, 1000).get().getStatus() != MethodResponse.STATUS_DEVICE_NOT_ONLINE)
+            {
+                return;
+            }
+            Thread.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package com.microsoft.azure.sdk.iot.provisioning.device;
+
+import com.microsoft.azure.sdk.iot.provisioning.device.internal.ProvisioningDeviceClientConfig;
+import com.microsoft.azure.sdk.iot.provisioning.device.internal.contract.http.ContractAPIHttp;
+import com.microsoft.azure.sdk.iot.provisioning.device.internal.exceptions.ProvisioningDeviceClientException;
+import com.microsoft.azure.sdk.iot.provisioning.device.internal.task.ProvisioningTask;
+import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
+import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderSymmetricKey;
+import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderTpm;
+import com.microsoft.azure.sdk.iot.provisioning.security.exceptions.SecurityProviderException;
+
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.microsoft.azure.sdk.iot.provisioning.device.ProvisioningDeviceClientStatus.PROVISIONING_DEVICE_STATUS_ERROR;
+
+/**
+ * Registers many devices with the service over HTTPS. Up to {@code maxParallelRegistrations} registrations run at a
+ * time and new registrations are started at no more than {@code maxRegistrationsPerSecond}, so a large batch stays
+ * within the registration quota of the service instead of being throttled by it. The result of each registration is
+ * handed to the registration callback as soon as that registration completes.
+ *
+ * <p>The registrations of symmetric key and TPM devices whose security provider builds the SDK's SSLContext, which
+ * only trusts the default certificates, share one such SSLContext. Their requests therefore reuse the connections
+ * kept alive by the previous requests instead of opening a new TLS connection for each of them. Java keeps up to
+ * {@code http.maxConnections} idle connections per host, 5 by default, which should be raised to the number of
+ * parallel registrations. Devices authenticating with x509 certificates present their certificate during the TLS
+ * handshake, and security providers building their own SSLContext may trust other certificates, so each of those
+ * devices uses the SSLContext of its own security provider.</p>
+ */
+public final class ProvisioningBatchClient implements Closeable
+{
+    private final String globalEndpoint;
+    private final String idScope;
+    private final ExecutorService executor;
+    private final RegistrationRateLimiter rateLimiter;
+
+    private final Object sharedSslContextLock = new Object();
+    private SSLContext sharedSslContext = null;
+
+    private final Object pendingRegistrationsLock = new Object();
+    private int pendingRegistrations = 0;
+
+    /**
+     * Creates an instance of ProvisioningBatchClient
+     * @param globalEndpoint global endpoint for the service to connect to. Cannot be {@code null} or empty.
+     * @param idScope IdScope for the instance of the service hosted by you. Cannot be {@code null} or empty.
+     * @param maxParallelRegistrations the number of registrations running at a time. Must be positive.
+     * @param maxRegistrationsPerSecond the number of registrations started per second, or 0 to start them as soon
+     *                                  as a thread is available. Cannot be negative.
+     * @return An instance of ProvisioningBatchClient
+     * @throws IllegalArgumentException if any of the parameters is invalid
+     */
+    public static ProvisioningBatchClient create(String globalEndpoint, String idScope, int maxParallelRegistrations, double maxRegistrationsPerSecond)
+    {
+        return new ProvisioningBatchClient(globalEndpoint, idScope, maxParallelRegistrations, maxRegistrationsPerSecond);
+    }
+
+    private ProvisioningBatchClient(String globalEndpoint, String idScope, int maxParallelRegistrations, double maxRegistrationsPerSecond)
+    {
+        if (globalEndpoint == null || globalEndpoint.isEmpty())
+        {
+            throw new IllegalArgumentException("global endpoint cannot be null or empty");
+        }
+
+        if (idScope == null || idScope.isEmpty())
+        {
+            throw new IllegalArgumentException("scope id cannot be null or empty");
+        }
+
+        if (maxParallelRegistrations <= 0)
+        {
+            throw new IllegalArgumentException("maxParallelRegistrations must be positive");
+        }
+
+        if (maxRegistrationsPerSecond < 0 || Double.isNaN(maxRegistrationsPerSecond))
+        {
+            throw new IllegalArgumentException("maxRegistrationsPerSecond cannot be negative");
+        }
+
+        this.globalEndpoint = globalEndpoint;
+        this.idScope = idScope;
+        this.executor = Executors.newFixedThreadPool(maxParallelRegistrations);
+        this.rateLimiter = new RegistrationRateLimiter(maxRegistrationsPerSecond);
+    }
+
+    /**
+     * Queue the registration of a device. The callback is invoked on a thread of the client once the registration
+     * completes, successfully or not.
+     * @param securityProvider Security Provider of the device. Cannot be {@code null}.
+     * @param provisioningDeviceClientRegistrationCallback Callback receiving the result of the registration. Cannot be {@code null}.
+     * @param context Context for the callback. Can be {@code null}.
+     * @throws IllegalArgumentException if the security provider or the callback is null
+     * @throws IllegalStateException if the client has been closed
+     */
+    public void registerDevice(SecurityProvider securityProvider, ProvisioningDeviceClientRegistrationCallback provisioningDeviceClientRegistrationCallback, Object context)
+    {
+        if (securityProvider == null)
+        {
+            throw new IllegalArgumentException("Security provider cannot be null");
+        }
+
+        if (provisioningDeviceClientRegistrationCallback == null)
+        {
+            throw new IllegalArgumentException("registration callback cannot be null");
+        }
+
+        synchronized (this.pendingRegistrationsLock)
+        {
+            this.pendingRegistrations++;
+        }
+
+        try
+        {
+            this.executor.execute(new Registration(securityProvider, provisioningDeviceClientRegistrationCallback, context));
+        }
+        catch (RejectedExecutionException e)
+        {
+            this.registrationCompleted();
+            throw new IllegalStateException("The client has been closed", e);
+        }
+    }
+
+    /**
+     * Queue the registration of each of the devices. The security provider of a device is the context of the
+     * callback receiving its result.
+     * @param securityProviders Security Providers of the devices. Cannot be {@code null} or contain {@code null}.
+     * @param provisioningDeviceClientRegistrationCallback Callback receiving the result of each registration. Cannot be {@code null}.
+     * @throws IllegalArgumentException if the security providers or the callback is null
+     * @throws IllegalStateException if the client has been closed
+     */
+    public void registerDevices(Iterable<? extends SecurityProvider> securityProviders, ProvisioningDeviceClientRegistrationCallback provisioningDeviceClientRegistrationCallback)
+    {
+        if (securityProviders == null)
+        {
+            throw new IllegalArgumentException("Security providers cannot be null");
+        }
+
+        for (SecurityProvider securityProvider : securityProviders)
+        {
+            this.registerDevice(securityProvider, provisioningDeviceClientRegistrationCallback, securityProvider);
+        }
+    }
+
+    /**
+     * @return the number of queued or running registrations
+     */
+    public int getPendingRegistrationCount()
+    {
+        synchronized (this.pendingRegistrationsLock)
+        {
+            return this.pendingRegistrations;
+        }
+    }
+
+    /**
+     * Wait for all the queued and running registrations to complete.
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return {@code true} if all the registrations completed, {@code false} if the timeout elapsed first
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this.pendingRegistrationsLock)
+        {
+            while (this.pendingRegistrations > 0)
+            {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0)
+                {
+                    return false;
+                }
+
+                TimeUnit.NANOSECONDS.timedWait(this.pendingRegistrationsLock, remainingNanos);
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Stop the client. Registrations that have not started yet are dropped without invoking their callback and
+     * running registrations are interrupted.
+     */
+    @Override
+    public void close()
+    {
+        this.executor.shutdownNow();
+    }
+
+    private void registrationCompleted()
+    {
+        synchronized (this.pendingRegistrationsLock)
+        {
+            this.pendingRegistrations--;
+            this.pendingRegistrationsLock.notifyAll();
+        }
+    }
+
+    private SSLContext getSharedSslContext(SecurityProvider securityProvider) throws SecurityProviderException
+    {
+        synchronized (this.sharedSslContextLock)
+        {
+            if (this.sharedSslContext == null)
+            {
+                this.sharedSslContext = securityProvider.getSSLContext();
+            }
+
+            return this.sharedSslContext;
+        }
+    }
+
+    private static boolean usesDefaultSslContext(SecurityProvider securityProvider)
+    {
+        try
+        {
+            // these build their SSLContext from the default trusted certificates only, an override may trust others
+            Class<?> sslContextClass = securityProvider.getClass().getMethod("getSSLContext").getDeclaringClass();
+            return sslContextClass == SecurityProviderSymmetricKey.class || sslContextClass == SecurityProviderTpm.class;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    private final class Registration implements Runnable
+    {
+        private final SecurityProvider securityProvider;
+        private final ProvisioningDeviceClientRegistrationCallback registrationCallback;
+        private final Object context;
+
+        private Registration(SecurityProvider securityProvider, ProvisioningDeviceClientRegistrationCallback registrationCallback, Object context)
+        {
+            this.securityProvider = securityProvider;
+            this.registrationCallback = registrationCallback;
+            this.context = context;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                rateLimiter.acquire();
+
+                ProvisioningDeviceClientConfig config = new ProvisioningDeviceClientConfig();
+                config.setProvisioningServiceGlobalEndpoint(globalEndpoint);
+                config.setIdScope(idScope);
+                config.setProtocol(ProvisioningDeviceClientTransportProtocol.HTTPS);
+                config.setSecurityProvider(this.securityProvider);
+                config.setRegistrationCallback(this.registrationCallback, this.context);
+
+                ContractAPIHttp contract = new ContractAPIHttp(config);
+                if (usesDefaultSslContext(this.securityProvider))
+                {
+                    contract.setSharedSSLContext(getSharedSslContext(this.securityProvider));
+                }
+
+                // the task reports its own failures to the callback
+                new ProvisioningTask(config, contract).call();
+            }
+            catch (InterruptedException e)
+            {
+                // the client is closing
+                Thread.currentThread().interrupt();
+            }
+            catch (Exception e)
+            {
+                ProvisioningDeviceClientRegistrationResult registrationResult = new ProvisioningDeviceClientRegistrationResult();
+                registrationResult.provisioningDeviceClientStatus = PROVISIONING_DEVICE_STATUS_ERROR;
+                this.registrationCallback.run(registrationResult, e, this.context);
+            }
+            finally
+            {
+                registrationCompleted();
+            }
+        }
+    }
+
+    /**
+     * Spaces the start of registrations evenly, each registration reserving the next free slot.
+     */
+    private static final class RegistrationRateLimiter
+    {
+        private final long intervalNanos;
+        private long nextSlotNanos;
+
+        private RegistrationRateLimiter(double permitsPerSecond)
+        {
+            this.intervalNanos = permitsPerSecond == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+            this.nextSlotNanos = System.nanoTime();
+        }
+
+        private void acquire() throws InterruptedException
+        {
+            if (this.intervalNanos == 0)
+            {
+                return;
+            }
+
+            long slotNanos;
+            synchronized (this)
+            {
+                slotNanos = Math.max(System.nanoTime(), this.nextSlotNanos);
+                this.nextSlotNanos = slotNanos + this.intervalNanos;
+            }
+
+            long waitNanos = slotNanos - System.nanoTime();
+            if (waitNanos > 0)
+            {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
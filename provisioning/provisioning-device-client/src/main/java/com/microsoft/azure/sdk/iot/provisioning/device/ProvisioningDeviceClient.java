@@ -24,6 +24,7 @@ public class ProvisioningDeviceClient
     private ProvisioningDeviceClientConfig provisioningDeviceClientConfig;
     private ProvisioningDeviceClientContract provisioningDeviceClientContract;
     private ExecutorService executor;
+    private boolean isSharedExecutor;
 
     /**
      * Creates an instance of ProvisioningDeviceClient
@@ -36,10 +37,32 @@ public class ProvisioningDeviceClient
      */
     public static ProvisioningDeviceClient create(String globalEndpoint, String idScope, ProvisioningDeviceClientTransportProtocol protocol, SecurityProvider securityProvider) throws ProvisioningDeviceClientException
     {
-        return new ProvisioningDeviceClient(globalEndpoint, idScope, protocol, securityProvider);
+        return new ProvisioningDeviceClient(globalEndpoint, idScope, protocol, securityProvider, null);
     }
 
-    private ProvisioningDeviceClient(String globalEndpoint, String idScope, ProvisioningDeviceClientTransportProtocol protocol, SecurityProvider securityProvider) throws ProvisioningDeviceClientException
+    /**
+     * Creates an instance of ProvisioningDeviceClient that runs its registrations on the provided executor. A
+     * registration occupies one thread of the executor until it completes, so clients sharing an executor with n
+     * threads run up to n registrations at a time. The executor is not shut down by {@link #closeNow()}.
+     * @param globalEndpoint global endpoint for the service to connect to. Cannot be {@code null}.
+     * @param idScope IdScope for the instance of the service hosted by you. Cannot be {@code null}.
+     * @param protocol Protocol to communicate with the service onto. Cannot be {@code null}.
+     * @param securityProvider Security Provider for X509 or TPM flow. Cannot be {@code null}.
+     * @param executor Executor shared by the clients registering devices. Cannot be {@code null}.
+     * @return An instance of ProvisioningDeviceClient
+     * @throws ProvisioningDeviceClientException if any of the underlying API calls fail to process.
+     */
+    public static ProvisioningDeviceClient create(String globalEndpoint, String idScope, ProvisioningDeviceClientTransportProtocol protocol, SecurityProvider securityProvider, ExecutorService executor) throws ProvisioningDeviceClientException
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+
+        return new ProvisioningDeviceClient(globalEndpoint, idScope, protocol, securityProvider, executor);
+    }
+
+    private ProvisioningDeviceClient(String globalEndpoint, String idScope, ProvisioningDeviceClientTransportProtocol protocol, SecurityProvider securityProvider, ExecutorService executor) throws ProvisioningDeviceClientException
     {
         if (globalEndpoint == null || globalEndpoint.isEmpty())
         {
@@ -75,8 +98,16 @@ public class ProvisioningDeviceClient
 
         //SRS_ProvisioningDeviceClient_25_006: [ The constructor shall create provisioningDeviceClientContract with the given config. ]
         this.provisioningDeviceClientContract = ProvisioningDeviceClientContract.createProvisioningContract(this.provisioningDeviceClientConfig);
-        //SRS_ProvisioningDeviceClient_25_007: [ The constructor shall create an executor service with fixed thread pool of size 1. ]
-        this.executor = Executors.newFixedThreadPool(MAX_THREADS_TO_RUN);
+        if (executor != null)
+        {
+            this.executor = executor;
+            this.isSharedExecutor = true;
+        }
+        else
+        {
+            //SRS_ProvisioningDeviceClient_25_007: [ The constructor shall create an executor service with fixed thread pool of size 1. ]
+            this.executor = Executors.newFixedThreadPool(MAX_THREADS_TO_RUN);
+        }
     }
 
     /**
@@ -128,12 +159,14 @@ public class ProvisioningDeviceClient
     }
 
     /**
-     * Closes all the executors opened by the client if they have not already closed.
+     * Closes all the executors opened by the client if they have not already closed. An executor provided to
+     * {@link #create(String, String, ProvisioningDeviceClientTransportProtocol, SecurityProvider, ExecutorService)}
+     * is left running.
      */
     public void closeNow()
     {
         //SRS_ProvisioningDeviceClient_25_011: [ This method shall check if executor is terminated and if not shall shutdown the executor. ]
-        if (executor != null && !executor.isTerminated())
+        if (executor != null && !isSharedExecutor && !executor.isTerminated())
         {
             executor.shutdownNow();
         }
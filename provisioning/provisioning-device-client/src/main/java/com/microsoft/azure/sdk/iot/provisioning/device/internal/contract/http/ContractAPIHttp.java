@@ -24,6 +24,7 @@ import com.microsoft.azure.sdk.iot.provisioning.device.internal.task.ContractSta
 import com.microsoft.azure.sdk.iot.provisioning.device.internal.task.RequestData;
 import com.microsoft.azure.sdk.iot.provisioning.device.internal.task.ResponseData;
 
+import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
@@ -33,6 +34,7 @@ public class ContractAPIHttp extends ProvisioningDeviceClientContract
 {
     private String idScope;
     private String hostName;
+    private SSLContext sharedSslContext = null;
 
     /*
      *  Values for Http header
@@ -82,6 +84,23 @@ public class ContractAPIHttp extends ProvisioningDeviceClientContract
         this.hostName = hostName;
     }
 
+    /**
+     * Use the provided SSLContext for every request of this contract instead of the context of the request data.
+     * Requests sent with the same context reuse the kept alive connections of each other, so contracts registering
+     * many devices that authenticate with a sas token can share one context. Devices authenticating with x509
+     * certificates present their certificate during the TLS handshake and must keep using their own context.
+     * @param sslContext the context to use for every request, or {@code null} to use the context of the request data
+     */
+    public void setSharedSSLContext(SSLContext sslContext)
+    {
+        this.sharedSslContext = sslContext;
+    }
+
+    private SSLContext getSSLContext(RequestData requestData)
+    {
+        return this.sharedSslContext != null ? this.sharedSslContext : requestData.getSslContext();
+    }
+
     private HttpRequest prepareRequest(
             URL url,
             HttpMethod method,
@@ -198,7 +217,7 @@ public class ContractAPIHttp extends ProvisioningDeviceClientContract
             //SRS_ContractAPIHttp_25_005: [This method shall prepare the PUT request by setting following headers on a HttpRequest 1. User-Agent : User Agent String for the SDK 2. Accept : "application/json" 3. Content-Type: "application/json; charset=utf-8".]
             HttpRequest httpRequest = this.prepareRequest(new URL(url), HttpMethod.PUT, payload, DEFAULT_HTTP_TIMEOUT_MS, null, SDKUtils.PROVISIONING_DEVICE_CLIENT_IDENTIFIER + SDKUtils.PROVISIONING_DEVICE_CLIENT_VERSION);
             //SRS_ContractAPIHttp_25_006: [This method shall set the SSLContext for the Http Request.]
-            httpRequest.setSSLContext(requestData.getSslContext());
+            httpRequest.setSSLContext(this.getSSLContext(requestData));
             HttpResponse httpResponse = null;
             try
             {
@@ -285,7 +304,7 @@ public class ContractAPIHttp extends ProvisioningDeviceClientContract
             //SRS_ContractAPIHttp_25_013: [This method shall prepare the PUT request by setting following headers on a HttpRequest 1. User-Agent : User Agent String for the SDK 2. Accept : "application/json" 3. Content-Type: "application/json; charset=utf-8" 4. Authorization: specified sas token as authorization if a non null value is given.]
             HttpRequest httpRequest = this.prepareRequest(new URL(url), HttpMethod.PUT, payload, DEFAULT_HTTP_TIMEOUT_MS, headersMap, SDKUtils.PROVISIONING_DEVICE_CLIENT_IDENTIFIER + SDKUtils.PROVISIONING_DEVICE_CLIENT_VERSION);
             //SRS_ContractAPIHttp_25_014: [This method shall set the SSLContext for the Http Request.]
-            httpRequest.setSSLContext(requestData.getSslContext());
+            httpRequest.setSSLContext(this.getSSLContext(requestData));
             //SRS_ContractAPIHttp_25_015: [This method shall send http request and verify the status by calling 'ProvisioningDeviceClientExceptionManager.verifyHttpResponse'.]
             //SRS_ContractAPIHttp_25_017: [If service return any other status other than <300 then this method shall throw ProvisioningDeviceHubException.]
             HttpResponse httpResponse = this.sendRequest(httpRequest);
@@ -347,7 +366,7 @@ public class ContractAPIHttp extends ProvisioningDeviceClientContract
             //SRS_ContractAPIHttp_25_020: [This method shall prepare the GET request by setting following headers on a HttpRequest 1. User-Agent : User Agent String for the SDK 2. Accept : "application/json" 3. Content-Type: "application/json; charset=utf-8" 4. Authorization: specified sas token as authorization if a non null value is given.]
             HttpRequest httpRequest = this.prepareRequest(new URL(url), HttpMethod.GET, new byte[0], DEFAULT_HTTP_TIMEOUT_MS, headersMap, SDKUtils.PROVISIONING_DEVICE_CLIENT_IDENTIFIER + SDKUtils.PROVISIONING_DEVICE_CLIENT_VERSION);
             //SRS_ContractAPIHttp_25_021: [This method shall set the SSLContext for the Http Request.]
-            httpRequest.setSSLContext(requestData.getSslContext());
+            httpRequest.setSSLContext(this.getSSLContext(requestData));
             //SRS_ContractAPIHttp_25_022: [This method shall send http request and verify the status by calling 'ProvisioningDeviceClientExceptionManager.verifyHttpResponse'.]
             //SRS_ContractAPIHttp_25_024: [If service return any other status other than < 300 then this method shall throw ProvisioningDeviceHubException.]
             HttpResponse httpResponse = this.sendRequest(httpRequest);
@@ -23,15 +23,12 @@ import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderTpm;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderX509;
 import com.microsoft.azure.sdk.iot.provisioning.security.exceptions.SecurityProviderException;
 
-import java.util.concurrent.*;
+import java.util.concurrent.Callable;
 
 import static com.microsoft.azure.sdk.iot.provisioning.device.ProvisioningDeviceClientStatus.*;
 
 public class ProvisioningTask implements Callable
 {
-    private static final int MAX_THREADS_TO_RUN = 2;
-    private static final int MAX_TIME_TO_WAIT_FOR_REGISTRATION = 1000000;
-    private static final int MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE = 10000;
     private static final int DEFAULT_DELAY_BETWEEN_STATUS_CHECKS = 2 * 1000; //2 seconds
     private static final String THREAD_NAME = "azure-iot-sdk-ProvisioningTask";
 
@@ -45,8 +42,6 @@ public class ProvisioningTask implements Callable
     private Authorization authorization = null;
     private ProvisioningDeviceClientStatus dpsStatus = null;
 
-    private ExecutorService executor;
-
     /**
      * Constructor for creating a provisioning task
      * @param provisioningDeviceClientConfig Config that contains details pertaining to Service
@@ -87,8 +82,6 @@ public class ProvisioningTask implements Callable
         }
 
         this.authorization = new Authorization();
-        //SRS_ProvisioningTask_25_015: [ Constructor shall start the executor with a fixed thread pool of size 2.]
-        this.executor = Executors.newFixedThreadPool(MAX_THREADS_TO_RUN);
     }
 
     private void invokeRegistrationCallback(RegistrationResult registrationInfo, Exception e) throws ProvisioningDeviceClientException
@@ -103,15 +96,13 @@ public class ProvisioningTask implements Callable
         }
     }
 
-    private RegistrationOperationStatusParser invokeRegister() throws InterruptedException, ExecutionException, TimeoutException,
-                                                                      ProvisioningDeviceClientException
+    private RegistrationOperationStatusParser invokeRegister() throws ProvisioningDeviceClientException, SecurityProviderException
     {
+        // The register task only waits for the response callback of the contract, run it on this thread rather than
+        // on a thread of its own
         RegisterTask registerTask = new RegisterTask(this.provisioningDeviceClientConfig, securityProvider,
                                                      provisioningDeviceClientContract, authorization);
-        FutureTask<RegistrationOperationStatusParser> futureRegisterTask = new FutureTask<RegistrationOperationStatusParser>(registerTask);
-        executor.submit(futureRegisterTask);
-        RegistrationOperationStatusParser registrationOperationStatusParser =  futureRegisterTask.get(MAX_TIME_TO_WAIT_FOR_REGISTRATION,
-                                                                                                      TimeUnit.MILLISECONDS);
+        RegistrationOperationStatusParser registrationOperationStatusParser = registerTask.call();
        if (registrationOperationStatusParser == null)
         {
             this.dpsStatus = PROVISIONING_DEVICE_STATUS_ERROR;
@@ -136,15 +127,13 @@ public class ProvisioningTask implements Callable
         return registrationOperationStatusParser;
     }
 
-    private RegistrationOperationStatusParser invokeStatus(String operationId) throws TimeoutException, InterruptedException, ExecutionException,
-                                                                                      ProvisioningDeviceClientException
+    private RegistrationOperationStatusParser invokeStatus(String operationId) throws InterruptedException, ProvisioningDeviceClientException
     {
+        // The service does not push operation status, it is polled after the retry interval the service asked for
         Thread.sleep(provisioningDeviceClientContract.getRetryValue());
         StatusTask statusTask = new StatusTask(securityProvider, provisioningDeviceClientContract, operationId,
                                                this.authorization);
-        FutureTask<RegistrationOperationStatusParser> futureStatusTask = new FutureTask<RegistrationOperationStatusParser>(statusTask);
-        executor.submit(futureStatusTask);
-        RegistrationOperationStatusParser statusRegistrationOperationStatusParser =  futureStatusTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+        RegistrationOperationStatusParser statusRegistrationOperationStatusParser = statusTask.call();
 
         if (statusRegistrationOperationStatusParser == null)
         {
@@ -169,7 +158,7 @@ public class ProvisioningTask implements Callable
     }
 
     private void executeStateMachineForStatus(RegistrationOperationStatusParser registrationOperationStatusParser)
-            throws TimeoutException, InterruptedException, ExecutionException, ProvisioningDeviceClientException, SecurityProviderException
+            throws InterruptedException, ProvisioningDeviceClientException, SecurityProviderException
 
     {
         boolean isContinue = false;
@@ -289,7 +278,7 @@ public class ProvisioningTask implements Callable
             this.executeStateMachineForStatus(registrationOperationStatusParser);
             this.close();
         }
-        catch (ExecutionException | TimeoutException | ProvisioningDeviceClientException | SecurityProviderException e)
+        catch (ProvisioningDeviceClientException | SecurityProviderException e)
         {
             //SRS_ProvisioningTask_25_006: [ This method shall invoke the status callback, if any of the task fail or throw any exception. ]
             this.dpsStatus = PROVISIONING_DEVICE_STATUS_ERROR;
@@ -301,15 +290,10 @@ public class ProvisioningTask implements Callable
     }
 
     /**
-     * This method shall shutdown the existing threads if not already done so.
+     * This method shall close the connection to the service.
      */
     private void close() throws ProvisioningDeviceConnectionException
     {
         provisioningDeviceClientContract.close();
-        //SRS_ProvisioningTask_25_014: [ This method shall shutdown the executors if they have not already shutdown. ]
-        if (executor != null && !executor.isShutdown())
-        {
-            executor.shutdownNow();
-        }
     }
 }
@@ -35,10 +35,8 @@ import static com.microsoft.azure.sdk.iot.provisioning.device.internal.task.Cont
 public class RegisterTask implements Callable
 {
     private static int MAX_WAIT_FOR_REGISTRATION_RESPONSE = 90*1000; // 90 seconds
-    private static final int SLEEP_INTERVAL_WHEN_WAITING_FOR_RESPONSE = 4*1000; //4 seconds
     private static final int DEFAULT_EXPIRY_TIME_IN_SECS = 3600; // 1 Hour
     private static final String SASTOKEN_FORMAT = "SharedAccessSignature sr=%s&sig=%s&se=%s&skn=";
-    private static final String THREAD_NAME = "azure-iot-sdk-RegisterTask";
     private ResponseCallback responseCallback = null;
     private ProvisioningDeviceClientContract provisioningDeviceClientContract = null;
     private Authorization authorization = null;
@@ -56,6 +54,7 @@ public class RegisterTask implements Callable
                 data.setResponseData(responseData.getResponseData());
                 data.setContractState(responseData.getContractState());
                 data.setWaitForStatusInMS(responseData.getWaitForStatusInMS());
+                data.complete();
             }
             else
             {
@@ -322,29 +321,23 @@ public class RegisterTask implements Callable
     /**
      * Callable call by the thread which handles Authentication and registration of a given device with the service
      * @return RegistrationOperationStatusParser holding the state of the service post registration
-     * @throws Exception if registration fails.
+     * @throws ProvisioningDeviceClientException if registration fails.
+     * @throws SecurityProviderException if the security provider fails.
      */
     @Override
-    public RegistrationOperationStatusParser call() throws Exception
+    public RegistrationOperationStatusParser call() throws ProvisioningDeviceClientException, SecurityProviderException
     {
-        Thread.currentThread().setName(THREAD_NAME);
         return this.authenticateWithDPS();
     }
 
     /**
-     * Busy waits for the provided responseData to be populated or for a timeout to occur
-     * @param responseData the responseData object to periodically check for response data
-     * @throws InterruptedException if an interrupted exception is thrown while this thread sleeps
+     * Waits for the response callback to populate the provided responseData or for a timeout to occur. The caller
+     * checks the contract state of the response data to find out which of the two happened.
+     * @param responseData the responseData object the response callback populates
+     * @throws InterruptedException if this thread is interrupted while waiting
      */
     private void waitForResponse(ResponseData responseData) throws InterruptedException
     {
-        long millisecondsElapsed = 0;
-        long waitTimeStart = System.currentTimeMillis();
-        while (responseData.getContractState() != DPS_REGISTRATION_RECEIVED
-                && millisecondsElapsed < MAX_WAIT_FOR_REGISTRATION_RESPONSE)
-        {
-            Thread.sleep(SLEEP_INTERVAL_WHEN_WAITING_FOR_RESPONSE);
-            millisecondsElapsed = System.currentTimeMillis() - waitTimeStart;
-        }
+        responseData.waitForResponse(MAX_WAIT_FOR_REGISTRATION_RESPONSE);
     }
 }
@@ -7,11 +7,17 @@
 
 package com.microsoft.azure.sdk.iot.provisioning.device.internal.task;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 public class ResponseData
 {
     private byte[] responseData;
     private ContractState contractState;
     private long waitForStatusInMS;
+    private final CompletableFuture<Void> responseReceived = new CompletableFuture<>();
 
     /**
      * Constructor to create null data and Unknown contract state
@@ -94,4 +100,37 @@ public class ResponseData
     {
         this.waitForStatusInMS = waitForStatusInMS;
     }
+
+    /**
+     * Marks the response as received, releasing any thread waiting for it. Called by the response callback once it
+     * has copied the response into this object.
+     */
+    void complete()
+    {
+        this.responseReceived.complete(null);
+    }
+
+    /**
+     * Waits for the response callback to complete this object
+     * @param timeoutInMilliseconds Maximum time to wait for the response
+     * @return {@code true} if the response was received in time
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    boolean waitForResponse(long timeoutInMilliseconds) throws InterruptedException
+    {
+        try
+        {
+            this.responseReceived.get(timeoutInMilliseconds, TimeUnit.MILLISECONDS);
+            return true;
+        }
+        catch (TimeoutException e)
+        {
+            return false;
+        }
+        catch (ExecutionException e)
+        {
+            // never completed exceptionally
+            return false;
+        }
+    }
 }
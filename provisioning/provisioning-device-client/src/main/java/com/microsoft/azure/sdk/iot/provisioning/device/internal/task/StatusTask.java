@@ -22,7 +22,6 @@ import java.util.concurrent.Callable;
 public class StatusTask implements Callable
 {
     private static final int MAX_WAIT_FOR_STATUS_RESPONSE = 100;
-    private static final String THREAD_NAME = "azure-iot-sdk-StatusTask";
     private ProvisioningDeviceClientContract provisioningDeviceClientContract;
     private SecurityProvider securityProvider;
     private String operationId;
@@ -39,6 +38,7 @@ public class StatusTask implements Callable
                 data.setResponseData(responseData.getResponseData());
                 data.setContractState(responseData.getContractState());
                 data.setWaitForStatusInMS(responseData.getWaitForStatusInMS());
+                data.complete();
             }
             else
             {
@@ -110,7 +110,7 @@ public class StatusTask implements Callable
             provisioningDeviceClientContract.getRegistrationStatus(requestData, new ResponseCallbackImpl(), responseData);
             if (responseData.getResponseData() == null || responseData.getContractState() != ContractState.DPS_REGISTRATION_RECEIVED)
             {
-                Thread.sleep(MAX_WAIT_FOR_STATUS_RESPONSE);
+                responseData.waitForResponse(MAX_WAIT_FOR_STATUS_RESPONSE);
             }
             if (responseData.getResponseData() != null && responseData.getContractState() == ContractState.DPS_REGISTRATION_RECEIVED)
             {
@@ -143,12 +143,11 @@ public class StatusTask implements Callable
      * Implementation of callable for this task. This task queries for status
      * with the service
      * @return RegistrationOperationStatusParser object holding the information received from service
-     * @throws Exception If any of the underlying calls fail
+     * @throws ProvisioningDeviceClientException If any of the underlying calls fail
      */
     @Override
-    public RegistrationOperationStatusParser call() throws Exception
+    public RegistrationOperationStatusParser call() throws ProvisioningDeviceClientException
     {
-        Thread.currentThread().setName(THREAD_NAME);
         return this.getRegistrationStatus(this.operationId, this.authorization);
     }
 }
@@ -0,0 +1,253 @@
+/*
+ *
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ *
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.provisioning.device;
+
+import com.microsoft.azure.sdk.iot.provisioning.device.ProvisioningBatchClient;
+import com.microsoft.azure.sdk.iot.provisioning.device.ProvisioningDeviceClientRegistrationCallback;
+import com.microsoft.azure.sdk.iot.provisioning.device.ProvisioningDeviceClientRegistrationResult;
+import com.microsoft.azure.sdk.iot.provisioning.device.ProvisioningDeviceClientStatus;
+import com.microsoft.azure.sdk.iot.provisioning.device.internal.ProvisioningDeviceClientConfig;
+import com.microsoft.azure.sdk.iot.provisioning.device.internal.contract.http.ContractAPIHttp;
+import com.microsoft.azure.sdk.iot.provisioning.device.internal.exceptions.ProvisioningDeviceClientException;
+import com.microsoft.azure.sdk.iot.provisioning.device.internal.task.ProvisioningTask;
+import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
+import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderSymmetricKey;
+import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderTpm;
+import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderX509;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import mockit.integration.junit4.JMockit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.net.ssl.SSLContext;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+    Unit tests for ProvisioningBatchClient
+ */
+@RunWith(JMockit.class)
+public class ProvisioningBatchClientTest
+{
+    private static final String END_POINT = "testEndPoint";
+    private static final String SCOPE_ID = "testScopeId";
+    private static final long AWAIT_TIMEOUT_SECONDS = 10;
+
+    @Mocked
+    SecurityProvider mockedSecurityProvider;
+
+    @Mocked
+    ProvisioningDeviceClientRegistrationCallback mockedRegistrationCB;
+
+    @Mocked
+    ProvisioningDeviceClientConfig mockedProvisioningDeviceClientConfig;
+
+    @Mocked
+    ContractAPIHttp mockedContractAPIHttp;
+
+    @Mocked
+    ProvisioningTask mockedProvisioningTask;
+
+    @Mocked
+    SSLContext mockedSslContext;
+
+    @Test (expected = IllegalArgumentException.class)
+    public void createThrowsOnNullIdScope()
+    {
+        //act
+        ProvisioningBatchClient.create(END_POINT, null, 1, 0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void createThrowsOnNonPositiveParallelism()
+    {
+        //act
+        ProvisioningBatchClient.create(END_POINT, SCOPE_ID, 0, 0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void createThrowsOnNegativeRate()
+    {
+        //act
+        ProvisioningBatchClient.create(END_POINT, SCOPE_ID, 1, -1);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void registerDeviceThrowsOnNullCallback()
+    {
+        //arrange
+        ProvisioningBatchClient testClient = ProvisioningBatchClient.create(END_POINT, SCOPE_ID, 1, 0);
+
+        try
+        {
+            //act
+            testClient.registerDevice(mockedSecurityProvider, null, null);
+        }
+        finally
+        {
+            testClient.close();
+        }
+    }
+
+    @Test
+    public void registerDevicesRunsATaskPerDeviceSharingOneSslContext(@Mocked final SecurityProviderSymmetricKey mockedSymmetricKeyProvider,
+                                                                      @Mocked final SecurityProviderTpm mockedTpmProvider) throws Exception
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedSymmetricKeyProvider.getSSLContext();
+                result = mockedSslContext;
+                mockedTpmProvider.getSSLContext();
+                result = mockedSslContext;
+            }
+        };
+        ProvisioningBatchClient testClient = ProvisioningBatchClient.create(END_POINT, SCOPE_ID, 1, 0);
+
+        //act
+        testClient.registerDevices(Arrays.<SecurityProvider>asList(mockedSymmetricKeyProvider, mockedTpmProvider, mockedSymmetricKeyProvider), mockedRegistrationCB);
+        boolean isCompleted = testClient.awaitCompletion(AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        testClient.close();
+
+        //assert
+        assertTrue(isCompleted);
+        assertEquals(0, testClient.getPendingRegistrationCount());
+        new Verifications()
+        {
+            {
+                mockedProvisioningDeviceClientConfig.setRegistrationCallback(mockedRegistrationCB, any);
+                times = 3;
+                mockedContractAPIHttp.setSharedSSLContext(mockedSslContext);
+                times = 3;
+                mockedSymmetricKeyProvider.getSSLContext();
+                times = 1;
+                mockedTpmProvider.getSSLContext();
+                times = 0;
+                mockedProvisioningTask.call();
+                times = 3;
+            }
+        };
+    }
+
+    @Test
+    public void registerDeviceDoesNotShareSslContextOfX509Devices(@Mocked final SecurityProviderX509 mockedSecurityProviderX509) throws Exception
+    {
+        //arrange
+        ProvisioningBatchClient testClient = ProvisioningBatchClient.create(END_POINT, SCOPE_ID, 1, 0);
+
+        //act
+        testClient.registerDevice(mockedSecurityProviderX509, mockedRegistrationCB, null);
+        boolean isCompleted = testClient.awaitCompletion(AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        testClient.close();
+
+        //assert
+        assertTrue(isCompleted);
+        new Verifications()
+        {
+            {
+                mockedContractAPIHttp.setSharedSSLContext((SSLContext) any);
+                times = 0;
+                mockedProvisioningTask.call();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void registerDeviceDoesNotShareSslContextOfProvidersBuildingTheirOwn() throws Exception
+    {
+        //arrange
+        ProvisioningBatchClient testClient = ProvisioningBatchClient.create(END_POINT, SCOPE_ID, 1, 0);
+
+        //act
+        testClient.registerDevice(mockedSecurityProvider, mockedRegistrationCB, null);
+        boolean isCompleted = testClient.awaitCompletion(AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        testClient.close();
+
+        //assert
+        assertTrue(isCompleted);
+        new Verifications()
+        {
+            {
+                mockedContractAPIHttp.setSharedSSLContext((SSLContext) any);
+                times = 0;
+                mockedProvisioningTask.call();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void registerDeviceReportsUnhandledExceptionToCallback() throws Exception
+    {
+        //arrange
+        final Object context = new Object();
+        final ProvisioningDeviceClientException testException = new ProvisioningDeviceClientException("test");
+        new NonStrictExpectations()
+        {
+            {
+                mockedProvisioningTask.call();
+                result = testException;
+            }
+        };
+        ProvisioningBatchClient testClient = ProvisioningBatchClient.create(END_POINT, SCOPE_ID, 1, 0);
+
+        //act
+        testClient.registerDevice(mockedSecurityProvider, mockedRegistrationCB, context);
+        boolean isCompleted = testClient.awaitCompletion(AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        testClient.close();
+
+        //assert
+        assertTrue(isCompleted);
+        new Verifications()
+        {
+            {
+                ProvisioningDeviceClientRegistrationResult registrationResult;
+                mockedRegistrationCB.run(registrationResult = withCapture(), testException, context);
+                times = 1;
+                assertEquals(ProvisioningDeviceClientStatus.PROVISIONING_DEVICE_STATUS_ERROR, registrationResult.getProvisioningDeviceClientStatus());
+            }
+        };
+    }
+
+    @Test
+    public void registerDevicesSpacesRegistrationsByRate() throws Exception
+    {
+        //arrange
+        ProvisioningBatchClient testClient = ProvisioningBatchClient.create(END_POINT, SCOPE_ID, 3, 20);
+        long startNanos = System.nanoTime();
+
+        //act
+        testClient.registerDevices(Arrays.asList(mockedSecurityProvider, mockedSecurityProvider, mockedSecurityProvider), mockedRegistrationCB);
+        boolean isCompleted = testClient.awaitCompletion(AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        long elapsedMilliseconds = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        testClient.close();
+
+        //assert
+        assertTrue(isCompleted);
+        // the second and third registrations start 50 and 100 milliseconds after the first one
+        assertTrue(elapsedMilliseconds >= 90);
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void registerDeviceThrowsAfterClose()
+    {
+        //arrange
+        ProvisioningBatchClient testClient = ProvisioningBatchClient.create(END_POINT, SCOPE_ID, 1, 0);
+        testClient.close();
+
+        //act
+        testClient.registerDevice(mockedSecurityProvider, mockedRegistrationCB, null);
+    }
+}
@@ -219,4 +219,35 @@ public class ProvisioningDeviceClientTest
             }
         };
     }
+
+    @Test
+    public void closeNowLeavesSharedExecutorRunning() throws ProvisioningDeviceClientException
+    {
+        //arrange
+        ProvisioningDeviceClient testProvisioningDeviceClient = ProvisioningDeviceClient.create(END_POINT, SCOPE_ID, TEST_PROTOCOL, mockedSecurityProvider, mockedExecutorService);
+
+        //act
+        testProvisioningDeviceClient.registerDevice(mockedRegistrationCB, null);
+        testProvisioningDeviceClient.closeNow();
+
+        //assert
+        new Verifications()
+        {
+            {
+                Executors.newFixedThreadPool(anyInt);
+                times = 0;
+                mockedExecutorService.submit((ProvisioningTask) any);
+                times = 1;
+                mockedExecutorService.shutdownNow();
+                times = 0;
+            }
+        };
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void createThrowsOnNullSharedExecutor() throws ProvisioningDeviceClientException
+    {
+        //act
+        ProvisioningDeviceClient.create(END_POINT, SCOPE_ID, TEST_PROTOCOL, mockedSecurityProvider, null);
+    }
 }
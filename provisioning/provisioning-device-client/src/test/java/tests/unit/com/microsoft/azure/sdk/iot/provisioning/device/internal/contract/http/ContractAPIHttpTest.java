@@ -774,6 +774,46 @@ public class ContractAPIHttpTest
         };
     }
 
+    @Test
+    public void authenticateWithDPSUsesSharedSslContext(@Mocked final SSLContext mockedSharedSslContext) throws IOException, ProvisioningDeviceClientException
+    {
+        //arrange
+        ContractAPIHttp contractAPIHttp = createContractClass();
+        contractAPIHttp.setSharedSSLContext(mockedSharedSslContext);
+        prepareRequestExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockedRequestData.getRegistrationId();
+                result = TEST_REGISTRATION_ID;
+                mockedRequestData.getSslContext();
+                result = mockedSslContext;
+                mockedRequestData.getSasToken();
+                result = TEST_SAS_TOKEN;
+                mockedHttpRequest.send();
+                result = mockedHttpResponse;
+                mockedHttpResponse.getStatus();
+                result = 400;
+                new DeviceRegistrationParser(anyString, anyString, anyString, anyString);
+                result = mockedDeviceRegistrationParser;
+                mockedDeviceRegistrationParser.toJson();
+                result = "some json";
+            }
+        };
+
+        //act
+        contractAPIHttp.authenticateWithProvisioningService(mockedRequestData, mockedResponseCallback, null);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedHttpRequest.setSSLContext(mockedSharedSslContext);
+                times = 1;
+            }
+        };
+    }
+
     @Test
     public void authenticateWithDPSWithAuthAndRetryAfterSucceeds() throws IOException, ProvisioningDeviceClientException
     {
@@ -42,8 +42,6 @@ import static org.junit.Assert.assertNotNull;
 public class ProvisioningTaskTest
 {
     private static final String TEST_OPERATION_ID = "testOperationId";
-    private static final int MAX_TIME_TO_WAIT_FOR_REGISTRATION = 1000000;
-    private static final int MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE = 10000;
     private static final String TEST_HUB = "TestHub";
     private static final String TEST_DEVICE_ID = "testDeviceId";
 
@@ -64,16 +62,10 @@ public class ProvisioningTaskTest
     @Mocked
     Authorization mockedAuthorization;
     @Mocked
-    ExecutorService mockedExecutorService;
-    @Mocked
-    Executors mockedExecutors;
-    @Mocked
     RegisterTask mockedRegisterTask;
     @Mocked
     StatusTask mockedStatusTask;
     @Mocked
-    FutureTask mockedFutureTask;
-    @Mocked
     RegistrationOperationStatusParser mockedRegistrationOperationStatusParser;
     @Mocked
     DeviceRegistrationResultParser mockedDeviceRegistrationResultParser;
@@ -104,7 +96,6 @@ public class ProvisioningTaskTest
     }
 
     //SRS_provisioningtask_25_001: [ Constructor shall save provisioningDeviceClientConfig , securityProvider, provisioningDeviceClientContract, provisioningDeviceClientStatusCallback, dpsStatusCallbackContext.]
-    //SRS_ProvisioningTask_25_015: [ Constructor shall start the executor with a fixed thread pool of size 2.]
     //SRS_provisioningtask_25_003: [ Constructor shall trigger status callback if provided with status PROVISIONING_DEVICE_STATUS_UNAUTHENTICATED.]
     @Test
     public void constructorSucceeds() throws ProvisioningDeviceClientException
@@ -114,13 +105,6 @@ public class ProvisioningTaskTest
         //act
         ProvisioningTask testProvisioningTask = new ProvisioningTask(mockedProvisioningDeviceClientConfig, mockedProvisioningDeviceClientContract);
         //assert
-        new Verifications()
-        {
-            {
-                Executors.newFixedThreadPool(2);
-                times = 1;
-            }
-        };
         assertEquals(mockedProvisioningDeviceClientConfig, Deencapsulation.getField(testProvisioningTask, "provisioningDeviceClientConfig"));
         assertEquals(mockedSecurityProvider, Deencapsulation.getField(testProvisioningTask, "securityProvider"));
         assertEquals(mockedProvisioningDeviceClientContract, Deencapsulation.getField(testProvisioningTask, "provisioningDeviceClientContract"));
@@ -307,7 +291,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -397,7 +381,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -485,7 +469,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -571,7 +555,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -655,7 +639,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -746,7 +730,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -904,7 +888,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = null;
                 Deencapsulation.newInstance(RegistrationResult.class, new Class[] {String.class, String.class, String.class, ProvisioningDeviceClientStatus.class},
                         null, null, any, PROVISIONING_DEVICE_STATUS_ERROR);
@@ -959,7 +943,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
                 Deencapsulation.newInstance(RegistrationResult.class, new Class[] {String.class, String.class, String.class, ProvisioningDeviceClientStatus.class},
                         null, null, any, PROVISIONING_DEVICE_STATUS_ERROR);
@@ -1014,7 +998,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
                 Deencapsulation.newInstance(RegistrationResult.class, new Class[] {String.class, String.class, String.class, ProvisioningDeviceClientStatus.class},
                         null, null, any, PROVISIONING_DEVICE_STATUS_ERROR);
@@ -1049,7 +1033,7 @@ public class ProvisioningTaskTest
         new NonStrictExpectations()
         {
             {
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_REGISTRATION, TimeUnit.MILLISECONDS);
+                mockedRegisterTask.call();
                 result = mockedRegistrationOperationStatusParser;
                 Deencapsulation.newInstance(RegistrationResult.class, new Class[] {String.class, String.class, String.class, ProvisioningDeviceClientStatus.class},
                                             null, null, null, PROVISIONING_DEVICE_STATUS_ERROR);
@@ -1095,7 +1079,7 @@ public class ProvisioningTaskTest
         new NonStrictExpectations()
         {
             {
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_REGISTRATION, TimeUnit.MILLISECONDS);
+                mockedRegisterTask.call();
                 result = null;
                 Deencapsulation.newInstance(RegistrationResult.class, new Class[] {String.class, String.class, String.class, ProvisioningDeviceClientStatus.class},
                         null, null, any, PROVISIONING_DEVICE_STATUS_ERROR);
@@ -1131,7 +1115,7 @@ public class ProvisioningTaskTest
         new NonStrictExpectations()
         {
             {
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_REGISTRATION, TimeUnit.MILLISECONDS);
+                mockedRegisterTask.call();
                 result = mockedRegistrationOperationStatusParser;
                 Deencapsulation.newInstance(RegistrationResult.class, new Class[] {String.class, String.class, String.class, ProvisioningDeviceClientStatus.class},
                                             null, null, any, PROVISIONING_DEVICE_STATUS_ERROR);
@@ -1175,7 +1159,7 @@ public class ProvisioningTaskTest
         new NonStrictExpectations()
         {
             {
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_REGISTRATION, TimeUnit.MILLISECONDS);
+                mockedRegisterTask.call();
                 result = mockedRegistrationOperationStatusParser;
                 mockedRegistrationOperationStatusParser.getStatus();
                 result = "assigned";
@@ -1232,60 +1216,22 @@ public class ProvisioningTaskTest
         };
     }
 
-    //SRS_provisioningtask_25_014: [ This method shall shutdown the executors if they have not already shutdown. ]
     @Test
-    public void closeShutsDownExecutorNow() throws Exception
+    public void closeClosesContract() throws Exception
     {
         //arrange
         constructorExpectations();
-        new NonStrictExpectations()
-        {
-            {
-                mockedExecutorService.isShutdown();
-                result = false;
-            }
-        };
-
-        ProvisioningTask testProvisioningTask = new ProvisioningTask(mockedProvisioningDeviceClientConfig, mockedProvisioningDeviceClientContract);
-        //act
-        Deencapsulation.invoke(testProvisioningTask, "close");
-
-        new Verifications()
-        {
-            {
-                mockedProvisioningDeviceClientContract.close();
-                times = 1;
-                mockedExecutorService.shutdownNow();
-                times = 1;
-            }
-        };
-    }
-
-    @Test
-    public void closeShutsDownExecutor() throws Exception
-    {
-        //arrange
-        constructorExpectations();
-        new NonStrictExpectations()
-        {
-            {
-                mockedExecutorService.isShutdown();
-                result = true;
-            }
-        };
-
         ProvisioningTask testProvisioningTask = new ProvisioningTask(mockedProvisioningDeviceClientConfig, mockedProvisioningDeviceClientContract);
 
         //act
         Deencapsulation.invoke(testProvisioningTask, "close");
 
+        //assert
         new Verifications()
         {
             {
                 mockedProvisioningDeviceClientContract.close();
                 times = 1;
-                mockedExecutorService.shutdownNow();
-                times = 0;
             }
         };
     }
@@ -1361,7 +1307,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -1441,7 +1387,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -1529,7 +1475,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -1615,7 +1561,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -1685,7 +1631,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -1755,7 +1701,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -1824,7 +1770,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -1892,7 +1838,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -1960,7 +1906,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -2027,7 +1973,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -2095,7 +2041,7 @@ public class ProvisioningTaskTest
             {
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_STATUS_UPDATE, TimeUnit.MILLISECONDS);
+                mockedStatusTask.call();
                 result = mockedRegistrationOperationStatusParser;
             }
         };
@@ -2146,12 +2092,12 @@ public class ProvisioningTaskTest
         };
     }
 
-    private void registerExpectations() throws InterruptedException, ExecutionException, TimeoutException
+    private void registerExpectations() throws ProvisioningDeviceClientException, SecurityProviderException
     {
         new NonStrictExpectations()
         {
             {
-                mockedFutureTask.get(MAX_TIME_TO_WAIT_FOR_REGISTRATION, TimeUnit.MILLISECONDS);
+                mockedRegisterTask.call();
                 result = mockedRegistrationOperationStatusParser;
                 mockedRegistrationOperationStatusParser.getOperationId();
                 result = TEST_OPERATION_ID;
@@ -1067,8 +1067,8 @@ public class RegisterTaskTest
             {
                 Deencapsulation.newInstance(ResponseData.class);
                 result = mockedResponseData;
-                Deencapsulation.invoke(mockedResponseData, "getContractState");
-                result = DPS_REGISTRATION_RECEIVED;
+                Deencapsulation.invoke(mockedResponseData, "waitForResponse", 50L);
+                result = true;
                 Deencapsulation.invoke(mockedResponseData, "getContractState");
                 result = DPS_REGISTRATION_RECEIVED;
             }
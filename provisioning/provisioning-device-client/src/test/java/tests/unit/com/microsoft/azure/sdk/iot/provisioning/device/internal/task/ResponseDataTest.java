@@ -17,7 +17,9 @@ import org.junit.runner.RunWith;
 import static com.microsoft.azure.sdk.iot.provisioning.device.internal.task.ContractState.DPS_REGISTRATION_UNKNOWN;
 import static mockit.Deencapsulation.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /*
     Unit test for Response Data
@@ -66,4 +68,39 @@ public class ResponseDataTest
         //assert
         assertEquals(testData, invoke(testResponseData, "getResponseData"));
     }
+
+    @Test
+    public void waitForResponseReturnsOnceCompleted() throws Exception
+    {
+        //arrange
+        final ResponseData testResponseData = newInstance(ResponseData.class);
+        Thread callbackThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                invoke(testResponseData, "complete");
+            }
+        });
+
+        //act
+        callbackThread.start();
+        boolean received = invoke(testResponseData, "waitForResponse", 10000L);
+
+        //assert
+        assertTrue(received);
+    }
+
+    @Test
+    public void waitForResponseTimesOutIfNotCompleted() throws Exception
+    {
+        //arrange
+        ResponseData testResponseData = newInstance(ResponseData.class);
+
+        //act
+        boolean received = invoke(testResponseData, "waitForResponse", 10L);
+
+        //assert
+        assertFalse(received);
+    }
 }
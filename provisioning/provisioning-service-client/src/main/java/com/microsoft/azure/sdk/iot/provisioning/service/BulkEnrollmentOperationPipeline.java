@@ -0,0 +1,208 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.provisioning.service;
+
+import com.microsoft.azure.sdk.iot.deps.util.DaemonThreadFactory;
+import com.microsoft.azure.sdk.iot.provisioning.service.configs.BulkEnrollmentOperationResult;
+import com.microsoft.azure.sdk.iot.provisioning.service.configs.BulkOperationMode;
+import com.microsoft.azure.sdk.iot.provisioning.service.configs.IndividualEnrollment;
+import com.microsoft.azure.sdk.iot.provisioning.service.exceptions.ProvisioningServiceClientException;
+import com.microsoft.azure.sdk.iot.provisioning.service.exceptions.ProvisioningServiceClientTooManyRequestsException;
+import com.microsoft.azure.sdk.iot.provisioning.service.exceptions.ProvisioningServiceClientTransientException;
+import com.microsoft.azure.sdk.iot.provisioning.service.exceptions.ProvisioningServiceClientTransportException;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk Enrollment Operation Pipeline
+ *
+ * <p> This is the inner class that splits a sequence of individualEnrollments into bulk operations of the maximum
+ *     size accepted by the Device Provisioning Service, and runs up to {@code maxParallelOperations} of them at a time.
+ *     Operations throttled by the service, or failed by a transient error, are retried with an exponential backoff.
+ * <p> The individualEnrollments are read, and the operations started, only as the results are consumed, so a
+ *     sequence of any length is processed with at most {@code maxParallelOperations} operations in memory. The
+ *     results are returned in the order of the individualEnrollments.
+ * <p> For the public API, please see {@link ProvisioningServiceClient}.
+ */
+final class BulkEnrollmentOperationPipeline implements Iterator<BulkEnrollmentOperationResult>, Closeable
+{
+    /**
+     * The maximum number of individualEnrollments the Device Provisioning Service accepts in one bulk operation.
+     */
+    static final int MAX_ENROLLMENTS_PER_OPERATION = 10;
+
+    private static final int MAX_ATTEMPTS_PER_OPERATION = 6;
+    private static final long BASE_RETRY_DELAY_MILLISECONDS = 100;
+    private static final long MAX_RETRY_DELAY_MILLISECONDS = 10 * 1000;
+    private static final long IDLE_THREAD_TIMEOUT_MILLISECONDS = 10 * 1000;
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("azure-iot-sdk-BulkEnrollmentOperation-");
+
+    private final IndividualEnrollmentManager individualEnrollmentManager;
+    private final BulkOperationMode bulkOperationMode;
+    private final Iterator<IndividualEnrollment> individualEnrollments;
+    private final int maxParallelOperations;
+    private final ThreadPoolExecutor executor;
+    private final Deque<Future<BulkEnrollmentOperationResult>> pendingOperations = new ArrayDeque<>();
+
+    /**
+     * CONSTRUCTOR
+     *
+     * @param individualEnrollmentManager is the manager that sends each bulk operation.
+     * @param bulkOperationMode the {@link BulkOperationMode} that defines the single operation to do over the individualEnrollments.
+     * @param individualEnrollments the individualEnrollments to operate on.
+     * @param maxParallelOperations the number of bulk operations to run at a time.
+     */
+    BulkEnrollmentOperationPipeline(
+            IndividualEnrollmentManager individualEnrollmentManager,
+            BulkOperationMode bulkOperationMode,
+            Iterator<IndividualEnrollment> individualEnrollments,
+            int maxParallelOperations)
+    {
+        this.individualEnrollmentManager = individualEnrollmentManager;
+        this.bulkOperationMode = bulkOperationMode;
+        this.individualEnrollments = individualEnrollments;
+        this.maxParallelOperations = maxParallelOperations;
+        this.executor = new ThreadPoolExecutor(
+                maxParallelOperations, maxParallelOperations,
+                IDLE_THREAD_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                THREAD_FACTORY);
+        // a stream that is abandoned without being closed stops getting results, so its idle threads go away on their own
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Getter for the existence of more results.
+     *
+     * @return {@code true} if there are more bulk operations to return the result of.
+     */
+    @Override
+    public boolean hasNext()
+    {
+        this.startOperations();
+        if (this.pendingOperations.isEmpty())
+        {
+            this.close();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Wait for the result of the next bulk operation.
+     *
+     * @return The {@link BulkEnrollmentOperationResult} of the next bulk operation.
+     * @throws NoSuchElementException if there are no more bulk operations.
+     * @throws IllegalArgumentException if the bulk operation failed after all its retries.
+     */
+    @Override
+    public BulkEnrollmentOperationResult next()
+    {
+        if (!this.hasNext())
+        {
+            throw new NoSuchElementException("There are no more pending bulk operations");
+        }
+
+        Future<BulkEnrollmentOperationResult> operation = this.pendingOperations.poll();
+
+        // keep the pipeline full while waiting for the oldest operation
+        this.startOperations();
+
+        try
+        {
+            return operation.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            this.close();
+            throw new IllegalStateException("Interrupted while waiting for the bulk operation", e);
+        }
+        catch (ExecutionException e)
+        {
+            this.close();
+            // Because the pipeline implements the iterator interface, the next cannot throw ProvisioningServiceClientException.
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IllegalArgumentException(e.getCause());
+        }
+    }
+
+    /**
+     * Stop the bulk operations that are still running and drop the ones not started yet.
+     */
+    @Override
+    public void close()
+    {
+        this.executor.shutdownNow();
+    }
+
+    private void startOperations()
+    {
+        try
+        {
+            while (this.pendingOperations.size() < this.maxParallelOperations && this.individualEnrollments.hasNext())
+            {
+                final List<IndividualEnrollment> operationEnrollments = new ArrayList<>(MAX_ENROLLMENTS_PER_OPERATION);
+                while (operationEnrollments.size() < MAX_ENROLLMENTS_PER_OPERATION && this.individualEnrollments.hasNext())
+                {
+                    operationEnrollments.add(this.individualEnrollments.next());
+                }
+
+                this.pendingOperations.add(this.executor.submit(() -> this.runOperation(operationEnrollments)));
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // the individualEnrollments failed, the stream ends here
+            this.close();
+            throw e;
+        }
+    }
+
+    private BulkEnrollmentOperationResult runOperation(List<IndividualEnrollment> operationEnrollments)
+            throws ProvisioningServiceClientException, InterruptedException
+    {
+        for (int attempt = 1; ; attempt++)
+        {
+            try
+            {
+                return this.individualEnrollmentManager.bulkOperation(this.bulkOperationMode, operationEnrollments);
+            }
+            catch (ProvisioningServiceClientTooManyRequestsException | ProvisioningServiceClientTransientException | ProvisioningServiceClientTransportException e)
+            {
+                if (attempt >= MAX_ATTEMPTS_PER_OPERATION)
+                {
+                    throw e;
+                }
+
+                Thread.sleep(getRetryDelayMilliseconds(attempt));
+            }
+        }
+    }
+
+    private static long getRetryDelayMilliseconds(int attempt)
+    {
+        // full jitter, so throttled operations do not all retry at the same time
+        long maxDelayMilliseconds = Math.min(MAX_RETRY_DELAY_MILLISECONDS, BASE_RETRY_DELAY_MILLISECONDS << attempt);
+        return ThreadLocalRandom.current().nextLong(maxDelayMilliseconds + 1);
+    }
+}
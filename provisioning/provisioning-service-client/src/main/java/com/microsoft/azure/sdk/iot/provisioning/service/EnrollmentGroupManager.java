@@ -262,6 +262,22 @@ public class EnrollmentGroupManager
         return new Query(contractApiHttp, targetPath, querySpecification, pageSize);
     }
 
+    /**
+     * Create a new enrollmentGroup query that prefetches its pages.
+     *
+     * @see ProvisioningServiceClient#createEnrollmentGroupPrefetchingQuery(QuerySpecification, int, int)
+     *
+     * @param querySpecification is a {@code String} with the SQL query specification. It cannot be {@code null}.
+     * @param pageSize the {@code int} with the maximum number of items per page. It can be 0 for default, but not negative.
+     * @param maxBufferedPages the {@code int} with the maximum number of pages received but not consumed yet. It shall be positive.
+     * @return A {@link PrefetchingQuery} iterator.
+     * @throws IllegalArgumentException if the provided parameter is not correct.
+     */
+    PrefetchingQuery<EnrollmentGroup> createPrefetchingQuery(QuerySpecification querySpecification, int pageSize, int maxBufferedPages)
+    {
+        return new PrefetchingQuery<>(contractApiHttp, EnrollmentGroupManager.getEnrollmentGroupsPath(), querySpecification, pageSize, maxBufferedPages, EnrollmentGroup.class);
+    }
+
     private static String getEnrollmentGroupPath(String enrollmentGroupId)
     {
         return PATH_ENROLLMENT_GROUPS + PATH_SEPARATOR + enrollmentGroupId;
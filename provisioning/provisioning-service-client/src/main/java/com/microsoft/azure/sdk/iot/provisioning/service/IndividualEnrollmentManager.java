@@ -11,7 +11,12 @@ import com.microsoft.azure.sdk.iot.provisioning.service.configs.*;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * IndividualEnrollment Manager
@@ -163,6 +168,39 @@ public class IndividualEnrollmentManager
         return new BulkEnrollmentOperationResult(new String(body));
     }
 
+    /**
+     * Run a bulk individualEnrollment operation over any number of individualEnrollments.
+     *
+     * @see ProvisioningServiceClient#runBulkEnrollmentOperation(BulkOperationMode, Iterable, int)
+     *
+     * @param bulkOperationMode the {@link BulkOperationMode} that defines the single operation to do over the individualEnrollments. It cannot be {@code null}.
+     * @param individualEnrollments the iterator over the {@link IndividualEnrollment}s to operate on. It cannot be {@code null}.
+     * @param maxParallelOperations the number of bulk operations to run at a time. It shall be positive.
+     * @return A {@code Stream} with the {@link BulkEnrollmentOperationResult} of each bulk operation, in order.
+     * @throws IllegalArgumentException if the provided parameters are not correct.
+     */
+    Stream<BulkEnrollmentOperationResult> bulkOperation(BulkOperationMode bulkOperationMode, Iterator<IndividualEnrollment> individualEnrollments, int maxParallelOperations)
+    {
+        if(bulkOperationMode == null)
+        {
+            throw new IllegalArgumentException("bulkOperationMode cannot be null.");
+        }
+        if(individualEnrollments == null)
+        {
+            throw new IllegalArgumentException("individualEnrollments cannot be null.");
+        }
+        if(maxParallelOperations <= 0)
+        {
+            throw new IllegalArgumentException("maxParallelOperations shall be positive.");
+        }
+
+        BulkEnrollmentOperationPipeline pipeline =
+                new BulkEnrollmentOperationPipeline(this, bulkOperationMode, individualEnrollments, maxParallelOperations);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(pipeline, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(pipeline::close);
+    }
+
     /**
      * Get individualEnrollment information.
      *
@@ -316,6 +354,22 @@ public class IndividualEnrollmentManager
         return new Query(contractApiHttp, targetPath, querySpecification, pageSize);
     }
 
+    /**
+     * Create a new individualEnrollment query that prefetches its pages.
+     *
+     * @see ProvisioningServiceClient#createIndividualEnrollmentPrefetchingQuery(QuerySpecification, int, int)
+     *
+     * @param querySpecification is a {@code String} with the SQL query specification. It cannot be {@code null}.
+     * @param pageSize the {@code int} with the maximum number of items per page. It can be 0 for default, but not negative.
+     * @param maxBufferedPages the {@code int} with the maximum number of pages received but not consumed yet. It shall be positive.
+     * @return A {@link PrefetchingQuery} iterator.
+     * @throws IllegalArgumentException if the provided parameter is not correct.
+     */
+    PrefetchingQuery<IndividualEnrollment> createPrefetchingQuery(QuerySpecification querySpecification, int pageSize, int maxBufferedPages)
+    {
+        return new PrefetchingQuery<>(contractApiHttp, IndividualEnrollmentManager.getEnrollmentsPath(), querySpecification, pageSize, maxBufferedPages, IndividualEnrollment.class);
+    }
+
     private static String getEnrollmentPath(String registrationId)
     {
         return PATH_ENROLLMENTS + PATH_SEPARATOR + registrationId;
@@ -0,0 +1,341 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.provisioning.service;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.microsoft.azure.sdk.iot.deps.transport.http.HttpMethod;
+import com.microsoft.azure.sdk.iot.deps.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.deps.util.DaemonThreadFactory;
+import com.microsoft.azure.sdk.iot.provisioning.service.configs.QuerySpecification;
+import com.microsoft.azure.sdk.iot.provisioning.service.contract.ContractApiHttp;
+import com.microsoft.azure.sdk.iot.provisioning.service.exceptions.ProvisioningServiceClientException;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The prefetching query iterator.
+ *
+ * <p> Unlike the {@link Query}, which returns a page of items per iteration and requests that page when it is
+ *     asked for, the {@code PrefetchingQuery} returns the items one by one and requests the next pages in the
+ *     background while the current one is consumed. Up to {@code maxBufferedPages} pages wait to be consumed, so
+ *     the memory used by the query is bounded whatever the number of items in the Device Provisioning Service.
+ *
+ * <p> The items of a page are deserialized one at a time as they are returned, instead of all together when the
+ *     page is received.
+ *
+ * <p> The query can be used as an {@code Iterator}, or as a {@code Stream} by calling {@link #stream()}. Close the
+ *     query, or the stream, to stop the prefetching of the pages not consumed yet.
+ *
+ * <p> The continuationToken of the page being consumed is returned by {@link #getContinuationToken()}. A
+ *     {@link Query} created with the same QuerySpecification continues from that page when it is given the
+ *     token in {@link Query#next(String)}.
+ *
+ * @param <T> the type of the items returned by the query.
+ * @see Query
+ */
+public class PrefetchingQuery<T> implements Iterator<T>, Closeable
+{
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("azure-iot-sdk-PrefetchingQuery-");
+
+    private final ContractApiHttp contractApiHttp;
+    private final String queryPath;
+    private final String querySpecificationJson;
+    private final int pageSize;
+    private final Class<T> itemType;
+    private final Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
+
+    private final BlockingQueue<Page> bufferedPages;
+    private final ExecutorService prefetcher;
+
+    private JsonReader currentPageReader = null;
+    private String continuationToken = null;
+    private boolean isLastPage = false;
+    private volatile boolean isClosed = false;
+    private RuntimeException failure = null;
+
+    /**
+     * A page received from the Device Provisioning Service, or the failure to receive it.
+     */
+    private static final class Page
+    {
+        private final byte[] body;
+        private final String continuationToken;
+        private final RuntimeException failure;
+
+        private Page(byte[] body, String continuationToken, RuntimeException failure)
+        {
+            this.body = body;
+            this.continuationToken = continuationToken;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Put in the buffer by {@link #close()}, so a consumer waiting for the next page wakes up.
+     */
+    private static final Page CLOSED = new Page(null, null, null);
+
+    /**
+     * INTERNAL CONSTRUCTOR
+     *
+     * <p> Use one of the factories in the {@link ProvisioningServiceClient} to create a new query.
+     *
+     * @param contractApiHttp the {@link ContractApiHttp} that send request messages to the Device Provisioning Service. It cannot be {@code null}.
+     * @param targetPath the {@code String} with the path that will be part of the URL in the rest API. It cannot be {@code null} or empty.
+     * @param querySpecification the {@link QuerySpecification} with the SQL query. It cannot be {@code null}.
+     * @param pageSize the {@code int} with the maximum number of items per page. It can be 0 for default, but not negative.
+     * @param maxBufferedPages the {@code int} with the maximum number of pages received but not consumed yet. It shall be positive.
+     * @param itemType the class of the items returned by the query. It cannot be {@code null}.
+     * @throws IllegalArgumentException if one of the parameters is invalid.
+     */
+    protected PrefetchingQuery(
+            ContractApiHttp contractApiHttp, String targetPath, QuerySpecification querySpecification,
+            int pageSize, int maxBufferedPages, Class<T> itemType)
+    {
+        if(contractApiHttp == null)
+        {
+            throw new IllegalArgumentException("contractApiHttp cannot be null.");
+        }
+        if(Tools.isNullOrEmpty(targetPath))
+        {
+            throw new IllegalArgumentException("targetPath cannot be null.");
+        }
+        if(querySpecification == null)
+        {
+            throw new IllegalArgumentException("querySpecification cannot be null.");
+        }
+        if(pageSize < 0)
+        {
+            throw new IllegalArgumentException("pageSize cannot be negative.");
+        }
+        if(maxBufferedPages <= 0)
+        {
+            throw new IllegalArgumentException("maxBufferedPages shall be positive.");
+        }
+        if(itemType == null)
+        {
+            throw new IllegalArgumentException("itemType cannot be null.");
+        }
+
+        this.contractApiHttp = contractApiHttp;
+        this.queryPath = targetPath + Query.PATH_SEPARATOR + Query.PATH_QUERY;
+        this.querySpecificationJson = querySpecification.toJson();
+        this.pageSize = pageSize;
+        this.itemType = itemType;
+        this.bufferedPages = new ArrayBlockingQueue<>(maxBufferedPages);
+        this.prefetcher = Executors.newSingleThreadExecutor(THREAD_FACTORY);
+        this.prefetcher.execute(this::prefetchPages);
+    }
+
+    /**
+     * Getter for the existence of more items.
+     *
+     * <p> It waits for the next page if the items of the current page are all consumed. Once the query is closed
+     *     there are no more items, and once a page failed every call throws that failure again.
+     *
+     * @return The {@code boolean} {@code true} if there are more items in the query.
+     * @throws IllegalArgumentException if the Device Provisioning Service failed to return the next page.
+     */
+    @Override
+    public boolean hasNext()
+    {
+        if (this.failure != null)
+        {
+            throw this.failure;
+        }
+
+        try
+        {
+            while (this.currentPageReader == null || !this.currentPageReader.hasNext())
+            {
+                if (this.isLastPage || this.isClosed)
+                {
+                    this.close();
+                    return false;
+                }
+
+                this.openNextPage();
+            }
+
+            return !this.isClosed;
+        }
+        catch (IOException e)
+        {
+            this.fail(new IllegalArgumentException("Http response for next contains an invalid body", e));
+            throw this.failure;
+        }
+    }
+
+    /**
+     * Return the next item of the query.
+     *
+     * @return The next item of the query.
+     * @throws NoSuchElementException if the query does no have more items to return.
+     * @throws IllegalArgumentException if the Device Provisioning Service failed to return the next page.
+     */
+    @Override
+    public T next()
+    {
+        if(!this.hasNext())
+        {
+            throw new NoSuchElementException("There are no more pending elements");
+        }
+
+        return this.gson.fromJson(this.currentPageReader, this.itemType);
+    }
+
+    /**
+     * Getter for the continuationToken of the page being consumed.
+     *
+     * @return The {@code String} with the continuationToken to request the page after the current one, or
+     *         {@code null} if the current page is the last one.
+     */
+    public String getContinuationToken()
+    {
+        return this.continuationToken;
+    }
+
+    /**
+     * Return the items of the query as a {@code Stream}. Closing the stream closes the query.
+     *
+     * @return A sequential {@code Stream} of the items of the query.
+     */
+    public Stream<T> stream()
+    {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Stop the prefetching of the pages, and drop the pages received but not consumed yet.
+     */
+    @Override
+    public void close()
+    {
+        this.isClosed = true;
+        this.prefetcher.shutdownNow();
+        this.bufferedPages.clear();
+        // if the prefetcher refilled the buffer in the meantime, the consumer wakes up on that page instead
+        this.bufferedPages.offer(CLOSED);
+    }
+
+    private void openNextPage() throws IOException
+    {
+        Page page;
+        try
+        {
+            page = this.bufferedPages.take();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            this.close();
+            throw new IllegalStateException("Interrupted while waiting for the next page", e);
+        }
+
+        if (page == CLOSED)
+        {
+            return;
+        }
+
+        if (page.failure != null)
+        {
+            this.fail(page.failure);
+            throw page.failure;
+        }
+
+        this.continuationToken = page.continuationToken;
+        this.isLastPage = (page.continuationToken == null);
+        this.currentPageReader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(page.body), StandardCharsets.UTF_8));
+        this.currentPageReader.beginArray();
+    }
+
+    private void fail(RuntimeException failure)
+    {
+        this.failure = failure;
+        this.close();
+    }
+
+    private void prefetchPages()
+    {
+        String nextContinuationToken = null;
+        try
+        {
+            do
+            {
+                Page page = this.requestPage(nextContinuationToken);
+                this.bufferedPages.put(page);
+                nextContinuationToken = page.continuationToken;
+            }
+            while (nextContinuationToken != null);
+        }
+        catch (InterruptedException e)
+        {
+            // the query was closed
+        }
+        catch (RuntimeException e)
+        {
+            // hand the failure to the consumer, after the pages received before it
+            try
+            {
+                this.bufferedPages.put(new Page(null, null, e));
+            }
+            catch (InterruptedException interruptedException)
+            {
+                // the query was closed
+            }
+        }
+    }
+
+    private Page requestPage(String continuationToken)
+    {
+        Map<String, String> headerParameters = new HashMap<>();
+        if(this.pageSize != 0)
+        {
+            headerParameters.put(Query.PAGE_SIZE_KEY, Integer.toString(this.pageSize));
+        }
+        if(!Tools.isNullOrEmpty(continuationToken))
+        {
+            headerParameters.put(Query.CONTINUATION_TOKEN_KEY, continuationToken);
+        }
+
+        HttpResponse httpResponse;
+        try
+        {
+            httpResponse = this.contractApiHttp.request(HttpMethod.POST, this.queryPath, headerParameters, this.querySpecificationJson);
+        }
+        catch (ProvisioningServiceClientException e)
+        {
+            // Because PrefetchingQuery implements the iterator interface, the next cannot throws ProvisioningServiceClientException.
+            throw new IllegalArgumentException(e);
+        }
+
+        byte[] body = httpResponse.getBody();
+        if(body == null)
+        {
+            throw new IllegalArgumentException("Http response for next cannot contains a null body");
+        }
+
+        return new Page(body, httpResponse.getHeaderFields().get(Query.CONTINUATION_TOKEN_KEY), null);
+    }
+}
@@ -13,6 +13,7 @@ import com.microsoft.azure.sdk.iot.provisioning.service.exceptions.ProvisioningS
 import com.microsoft.azure.sdk.iot.provisioning.service.exceptions.ProvisioningServiceClientTransportException;
 
 import java.util.Collection;
+import java.util.stream.Stream;
 
 /**
  * Device Provisioning Service Client.
@@ -309,6 +310,71 @@ public final class ProvisioningServiceClient
         return individualEnrollmentManager.bulkOperation(bulkOperationMode, individualEnrollments);
     }
 
+    /**
+     * Create, update or delete any number of individual Device Enrollments.
+     *
+     * <p> This API splits the individualEnrollments into bulk operations of the maximum size accepted by the Device
+     *     Provisioning Service, and runs up to {@code maxParallelOperations} of them at a time over the kept alive
+     *     connections to the service. A bulk operation throttled by the service, or failed by a transient error, is
+     *     retried with an exponential backoff.
+     * <p> The individualEnrollments are read, and the bulk operations started, as the returned {@code Stream} is
+     *     consumed, so a large migration does not need to hold all its individualEnrollments in memory. The
+     *     {@code Stream} contains the {@link BulkEnrollmentOperationResult} of each bulk operation, in the order of the
+     *     individualEnrollments. Closing it stops the bulk operations that are still running.
+     *
+     * <pre>
+     * {@code
+     * try (Stream<BulkEnrollmentOperationResult> results =
+     *         provisioningServiceClient.runBulkEnrollmentOperation(BulkOperationMode.CREATE, individualEnrollments, 8))
+     * {
+     *     results.flatMap(result -> result.getErrors().stream())
+     *            .forEach(error -> System.out.println(error.getRegistrationId() + " failed: " + error.getErrorStatus()));
+     * }
+     * }
+     * </pre>
+     *
+     * @param bulkOperationMode the {@link BulkOperationMode} that defines the single operation to do over the individualEnrollments. It cannot be {@code null}.
+     * @param individualEnrollments the {@link IndividualEnrollment}s to operate on. It cannot be {@code null}.
+     * @param maxParallelOperations the number of bulk operations to run at a time. It shall be positive.
+     * @return A {@code Stream} with the {@link BulkEnrollmentOperationResult} of each bulk operation. Consuming it
+     *         throws IllegalArgumentException, with the {@link ProvisioningServiceClientException} as its cause, if a
+     *         bulk operation failed after all its retries.
+     * @throws IllegalArgumentException if the provided parameters are not correct.
+     */
+    public Stream<BulkEnrollmentOperationResult> runBulkEnrollmentOperation(
+            BulkOperationMode bulkOperationMode, Iterable<IndividualEnrollment> individualEnrollments, int maxParallelOperations)
+    {
+        if (individualEnrollments == null)
+        {
+            throw new IllegalArgumentException("individualEnrollments cannot be null.");
+        }
+
+        return individualEnrollmentManager.bulkOperation(bulkOperationMode, individualEnrollments.iterator(), maxParallelOperations);
+    }
+
+    /**
+     * Create, update or delete any number of individual Device Enrollments.
+     *
+     * @see #runBulkEnrollmentOperation(BulkOperationMode, Iterable, int)
+     *
+     * @param bulkOperationMode the {@link BulkOperationMode} that defines the single operation to do over the individualEnrollments. It cannot be {@code null}.
+     * @param individualEnrollments the {@link IndividualEnrollment}s to operate on. It cannot be {@code null}. It is closed with the returned {@code Stream}.
+     * @param maxParallelOperations the number of bulk operations to run at a time. It shall be positive.
+     * @return A {@code Stream} with the {@link BulkEnrollmentOperationResult} of each bulk operation.
+     * @throws IllegalArgumentException if the provided parameters are not correct.
+     */
+    public Stream<BulkEnrollmentOperationResult> runBulkEnrollmentOperation(
+            BulkOperationMode bulkOperationMode, Stream<IndividualEnrollment> individualEnrollments, int maxParallelOperations)
+    {
+        if (individualEnrollments == null)
+        {
+            throw new IllegalArgumentException("individualEnrollments cannot be null.");
+        }
+
+        return individualEnrollmentManager.bulkOperation(bulkOperationMode, individualEnrollments.iterator(), maxParallelOperations)
+                .onClose(individualEnrollments::close);
+    }
+
     /**
      * Retrieve the individualEnrollment information.
      *
@@ -549,6 +615,35 @@ public final class ProvisioningServiceClient
         return individualEnrollmentManager.createQuery(querySpecification, pageSize);
     }
 
+    /**
+     * Factory to create a individualEnrollment query that prefetches its pages.
+     *
+     * <p> This method will create a new individualEnrollment query for Device Provisioning Service and return it
+     *     as a {@link PrefetchingQuery} iterator, that returns the individualEnrollments one by one while the next
+     *     pages are requested in the background. Up to {@code maxBufferedPages} pages wait to be consumed.
+     *
+     * <pre>
+     * {@code
+     * try (Stream<IndividualEnrollment> individualEnrollments = provisioningServiceClient
+     *         .createIndividualEnrollmentPrefetchingQuery(new QuerySpecificationBuilder("*", QuerySpecificationBuilder.FromType.ENROLLMENTS).createSqlQuery(), 100, 2)
+     *         .stream())
+     * {
+     *     individualEnrollments.forEach(individualEnrollment -> System.out.println(individualEnrollment.getRegistrationId()));
+     * }
+     * }
+     * </pre>
+     *
+     * @param querySpecification the {@link QuerySpecification} with the SQL query. It cannot be {@code null}.
+     * @param pageSize the {@code int} with the maximum number of items per page. It can be 0 for default, but not negative.
+     * @param maxBufferedPages the {@code int} with the maximum number of pages received but not consumed yet. It shall be positive.
+     * @return The {@link PrefetchingQuery} iterator.
+     * @throws IllegalArgumentException if the provided parameters are not correct.
+     */
+    public PrefetchingQuery<IndividualEnrollment> createIndividualEnrollmentPrefetchingQuery(QuerySpecification querySpecification, int pageSize, int maxBufferedPages)
+    {
+        return individualEnrollmentManager.createPrefetchingQuery(querySpecification, pageSize, maxBufferedPages);
+    }
+
     /**
      * Create or update an enrollment group record.
      *
@@ -860,6 +955,24 @@ public final class ProvisioningServiceClient
         return enrollmentGroupManager.createQuery(querySpecification, pageSize);
     }
 
+    /**
+     * Factory to create an enrollmentGroup query that prefetches its pages.
+     *
+     * <p> This method will create a new enrollmentGroup query for Device Provisioning Service and return it
+     *     as a {@link PrefetchingQuery} iterator, that returns the enrollmentGroups one by one while the next
+     *     pages are requested in the background. Up to {@code maxBufferedPages} pages wait to be consumed.
+     *
+     * @param querySpecification the {@link QuerySpecification} with the SQL query. It cannot be {@code null}.
+     * @param pageSize the {@code int} with the maximum number of items per page. It can be 0 for default, but not negative.
+     * @param maxBufferedPages the {@code int} with the maximum number of pages received but not consumed yet. It shall be positive.
+     * @return The {@link PrefetchingQuery} iterator.
+     * @throws IllegalArgumentException if the provided parameters are not correct.
+     */
+    public PrefetchingQuery<EnrollmentGroup> createEnrollmentGroupPrefetchingQuery(QuerySpecification querySpecification, int pageSize, int maxBufferedPages)
+    {
+        return enrollmentGroupManager.createPrefetchingQuery(querySpecification, pageSize, maxBufferedPages);
+    }
+
     /**
      * Retrieve the registration status information.
      *
@@ -1144,6 +1257,28 @@ public final class ProvisioningServiceClient
         return registrationStatusManager.createEnrollmentGroupQuery(querySpecification, enrollmentGroupId, pageSize);
     }
 
+    /**
+     * Factory to create a registration state query that prefetches its pages.
+     *
+     * <p> This method will create a new registration state query for a specific enrollment group on the Device
+     *     Provisioning Service and return it as a {@link PrefetchingQuery} iterator, that returns the
+     *     deviceRegistrationStates one by one while the next pages are requested in the background. Up to
+     *     {@code maxBufferedPages} pages wait to be consumed, so auditing all the registrations of a large
+     *     enrollment group uses a bounded amount of memory.
+     *
+     * @param querySpecification the {@link QuerySpecification} with the SQL query. It cannot be {@code null}.
+     * @param enrollmentGroupId the {@code String} that identifies the enrollmentGroup. It cannot be {@code null} or empty.
+     * @param pageSize the {@code int} with the maximum number of items per page. It can be 0 for default, but not negative.
+     * @param maxBufferedPages the {@code int} with the maximum number of pages received but not consumed yet. It shall be positive.
+     * @return The {@link PrefetchingQuery} iterator.
+     * @throws IllegalArgumentException if the provided parameters are not correct.
+     */
+    public PrefetchingQuery<DeviceRegistrationState> createEnrollmentGroupRegistrationStatePrefetchingQuery(
+            QuerySpecification querySpecification, String enrollmentGroupId, int pageSize, int maxBufferedPages)
+    {
+        return registrationStatusManager.createEnrollmentGroupPrefetchingQuery(querySpecification, enrollmentGroupId, pageSize, maxBufferedPages);
+    }
+
     /**
      * @deprecated As of release 1.0.0, replaced by {@link #createEnrollmentGroupRegistrationStateQuery(QuerySpecification, String, int)} ()}
      * @param querySpecification the {@link QuerySpecification} with the SQL query. It cannot be {@code null}.
@@ -62,11 +62,11 @@ import java.util.*;
  */
 public class Query implements Iterator
 {
-    private static final String CONTINUATION_TOKEN_KEY = "x-ms-continuation";
+    static final String CONTINUATION_TOKEN_KEY = "x-ms-continuation";
     private static final String ITEM_TYPE_KEY = "x-ms-item-type";
-    private static final String PAGE_SIZE_KEY = "x-ms-max-item-count";
-    private static final String PATH_SEPARATOR = "/";
-    private static final String PATH_QUERY = "query";
+    static final String PAGE_SIZE_KEY = "x-ms-max-item-count";
+    static final String PATH_SEPARATOR = "/";
+    static final String PATH_QUERY = "query";
 
     private String querySpecificationJson;
     private int pageSize;
@@ -219,6 +219,28 @@ public class RegistrationStatusManager
         return new Query(contractApiHttp, targetPath, querySpecification, pageSize);
     }
 
+    /**
+     * Create a new registration status query for enrollmentGroup that prefetches its pages.
+     *
+     * @see ProvisioningServiceClient#createEnrollmentGroupRegistrationStatePrefetchingQuery(QuerySpecification, String, int, int)
+     *
+     * @param querySpecification is a {@code String} with the SQL query specification. It cannot be {@code null}.
+     * @param enrollmentGroupId is a {@code String} with the enrollmentGroupId of the enrollmentGroup. It cannot be {@code null} or empty.
+     * @param pageSize the {@code int} with the maximum number of items per page. It can be 0 for default, but not negative.
+     * @param maxBufferedPages the {@code int} with the maximum number of pages received but not consumed yet. It shall be positive.
+     * @return A {@link PrefetchingQuery} iterator.
+     * @throws IllegalArgumentException if the provided parameter is not correct.
+     */
+    PrefetchingQuery<DeviceRegistrationState> createEnrollmentGroupPrefetchingQuery(QuerySpecification querySpecification, String enrollmentGroupId, int pageSize, int maxBufferedPages)
+    {
+        if(Tools.isNullOrEmpty(enrollmentGroupId))
+        {
+            throw new IllegalArgumentException("enrollmentGroupId cannot be null or empty.");
+        }
+
+        return new PrefetchingQuery<>(contractApiHttp, RegistrationStatusManager.getDeviceRegistrationStatePath(enrollmentGroupId), querySpecification, pageSize, maxBufferedPages, DeviceRegistrationState.class);
+    }
+
     private static String getDeviceRegistrationStatePath(String id)
     {
         return PATH_REGISTRATIONS + PATH_SEPARATOR + id;
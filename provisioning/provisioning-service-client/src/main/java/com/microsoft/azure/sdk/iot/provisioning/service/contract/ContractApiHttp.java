@@ -128,7 +128,7 @@ public class ContractApiHttp
      * @throws ProvisioningServiceClientException if the Provisioning Service response contains an error message.
      * @throws IllegalArgumentException if the provided parameters are not correct.
      */
-    public synchronized HttpResponse request(
+    public HttpResponse request(
             HttpMethod httpMethod,
             String path,
             Map<String, String> headerParameters,
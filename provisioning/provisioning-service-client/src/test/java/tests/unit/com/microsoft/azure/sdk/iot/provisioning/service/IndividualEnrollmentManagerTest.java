@@ -12,10 +12,17 @@ import com.microsoft.azure.sdk.iot.provisioning.service.exceptions.*;
 import mockit.*;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -946,4 +953,233 @@ public class IndividualEnrollmentManagerTest
         // assert
         assertNotNull(query);
     }
+
+    private static List<IndividualEnrollment> createIndividualEnrollments(IndividualEnrollment individualEnrollment, int count)
+    {
+        List<IndividualEnrollment> individualEnrollments = new LinkedList<>();
+        for (int i = 0; i < count; i++)
+        {
+            individualEnrollments.add(individualEnrollment);
+        }
+        return individualEnrollments;
+    }
+
+    @Test
+    public void bulkOperationStreamSplitsEnrollmentsInOperationsOfMaxSize(
+            @Mocked final IndividualEnrollment mockedIndividualEnrollment,
+            @Mocked final BulkEnrollmentOperation mockedBulkOperation,
+            @Mocked final BulkEnrollmentOperationResult mockedBulkEnrollmentOperationResult) throws ProvisioningServiceClientException
+    {
+        // arrange
+        final String bulkEnrollmentPayload = "validJson";
+        final Iterator<IndividualEnrollment> individualEnrollments = createIndividualEnrollments(mockedIndividualEnrollment, 25).iterator();
+        IndividualEnrollmentManager individualEnrollmentManager = createIndividualEnrollmentManager();
+        new NonStrictExpectations()
+        {
+            {
+                BulkEnrollmentOperation.toJson(BulkOperationMode.CREATE, (Collection<IndividualEnrollment>)any);
+                result = bulkEnrollmentPayload;
+                mockedContractApiHttp.request(HttpMethod.POST, "enrollments", null, bulkEnrollmentPayload);
+                result = mockedHttpResponse;
+                mockedHttpResponse.getBody();
+                result = "validJson".getBytes();
+            }
+        };
+
+        // act
+        Stream<BulkEnrollmentOperationResult> results = Deencapsulation.invoke(
+                individualEnrollmentManager, "bulkOperation",
+                new Class[] {BulkOperationMode.class, Iterator.class, int.class}, BulkOperationMode.CREATE, individualEnrollments, 2);
+        List<BulkEnrollmentOperationResult> resultList = results.collect(Collectors.toList());
+
+        // assert
+        assertEquals(3, resultList.size());
+        final List<Collection<IndividualEnrollment>> operationEnrollments = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                BulkEnrollmentOperation.toJson(BulkOperationMode.CREATE, withCapture(operationEnrollments));
+                times = 3;
+                mockedContractApiHttp.request(HttpMethod.POST, "enrollments", null, bulkEnrollmentPayload);
+                times = 3;
+            }
+        };
+        // the operations run in parallel, so they may reach the service in any order
+        List<Integer> operationSizes = operationEnrollments.stream().map(Collection::size).sorted().collect(Collectors.toList());
+        assertEquals(Arrays.asList(5, 10, 10), operationSizes);
+    }
+
+    @Test
+    public void bulkOperationStreamRetriesThrottledOperation(
+            @Mocked final IndividualEnrollment mockedIndividualEnrollment,
+            @Mocked final BulkEnrollmentOperation mockedBulkOperation,
+            @Mocked final BulkEnrollmentOperationResult mockedBulkEnrollmentOperationResult) throws ProvisioningServiceClientException
+    {
+        // arrange
+        final Iterator<IndividualEnrollment> individualEnrollments = createIndividualEnrollments(mockedIndividualEnrollment, 1).iterator();
+        IndividualEnrollmentManager individualEnrollmentManager = createIndividualEnrollmentManager();
+        new NonStrictExpectations()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, "enrollments", null, anyString);
+                result = new ProvisioningServiceClientTooManyRequestsException();
+                result = new ProvisioningServiceClientInternalServerErrorException();
+                result = mockedHttpResponse;
+                mockedHttpResponse.getBody();
+                result = "validJson".getBytes();
+            }
+        };
+
+        // act
+        Stream<BulkEnrollmentOperationResult> results = Deencapsulation.invoke(
+                individualEnrollmentManager, "bulkOperation",
+                new Class[] {BulkOperationMode.class, Iterator.class, int.class}, BulkOperationMode.CREATE, individualEnrollments, 1);
+
+        // assert
+        assertEquals(1, results.count());
+        new Verifications()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, "enrollments", null, anyString);
+                times = 3;
+            }
+        };
+    }
+
+    @Test
+    public void bulkOperationStreamThrowsOnFailedOperation(
+            @Mocked final IndividualEnrollment mockedIndividualEnrollment,
+            @Mocked final BulkEnrollmentOperation mockedBulkOperation) throws ProvisioningServiceClientException
+    {
+        // arrange
+        final ProvisioningServiceClientException failure = new ProvisioningServiceClientUnathorizedException();
+        final Iterator<IndividualEnrollment> individualEnrollments = createIndividualEnrollments(mockedIndividualEnrollment, 1).iterator();
+        IndividualEnrollmentManager individualEnrollmentManager = createIndividualEnrollmentManager();
+        new NonStrictExpectations()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, "enrollments", null, anyString);
+                result = failure;
+            }
+        };
+        Stream<BulkEnrollmentOperationResult> results = Deencapsulation.invoke(
+                individualEnrollmentManager, "bulkOperation",
+                new Class[] {BulkOperationMode.class, Iterator.class, int.class}, BulkOperationMode.CREATE, individualEnrollments, 1);
+
+        try
+        {
+            // act
+            results.count();
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // assert
+            assertEquals(failure, e.getCause());
+        }
+
+        new Verifications()
+        {
+            {
+                // not retried
+                mockedContractApiHttp.request(HttpMethod.POST, "enrollments", null, anyString);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void bulkOperationStreamRunsOperationsOnNumberedThreads(
+            @Mocked final IndividualEnrollment mockedIndividualEnrollment,
+            @Mocked final BulkEnrollmentOperation mockedBulkOperation,
+            @Mocked final BulkEnrollmentOperationResult mockedBulkEnrollmentOperationResult) throws ProvisioningServiceClientException
+    {
+        // arrange
+        final List<String> threadNames = Collections.synchronizedList(new ArrayList<String>());
+        final Iterator<IndividualEnrollment> individualEnrollments = createIndividualEnrollments(mockedIndividualEnrollment, 20).iterator();
+        IndividualEnrollmentManager individualEnrollmentManager = createIndividualEnrollmentManager();
+        new NonStrictExpectations()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, "enrollments", null, anyString);
+                result = new Delegate<HttpResponse>()
+                {
+                    HttpResponse request(HttpMethod httpMethod, String path, Map<String, String> headerParameters, String payload)
+                    {
+                        threadNames.add(Thread.currentThread().getName());
+                        return mockedHttpResponse;
+                    }
+                };
+                mockedHttpResponse.getBody();
+                result = "validJson".getBytes();
+            }
+        };
+
+        // act
+        Stream<BulkEnrollmentOperationResult> results = Deencapsulation.invoke(
+                individualEnrollmentManager, "bulkOperation",
+                new Class[] {BulkOperationMode.class, Iterator.class, int.class}, BulkOperationMode.CREATE, individualEnrollments, 2);
+        results.count();
+
+        // assert
+        assertEquals(2, threadNames.size());
+        for (String threadName : threadNames)
+        {
+            assertTrue(threadName.matches("azure-iot-sdk-BulkEnrollmentOperation-\\d+"));
+        }
+    }
+
+    @Test
+    public void bulkOperationStreamThrowsOnFailedEnrollments(
+            @Mocked final IndividualEnrollment mockedIndividualEnrollment)
+    {
+        // arrange
+        final IllegalStateException failure = new IllegalStateException();
+        final Iterator<IndividualEnrollment> individualEnrollments = new Iterator<IndividualEnrollment>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return true;
+            }
+
+            @Override
+            public IndividualEnrollment next()
+            {
+                throw failure;
+            }
+        };
+        IndividualEnrollmentManager individualEnrollmentManager = createIndividualEnrollmentManager();
+        Stream<BulkEnrollmentOperationResult> results = Deencapsulation.invoke(
+                individualEnrollmentManager, "bulkOperation",
+                new Class[] {BulkOperationMode.class, Iterator.class, int.class}, BulkOperationMode.CREATE, individualEnrollments, 1);
+
+        try
+        {
+            // act
+            results.count();
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException e)
+        {
+            // assert
+            assertEquals(failure, e);
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void bulkOperationStreamThrowsOnNonPositiveParallelOperations(
+            @Mocked final IndividualEnrollment mockedIndividualEnrollment)
+    {
+        // arrange
+        final Iterator<IndividualEnrollment> individualEnrollments = createIndividualEnrollments(mockedIndividualEnrollment, 1).iterator();
+        IndividualEnrollmentManager individualEnrollmentManager = createIndividualEnrollmentManager();
+
+        // act
+        Deencapsulation.invoke(
+                individualEnrollmentManager, "bulkOperation",
+                new Class[] {BulkOperationMode.class, Iterator.class, int.class}, BulkOperationMode.CREATE, individualEnrollments, 0);
+
+        // assert
+    }
 }
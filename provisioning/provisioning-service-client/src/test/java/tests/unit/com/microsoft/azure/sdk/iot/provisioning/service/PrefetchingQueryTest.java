@@ -0,0 +1,312 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.provisioning.service;
+
+import com.microsoft.azure.sdk.iot.deps.transport.http.HttpMethod;
+import com.microsoft.azure.sdk.iot.deps.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.provisioning.service.*;
+import com.microsoft.azure.sdk.iot.provisioning.service.configs.*;
+import com.microsoft.azure.sdk.iot.provisioning.service.contract.ContractApiHttp;
+import com.microsoft.azure.sdk.iot.provisioning.service.exceptions.*;
+import mockit.*;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PrefetchingQuery iterator.
+ */
+public class PrefetchingQueryTest
+{
+    private static final String TARGET_PATH = "enrollments";
+    private static final String QUERY_PATH = "enrollments/query";
+    private static final String CONTINUATION_TOKEN_KEY = "x-ms-continuation";
+
+    @Mocked
+    private ContractApiHttp mockedContractApiHttp;
+
+    @Mocked
+    private QuerySpecification mockedQuerySpecification;
+
+    @Mocked
+    private HttpResponse mockedHttpResponse;
+
+    @SuppressWarnings("unchecked")
+    private PrefetchingQuery<IndividualEnrollment> createQuery(int pageSize, int maxBufferedPages)
+    {
+        return Deencapsulation.newInstance(PrefetchingQuery.class,
+                new Class[]{ContractApiHttp.class, String.class, QuerySpecification.class, int.class, int.class, Class.class},
+                mockedContractApiHttp, TARGET_PATH, mockedQuerySpecification, pageSize, maxBufferedPages, IndividualEnrollment.class);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNonPositiveMaxBufferedPages()
+    {
+        // act
+        createQuery(10, 0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNegativePageSize()
+    {
+        // act
+        createQuery(-1, 1);
+    }
+
+    @Test
+    public void iteratesItemsOfAllPages() throws ProvisioningServiceClientException
+    {
+        // arrange
+        final Map<String, String> firstPageHeaders = new HashMap<>();
+        firstPageHeaders.put(CONTINUATION_TOKEN_KEY, "validToken");
+        new NonStrictExpectations()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, QUERY_PATH, (Map<String, String>)any, anyString);
+                result = mockedHttpResponse;
+                mockedHttpResponse.getBody();
+                returns("[{\"registrationId\":\"id-1\"},{\"registrationId\":\"id-2\"}]".getBytes(), "[{\"registrationId\":\"id-3\"}]".getBytes());
+                mockedHttpResponse.getHeaderFields();
+                returns(firstPageHeaders, Collections.<String, String>emptyMap());
+            }
+        };
+        PrefetchingQuery<IndividualEnrollment> query = createQuery(10, 2);
+
+        // act
+        List<String> registrationIds = query.stream().map(IndividualEnrollment::getRegistrationId).collect(Collectors.toList());
+
+        // assert
+        assertEquals(3, registrationIds.size());
+        assertEquals("id-1", registrationIds.get(0));
+        assertEquals("id-3", registrationIds.get(2));
+        assertNull(query.getContinuationToken());
+        new Verifications()
+        {
+            {
+                Map<String, String> headerParameters;
+                mockedContractApiHttp.request(HttpMethod.POST, QUERY_PATH, headerParameters = withCapture(), anyString);
+                times = 2;
+                assertEquals("10", headerParameters.get("x-ms-max-item-count"));
+            }
+        };
+    }
+
+    @Test
+    public void skipsEmptyPages() throws ProvisioningServiceClientException
+    {
+        // arrange
+        final Map<String, String> firstPageHeaders = new HashMap<>();
+        firstPageHeaders.put(CONTINUATION_TOKEN_KEY, "validToken");
+        new NonStrictExpectations()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, QUERY_PATH, (Map<String, String>)any, anyString);
+                result = mockedHttpResponse;
+                mockedHttpResponse.getBody();
+                returns("[]".getBytes(), "[{\"registrationId\":\"id-1\"}]".getBytes());
+                mockedHttpResponse.getHeaderFields();
+                returns(firstPageHeaders, Collections.<String, String>emptyMap());
+            }
+        };
+        PrefetchingQuery<IndividualEnrollment> query = createQuery(0, 1);
+
+        // act
+        assertTrue(query.hasNext());
+        IndividualEnrollment individualEnrollment = query.next();
+
+        // assert
+        assertEquals("id-1", individualEnrollment.getRegistrationId());
+        assertFalse(query.hasNext());
+    }
+
+    @Test (expected = NoSuchElementException.class)
+    public void nextThrowsAfterLastItem() throws ProvisioningServiceClientException
+    {
+        // arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, QUERY_PATH, (Map<String, String>)any, anyString);
+                result = mockedHttpResponse;
+                mockedHttpResponse.getBody();
+                result = "[]".getBytes();
+                mockedHttpResponse.getHeaderFields();
+                result = Collections.<String, String>emptyMap();
+            }
+        };
+        PrefetchingQuery<IndividualEnrollment> query = createQuery(0, 1);
+
+        // act
+        query.next();
+    }
+
+    @Test
+    public void nextThrowsOnFailedPage() throws ProvisioningServiceClientException
+    {
+        // arrange
+        final ProvisioningServiceClientException failure = new ProvisioningServiceClientNotFoundException();
+        new NonStrictExpectations()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, QUERY_PATH, (Map<String, String>)any, anyString);
+                result = failure;
+            }
+        };
+        PrefetchingQuery<IndividualEnrollment> query = createQuery(0, 1);
+
+        try
+        {
+            // act
+            query.next();
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // assert
+            assertEquals(failure, e.getCause());
+        }
+    }
+
+    @Test (timeout = 10000)
+    public void hasNextRethrowsFailureOfFailedPage() throws ProvisioningServiceClientException
+    {
+        // arrange
+        final ProvisioningServiceClientException failure = new ProvisioningServiceClientNotFoundException();
+        new NonStrictExpectations()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, QUERY_PATH, (Map<String, String>)any, anyString);
+                result = failure;
+            }
+        };
+        PrefetchingQuery<IndividualEnrollment> query = createQuery(0, 1);
+        try
+        {
+            query.hasNext();
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertEquals(failure, e.getCause());
+        }
+
+        try
+        {
+            // act
+            query.hasNext();
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // assert
+            assertEquals(failure, e.getCause());
+        }
+    }
+
+    @Test (timeout = 10000)
+    public void hasNextReturnsFalseAfterClose() throws ProvisioningServiceClientException
+    {
+        // arrange
+        final Map<String, String> pageHeaders = new HashMap<>();
+        pageHeaders.put(CONTINUATION_TOKEN_KEY, "validToken");
+        new NonStrictExpectations()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, QUERY_PATH, (Map<String, String>)any, anyString);
+                result = mockedHttpResponse;
+                mockedHttpResponse.getBody();
+                result = "[{\"registrationId\":\"id-1\"}]".getBytes();
+                mockedHttpResponse.getHeaderFields();
+                result = pageHeaders;
+            }
+        };
+        PrefetchingQuery<IndividualEnrollment> query = createQuery(0, 1);
+        assertTrue(query.hasNext());
+        query.next();
+
+        // act
+        query.close();
+
+        // assert
+        assertFalse(query.hasNext());
+    }
+
+    @Test (timeout = 10000)
+    public void closeWakesUpConsumerWaitingForPage() throws ProvisioningServiceClientException, InterruptedException
+    {
+        // arrange
+        final CountDownLatch requestStarted = new CountDownLatch(1);
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+        new NonStrictExpectations()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, QUERY_PATH, (Map<String, String>)any, anyString);
+                result = new Delegate<HttpResponse>()
+                {
+                    HttpResponse request(HttpMethod httpMethod, String path, Map<String, String> headerParameters, String payload) throws InterruptedException
+                    {
+                        requestStarted.countDown();
+                        neverReleased.await();
+                        return mockedHttpResponse;
+                    }
+                };
+            }
+        };
+        final PrefetchingQuery<IndividualEnrollment> query = createQuery(0, 1);
+        final AtomicBoolean hasNext = new AtomicBoolean(true);
+        Thread consumer = new Thread(() -> hasNext.set(query.hasNext()));
+        consumer.start();
+        requestStarted.await();
+
+        // act
+        query.close();
+        consumer.join();
+
+        // assert
+        assertFalse(hasNext.get());
+    }
+
+    @Test
+    public void prefetchStopsWhenBufferIsFull() throws ProvisioningServiceClientException, InterruptedException
+    {
+        // arrange
+        final Map<String, String> pageHeaders = new HashMap<>();
+        pageHeaders.put(CONTINUATION_TOKEN_KEY, "validToken");
+        new NonStrictExpectations()
+        {
+            {
+                mockedContractApiHttp.request(HttpMethod.POST, QUERY_PATH, (Map<String, String>)any, anyString);
+                result = mockedHttpResponse;
+                mockedHttpResponse.getBody();
+                result = "[{\"registrationId\":\"id-1\"}]".getBytes();
+                mockedHttpResponse.getHeaderFields();
+                result = pageHeaders;
+            }
+        };
+
+        // act
+        PrefetchingQuery<IndividualEnrollment> query = createQuery(0, 1);
+        Thread.sleep(200);
+        query.close();
+
+        // assert
+        new Verifications()
+        {
+            {
+                // one page buffered, and one waiting for room in the buffer
+                mockedContractApiHttp.request(HttpMethod.POST, QUERY_PATH, (Map<String, String>)any, anyString);
+                maxTimes = 2;
+            }
+        };
+    }
+}
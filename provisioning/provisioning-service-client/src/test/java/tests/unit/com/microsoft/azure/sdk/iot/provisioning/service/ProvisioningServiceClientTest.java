@@ -14,8 +14,10 @@ import mockit.Mocked;
 import mockit.NonStrictExpectations;
 import org.junit.Test;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -311,6 +313,42 @@ public class ProvisioningServiceClientTest
         assertNotNull(result);
     }
 
+    @Test
+    public void runBulkEnrollmentOperationStreamSucceed(
+            @Mocked final IndividualEnrollment mockedIndividualEnrollment,
+            @Mocked final Stream<BulkEnrollmentOperationResult> mockedResults)
+    {
+        // arrange
+        final List<IndividualEnrollment> individualEnrollments = new LinkedList<>();
+        individualEnrollments.add(mockedIndividualEnrollment);
+        ProvisioningServiceClient provisioningServiceClient = createClient();
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockedIndividualEnrollmentManager, "bulkOperation",
+                        new Class[] {BulkOperationMode.class, Iterator.class, int.class}, BulkOperationMode.CREATE, (Iterator<IndividualEnrollment>)any, 4);
+                result = mockedResults;
+                times = 1;
+            }
+        };
+
+        // act
+        Stream<BulkEnrollmentOperationResult> result = provisioningServiceClient.runBulkEnrollmentOperation(BulkOperationMode.CREATE, individualEnrollments, 4);
+
+        // assert
+        assertNotNull(result);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void runBulkEnrollmentOperationStreamThrowsOnNullEnrollments()
+    {
+        // arrange
+        ProvisioningServiceClient provisioningServiceClient = createClient();
+
+        // act
+        provisioningServiceClient.runBulkEnrollmentOperation(BulkOperationMode.CREATE, (Iterable<IndividualEnrollment>)null, 4);
+    }
+
     /* SRS_PROVISIONING_SERVICE_CLIENT_21_010: [The getIndividualEnrollment shall retrieve the individualEnrollment information for the provided registrationId by calling the get in the individualEnrollmentManager.] */
     @Test
     public void getIndividualEnrollmentSucceed(
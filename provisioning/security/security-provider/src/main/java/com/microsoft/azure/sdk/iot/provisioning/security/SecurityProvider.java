@@ -20,6 +20,7 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.UUID;
 
 public abstract class SecurityProvider
@@ -100,6 +101,8 @@ public abstract class SecurityProvider
                     "R9I4LtD+gdwyah617jzV/OeBHRnDJELqYzmp\r\n" +
                     "-----END CERTIFICATE-----\r\n";
 
+    private static Collection<? extends Certificate> defaultTrustedCerts;
+
     /**
      * Unique id required for registration
      * @return Returns the registration Id used needed for the service
@@ -122,15 +125,7 @@ public abstract class SecurityProvider
         KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
         keyStore.load(null);
 
-        //SRS_SecurityClient_25_002: [ This method shall retrieve the default CertificateFactory instance. ]
-        CertificateFactory certFactory = CertificateFactory.getInstance(DEFAULT_CERT_INSTANCE);
-        Collection<? extends Certificate> trustedCert;
-        try (InputStream certStreamArray = new ByteArrayInputStream(DEFAULT_TRUSTED_CERT.getBytes()))
-        {
-            trustedCert =  certFactory.generateCertificates(certStreamArray);
-        }
-
-        for (Certificate c : trustedCert)
+        for (Certificate c : getDefaultTrustedCerts())
         {
             //SRS_SecurityClient_25_003: [ This method shall load all the trusted certificates to the keystore. ]
             keyStore.setCertificateEntry(TRUSTED_CERT_ALIAS + UUID.randomUUID(), c);
@@ -138,4 +133,20 @@ public abstract class SecurityProvider
 
         return keyStore;
     }
+
+    private static synchronized Collection<? extends Certificate> getDefaultTrustedCerts() throws CertificateException, IOException
+    {
+        // The default certificates never change, parse them once per process rather than once per registration
+        if (defaultTrustedCerts == null)
+        {
+            //SRS_SecurityClient_25_002: [ This method shall retrieve the default CertificateFactory instance. ]
+            CertificateFactory certFactory = CertificateFactory.getInstance(DEFAULT_CERT_INSTANCE);
+            try (InputStream certStreamArray = new ByteArrayInputStream(DEFAULT_TRUSTED_CERT.getBytes()))
+            {
+                defaultTrustedCerts = Collections.unmodifiableCollection(certFactory.generateCertificates(certStreamArray));
+            }
+        }
+
+        return defaultTrustedCerts;
+    }
 }
@@ -284,6 +284,7 @@ public class ExportImportDevice
         this.eTag = parser.getETag();
         this.id = parser.getIdFinal();
         this.statusReason = parser.getStatusReason();
+        this.tags = parser.getTags();
 
         if (parser.getImportMode() != null)
         {
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.ExportImportDeviceParser;
+import com.microsoft.azure.sdk.iot.deps.util.DaemonThreadFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the devices of a blob exported by {@link RegistryManager#exportDevices(String, Boolean)}, or of a file with
+ * the same content, one {@link ExportImportDevice} at a time.
+ *
+ * <p> The blob holds one json device per line. The lines are read in chunks, and each chunk is decoded by a pool of
+ *     threads while the next ones are read, so the devices are returned in the order of the blob. Up to
+ *     {@code parallelism} chunks are read ahead of the one being consumed, so the memory used by the reader is bounded
+ *     whatever the size of the blob.
+ *
+ * <p> The reader can be used as an {@code Iterator}, or as a {@code Stream} by calling {@link #stream()}. Close the
+ *     reader, or the stream, to close the input stream and stop the decoding threads.
+ *
+ * @see ExportImportDeviceWriter
+ */
+public class ExportImportDeviceReader implements Iterator<ExportImportDevice>, Closeable
+{
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("azure-iot-sdk-ExportImportDeviceReader-");
+
+    private final BufferedReader reader;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService decoders;
+    private final Queue<Future<Chunk>> chunks;
+
+    private Iterator<ExportImportDevice> currentChunk = Collections.emptyIterator();
+    private IllegalArgumentException currentChunkFailure = null;
+    private long linesRead = 0;
+    private boolean isEndOfInput = false;
+
+    /**
+     * The devices decoded from a chunk of lines, and the failure to decode the line after them, if any.
+     */
+    private static final class Chunk
+    {
+        private final List<ExportImportDevice> devices;
+        private final IllegalArgumentException failure;
+
+        private Chunk(List<ExportImportDevice> devices, IllegalArgumentException failure)
+        {
+            this.devices = devices;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Create a reader that decodes chunks of 1000 devices with one thread per available processor.
+     *
+     * @param inputStream the {@code InputStream} with the UTF-8 content of the blob. It cannot be {@code null}.
+     * @throws IllegalArgumentException if the inputStream is {@code null}.
+     */
+    public ExportImportDeviceReader(InputStream inputStream) throws IllegalArgumentException
+    {
+        this(inputStream, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a reader.
+     *
+     * @param inputStream the {@code InputStream} with the UTF-8 content of the blob. It cannot be {@code null}.
+     * @param chunkSize the number of lines decoded together by a thread. It shall be positive.
+     * @param parallelism the number of threads that decode the chunks, and of chunks read ahead. It shall be positive.
+     * @throws IllegalArgumentException if the inputStream is {@code null}, or if the chunkSize or parallelism is not positive.
+     */
+    public ExportImportDeviceReader(InputStream inputStream, int chunkSize, int parallelism) throws IllegalArgumentException
+    {
+        if (inputStream == null)
+        {
+            throw new IllegalArgumentException("inputStream cannot be null");
+        }
+        if (chunkSize <= 0)
+        {
+            throw new IllegalArgumentException("chunkSize shall be positive");
+        }
+        if (parallelism <= 0)
+        {
+            throw new IllegalArgumentException("parallelism shall be positive");
+        }
+
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.chunks = new ArrayDeque<>(parallelism);
+        this.decoders = Executors.newFixedThreadPool(parallelism, THREAD_FACTORY);
+    }
+
+    /**
+     * Getter for the existence of more devices.
+     *
+     * <p> It waits for the next chunk to be decoded if the devices of the current chunk are all consumed.
+     *
+     * @return The {@code boolean} {@code true} if there are more devices in the blob.
+     * @throws UncheckedIOException if the blob could not be read.
+     * @throws IllegalArgumentException if a line of the blob is not a valid device.
+     */
+    @Override
+    public boolean hasNext() throws UncheckedIOException, IllegalArgumentException
+    {
+        try
+        {
+            while (!this.currentChunk.hasNext())
+            {
+                if (this.currentChunkFailure != null)
+                {
+                    // the devices before the invalid line were all returned
+                    throw this.currentChunkFailure;
+                }
+
+                this.readChunks();
+                if (this.chunks.isEmpty())
+                {
+                    this.close();
+                    return false;
+                }
+
+                Chunk chunk = this.takeChunk();
+                this.currentChunk = chunk.devices.iterator();
+                this.currentChunkFailure = chunk.failure;
+            }
+
+            return true;
+        }
+        catch (IOException e)
+        {
+            this.close();
+            throw new UncheckedIOException(e);
+        }
+        catch (RuntimeException e)
+        {
+            this.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Return the next device of the blob.
+     *
+     * @return The next device of the blob.
+     * @throws NoSuchElementException if the blob does not have more devices to return.
+     * @throws UncheckedIOException if the blob could not be read.
+     * @throws IllegalArgumentException if a line of the blob is not a valid device.
+     */
+    @Override
+    public ExportImportDevice next() throws NoSuchElementException, UncheckedIOException, IllegalArgumentException
+    {
+        if (!this.hasNext())
+        {
+            throw new NoSuchElementException("There are no more devices");
+        }
+
+        return this.currentChunk.next();
+    }
+
+    /**
+     * Return the devices of the blob as a {@code Stream}. Closing the stream closes the reader.
+     *
+     * @return A sequential {@code Stream} of the devices of the blob.
+     */
+    public Stream<ExportImportDevice> stream()
+    {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Stop the decoding threads, and close the input stream.
+     */
+    @Override
+    public void close()
+    {
+        this.isEndOfInput = true;
+        this.decoders.shutdownNow();
+        this.chunks.clear();
+        this.currentChunk = Collections.emptyIterator();
+        this.currentChunkFailure = null;
+        try
+        {
+            this.reader.close();
+        }
+        catch (IOException e)
+        {
+            // nothing more can be read from the blob anyway
+        }
+    }
+
+    private void readChunks() throws IOException
+    {
+        while (!this.isEndOfInput && (this.chunks.size() < this.parallelism))
+        {
+            final long firstLineNumber = this.linesRead + 1;
+            final List<String> lines = new ArrayList<>(this.chunkSize);
+            String line;
+            while ((lines.size() < this.chunkSize) && ((line = this.reader.readLine()) != null))
+            {
+                lines.add(line);
+            }
+
+            this.linesRead += lines.size();
+            if (lines.size() < this.chunkSize)
+            {
+                this.isEndOfInput = true;
+            }
+            if (!lines.isEmpty())
+            {
+                this.chunks.add(this.decoders.submit(() -> decode(lines, firstLineNumber)));
+            }
+        }
+    }
+
+    private Chunk takeChunk()
+    {
+        try
+        {
+            return this.chunks.remove().get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next devices", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Chunk decode(List<String> lines, long firstLineNumber)
+    {
+        List<ExportImportDevice> devices = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++)
+        {
+            String line = lines.get(i);
+            if (line.trim().isEmpty())
+            {
+                continue;
+            }
+
+            try
+            {
+                devices.add(new ExportImportDevice(new ExportImportDeviceParser(line)));
+            }
+            catch (IllegalArgumentException e)
+            {
+                return new Chunk(devices, new IllegalArgumentException("Line " + (firstLineNumber + i) + " is not a valid device", e));
+            }
+        }
+
+        return new Chunk(devices, null);
+    }
+}
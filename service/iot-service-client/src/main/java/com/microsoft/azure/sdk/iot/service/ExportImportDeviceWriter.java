@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Writes devices in the format of the blobs read by {@link RegistryManager#importDevices(String, String)}, one
+ * json {@link ExportImportDevice} per line.
+ *
+ * <p> The devices are written as they are provided, so the memory used by the writer does not depend on the number
+ *     of devices in the blob.
+ *
+ * @see ExportImportDeviceReader
+ */
+public class ExportImportDeviceWriter implements Closeable, Flushable
+{
+    private static final char LINE_SEPARATOR = '\n';
+
+    private final Writer writer;
+
+    /**
+     * Create a writer.
+     *
+     * @param outputStream the {@code OutputStream} that receives the UTF-8 content of the blob. It cannot be {@code null}.
+     * @throws IllegalArgumentException if the outputStream is {@code null}.
+     */
+    public ExportImportDeviceWriter(OutputStream outputStream) throws IllegalArgumentException
+    {
+        if (outputStream == null)
+        {
+            throw new IllegalArgumentException("outputStream cannot be null");
+        }
+
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write a device.
+     *
+     * @param device the device to write. It cannot be {@code null}.
+     * @throws IllegalArgumentException if the device is {@code null}.
+     * @throws IOException if the device could not be written.
+     */
+    public void write(ExportImportDevice device) throws IllegalArgumentException, IOException
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("device cannot be null");
+        }
+
+        this.writer.write(device.toExportImportDeviceParser().toJson());
+        this.writer.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write all the devices of an iterator, such as the one of an {@link ExportImportDeviceReader}.
+     *
+     * @param devices the devices to write. It cannot be {@code null}, or return a {@code null} device.
+     * @return the number of devices written.
+     * @throws IllegalArgumentException if the devices are {@code null}, or if one of them is {@code null}.
+     * @throws IOException if one of the devices could not be written.
+     */
+    public long writeAll(Iterator<ExportImportDevice> devices) throws IllegalArgumentException, IOException
+    {
+        if (devices == null)
+        {
+            throw new IllegalArgumentException("devices cannot be null");
+        }
+
+        long count = 0;
+        while (devices.hasNext())
+        {
+            this.write(devices.next());
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Write the buffered devices to the output stream.
+     *
+     * @throws IOException if the devices could not be written.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        this.writer.flush();
+    }
+
+    /**
+     * Write the buffered devices, and close the output stream.
+     *
+     * @throws IOException if the devices could not be written, or the output stream could not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        this.writer.close();
+    }
+}
@@ -13,6 +13,7 @@ import com.microsoft.azure.sdk.iot.deps.serializer.RegistryStatisticsParser;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
+import com.microsoft.azure.sdk.iot.service.transport.AsyncOperationExecutor;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
@@ -29,7 +30,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Use the RegistryManager class to manage the identity registry in IoT Hubs.
@@ -37,8 +37,9 @@ import java.util.concurrent.Executors;
 public class RegistryManager
 {
     private final Integer DEFAULT_HTTP_TIMEOUT_MS = 24000;
-    private static final int EXECUTOR_THREAD_POOL_SIZE = 10;
+    private static final String EXECUTOR_THREAD_NAME = "azure-iot-sdk-RegistryManager-";
     private ExecutorService executor;
+    private boolean isUserExecutor = false;
     private IotHubConnectionString iotHubConnectionString;
 
     /**
@@ -63,7 +64,7 @@ public class RegistryManager
         iotHubRegistryManager.iotHubConnectionString = iotHubConnectionString;
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_34_090: [The function shall start this object's executor service]
-        iotHubRegistryManager.executor = Executors.newFixedThreadPool(EXECUTOR_THREAD_POOL_SIZE);
+        iotHubRegistryManager.executor = new AsyncOperationExecutor(AsyncOperationExecutor.DEFAULT_MAX_CONCURRENCY, EXECUTOR_THREAD_NAME);
 
         return iotHubRegistryManager;
     }
@@ -77,13 +78,58 @@ public class RegistryManager
     {
     }
 
+    /**
+     * Setter for the maximum number of asynchronous operations of this registry manager that run at the same time.
+     * The other operations wait for their turn. By default, up to {@link AsyncOperationExecutor#DEFAULT_MAX_CONCURRENCY}
+     * operations run at the same time.
+     *
+     * @param maxConcurrency the maximum number of asynchronous operations that run at the same time. It shall be positive.
+     * @throws IllegalArgumentException if the maxConcurrency is not positive.
+     */
+    public void setMaxConcurrency(int maxConcurrency) throws IllegalArgumentException
+    {
+        if (maxConcurrency <= 0)
+        {
+            throw new IllegalArgumentException("maxConcurrency shall be positive");
+        }
+
+        if (this.executor instanceof AsyncOperationExecutor)
+        {
+            ((AsyncOperationExecutor) this.executor).setMaxConcurrency(maxConcurrency);
+        }
+    }
+
+    /**
+     * Setter for the executor that runs the asynchronous operations of this registry manager, instead of its own
+     * bounded pool of threads. For example, {@code Executors.newVirtualThreadPerTaskExecutor()} runs each operation in
+     * its own virtual thread. The executor is not shut down by {@link #close()}, and {@link #setMaxConcurrency(int)}
+     * has no effect on it.
+     *
+     * @param executor the executor of the asynchronous operations. It cannot be {@code null}.
+     * @throws IllegalArgumentException if the executor is {@code null}.
+     */
+    public void setAsyncExecutor(ExecutorService executor) throws IllegalArgumentException
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+
+        if (!this.isUserExecutor && (this.executor != null))
+        {
+            this.executor.shutdown();
+        }
+        this.executor = executor;
+        this.isUserExecutor = true;
+    }
+
     /**
      * Gracefully close running threads, and then shutdown the underlying executor service
      */
     public void close()
     {
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_34_087: [The function shall tell this object's executor service to shutdown]
-        if (executor != null && !executor.isTerminated())
+        if (!this.isUserExecutor && executor != null && !executor.isTerminated())
         {
             this.executor.shutdownNow();
         }
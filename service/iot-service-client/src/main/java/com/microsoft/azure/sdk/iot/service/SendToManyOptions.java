@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+/**
+ * Options for {@link ServiceClient#sendToMany(java.util.Collection, Message, SendToManyOptions)}
+ */
+public class SendToManyOptions
+{
+    /** Default maximum number of unacknowledged messages per connection */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 100;
+    /** Default number of AMQP connections the messages are spread over */
+    public static final int DEFAULT_CONNECTION_COUNT = 1;
+    /** Connections run on the service client executor, so there can not be more of them than it has threads */
+    public static final int MAX_CONNECTION_COUNT = 10;
+
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int connectionCount = DEFAULT_CONNECTION_COUNT;
+    private String messageIdTemplate;
+
+    /**
+     * Getter for the maximum number of unacknowledged messages per connection
+     * @return the in flight window of each connection
+     */
+    public int getMaxInFlight()
+    {
+        return maxInFlight;
+    }
+
+    /**
+     * Setter for the maximum number of unacknowledged messages per connection
+     * @param maxInFlight the in flight window of each connection. Must be greater than 0
+     * @throws IllegalArgumentException if maxInFlight is less than 1
+     */
+    public void setMaxInFlight(int maxInFlight)
+    {
+        if (maxInFlight < 1)
+        {
+            throw new IllegalArgumentException("maxInFlight must be greater than 0");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Getter for the number of AMQP connections the messages are spread over
+     * @return the number of connections
+     */
+    public int getConnectionCount()
+    {
+        return connectionCount;
+    }
+
+    /**
+     * Setter for the number of AMQP connections the messages are spread over
+     * @param connectionCount the number of connections, between 1 and {@link #MAX_CONNECTION_COUNT}
+     * @throws IllegalArgumentException if connectionCount is out of range
+     */
+    public void setConnectionCount(int connectionCount)
+    {
+        if (connectionCount < 1 || connectionCount > MAX_CONNECTION_COUNT)
+        {
+            throw new IllegalArgumentException("connectionCount must be between 1 and " + MAX_CONNECTION_COUNT);
+        }
+        this.connectionCount = connectionCount;
+    }
+
+    /**
+     * Getter for the message id template
+     * @return the message id template, or null if the template message id is used as is
+     */
+    public String getMessageIdTemplate()
+    {
+        return messageIdTemplate;
+    }
+
+    /**
+     * Setter for the message id template. Every occurrence of {deviceId} is replaced with the id of
+     * the target device, for example "firmware-notice-{deviceId}".
+     * @param messageIdTemplate the message id template, or null to use the template message id for every device
+     */
+    public void setMessageIdTemplate(String messageIdTemplate)
+    {
+        this.messageIdTemplate = messageIdTemplate;
+    }
+}
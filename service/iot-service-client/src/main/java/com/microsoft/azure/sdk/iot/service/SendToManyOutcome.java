@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+/**
+ * The outcome of a cloud to device message sent to one device by
+ * {@link ServiceClient#sendToMany(java.util.Collection, Message, SendToManyOptions)}
+ */
+public class SendToManyOutcome
+{
+    private final String deviceId;
+    private final String messageId;
+    private final Exception exception;
+
+    /**
+     * Constructor
+     * @param deviceId the device the message was sent to
+     * @param messageId the message id used for this device
+     * @param exception the reason the send failed, or null if the service accepted the message
+     */
+    public SendToManyOutcome(String deviceId, String messageId, Exception exception)
+    {
+        this.deviceId = deviceId;
+        this.messageId = messageId;
+        this.exception = exception;
+    }
+
+    /**
+     * Getter for the device id
+     * @return the device the message was sent to
+     */
+    public String getDeviceId()
+    {
+        return deviceId;
+    }
+
+    /**
+     * Getter for the message id
+     * @return the message id used for this device
+     */
+    public String getMessageId()
+    {
+        return messageId;
+    }
+
+    /**
+     * Getter for the failure reason
+     * @return the reason the send failed, or null if the service accepted the message
+     */
+    public Exception getException()
+    {
+        return exception;
+    }
+
+    /**
+     * Getter for the success flag
+     * @return true if the service accepted the message
+     */
+    public boolean isSuccess()
+    {
+        return exception == null;
+    }
+}
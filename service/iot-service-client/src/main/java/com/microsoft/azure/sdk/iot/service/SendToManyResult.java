@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streaming report of a {@link ServiceClient#sendToMany(java.util.Collection, Message, SendToManyOptions)} operation.
+ * Outcomes become available as the service acknowledges each message and can be consumed while the
+ * operation is still running by iterating over this object. Outcomes are buffered until they are consumed.
+ */
+public class SendToManyResult implements Iterable<SendToManyOutcome>
+{
+    private final int totalCount;
+    private final BlockingQueue<SendToManyOutcome> outcomes = new LinkedBlockingQueue<>();
+    private final AtomicInteger succeededCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final CountDownLatch completion;
+    private final long startTimeNanos;
+    private volatile long endTimeNanos;
+
+    SendToManyResult(int totalCount)
+    {
+        this.totalCount = totalCount;
+        this.completion = new CountDownLatch(totalCount);
+        this.startTimeNanos = System.nanoTime();
+        if (totalCount == 0)
+        {
+            this.endTimeNanos = this.startTimeNanos;
+        }
+    }
+
+    void onOutcome(String deviceId, String messageId, Exception exception)
+    {
+        if (exception == null)
+        {
+            succeededCount.incrementAndGet();
+        }
+        else
+        {
+            failedCount.incrementAndGet();
+        }
+
+        outcomes.add(new SendToManyOutcome(deviceId, messageId, exception));
+
+        if (succeededCount.get() + failedCount.get() == totalCount)
+        {
+            endTimeNanos = System.nanoTime();
+        }
+        completion.countDown();
+    }
+
+    /**
+     * Block until every device has an outcome
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void awaitCompletion() throws InterruptedException
+    {
+        completion.await();
+    }
+
+    /**
+     * Block until every device has an outcome or the timeout elapses
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if every device has an outcome, false if the timeout elapsed first
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return completion.await(timeout, unit);
+    }
+
+    /**
+     * Getter for the completion state
+     * @return true if every device has an outcome
+     */
+    public boolean isComplete()
+    {
+        return completion.getCount() == 0;
+    }
+
+    /**
+     * Getter for the number of devices targeted by the operation
+     * @return the number of devices
+     */
+    public int getTotalCount()
+    {
+        return totalCount;
+    }
+
+    /**
+     * Getter for the number of messages accepted by the service so far
+     * @return the number of accepted messages
+     */
+    public int getSucceededCount()
+    {
+        return succeededCount.get();
+    }
+
+    /**
+     * Getter for the number of messages that failed so far
+     * @return the number of failed messages
+     */
+    public int getFailedCount()
+    {
+        return failedCount.get();
+    }
+
+    /**
+     * Getter for the time spent on the operation, up to now if it is still running
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis()
+    {
+        long end = isComplete() ? endTimeNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startTimeNanos);
+    }
+
+    /**
+     * Getter for the aggregate throughput of the operation, up to now if it is still running
+     * @return the number of completed messages per second
+     */
+    public double getMessagesPerSecond()
+    {
+        long end = isComplete() ? endTimeNanos : System.nanoTime();
+        long elapsedNanos = end - startTimeNanos;
+        if (elapsedNanos <= 0)
+        {
+            return 0;
+        }
+        return (succeededCount.get() + failedCount.get()) * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Iterate over the outcomes as they arrive. {@code hasNext} blocks until the next outcome is
+     * available, and returns false once every outcome has been consumed. Outcomes are removed as they are
+     * returned, so the report can be iterated only once.
+     * @return a blocking iterator over the per device outcomes
+     */
+    @Override
+    public Iterator<SendToManyOutcome> iterator()
+    {
+        return new Iterator<SendToManyOutcome>()
+        {
+            private int consumed = 0;
+            private SendToManyOutcome next;
+
+            @Override
+            public boolean hasNext()
+            {
+                if (next != null)
+                {
+                    return true;
+                }
+                if (consumed >= totalCount)
+                {
+                    return false;
+                }
+                try
+                {
+                    next = outcomes.take();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public SendToManyOutcome next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                SendToManyOutcome outcome = next;
+                next = null;
+                consumed++;
+                return outcome;
+            }
+        };
+    }
+}
@@ -5,22 +5,39 @@
 
 package com.microsoft.azure.sdk.iot.service;
 
+import com.microsoft.azure.sdk.iot.deps.util.DaemonThreadFactory;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpBulkSendHandler;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSend;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Extend the ServiceClient class and provide AMPQ specific implementation.
  */
 public class ServiceClient
 {
+    private static final long BULK_SEND_IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
     private final ExecutorService executor = Executors.newFixedThreadPool(10);
 
+    // The bulk send reactors run for the whole sendToMany, on their own threads so that they do not starve the
+    // asynchronous operations. At most one sendToMany worth of connections runs at a time, the others queue, and the
+    // threads stop once idle.
+    private final ThreadPoolExecutor bulkSendExecutor = createBulkSendExecutor();
+
     private AmqpSend amqpMessageSender;
     private final String hostName;
     private final String userName;
@@ -211,6 +228,84 @@ public class ServiceClient
         return future;
     }
 
+    /**
+     * Send the same one-way message to many devices. Messages are pipelined over persistent AMQP connections
+     * instead of opening one connection per device, and at most {@link SendToManyOptions#getMaxInFlight()}
+     * messages are awaiting acknowledgement on each connection at any time.
+     * The call returns immediately, the returned report streams the outcome of every device as it is known.
+     * The connections run apart from the asynchronous operations of this client, and at most
+     * {@link SendToManyOptions#MAX_CONNECTION_COUNT} of them run at a time, the connections of concurrent calls wait for them.
+     *
+     * @param deviceIds The device identifiers of the target devices
+     * @param template The message sent to every device. Its message id is replaced according to {@link SendToManyOptions#getMessageIdTemplate()}
+     * @param options The options for this operation, or null to use the defaults
+     * @return The streaming report of the operation
+     * @throws IOException This exception is thrown if the AmqpSender object is not initialized
+     */
+    public SendToManyResult sendToMany(Collection<String> deviceIds, Message template, SendToManyOptions options) throws IOException
+    {
+        if (deviceIds == null)
+        {
+            throw new IllegalArgumentException("deviceIds cannot be null");
+        }
+        if (template == null)
+        {
+            throw new IllegalArgumentException("template cannot be null");
+        }
+        if (this.amqpMessageSender == null)
+        {
+            throw new IOException("AMQP sender is not initialized");
+        }
+        if (options == null)
+        {
+            options = new SendToManyOptions();
+        }
+
+        final SendToManyResult result = new SendToManyResult(deviceIds.size());
+        // The connections poll the devices from a lock free queue, so no monitor is held while their reactors run
+        final Queue<String> deviceIdQueue = new ConcurrentLinkedQueue<>();
+        for (String deviceId : deviceIds)
+        {
+            if (deviceId == null)
+            {
+                throw new IllegalArgumentException("deviceIds cannot contain null");
+            }
+            deviceIdQueue.add(deviceId);
+        }
+        final String messageIdTemplate = options.getMessageIdTemplate();
+        final int maxInFlight = options.getMaxInFlight();
+
+        List<CompletableFuture<Void>> connections = new ArrayList<>();
+        for (int i = 0; i < Math.min(options.getConnectionCount(), Math.max(deviceIds.size(), 1)); i++)
+        {
+            final CompletableFuture<Void> connection = new CompletableFuture<>();
+            bulkSendExecutor.execute(() -> {
+                try
+                {
+                    this.amqpMessageSender.sendBulk(deviceIdQueue, template, messageIdTemplate, maxInFlight, result::onOutcome);
+                    connection.complete(null);
+                }
+                catch (Exception e)
+                {
+                    connection.completeExceptionally(e);
+                }
+            });
+            connections.add(connection);
+        }
+
+        CompletableFuture.allOf(connections.toArray(new CompletableFuture[0])).whenComplete((ignored, throwable) -> {
+            // Devices still in the queue were never sent because every connection failed
+            Exception cause = throwable == null ? new IOException("No connection was available to send the message") : new IOException(throwable);
+            String deviceId;
+            while ((deviceId = deviceIdQueue.poll()) != null)
+            {
+                result.onOutcome(deviceId, AmqpBulkSendHandler.resolveMessageId(messageIdTemplate, template, deviceId), cause);
+            }
+        });
+
+        return result;
+    }
+
     /**
      * Get FeedbackReceiver object.This API has been deprecated. Use new API without deviceId as an input parameter.
      * @deprecated As of release 1.1.15, replaced by {@link #getFeedbackReceiver()}
@@ -247,5 +342,14 @@ public class ServiceClient
     {
         return new FileUploadNotificationReceiver(hostName, userName, sasToken, iotHubServiceClientProtocol);
     }
-    
+
+    private static ThreadPoolExecutor createBulkSendExecutor()
+    {
+        ThreadPoolExecutor bulkSendExecutor = new ThreadPoolExecutor(
+                SendToManyOptions.MAX_CONNECTION_COUNT, SendToManyOptions.MAX_CONNECTION_COUNT,
+                BULK_SEND_IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("azure-iot-sdk-ServiceClientBulkSend-"));
+        bulkSendExecutor.allowCoreThreadTimeOut(true);
+        return bulkSendExecutor;
+    }
 }
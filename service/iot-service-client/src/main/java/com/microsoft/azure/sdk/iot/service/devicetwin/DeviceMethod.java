@@ -7,6 +7,7 @@ import com.microsoft.azure.sdk.iot.deps.serializer.MethodParser;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.transport.AsyncOperationExecutor;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
 
@@ -14,6 +15,9 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * DeviceMethod enables service client to directly invoke methods on various devices from service client.
@@ -21,7 +25,8 @@ import java.util.Date;
 public class DeviceMethod
 {
     private IotHubConnectionString iotHubConnectionString = null;
-    private Integer requestId = 0;
+    private final AtomicInteger requestId = new AtomicInteger();
+    private ExecutorService asyncExecutor = new AsyncOperationExecutor(AsyncOperationExecutor.DEFAULT_MAX_CONCURRENCY, "azure-iot-sdk-DeviceMethod-");
     private static final int DEFAULT_RESPONSE_TIMEOUT = 30; // default response timeout is 30 seconds
     private static final int DEFAULT_CONNECT_TIMEOUT = 0;
     private static final int THOUSAND_MS = 1000;
@@ -61,7 +66,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed
      * @throws IOException This exception is thrown if the IO operation failed
      */
-    public synchronized MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
+    public MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
     {
         /* Codes_SRS_DEVICEMETHOD_21_004: [The invoke shall throw IllegalArgumentException if the provided deviceId is null or empty.] */
         if((deviceId == null) || deviceId.isEmpty())
@@ -94,7 +99,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed
      * @throws IOException This exception is thrown if the IO operation failed
      */
-    public synchronized MethodResult invoke(String deviceId, String moduleId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
+    public MethodResult invoke(String deviceId, String moduleId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
     {
         /* Codes_SRS_DEVICEMETHOD_28_001: [The invoke shall throw IllegalArgumentException if the provided deviceId is null or empty.] */
         if((deviceId == null) || deviceId.isEmpty())
@@ -120,6 +125,77 @@ public class DeviceMethod
         return invokeMethod(url, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload);
     }
 
+    /**
+     * Setter for the maximum number of asynchronous invocations of this DeviceMethod that run at the same time.
+     * The other invocations wait for their turn.
+     *
+     * @param maxConcurrency the maximum number of asynchronous invocations that run at the same time. It shall be positive.
+     * @throws IllegalArgumentException if the maxConcurrency is not positive.
+     */
+    public void setMaxConcurrency(int maxConcurrency) throws IllegalArgumentException
+    {
+        if (maxConcurrency <= 0)
+        {
+            throw new IllegalArgumentException("maxConcurrency shall be positive");
+        }
+
+        if (this.asyncExecutor instanceof AsyncOperationExecutor)
+        {
+            ((AsyncOperationExecutor) this.asyncExecutor).setMaxConcurrency(maxConcurrency);
+        }
+    }
+
+    /**
+     * Setter for the executor that runs the asynchronous operations of this DeviceMethod, instead of its own bounded pool of
+     * threads. For example, {@code Executors.newVirtualThreadPerTaskExecutor()} runs each operation in its own virtual
+     * thread. The executor is not shut down by this DeviceMethod, and {@link #setMaxConcurrency(int)} has no effect on it.
+     *
+     * @param executor the executor of the asynchronous operations. It cannot be {@code null}.
+     * @throws IllegalArgumentException if the executor is {@code null}.
+     */
+    public void setAsyncExecutor(ExecutorService executor) throws IllegalArgumentException
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+
+        this.asyncExecutor = executor;
+    }
+
+    /**
+     * Directly invokes a method on the device without blocking the caller.
+     *
+     * @param deviceId is the device where the request is send to.
+     * @param methodName is the name of the method that shall be invoked on the device.
+     * @param responseTimeoutInSeconds is the maximum waiting time for a response from the device in seconds.
+     * @param connectTimeoutInSeconds is the maximum waiting time for a response from the connection in seconds.
+     * @param payload is the the method parameter
+     * @return the future that completes with the status and payload resulted from the method invoke, or exceptionally
+     *         with the exception thrown by {@link #invoke(String, String, Long, Long, Object)}.
+     */
+    public CompletableFuture<MethodResult> invokeAsync(final String deviceId, final String methodName, final Long responseTimeoutInSeconds, final Long connectTimeoutInSeconds, final Object payload)
+    {
+        return AsyncOperationExecutor.submitOperation(this.asyncExecutor, () -> invoke(deviceId, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload));
+    }
+
+    /**
+     * Directly invokes a method on the module without blocking the caller.
+     *
+     * @param deviceId is the device where the module is related to.
+     * @param moduleId is the module where the request is sent to.
+     * @param methodName is the name of the method that shall be invoked on the device.
+     * @param responseTimeoutInSeconds is the maximum waiting time for a response from the device in seconds.
+     * @param connectTimeoutInSeconds is the maximum waiting time for a response from the connection in seconds.
+     * @param payload is the the method parameter
+     * @return the future that completes with the status and payload resulted from the method invoke, or exceptionally
+     *         with the exception thrown by {@link #invoke(String, String, String, Long, Long, Object)}.
+     */
+    public CompletableFuture<MethodResult> invokeAsync(final String deviceId, final String moduleId, final String methodName, final Long responseTimeoutInSeconds, final Long connectTimeoutInSeconds, final Object payload)
+    {
+        return AsyncOperationExecutor.submitOperation(this.asyncExecutor, () -> invoke(deviceId, moduleId, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload));
+    }
+
     /**
      * Directly invokes a method on the device and return its result.
      *
@@ -132,7 +208,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed
      * @throws IOException This exception is thrown if the IO operation failed
      */
-    private synchronized MethodResult invokeMethod(URL url, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
+    private MethodResult invokeMethod(URL url, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
     {
         /* Codes_SRS_DEVICEMETHOD_21_006: [The invoke shall throw IllegalArgumentException if the provided responseTimeoutInSeconds is negative.] */
         /* Codes_SRS_DEVICEMETHOD_21_007: [The invoke shall throw IllegalArgumentException if the provided connectTimeoutInSeconds is negative.] */
@@ -172,7 +248,7 @@ public class DeviceMethod
                
         /* Codes_SRS_DEVICEMETHOD_21_009: [The invoke shall send the created request and get the response using the HttpRequester.] */
         /* Codes_SRS_DEVICEMETHOD_21_010: [The invoke shall create a new HttpRequest with http method as `POST`.] */
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.POST, json.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId++), timeoutInMs);
+        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.POST, json.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId.getAndIncrement()), timeoutInMs);
 
         /* Codes_SRS_DEVICEMETHOD_21_013: [The invoke shall deserialize the payload using the `serializer.MethodParser`.] */
         MethodParser methodParserResponse = new MethodParser();
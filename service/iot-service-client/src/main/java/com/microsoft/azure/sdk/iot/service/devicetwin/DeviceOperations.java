@@ -31,8 +31,11 @@ public class DeviceOperations
     private static final String ACCEPT_VALUE = "application/json";
     private static final String ACCEPT_CHARSET = "charset=utf-8";
     private static final String CONTENT_TYPE = "Content-Type";
+    private static final String IF_NONE_MATCH = "If-None-Match";
     private static final Integer DEFAULT_HTTP_TIMEOUT_MS = 24000;
-    private static Map<String, String> headers = null;
+    private static final int NOT_MODIFIED_STATUS = 304;
+    // the headers set by the deprecated setHeaders, kept per thread so they never go on another thread's request
+    private static final ThreadLocal<Map<String, String>> headers = new ThreadLocal<>();
 
     /**
      * Send a http request to the IoTHub using the Twin/Method standard, and return its response.
@@ -55,6 +58,97 @@ public class DeviceOperations
             String requestId,
             long timeoutInMs) 
             throws IOException, IotHubException, IllegalArgumentException
+    {
+        Map<String, String> nextRequestHeaders = headers.get();
+        headers.remove();
+        return request(iotHubConnectionString, url, method, payload, requestId, timeoutInMs, nextRequestHeaders);
+    }
+
+    /**
+     * Send a http request to the IoTHub using the Twin/Method standard, with additional custom headers, and return
+     * its response.
+     *
+     * <p>The custom headers only go on this request, so concurrent requests never see each other's headers.</p>
+     *
+     * @param iotHubConnectionString is the connection string for the IoTHub
+     * @param url is the Twin URL for the device ID.
+     * @param method is the HTTP method (GET, POST, DELETE, PATCH, PUT).
+     * @param payload is the array of bytes that contains the payload.
+     * @param requestId is an unique number that identify the request.
+     * @param timeoutInMs is timeout in milliseconds.
+     * @param headers is the additional custom headers for this request. It may be {@code null}.
+     * @return the result of the request.
+     * @throws IotHubException This exception is thrown if the response verification failed
+     * @throws IOException This exception is thrown if the IO operation failed
+     */
+    public static HttpResponse request(
+            IotHubConnectionString iotHubConnectionString,
+            URL url,
+            HttpMethod method,
+            byte[] payload,
+            String requestId,
+            long timeoutInMs,
+            Map<String, String> headers)
+            throws IOException, IotHubException, IllegalArgumentException
+    {
+        HttpResponse response = send(iotHubConnectionString, url, method, payload, requestId, timeoutInMs, headers, null);
+
+        /* Codes_SRS_DEVICE_OPERATIONS_21_016: [If the resulted HttpResponseStatus represents fail, the request shall throw proper Exception by calling httpResponseVerification.] */
+        IotHubExceptionManager.httpResponseVerification(response);
+
+        /* Codes_SRS_DEVICE_OPERATIONS_21_017: [If the resulted status represents success, the request shall return the http response.] */
+        return response;
+    }
+
+    /**
+     * Send a conditional http GET request to the IoTHub using the Twin/Method standard, and return its response.
+     *
+     * <p>The request carries an {@code If-None-Match} header with the provided eTag, so the IoTHub answers with a
+     * 304 status and no body if the resource still has that eTag. Unlike the other statuses above 300, the 304
+     * status is returned instead of being thrown.</p>
+     *
+     * @param iotHubConnectionString is the connection string for the IoTHub
+     * @param url is the Twin URL for the device ID.
+     * @param eTag is the eTag of the version of the resource that the caller already has.
+     * @param requestId is an unique number that identify the request.
+     * @param timeoutInMs is timeout in milliseconds.
+     * @return the result of the request.
+     * @throws IotHubException This exception is thrown if the response verification failed
+     * @throws IOException This exception is thrown if the IO operation failed
+     */
+    static HttpResponse requestIfNoneMatch(
+            IotHubConnectionString iotHubConnectionString,
+            URL url,
+            String eTag,
+            String requestId,
+            long timeoutInMs)
+            throws IOException, IotHubException, IllegalArgumentException
+    {
+        if ((eTag == null) || eTag.isEmpty())
+        {
+            throw new IllegalArgumentException("Null or empty eTag");
+        }
+
+        HttpResponse response = send(iotHubConnectionString, url, HttpMethod.GET, new byte[0], requestId, timeoutInMs, null, eTag);
+
+        if (response.getStatus() != NOT_MODIFIED_STATUS)
+        {
+            IotHubExceptionManager.httpResponseVerification(response);
+        }
+
+        return response;
+    }
+
+    private static HttpResponse send(
+            IotHubConnectionString iotHubConnectionString,
+            URL url,
+            HttpMethod method,
+            byte[] payload,
+            String requestId,
+            long timeoutInMs,
+            Map<String, String> headers,
+            String ifNoneMatch)
+            throws IOException, IllegalArgumentException
     {
         /* Codes_SRS_DEVICE_OPERATIONS_21_001: [The request shall throw IllegalArgumentException if the provided `iotHubConnectionString` is null.] */
         if(iotHubConnectionString == null)
@@ -126,25 +220,25 @@ public class DeviceOperations
             {
                 request.setHeaderField(header.getKey(), header.getValue());
             }
+        }
 
-            headers = null;
+        if (ifNoneMatch != null)
+        {
+            // the eTag is sent as received, like the If-Match header of the RegistryManager
+            request.setHeaderField(IF_NONE_MATCH, ifNoneMatch);
         }
 
         /* Codes_SRS_DEVICE_OPERATIONS_21_015: [The request shall send the created request and get the response.] */
-        HttpResponse response = request.send();
-
-        /* Codes_SRS_DEVICE_OPERATIONS_21_016: [If the resulted HttpResponseStatus represents fail, the request shall throw proper Exception by calling httpResponseVerification.] */
-        IotHubExceptionManager.httpResponseVerification(response);
-        
-        /* Codes_SRS_DEVICE_OPERATIONS_21_017: [If the resulted status represents success, the request shall return the http response.] */
-        return response;
+        return request.send();
     }
 
     /**
-     * Sets headers to be used on next HTTP request
+     * Sets headers to be used on the next HTTP request of the calling thread
      * @param httpHeaders non null and non empty custom headers
      * @throws IllegalArgumentException This exception is thrown if headers were null or empty
+     * @deprecated pass the headers to {@link #request(IotHubConnectionString, URL, HttpMethod, byte[], String, long, Map)} instead
      */
+    @Deprecated
     public static void setHeaders(Map<String, String> httpHeaders) throws IllegalArgumentException
     {
         if (httpHeaders == null || httpHeaders.size() == 0)
@@ -153,7 +247,7 @@ public class DeviceOperations
             throw new IllegalArgumentException("Null or Empty headers can't be set");
         }
 
-        //SRS_DEVICE_OPERATIONS_25_020: [This method shall set the headers map to be used for next request only.]
-        headers = httpHeaders;
+        //SRS_DEVICE_OPERATIONS_25_020: [This method shall set the headers map to be used for the next request of the calling thread only.]
+        headers.set(httpHeaders);
     }
 }
@@ -9,6 +9,8 @@ import com.microsoft.azure.sdk.iot.deps.twin.*;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
+import com.microsoft.azure.sdk.iot.service.transport.AsyncOperationExecutor;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
 
@@ -17,13 +19,19 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DeviceTwin
 {
     private IotHubConnectionString iotHubConnectionString = null;
-    private Integer requestId = 0;
+    private final AtomicInteger requestId = new AtomicInteger();
     private final long USE_DEFAULT_TIMEOUT = 0;
     private final int DEFAULT_PAGE_SIZE = 100;
+    private final int NOT_MODIFIED_STATUS = 304;
+    private TwinCache twinCache = null;
+    private ExecutorService asyncExecutor = new AsyncOperationExecutor(AsyncOperationExecutor.DEFAULT_MAX_CONCURRENCY, "azure-iot-sdk-DeviceTwin-");
 
     /**
      * Static constructor to create instance from connection string
@@ -52,6 +60,57 @@ public class DeviceTwin
         return deviceTwin;
     }
 
+    /**
+     * Setter for the cache of the twins read by this DeviceTwin.
+     *
+     * <p>Once a twin is in the cache, {@link #getTwin(DeviceTwinDevice)} only downloads it again if it changed
+     * since it was cached. The cache is disabled by default.</p>
+     *
+     * @param twinCache the cache of the twins, or {@code null} to disable the cache.
+     */
+    public void setTwinCache(TwinCache twinCache)
+    {
+        this.twinCache = twinCache;
+    }
+
+    /**
+     * Setter for the maximum number of asynchronous operations of this DeviceTwin that run at the same time.
+     * The other operations wait for their turn.
+     *
+     * @param maxConcurrency the maximum number of asynchronous operations that run at the same time. It shall be positive.
+     * @throws IllegalArgumentException if the maxConcurrency is not positive.
+     */
+    public void setMaxConcurrency(int maxConcurrency) throws IllegalArgumentException
+    {
+        if (maxConcurrency <= 0)
+        {
+            throw new IllegalArgumentException("maxConcurrency shall be positive");
+        }
+
+        if (this.asyncExecutor instanceof AsyncOperationExecutor)
+        {
+            ((AsyncOperationExecutor) this.asyncExecutor).setMaxConcurrency(maxConcurrency);
+        }
+    }
+
+    /**
+     * Setter for the executor that runs the asynchronous operations of this DeviceTwin, instead of its own bounded pool of
+     * threads. For example, {@code Executors.newVirtualThreadPerTaskExecutor()} runs each operation in its own virtual
+     * thread. The executor is not shut down by this DeviceTwin, and {@link #setMaxConcurrency(int)} has no effect on it.
+     *
+     * @param executor the executor of the asynchronous operations. It cannot be {@code null}.
+     * @throws IllegalArgumentException if the executor is {@code null}.
+     */
+    public void setAsyncExecutor(ExecutorService executor) throws IllegalArgumentException
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+
+        this.asyncExecutor = executor;
+    }
+
     /**
      * This method retrieves device twin for the specified device.
      *
@@ -104,27 +163,92 @@ public class DeviceTwin
          **Codes_SRS_DEVICETWIN_25_009: [** The function shall send the created request and get the response **]**
          **Codes_SRS_DEVICETWIN_25_010: [** The function shall verify the response status and throw proper Exception **]**
          */
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.GET, new byte[0], String.valueOf(requestId++), USE_DEFAULT_TIMEOUT);
+        TwinCache cache = this.twinCache;
+        if (cache == null)
+        {
+            HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.GET, new byte[0], String.valueOf(requestId.getAndIncrement()), USE_DEFAULT_TIMEOUT);
+            setTwinState(device, parseTwinState(response), false);
+            return;
+        }
+
+        TwinState twinState;
+        TwinState cachedTwinState = cache.get(device.getDeviceId(), device.getModuleId());
+        try
+        {
+            if (cachedTwinState == null || cachedTwinState.getETag() == null || cachedTwinState.getETag().isEmpty())
+            {
+                cache.recordMiss();
+                HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.GET, new byte[0], String.valueOf(requestId.getAndIncrement()), USE_DEFAULT_TIMEOUT);
+                twinState = parseTwinState(response);
+            }
+            else
+            {
+                cache.recordRevalidation();
+                HttpResponse response = DeviceOperations.requestIfNoneMatch(this.iotHubConnectionString, url, cachedTwinState.getETag(), String.valueOf(requestId.getAndIncrement()), USE_DEFAULT_TIMEOUT);
+                if (response.getStatus() == NOT_MODIFIED_STATUS)
+                {
+                    // the twin did not change since it was cached, so there is no body to parse
+                    cache.recordHit();
+                    twinState = cachedTwinState;
+                }
+                else
+                {
+                    twinState = parseTwinState(response);
+                }
+            }
+        }
+        catch (IotHubNotFoundException e)
+        {
+            cache.remove(device.getDeviceId(), device.getModuleId());
+            throw e;
+        }
+
+        cache.put(device.getDeviceId(), device.getModuleId(), twinState);
+        setTwinState(device, twinState, true);
+    }
+
+    private static TwinState parseTwinState(HttpResponse response)
+    {
         String twin = new String(response.getBody(), StandardCharsets.UTF_8);
 
         /*
         **Codes_SRS_DEVICETWIN_25_011: [** The function shall deserialize the payload by calling updateTwin Api on the twin object **]**
          */
-        TwinState twinState = TwinState.createFromTwinJson(twin);
+        return TwinState.createFromTwinJson(twin);
+    }
 
+    private static void setTwinState(DeviceTwinDevice device, TwinState twinState, boolean isCached)
+    {
         /*
         **Codes_SRS_DEVICETWIN_25_012: [** The function shall set eTag, tags, desired property map, reported property map on the user device **]**
          */
         device.setETag(twinState.getETag());
-        device.setTags(twinState.getTags());
-        device.setDesiredProperties(twinState.getDesiredProperty());
-        device.setReportedProperties(twinState.getReportedProperty());
+        if (!isCached)
+        {
+            device.setTags(twinState.getTags());
+            device.setDesiredProperties(twinState.getDesiredProperty());
+            device.setReportedProperties(twinState.getReportedProperty());
+            device.setConfigurations(twinState.getConfigurations());
+        }
+        else
+        {
+            // the cached twin is shared by all the reads, so each device gets its own copy of the collections
+            device.setTags(copyOf(twinState.getTags()));
+            device.setDesiredProperties(copyOf(twinState.getDesiredProperty()));
+            device.setReportedProperties(copyOf(twinState.getReportedProperty()));
+            device.setConfigurations(twinState.getConfigurations() == null ? null : new HashMap<>(twinState.getConfigurations()));
+        }
         device.setCapabilities(twinState.getCapabilities());
-        device.setConfigurations(twinState.getConfigurations());
         device.setConnectionState(twinState.getConnectionState());
     }
 
-    public synchronized void manipulateTwin(DeviceTwinDevice device, HttpMethod httpMethod) throws IotHubException, IOException {
+    private static TwinCollection copyOf(TwinCollection collection)
+    {
+        // an empty collection holds nothing to share, and keeps its version only if it is not copied
+        return (collection == null || collection.isEmpty()) ? collection : new TwinCollection(collection);
+    }
+
+    public void manipulateTwin(DeviceTwinDevice device, HttpMethod httpMethod) throws IotHubException, IOException {
         if (device == null || device.getDeviceId() == null || device.getDeviceId().length() == 0)
         {
             /*
@@ -182,7 +306,14 @@ public class DeviceTwin
 
         **Codes_SRS_DEVICETWIN_25_020: [** The function shall verify the response status and throw proper Exception **]**
          */
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, httpMethod, twinJson.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId++),0);
+        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, httpMethod, twinJson.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId.getAndIncrement()),0);
+
+        TwinCache cache = this.twinCache;
+        if (cache != null)
+        {
+            // the cached twin is outdated, the next read gets the new one
+            cache.remove(device.getDeviceId(), device.getModuleId());
+        }
     }
     
     /**
@@ -192,16 +323,64 @@ public class DeviceTwin
      * @throws IOException This exception is thrown if the IO operation failed
      * @throws IotHubException This exception is thrown if the response verification failed
      */
-    public synchronized void updateTwin(DeviceTwinDevice device) throws IotHubException, IOException
+    public void updateTwin(DeviceTwinDevice device) throws IotHubException, IOException
     {
         manipulateTwin(device, HttpMethod.PATCH);
     }
 
-    public synchronized void replaceTwin(DeviceTwinDevice device) throws IotHubException, IOException
+    public void replaceTwin(DeviceTwinDevice device) throws IotHubException, IOException
     {
         manipulateTwin(device, HttpMethod.PUT);
     }
 
+    /**
+     * This method retrieves device twin for the specified device without blocking the caller.
+     *
+     * @param device The device with a valid id for which device twin is to be retrieved.
+     * @return the future that completes with the provided device once its twin is retrieved, or exceptionally with
+     *         the exception thrown by {@link #getTwin(DeviceTwinDevice)}.
+     */
+    public CompletableFuture<DeviceTwinDevice> getTwinAsync(final DeviceTwinDevice device)
+    {
+        return AsyncOperationExecutor.submitOperation(this.asyncExecutor, () ->
+        {
+            getTwin(device);
+            return device;
+        });
+    }
+
+    /**
+     * This method updates device twin for the specified device without blocking the caller.
+     *
+     * @param device The device with a valid id for which device twin is to be updated.
+     * @return the future that completes once the twin is updated, or exceptionally with the exception thrown by
+     *         {@link #updateTwin(DeviceTwinDevice)}.
+     */
+    public CompletableFuture<Void> updateTwinAsync(final DeviceTwinDevice device)
+    {
+        return AsyncOperationExecutor.submitOperation(this.asyncExecutor, () ->
+        {
+            updateTwin(device);
+            return null;
+        });
+    }
+
+    /**
+     * This method replaces device twin for the specified device without blocking the caller.
+     *
+     * @param device The device with a valid id for which device twin is to be replaced.
+     * @return the future that completes once the twin is replaced, or exceptionally with the exception thrown by
+     *         {@link #replaceTwin(DeviceTwinDevice)}.
+     */
+    public CompletableFuture<Void> replaceTwinAsync(final DeviceTwinDevice device)
+    {
+        return AsyncOperationExecutor.submitOperation(this.asyncExecutor, () ->
+        {
+            replaceTwin(device);
+            return null;
+        });
+    }
+
     /**
      * This method updates desired properties for the specified device.
      *
@@ -250,7 +429,28 @@ public class DeviceTwin
      * @throws IotHubException If Query request was not successful at the IotHub
      * @throws IOException If input parameters are invalid
      */
-    public synchronized Query queryTwin(String sqlQuery, Integer pageSize) throws IotHubException, IOException
+    public Query queryTwin(String sqlQuery, Integer pageSize) throws IotHubException, IOException
+    {
+        return this.queryTwin(sqlQuery, pageSize, null);
+    }
+
+    /**
+     * Sql style query for twin, decoding only the projected fields of each twin.
+     *
+     * <p>The projection is a set of field paths, such as {@code tags}, {@code properties.reported} or
+     * {@code properties.reported.temperature}. The fields outside of these paths are skipped while the twins are
+     * read, so they are {@code null}, or do not contain the skipped properties, in the returned DeviceTwinDevice
+     * objects. The deviceId and moduleId are always returned.</p>
+     *
+     * @param sqlQuery Sql query string to query IotHub for Twin
+     * @param pageSize Size to limit query response by
+     * @param projection the paths of the twin fields to return, or {@code null} to return all of them
+     * @return Query Object to be used for looking up responses for this query
+     * @throws IotHubException If Query request was not successful at the IotHub
+     * @throws IOException If input parameters are invalid
+     * @throws IllegalArgumentException if the projection is empty, or contains a null or malformed path
+     */
+    public Query queryTwin(String sqlQuery, Integer pageSize, Set<String> projection) throws IotHubException, IOException
     {
         if (sqlQuery == null || sqlQuery.length() == 0)
         {
@@ -267,6 +467,9 @@ public class DeviceTwin
         //Codes_SRS_DEVICETWIN_25_050: [ The method shall create a new Query Object of Type TWIN. ]
         Query deviceTwinQuery = new Query(sqlQuery, pageSize, QueryType.TWIN);
 
+        // getNextDeviceTwin reads each page once, straight into DeviceTwinDevice objects
+        deviceTwinQuery.setDeviceTwinDecoder(new DeviceTwinDeviceDecoder(projection));
+
         //Codes_SRS_DEVICETWIN_25_049: [ The method shall build the URL for this operation by calling getUrlTwinQuery ]
         //Codes_SRS_DEVICETWIN_25_051: [ The method shall send a Query Request to IotHub as HTTP Method Post on the query Object by calling sendQueryRequest.]
         deviceTwinQuery.sendQueryRequest(iotHubConnectionString, iotHubConnectionString.getUrlTwinQuery(), HttpMethod.POST, USE_DEFAULT_TIMEOUT);
@@ -280,7 +483,7 @@ public class DeviceTwin
      * @throws IotHubException If Query request was not successful at the IotHub
      * @throws IOException If input parameters are invalid
      */
-    public synchronized Query queryTwin(String sqlQuery) throws IotHubException, IOException
+    public Query queryTwin(String sqlQuery) throws IotHubException, IOException
     {
         //Codes_SRS_DEVICETWIN_25_052: [ If the pageSize if not provided then a default pageSize of 100 is used for the query.]
         return this.queryTwin(sqlQuery, DEFAULT_PAGE_SIZE);
@@ -294,7 +497,7 @@ public class DeviceTwin
      * @return the created QueryCollection object that can be used to query the service
      * @throws MalformedURLException If twin query url is not correct
      */
-    public synchronized QueryCollection queryTwinCollection(String sqlQuery) throws MalformedURLException
+    public QueryCollection queryTwinCollection(String sqlQuery) throws MalformedURLException
     {
         //Codes_SRS_DEVICETWIN_34_069: [This function shall return the results of calling queryTwinCollection(sqlQuery, DEFAULT_PAGE_SIZE).]
         return this.queryTwinCollection(sqlQuery, DEFAULT_PAGE_SIZE);
@@ -309,7 +512,7 @@ public class DeviceTwin
      * @return the created QueryCollection object that can be used to query the service
      * @throws MalformedURLException If twin query url is not correct
      */
-    public synchronized QueryCollection queryTwinCollection(String sqlQuery, Integer pageSize) throws MalformedURLException
+    public QueryCollection queryTwinCollection(String sqlQuery, Integer pageSize) throws MalformedURLException
     {
         //Codes_SRS_DEVICETWIN_34_070: [This function shall return a new QueryCollection object of type TWIN with the provided sql query and page size.]
         return new QueryCollection(sqlQuery, pageSize, QueryType.TWIN, this.iotHubConnectionString, this.iotHubConnectionString.getUrlTwinQuery(), HttpMethod.POST, USE_DEFAULT_TIMEOUT);
@@ -324,7 +527,7 @@ public class DeviceTwin
      * @throws IotHubException If IotHub could not respond back to the query successfully
      * @throws IOException If input parameter is incorrect
      */
-    public synchronized boolean hasNextDeviceTwin(Query deviceTwinQuery) throws IotHubException, IOException
+    public boolean hasNextDeviceTwin(Query deviceTwinQuery) throws IotHubException, IOException
     {
         if (deviceTwinQuery == null)
         {
@@ -332,6 +535,12 @@ public class DeviceTwin
             throw new IllegalArgumentException("Query cannot be null");
         }
 
+        if (deviceTwinQuery.hasDeviceTwinDecoder())
+        {
+            // the page is then read once, straight into the DeviceTwinDevice objects returned by getNextDeviceTwin
+            return deviceTwinQuery.hasNextDeviceTwin();
+        }
+
         //Codes_SRS_DEVICETWIN_25_055: [ If a queryResponse is available, this method shall return true as is to the user, and false otherwise.. ]
         return deviceTwinQuery.hasNext();
     }
@@ -344,7 +553,7 @@ public class DeviceTwin
      * @throws IotHubException If a non successful response from IotHub is received
      * @throws NoSuchElementException If no additional element was found
      */
-    public synchronized DeviceTwinDevice getNextDeviceTwin(Query deviceTwinQuery) throws IOException, IotHubException, NoSuchElementException
+    public DeviceTwinDevice getNextDeviceTwin(Query deviceTwinQuery) throws IOException, IotHubException, NoSuchElementException
     {
         if (deviceTwinQuery == null)
         {
@@ -352,6 +561,11 @@ public class DeviceTwin
             throw new IllegalArgumentException("Query cannot be null");
         }
 
+        if (deviceTwinQuery.hasDeviceTwinDecoder())
+        {
+            return deviceTwinQuery.nextDeviceTwin();
+        }
+
         Object nextObject = deviceTwinQuery.next();
 
         if (nextObject instanceof String)
@@ -373,7 +587,7 @@ public class DeviceTwin
      * @return True if the provided deviceTwinQueryCollection has a next page to query, false otherwise
      * @throws IllegalArgumentException if the provided deviceTwinQueryCollection is null
      */
-    public synchronized boolean hasNext(QueryCollection deviceTwinQueryCollection)
+    public boolean hasNext(QueryCollection deviceTwinQueryCollection)
     {
         if (deviceTwinQueryCollection == null)
         {
@@ -396,7 +610,7 @@ public class DeviceTwin
      * @throws IotHubException If an IotHubException occurs when querying the service.
      * @throws IOException If an IotHubException occurs when querying the service or if the results of that query don't match expectations.
      */
-    public synchronized QueryCollectionResponse<DeviceTwinDevice> next(QueryCollection deviceTwinQueryCollection) throws IOException, IotHubException
+    public QueryCollectionResponse<DeviceTwinDevice> next(QueryCollection deviceTwinQueryCollection) throws IOException, IotHubException
     {
         //Codes_SRS_DEVICETWIN_34_075: [This function shall call next(deviceTwinQueryCollection, queryOptions) where queryOptions has the deviceTwinQueryCollection's current page size.]
         QueryOptions options = new QueryOptions();
@@ -419,7 +633,29 @@ public class DeviceTwin
      * @throws IotHubException If an IotHubException occurs when querying the service.
      * @throws IOException If an IotHubException occurs when querying the service or if the results of that query don't match expectations.
      */
-    public synchronized QueryCollectionResponse<DeviceTwinDevice> next(QueryCollection deviceTwinQueryCollection, QueryOptions options) throws IOException, IotHubException
+    public QueryCollectionResponse<DeviceTwinDevice> next(QueryCollection deviceTwinQueryCollection, QueryOptions options) throws IOException, IotHubException
+    {
+        return this.next(deviceTwinQueryCollection, options, null);
+    }
+
+    /**
+     * Returns the next DeviceTwinDevice collection for the given query alongside the continuation token needed for
+     * querying the next page, decoding only the projected fields of each twin.
+     *
+     * <p>The projection is a set of field paths, such as {@code tags}, {@code properties.reported} or
+     * {@code properties.reported.temperature}. The fields outside of these paths are skipped while the page is
+     * read. The deviceId and moduleId are always returned.</p>
+     *
+     * @param deviceTwinQueryCollection the query to run
+     * @param options the query options to run the query with. If the continuation token in these options is null, the internally saved continuation token shall be used.
+     *                The page size set in the options will override any previously set page size.
+     * @param projection the paths of the twin fields to return, or {@code null} to return all of them
+     * @return The page of query results and the continuation token for the next page of results. Return value shall be {@code null} if there is no next collection.
+     * @throws IotHubException If an IotHubException occurs when querying the service.
+     * @throws IOException If an IotHubException occurs when querying the service or if the results of that query don't match expectations.
+     * @throws IllegalArgumentException if the projection is empty, or contains a null or malformed path
+     */
+    public QueryCollectionResponse<DeviceTwinDevice> next(QueryCollection deviceTwinQueryCollection, QueryOptions options, Set<String> projection) throws IOException, IotHubException
     {
         if (deviceTwinQueryCollection == null)
         {
@@ -433,18 +669,9 @@ public class DeviceTwin
             return null;
         }
 
-        QueryCollectionResponse<String> queryResults = deviceTwinQueryCollection.next(options);
-        Iterator<String> jsonCollectionIterator = queryResults.getCollection().iterator();
-        Collection<DeviceTwinDevice> deviceTwinDeviceList = new ArrayList<>();
-
         //Codes_SRS_DEVICETWIN_34_078: [If the provided deviceTwinQueryCollection has a next set to give, this function shall retrieve that set from deviceTwinQueryCollection, cast its contents to DeviceTwinDevice objects, and return it in a QueryCollectionResponse object.]
-        while (jsonCollectionIterator.hasNext())
-        {
-            deviceTwinDeviceList.add(jsonToDeviceTwinDevice(jsonCollectionIterator.next()));
-        }
-
         //Codes_SRS_DEVICETWIN_34_079: [The returned QueryCollectionResponse object shall contain the continuation token needed to retrieve the next set with.]
-        return new QueryCollectionResponse<DeviceTwinDevice>(deviceTwinDeviceList, queryResults.getContinuationToken());
+        return deviceTwinQueryCollection.nextDeviceTwins(options, new DeviceTwinDeviceDecoder(projection));
     }
 
     /**
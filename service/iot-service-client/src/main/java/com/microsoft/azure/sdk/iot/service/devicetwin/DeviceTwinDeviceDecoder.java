@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.microsoft.azure.sdk.iot.deps.twin.ConfigurationInfo;
+import com.microsoft.azure.sdk.iot.deps.twin.DeviceCapabilities;
+import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
+import com.microsoft.azure.sdk.iot.deps.twin.TwinConnectionState;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decodes a page of twin query results straight into {@link DeviceTwinDevice} objects.
+ *
+ * <p> The page is read once, as a stream, instead of being parsed into a list of json strings that are each parsed
+ *     again into a {@code TwinState}. The twin fields that {@code DeviceTwinDevice} does not hold are skipped
+ *     without being built.
+ *
+ * <p> A projection limits the decoded fields further. It is a set of field paths, such as {@code tags},
+ *     {@code properties.reported} or {@code properties.reported.temperature}, and each field outside of these
+ *     paths is skipped. The deviceId and moduleId are always decoded. The {@code $version} of a twin collection is
+ *     kept when only some of its properties are projected, but its {@code $metadata} is only kept if it is projected.
+ */
+final class DeviceTwinDeviceDecoder
+{
+    private static final String DEVICE_ID_TAG = "deviceId";
+    private static final String MODULE_ID_TAG = "moduleId";
+    private static final String ETAG_TAG = "etag";
+    private static final String VERSION_TAG = "version";
+    private static final String TAGS_TAG = "tags";
+    private static final String PROPERTIES_TAG = "properties";
+    private static final String DESIRED_TAG = "desired";
+    private static final String REPORTED_TAG = "reported";
+    private static final String CAPABILITIES_TAG = "capabilities";
+    private static final String CONNECTION_STATE_TAG = "connectionState";
+    private static final String CONFIGURATIONS_TAG = "configurations";
+    private static final String COLLECTION_VERSION_TAG = "$version";
+    private static final String PROJECTION_SEPARATOR = "\\.";
+
+    private static final Type CONFIGURATIONS_TYPE = new TypeToken<Map<String, ConfigurationInfo>>(){}.getType();
+
+    private final Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
+    private final Selection projection;
+
+    /**
+     * Fields selected by the projection, as a tree of field names.
+     */
+    private static final class Selection
+    {
+        private static final Selection WHOLE = new Selection(true);
+
+        private final Map<String, Selection> children = new HashMap<>();
+        private boolean isWhole;
+
+        private Selection(boolean isWhole)
+        {
+            this.isWhole = isWhole;
+        }
+
+        private Selection child(String name)
+        {
+            return this.isWhole ? WHOLE : this.children.get(name);
+        }
+    }
+
+    /**
+     * Create a decoder for twin query pages.
+     *
+     * @param projection the paths of the fields to decode, or {@code null} to decode all the fields.
+     * @throws IllegalArgumentException if the projection is empty, or contains a null or malformed path.
+     */
+    DeviceTwinDeviceDecoder(Set<String> projection) throws IllegalArgumentException
+    {
+        if (projection == null)
+        {
+            this.projection = Selection.WHOLE;
+            return;
+        }
+
+        if (projection.isEmpty())
+        {
+            throw new IllegalArgumentException("projection cannot be empty");
+        }
+
+        Selection root = new Selection(false);
+        for (String path : projection)
+        {
+            if (path == null || path.isEmpty())
+            {
+                throw new IllegalArgumentException("projection cannot contain a null or empty path");
+            }
+
+            Selection selection = root;
+            for (String name : path.split(PROJECTION_SEPARATOR, -1))
+            {
+                if (name.isEmpty())
+                {
+                    throw new IllegalArgumentException("projection contains the malformed path " + path);
+                }
+
+                Selection child = selection.children.get(name);
+                if (child == null)
+                {
+                    child = new Selection(false);
+                    selection.children.put(name, child);
+                }
+                selection = child;
+            }
+            // a selected field contains all its children, even if some of them are projected on their own
+            selection.isWhole = true;
+        }
+
+        this.projection = root;
+    }
+
+    /**
+     * Decode a page of twin query results.
+     *
+     * @param page the body of the query response, a json array of twins.
+     * @return the twins of the page, in order.
+     * @throws IOException if the page is not a valid array of twins.
+     */
+    List<DeviceTwinDevice> decode(byte[] page) throws IOException
+    {
+        if (page == null)
+        {
+            throw new IOException("Query response cannot contain a null body");
+        }
+
+        List<DeviceTwinDevice> deviceTwinDevices = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(page), StandardCharsets.UTF_8)))
+        {
+            reader.beginArray();
+            while (reader.hasNext())
+            {
+                deviceTwinDevices.add(this.decodeTwin(reader));
+            }
+            reader.endArray();
+        }
+        catch (IllegalStateException | JsonParseException | IllegalArgumentException e)
+        {
+            throw new IOException("Received a response that could not be parsed", e);
+        }
+
+        return deviceTwinDevices;
+    }
+
+    private DeviceTwinDevice decodeTwin(JsonReader reader) throws IOException
+    {
+        String deviceId = null;
+        String moduleId = null;
+        String eTag = null;
+        Integer version = null;
+        // like TwinState, a twin without tags has an empty tags collection
+        TwinCollection tags = this.projection.child(TAGS_TAG) == null ? null : new TwinCollection();
+        TwinCollection desiredProperties = null;
+        TwinCollection reportedProperties = null;
+        DeviceCapabilities capabilities = null;
+        String connectionState = null;
+        Map<String, ConfigurationInfo> configurations = null;
+
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String name = reader.nextName();
+            Selection selection = this.projection.child(name);
+            if (reader.peek() == JsonToken.NULL)
+            {
+                reader.nextNull();
+            }
+            else if (name.equals(DEVICE_ID_TAG))
+            {
+                deviceId = reader.nextString();
+            }
+            else if (name.equals(MODULE_ID_TAG))
+            {
+                moduleId = reader.nextString();
+            }
+            else if (selection == null)
+            {
+                reader.skipValue();
+            }
+            else if (name.equals(ETAG_TAG))
+            {
+                eTag = reader.nextString();
+            }
+            else if (name.equals(VERSION_TAG))
+            {
+                version = reader.nextInt();
+            }
+            else if (name.equals(TAGS_TAG))
+            {
+                tags = this.decodeTags(reader, selection);
+            }
+            else if (name.equals(PROPERTIES_TAG))
+            {
+                reader.beginObject();
+                while (reader.hasNext())
+                {
+                    String propertiesName = reader.nextName();
+                    Selection propertiesSelection = selection.child(propertiesName);
+                    if (propertiesSelection != null && reader.peek() != JsonToken.NULL && propertiesName.equals(DESIRED_TAG))
+                    {
+                        desiredProperties = TwinCollection.createFromRawCollection(this.decodeObject(reader, propertiesSelection));
+                    }
+                    else if (propertiesSelection != null && reader.peek() != JsonToken.NULL && propertiesName.equals(REPORTED_TAG))
+                    {
+                        reportedProperties = TwinCollection.createFromRawCollection(this.decodeObject(reader, propertiesSelection));
+                    }
+                    else
+                    {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            else if (name.equals(CAPABILITIES_TAG))
+            {
+                capabilities = this.gson.fromJson(reader, DeviceCapabilities.class);
+            }
+            else if (name.equals(CONNECTION_STATE_TAG))
+            {
+                // the same names as the ones returned by TwinState
+                TwinConnectionState twinConnectionState = this.gson.fromJson(reader, TwinConnectionState.class);
+                connectionState = twinConnectionState == null ? null : twinConnectionState.toString();
+            }
+            else if (name.equals(CONFIGURATIONS_TAG))
+            {
+                configurations = this.gson.fromJson(reader, CONFIGURATIONS_TYPE);
+            }
+            else
+            {
+                // the twin fields that DeviceTwinDevice does not hold
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        DeviceTwinDevice deviceTwinDevice = new DeviceTwinDevice(deviceId);
+        if (moduleId != null && !moduleId.isEmpty())
+        {
+            deviceTwinDevice.setModuleId(moduleId);
+        }
+        if (eTag != null)
+        {
+            deviceTwinDevice.setETag(eTag);
+        }
+        deviceTwinDevice.setVersion(version);
+        deviceTwinDevice.setTags(tags);
+        deviceTwinDevice.setDesiredProperties(desiredProperties);
+        deviceTwinDevice.setReportedProperties(reportedProperties);
+        deviceTwinDevice.setCapabilities(capabilities);
+        deviceTwinDevice.setConnectionState(connectionState);
+        deviceTwinDevice.setConfigurations(configurations);
+
+        return deviceTwinDevice;
+    }
+
+    private TwinCollection decodeTags(JsonReader reader, Selection selection) throws IOException
+    {
+        if (selection.isWhole)
+        {
+            // the same collection as the one built by TwinState
+            return new TwinCollection(this.gson.<TwinCollection>fromJson(reader, TwinCollection.class));
+        }
+
+        Map<String, Object> tags = this.decodeObject(reader, selection);
+        return tags.isEmpty() ? new TwinCollection() : new TwinCollection(tags);
+    }
+
+    private Map<String, Object> decodeObject(JsonReader reader, Selection selection) throws IOException
+    {
+        Map<String, Object> object = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String name = reader.nextName();
+            Selection child = selection.child(name);
+            if (child == null && !name.equals(COLLECTION_VERSION_TAG))
+            {
+                reader.skipValue();
+            }
+            else if (child != null && !child.isWhole && reader.peek() == JsonToken.BEGIN_OBJECT)
+            {
+                object.put(name, this.decodeObject(reader, child));
+            }
+            else
+            {
+                object.put(name, this.gson.fromJson(reader, Object.class));
+            }
+        }
+        reader.endObject();
+
+        return object;
+    }
+}
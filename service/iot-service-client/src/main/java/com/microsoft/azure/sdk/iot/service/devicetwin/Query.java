@@ -17,6 +17,7 @@ import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
 
 /*
     Sql style query IotHub for twin, jobs, device jobs or raw data
@@ -38,12 +39,17 @@ public class Query
     private QueryType responseQueryType;
 
     private QueryResponse queryResponse;
+    // decodes the pages of twin queries into DeviceTwinDevice for DeviceTwin, null for the other queries
+    private DeviceTwinDeviceDecoder deviceTwinDecoder;
 
     private IotHubConnectionString iotHubConnectionString;
     private URL url;
     private HttpMethod httpMethod;
     private long timeout;
 
+    // guards the paging state of this query only, so separate queries page concurrently
+    private final ReentrantLock pageLock = new ReentrantLock();
+
     /**
      * Constructor for Query
      * @param query Sql style query to be sent to IotHub
@@ -160,77 +166,100 @@ public class Query
                                    HttpMethod method,
                                    Long timeoutInMs) throws IOException, IotHubException
     {
-        if (iotHubConnectionString == null || url == null || method == null)
+        this.pageLock.lock();
+        try
         {
-            //Codes_SRS_QUERY_25_019: [This method shall throw IllegalArgumentException if any of the parameters are null or empty.]
-            throw new IllegalArgumentException("Input parameters cannot be null");
-        }
+            if (iotHubConnectionString == null || url == null || method == null)
+            {
+                //Codes_SRS_QUERY_25_019: [This method shall throw IllegalArgumentException if any of the parameters are null or empty.]
+                throw new IllegalArgumentException("Input parameters cannot be null");
+            }
 
-        //Codes_SRS_QUERY_25_020: [This method shall save all the parameters for future use.]
-        this.iotHubConnectionString = iotHubConnectionString;
-        this.url = url;
-        this.httpMethod = method;
-        this.timeout = timeoutInMs;
+            //Codes_SRS_QUERY_25_020: [This method shall save all the parameters for future use.]
+            this.iotHubConnectionString = iotHubConnectionString;
+            this.url = url;
+            this.httpMethod = method;
+            this.timeout = timeoutInMs;
 
-        byte[] payload = null;
-        Map<String, String> queryHeaders = new HashMap<>();
+            byte[] payload = null;
+            Map<String, String> queryHeaders = new HashMap<>();
 
-        if (this.requestContinuationToken != null)
-        {
-            queryHeaders.put(CONTINUATION_TOKEN_KEY, requestContinuationToken);
-        }
-        //Codes_SRS_QUERY_25_007: [The method shall set the http headers x-ms-continuation and x-ms-max-item-count with request continuation token and page size if they were not null.]
-        queryHeaders.put(PAGE_SIZE_KEY, String.valueOf(pageSize));
+            if (this.requestContinuationToken != null)
+            {
+                queryHeaders.put(CONTINUATION_TOKEN_KEY, requestContinuationToken);
+            }
+            //Codes_SRS_QUERY_25_007: [The method shall set the http headers x-ms-continuation and x-ms-max-item-count with request continuation token and page size if they were not null.]
+            queryHeaders.put(PAGE_SIZE_KEY, String.valueOf(pageSize));
 
-        DeviceOperations.setHeaders(queryHeaders);
+            if (isSqlQuery)
+            {
+                //Codes_SRS_QUERY_25_008: [The method shall obtain the serilaized query by using QueryRequestParser.]
+                QueryRequestParser requestParser = new QueryRequestParser(this.query);
+                payload = requestParser.toJson().getBytes();
+            }
+            else
+            {
+                payload = new byte[0];
+            }
 
-        if (isSqlQuery)
-        {
-            //Codes_SRS_QUERY_25_008: [The method shall obtain the serilaized query by using QueryRequestParser.]
-            QueryRequestParser requestParser = new QueryRequestParser(this.query);
-            payload = requestParser.toJson().getBytes();
-        }
-        else
-        {
-            payload = new byte[0];
-        }
+            //Codes_SRS_QUERY_25_009: [The method shall use the provided HTTP Method and send request to IotHub with the serialized body over the provided URL.]
+            HttpResponse httpResponse = DeviceOperations.request(iotHubConnectionString, url, method, payload, null, timeoutInMs, queryHeaders);
 
-        //Codes_SRS_QUERY_25_009: [The method shall use the provided HTTP Method and send request to IotHub with the serialized body over the provided URL.]
-        HttpResponse httpResponse = DeviceOperations.request(iotHubConnectionString, url, method, payload, null, timeoutInMs);
+            this.responseContinuationToken = null;
+            Map<String, String> headers = httpResponse.getHeaderFields();
+            //Codes_SRS_QUERY_25_010: [The method shall read the continuation token (x-ms-continuation) and response type (x-ms-item-type) from the HTTP Headers and save it.]
+            for (Map.Entry<String, String> header : headers.entrySet())
+            {
+                switch (header.getKey())
+                {
+                    case CONTINUATION_TOKEN_KEY:
+                        this.responseContinuationToken = header.getValue();
+                        break;
+                    case ITEM_TYPE_KEY:
+                        this.responseQueryType = QueryType.fromString(header.getValue());
+                        break;
+                    default:
+                        break;
+                }
+            }
 
-        this.responseContinuationToken = null;
-        Map<String, String> headers = httpResponse.getHeaderFields();
-        //Codes_SRS_QUERY_25_010: [The method shall read the continuation token (x-ms-continuation) and response type (x-ms-item-type) from the HTTP Headers and save it.]
-        for (Map.Entry<String, String> header : headers.entrySet())
-        {
-            switch (header.getKey())
+            if (this.responseQueryType == null || this.responseQueryType == QueryType.UNKNOWN)
             {
-                case CONTINUATION_TOKEN_KEY:
-                    this.responseContinuationToken = header.getValue();
-                    break;
-                case ITEM_TYPE_KEY:
-                    this.responseQueryType = QueryType.fromString(header.getValue());
-                    break;
-                default:
-                    break;
+                //Codes_SRS_QUERY_25_012: [If the response type is Unknown or not found then this method shall throw IOException.]
+                throw new IOException("Query response type is not defined by IotHub");
             }
-        }
 
-        if (this.responseQueryType == null || this.responseQueryType == QueryType.UNKNOWN)
-        {
-            //Codes_SRS_QUERY_25_012: [If the response type is Unknown or not found then this method shall throw IOException.]
-            throw new IOException("Query response type is not defined by IotHub");
-        }
+            if (this.requestQueryType != this.responseQueryType)
+            {
+                //Codes_SRS_QUERY_25_011: [If the request type and response does not match then the method shall throw IOException.]
+                throw new IOException("Query response does not match query request");
+            }
 
-        if (this.requestQueryType != this.responseQueryType)
+            //Codes_SRS_QUERY_25_013: [The method shall create a QueryResponse object with the contents from the response body and save it.]
+            if (this.deviceTwinDecoder != null)
+            {
+                this.queryResponse = new QueryResponse(httpResponse.getBody(), this.deviceTwinDecoder);
+            }
+            else
+            {
+                this.queryResponse = new QueryResponse(new String(httpResponse.getBody()));
+            }
+            return this.queryResponse;
+        }
+        finally
         {
-            //Codes_SRS_QUERY_25_011: [If the request type and response does not match then the method shall throw IOException.]
-            throw new IOException("Query response does not match query request");
+            this.pageLock.unlock();
         }
+    }
 
-        //Codes_SRS_QUERY_25_013: [The method shall create a QueryResponse object with the contents from the response body and save it.]
-        this.queryResponse = new QueryResponse(new String(httpResponse.getBody()));
-        return this.queryResponse;
+    /**
+     * Lets the pages of this query be decoded into DeviceTwinDevice objects by {@link #nextDeviceTwin()}. The
+     * elements returned by {@link #next()} are still json strings.
+     * @param deviceTwinDecoder the decoder of the pages
+     */
+    void setDeviceTwinDecoder(DeviceTwinDeviceDecoder deviceTwinDecoder)
+    {
+        this.deviceTwinDecoder = deviceTwinDecoder;
     }
 
     /**
@@ -251,19 +280,7 @@ public class Query
      */
     public boolean hasNext() throws IOException, IotHubException
     {
-        //Codes_SRS_QUERY_25_015: [The method shall return true if next element from QueryResponse is available and false otherwise.]
-        boolean isNextAvailable = this.queryResponse.hasNext();
-        if (!isNextAvailable && this.getContinuationToken() != null)
-        {
-            //Codes_SRS_QUERY_25_021: [If no further query response is available, then this method shall continue to request query to IotHub if continuation token is available.]
-            this.continueQuery(this.getContinuationToken());
-            return this.queryResponse.hasNext();
-        }
-        else
-        {
-            //Codes_SRS_QUERY_25_015: [The method shall return true if next element from QueryResponse is available and false otherwise.]
-            return isNextAvailable;
-        }
+        return this.hasNext(false);
     }
 
     /**
@@ -275,16 +292,96 @@ public class Query
      */
     public Object next() throws IOException, IotHubException, NoSuchElementException
     {
-        //Codes_SRS_QUERY_25_016: [The method shall return the next element for this QueryResponse.]
-       if (this.hasNext())
-       {
-           return queryResponse.next();
-       }
-       else
-       {
-           //Codes_SRS_QUERY_25_022: [The method shall check if any further elements are available by calling hasNext and if none is available then it shall throw NoSuchElementException.]
-           throw new NoSuchElementException();
-       }
+        this.pageLock.lock();
+        try
+        {
+            //Codes_SRS_QUERY_25_016: [The method shall return the next element for this QueryResponse.]
+            if (this.hasNext())
+            {
+                return queryResponse.next();
+            }
+            else
+            {
+                //Codes_SRS_QUERY_25_022: [The method shall check if any further elements are available by calling hasNext and if none is available then it shall throw NoSuchElementException.]
+                throw new NoSuchElementException();
+            }
+        }
+        finally
+        {
+            this.pageLock.unlock();
+        }
+    }
+
+    /**
+     * Returns if the pages of this query can be decoded into DeviceTwinDevice objects by {@link #nextDeviceTwin()}
+     * @return true for the twin queries created by DeviceTwin, and false otherwise
+     */
+    boolean hasDeviceTwinDecoder()
+    {
+        return this.deviceTwinDecoder != null;
+    }
 
+    /**
+     * Returns the availability of next twin in the response of a twin query
+     * @return the availability of next twin in the response
+     * @throws IOException if sending the request is unsuccessful because of input parameters, or if the response cannot be decoded
+     * @throws IotHubException if sending the request is unsuccessful at the Hub
+     */
+    boolean hasNextDeviceTwin() throws IOException, IotHubException
+    {
+        return this.hasNext(true);
+    }
+
+    /**
+     * provides the next twin in the response of a twin query, decoded straight from the page
+     * @return the next twin in the response
+     * @throws IOException if sending the request is unsuccessful because of input parameters, or if the response cannot be decoded
+     * @throws IotHubException if sending the request is unsuccessful at the Hub
+     * @throws NoSuchElementException if no further twins are available
+     * @throws IllegalStateException if this query has no decoder of its pages into DeviceTwinDevice objects
+     */
+    DeviceTwinDevice nextDeviceTwin() throws IOException, IotHubException, NoSuchElementException
+    {
+        this.pageLock.lock();
+        try
+        {
+            if (this.hasNextDeviceTwin())
+            {
+                return queryResponse.nextDeviceTwin();
+            }
+            else
+            {
+                throw new NoSuchElementException();
+            }
+        }
+        finally
+        {
+            this.pageLock.unlock();
+        }
+    }
+
+    private boolean hasNext(boolean isDeviceTwin) throws IOException, IotHubException
+    {
+        this.pageLock.lock();
+        try
+        {
+            //Codes_SRS_QUERY_25_015: [The method shall return true if next element from QueryResponse is available and false otherwise.]
+            boolean isNextAvailable = isDeviceTwin ? this.queryResponse.hasNextDeviceTwin() : this.queryResponse.hasNext();
+            if (!isNextAvailable && this.getContinuationToken() != null)
+            {
+                //Codes_SRS_QUERY_25_021: [If no further query response is available, then this method shall continue to request query to IotHub if continuation token is available.]
+                this.continueQuery(this.getContinuationToken());
+                return isDeviceTwin ? this.queryResponse.hasNextDeviceTwin() : this.queryResponse.hasNext();
+            }
+            else
+            {
+                //Codes_SRS_QUERY_25_015: [The method shall return true if next element from QueryResponse is available and false otherwise.]
+                return isNextAvailable;
+            }
+        }
+        finally
+        {
+            this.pageLock.unlock();
+        }
     }
 }
@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class QueryCollection
 {
@@ -39,6 +40,9 @@ public class QueryCollection
 
     private boolean isInitialQuery;
 
+    // guards the paging state of this query only, so separate queries page concurrently
+    private final ReentrantLock pageLock = new ReentrantLock();
+
     /**
      * Constructor for sql based queries
      *
@@ -126,12 +130,21 @@ public class QueryCollection
      * @throws IotHubException If an IotHubException occurs when calling the Service API
      */
     private QueryCollectionResponse<String> sendQueryRequest(QueryOptions options) throws IOException, IotHubException
+    {
+        HttpResponse httpResponse = this.requestPage(options);
+
+        //Codes_SRS_QUERYCOLLECTION_34_021: [The method shall create a QueryResponse object with the contents from the response body and its continuation token and return it.]
+        return new QueryCollectionResponse<String>(
+        		new String(httpResponse.getBody(), "UTF-8"), this.responseContinuationToken);
+    }
+
+    private HttpResponse requestPage(QueryOptions options) throws IOException, IotHubException
     {
         //Codes_SRS_QUERYCOLLECTION_34_011: [If the provided query options is not null and contains a continuation token, it shall be put in the query headers to continue the query.]
         //Codes_SRS_QUERYCOLLECTION_34_012: [If a continuation token is not provided from the passed in query options, but there is a continuation token saved in the latest queryCollectionResponse, that token shall be put in the query headers to continue the query.]
         //Codes_SRS_QUERYCOLLECTION_34_013: [If the provided query options is not null, the query option's page size shall be included in the query headers.]
         //Codes_SRS_QUERYCOLLECTION_34_014: [If the provided query options is null, this object's page size shall be included in the query headers.]
-        DeviceOperations.setHeaders(buildQueryHeaders(options));
+        Map<String, String> queryHeaders = buildQueryHeaders(options);
 
         //Codes_SRS_QUERYCOLLECTION_34_015: [If this is a sql query, the payload of the query message shall be set to the json bytes representation of this object's query string.]
         //Codes_SRS_QUERYCOLLECTION_34_016: [If this is not a sql query, the payload of the query message shall be set to empty bytes.]
@@ -147,15 +160,13 @@ public class QueryCollection
         }
 
         //Codes_SRS_QUERYCOLLECTION_34_017: [This function shall send an HTTPS request using DeviceOperations.]
-        HttpResponse httpResponse = DeviceOperations.request(this.iotHubConnectionString, this.url, this.httpMethod, payload, null, this.timeout);
+        HttpResponse httpResponse = DeviceOperations.request(this.iotHubConnectionString, this.url, this.httpMethod, payload, null, this.timeout, queryHeaders);
 
         //Codes_SRS_QUERYCOLLECTION_34_018: [The method shall read the continuation token (x-ms-continuation) and response type (x-ms-item-type) from the HTTP Headers and save it.]
         handleQueryResponse(httpResponse);
 
-        //Codes_SRS_QUERYCOLLECTION_34_021: [The method shall create a QueryResponse object with the contents from the response body and its continuation token and return it.]
         this.isInitialQuery = false;
-        return new QueryCollectionResponse<String>(
-        		new String(httpResponse.getBody(), "UTF-8"), this.responseContinuationToken);
+        return httpResponse;
     }
 
     /**
@@ -165,15 +176,23 @@ public class QueryCollection
      */
     protected boolean hasNext()
     {
-        if (this.isInitialQuery)
+        this.pageLock.lock();
+        try
         {
-            //Codes_SRS_QUERYCOLLECTION_34_025: [If this query is the initial query, this function shall return true.]
-            return true;
+            if (this.isInitialQuery)
+            {
+                //Codes_SRS_QUERYCOLLECTION_34_025: [If this query is the initial query, this function shall return true.]
+                return true;
+            }
+            else
+            {
+                //Codes_SRS_QUERYCOLLECTION_34_026: [If this query is not the initial query, this function shall return true if there is a continuation token and false otherwise.]
+                return (this.responseContinuationToken != null);
+            }
         }
-        else
+        finally
         {
-            //Codes_SRS_QUERYCOLLECTION_34_026: [If this query is not the initial query, this function shall return true if there is a continuation token and false otherwise.]
-            return (this.responseContinuationToken != null);
+            this.pageLock.unlock();
         }
     }
 
@@ -203,15 +222,53 @@ public class QueryCollection
      */
     protected QueryCollectionResponse<String> next(QueryOptions options) throws IOException, IotHubException
     {
-        if (this.hasNext())
+        this.pageLock.lock();
+        try
+        {
+            if (this.hasNext())
+            {
+                //Codes_SRS_QUERYCOLLECTION_34_034: [If this object has a next set to return using the provided query options, this function shall return it.]
+                return this.sendQueryRequest(options);
+            }
+            else
+            {
+                //Codes_SRS_QUERYCOLLECTION_34_035: [If this object does not have a next set to return, this function shall return null.]
+                return null;
+            }
+        }
+        finally
+        {
+            this.pageLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the next page of a twin query, decoded straight into DeviceTwinDevice objects. If the provided query
+     * options have a continuation token, the query shall continue from that token. The query shall use the page size
+     * set in the query options.
+     *
+     * @param options The options for the query
+     * @param deviceTwinDecoder The decoder of the page
+     * @return The next QueryCollectionResponse object or null if there is no next QueryCollectionResponse object
+     * @throws IOException If an IOException occurs when calling the Service API, or if the results of that call are unexpected
+     * @throws IotHubException If an IotHubException occurs when calling the Service API
+     */
+    QueryCollectionResponse<DeviceTwinDevice> nextDeviceTwins(QueryOptions options, DeviceTwinDeviceDecoder deviceTwinDecoder) throws IOException, IotHubException
+    {
+        this.pageLock.lock();
+        try
         {
-            //Codes_SRS_QUERYCOLLECTION_34_034: [If this object has a next set to return using the provided query options, this function shall return it.]
-            return this.sendQueryRequest(options);
+            if (!this.hasNext())
+            {
+                return null;
+            }
+
+            HttpResponse httpResponse = this.requestPage(options);
+            return new QueryCollectionResponse<DeviceTwinDevice>(deviceTwinDecoder.decode(httpResponse.getBody()), this.responseContinuationToken);
         }
-        else
+        finally
         {
-            //Codes_SRS_QUERYCOLLECTION_34_035: [If this object does not have a next set to return, this function shall return null.]
-            return null;
+            this.pageLock.unlock();
         }
     }
 
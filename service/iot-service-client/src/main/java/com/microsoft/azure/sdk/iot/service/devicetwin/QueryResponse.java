@@ -17,6 +17,12 @@ public class QueryResponse implements Iterator<Object>
 {
     private Iterator<?> responseElementsIterator;
 
+    // the page of a twin query, read again only if it is iterated both as json strings and as DeviceTwinDevice
+    private byte[] twinPage;
+    private DeviceTwinDeviceDecoder deviceTwinDecoder;
+    private Iterator<DeviceTwinDevice> deviceTwinIterator;
+    private int returnedElementCount;
+
     /**
      * Creates an object for the query response
      * @param jsonString json response for query to parse
@@ -31,8 +37,29 @@ public class QueryResponse implements Iterator<Object>
         }
 
         //Codes_SRS_QUERY_RESPONSE_25_001: [The constructor shall parse the json response using QueryResponseParser and set the iterator.]
-        QueryResponseParser responseParser = new QueryResponseParser(jsonString);
-        this.responseElementsIterator = responseParser.getJsonItems().iterator();
+        this.responseElementsIterator = parseJsonItems(jsonString);
+    }
+
+    /**
+     * Creates an object for the response of a twin query. The page is only read once it is iterated, as json strings
+     * by {@link #next()}, or as DeviceTwinDevice objects by {@link #nextDeviceTwin()}.
+     * @param twinPage the body of the response
+     * @param deviceTwinDecoder the decoder of the page into DeviceTwinDevice objects
+     */
+    QueryResponse(byte[] twinPage, DeviceTwinDeviceDecoder deviceTwinDecoder)
+    {
+        if (twinPage == null || twinPage.length == 0)
+        {
+            throw new IllegalArgumentException("response cannot be null or empty");
+        }
+
+        if (deviceTwinDecoder == null)
+        {
+            throw new IllegalArgumentException("deviceTwinDecoder cannot be null");
+        }
+
+        this.twinPage = twinPage;
+        this.deviceTwinDecoder = deviceTwinDecoder;
     }
 
     /**
@@ -43,7 +70,12 @@ public class QueryResponse implements Iterator<Object>
     public boolean hasNext()
     {
         //Codes_SRS_QUERY_RESPONSE_25_003: [The method shall return true if next element from QueryResponse is available and false otherwise.]
-        return this.responseElementsIterator.hasNext();
+        if (this.deviceTwinIterator != null)
+        {
+            return this.deviceTwinIterator.hasNext();
+        }
+
+        return this.getResponseElementsIterator().hasNext();
     }
 
     /**
@@ -54,6 +86,79 @@ public class QueryResponse implements Iterator<Object>
     public Object next()
     {
         //Codes_SRS_QUERY_RESPONSE_25_004: [The method shall return the next element for this QueryResponse.]
-        return this.responseElementsIterator.next();
+        Object next = this.getResponseElementsIterator().next();
+        this.returnedElementCount++;
+        return next;
+    }
+
+    /**
+     * returns the availability of next twin in the response of a twin query
+     * @return true if present and false otherwise
+     * @throws IOException if the page cannot be decoded into DeviceTwinDevice objects
+     */
+    boolean hasNextDeviceTwin() throws IOException
+    {
+        if (this.deviceTwinDecoder == null)
+        {
+            return this.hasNext();
+        }
+
+        return this.getDeviceTwinIterator().hasNext();
+    }
+
+    /**
+     * returns next twin in the response of a twin query
+     * @return next twin in the response
+     * @throws IOException if the page cannot be decoded into DeviceTwinDevice objects
+     * @throws IllegalStateException if this is not the response of a twin query
+     */
+    DeviceTwinDevice nextDeviceTwin() throws IOException
+    {
+        if (this.deviceTwinDecoder == null)
+        {
+            throw new IllegalStateException("Only the response of a twin query can be decoded into DeviceTwinDevice objects");
+        }
+
+        DeviceTwinDevice next = this.getDeviceTwinIterator().next();
+        this.returnedElementCount++;
+        return next;
+    }
+
+    private Iterator<?> getResponseElementsIterator()
+    {
+        if (this.responseElementsIterator == null)
+        {
+            this.responseElementsIterator = skip(parseJsonItems(new String(this.twinPage)), this.returnedElementCount);
+            this.deviceTwinIterator = null;
+        }
+
+        return this.responseElementsIterator;
+    }
+
+    private Iterator<DeviceTwinDevice> getDeviceTwinIterator() throws IOException
+    {
+        if (this.deviceTwinIterator == null)
+        {
+            this.deviceTwinIterator = skip(this.deviceTwinDecoder.decode(this.twinPage).iterator(), this.returnedElementCount);
+            this.responseElementsIterator = null;
+        }
+
+        return this.deviceTwinIterator;
+    }
+
+    private static Iterator<?> parseJsonItems(String jsonString)
+    {
+        QueryResponseParser responseParser = new QueryResponseParser(jsonString);
+        return responseParser.getJsonItems().iterator();
+    }
+
+    private static <T> Iterator<T> skip(Iterator<T> iterator, int count)
+    {
+        for (int i = 0; i < count && iterator.hasNext(); i++)
+        {
+            iterator.next();
+        }
+
+        return iterator;
     }
 }
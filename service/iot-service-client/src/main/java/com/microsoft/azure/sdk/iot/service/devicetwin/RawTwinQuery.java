@@ -56,7 +56,7 @@ public class RawTwinQuery
      * @throws IotHubException If IotHub did not respond successfully to the query
      * @throws IOException If any of the input parameters are incorrect
      */
-    public synchronized Query query(String sqlQuery, Integer pageSize) throws IotHubException, IOException
+    public Query query(String sqlQuery, Integer pageSize) throws IotHubException, IOException
     {
         if (sqlQuery == null || sqlQuery.length() == 0)
         {
@@ -85,7 +85,7 @@ public class RawTwinQuery
      * @throws IotHubException If IotHub did not respond successfully to the query
      * @throws IOException If any of the input parameters are incorrect
      */
-    public synchronized Query query(String sqlQuery) throws IotHubException, IOException
+    public Query query(String sqlQuery) throws IotHubException, IOException
     {
         //Codes_SRS_RAW_QUERY_25_009: [ If the pageSize if not provided then a default pageSize of 100 is used for the query.]
         return this.query(sqlQuery, DEFAULT_PAGE_SIZE);
@@ -99,7 +99,7 @@ public class RawTwinQuery
      * @throws IotHubException If IotHub could not respond successfully to the query request
      * @throws IOException If any of the input parameters are incorrect
      */
-    public synchronized boolean hasNext(Query query) throws IotHubException, IOException
+    public boolean hasNext(Query query) throws IotHubException, IOException
     {
         if (query == null)
         {
@@ -119,7 +119,7 @@ public class RawTwinQuery
      * @throws IotHubException If IotHub could not respond successfully to the query request
      * @throws NoSuchElementException If no other element is found
      */
-    public synchronized String next(Query query) throws IOException, IotHubException, NoSuchElementException
+    public String next(Query query) throws IOException, IotHubException, NoSuchElementException
     {
         //Codes_SRS_RAW_QUERY_25_015: [ The method shall check if hasNext returns true and throw NoSuchElementException otherwise ]
         //Codes_SRS_RAW_QUERY_25_018: [ If the input query is null, then this method shall throw IllegalArgumentException ]
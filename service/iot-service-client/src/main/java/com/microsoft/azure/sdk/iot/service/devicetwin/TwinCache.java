@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.deps.twin.TwinState;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size bounded cache of the twins read by a {@link DeviceTwin}.
+ *
+ * <p>Once a twin is cached, {@link DeviceTwin#getTwin(DeviceTwinDevice)} sends the etag of the cached twin in an
+ * {@code If-None-Match} header. If the twin did not change since, the service answers with a 304 status and no body,
+ * and the twin is returned from the cache without being downloaded and parsed again. The twins that are updated or
+ * replaced through the same {@link DeviceTwin} are dropped from the cache.</p>
+ *
+ * <p>The least recently read twin is dropped when the cache is full. The twins are cached by device and module id,
+ * so a cache shall only be shared by DeviceTwin instances of the same IoT Hub. This class is thread safe.</p>
+ */
+public final class TwinCache
+{
+    private static final String MODULE_SEPARATOR = "/";
+
+    private final Map<String, TwinState> twins;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong revalidationCount = new AtomicLong();
+
+    /**
+     * Create a twin cache.
+     *
+     * @param maxTwins the maximum number of twins in the cache. Must be positive.
+     * @throws IllegalArgumentException if maxTwins is not positive
+     */
+    public TwinCache(final int maxTwins) throws IllegalArgumentException
+    {
+        if (maxTwins <= 0)
+        {
+            throw new IllegalArgumentException("maxTwins must be positive");
+        }
+
+        // access order, so the eldest entry is the least recently read twin
+        this.twins = new LinkedHashMap<String, TwinState>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TwinState> eldest)
+            {
+                return size() > maxTwins;
+            }
+        };
+    }
+
+    /**
+     * @return the number of twins read from the cache because the service answered that they did not change
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of twins read from the service because they were not in the cache
+     */
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+
+    /**
+     * @return the number of twins in the cache whose etag was checked with the service, whether they changed or not
+     */
+    public long getRevalidationCount()
+    {
+        return this.revalidationCount.get();
+    }
+
+    /**
+     * @return the number of twins in the cache
+     */
+    public synchronized int size()
+    {
+        return this.twins.size();
+    }
+
+    /**
+     * Drop all the twins from the cache. The counters are not reset.
+     */
+    public synchronized void clear()
+    {
+        this.twins.clear();
+    }
+
+    synchronized TwinState get(String deviceId, String moduleId)
+    {
+        return this.twins.get(toKey(deviceId, moduleId));
+    }
+
+    synchronized void put(String deviceId, String moduleId, TwinState twinState)
+    {
+        this.twins.put(toKey(deviceId, moduleId), twinState);
+    }
+
+    synchronized void remove(String deviceId, String moduleId)
+    {
+        this.twins.remove(toKey(deviceId, moduleId));
+    }
+
+    void recordHit()
+    {
+        this.hitCount.incrementAndGet();
+    }
+
+    void recordMiss()
+    {
+        this.missCount.incrementAndGet();
+    }
+
+    void recordRevalidation()
+    {
+        this.revalidationCount.incrementAndGet();
+    }
+
+    private static String toKey(String deviceId, String moduleId)
+    {
+        if (moduleId == null || moduleId.isEmpty())
+        {
+            return deviceId;
+        }
+
+        // '/' is not allowed in device ids, so the keys of device and module twins cannot collide
+        return deviceId + MODULE_SEPARATOR + moduleId;
+    }
+}
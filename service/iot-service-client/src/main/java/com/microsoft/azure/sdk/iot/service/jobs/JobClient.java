@@ -11,6 +11,7 @@ import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.devicetwin.*;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.transport.AsyncOperationExecutor;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
 
@@ -19,6 +20,8 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 /**
  * JobClient enables service client to schedule and cancel jobs for a group of devices using the IoTHub.
@@ -32,6 +35,8 @@ public class JobClient
     private final static byte[] EMPTY_JSON = "{}".getBytes();
 
     private IotHubConnectionString iotHubConnectionString = null;
+    private ExecutorService asyncExecutor = new AsyncOperationExecutor(AsyncOperationExecutor.DEFAULT_MAX_CONCURRENCY, "azure-iot-sdk-JobClient-");
+    private final JobTracker jobTracker = new JobTracker(this);
 
     /**
      * Static constructor to create instance from connection string
@@ -71,7 +76,7 @@ public class JobClient
      * @throws IOException if the function cannot create a URL for the job
      * @throws IotHubException if the http request failed
      */
-    public synchronized JobResult scheduleUpdateTwin(
+    public JobResult scheduleUpdateTwin(
             String jobId,
             String queryCondition,
             DeviceTwinDevice updateTwin,
@@ -144,7 +149,7 @@ public class JobClient
      * @throws IOException if the function cannot create a URL for the job, or the IO failed on request
      * @throws IotHubException if the http request failed
      */
-    public synchronized JobResult scheduleDeviceMethod(
+    public JobResult scheduleDeviceMethod(
             String jobId,
             String queryCondition,
             String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload,
@@ -211,7 +216,7 @@ public class JobClient
      * @throws IOException if the function cannot create a URL for the job, or the IO failed on request
      * @throws IotHubException if the http request failed
      */
-    public synchronized JobResult getJob(String jobId)
+    public JobResult getJob(String jobId)
             throws IllegalArgumentException, IOException, IotHubException
     {
         URL url;
@@ -250,7 +255,7 @@ public class JobClient
      * @throws IOException if the function cannot create a URL for the job, or the IO failed on request
      * @throws IotHubException if the http request failed
      */
-    public synchronized JobResult cancelJob(String jobId)
+    public JobResult cancelJob(String jobId)
             throws IllegalArgumentException, IOException, IotHubException
     {
         URL url;
@@ -279,6 +284,89 @@ public class JobClient
         return new JobResult(response.getBody());
     }
 
+    /**
+     * Setter for the maximum number of asynchronous operations of this JobClient that run at the same time.
+     * The other operations wait for their turn.
+     *
+     * @param maxConcurrency the maximum number of asynchronous operations that run at the same time. It shall be positive.
+     * @throws IllegalArgumentException if the maxConcurrency is not positive.
+     */
+    public void setMaxConcurrency(int maxConcurrency) throws IllegalArgumentException
+    {
+        if (maxConcurrency <= 0)
+        {
+            throw new IllegalArgumentException("maxConcurrency shall be positive");
+        }
+
+        if (this.asyncExecutor instanceof AsyncOperationExecutor)
+        {
+            ((AsyncOperationExecutor) this.asyncExecutor).setMaxConcurrency(maxConcurrency);
+        }
+    }
+
+    /**
+     * Setter for the executor that runs the asynchronous operations of this JobClient, instead of its own bounded pool of
+     * threads. For example, {@code Executors.newVirtualThreadPerTaskExecutor()} runs each operation in its own virtual
+     * thread. The executor is not shut down by this JobClient, and {@link #setMaxConcurrency(int)} has no effect on it.
+     *
+     * @param executor the executor of the asynchronous operations. It cannot be {@code null}.
+     * @throws IllegalArgumentException if the executor is {@code null}.
+     */
+    public void setAsyncExecutor(ExecutorService executor) throws IllegalArgumentException
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+
+        this.asyncExecutor = executor;
+    }
+
+    /**
+     * Get the current job on the iotHub without blocking the caller.
+     *
+     * @param jobId Unique Job Id for this job
+     * @return the future that completes with the jobResult object, or exceptionally with the exception thrown by
+     *         {@link #getJob(String)}
+     */
+    public CompletableFuture<JobResult> getJobAsync(final String jobId)
+    {
+        return AsyncOperationExecutor.submitOperation(this.asyncExecutor, () -> getJob(jobId));
+    }
+
+    /**
+     * Cancel a current job on the IoTHub without blocking the caller.
+     *
+     * @param jobId Unique Job Id for this job
+     * @return the future that completes with the jobResult object, or exceptionally with the exception thrown by
+     *         {@link #cancelJob(String)}
+     */
+    public CompletableFuture<JobResult> cancelJobAsync(final String jobId)
+    {
+        return AsyncOperationExecutor.submitOperation(this.asyncExecutor, () -> cancelJob(jobId));
+    }
+
+    /**
+     * Wait for a job on the IoTHub to end, without blocking the caller.
+     *
+     * <p> The job is polled less and less often as it ages. The jobs awaited at about the same time are polled
+     *     together with a single query of the job responses, instead of getting each of them.
+     *
+     * @param jobId Unique Job Id for this job
+     * @return the future that completes with the jobResult object once the job is completed, failed or cancelled, or
+     *         exceptionally with the exception thrown by {@link #getJob(String)}
+     * @throws IllegalArgumentException if the jobId is invalid
+     */
+    public CompletableFuture<JobResult> awaitJobAsync(String jobId) throws IllegalArgumentException
+    {
+        if((jobId == null) || jobId.isEmpty())
+        {
+            throw new IllegalArgumentException("null jobId");
+        }
+
+        return this.jobTracker.track(jobId);
+    }
+
     private TwinState getParserFromDevice(DeviceTwinDevice device) throws IOException
     {
         TwinCollection tags = null;
@@ -341,7 +429,7 @@ public class JobClient
      * @throws IotHubException When IotHub fails to respond
      * @throws IOException When any of the parameters are incorrect
      */
-    public synchronized Query queryDeviceJob(String sqlQuery, Integer pageSize) throws IotHubException, IOException
+    public Query queryDeviceJob(String sqlQuery, Integer pageSize) throws IotHubException, IOException
     {
         if (sqlQuery == null || sqlQuery.length() == 0)
         {
@@ -370,7 +458,7 @@ public class JobClient
      * @throws IotHubException When IotHub fails to respond
      * @throws IOException When any of the parameters are incorrect
      */
-    public synchronized Query queryDeviceJob(String sqlQuery) throws IotHubException, IOException
+    public Query queryDeviceJob(String sqlQuery) throws IotHubException, IOException
     {
         //Codes_SRS_JOBCLIENT_25_038: [If the pageSize is not specified, default pageSize of 100 shall be used .]
         return queryDeviceJob(sqlQuery, DEFAULT_PAGE_SIZE);
@@ -383,7 +471,7 @@ public class JobClient
      * @throws IotHubException When IotHub fails to respond
      * @throws IOException if any of the input parameters are incorrect
      */
-    public synchronized boolean hasNextJob(Query query) throws IotHubException, IOException
+    public boolean hasNextJob(Query query) throws IotHubException, IOException
     {
         if (query == null)
         {
@@ -402,7 +490,7 @@ public class JobClient
      * @throws IOException if any of the input parameters are incorrect
      * @throws NoSuchElementException if called when no further responses are left
      */
-    public synchronized JobResult getNextJob(Query query) throws IOException, IotHubException, NoSuchElementException
+    public JobResult getNextJob(Query query) throws IOException, IotHubException, NoSuchElementException
     {
         if (query == null)
         {
@@ -434,7 +522,7 @@ public class JobClient
      * @throws IOException If any of the input parameters are incorrect
      * @throws IotHubException If IotHub failed to respond
      */
-    public synchronized Query queryJobResponse(JobType jobType, JobStatus jobStatus, Integer pageSize) throws IOException, IotHubException
+    public Query queryJobResponse(JobType jobType, JobStatus jobStatus, Integer pageSize) throws IOException, IotHubException
     {
         if (pageSize <= 0)
         {
@@ -459,7 +547,7 @@ public class JobClient
      * @throws IOException If any of the input parameters are incorrect
      * @throws IotHubException If IotHub failed to respond
      */
-    public synchronized Query queryJobResponse(JobType jobType, JobStatus jobStatus) throws IotHubException, IOException
+    public Query queryJobResponse(JobType jobType, JobStatus jobStatus) throws IotHubException, IOException
     {
         //Codes_SRS_JOBCLIENT_25_043: [If the pageSize is not specified, default pageSize of 100 shall be used.]
         return queryJobResponse(jobType, jobStatus, DEFAULT_PAGE_SIZE);
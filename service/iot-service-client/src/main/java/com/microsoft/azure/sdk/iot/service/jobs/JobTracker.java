@@ -0,0 +1,303 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.jobs;
+
+import com.microsoft.azure.sdk.iot.deps.util.DaemonThreadFactory;
+import com.microsoft.azure.sdk.iot.service.devicetwin.Query;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubBadGatewayException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubGatewayTimeoutException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubInternalServerErrorException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubServerBusyException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubTooManyRequestsException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the IoTHub for the jobs awaited with {@link JobClient#awaitJobAsync(String)} until they end.
+ *
+ * <p> Each job is polled a second after it starts being tracked, and then less and less often as it ages, up to
+ *     every 30 seconds. The jobs that are due at about the same time are polled together in a single round, by
+ *     querying the job responses of the IoTHub once instead of getting each job. The query is filtered by the type
+ *     of the jobs when they are all known to have the same type, and reads a number of results proportional to the
+ *     number of jobs due. The jobs that the query does not return are then read one by one.
+ *
+ * <p> A job whose read fails with a transient error, such as a network error or a throttled or busy IoTHub, is polled
+ *     again later, as if it had not ended. Its future only fails once it failed for 5 minutes in a row, or on the
+ *     first error that is not transient.
+ *
+ * <p> A single thread runs the rounds. It is only started while jobs are tracked.
+ */
+final class JobTracker
+{
+    private static final long INITIAL_POLL_INTERVAL_MILLIS = 1000;
+    private static final long MAX_POLL_INTERVAL_MILLIS = 30000;
+    private static final int POLL_INTERVAL_GROWTH_FACTOR = 2;
+    private static final long COALESCING_WINDOW_MILLIS = 500;
+    private static final int MIN_BATCH_SIZE = 2;
+    private static final int MAX_BATCH_QUERY_RESULTS = 1000;
+    private static final int MAX_BATCH_QUERY_RESULTS_PER_JOB = 20;
+    private static final int MAX_BATCH_QUERY_PAGE_SIZE = 100;
+    private static final long TRANSIENT_FAILURE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("azure-iot-sdk-JobTracker-");
+
+    private final JobClient jobClient;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Map<String, TrackedJob> trackedJobs = new HashMap<>();
+    private ScheduledFuture<?> nextRound = null;
+    private long nextRoundTime = 0;
+
+    private static final class TrackedJob
+    {
+        private final String jobId;
+        private final CompletableFuture<JobResult> future = new CompletableFuture<>();
+        private long pollInterval = INITIAL_POLL_INTERVAL_MILLIS;
+        private long nextPollTime;
+        // known once the job was read
+        private JobType jobType;
+        // the time of the first of the failures since the job was last read, null if it was read since
+        private Long firstFailureTime;
+
+        private TrackedJob(String jobId, long now)
+        {
+            this.jobId = jobId;
+            this.nextPollTime = now + INITIAL_POLL_INTERVAL_MILLIS;
+        }
+
+        private void backOff(long now)
+        {
+            this.pollInterval = Math.min(this.pollInterval * POLL_INTERVAL_GROWTH_FACTOR, MAX_POLL_INTERVAL_MILLIS);
+            this.nextPollTime = now + this.pollInterval;
+        }
+    }
+
+    JobTracker(JobClient jobClient)
+    {
+        this.jobClient = jobClient;
+
+        this.scheduler = new ScheduledThreadPoolExecutor(1, THREAD_FACTORY);
+        this.scheduler.setKeepAliveTime(IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        this.scheduler.allowCoreThreadTimeOut(true);
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Track a job until it ends.
+     *
+     * @param jobId the id of the job.
+     * @return the future that completes with the result of the job once it ended. Cancelling it does not affect the
+     *         other futures returned for the same job.
+     */
+    CompletableFuture<JobResult> track(String jobId)
+    {
+        TrackedJob trackedJob;
+        synchronized (this)
+        {
+            trackedJob = this.trackedJobs.get(jobId);
+            if (trackedJob == null)
+            {
+                trackedJob = new TrackedJob(jobId, now());
+                this.trackedJobs.put(jobId, trackedJob);
+                this.scheduleRound(trackedJob.nextPollTime);
+            }
+        }
+
+        // each caller gets its own future, so one of them cannot cancel the others
+        return trackedJob.future.thenApply(jobResult -> jobResult);
+    }
+
+    private void runRound()
+    {
+        List<TrackedJob> dueJobs = new ArrayList<>();
+        synchronized (this)
+        {
+            this.nextRound = null;
+            long dueTime = now() + COALESCING_WINDOW_MILLIS;
+            for (TrackedJob trackedJob : this.trackedJobs.values())
+            {
+                if (trackedJob.nextPollTime <= dueTime)
+                {
+                    dueJobs.add(trackedJob);
+                }
+            }
+        }
+
+        try
+        {
+            this.poll(dueJobs);
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                long earliestPollTime = Long.MAX_VALUE;
+                for (TrackedJob trackedJob : this.trackedJobs.values())
+                {
+                    earliestPollTime = Math.min(earliestPollTime, trackedJob.nextPollTime);
+                }
+                if (earliestPollTime != Long.MAX_VALUE)
+                {
+                    this.scheduleRound(earliestPollTime);
+                }
+            }
+        }
+    }
+
+    private void poll(List<TrackedJob> dueJobs)
+    {
+        Map<String, JobResult> queriedJobs = new HashMap<>();
+        if (dueJobs.size() >= MIN_BATCH_SIZE)
+        {
+            Set<String> jobIds = new HashSet<>();
+            JobType jobType = dueJobs.get(0).jobType;
+            for (TrackedJob trackedJob : dueJobs)
+            {
+                jobIds.add(trackedJob.jobId);
+                if (trackedJob.jobType != jobType)
+                {
+                    jobType = null;
+                }
+            }
+            queriedJobs = this.queryJobs(jobIds, jobType);
+        }
+
+        for (TrackedJob trackedJob : dueJobs)
+        {
+            JobResult jobResult = queriedJobs.get(trackedJob.jobId);
+            if (jobResult == null)
+            {
+                try
+                {
+                    jobResult = this.jobClient.getJob(trackedJob.jobId);
+                }
+                catch (IOException | IotHubException | RuntimeException e)
+                {
+                    this.handleFailure(trackedJob, e);
+                    continue;
+                }
+            }
+
+            synchronized (this)
+            {
+                trackedJob.jobType = jobResult.getJobType();
+                trackedJob.firstFailureTime = null;
+            }
+
+            if (isEnded(jobResult.getJobStatus()))
+            {
+                this.untrack(trackedJob);
+                trackedJob.future.complete(jobResult);
+            }
+            else
+            {
+                synchronized (this)
+                {
+                    trackedJob.backOff(now());
+                }
+            }
+        }
+    }
+
+    private void handleFailure(TrackedJob trackedJob, Exception e)
+    {
+        synchronized (this)
+        {
+            long now = now();
+            if (trackedJob.firstFailureTime == null)
+            {
+                trackedJob.firstFailureTime = now;
+            }
+
+            if (isTransient(e) && (now - trackedJob.firstFailureTime < TRANSIENT_FAILURE_TIMEOUT_MILLIS))
+            {
+                trackedJob.backOff(now);
+                return;
+            }
+
+            this.trackedJobs.remove(trackedJob.jobId);
+        }
+
+        trackedJob.future.completeExceptionally(e);
+    }
+
+    private Map<String, JobResult> queryJobs(Set<String> jobIds, JobType jobType)
+    {
+        Map<String, JobResult> queriedJobs = new HashMap<>();
+        try
+        {
+            // the jobs of the hub may be many more than those awaited, only look through a few for each of them
+            int maxResultCount = Math.min(MAX_BATCH_QUERY_RESULTS, jobIds.size() * MAX_BATCH_QUERY_RESULTS_PER_JOB);
+            Query query = this.jobClient.queryJobResponse(jobType, null, Math.min(maxResultCount, MAX_BATCH_QUERY_PAGE_SIZE));
+            int resultCount = 0;
+            while ((queriedJobs.size() < jobIds.size()) && (resultCount < maxResultCount) && this.jobClient.hasNextJob(query))
+            {
+                JobResult jobResult = this.jobClient.getNextJob(query);
+                String jobId = jobResult.getJobId();
+                resultCount++;
+                if (jobIds.contains(jobId))
+                {
+                    queriedJobs.put(jobId, jobResult);
+                }
+            }
+        }
+        catch (IOException | IotHubException | RuntimeException e)
+        {
+            // the jobs that were not queried are read one by one
+        }
+
+        return queriedJobs;
+    }
+
+    private synchronized void untrack(TrackedJob trackedJob)
+    {
+        this.trackedJobs.remove(trackedJob.jobId);
+    }
+
+    private void scheduleRound(long pollTime)
+    {
+        if ((this.nextRound != null) && (this.nextRoundTime <= pollTime))
+        {
+            return;
+        }
+
+        if (this.nextRound != null)
+        {
+            this.nextRound.cancel(false);
+        }
+        this.nextRoundTime = pollTime;
+        this.nextRound = this.scheduler.schedule(this::runRound, Math.max(0, pollTime - now()), TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isTransient(Exception e)
+    {
+        return (e instanceof IOException)
+                || (e instanceof IotHubTooManyRequestsException)
+                || (e instanceof IotHubInternalServerErrorException)
+                || (e instanceof IotHubBadGatewayException)
+                || (e instanceof IotHubServerBusyException)
+                || (e instanceof IotHubGatewayTimeoutException);
+    }
+
+    private static boolean isEnded(JobStatus jobStatus)
+    {
+        return (jobStatus == JobStatus.completed) || (jobStatus == JobStatus.failed) || (jobStatus == JobStatus.cancelled);
+    }
+
+    private static long now()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
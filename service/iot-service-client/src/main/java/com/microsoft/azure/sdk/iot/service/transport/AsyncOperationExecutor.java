@@ -0,0 +1,160 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.transport;
+
+import com.microsoft.azure.sdk.iot.deps.util.DaemonThreadFactory;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the operations behind the asynchronous APIs of the service clients.
+ *
+ * <p> Up to {@code maxConcurrency} operations run at the same time, and the others wait in a queue without holding a
+ *     thread. The threads are only started when operations are submitted, and stop after being idle for a minute, so
+ *     a client that is rarely used asynchronously holds no thread. The threads are daemon threads.
+ */
+public class AsyncOperationExecutor extends ThreadPoolExecutor
+{
+    /** The maximum number of concurrent operations of a service client, unless it is configured otherwise. */
+    public static final int DEFAULT_MAX_CONCURRENCY = 100;
+
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+    /**
+     * An operation of a service client.
+     *
+     * @param <T> the type of the result of the operation.
+     */
+    @FunctionalInterface
+    public interface Operation<T>
+    {
+        /**
+         * Run the operation.
+         *
+         * @return the result of the operation.
+         * @throws IOException if the IO operation failed.
+         * @throws IotHubException if the response verification failed.
+         */
+        T run() throws IOException, IotHubException;
+    }
+
+    /**
+     * Create an executor.
+     *
+     * @param maxConcurrency the maximum number of operations that run at the same time. It shall be positive.
+     * @param threadNamePrefix the prefix of the names of the threads. It cannot be {@code null}.
+     * @throws IllegalArgumentException if the maxConcurrency is not positive, or the threadNamePrefix is {@code null}.
+     */
+    public AsyncOperationExecutor(int maxConcurrency, final String threadNamePrefix) throws IllegalArgumentException
+    {
+        super(validateMaxConcurrency(maxConcurrency), maxConcurrency, IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory(threadNamePrefix));
+
+        // the pool only grows beyond its core size once the queue is full, so the core size is the max concurrency,
+        // and the idle core threads stop
+        this.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Setter for the maximum number of operations that run at the same time. The operations that are already running
+     * are not affected.
+     *
+     * @param maxConcurrency the maximum number of operations that run at the same time. It shall be positive.
+     * @throws IllegalArgumentException if the maxConcurrency is not positive.
+     */
+    public synchronized void setMaxConcurrency(int maxConcurrency) throws IllegalArgumentException
+    {
+        validateMaxConcurrency(maxConcurrency);
+
+        // the core size can never exceed the maximum size, so the order of the updates depends on the direction
+        if (maxConcurrency > this.getMaximumPoolSize())
+        {
+            this.setMaximumPoolSize(maxConcurrency);
+            this.setCorePoolSize(maxConcurrency);
+        }
+        else
+        {
+            this.setCorePoolSize(maxConcurrency);
+            this.setMaximumPoolSize(maxConcurrency);
+        }
+    }
+
+    /**
+     * Getter for the maximum number of operations that run at the same time.
+     *
+     * @return the maximum number of operations that run at the same time.
+     */
+    public int getMaxConcurrency()
+    {
+        return this.getMaximumPoolSize();
+    }
+
+    /**
+     * Submit an operation.
+     *
+     * @param operation the operation to run. It cannot be {@code null}.
+     * @param <T> the type of the result of the operation.
+     * @return the future that completes with the result of the operation, or exceptionally with the exception it threw.
+     * @throws IllegalArgumentException if the operation is {@code null}.
+     * @throws RejectedExecutionException if the executor is shut down.
+     */
+    public <T> CompletableFuture<T> submitOperation(final Operation<T> operation) throws IllegalArgumentException, RejectedExecutionException
+    {
+        return submitOperation(this, operation);
+    }
+
+    /**
+     * Submit an operation to any executor, such as one provided by the user of a service client.
+     *
+     * @param executor the executor that runs the operation. It cannot be {@code null}.
+     * @param operation the operation to run. It cannot be {@code null}.
+     * @param <T> the type of the result of the operation.
+     * @return the future that completes with the result of the operation, or exceptionally with the exception it threw.
+     * @throws IllegalArgumentException if the executor or the operation is {@code null}.
+     * @throws RejectedExecutionException if the executor rejects the operation.
+     */
+    public static <T> CompletableFuture<T> submitOperation(Executor executor, final Operation<T> operation) throws IllegalArgumentException, RejectedExecutionException
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+        if (operation == null)
+        {
+            throw new IllegalArgumentException("operation cannot be null");
+        }
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() ->
+        {
+            try
+            {
+                future.complete(operation.run());
+            }
+            catch (Throwable e)
+            {
+                // an Error completes the future too, so that its callers do not wait forever
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static int validateMaxConcurrency(int maxConcurrency) throws IllegalArgumentException
+    {
+        if (maxConcurrency <= 0)
+        {
+            throw new IllegalArgumentException("maxConcurrency shall be positive");
+        }
+
+        return maxConcurrency;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.Message;
+import org.apache.qpid.proton.amqp.messaging.Properties;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Sender;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Send handler that pipelines one cloud to device message per device over a single AMQP link.
+ * Deliveries are sent while the link has credit and the number of unsettled deliveries is below
+ * the in flight window. The connection is closed once every device has been served.
+ */
+public class AmqpBulkSendHandler extends AmqpSendHandler
+{
+    /** Placeholder replaced with the target device id in message id templates */
+    public static final String DEVICE_ID_PLACEHOLDER = "{deviceId}";
+
+    private final Queue<String> deviceIds;
+    private final Message template;
+    private final String messageIdTemplate;
+    private final int maxInFlight;
+    private final AmqpBulkSendListener listener;
+
+    private final Map<String, InFlightMessage> inFlight = new HashMap<>();
+    private byte[] encodeBuffer = new byte[1024];
+    private long nextTag = 0;
+    private boolean finished = false;
+    private boolean closed = false;
+
+    /**
+     * Constructor to set up connection parameters and the messages to pipeline
+     *
+     * @param hostName The address string of the service (example: AAA.BBB.CCC)
+     * @param userName The username string to use SASL authentication (example: user@sas.service)
+     * @param sasToken The SAS token string
+     * @param iotHubServiceClientProtocol protocol to use
+     * @param deviceIds The devices to send to. The queue may be shared with other handlers, it must be safe for concurrent polling
+     * @param template The message sent to every device
+     * @param messageIdTemplate The message id template, {@link #DEVICE_ID_PLACEHOLDER} is replaced with the device id. May be null to keep the template message id
+     * @param maxInFlight The maximum number of unacknowledged deliveries on the link
+     * @param listener The listener notified of the outcome for each device
+     */
+    public AmqpBulkSendHandler(String hostName, String userName, String sasToken, IotHubServiceClientProtocol iotHubServiceClientProtocol,
+                               Queue<String> deviceIds, Message template, String messageIdTemplate, int maxInFlight, AmqpBulkSendListener listener)
+    {
+        super(hostName, userName, sasToken, iotHubServiceClientProtocol);
+
+        if (deviceIds == null)
+        {
+            throw new IllegalArgumentException("deviceIds cannot be null");
+        }
+        if (template == null)
+        {
+            throw new IllegalArgumentException("template cannot be null");
+        }
+        if (maxInFlight < 1)
+        {
+            throw new IllegalArgumentException("maxInFlight must be greater than 0");
+        }
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("listener cannot be null");
+        }
+
+        this.deviceIds = deviceIds;
+        this.template = template;
+        this.messageIdTemplate = messageIdTemplate;
+        this.maxInFlight = maxInFlight;
+        this.listener = listener;
+    }
+
+    /**
+     * Event handler for the link flow event. Sends as many messages as the credit and the in flight window allow
+     * @param event The proton event object
+     */
+    @Override
+    public void onLinkFlow(Event event)
+    {
+        sendAvailable((Sender) event.getLink());
+    }
+
+    /**
+     * Event handler for the delivery event. Reports the outcome of the delivery and refills the window
+     * @param event The proton event object
+     */
+    @Override
+    public void onDelivery(Event event)
+    {
+        if (event.getType() != Event.Type.DELIVERY)
+        {
+            return;
+        }
+
+        Delivery delivery = event.getDelivery();
+        if (!delivery.remotelySettled() && delivery.getRemoteState() == null)
+        {
+            return;
+        }
+
+        InFlightMessage target = inFlight.remove(new String(delivery.getTag()));
+        AmqpResponseVerification verification = new AmqpResponseVerification(delivery.getRemoteState());
+        delivery.settle();
+
+        if (target != null)
+        {
+            listener.onOutcome(target.deviceId, target.messageId, verification.getException());
+        }
+
+        sendAvailable(event.getSender());
+    }
+
+    /**
+     * Event handler for the transport error event. Fails every in flight delivery
+     * @param event The Proton Event object.
+     */
+    @Override
+    public void onTransportError(Event event)
+    {
+        super.onTransportError(event);
+        failInFlight(new IOException("A Transport error occurred"));
+    }
+
+    /**
+     * Fail every delivery that has not been acknowledged by the service yet
+     * @param cause The exception reported for each unacknowledged device
+     */
+    public void failInFlight(Exception cause)
+    {
+        for (InFlightMessage target : inFlight.values())
+        {
+            listener.onOutcome(target.deviceId, target.messageId, cause);
+        }
+        inFlight.clear();
+    }
+
+    /**
+     * Resolve the message id used for a device
+     * @param messageIdTemplate The message id template, or null to keep the template message id
+     * @param template The message sent to every device
+     * @param deviceId The target device
+     * @return The message id for the target device
+     */
+    public static String resolveMessageId(String messageIdTemplate, Message template, String deviceId)
+    {
+        if (messageIdTemplate == null)
+        {
+            return template.getMessageId();
+        }
+        return messageIdTemplate.replace(DEVICE_ID_PLACEHOLDER, deviceId);
+    }
+
+    private void sendAvailable(Sender sender)
+    {
+        while (!finished && sender.getCredit() > 0 && inFlight.size() < maxInFlight)
+        {
+            String deviceId = deviceIds.poll();
+            if (deviceId == null)
+            {
+                finished = true;
+                break;
+            }
+
+            String messageId = resolveMessageId(this.messageIdTemplate, template, deviceId);
+
+            org.apache.qpid.proton.message.Message protonMessage = buildProtonMessage(String.format(DEVICE_PATH_FORMAT, deviceId), template);
+            Properties properties = protonMessage.getProperties();
+            properties.setMessageId(messageId);
+
+            int length = encode(protonMessage);
+            String tag = String.valueOf(nextTag++);
+            inFlight.put(tag, new InFlightMessage(deviceId, messageId));
+
+            sender.delivery(tag.getBytes());
+            sender.send(encodeBuffer, 0, length);
+            sender.advance();
+        }
+
+        if (finished && inFlight.isEmpty() && !closed)
+        {
+            closed = true;
+            sender.close();
+            sender.getSession().close();
+            sender.getSession().getConnection().close();
+        }
+    }
+
+    private int encode(org.apache.qpid.proton.message.Message protonMessage)
+    {
+        // The buffer is kept across messages so a broadcast only pays for growth once
+        while (true)
+        {
+            try
+            {
+                return protonMessage.encode(encodeBuffer, 0, encodeBuffer.length);
+            }
+            catch (BufferOverflowException e)
+            {
+                encodeBuffer = new byte[encodeBuffer.length * 2];
+            }
+        }
+    }
+
+    private static final class InFlightMessage
+    {
+        private final String deviceId;
+        private final String messageId;
+
+        private InFlightMessage(String deviceId, String messageId)
+        {
+            this.deviceId = deviceId;
+            this.messageId = messageId;
+        }
+    }
+}
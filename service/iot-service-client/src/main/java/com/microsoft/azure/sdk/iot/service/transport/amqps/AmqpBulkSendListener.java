@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+/**
+ * Receives the per device outcome of a pipelined cloud to device send
+ */
+public interface AmqpBulkSendListener
+{
+    /**
+     * Called once for every device the message was sent to
+     * @param deviceId The device the message was addressed to
+     * @param messageId The message id that was used for this device
+     * @param exception The reason the message was rejected, or null if it was accepted by the service
+     */
+    void onOutcome(String deviceId, String messageId, Exception exception);
+}
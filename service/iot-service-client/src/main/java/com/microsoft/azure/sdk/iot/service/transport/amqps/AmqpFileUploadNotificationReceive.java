@@ -16,6 +16,7 @@ import org.apache.qpid.proton.reactor.Reactor;
 import java.io.IOException;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Instance of the QPID-Proton-J BaseHandler class
@@ -32,6 +33,8 @@ public class AmqpFileUploadNotificationReceive extends BaseHandler implements Am
     private Reactor reactor = null;
     private FileUploadNotification fileUploadNotification;
     private Queue<FileUploadNotification> fileUploadNotificationQueue;
+    // guards the notification queue and serializes the receive and close calls
+    private final ReentrantLock receiveLock = new ReentrantLock();
     private static final int REACTOR_TIMEOUT = 3141; // reactor timeout in milliseconds
 
     /**
@@ -72,28 +75,44 @@ public class AmqpFileUploadNotificationReceive extends BaseHandler implements Am
      * Create AmqpsReceiveHandler and store it in a member variable
      * @throws IOException If underlying layers throws it for any reason
      */
-    public synchronized void open() throws IOException
+    public void open() throws IOException
     {
-        // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_003: [The function shall create an AmqpsReceiveHandler object to handle reactor events]
-        if (amqpReceiveHandler == null)
+        this.receiveLock.lock();
+        try
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_003: [The function shall create an AmqpsReceiveHandler object to handle reactor events]
+            if (amqpReceiveHandler == null)
+            {
+                amqpReceiveHandler = new AmqpFileUploadNotificationReceivedHandler(this.hostName, this.userName, this.sasToken, this.iotHubServiceClientProtocol, this);
+                this.fileUploadNotificationQueue = new LinkedBlockingDeque<>();
+            }
+        }
+        finally
         {
-            amqpReceiveHandler = new AmqpFileUploadNotificationReceivedHandler(this.hostName, this.userName, this.sasToken, this.iotHubServiceClientProtocol, this);
-            this.fileUploadNotificationQueue = new LinkedBlockingDeque<>();
+            this.receiveLock.unlock();
         }
     }
 
     /**
      * Invalidate AmqpsReceiveHandler member variable
      */
-    public synchronized void close()
+    public void close()
     {
-        // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_004: [The function shall invalidate the member AmqpsReceiveHandler object]
-        amqpReceiveHandler = null;
-        if ( fileUploadNotificationQueue!= null && !fileUploadNotificationQueue.isEmpty())
+        this.receiveLock.lock();
+        try
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_004: [The function shall invalidate the member AmqpsReceiveHandler object]
+            amqpReceiveHandler = null;
+            if ( fileUploadNotificationQueue!= null && !fileUploadNotificationQueue.isEmpty())
+            {
+                fileUploadNotificationQueue.clear();
+            }
+            fileUploadNotificationQueue = null;
+        }
+        finally
         {
-            fileUploadNotificationQueue.clear();
+            this.receiveLock.unlock();
         }
-        fileUploadNotificationQueue = null;
     }
 
     /**
@@ -104,46 +123,54 @@ public class AmqpFileUploadNotificationReceive extends BaseHandler implements Am
      * @throws IOException This exception is thrown if the input AmqpReceive object is null
      * @throws InterruptedException This exception is thrown if the receive process has been interrupted
      */
-    public synchronized FileUploadNotification receive(long timeoutMs) throws IOException, InterruptedException
+    public FileUploadNotification receive(long timeoutMs) throws IOException, InterruptedException
     {
-        if  (amqpReceiveHandler != null)
+        this.receiveLock.lock();
+        try
         {
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_005: [The function shall initialize the Proton reactor object]
-            this.reactor = Proton.reactor(this);
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_006: [The function shall start the Proton reactor object]
-            this.reactor.setTimeout(REACTOR_TIMEOUT);
-            this.reactor.start();
+            if  (amqpReceiveHandler != null)
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_005: [The function shall initialize the Proton reactor object]
+                this.reactor = Proton.reactor(this);
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_006: [The function shall start the Proton reactor object]
+                this.reactor.setTimeout(REACTOR_TIMEOUT);
+                this.reactor.start();
             
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_007: [The function shall wait for specified timeout to check for any feedback message]
-            long startTime = System.currentTimeMillis();
-            long endTime = startTime + timeoutMs;
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_007: [The function shall wait for specified timeout to check for any feedback message]
+                long startTime = System.currentTimeMillis();
+                long endTime = startTime + timeoutMs;
             
-            while(this.reactor.process())
-            {
-                if (System.currentTimeMillis() > endTime)
+                while(this.reactor.process())
                 {
-                    break;
+                    if (System.currentTimeMillis() > endTime)
+                    {
+                        break;
+                    }
                 }
-            }
             
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_008: [The function shall stop and free the Proton reactor object]
-            this.reactor.stop();
-            this.reactor.process();
-            this.reactor.free();
-            this.amqpReceiveHandler.receiveComplete();
-        }
-        else
-        {
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_009: [The function shall throw IOException if the send handler object is not initialized]
-            throw new IOException("receive handler is not initialized. call open before receive");
-        }
-        if (!fileUploadNotificationQueue.isEmpty())
-        {
-            return fileUploadNotificationQueue.remove();
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_008: [The function shall stop and free the Proton reactor object]
+                this.reactor.stop();
+                this.reactor.process();
+                this.reactor.free();
+                this.amqpReceiveHandler.receiveComplete();
+            }
+            else
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_009: [The function shall throw IOException if the send handler object is not initialized]
+                throw new IOException("receive handler is not initialized. call open before receive");
+            }
+            if (!fileUploadNotificationQueue.isEmpty())
+            {
+                return fileUploadNotificationQueue.remove();
+            }
+            else
+            {
+                return null;
+            }
         }
-        else
+        finally
         {
-            return null;
+            this.receiveLock.unlock();
         }
     }
 
@@ -153,28 +180,36 @@ public class AmqpFileUploadNotificationReceive extends BaseHandler implements Am
      * Release semaphore for wait function
      * @param feedbackJson Received Json string to process
      */
-    public synchronized void onFeedbackReceived(String feedbackJson)
+    public void onFeedbackReceived(String feedbackJson)
     {
-        // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_010: [The function shall parse the received Json string to FeedbackBath object]
-
+        this.receiveLock.lock();
         try
         {
-            FileUploadNotificationParser notificationParser = new FileUploadNotificationParser(feedbackJson);
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPFILEUPLOADNOTIFICATIONRECEIVE_25_010: [The function shall parse the received Json string to FeedbackBath object]
 
-            fileUploadNotification = new FileUploadNotification(notificationParser.getDeviceId(),
-                    notificationParser.getBlobUri(), notificationParser.getBlobName(), notificationParser.getLastUpdatedTime(),
-                    notificationParser.getBlobSizeInBytesTag(), notificationParser.getEnqueuedTimeUtc());
+            try
+            {
+                FileUploadNotificationParser notificationParser = new FileUploadNotificationParser(feedbackJson);
 
-            fileUploadNotificationQueue.add(fileUploadNotification);
-        }
-        catch (IOException e)
-        {
-            this.fileUploadNotification = null;
+                fileUploadNotification = new FileUploadNotification(notificationParser.getDeviceId(),
+                        notificationParser.getBlobUri(), notificationParser.getBlobName(), notificationParser.getLastUpdatedTime(),
+                        notificationParser.getBlobSizeInBytesTag(), notificationParser.getEnqueuedTimeUtc());
+
+                fileUploadNotificationQueue.add(fileUploadNotification);
+            }
+            catch (IOException e)
+            {
+                this.fileUploadNotification = null;
+            }
+            catch (Exception e)
+            {
+                // this should never happen. However if it does, proton can't handle it. So guard against throwing it at proton.
+                System.out.println("Service threw something mysteriously dangerous, message abandoned.");
+            }
         }
-        catch (Exception e)
+        finally
         {
-            // this should never happen. However if it does, proton can't handle it. So guard against throwing it at proton.
-            System.out.println("Service threw something mysteriously dangerous, message abandoned.");
+            this.receiveLock.unlock();
         }
     }
 }
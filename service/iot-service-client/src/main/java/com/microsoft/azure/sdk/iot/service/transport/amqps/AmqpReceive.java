@@ -14,6 +14,7 @@ import org.apache.qpid.proton.engine.Event;
 import org.apache.qpid.proton.reactor.Reactor;
 
 import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Instance of the QPID-Proton-J BaseHandler class
@@ -29,6 +30,8 @@ public class AmqpReceive extends BaseHandler implements AmqpFeedbackReceivedEven
     private IotHubServiceClientProtocol iotHubServiceClientProtocol;
     private Reactor reactor = null;
     private FeedbackBatch feedbackBatch;
+    // serializes the receive calls, each of which runs its own reactor
+    private final ReentrantLock receiveLock = new ReentrantLock();
     private static final int REACTOR_TIMEOUT = 3141; // reactor timeout in milliseconds
 
     /**
@@ -90,38 +93,46 @@ public class AmqpReceive extends BaseHandler implements AmqpFeedbackReceivedEven
      * @throws IOException This exception is thrown if the input AmqpReceive object is null
      * @throws InterruptedException This exception is thrown if the receive process has been interrupted
      */
-    public synchronized FeedbackBatch receive(long timeoutMs) throws IOException, InterruptedException
+    public FeedbackBatch receive(long timeoutMs) throws IOException, InterruptedException
     {
-        feedbackBatch = null;
-        if  (amqpReceiveHandler != null)
+        this.receiveLock.lock();
+        try
         {
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPRECEIVE_12_005: [The function shall initialize the Proton reactor object]
-            this.reactor = Proton.reactor(this);
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPRECEIVE_12_006: [The function shall start the Proton reactor object]
-            this.reactor.setTimeout(REACTOR_TIMEOUT);
-            this.reactor.start();
+            feedbackBatch = null;
+            if  (amqpReceiveHandler != null)
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPRECEIVE_12_005: [The function shall initialize the Proton reactor object]
+                this.reactor = Proton.reactor(this);
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPRECEIVE_12_006: [The function shall start the Proton reactor object]
+                this.reactor.setTimeout(REACTOR_TIMEOUT);
+                this.reactor.start();
+            
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPRECEIVE_12_007: [The function shall wait for specified timeout to check for any feedback message]
+                long startTime = System.currentTimeMillis();
+                long endTime = startTime + timeoutMs;
             
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPRECEIVE_12_007: [The function shall wait for specified timeout to check for any feedback message]
-            long startTime = System.currentTimeMillis();
-            long endTime = startTime + timeoutMs;
+                while(this.reactor.process())
+                {
+                    if (System.currentTimeMillis() > endTime) break;
+                }
             
-            while(this.reactor.process())
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPRECEIVE_12_008: [The function shall stop and free the Proton reactor object]
+                this.reactor.stop();
+                this.reactor.process();
+                this.reactor.free();   
+                this.amqpReceiveHandler.receiveComplete();
+            }
+            else
             {
-                if (System.currentTimeMillis() > endTime) break;
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPRECEIVE_12_008: [The function shall throw IOException if the send handler object is not initialized]
+                throw new IOException("receive handler is not initialized. call open before receive");
             }
-            
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPRECEIVE_12_008: [The function shall stop and free the Proton reactor object]
-            this.reactor.stop();
-            this.reactor.process();
-            this.reactor.free();   
-            this.amqpReceiveHandler.receiveComplete();
+            return feedbackBatch;
         }
-        else
+        finally
         {
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPRECEIVE_12_008: [The function shall throw IOException if the send handler object is not initialized]
-            throw new IOException("receive handler is not initialized. call open before receive");
+            this.receiveLock.unlock();
         }
-        return feedbackBatch;
     }
 
     /**
@@ -15,6 +15,8 @@ import org.apache.qpid.proton.engine.Event;
 import org.apache.qpid.proton.reactor.Reactor;
 
 import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Instance of the QPID-Proton-J BaseHandler class
@@ -30,6 +32,8 @@ public class AmqpSend extends BaseHandler
     protected Reactor reactor = null;
     protected AmqpSendHandler amqpSendHandler;
     protected IotHubServiceClientProtocol iotHubServiceClientProtocol;
+    // serializes the send calls, each of which runs its own reactor
+    private final ReentrantLock sendLock = new ReentrantLock();
 
     /**
      * Constructor to set up connection parameters
@@ -113,7 +117,8 @@ public class AmqpSend extends BaseHandler
      */
     public void send(String deviceId, String moduleId, Message message) throws IOException, IotHubException
     {
-        synchronized(this)
+        this.sendLock.lock();
+        try
         {
             if  (amqpSendHandler != null)
             {
@@ -141,5 +146,66 @@ public class AmqpSend extends BaseHandler
                 throw new IOException("send handler is not initialized. call open before send");
             }
         }
+        finally
+        {
+            this.sendLock.unlock();
+        }
+    }
+
+    /**
+     * Pipeline one message per device over a dedicated AMQP connection until the device queue is empty.
+     * Several calls may share the same queue to spread the devices over multiple connections.
+     * This call blocks until every message taken from the queue has been acknowledged or failed.
+     * @param deviceIds The devices to send to. It must be safe for concurrent polling when shared between calls
+     * @param template The message sent to every device
+     * @param messageIdTemplate The message id template, {@link AmqpBulkSendHandler#DEVICE_ID_PLACEHOLDER} is replaced with the device id
+     * @param maxInFlight The maximum number of unacknowledged messages on the connection
+     * @param listener The listener notified of the outcome for each device
+     * @throws IOException This exception is thrown if the AmqpSend object is not initialized or the connection failed
+     */
+    public void sendBulk(Queue<String> deviceIds, Message template, String messageIdTemplate, int maxInFlight, AmqpBulkSendListener listener) throws IOException
+    {
+        if (amqpSendHandler == null)
+        {
+            throw new IOException("send handler is not initialized. call open before send");
+        }
+
+        final AmqpBulkSendHandler bulkSendHandler = new AmqpBulkSendHandler(this.hostName, this.userName, this.sasToken,
+                this.iotHubServiceClientProtocol, deviceIds, template, messageIdTemplate, maxInFlight, listener);
+
+        // Unlike send, every bulk connection runs its own reactor so several of them can run in parallel
+        Reactor bulkReactor = Proton.reactor(new BaseHandler()
+        {
+            @Override
+            public void onReactorInit(Event event)
+            {
+                event.getReactor().connection(bulkSendHandler);
+            }
+        });
+        bulkReactor.run();
+        bulkReactor.free();
+
+        IOException failure = null;
+        try
+        {
+            bulkSendHandler.sendComplete();
+        }
+        catch (IOException e)
+        {
+            failure = e;
+        }
+        catch (IotHubException e)
+        {
+            failure = new IOException(e);
+        }
+
+        if (failure != null)
+        {
+            bulkSendHandler.failInFlight(failure);
+            throw failure;
+        }
+
+        // The reactor only stops once the connection is closed, anything left unsettled never got an answer
+        bulkSendHandler.failInFlight(new IOException("Connection closed before the message was acknowledged"));
     }
 }
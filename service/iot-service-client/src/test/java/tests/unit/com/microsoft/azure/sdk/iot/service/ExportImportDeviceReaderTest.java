@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
+import com.microsoft.azure.sdk.iot.service.DeviceStatus;
+import com.microsoft.azure.sdk.iot.service.ExportImportDevice;
+import com.microsoft.azure.sdk.iot.service.ExportImportDeviceReader;
+import com.microsoft.azure.sdk.iot.service.ExportImportDeviceWriter;
+import com.microsoft.azure.sdk.iot.service.ImportMode;
+import com.microsoft.azure.sdk.iot.service.auth.AuthenticationType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ExportImportDeviceReader and ExportImportDeviceWriter, against local files.
+ */
+public class ExportImportDeviceReaderTest
+{
+    private static final int DEVICE_COUNT = 2500;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static List<ExportImportDevice> createDevices(int count)
+    {
+        List<ExportImportDevice> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            ExportImportDevice device = new ExportImportDevice("device" + i, AuthenticationType.SAS);
+            device.setImportMode(ImportMode.Create);
+            device.setStatus((i % 2 == 0) ? DeviceStatus.Enabled : DeviceStatus.Disabled);
+            devices.add(device);
+        }
+
+        return devices;
+    }
+
+    private File writeFile(List<ExportImportDevice> devices) throws IOException
+    {
+        File file = temporaryFolder.newFile("devices.txt");
+        try (ExportImportDeviceWriter writer = new ExportImportDeviceWriter(new FileOutputStream(file)))
+        {
+            assertEquals(devices.size(), writer.writeAll(devices.iterator()));
+        }
+
+        return file;
+    }
+
+    @Test
+    public void readerReturnsTheWrittenDevicesInOrder() throws IOException
+    {
+        // arrange
+        List<ExportImportDevice> devices = createDevices(DEVICE_COUNT);
+        Map<String, Object> tags = new HashMap<>();
+        tags.put("region", "US");
+        devices.get(DEVICE_COUNT - 1).setTags(new TwinCollection(tags));
+        File file = writeFile(devices);
+
+        // act
+        List<ExportImportDevice> readDevices;
+        try (Stream<ExportImportDevice> stream = new ExportImportDeviceReader(new FileInputStream(file), 100, 4).stream())
+        {
+            readDevices = stream.collect(Collectors.toList());
+        }
+
+        // assert
+        assertEquals(DEVICE_COUNT, readDevices.size());
+        for (int i = 0; i < DEVICE_COUNT; i++)
+        {
+            assertEquals(devices.get(i).getId(), readDevices.get(i).getId());
+            assertEquals(devices.get(i), readDevices.get(i));
+            assertEquals(devices.get(i).getAuthenticationFinal().getSymmetricKey().getPrimaryKey(),
+                    readDevices.get(i).getAuthenticationFinal().getSymmetricKey().getPrimaryKey());
+        }
+        assertEquals("US", readDevices.get(DEVICE_COUNT - 1).getTags().get("region"));
+    }
+
+    @Test
+    public void readerSkipsBlankLinesAndReportsInvalidLine() throws IOException
+    {
+        // arrange
+        ByteArrayInputStream blob = new ByteArrayInputStream((
+                "{\"id\":\"device1\",\"authentication\":{\"type\":\"certificateAuthority\"}}\n" +
+                "\n" +
+                "{\"id\":\"device2\",\"authentication\":{\"type\":\"certificateAuthority\"}}\n" +
+                "not a device\n").getBytes(StandardCharsets.UTF_8));
+        ExportImportDeviceReader reader = new ExportImportDeviceReader(blob, 2, 2);
+
+        // act
+        String firstId = reader.next().getId();
+        String secondId = reader.next().getId();
+        try
+        {
+            reader.hasNext();
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // assert
+            assertEquals("device1", firstId);
+            assertEquals("device2", secondId);
+            assertTrue(e.getMessage().contains("Line 4"));
+        }
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void closedReaderHasNoMoreDevices() throws IOException
+    {
+        // arrange
+        File file = writeFile(createDevices(10));
+        ExportImportDeviceReader reader = new ExportImportDeviceReader(new FileInputStream(file), 2, 1);
+        reader.next();
+
+        // act
+        reader.close();
+
+        // assert
+        assertFalse(reader.hasNext());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNonPositiveChunkSize()
+    {
+        // act
+        new ExportImportDeviceReader(new ByteArrayInputStream(new byte[0]), 0, 1);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void writeThrowsOnNullDevice() throws IOException
+    {
+        // arrange
+        ExportImportDeviceWriter writer = new ExportImportDeviceWriter(new FileOutputStream(temporaryFolder.newFile()));
+
+        // act
+        writer.write(null);
+    }
+}
@@ -1448,6 +1448,35 @@ public class RegistryManagerTest
         };
     }
 
+    @Test
+    public void closeDoesNotShutDownAsyncExecutorOfTheUser() throws IOException
+    {
+        //arrange
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = iotHubConnectionString;
+            }
+        };
+
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        registryManager.setAsyncExecutor(mockExecutorService);
+
+        //act
+        registryManager.close();
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockExecutorService.shutdownNow();
+                times = 0;
+            }
+        };
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_001: [The constructor shall throw IllegalArgumentException if the input module is null]
     // Assert
     @Test (expected = IllegalArgumentException.class)
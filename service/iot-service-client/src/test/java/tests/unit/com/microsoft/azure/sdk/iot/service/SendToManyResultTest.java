@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.service.SendToManyOptions;
+import com.microsoft.azure.sdk.iot.service.SendToManyOutcome;
+import com.microsoft.azure.sdk.iot.service.SendToManyResult;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SendToManyResultTest
+{
+    private static final Class[] ON_OUTCOME_TYPES = { String.class, String.class, Exception.class };
+
+    @Test
+    public void emptyResultIsComplete() throws Exception
+    {
+        // Act
+        SendToManyResult result = Deencapsulation.newInstance(SendToManyResult.class, 0);
+
+        // Assert
+        assertTrue(result.isComplete());
+        assertTrue(result.awaitCompletion(0, TimeUnit.MILLISECONDS));
+        assertFalse(result.iterator().hasNext());
+        assertEquals(0, result.getMessagesPerSecond(), 0);
+    }
+
+    @Test
+    public void outcomesAreCountedAndStreamed() throws Exception
+    {
+        // Arrange
+        SendToManyResult result = Deencapsulation.newInstance(SendToManyResult.class, 2);
+
+        // Act
+        Deencapsulation.invoke(result, "onOutcome", ON_OUTCOME_TYPES, "device1", "message-device1", null);
+
+        // Assert
+        assertFalse(result.isComplete());
+        assertEquals(1, result.getSucceededCount());
+
+        // Act
+        Deencapsulation.invoke(result, "onOutcome", ON_OUTCOME_TYPES, "device2", "message-device2", new IOException());
+        List<SendToManyOutcome> outcomes = new ArrayList<>();
+        for (SendToManyOutcome outcome : result)
+        {
+            outcomes.add(outcome);
+        }
+
+        // Assert
+        assertTrue(result.isComplete());
+        assertEquals(1, result.getSucceededCount());
+        assertEquals(1, result.getFailedCount());
+        assertEquals(2, outcomes.size());
+        assertEquals("device1", outcomes.get(0).getDeviceId());
+        assertTrue(outcomes.get(0).isSuccess());
+        assertEquals("message-device2", outcomes.get(1).getMessageId());
+        assertFalse(outcomes.get(1).isSuccess());
+    }
+
+    @Test (timeout = 10000)
+    public void iteratorBlocksUntilOutcomeArrives() throws Exception
+    {
+        // Arrange
+        final SendToManyResult result = Deencapsulation.newInstance(SendToManyResult.class, 1);
+        Thread sender = new Thread(() -> Deencapsulation.invoke(result, "onOutcome", ON_OUTCOME_TYPES, "device1", "message1", null));
+
+        // Act
+        sender.start();
+        SendToManyOutcome outcome = result.iterator().next();
+        sender.join();
+
+        // Assert
+        assertEquals("device1", outcome.getDeviceId());
+        assertTrue(result.isComplete());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void optionsRejectEmptyWindow()
+    {
+        // Act
+        new SendToManyOptions().setMaxInFlight(0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void optionsRejectTooManyConnections()
+    {
+        // Act
+        new SendToManyOptions().setConnectionCount(SendToManyOptions.MAX_CONNECTION_COUNT + 1);
+    }
+}
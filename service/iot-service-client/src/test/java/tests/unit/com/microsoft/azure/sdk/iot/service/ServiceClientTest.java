@@ -7,12 +7,17 @@ package tests.unit.com.microsoft.azure.sdk.iot.service;
 
 import com.microsoft.azure.sdk.iot.service.*;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpBulkSendListener;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSend;
 import mockit.*;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
@@ -477,6 +482,51 @@ public class ServiceClientTest
         completableFuture.get();
     }
 
+    @Test (timeout = 10000)
+    public void send_async_is_not_starved_by_send_to_many() throws Exception
+    {
+        // Arrange
+        String iotHubName = "IOTHUBNAME";
+        String hostName = "HOSTNAME";
+        String sharedAccessKeyName = "ACCESSKEYNAME";
+        String policyName = "SharedAccessKey";
+        String sharedAccessKey = "1234567890abcdefghijklmnopqrstvwxyz=";
+        String connectionString = "HostName=" + hostName + "." + iotHubName + ";SharedAccessKeyName=" + sharedAccessKeyName + ";" + policyName + "=" + sharedAccessKey;
+        String deviceId = "XXX";
+        Message iotMessage = new Message("HELLO");
+        final CountDownLatch released = new CountDownLatch(1);
+        new NonStrictExpectations()
+        {
+            {
+                amqpSend.sendBulk((Queue<String>) any, (Message) any, (String) any, anyInt, (AmqpBulkSendListener) any);
+                result = new Delegate()
+                {
+                    void sendBulk(Queue<String> deviceIds, Message template, String messageIdTemplate, int maxInFlight, AmqpBulkSendListener listener) throws InterruptedException
+                    {
+                        released.await();
+                    }
+                };
+            }
+        };
+        ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, IotHubServiceClientProtocol.AMQPS);
+        List<String> deviceIds = new ArrayList<>();
+        for (int i = 0; i < SendToManyOptions.MAX_CONNECTION_COUNT * 2; i++)
+        {
+            deviceIds.add("device" + i);
+        }
+        SendToManyOptions options = new SendToManyOptions();
+        options.setConnectionCount(SendToManyOptions.MAX_CONNECTION_COUNT);
+        serviceClient.sendToMany(deviceIds, iotMessage, options);
+        serviceClient.sendToMany(deviceIds, iotMessage, options);
+
+        // Act
+        CompletableFuture<Void> completableFuture = serviceClient.sendAsync(deviceId, iotMessage);
+
+        // Assert
+        completableFuture.get();
+        released.countDown();
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_017: [The function shall create a FeedbackReceiver object and returns with it]
     @Test
     public void getFeedbackReceiver_good_case() throws Exception
@@ -730,40 +730,111 @@ public class DeviceOperationsTest
         };
     }
 
-    //Tests_SRS_DEVICE_OPERATIONS_25_020: [This method shall set the headers map to be used for next request only.]
+    //Tests_SRS_DEVICE_OPERATIONS_25_019: [The request shall add to the HTTP header all the additional custom headers provided for this request, if any.]
     @Test
-    public void setCustomHeadersSucceed(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
-                                        @Mocked HttpRequest httpRequest) throws Exception
+    public void requestWithCustomHeadersSucceed(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
+                                                @Mocked HttpRequest httpRequest) throws Exception
     {
         //Arrange
         Map<String, String> headers = new HashMap<>();
         headers.put("TestKey", "TestValue");
 
         //act
-        DeviceOperations.setHeaders(headers);
         DeviceOperations.request(
                 IOT_HUB_CONNECTION_STRING,
                 new URL(STANDARD_URL),
                 HttpMethod.POST,
                 STANDARD_PAYLOAD,
                 STANDARD_REQUEST_ID,
-                0);
+                0,
+                headers);
 
-        assertNull(Deencapsulation.getField(DeviceOperations.class, "headers"));
+        //assert
+        new Verifications()
+        {
+            {
+                httpRequest.setHeaderField("TestKey", "TestValue");
+                times = 1;
+            }
+        };
+    }
 
+    @Test
+    public void requestCustomHeadersAreNotSentOnOtherRequests(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
+                                                              @Mocked HttpRequest httpRequest) throws Exception
+    {
+        //Arrange
+        Map<String, String> headers = new HashMap<>();
+        headers.put("TestKey", "TestValue");
+
+        //act
+        DeviceOperations.request(
+                IOT_HUB_CONNECTION_STRING,
+                new URL(STANDARD_URL),
+                HttpMethod.POST,
+                STANDARD_PAYLOAD,
+                STANDARD_REQUEST_ID,
+                0,
+                headers);
+
+        DeviceOperations.request(
+                IOT_HUB_CONNECTION_STRING,
+                new URL(STANDARD_URL),
+                HttpMethod.POST,
+                STANDARD_PAYLOAD,
+                STANDARD_REQUEST_ID,
+                0);
         //assert
         new Verifications()
         {
             {
                 httpRequest.setHeaderField("TestKey", "TestValue");
+                maxTimes = 1;
+            }
+        };
+    }
+
+    @Test
+    public void requestIfNoneMatchReturnsNotModifiedResponse(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
+                                                             @Mocked final HttpRequest httpRequest,
+                                                             @Mocked final HttpResponse httpResponse,
+                                                             @Mocked final IotHubExceptionManager iotHubExceptionManager) throws Exception
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                httpRequest.send();
+                result = httpResponse;
+                httpResponse.getStatus();
+                result = 304;
+            }
+        };
+
+        //act
+        HttpResponse response = Deencapsulation.invoke(DeviceOperations.class, "requestIfNoneMatch",
+                new Class[] {IotHubConnectionString.class, URL.class, String.class, String.class, long.class},
+                IOT_HUB_CONNECTION_STRING, new URL(STANDARD_URL), "AAAAAAAAAAM=", STANDARD_REQUEST_ID, 0L);
+
+        //assert
+        assertEquals(httpResponse, response);
+        new Verifications()
+        {
+            {
+                new HttpRequest(withAny(new URL(STANDARD_URL)), HttpMethod.GET, (byte[])any);
                 times = 1;
+                httpRequest.setHeaderField("If-None-Match", "AAAAAAAAAAM=");
+                times = 1;
+                IotHubExceptionManager.httpResponseVerification((HttpResponse)any);
+                times = 0;
             }
         };
     }
 
+    //Tests_SRS_DEVICE_OPERATIONS_25_020: [This method shall set the headers map to be used for the next request of the calling thread only.]
     @Test
     public void setCustomHeadersSetsOnlyOnce(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
-                                        @Mocked HttpRequest httpRequest) throws Exception
+                                             @Mocked HttpRequest httpRequest) throws Exception
     {
         //Arrange
         Map<String, String> headers = new HashMap<>();
@@ -786,12 +857,13 @@ public class DeviceOperationsTest
                 STANDARD_PAYLOAD,
                 STANDARD_REQUEST_ID,
                 0);
+
         //assert
         new Verifications()
         {
             {
                 httpRequest.setHeaderField("TestKey", "TestValue");
-                maxTimes = 1;
+                times = 1;
             }
         };
     }
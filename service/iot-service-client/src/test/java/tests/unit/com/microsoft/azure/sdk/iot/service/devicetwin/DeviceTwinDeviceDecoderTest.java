@@ -0,0 +1,154 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwin;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinDevice;
+import com.microsoft.azure.sdk.iot.service.devicetwin.Pair;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/*
+ *  Unit tests for the DeviceTwinDeviceDecoder
+ */
+public class DeviceTwinDeviceDecoderTest
+{
+    private static final String DECODER_CLASS = "com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinDeviceDecoder";
+
+    private static final String TWIN_JSON =
+            "{" +
+                "\"deviceId\":\"device1\"," +
+                "\"etag\":\"AAAAAAAAAAM=\"," +
+                "\"version\":7," +
+                "\"status\":\"enabled\"," +
+                "\"connectionState\":\"Disconnected\"," +
+                "\"tags\":{\"location\":{\"region\":\"US\"},\"owner\":\"contoso\"}," +
+                "\"properties\":{" +
+                    "\"desired\":{\"maxSpeed\":500,\"$metadata\":{\"$lastUpdated\":\"2017-09-21T02:07:44.238Z\",\"$lastUpdatedVersion\":4,\"maxSpeed\":{\"$lastUpdated\":\"2017-09-21T02:07:44.238Z\",\"$lastUpdatedVersion\":4}},\"$version\":4}," +
+                    "\"reported\":{\"temperature\":21.5,\"humidity\":40,\"$metadata\":{\"$lastUpdated\":\"2017-09-21T02:07:44.238Z\"},\"$version\":12}" +
+                "}," +
+                "\"capabilities\":{\"iotEdge\":true}" +
+            "}";
+
+    private static Object createDecoder(Set<String> projection) throws ClassNotFoundException
+    {
+        return Deencapsulation.newInstance(Class.forName(DECODER_CLASS), new Class[] {Set.class}, projection);
+    }
+
+    private static List<DeviceTwinDevice> decode(Object decoder, String page)
+    {
+        return Deencapsulation.invoke(decoder, "decode", new Class[] {byte[].class}, (Object) page.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object getValue(Set<Pair> pairs, String key)
+    {
+        for (Pair pair : pairs)
+        {
+            if (pair.getKey().equals(key))
+            {
+                return pair.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    @Test
+    public void decodeBuildsTheSameTwinsAsTwinState() throws ClassNotFoundException
+    {
+        //arrange
+        Object decoder = createDecoder(null);
+        DeviceTwinDevice expectedTwin = Deencapsulation.invoke(new DeviceTwin(), "jsonToDeviceTwinDevice", TWIN_JSON);
+
+        //act
+        List<DeviceTwinDevice> twins = decode(decoder, "[" + TWIN_JSON + "," + TWIN_JSON.replace("device1", "device2") + "]");
+
+        //assert
+        assertEquals(2, twins.size());
+        DeviceTwinDevice twin = twins.get(0);
+        assertEquals("device1", twin.getDeviceId());
+        assertEquals("device2", twins.get(1).getDeviceId());
+        assertEquals(expectedTwin.getETag(), twin.getETag());
+        assertEquals(expectedTwin.getVersion(), twin.getVersion());
+        assertEquals(expectedTwin.getConnectionState(), twin.getConnectionState());
+        assertEquals(expectedTwin.getCapabilities().isIotEdge(), twin.getCapabilities().isIotEdge());
+        assertEquals(expectedTwin.tagsToString(), twin.tagsToString());
+        assertEquals(expectedTwin.desiredPropertiesToString(), twin.desiredPropertiesToString());
+        assertEquals(expectedTwin.reportedPropertiesToString(), twin.reportedPropertiesToString());
+        assertEquals(expectedTwin.getDesiredPropertiesVersion(), twin.getDesiredPropertiesVersion());
+        assertEquals(expectedTwin.getReportedPropertiesVersion(), twin.getReportedPropertiesVersion());
+        assertEquals(expectedTwin.toString(), twin.toString());
+    }
+
+    @Test
+    public void decodeOnlyBuildsProjectedFields() throws ClassNotFoundException
+    {
+        //arrange
+        Object decoder = createDecoder(new HashSet<>(Arrays.asList("properties.reported.temperature", "tags.owner")));
+
+        //act
+        List<DeviceTwinDevice> twins = decode(decoder, "[" + TWIN_JSON + "]");
+
+        //assert
+        DeviceTwinDevice twin = twins.get(0);
+        assertEquals("device1", twin.getDeviceId());
+        assertNull(twin.getETag());
+        assertNull(twin.getVersion());
+        assertNull(twin.getCapabilities());
+        assertTrue(twin.getDesiredProperties().isEmpty());
+        assertEquals(1, twin.getReportedProperties().size());
+        assertEquals(21.5, getValue(twin.getReportedProperties(), "temperature"));
+        assertEquals(Integer.valueOf(12), twin.getReportedPropertiesVersion());
+        assertEquals(1, twin.getTags().size());
+        assertEquals("contoso", getValue(twin.getTags(), "owner"));
+    }
+
+    @Test
+    public void projectionOfAFieldContainsItsProjectedChildren() throws ClassNotFoundException
+    {
+        //arrange
+        Object decoder = createDecoder(new HashSet<>(Arrays.asList("properties.reported", "properties.reported.temperature")));
+
+        //act
+        List<DeviceTwinDevice> twins = decode(decoder, "[" + TWIN_JSON + "]");
+
+        //assert
+        assertEquals(2, twins.get(0).getReportedProperties().size());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnEmptyProjection() throws ClassNotFoundException
+    {
+        //act
+        createDecoder(new HashSet<String>());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnMalformedProjection() throws ClassNotFoundException
+    {
+        //act
+        createDecoder(new HashSet<>(Arrays.asList("properties..temperature")));
+    }
+
+    @Test (expected = IOException.class)
+    public void decodeThrowsOnMalformedPage() throws Throwable
+    {
+        //arrange
+        Object decoder = createDecoder(null);
+
+        //act
+        decode(decoder, "{\"deviceId\":\"device1\"}");
+    }
+}
@@ -21,6 +21,7 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -238,6 +239,90 @@ public class DeviceTwinTest
         };
     }
 
+    @Test
+    public void getTwinOperationWithCacheReadsAndCachesTwinOnMiss(@Mocked DeviceTwinDevice mockedDevice, @Mocked final URL mockUrl) throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString");
+        TwinCache twinCache = new TwinCache(10);
+        testTwin.setTwinCache(twinCache);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDevice.getDeviceId();
+                result = "SomeDevID";
+                TwinState.createFromTwinJson((String)any);
+                result = mockedTwinState;
+                mockedTwinState.getETag();
+                result = "validETag";
+            }
+        };
+
+        //act
+        Deencapsulation.invoke(testTwin,"getTwinOperation", new Class[]{URL.class, DeviceTwinDevice.class},
+                mockUrl, mockedDevice);
+
+        //assert
+        assertEquals(1, twinCache.getMissCount());
+        assertEquals(0, twinCache.getRevalidationCount());
+        assertEquals(1, twinCache.size());
+        new Verifications()
+        {
+            {
+                mockedHttpRequest.setHeaderField("If-None-Match", anyString);
+                times = 0;
+                TwinState.createFromTwinJson((String)any);
+                times = 1;
+                Deencapsulation.invoke(mockedDevice, "setETag", "validETag");
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void getTwinOperationWithCacheSkipsParsingWhenTwinNotModified(@Mocked DeviceTwinDevice mockedDevice, @Mocked final URL mockUrl) throws Exception
+    {
+        //arrange
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString("testString");
+        TwinCache twinCache = new TwinCache(10);
+        testTwin.setTwinCache(twinCache);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDevice.getDeviceId();
+                result = "SomeDevID";
+                TwinState.createFromTwinJson((String)any);
+                result = mockedTwinState;
+                mockedTwinState.getETag();
+                result = "validETag";
+                mockedHttpResponse.getStatus();
+                returns(200, 304);
+            }
+        };
+        Deencapsulation.invoke(testTwin,"getTwinOperation", new Class[]{URL.class, DeviceTwinDevice.class},
+                mockUrl, mockedDevice);
+
+        //act
+        Deencapsulation.invoke(testTwin,"getTwinOperation", new Class[]{URL.class, DeviceTwinDevice.class},
+                mockUrl, mockedDevice);
+
+        //assert
+        assertEquals(1, twinCache.getMissCount());
+        assertEquals(1, twinCache.getRevalidationCount());
+        assertEquals(1, twinCache.getHitCount());
+        new Verifications()
+        {
+            {
+                mockedHttpRequest.setHeaderField("If-None-Match", "validETag");
+                times = 1;
+                TwinState.createFromTwinJson((String)any);
+                times = 1;
+                Deencapsulation.invoke(mockedDevice, "setETag", "validETag");
+                times = 2;
+            }
+        };
+    }
+
     @Test
     public void getTwinSucceeds(@Mocked DeviceTwinDevice mockedDevice) throws Exception
     {
@@ -1085,6 +1170,47 @@ public class DeviceTwinTest
         assertTrue(mockConfigurations == result.getConfigurations());
     }
 
+    @Test
+    public void nextReturnsTheTwinDecodedByTheQueryOfQueryTwin(@Mocked final DeviceTwinDevice mockedDevice) throws IotHubException, IOException
+    {
+        //arrange
+        final String connectionString = "testString";
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString(connectionString);
+
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.newInstance(Query.class, new Class[] {String.class, Integer.class, QueryType.class}, anyString, anyInt, QueryType.TWIN);
+                result = mockedQuery;
+                Deencapsulation.invoke(mockedQuery, "hasDeviceTwinDecoder");
+                result = true;
+                Deencapsulation.invoke(mockedQuery, "hasNextDeviceTwin");
+                result = true;
+                Deencapsulation.invoke(mockedQuery, "nextDeviceTwin");
+                result = mockedDevice;
+            }
+        };
+
+        Query testQuery = testTwin.queryTwin(VALID_SQL_QUERY);
+
+        //act
+        boolean hasNext = testTwin.hasNextDeviceTwin(testQuery);
+        DeviceTwinDevice result = testTwin.getNextDeviceTwin(testQuery);
+
+        //assert
+        assertTrue(hasNext);
+        assertEquals(mockedDevice, result);
+        new Verifications()
+        {
+            {
+                mockedQuery.hasNext();
+                times = 0;
+                mockedQuery.next();
+                times = 0;
+            }
+        };
+    }
+
     @Test (expected = IllegalArgumentException.class)
     public void nextThrowsOnNullQuery(@Mocked DeviceTwinDevice mockedDevice) throws IotHubException, IOException
     {
@@ -1469,13 +1595,17 @@ public class DeviceTwinTest
     //Tests_SRS_DEVICETWIN_34_078: [If the provided deviceTwinQueryCollection has a next set to give, this function shall retrieve that set from deviceTwinQueryCollection, cast its contents to DeviceTwinDevice objects, and return it in a QueryCollectionResponse object.]
     //Tests_SRS_DEVICETWIN_34_079: [The returned QueryCollectionResponse object shall contain the continuation token needed to retrieve the next set with.]
     @Test
-    public void getNextDeviceTwinCollectionWithOptionsSuccess() throws IOException, IotHubException
+    public void getNextDeviceTwinCollectionWithOptionsSuccess() throws IOException, IotHubException, ClassNotFoundException
     {
         //arrange
         DeviceTwin deviceTwin = new DeviceTwin();
-        String expectedContinuationToken = "some continuation token";
-
-        String expectedJsonString = "some json string";
+        final Class<?> decoderClass = Class.forName("com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinDeviceDecoder");
+        final byte[] page = ("[" +
+                "{\"deviceId\":\"device1\",\"etag\":\"AAAAAAAAAAM=\",\"version\":7,\"tags\":{\"owner\":\"contoso\"}," +
+                "\"properties\":{\"desired\":{\"maxSpeed\":500,\"$version\":4},\"reported\":{\"temperature\":21.5,\"$version\":12}}}," +
+                "{\"deviceId\":\"device2\",\"moduleId\":\"module2\",\"properties\":{\"desired\":{\"$version\":1},\"reported\":{\"$version\":1}}}" +
+                "]").getBytes(StandardCharsets.UTF_8);
+        final List<Object> decoders = new ArrayList<>();
 
         new MockUp<DeviceTwin>()
         {
@@ -1483,50 +1613,51 @@ public class DeviceTwinTest
             {
                 return true;
             }
+        };
 
-            @Mock DeviceTwinDevice jsonToDeviceTwinDevice(String json) throws IOException
+        new NonStrictExpectations()
+        {
             {
-                return new DeviceTwinDevice();
+                Deencapsulation.invoke(mockQueryCollection, "nextDeviceTwins", new Class[] {QueryOptions.class, decoderClass}, mockQueryOptions, any);
+                result = new Delegate()
+                {
+                    QueryCollectionResponse<DeviceTwinDevice> nextDeviceTwins(QueryOptions options, Object decoder)
+                    {
+                        decoders.add(decoder);
+                        return mockQueryCollectionResponse;
+                    }
+                };
             }
         };
 
-        new StrictExpectations()
+        //act
+        QueryCollectionResponse<DeviceTwinDevice> actualResponse = deviceTwin.next(mockQueryCollection, mockQueryOptions);
+
+        //assert
+        assertEquals(mockQueryCollectionResponse, actualResponse);
+        new Verifications()
         {
             {
                 Deencapsulation.invoke(mockQueryCollection, "next", new Class[] {QueryOptions.class}, mockQueryOptions);
-                result = mockQueryCollectionResponse;
-
-                mockQueryCollectionResponse.getCollection();
-                result = mockCollection;
-
-                mockCollection.iterator();
-                result = mockIterator;
-
-                mockIterator.hasNext();
-                result = true;
-
-                mockIterator.next();
-                result = expectedJsonString;
-
-                mockIterator.hasNext();
-                result = true;
-
-                mockIterator.next();
-                result = expectedJsonString;
-
-                mockIterator.hasNext();
-                result = false;
-
-                mockQueryCollectionResponse.getContinuationToken();
-                result = expectedContinuationToken;
-
-                Deencapsulation.newInstance(QueryCollectionResponse.class, new Class[] {Collection.class, String.class}, (Collection) any, expectedContinuationToken);
-                result = mockQueryCollectionResponse;
+                times = 0;
             }
         };
 
-        //act
-        deviceTwin.next(mockQueryCollection, mockQueryOptions);
+        // the page is decoded by the decoder given to the query collection
+        assertEquals(1, decoders.size());
+        List<DeviceTwinDevice> twins = Deencapsulation.invoke(decoders.get(0), "decode", new Class[] {byte[].class}, (Object) page);
+        assertEquals(2, twins.size());
+        assertEquals("device1", twins.get(0).getDeviceId());
+        assertNull(twins.get(0).getModuleId());
+        assertEquals("AAAAAAAAAAM=", twins.get(0).getETag());
+        assertEquals(Integer.valueOf(7), twins.get(0).getVersion());
+        assertEquals("contoso", twins.get(0).getTags().iterator().next().getValue());
+        assertEquals(Integer.valueOf(4), twins.get(0).getDesiredPropertiesVersion());
+        assertEquals(500.0, twins.get(0).getDesiredProperties().iterator().next().getValue());
+        assertEquals(Integer.valueOf(12), twins.get(0).getReportedPropertiesVersion());
+        assertEquals(21.5, twins.get(0).getReportedProperties().iterator().next().getValue());
+        assertEquals("device2", twins.get(1).getDeviceId());
+        assertEquals("module2", twins.get(1).getModuleId());
     }
 
     //Tests_SRS_DEVICETWIN_34_071: [This function shall return if the provided deviceTwinQueryCollection has next.]
@@ -19,6 +19,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.Map;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.*;
@@ -307,7 +308,7 @@ public class QueryCollectionTest
                 mockQueryOptions.getPageSize();
                 result = expectedPageSize;
 
-                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, (byte[]) any, anyString, expectedTimeout);
+                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, (byte[]) any, anyString, expectedTimeout, (Map<String, String>) any);
                 result = mockHttpResponse;
 
                 mockHttpResponse.getHeaderFields();
@@ -322,10 +323,7 @@ public class QueryCollectionTest
         new Verifications()
         {
             {
-                DeviceOperations.setHeaders(expectedValidRequestHeaders);
-                times = 1;
-
-                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, new byte[0], anyString, expectedTimeout);
+                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, new byte[0], anyString, expectedTimeout, expectedValidRequestHeaders);
                 times = 1;
             }
         };
@@ -348,7 +346,7 @@ public class QueryCollectionTest
                 mockQueryOptions.getPageSize();
                 result = expectedPageSize;
 
-                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, (byte[]) any, anyString, expectedTimeout);
+                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, (byte[]) any, anyString, expectedTimeout, (Map<String, String>) any);
                 result = mockHttpResponse;
 
                 mockHttpResponse.getHeaderFields();
@@ -373,7 +371,7 @@ public class QueryCollectionTest
         new NonStrictExpectations()
         {
             {
-                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, (byte[]) any, anyString, expectedTimeout);
+                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, (byte[]) any, anyString, expectedTimeout, (Map<String, String>) any);
                 result = mockHttpResponse;
 
                 mockHttpResponse.getHeaderFields();
@@ -390,10 +388,7 @@ public class QueryCollectionTest
         new Verifications()
         {
             {
-                DeviceOperations.setHeaders(expectedValidRequestHeaders);
-                times = 1;
-
-                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, new byte[0], anyString, expectedTimeout);
+                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, new byte[0], anyString, expectedTimeout, expectedValidRequestHeaders);
                 times = 1;
             }
         };
@@ -424,7 +419,7 @@ public class QueryCollectionTest
                 expectedQueryStringJson.getBytes();
                 result = expectedQueryStringBytes;
 
-                DeviceOperations.request((IotHubConnectionString) any, (URL) any, (HttpMethod) any, expectedQueryStringBytes, null, anyLong);
+                DeviceOperations.request((IotHubConnectionString) any, (URL) any, (HttpMethod) any, expectedQueryStringBytes, null, anyLong, (Map<String, String>) any);
                 result = mockHttpResponse;
 
                 mockHttpResponse.getHeaderFields();
@@ -439,7 +434,7 @@ public class QueryCollectionTest
         new Verifications()
         {
             {
-                DeviceOperations.request((IotHubConnectionString) any, (URL) any, (HttpMethod) any, expectedQueryStringBytes, null, anyLong);
+                DeviceOperations.request((IotHubConnectionString) any, (URL) any, (HttpMethod) any, expectedQueryStringBytes, null, anyLong, (Map<String, String>) any);
                 times = 1;
             }
         };
@@ -471,7 +466,7 @@ public class QueryCollectionTest
                 expectedQueryStringJson.getBytes();
                 result = expectedQueryStringBytes;
 
-                DeviceOperations.request((IotHubConnectionString) any, (URL) any, (HttpMethod) any, expectedQueryStringBytes, null, anyLong);
+                DeviceOperations.request((IotHubConnectionString) any, (URL) any, (HttpMethod) any, expectedQueryStringBytes, null, anyLong, (Map<String, String>) any);
                 result = mockHttpResponse;
 
                 mockHttpResponse.getHeaderFields();
@@ -511,7 +506,7 @@ public class QueryCollectionTest
                 mockQueryOptions.getPageSize();
                 result = expectedPageSize;
 
-                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, (byte[]) any, anyString, expectedTimeout);
+                DeviceOperations.request(mockConnectionString, mockUrl, mockHttpMethod, (byte[]) any, anyString, expectedTimeout, (Map<String, String>) any);
                 result = mockHttpResponse;
 
                 mockHttpResponse.getHeaderFields();
@@ -697,10 +692,7 @@ public class QueryCollectionTest
         new Verifications()
         {
             {
-                DeviceOperations.setHeaders(expectedValidRequestHeaders);
-                times = 1;
-
-                DeviceOperations.request(mockConnectionString, (URL) any, mockHttpMethod, (byte[]) any, null, expectedTimeout);
+                DeviceOperations.request(mockConnectionString, (URL) any, mockHttpMethod, (byte[]) any, null, expectedTimeout, expectedValidRequestHeaders);
                 times = 1;
             }
         };
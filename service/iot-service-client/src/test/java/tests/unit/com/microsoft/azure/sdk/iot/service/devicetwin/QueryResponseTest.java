@@ -6,17 +6,21 @@
 package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.QueryResponseParser;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinDevice;
 import com.microsoft.azure.sdk.iot.service.devicetwin.QueryResponse;
 import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
+import mockit.Verifications;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -193,4 +197,64 @@ public class QueryResponseTest
         assertFalse(testResponse.hasNext());
         assertNull(testResponse.next());
     }
+
+    @Test
+    public void twinResponseIsReadOnlyAsDeviceTwinsByNextDeviceTwin() throws Exception
+    {
+        //arrange
+        QueryResponse testResponse = createTwinResponse();
+
+        //act
+        DeviceTwinDevice first = Deencapsulation.invoke(testResponse, "nextDeviceTwin");
+        DeviceTwinDevice second = Deencapsulation.invoke(testResponse, "nextDeviceTwin");
+
+        //assert
+        assertEquals("device1", first.getDeviceId());
+        assertEquals("device2", second.getDeviceId());
+        assertFalse((boolean) Deencapsulation.invoke(testResponse, "hasNextDeviceTwin"));
+        new Verifications()
+        {
+            {
+                new QueryResponseParser(anyString);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void twinResponseReturnsJsonStringsFromNextAfterTheTwinsAlreadyReturned() throws Exception
+    {
+        //arrange
+        final List<String> testList = new LinkedList<>();
+        testList.add(TWIN_JSON_1);
+        testList.add(TWIN_JSON_2);
+        new NonStrictExpectations()
+        {
+            {
+                mockedQueryResponseParser.getJsonItems();
+                result = testList;
+            }
+        };
+        QueryResponse testResponse = createTwinResponse();
+
+        //act
+        DeviceTwinDevice first = Deencapsulation.invoke(testResponse, "nextDeviceTwin");
+        Object second = testResponse.next();
+
+        //assert
+        assertEquals("device1", first.getDeviceId());
+        assertEquals(TWIN_JSON_2, second);
+        assertFalse(testResponse.hasNext());
+    }
+
+    private static final String TWIN_JSON_1 = "{\"deviceId\":\"device1\",\"properties\":{\"desired\":{\"$version\":1},\"reported\":{\"$version\":1}}}";
+    private static final String TWIN_JSON_2 = "{\"deviceId\":\"device2\",\"properties\":{\"desired\":{\"$version\":1},\"reported\":{\"$version\":1}}}";
+
+    private static QueryResponse createTwinResponse() throws ClassNotFoundException
+    {
+        Class<?> decoderClass = Class.forName("com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinDeviceDecoder");
+        Object decoder = Deencapsulation.newInstance(decoderClass, new Class[] {Set.class}, (Object) null);
+        byte[] page = ("[" + TWIN_JSON_1 + "," + TWIN_JSON_2 + "]").getBytes(StandardCharsets.UTF_8);
+        return Deencapsulation.newInstance(QueryResponse.class, new Class[] {byte[].class, decoderClass}, page, decoder);
+    }
 }
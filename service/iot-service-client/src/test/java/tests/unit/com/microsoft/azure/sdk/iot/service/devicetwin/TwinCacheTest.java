@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.deps.twin.TwinState;
+import com.microsoft.azure.sdk.iot.service.devicetwin.TwinCache;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/*
+    Unit tests for the TwinCache
+ */
+public class TwinCacheTest
+{
+    @Mocked
+    TwinState mockedTwinState;
+
+    private static void put(TwinCache twinCache, String deviceId, String moduleId, TwinState twinState)
+    {
+        Deencapsulation.invoke(twinCache, "put", new Class[] {String.class, String.class, TwinState.class}, deviceId, moduleId, twinState);
+    }
+
+    private static TwinState get(TwinCache twinCache, String deviceId, String moduleId)
+    {
+        return Deencapsulation.invoke(twinCache, "get", new Class[] {String.class, String.class}, deviceId, moduleId);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNonPositiveMaxTwins()
+    {
+        //act
+        new TwinCache(0);
+    }
+
+    @Test
+    public void putDropsLeastRecentlyReadTwinWhenFull()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(2);
+        put(twinCache, "device1", null, mockedTwinState);
+        put(twinCache, "device2", null, mockedTwinState);
+        get(twinCache, "device1", null);
+
+        //act
+        put(twinCache, "device3", null, mockedTwinState);
+
+        //assert
+        assertEquals(2, twinCache.size());
+        assertNotNull(get(twinCache, "device1", null));
+        assertNull(get(twinCache, "device2", null));
+        assertNotNull(get(twinCache, "device3", null));
+    }
+
+    @Test
+    public void deviceAndModuleTwinsAreCachedSeparately()
+    {
+        //arrange
+        TwinCache twinCache = new TwinCache(10);
+        put(twinCache, "device1", "module1", mockedTwinState);
+
+        //act
+        Deencapsulation.invoke(twinCache, "remove", new Class[] {String.class, String.class}, "device1", null);
+
+        //assert
+        assertNull(get(twinCache, "device1", null));
+        assertNotNull(get(twinCache, "device1", "module1"));
+        twinCache.clear();
+        assertEquals(0, twinCache.size());
+    }
+}
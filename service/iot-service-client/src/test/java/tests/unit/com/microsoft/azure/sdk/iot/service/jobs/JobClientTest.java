@@ -13,6 +13,8 @@ import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.devicetwin.*;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubServerBusyException;
 import com.microsoft.azure.sdk.iot.service.jobs.JobClient;
 import com.microsoft.azure.sdk.iot.service.jobs.JobResult;
 import com.microsoft.azure.sdk.iot.service.jobs.JobStatus;
@@ -30,10 +32,15 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Unit test for job client
@@ -1529,6 +1536,254 @@ public class JobClientTest
         assertNotNull(jobResult);
     }
 
+    @Test
+    public void getJobAsyncCompletesWithJobResult() throws Exception
+    {
+        //arrange
+        final String connectionString = "testString";
+        final String jobId = "validJobId";
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = mockedIotHubConnectionString;
+
+                mockedIotHubConnectionString.getUrlJobs(jobId);
+                result = mockedURL;
+
+                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                result = mockedHttpResponse;
+
+                Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
+                result = mockedJobResult;
+            }
+        };
+        JobClient testJobClient = JobClient.createFromConnectionString(connectionString);
+
+        //act
+        JobResult jobResult = testJobClient.getJobAsync(jobId).get(10, TimeUnit.SECONDS);
+
+        //assert
+        assertNotNull(jobResult);
+    }
+
+    @Test
+    public void getJobAsyncCompletesExceptionallyOnSendGET() throws Exception
+    {
+        //arrange
+        final String connectionString = "testString";
+        final String jobId = "validJobId";
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = mockedIotHubConnectionString;
+
+                mockedIotHubConnectionString.getUrlJobs(jobId);
+                result = mockedURL;
+
+                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                result = new IOException();
+            }
+        };
+        JobClient testJobClient = JobClient.createFromConnectionString(connectionString);
+
+        //act
+        try
+        {
+            testJobClient.getJobAsync(jobId).get(10, TimeUnit.SECONDS);
+            fail("expected ExecutionException");
+        }
+        catch (ExecutionException e)
+        {
+            //assert
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void awaitJobAsyncCompletesWhenJobEnds() throws Exception
+    {
+        //arrange
+        final String connectionString = "testString";
+        final String jobId = "validJobId";
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = mockedIotHubConnectionString;
+
+                mockedIotHubConnectionString.getUrlJobs(jobId);
+                result = mockedURL;
+
+                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                result = mockedHttpResponse;
+
+                Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
+                result = mockedJobResult;
+
+                mockedJobResult.getJobStatus();
+                returns(JobStatus.running, JobStatus.completed);
+            }
+        };
+        JobClient testJobClient = JobClient.createFromConnectionString(connectionString);
+
+        //act
+        JobResult jobResult = testJobClient.awaitJobAsync(jobId).get(20, TimeUnit.SECONDS);
+
+        //assert
+        assertNotNull(jobResult);
+        new Verifications()
+        {
+            {
+                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void awaitJobAsyncQueriesJobsAwaitedTogether(@Mocked final Query mockedQuery) throws Exception
+    {
+        //arrange
+        final String connectionString = "testString";
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = mockedIotHubConnectionString;
+
+                mockedQuery.hasNext();
+                returns(true, true, false);
+
+                mockedQuery.next();
+                result = "{}";
+
+                Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
+                result = mockedJobResult;
+
+                mockedJobResult.getJobId();
+                returns("job1", "job2");
+
+                mockedJobResult.getJobStatus();
+                result = JobStatus.completed;
+            }
+        };
+        JobClient testJobClient = JobClient.createFromConnectionString(connectionString);
+
+        //act
+        CompletableFuture<JobResult> job1 = testJobClient.awaitJobAsync("job1");
+        CompletableFuture<JobResult> job2 = testJobClient.awaitJobAsync("job2");
+
+        //assert
+        assertNotNull(job1.get(10, TimeUnit.SECONDS));
+        assertNotNull(job2.get(10, TimeUnit.SECONDS));
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockedQuery, "sendQueryRequest", new Class[] {IotHubConnectionString.class, URL.class, HttpMethod.class, Long.class}, any, any, HttpMethod.GET, any);
+                times = 1;
+
+                DeviceOperations.request((IotHubConnectionString)any, (URL)any, HttpMethod.GET, (byte[])any, anyString, anyLong);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void awaitJobAsyncPollsAgainAfterTransientFailure() throws Exception
+    {
+        //arrange
+        final String connectionString = "testString";
+        final String jobId = "validJobId";
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = mockedIotHubConnectionString;
+
+                mockedIotHubConnectionString.getUrlJobs(jobId);
+                result = mockedURL;
+
+                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                result = new IotHubServerBusyException("busy");
+                result = mockedHttpResponse;
+
+                Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
+                result = mockedJobResult;
+
+                mockedJobResult.getJobStatus();
+                result = JobStatus.completed;
+            }
+        };
+        JobClient testJobClient = JobClient.createFromConnectionString(connectionString);
+
+        //act
+        JobResult jobResult = testJobClient.awaitJobAsync(jobId).get(20, TimeUnit.SECONDS);
+
+        //assert
+        assertNotNull(jobResult);
+        new Verifications()
+        {
+            {
+                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void awaitJobAsyncFailsOnNonTransientFailure() throws Exception
+    {
+        //arrange
+        final String connectionString = "testString";
+        final String jobId = "validJobId";
+        final IotHubNotFoundException notFoundException = new IotHubNotFoundException("not found");
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = mockedIotHubConnectionString;
+
+                mockedIotHubConnectionString.getUrlJobs(jobId);
+                result = mockedURL;
+
+                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                result = notFoundException;
+            }
+        };
+        JobClient testJobClient = JobClient.createFromConnectionString(connectionString);
+
+        //act
+        try
+        {
+            testJobClient.awaitJobAsync(jobId).get(20, TimeUnit.SECONDS);
+            fail("expected ExecutionException");
+        }
+        catch (ExecutionException e)
+        {
+            //assert
+            assertSame(notFoundException, e.getCause());
+        }
+        new Verifications()
+        {
+            {
+                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                times = 1;
+            }
+        };
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void awaitJobAsyncThrowsOnNullJobId() throws IOException
+    {
+        //arrange
+        JobClient testJobClient = JobClient.createFromConnectionString("testString");
+
+        //act
+        testJobClient.awaitJobAsync(null);
+    }
+
     /* Tests_SRS_JOBCLIENT_21_030: [If the JobId is null, empty, or invalid, the cancelJob shall throws IllegalArgumentException.] */
     @Test (expected = IllegalArgumentException.class)
     public void cancelJobThrowsOnNullJobId() throws IOException, IotHubException
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.transport;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.transport.AsyncOperationExecutor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for AsyncOperationExecutor.
+ */
+public class AsyncOperationExecutorTest
+{
+    private static final int OPERATION_COUNT = 20;
+    private static final int MAX_CONCURRENCY = 3;
+
+    @Test
+    public void submitOperationRunsAtMostMaxConcurrencyOperationsAtTheSameTime() throws Exception
+    {
+        //arrange
+        AsyncOperationExecutor executor = new AsyncOperationExecutor(MAX_CONCURRENCY, "test-");
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        //act
+        for (int i = 0; i < OPERATION_COUNT; i++)
+        {
+            final int result = i;
+            futures.add(executor.submitOperation(() ->
+            {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return result;
+            }));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        //assert
+        for (int i = 0; i < OPERATION_COUNT; i++)
+        {
+            assertEquals(i, (int)futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(MAX_CONCURRENCY, maxRunning.get());
+        assertTrue(executor.getPoolSize() <= MAX_CONCURRENCY);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void submitOperationCompletesExceptionallyWithTheThrownException() throws Exception
+    {
+        //arrange
+        AsyncOperationExecutor executor = new AsyncOperationExecutor(MAX_CONCURRENCY, "test-");
+        final IotHubException exception = new IotHubException("test");
+
+        //act
+        CompletableFuture<Object> future = executor.submitOperation(() ->
+        {
+            throw exception;
+        });
+
+        //assert
+        try
+        {
+            future.get(10, TimeUnit.SECONDS);
+            fail("expected ExecutionException");
+        }
+        catch (ExecutionException e)
+        {
+            assertSame(exception, e.getCause());
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void submitOperationCompletesExceptionallyWithTheThrownError() throws Exception
+    {
+        //arrange
+        AsyncOperationExecutor executor = new AsyncOperationExecutor(MAX_CONCURRENCY, "test-");
+        final AssertionError error = new AssertionError("test");
+
+        //act
+        CompletableFuture<Object> future = executor.submitOperation(() ->
+        {
+            throw error;
+        });
+
+        //assert
+        try
+        {
+            future.get(10, TimeUnit.SECONDS);
+            fail("expected ExecutionException");
+        }
+        catch (ExecutionException e)
+        {
+            assertSame(error, e.getCause());
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void submitOperationRunsOperationsOnNamedDaemonThreads() throws Exception
+    {
+        //arrange
+        AsyncOperationExecutor executor = new AsyncOperationExecutor(MAX_CONCURRENCY, "test-");
+
+        //act
+        Thread thread = executor.submitOperation(Thread::currentThread).get(10, TimeUnit.SECONDS);
+
+        //assert
+        assertTrue(thread.isDaemon());
+        assertTrue(thread.getName().startsWith("test-"));
+        executor.shutdownNow();
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void submitOperationThrowsOnNullExecutor()
+    {
+        //act
+        AsyncOperationExecutor.submitOperation(null, () -> null);
+    }
+
+    @Test
+    public void setMaxConcurrencyUpdatesTheMaxConcurrency()
+    {
+        //arrange
+        AsyncOperationExecutor executor = new AsyncOperationExecutor(MAX_CONCURRENCY, "test-");
+
+        //act
+        executor.setMaxConcurrency(MAX_CONCURRENCY * 2);
+        int increased = executor.getMaxConcurrency();
+        executor.setMaxConcurrency(1);
+
+        //assert
+        assertEquals(MAX_CONCURRENCY * 2, increased);
+        assertEquals(1, executor.getMaxConcurrency());
+        assertEquals(1, executor.getCorePoolSize());
+        assertEquals(0, executor.getPoolSize());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNonPositiveMaxConcurrency()
+    {
+        //act
+        new AsyncOperationExecutor(0, "test-");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setMaxConcurrencyThrowsOnNonPositiveMaxConcurrency()
+    {
+        //arrange
+        AsyncOperationExecutor executor = new AsyncOperationExecutor(MAX_CONCURRENCY, "test-");
+
+        //act
+        executor.setMaxConcurrency(-1);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.Message;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpBulkSendHandler;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpBulkSendListener;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import mockit.integration.junit4.JMockit;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Sender;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.*;
+
+/** Unit tests for AmqpBulkSendHandler */
+@RunWith(JMockit.class)
+public class AmqpBulkSendHandlerTest
+{
+    @Mocked Event mockEvent;
+    @Mocked Sender mockSender;
+    @Mocked Delivery mockDelivery;
+
+    private final List<String> outcomes = new ArrayList<>();
+    private final AmqpBulkSendListener listener = (deviceId, messageId, exception) -> outcomes.add(deviceId + "|" + messageId + "|" + (exception == null));
+
+    private AmqpBulkSendHandler createHandler(List<String> deviceIds, int maxInFlight) throws Exception
+    {
+        Message template = new Message("firmware notice");
+        template.setMessageId("template");
+        return new AmqpBulkSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS,
+                new ConcurrentLinkedQueue<>(deviceIds), template, "notice-{deviceId}", maxInFlight, listener);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnEmptyWindow() throws Exception
+    {
+        // Act
+        createHandler(Arrays.asList("device1"), 0);
+    }
+
+    @Test
+    public void resolveMessageIdUsesTemplate() throws Exception
+    {
+        // Arrange
+        Message template = new Message("body");
+        template.setMessageId("template");
+
+        // Act & Assert
+        assertEquals("notice-device1", AmqpBulkSendHandler.resolveMessageId("notice-{deviceId}", template, "device1"));
+        assertEquals("template", AmqpBulkSendHandler.resolveMessageId(null, template, "device1"));
+    }
+
+    @Test
+    public void onLinkFlowRespectsInFlightWindow() throws Exception
+    {
+        // Arrange
+        AmqpBulkSendHandler handler = createHandler(Arrays.asList("device1", "device2", "device3"), 2);
+        new Expectations()
+        {
+            {
+                mockEvent.getLink();
+                result = mockSender;
+                mockSender.getCredit();
+                result = 100;
+            }
+        };
+
+        // Act
+        handler.onLinkFlow(mockEvent);
+
+        // Assert
+        new Verifications()
+        {
+            {
+                mockSender.delivery((byte[]) any);
+                times = 2;
+                mockSender.advance();
+                times = 2;
+                mockSender.close();
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void onDeliveryReportsOutcomeAndClosesWhenDone() throws Exception
+    {
+        // Arrange
+        AmqpBulkSendHandler handler = createHandler(Arrays.asList("device1"), 10);
+        new Expectations()
+        {
+            {
+                mockEvent.getLink();
+                result = mockSender;
+                mockEvent.getSender();
+                result = mockSender;
+                mockEvent.getType();
+                result = Event.Type.DELIVERY;
+                mockSender.getCredit();
+                result = 100;
+                mockEvent.getDelivery();
+                result = mockDelivery;
+                mockDelivery.getTag();
+                result = "0".getBytes();
+                mockDelivery.remotelySettled();
+                result = true;
+                mockDelivery.getRemoteState();
+                result = Accepted.getInstance();
+            }
+        };
+        handler.onLinkFlow(mockEvent);
+
+        // Act
+        handler.onDelivery(mockEvent);
+
+        // Assert
+        assertEquals(1, outcomes.size());
+        assertEquals("device1|notice-device1|true", outcomes.get(0));
+        new Verifications()
+        {
+            {
+                mockDelivery.settle();
+                times = 1;
+                mockSender.close();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void failInFlightReportsUnacknowledgedDevices() throws Exception
+    {
+        // Arrange
+        AmqpBulkSendHandler handler = createHandler(Arrays.asList("device1", "device2"), 10);
+        new Expectations()
+        {
+            {
+                mockEvent.getLink();
+                result = mockSender;
+                mockSender.getCredit();
+                result = 100;
+            }
+        };
+        handler.onLinkFlow(mockEvent);
+
+        // Act
+        handler.failInFlight(new Exception());
+
+        // Assert
+        assertEquals(2, outcomes.size());
+        assertTrue(outcomes.contains("device1|notice-device1|false"));
+        assertTrue(outcomes.contains("device2|notice-device2|false"));
+    }
+}